@@ -0,0 +1,97 @@
+/*
+ * Copyright 2021 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.internal.resources;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.gradle.internal.resources.DefaultResourceLockCoordinationService.lock;
+import static org.gradle.internal.resources.DefaultResourceLockCoordinationService.unlock;
+
+/**
+ * Measures the throughput of many threads repeatedly acquiring and releasing a set of contended locks,
+ * similar to workers competing for project locks.
+ */
+@Fork(1)
+@Threads(32)
+@Warmup(iterations = 5)
+@Measurement(iterations = 5)
+@State(Scope.Benchmark)
+public class ResourceLockCoordinationBenchmark {
+
+    private static final ResourceLockContainer NO_OP_CONTAINER = new ResourceLockContainer() {
+        @Override
+        public void lockAcquired(ResourceLock lock) {
+        }
+
+        @Override
+        public void lockReleased(ResourceLock lock) {
+        }
+    };
+
+    @Param({"1", "4", "32"})
+    int lockCount;
+
+    ResourceLockCoordinationService coordinationService;
+    ResourceLock[] locks;
+    final AtomicInteger threadCounter = new AtomicInteger();
+
+    @Setup(Level.Iteration)
+    public void setup() {
+        coordinationService = new DefaultResourceLockCoordinationService();
+        locks = new ResourceLock[lockCount];
+        for (int i = 0; i < lockCount; i++) {
+            locks[i] = new ExclusiveAccessResourceLock("lock " + i, coordinationService, NO_OP_CONTAINER);
+        }
+    }
+
+    @TearDown(Level.Iteration)
+    public void reportWaits() {
+        ResourceLockWaitStatistics statistics = coordinationService.getWaitStatistics();
+        System.out.println();
+        System.out.println("blocked: " + statistics.getBlockedCount() + ", retries: " + statistics.getRetryCount() + ", waited: " + statistics.getTotalWaitTimeMillis() + "ms");
+    }
+
+    @State(Scope.Thread)
+    public static class Worker {
+        ResourceLock lock;
+
+        @Setup(Level.Iteration)
+        public void selectLock(ResourceLockCoordinationBenchmark benchmark) {
+            lock = benchmark.locks[benchmark.threadCounter.getAndIncrement() % benchmark.lockCount];
+        }
+    }
+
+    @Benchmark
+    public void acquireAndReleaseContendedLock(Worker worker) {
+        coordinationService.withStateLock(lock(worker.lock));
+        Blackhole.consumeCPU(100);
+        coordinationService.withStateLock(unlock(worker.lock));
+    }
+}
@@ -0,0 +1,45 @@
+/*
+ * Copyright 2021 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.internal.options;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * An internal option that takes the name of an enum constant, ignoring case, e.g. {@code -Dorg.gradle.cache.internal.btree.blockStore=mapped}.
+ */
+public class EnumInternalOption<E extends Enum<E>> extends InternalOption<E> {
+    private final Class<E> enumClass;
+
+    public EnumInternalOption(String propertyName, Class<E> enumClass, E defaultValue) {
+        super(propertyName, defaultValue);
+        this.enumClass = enumClass;
+    }
+
+    @Override
+    protected E parse(String value) {
+        List<String> names = new ArrayList<String>();
+        for (E constant : enumClass.getEnumConstants()) {
+            if (constant.name().equalsIgnoreCase(value)) {
+                return constant;
+            }
+            names.add(constant.name().toLowerCase(Locale.ROOT));
+        }
+        throw invalidValue(value, String.format("The value should be one of %s.", names));
+    }
+}
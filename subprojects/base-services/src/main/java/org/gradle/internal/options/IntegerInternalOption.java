@@ -0,0 +1,42 @@
+/*
+ * Copyright 2021 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.internal.options;
+
+/**
+ * An internal option that takes an integer value of at least a given minimum, e.g. a number of threads or a duration in a fixed unit.
+ */
+public class IntegerInternalOption extends InternalOption<Integer> {
+    private final int minimum;
+
+    public IntegerInternalOption(String propertyName, int defaultValue, int minimum) {
+        super(propertyName, defaultValue);
+        this.minimum = minimum;
+    }
+
+    @Override
+    protected Integer parse(String value) {
+        try {
+            int result = Integer.parseInt(value);
+            if (result >= minimum) {
+                return result;
+            }
+        } catch (NumberFormatException e) {
+            // Reported below
+        }
+        throw invalidValue(value, String.format("The value should be an integer of at least %d.", minimum));
+    }
+}
@@ -0,0 +1,37 @@
+/*
+ * Copyright 2021 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.internal.options;
+
+/**
+ * An internal option that enables a behaviour, e.g. {@code -Dorg.gradle.internal.operations.listeners.async=true}. Disabled by default.
+ */
+public class InternalFlag extends InternalOption<Boolean> {
+    public InternalFlag(String propertyName) {
+        super(propertyName, false);
+    }
+
+    @Override
+    protected Boolean parse(String value) {
+        if (value.equalsIgnoreCase("true")) {
+            return true;
+        }
+        if (value.equalsIgnoreCase("false")) {
+            return false;
+        }
+        throw invalidValue(value, "The value should be 'true' or 'false'.");
+    }
+}
@@ -0,0 +1,66 @@
+/*
+ * Copyright 2021 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.internal.options;
+
+/**
+ * An internal option, set with a system property, e.g. {@code -Dorg.gradle.internal.zip.parallelism=4}. The value of an option is looked up
+ * with {@link InternalOptions}.
+ *
+ * <p>An option that is not set, or is set to an empty value, has its default value.</p>
+ *
+ * @param <T> the type of the value.
+ */
+public abstract class InternalOption<T> {
+    private final String propertyName;
+    private final T defaultValue;
+
+    protected InternalOption(String propertyName, T defaultValue) {
+        this.propertyName = propertyName;
+        this.defaultValue = defaultValue;
+    }
+
+    public String getPropertyName() {
+        return propertyName;
+    }
+
+    public T getDefaultValue() {
+        return defaultValue;
+    }
+
+    /**
+     * Converts the given value of this option.
+     *
+     * @throws IllegalArgumentException when the value is not valid for this option.
+     */
+    public T convert(String value) {
+        if (value.isEmpty()) {
+            return defaultValue;
+        }
+        return parse(value);
+    }
+
+    protected abstract T parse(String value);
+
+    protected IllegalArgumentException invalidValue(String value, String expectation) {
+        return new IllegalArgumentException(String.format("Invalid value '%s' for internal option '%s'. %s", value, propertyName, expectation));
+    }
+
+    @Override
+    public String toString() {
+        return propertyName;
+    }
+}
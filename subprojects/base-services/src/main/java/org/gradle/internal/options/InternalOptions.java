@@ -0,0 +1,33 @@
+/*
+ * Copyright 2021 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.internal.options;
+
+/**
+ * Looks up the values of {@link InternalOption}s.
+ *
+ * <p>Services of the build session look the options up in the system properties of the build request, so they
+ * can differ between builds run by the same daemon. Global services, and the services of worker processes,
+ * look the options up in the system properties of the process.</p>
+ */
+public interface InternalOptions {
+    /**
+     * Returns the value of the given option, or its default value when it is not set.
+     *
+     * @throws IllegalArgumentException when the option is set to a value that is not valid for it.
+     */
+    <T> T getOption(InternalOption<T> option);
+}
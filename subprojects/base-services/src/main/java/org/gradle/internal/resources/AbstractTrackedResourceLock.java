@@ -19,6 +19,9 @@
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.util.Collection;
+import java.util.Collections;
+
 public abstract class AbstractTrackedResourceLock implements ResourceLock {
     private static final Logger LOGGER = LoggerFactory.getLogger(AbstractTrackedResourceLock.class);
 
@@ -47,6 +50,7 @@ public boolean tryLock() {
                 coordinationService.getCurrent().registerLocked(this);
                 return true;
             } else {
+                coordinationService.getCurrent().registerFailedToLock(this);
                 return false;
             }
         } else {
@@ -85,6 +89,21 @@ private void failIfNotInResourceLockStateChange() {
         }
     }
 
+    /**
+     * Returns the resources whose release may allow this lock to be acquired, when an attempt to acquire it has failed.
+     * Threads waiting for this lock are only woken up when one of these resources is released.
+     */
+    protected Collection<?> getContendedResources() {
+        return Collections.singleton(this);
+    }
+
+    /**
+     * Returns the resource which becomes available when this lock is released.
+     */
+    protected Object getReleasedResource() {
+        return this;
+    }
+
     abstract protected boolean acquireLock();
 
     abstract protected void releaseLock();
@@ -17,16 +17,33 @@
 package org.gradle.internal.resources;
 
 import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
 import com.google.common.collect.Sets;
 import org.gradle.api.Transformer;
 import org.gradle.internal.UncheckedException;
 
 import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
 
+/**
+ * Coordinates changes to resource lock state.
+ *
+ * <p>Threads which need to wait for a lock to become available are tracked by the resources they failed to acquire,
+ * and are only woken up when one of those resources is released. Threads which wait for some other state to change are tracked by that state
+ * and woken up when it is notified. Threads which did not register anything they wait for are woken up on any change.</p>
+ */
 public class DefaultResourceLockCoordinationService implements ResourceLockCoordinationService {
-    private final Object lock = new Object();
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Set<Waiter> waiters = Sets.newLinkedHashSet();
+    private final Set<Waiter> waitersForAnyChange = Sets.newLinkedHashSet();
+    private final Map<Object, Set<Waiter>> waitersByResource = Maps.newHashMap();
     private final ThreadLocal<List<ResourceLockState>> currentState = new ThreadLocal<List<ResourceLockState>>() {
         @Override
         protected List<ResourceLockState> initialValue() {
@@ -34,40 +51,49 @@ protected List<ResourceLockState> initialValue() {
         }
     };
 
+    // Guarded by lock
+    private long blockedCount;
+    private long retryCount;
+    private long totalWaitTimeNanos;
+
     @Override
     public boolean withStateLock(Transformer<ResourceLockState.Disposition, ResourceLockState> stateLockAction) {
+        boolean blocked = false;
         while (true) {
             DefaultResourceLockState resourceLockState = new DefaultResourceLockState();
             ResourceLockState.Disposition disposition;
-            synchronized (lock) {
-                try {
-                    currentState.get().add(resourceLockState);
-                    disposition = stateLockAction.transform(resourceLockState);
-
-                    switch (disposition) {
-                        case RETRY:
-                            resourceLockState.releaseLocks();
-                            try {
-                                lock.wait();
-                            } catch (InterruptedException e) {
-                                throw UncheckedException.throwAsUncheckedException(e);
-                            }
-                            break;
-                        case FINISHED:
-                            maybeNotifyStateChange(resourceLockState);
-                            return true;
-                        case FAILED:
-                            resourceLockState.releaseLocks();
-                            return false;
-                        default:
-                            throw new IllegalArgumentException("Unhandled disposition type: " + disposition.name());
-                    }
-                } catch (Throwable t) {
-                    resourceLockState.releaseLocks();
-                    throw UncheckedException.throwAsUncheckedException(t);
-                } finally {
-                    currentState.get().remove(resourceLockState);
+            lock.lock();
+            try {
+                currentState.get().add(resourceLockState);
+                disposition = stateLockAction.transform(resourceLockState);
+
+                switch (disposition) {
+                    case RETRY:
+                        resourceLockState.releaseLocks();
+                        maybeNotifyStateChange(resourceLockState);
+                        if (!blocked) {
+                            blocked = true;
+                            blockedCount++;
+                        }
+                        retryCount++;
+                        awaitStateChange(resourceLockState.getBlockedResources());
+                        break;
+                    case FINISHED:
+                        maybeNotifyStateChange(resourceLockState);
+                        return true;
+                    case FAILED:
+                        resourceLockState.releaseLocks();
+                        maybeNotifyStateChange(resourceLockState);
+                        return false;
+                    default:
+                        throw new IllegalArgumentException("Unhandled disposition type: " + disposition.name());
                 }
+            } catch (Throwable t) {
+                resourceLockState.releaseLocks();
+                throw UncheckedException.throwAsUncheckedException(t);
+            } finally {
+                currentState.get().remove(resourceLockState);
+                lock.unlock();
             }
         }
     }
@@ -83,22 +109,123 @@ public ResourceLockState getCurrent() {
         }
     }
 
+    @Override
+    public ResourceLockWaitStatistics getWaitStatistics() {
+        lock.lock();
+        try {
+            return new ResourceLockWaitStatistics(blockedCount, retryCount, TimeUnit.NANOSECONDS.toMillis(totalWaitTimeNanos));
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void awaitStateChange(Set<Object> blockedResources) throws InterruptedException {
+        Waiter waiter = new Waiter(lock.newCondition(), blockedResources);
+        waiters.add(waiter);
+        if (blockedResources.isEmpty()) {
+            waitersForAnyChange.add(waiter);
+        } else {
+            for (Object resource : blockedResources) {
+                Set<Waiter> waitersForResource = waitersByResource.get(resource);
+                if (waitersForResource == null) {
+                    waitersForResource = Sets.newLinkedHashSet();
+                    waitersByResource.put(resource, waitersForResource);
+                }
+                waitersForResource.add(waiter);
+            }
+        }
+        long startTime = System.nanoTime();
+        try {
+            while (!waiter.woken) {
+                waiter.condition.await();
+            }
+        } finally {
+            totalWaitTimeNanos += System.nanoTime() - startTime;
+            waiters.remove(waiter);
+            waitersForAnyChange.remove(waiter);
+            for (Object resource : blockedResources) {
+                Set<Waiter> waitersForResource = waitersByResource.get(resource);
+                waitersForResource.remove(waiter);
+                if (waitersForResource.isEmpty()) {
+                    waitersByResource.remove(resource);
+                }
+            }
+        }
+    }
+
     private void maybeNotifyStateChange(DefaultResourceLockState resourceLockState) {
         if (resourceLockState.hasUnlockedResources()) {
-            notifyStateChange();
+            for (Object resource : resourceLockState.getReleasedResources()) {
+                wakeUp(waitersByResource.get(resource));
+            }
+            wakeUp(waitersForAnyChange);
         }
     }
 
     @Override
     public void notifyStateChange() {
-        synchronized (lock) {
-            lock.notifyAll();
+        lock.lock();
+        try {
+            wakeUp(waiters);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public void notifyStateChange(Object state) {
+        lock.lock();
+        try {
+            wakeUp(waitersByResource.get(state));
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private static void wakeUp(Collection<Waiter> waiters) {
+        if (waiters != null) {
+            for (Waiter waiter : waiters) {
+                waiter.wakeUp();
+            }
+        }
+    }
+
+    private static Object releasedResourceOf(ResourceLock resourceLock) {
+        if (resourceLock instanceof AbstractTrackedResourceLock) {
+            return ((AbstractTrackedResourceLock) resourceLock).getReleasedResource();
+        }
+        return resourceLock;
+    }
+
+    private static Collection<?> contendedResourcesOf(ResourceLock resourceLock) {
+        if (resourceLock instanceof AbstractTrackedResourceLock) {
+            return ((AbstractTrackedResourceLock) resourceLock).getContendedResources();
+        }
+        return Collections.singleton(resourceLock);
+    }
+
+    private static class Waiter {
+        private final Condition condition;
+        private final Set<Object> blockedResources;
+        private boolean woken;
+
+        Waiter(Condition condition, Set<Object> blockedResources) {
+            this.condition = condition;
+            this.blockedResources = blockedResources;
+        }
+
+        void wakeUp() {
+            if (!woken) {
+                woken = true;
+                condition.signal();
+            }
         }
     }
 
     private static class DefaultResourceLockState implements ResourceLockState {
         private Set<ResourceLock> lockedResources;
         private Set<ResourceLock> unlockedResources;
+        private Set<Object> blockedResources;
         boolean rollback;
 
         @Override
@@ -121,10 +248,41 @@ public void registerUnlocked(ResourceLock resourceLock) {
             }
         }
 
+        @Override
+        public void registerFailedToLock(ResourceLock resourceLock) {
+            if (blockedResources == null) {
+                blockedResources = Sets.newHashSet();
+            }
+            blockedResources.addAll(contendedResourcesOf(resourceLock));
+        }
+
+        @Override
+        public void registerWaitingFor(Object state) {
+            if (blockedResources == null) {
+                blockedResources = Sets.newHashSet();
+            }
+            blockedResources.add(state);
+        }
+
         boolean hasUnlockedResources() {
             return unlockedResources != null && !unlockedResources.isEmpty();
         }
 
+        Set<Object> getReleasedResources() {
+            Set<Object> releasedResources = Sets.newHashSet();
+            for (ResourceLock unlockedResource : unlockedResources) {
+                releasedResources.add(releasedResourceOf(unlockedResource));
+            }
+            return releasedResources;
+        }
+
+        Set<Object> getBlockedResources() {
+            if (blockedResources == null) {
+                return Collections.emptySet();
+            }
+            return blockedResources;
+        }
+
         @Override
         public void releaseLocks() {
             if (lockedResources != null) {
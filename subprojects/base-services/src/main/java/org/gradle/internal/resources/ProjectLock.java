@@ -16,6 +16,9 @@
 
 package org.gradle.internal.resources;
 
+import java.util.Arrays;
+import java.util.Collection;
+
 public class ProjectLock extends ExclusiveAccessResourceLock {
     private final ResourceLock allProjectsLock;
 
@@ -24,6 +27,11 @@ public ProjectLock(String displayName, ResourceLockCoordinationService coordinat
         this.allProjectsLock = allProjectsLock;
     }
 
+    @Override
+    protected Collection<?> getContendedResources() {
+        return Arrays.asList(this, allProjectsLock);
+    }
+
     @Override
     protected boolean canAcquire() {
         // Either the "all projects" lock is not held, or it is held by this thread
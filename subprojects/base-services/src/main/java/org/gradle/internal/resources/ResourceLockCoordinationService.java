@@ -51,4 +51,14 @@ public interface ResourceLockCoordinationService {
      * Notify other threads about changes to resource locks.
      */
     void notifyStateChange();
+
+    /**
+     * Notify the threads waiting for the given state, as registered with {@link ResourceLockState#registerWaitingFor(Object)}, that it has changed.
+     */
+    void notifyStateChange(Object state);
+
+    /**
+     * Returns statistics about threads waiting for the resource lock state to change, since this service was created.
+     */
+    ResourceLockWaitStatistics getWaitStatistics();
 }
@@ -38,6 +38,23 @@ enum Disposition { FAILED, FINISHED, RETRY }
      */
     void registerUnlocked(ResourceLock resourceLock);
 
+    /**
+     * Registers a resource lock that could not be acquired during the transform so that, if the transform is retried,
+     * the coordination service only wakes up this thread once the lock may have become available.
+     *
+     * @param resourceLock
+     */
+    void registerFailedToLock(ResourceLock resourceLock);
+
+    /**
+     * Registers some state, other than a resource lock, that the transform is waiting for so that, if the transform is retried,
+     * the coordination service only wakes up this thread once {@link ResourceLockCoordinationService#notifyStateChange(Object)}
+     * is called for the state or one of the locks that could not be acquired is released.
+     *
+     * @param state
+     */
+    void registerWaitingFor(Object state);
+
     /**
      * Release any locks that have been acquired during the transform.
      */
@@ -0,0 +1,62 @@
+/*
+ * Copyright 2021 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.internal.resources;
+
+/**
+ * A snapshot of how much threads had to wait for resource locks.
+ */
+public class ResourceLockWaitStatistics {
+    private final long blockedCount;
+    private final long retryCount;
+    private final long totalWaitTimeMillis;
+
+    public ResourceLockWaitStatistics(long blockedCount, long retryCount, long totalWaitTimeMillis) {
+        this.blockedCount = blockedCount;
+        this.retryCount = retryCount;
+        this.totalWaitTimeMillis = totalWaitTimeMillis;
+    }
+
+    /**
+     * The number of resource lock state changes which had to wait at least once.
+     */
+    public long getBlockedCount() {
+        return blockedCount;
+    }
+
+    /**
+     * The number of times a resource lock state change was retried after waiting.
+     * Retries beyond {@link #getBlockedCount()} are wake-ups that did not allow the waiting thread to make progress.
+     */
+    public long getRetryCount() {
+        return retryCount;
+    }
+
+    public long getTotalWaitTimeMillis() {
+        return totalWaitTimeMillis;
+    }
+
+    /**
+     * Returns the statistics accumulated since the given snapshot was taken.
+     */
+    public ResourceLockWaitStatistics since(ResourceLockWaitStatistics earlier) {
+        return new ResourceLockWaitStatistics(
+            blockedCount - earlier.blockedCount,
+            retryCount - earlier.retryCount,
+            totalWaitTimeMillis - earlier.totalWaitTimeMillis
+        );
+    }
+}
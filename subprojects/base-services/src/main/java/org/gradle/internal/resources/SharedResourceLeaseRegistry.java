@@ -19,6 +19,8 @@
 import com.google.common.collect.Maps;
 import org.gradle.internal.Pair;
 
+import java.util.Collection;
+import java.util.Collections;
 import java.util.Map;
 import java.util.concurrent.Semaphore;
 
@@ -58,6 +60,17 @@ public class SharedResourceLease extends AbstractTrackedResourceLock {
             this.semaphore = sharedResources.get(sharedResource);
         }
 
+        @Override
+        protected Collection<?> getContendedResources() {
+            // Any lease of the same shared resource that is released may free up enough leases
+            return Collections.singleton(semaphore);
+        }
+
+        @Override
+        protected Object getReleasedResource() {
+            return semaphore;
+        }
+
         @Override
         protected boolean acquireLock() {
             if (leases > semaphore.getLeft()) {
@@ -447,6 +447,17 @@ protected boolean doIsLockedByCurrentThread() {
             return active && Thread.currentThread() == ownerThread;
         }
 
+        @Override
+        protected Collection<?> getContendedResources() {
+            // Any worker lease granted by the same parent that is released makes a lease available
+            return Collections.singleton(parent);
+        }
+
+        @Override
+        protected Object getReleasedResource() {
+            return parent;
+        }
+
         @Override
         protected boolean acquireLock() {
             if (parent.grantLease()) {
@@ -0,0 +1,98 @@
+/*
+ * Copyright 2021 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.internal.options
+
+import org.gradle.util.SetSystemProperties
+import org.junit.Rule
+import spock.lang.Specification
+
+import java.util.concurrent.TimeUnit
+
+class DefaultInternalOptionsTest extends Specification {
+    @Rule
+    SetSystemProperties systemProperties = new SetSystemProperties()
+
+    def threads = new IntegerInternalOption("org.gradle.test.threads", 1, 1)
+    def flag = new InternalFlag("org.gradle.test.flag")
+    def unit = new EnumInternalOption<TimeUnit>("org.gradle.test.unit", TimeUnit, TimeUnit.SECONDS)
+
+    def "uses default values of options that are not set"() {
+        def options = new DefaultInternalOptions([:])
+
+        expect:
+        options.getOption(threads) == 1
+        !options.getOption(flag)
+        options.getOption(unit) == TimeUnit.SECONDS
+    }
+
+    def "uses default values of options that are set to an empty value"() {
+        def options = new DefaultInternalOptions([(threads.propertyName): "", (unit.propertyName): " "])
+
+        expect:
+        options.getOption(threads) == 1
+        options.getOption(unit) == TimeUnit.SECONDS
+    }
+
+    def "uses values of the given properties before system properties"() {
+        System.setProperty(threads.propertyName, "3")
+        System.setProperty(flag.propertyName, "true")
+
+        expect:
+        new DefaultInternalOptions([(threads.propertyName): "4"]).getOption(threads) == 4
+        new DefaultInternalOptions([(threads.propertyName): "4"]).getOption(flag)
+        new DefaultInternalOptions().getOption(threads) == 3
+    }
+
+    def "converts values"() {
+        def options = new DefaultInternalOptions([(threads.propertyName): "12", (flag.propertyName): "TRUE", (unit.propertyName): "millisecondS"])
+
+        expect:
+        options.getOption(threads) == 12
+        options.getOption(flag)
+        options.getOption(unit) == TimeUnit.MILLISECONDS
+    }
+
+    def "fails for invalid integer value '#value'"() {
+        when:
+        new DefaultInternalOptions([(threads.propertyName): value]).getOption(threads)
+
+        then:
+        def e = thrown(IllegalArgumentException)
+        e.message == "Invalid value '${value}' for internal option 'org.gradle.test.threads'. The value should be an integer of at least 1."
+
+        where:
+        value << ["0", "-1", "many", "1.5"]
+    }
+
+    def "fails for invalid flag value"() {
+        when:
+        new DefaultInternalOptions([(flag.propertyName): "yes"]).getOption(flag)
+
+        then:
+        def e = thrown(IllegalArgumentException)
+        e.message == "Invalid value 'yes' for internal option 'org.gradle.test.flag'. The value should be 'true' or 'false'."
+    }
+
+    def "fails for unknown enum value"() {
+        when:
+        new DefaultInternalOptions([(unit.propertyName): "fortnights"]).getOption(unit)
+
+        then:
+        def e = thrown(IllegalArgumentException)
+        e.message.startsWith("Invalid value 'fortnights' for internal option 'org.gradle.test.unit'. The value should be one of [nanoseconds, ")
+    }
+}
@@ -112,6 +112,136 @@ class DefaultResourceLockCoordinationServiceTest extends ConcurrentSpec {
         lock2.lockedState
     }
 
+    def "only wakes up threads waiting for a resource when that resource is released"() {
+        def lock1 = resourceLock("lock1", true)
+        def lock2 = resourceLock("lock2", true)
+        def count = 0
+
+        when:
+        async {
+            start {
+                coordinationService.withStateLock(new Transformer<ResourceLockState.Disposition, ResourceLockState>() {
+                    @Override
+                    ResourceLockState.Disposition transform(ResourceLockState resourceLockState) {
+                        try {
+                            return lock1.tryLock() ? FINISHED : RETRY
+                        } finally {
+                            count++
+                            instant."executed${count}"
+                        }
+                    }
+                })
+            }
+
+            thread.blockUntil.executed1
+
+            lock2.lockedState = false
+            releaseLock(lock2)
+            lock1.lockedState = false
+            releaseLock(lock1)
+
+            thread.blockUntil.executed2
+        }
+
+        then:
+        count == 2
+        lock1.lockedState
+        coordinationService.waitStatistics.blockedCount == 1
+        coordinationService.waitStatistics.retryCount == 1
+    }
+
+    def "wakes up threads which did not fail to acquire a resource when any resource is released"() {
+        def lock1 = resourceLock("lock1", true)
+        def released = false
+
+        when:
+        async {
+            start {
+                coordinationService.withStateLock(new Transformer<ResourceLockState.Disposition, ResourceLockState>() {
+                    @Override
+                    ResourceLockState.Disposition transform(ResourceLockState resourceLockState) {
+                        instant.waiting
+                        return released ? FINISHED : RETRY
+                    }
+                })
+                instant.finished
+            }
+
+            thread.blockUntil.waiting
+            released = true
+            lock1.lockedState = false
+            releaseLock(lock1)
+
+            thread.blockUntil.finished
+        }
+
+        then:
+        released
+    }
+
+    def "notifying a state change wakes up all waiting threads"() {
+        def lock1 = resourceLock("lock1", true)
+        def attempts = 0
+
+        when:
+        async {
+            start {
+                coordinationService.withStateLock(new Transformer<ResourceLockState.Disposition, ResourceLockState>() {
+                    @Override
+                    ResourceLockState.Disposition transform(ResourceLockState resourceLockState) {
+                        attempts++
+                        instant."attempt${attempts}"
+                        return attempts > 1 || lock1.tryLock() ? FINISHED : RETRY
+                    }
+                })
+            }
+
+            thread.blockUntil.attempt1
+            coordinationService.notifyStateChange()
+            thread.blockUntil.attempt2
+        }
+
+        then:
+        attempts == 2
+    }
+
+    def "only wakes up threads waiting for some state when that state is notified"() {
+        def lock1 = resourceLock("lock1", true)
+        def state = new Object()
+        def otherState = new Object()
+        def changed = false
+        def attempts = 0
+
+        when:
+        async {
+            start {
+                coordinationService.withStateLock(new Transformer<ResourceLockState.Disposition, ResourceLockState>() {
+                    @Override
+                    ResourceLockState.Disposition transform(ResourceLockState resourceLockState) {
+                        attempts++
+                        instant."attempt${attempts}"
+                        if (changed) {
+                            return FINISHED
+                        }
+                        resourceLockState.registerWaitingFor(state)
+                        return RETRY
+                    }
+                })
+            }
+
+            thread.blockUntil.attempt1
+            lock1.lockedState = false
+            releaseLock(lock1)
+            coordinationService.notifyStateChange(otherState)
+            changed = true
+            coordinationService.notifyStateChange(state)
+            thread.blockUntil.attempt2
+        }
+
+        then:
+        attempts == 2
+    }
+
     def "can nest multiple calls to withStateLock"() {
         def lock = [
             resourceLock("lock1"),
@@ -321,6 +451,16 @@ class DefaultResourceLockCoordinationServiceTest extends ConcurrentSpec {
         false       | false       | FINISHED
     }
 
+    void releaseLock(TestTrackedResourceLock lock) {
+        coordinationService.withStateLock(new Transformer<ResourceLockState.Disposition, ResourceLockState>() {
+            @Override
+            ResourceLockState.Disposition transform(ResourceLockState resourceLockState) {
+                resourceLockState.registerUnlocked(lock)
+                return FINISHED
+            }
+        })
+    }
+
     TestTrackedResourceLock resourceLock(String displayName, boolean locked, boolean hasLock = false) {
         return new TestTrackedResourceLock(displayName, coordinationService, Mock(ResourceLockContainer), locked, hasLock)
     }
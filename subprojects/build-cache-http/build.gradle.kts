@@ -1,5 +1,6 @@
 plugins {
     id("gradlebuild.distribution.api-java")
+    id("gradlebuild.jmh")
 }
 
 dependencies {
@@ -19,6 +20,8 @@ dependencies {
     testImplementation(testFixtures(project(":core")))
     testImplementation(libs.servletApi)
 
+    jmhImplementation(project(":file-temp"))
+
     integTestImplementation(project(":enterprise-operations"))
     integTestImplementation(libs.jetty)
 
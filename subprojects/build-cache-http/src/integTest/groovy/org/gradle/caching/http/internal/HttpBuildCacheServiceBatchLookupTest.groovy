@@ -0,0 +1,126 @@
+/*
+ * Copyright 2021 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.caching.http.internal
+
+import org.gradle.api.internal.DocumentationRegistry
+import org.gradle.api.internal.file.TestFiles
+import org.gradle.caching.BuildCacheEntryReader
+import org.gradle.caching.BuildCacheKey
+import org.gradle.caching.BuildCacheServiceFactory
+import org.gradle.caching.http.HttpBuildCache
+import org.gradle.caching.internal.controller.BuildCachePrefetcher
+import org.gradle.internal.concurrent.DefaultExecutorFactory
+import org.gradle.internal.hash.Hashing
+import org.gradle.internal.resource.transport.http.DefaultSslContextFactory
+import org.gradle.internal.resource.transport.http.HttpClientHelper
+import org.gradle.test.fixtures.file.TestNameTestDirectoryProvider
+import org.gradle.test.fixtures.server.http.HttpBuildCacheServer
+import org.junit.Rule
+import spock.lang.Specification
+
+class HttpBuildCacheServiceBatchLookupTest extends Specification {
+    @Rule
+    TestNameTestDirectoryProvider tempDir = new TestNameTestDirectoryProvider(getClass())
+    @Rule
+    HttpBuildCacheServer server = new HttpBuildCacheServer(tempDir)
+
+    def keys = (1..5).collect { key("entry $it") }
+    HttpBuildCacheService cacheRef
+
+    HttpBuildCacheService getCache() {
+        if (cacheRef == null) {
+            def config = new HttpBuildCache()
+            config.url = new URI("${server.uri}/")
+            cacheRef = new DefaultHttpBuildCacheServiceFactory(new DefaultSslContextFactory(), {}, HttpClientHelper.Factory.createFactory(new DocumentationRegistry()))
+                .createBuildCacheService(config, new NoopBuildCacheDescriber()) as HttpBuildCacheService
+        }
+        cacheRef
+    }
+
+    def cleanup() {
+        cacheRef?.close()
+    }
+
+    def "finds existing entries with a single request"() {
+        server.withBatchLookup()
+        server.start()
+        server.cacheDir.file(keys[1].hashCode).text = "one"
+        server.cacheDir.file(keys[3].hashCode).text = "three"
+
+        expect:
+        cache.findExistingEntries(keys).get() == [keys[1], keys[3]] as Set
+    }
+
+    def "reports batched lookups as unsupported when server does not understand them"() {
+        server.start()
+        server.cacheDir.file(keys[1].hashCode).text = "one"
+
+        expect:
+        !cache.findExistingEntries(keys).present
+        !cache.findExistingEntries(keys).present
+    }
+
+    def "prefetches existing entries from server"() {
+        server.withBatchLookup()
+        server.start()
+        keys.each { server.cacheDir.file(it.hashCode).text = "content of $it.hashCode" }
+        def missing = key("missing")
+        def executorFactory = new DefaultExecutorFactory()
+        def prefetcher = new BuildCachePrefetcher(cache, TestFiles.tmpDirTemporaryFileProvider(tempDir.createDir("prefetch")), executorFactory.create("prefetch", 4))
+
+        when:
+        prefetcher.prefetch(keys + missing)
+
+        then:
+        keys.every { key -> prefetcher.load(key, { InputStream input -> assert input.text == "content of $key.hashCode" } as BuildCacheEntryReader) }
+        !prefetcher.load(missing, { throw new IllegalStateException() } as BuildCacheEntryReader)
+
+        cleanup:
+        prefetcher?.close()
+        executorFactory?.stop()
+    }
+
+    private static BuildCacheKey key(String content) {
+        def hashCode = Hashing.md5().hashString(content)
+        new BuildCacheKey() {
+            @Override
+            String getHashCode() {
+                hashCode.toString()
+            }
+
+            @Override
+            byte[] toByteArray() {
+                hashCode.toByteArray()
+            }
+
+            @Override
+            String getDisplayName() {
+                getHashCode()
+            }
+        }
+    }
+
+    private static class NoopBuildCacheDescriber implements BuildCacheServiceFactory.Describer {
+
+        @Override
+        BuildCacheServiceFactory.Describer type(String type) { this }
+
+        @Override
+        BuildCacheServiceFactory.Describer config(String name, String value) { this }
+
+    }
+}
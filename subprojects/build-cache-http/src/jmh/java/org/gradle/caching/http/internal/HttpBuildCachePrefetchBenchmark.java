@@ -0,0 +1,175 @@
+/*
+ * Copyright 2021 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.caching.http.internal;
+
+import org.gradle.api.internal.DocumentationRegistry;
+import org.gradle.api.internal.file.temp.DefaultTemporaryFileProvider;
+import org.gradle.caching.BuildCacheKey;
+import org.gradle.caching.BuildCacheService;
+import org.gradle.caching.BuildCacheServiceFactory;
+import org.gradle.caching.http.HttpBuildCache;
+import org.gradle.caching.internal.controller.BuildCachePrefetcher;
+import org.gradle.internal.concurrent.DefaultExecutorFactory;
+import org.gradle.internal.hash.HashCode;
+import org.gradle.internal.hash.Hashing;
+import org.gradle.internal.resource.transport.http.DefaultSslContextFactory;
+import org.gradle.internal.resource.transport.http.HttpClientHelper;
+import org.gradle.util.internal.GFileUtils;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
+
+/**
+ * Compares loading entries from an HTTP build cache one by one with prefetching them in parallel,
+ * against a {@link StandInHttpBuildCacheServer local stand-in server} that simulates network latency.
+ *
+ * Half of the requested entries exist in the cache.
+ */
+@Fork(1)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@State(Scope.Benchmark)
+public class HttpBuildCachePrefetchBenchmark {
+
+    @Param({"0", "20"})
+    long latencyMillis;
+
+    @Param({"200"})
+    int entries;
+
+    @Param({"16384"})
+    int entrySize;
+
+    /**
+     * The number of parallel downloads, where 0 means loading entries one by one without prefetching.
+     */
+    @Param({"0", "8", "32"})
+    int prefetchThreads;
+
+    @Param({"false", "true"})
+    boolean batchLookup;
+
+    StandInHttpBuildCacheServer server;
+    HttpBuildCacheService cache;
+    BuildCacheService service;
+    DefaultExecutorFactory executorFactory;
+    DefaultTemporaryFileProvider temporaryFileProvider;
+    File tempDir;
+    List<BuildCacheKey> keys;
+
+    @Setup(Level.Trial)
+    public void setup() throws IOException {
+        server = new StandInHttpBuildCacheServer(latencyMillis, batchLookup);
+        Random random = new Random(42);
+        keys = new ArrayList<>(entries);
+        for (int i = 0; i < entries; i++) {
+            BuildCacheKey key = new TestBuildCacheKey(Hashing.md5().hashString("entry " + i));
+            keys.add(key);
+            if (i % 2 == 0) {
+                byte[] content = new byte[entrySize];
+                random.nextBytes(content);
+                server.put(key.getHashCode(), content);
+            }
+        }
+
+        HttpBuildCache config = new HttpBuildCache();
+        config.setUrl(server.getUri());
+        cache = (HttpBuildCacheService) new DefaultHttpBuildCacheServiceFactory(new DefaultSslContextFactory(), request -> {}, HttpClientHelper.Factory.createFactory(new DocumentationRegistry()))
+            .createBuildCacheService(config, new NoOpDescriber());
+        executorFactory = new DefaultExecutorFactory();
+        tempDir = Files.createTempDirectory("http-build-cache-prefetch").toFile();
+        temporaryFileProvider = new DefaultTemporaryFileProvider(() -> tempDir);
+        service = prefetchThreads == 0
+            ? cache
+            : new BuildCachePrefetcher(cache, temporaryFileProvider, executorFactory.create("prefetch", prefetchThreads));
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        service.close();
+        server.close();
+        executorFactory.stop();
+        GFileUtils.deleteDirectory(tempDir);
+    }
+
+    @Benchmark
+    public void load(Blackhole blackhole) {
+        if (service instanceof BuildCachePrefetcher) {
+            ((BuildCachePrefetcher) service).prefetch(keys);
+        }
+        for (BuildCacheKey key : keys) {
+            blackhole.consume(service.load(key, input -> blackhole.consume(input.read(new byte[entrySize]))));
+        }
+    }
+
+    private static class TestBuildCacheKey implements BuildCacheKey {
+        private final HashCode hashCode;
+
+        TestBuildCacheKey(HashCode hashCode) {
+            this.hashCode = hashCode;
+        }
+
+        @Override
+        public String getHashCode() {
+            return hashCode.toString();
+        }
+
+        @Override
+        public byte[] toByteArray() {
+            return hashCode.toByteArray();
+        }
+
+        @Override
+        public String getDisplayName() {
+            return getHashCode();
+        }
+    }
+
+    private static class NoOpDescriber implements BuildCacheServiceFactory.Describer {
+        @Override
+        public BuildCacheServiceFactory.Describer type(String type) {
+            return this;
+        }
+
+        @Override
+        public BuildCacheServiceFactory.Describer config(String name, String value) {
+            return this;
+        }
+    }
+}
@@ -0,0 +1,128 @@
+/*
+ * Copyright 2021 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.caching.http.internal;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.BufferedReader;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.stream.Collectors;
+
+/**
+ * A local stand-in for a remote HTTP build cache, keeping entries in memory and adding a fixed latency to every request.
+ */
+class StandInHttpBuildCacheServer implements AutoCloseable {
+    private final Map<String, byte[]> entries = new ConcurrentHashMap<>();
+    private final long latencyMillis;
+    private final boolean batchLookup;
+    private final HttpServer server;
+    private final ExecutorService executor;
+
+    StandInHttpBuildCacheServer(long latencyMillis, boolean batchLookup) throws IOException {
+        this.latencyMillis = latencyMillis;
+        this.batchLookup = batchLookup;
+        this.server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 0);
+        this.executor = Executors.newFixedThreadPool(32);
+        server.setExecutor(executor);
+        server.createContext("/", this::handle);
+        server.start();
+    }
+
+    URI getUri() {
+        return URI.create("http://" + server.getAddress().getHostString() + ":" + server.getAddress().getPort() + "/");
+    }
+
+    void put(String key, byte[] content) {
+        entries.put(key, content);
+    }
+
+    private void handle(HttpExchange exchange) throws IOException {
+        try {
+            if (latencyMillis > 0) {
+                Thread.sleep(latencyMillis);
+            }
+            String key = exchange.getRequestURI().getPath().substring(1);
+            switch (exchange.getRequestMethod()) {
+                case "GET":
+                    byte[] content = entries.get(key);
+                    if (content == null) {
+                        exchange.sendResponseHeaders(404, -1);
+                    } else {
+                        exchange.sendResponseHeaders(200, content.length);
+                        exchange.getResponseBody().write(content);
+                    }
+                    break;
+                case "PUT":
+                    entries.put(key, readFully(exchange.getRequestBody()));
+                    exchange.sendResponseHeaders(200, -1);
+                    break;
+                case "POST":
+                    // Always consume the request, otherwise the connection cannot be reused
+                    byte[] requested = readFully(exchange.getRequestBody());
+                    if (!batchLookup) {
+                        exchange.sendResponseHeaders(405, -1);
+                        break;
+                    }
+                    BufferedReader reader = new BufferedReader(new InputStreamReader(new ByteArrayInputStream(requested), StandardCharsets.UTF_8));
+                    byte[] existing = reader.lines()
+                        .filter(entries::containsKey)
+                        .collect(Collectors.joining("\n"))
+                        .getBytes(StandardCharsets.UTF_8);
+                    exchange.getResponseHeaders().set("Content-Type", HttpBuildCacheService.BATCH_LOOKUP_CONTENT_TYPE);
+                    exchange.sendResponseHeaders(200, existing.length == 0 ? -1 : existing.length);
+                    exchange.getResponseBody().write(existing);
+                    break;
+                default:
+                    exchange.sendResponseHeaders(405, -1);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            exchange.close();
+        }
+    }
+
+    private static byte[] readFully(InputStream input) throws IOException {
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        byte[] buffer = new byte[8192];
+        int read;
+        while ((read = input.read(buffer)) >= 0) {
+            output.write(buffer, 0, read);
+        }
+        return output.toByteArray();
+    }
+
+    @Override
+    public void close() {
+        server.stop(0);
+        executor.shutdownNow();
+    }
+}
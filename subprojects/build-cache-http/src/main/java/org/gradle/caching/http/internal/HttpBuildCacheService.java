@@ -22,34 +22,59 @@
 import org.apache.http.StatusLine;
 import org.apache.http.client.ClientProtocolException;
 import org.apache.http.client.methods.HttpGet;
+import org.apache.http.client.methods.HttpPost;
 import org.apache.http.client.methods.HttpPut;
 import org.apache.http.entity.AbstractHttpEntity;
+import org.apache.http.entity.ContentType;
+import org.apache.http.entity.StringEntity;
 import org.apache.http.protocol.HTTP;
 import org.gradle.api.UncheckedIOException;
 import org.gradle.caching.BuildCacheEntryReader;
 import org.gradle.caching.BuildCacheEntryWriter;
 import org.gradle.caching.BuildCacheException;
 import org.gradle.caching.BuildCacheKey;
-import org.gradle.caching.BuildCacheService;
+import org.gradle.caching.internal.controller.service.BatchingBuildCacheService;
 import org.gradle.internal.UncheckedException;
 import org.gradle.internal.resource.transport.http.HttpClientHelper;
 import org.gradle.internal.resource.transport.http.HttpClientResponse;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.io.BufferedReader;
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.InputStreamReader;
 import java.io.OutputStream;
 import java.net.URI;
 import java.net.URISyntaxException;
+import java.nio.charset.StandardCharsets;
+import java.util.Collection;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
 import java.util.Set;
+import java.util.function.Function;
+import java.util.stream.Collectors;
 
 /**
  * Build cache implementation that delegates to a service accessible via HTTP.
+ *
+ * Servers may optionally support looking up many entries at once: a {@code POST} to the cache root with a body of
+ * {@code application/vnd.gradle.build-cache-lookup.v1} listing one key per line is answered with the same content type listing the keys that exist.
+ * Servers that do not understand the request are detected by the response status or content type, after which no further
+ * batched lookups are attempted.
  */
-public class HttpBuildCacheService implements BuildCacheService {
+public class HttpBuildCacheService implements BatchingBuildCacheService {
     private static final Logger LOGGER = LoggerFactory.getLogger(HttpBuildCacheService.class);
     static final String BUILD_CACHE_CONTENT_TYPE = "application/vnd.gradle.build-cache-artifact.v1";
+    static final String BATCH_LOOKUP_CONTENT_TYPE = "application/vnd.gradle.build-cache-lookup.v1";
+
+    private static final Set<Integer> BATCH_LOOKUP_UNSUPPORTED_HTTP_CODES = ImmutableSet.of(
+        HttpStatus.SC_NOT_FOUND,
+        HttpStatus.SC_METHOD_NOT_ALLOWED,
+        HttpStatus.SC_UNSUPPORTED_MEDIA_TYPE,
+        HttpStatus.SC_NOT_IMPLEMENTED
+    );
 
     private static final Set<Integer> FATAL_HTTP_ERROR_CODES = ImmutableSet.of(
         HttpStatus.SC_USE_PROXY,
@@ -66,6 +91,7 @@ public class HttpBuildCacheService implements BuildCacheService {
     private final HttpClientHelper httpClientHelper;
     private final HttpBuildCacheRequestCustomizer requestCustomizer;
     private final boolean useExpectContinue;
+    private volatile boolean batchLookupSupported = true;
 
     public HttpBuildCacheService(HttpClientHelper httpClientHelper, URI url, HttpBuildCacheRequestCustomizer requestCustomizer, boolean useExpectContinue) {
         this.requestCustomizer = requestCustomizer;
@@ -157,6 +183,52 @@ public boolean isStreaming() {
         }
     }
 
+    @Override
+    public Optional<Set<BuildCacheKey>> findExistingEntries(Collection<BuildCacheKey> keys) throws BuildCacheException {
+        if (!batchLookupSupported) {
+            return Optional.empty();
+        }
+        Map<String, BuildCacheKey> keysByHashCode = keys.stream()
+            .collect(Collectors.toMap(BuildCacheKey::getHashCode, Function.identity(), (first, second) -> first));
+        HttpPost httpPost = new HttpPost(root);
+        httpPost.addHeader(HttpHeaders.ACCEPT, BATCH_LOOKUP_CONTENT_TYPE);
+        httpPost.setEntity(new StringEntity(String.join("\n", keysByHashCode.keySet()), ContentType.create(BATCH_LOOKUP_CONTENT_TYPE, StandardCharsets.UTF_8)));
+        requestCustomizer.customize(httpPost);
+
+        try (HttpClientResponse response = httpClientHelper.performHttpRequest(httpPost)) {
+            StatusLine statusLine = response.getStatusLine();
+            if (LOGGER.isDebugEnabled()) {
+                LOGGER.debug("Response for POST {}: {}", safeUri(root), statusLine);
+            }
+            int statusCode = statusLine.getStatusCode();
+            if (isHttpSuccess(statusCode) && isBatchLookupResponse(response)) {
+                try (BufferedReader reader = new BufferedReader(new InputStreamReader(response.getContent(), StandardCharsets.UTF_8))) {
+                    Set<BuildCacheKey> existing = reader.lines()
+                        .map(String::trim)
+                        .map(keysByHashCode::get)
+                        .filter(Objects::nonNull)
+                        .collect(Collectors.toSet());
+                    return Optional.of(existing);
+                }
+            } else if (isHttpSuccess(statusCode) || BATCH_LOOKUP_UNSUPPORTED_HTTP_CODES.contains(statusCode)) {
+                LOGGER.debug("Build cache at '{}' does not support batched lookups", safeUri(root));
+                batchLookupSupported = false;
+                return Optional.empty();
+            } else {
+                String defaultMessage = String.format("Looking up entries at '%s' response status %d: %s", safeUri(root), statusCode, statusLine.getReasonPhrase());
+                throwHttpStatusCodeException(statusCode, defaultMessage);
+                return Optional.empty();
+            }
+        } catch (IOException e) {
+            throw wrap(e);
+        }
+    }
+
+    private static boolean isBatchLookupResponse(HttpClientResponse response) {
+        String contentType = response.getHeader(HttpHeaders.CONTENT_TYPE);
+        return contentType != null && contentType.startsWith(BATCH_LOOKUP_CONTENT_TYPE);
+    }
+
     private static BuildCacheException wrap(Throwable e) {
         if (e instanceof Error) {
             throw (Error) e;
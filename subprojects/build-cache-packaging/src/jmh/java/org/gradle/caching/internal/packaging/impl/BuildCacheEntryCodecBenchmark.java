@@ -0,0 +1,128 @@
+/*
+ * Copyright 2021 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.caching.internal.packaging.impl;
+
+import org.gradle.caching.internal.packaging.BuildCacheEntryCodec;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.Arrays;
+import java.util.Random;
+import java.util.concurrent.Executors;
+
+import static java.util.concurrent.TimeUnit.SECONDS;
+
+/**
+ * Measures the time to compress and decompress build cache entries of different sizes with each {@link BuildCacheEntryCodec}.
+ */
+@Fork(1)
+@Warmup(iterations = 3, time = 2, timeUnit = SECONDS)
+@Measurement(iterations = 5, time = 2, timeUnit = SECONDS)
+@State(Scope.Benchmark)
+public class BuildCacheEntryCodecBenchmark {
+
+    @Param({"gzip", "store", "parallel-deflate"})
+    String codecName;
+
+    @Param({"65536", "4194304", "67108864"})
+    int entrySize;
+
+    ParallelDeflateBuildCacheEntryCodec parallelDeflateCodec;
+    BuildCacheEntryCodec codec;
+    byte[] content;
+    byte[] compressedContent;
+    byte[] buffer = new byte[64 * 1024];
+
+    @Setup(Level.Trial)
+    public void setup() throws IOException {
+        int parallelism = Runtime.getRuntime().availableProcessors();
+        parallelDeflateCodec = new ParallelDeflateBuildCacheEntryCodec(Executors.newFixedThreadPool(parallelism), parallelism);
+        codec = CodecBuildCacheEntryPacker.selectCodec(
+            Arrays.asList(new GZipBuildCacheEntryCodec(), new StoreBuildCacheEntryCodec(), parallelDeflateCodec),
+            codecName
+        );
+        content = generateContent(entrySize);
+        compressedContent = compress();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        parallelDeflateCodec.close();
+    }
+
+    @Benchmark
+    public byte[] compress() throws IOException {
+        ByteArrayOutputStream output = new ByteArrayOutputStream(entrySize);
+        try (OutputStream compressedOutput = codec.compress(output)) {
+            compressedOutput.write(content);
+        }
+        return output.toByteArray();
+    }
+
+    @Benchmark
+    public long decompress() throws IOException {
+        try (InputStream input = codec.decompress(new ByteArrayInputStream(compressedContent))) {
+            long count = 0;
+            int read;
+            while ((read = input.read(buffer)) >= 0) {
+                count += read;
+            }
+            return count;
+        }
+    }
+
+    /**
+     * Generates content that compresses roughly like class files and other build outputs.
+     */
+    private static byte[] generateContent(int size) {
+        Random random = new Random(size);
+        String[] words = new String[512];
+        for (int i = 0; i < words.length; i++) {
+            char[] word = new char[4 + random.nextInt(12)];
+            for (int j = 0; j < word.length; j++) {
+                word[j] = (char) ('a' + random.nextInt(26));
+            }
+            words[i] = new String(word);
+        }
+        byte[] content = new byte[size];
+        int position = 0;
+        while (position < size) {
+            if (random.nextInt(4) == 0) {
+                content[position++] = (byte) random.nextInt(256);
+            } else {
+                String word = words[random.nextInt(words.length)];
+                for (int i = 0; i < word.length() && position < size; i++) {
+                    content[position++] = (byte) word.charAt(i);
+                }
+            }
+        }
+        return content;
+    }
+}
@@ -0,0 +1,140 @@
+/*
+ * Copyright 2021 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.caching.internal.packaging.impl;
+
+import com.google.common.collect.ImmutableList;
+import org.gradle.caching.internal.CacheableEntity;
+import org.gradle.caching.internal.origin.OriginReader;
+import org.gradle.caching.internal.origin.OriginWriter;
+import org.gradle.caching.internal.packaging.BuildCacheEntryCodec;
+import org.gradle.caching.internal.packaging.BuildCacheEntryPacker;
+import org.gradle.internal.snapshot.FileSystemSnapshot;
+
+import javax.annotation.Nullable;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.PushbackInputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Compresses build cache entries with a {@link BuildCacheEntryCodec}.
+ *
+ * <p>Entries written with the GZIP codec are plain GZIP streams, as they have always been, and are recognized by the GZIP magic number.
+ * Entries written with any other codec start with a header identifying the codec, so a cache can contain entries written with different codecs.</p>
+ */
+public class CodecBuildCacheEntryPacker implements BuildCacheEntryPacker {
+    private static final byte[] MAGIC = {'G', 'B', 'C'};
+    private static final int HEADER_SIZE = MAGIC.length + 1;
+    private static final int GZIP_MAGIC_1 = 0x1f;
+    private static final int GZIP_MAGIC_2 = 0x8b;
+
+    private final BuildCacheEntryPacker delegate;
+    private final BuildCacheEntryCodec codec;
+    private final BuildCacheEntryCodec[] codecsById = new BuildCacheEntryCodec[256];
+    private final BuildCacheEntryCodec gzipCodec;
+
+    public CodecBuildCacheEntryPacker(BuildCacheEntryPacker delegate, BuildCacheEntryCodec codec, Iterable<? extends BuildCacheEntryCodec> knownCodecs) {
+        this.delegate = delegate;
+        this.codec = codec;
+        BuildCacheEntryCodec knownGzipCodec = null;
+        for (BuildCacheEntryCodec knownCodec : ImmutableList.<BuildCacheEntryCodec>builder().add(codec).addAll(knownCodecs).build()) {
+            int id = knownCodec.getId() & 0xff;
+            BuildCacheEntryCodec existing = codecsById[id];
+            if (existing == null) {
+                codecsById[id] = knownCodec;
+            } else if (!existing.getName().equals(knownCodec.getName())) {
+                throw new IllegalArgumentException(String.format("Build cache entry codecs '%s' and '%s' use the same id %d.", existing.getName(), knownCodec.getName(), id));
+            }
+            if (knownGzipCodec == null && knownCodec.getName().equals(GZipBuildCacheEntryCodec.NAME)) {
+                knownGzipCodec = knownCodec;
+            }
+        }
+        this.gzipCodec = knownGzipCodec != null ? knownGzipCodec : new GZipBuildCacheEntryCodec();
+    }
+
+    /**
+     * Selects the codec with the given name, or the GZIP codec when no name is given.
+     */
+    public static BuildCacheEntryCodec selectCodec(Iterable<? extends BuildCacheEntryCodec> codecs, @Nullable String name) {
+        String codecName = name == null || name.isEmpty() ? GZipBuildCacheEntryCodec.NAME : name;
+        for (BuildCacheEntryCodec codec : codecs) {
+            if (codec.getName().equalsIgnoreCase(codecName)) {
+                return codec;
+            }
+        }
+        List<String> knownNames = new ArrayList<>();
+        for (BuildCacheEntryCodec codec : codecs) {
+            knownNames.add(codec.getName());
+        }
+        throw new IllegalArgumentException(String.format("Unknown build cache entry codec '%s'. Known codecs are %s.", name, knownNames));
+    }
+
+    public BuildCacheEntryCodec getCodec() {
+        return codec;
+    }
+
+    @Override
+    public PackResult pack(CacheableEntity entity, Map<String, ? extends FileSystemSnapshot> snapshots, OutputStream output, OriginWriter writeOrigin) throws IOException {
+        if (!codec.getName().equals(GZipBuildCacheEntryCodec.NAME)) {
+            output.write(MAGIC);
+            output.write(codec.getId());
+        }
+        try (OutputStream compressedOutput = codec.compress(output)) {
+            return delegate.pack(entity, snapshots, compressedOutput, writeOrigin);
+        }
+    }
+
+    @Override
+    public UnpackResult unpack(CacheableEntity entity, InputStream input, OriginReader readOrigin) throws IOException {
+        PushbackInputStream headerInput = new PushbackInputStream(input, HEADER_SIZE);
+        BuildCacheEntryCodec entryCodec = readCodec(headerInput);
+        try (InputStream decompressedInput = entryCodec.decompress(headerInput)) {
+            return delegate.unpack(entity, decompressedInput, readOrigin);
+        }
+    }
+
+    private BuildCacheEntryCodec readCodec(PushbackInputStream input) throws IOException {
+        byte[] header = new byte[HEADER_SIZE];
+        int read = 0;
+        while (read < HEADER_SIZE) {
+            int count = input.read(header, read, HEADER_SIZE - read);
+            if (count < 0) {
+                throw new EOFException("Unexpected end of build cache entry.");
+            }
+            read += count;
+        }
+        if ((header[0] & 0xff) == GZIP_MAGIC_1 && (header[1] & 0xff) == GZIP_MAGIC_2) {
+            input.unread(header);
+            return gzipCodec;
+        }
+        for (int i = 0; i < MAGIC.length; i++) {
+            if (header[i] != MAGIC[i]) {
+                throw new IOException("Build cache entry has an unknown format.");
+            }
+        }
+        int id = header[MAGIC.length] & 0xff;
+        BuildCacheEntryCodec entryCodec = codecsById[id];
+        if (entryCodec == null) {
+            throw new IOException(String.format("Build cache entry was written with an unknown codec (id %d).", id));
+        }
+        return entryCodec;
+    }
+}
@@ -0,0 +1,54 @@
+/*
+ * Copyright 2021 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.caching.internal.packaging.impl;
+
+import org.gradle.caching.internal.packaging.BuildCacheEntryCodec;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Compresses build cache entries using GZIP.
+ */
+public class GZipBuildCacheEntryCodec implements BuildCacheEntryCodec {
+    public static final String NAME = "gzip";
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    @Override
+    public byte getId() {
+        return 1;
+    }
+
+    @Override
+    public String getName() {
+        return NAME;
+    }
+
+    @Override
+    public OutputStream compress(OutputStream output) throws IOException {
+        return new GZIPOutputStream(output, BUFFER_SIZE);
+    }
+
+    @Override
+    public InputStream decompress(InputStream input) throws IOException {
+        return new GZIPInputStream(input, BUFFER_SIZE);
+    }
+}
@@ -0,0 +1,368 @@
+/*
+ * Copyright 2021 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.caching.internal.packaging.impl;
+
+import org.gradle.caching.internal.packaging.BuildCacheEntryCodec;
+
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.zip.CRC32;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+/**
+ * Compresses build cache entries as a sequence of independently deflated blocks, so that blocks can be compressed and decompressed in parallel.
+ *
+ * <p>The stream starts with the block size used by the writer, which bounds the uncompressed length of its blocks. Each block is written as its uncompressed length,
+ * its compressed length and the CRC32 of its uncompressed content, followed by the raw deflate data. A block with an uncompressed length of 0 marks the end of the stream.
+ * Entries can be read regardless of the block size the reading codec is configured with.</p>
+ *
+ * <p>The codec owns the given executor and shuts it down when closed.</p>
+ */
+public class ParallelDeflateBuildCacheEntryCodec implements BuildCacheEntryCodec, Closeable {
+    public static final String NAME = "parallel-deflate";
+    public static final int DEFAULT_BLOCK_SIZE = 1024 * 1024;
+    /**
+     * The largest block size supported by the format. Bounds the memory used to read an entry, as the block size is read from the entry.
+     */
+    public static final int MAX_BLOCK_SIZE = 16 * 1024 * 1024;
+
+    private static final int STREAM_HEADER_SIZE = 4;
+    private static final int BLOCK_HEADER_SIZE = 12;
+
+    private final ExecutorService executor;
+    private final int parallelism;
+    private final int blockSize;
+    private final int level;
+
+    public ParallelDeflateBuildCacheEntryCodec(ExecutorService executor, int parallelism) {
+        this(executor, parallelism, DEFAULT_BLOCK_SIZE, Deflater.DEFAULT_COMPRESSION);
+    }
+
+    public ParallelDeflateBuildCacheEntryCodec(ExecutorService executor, int parallelism, int blockSize, int level) {
+        if (parallelism < 1) {
+            throw new IllegalArgumentException("Parallelism must be at least 1.");
+        }
+        if (blockSize < 1 || blockSize > MAX_BLOCK_SIZE) {
+            throw new IllegalArgumentException(String.format("Block size must be between 1 and %d.", MAX_BLOCK_SIZE));
+        }
+        this.executor = executor;
+        this.parallelism = parallelism;
+        this.blockSize = blockSize;
+        this.level = level;
+    }
+
+    @Override
+    public byte getId() {
+        return 2;
+    }
+
+    @Override
+    public String getName() {
+        return NAME;
+    }
+
+    @Override
+    public OutputStream compress(OutputStream output) throws IOException {
+        byte[] header = new byte[STREAM_HEADER_SIZE];
+        writeInt(header, 0, blockSize);
+        output.write(header);
+        return new ParallelDeflateOutputStream(output);
+    }
+
+    @Override
+    public InputStream decompress(InputStream input) throws IOException {
+        DataInputStream dataInput = new DataInputStream(input);
+        int streamBlockSize = readInt(dataInput);
+        if (streamBlockSize < 1 || streamBlockSize > MAX_BLOCK_SIZE) {
+            throw new IOException("Corrupted build cache entry header.");
+        }
+        return new ParallelInflateInputStream(dataInput, streamBlockSize);
+    }
+
+    @Override
+    public void close() {
+        executor.shutdownNow();
+    }
+
+    /**
+     * The number of blocks that may be in flight at once. Bounds the memory used by a single stream.
+     */
+    private int maxPendingBlocks() {
+        return parallelism * 2;
+    }
+
+    private static byte[] await(Future<byte[]> future) throws IOException {
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while waiting for build cache entry block.");
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof IOException) {
+                throw (IOException) cause;
+            }
+            throw new IOException(cause);
+        }
+    }
+
+    /**
+     * The conservative upper bound zlib gives for the size of deflated data, regardless of the compression level.
+     */
+    private static long maxCompressedLength(int length) {
+        return length + ((length + 7L) >> 3) + ((length + 63L) >> 6) + 5;
+    }
+
+    private static void cancelAll(Deque<Future<byte[]>> pending) {
+        for (Future<byte[]> future : pending) {
+            future.cancel(false);
+        }
+        pending.clear();
+    }
+
+    private byte[] deflateBlock(byte[] data, int length) {
+        CRC32 crc = new CRC32();
+        crc.update(data, 0, length);
+
+        Deflater deflater = new Deflater(level, true);
+        try {
+            deflater.setInput(data, 0, length);
+            deflater.finish();
+            // Deflate can expand incompressible data slightly
+            byte[] block = new byte[BLOCK_HEADER_SIZE + length + (length >> 8) + 64];
+            int compressedLength = 0;
+            while (!deflater.finished()) {
+                int offset = BLOCK_HEADER_SIZE + compressedLength;
+                if (offset == block.length) {
+                    block = Arrays.copyOf(block, block.length * 2);
+                }
+                compressedLength += deflater.deflate(block, offset, block.length - offset);
+            }
+            writeInt(block, 0, length);
+            writeInt(block, 4, compressedLength);
+            writeInt(block, 8, (int) crc.getValue());
+            return Arrays.copyOf(block, BLOCK_HEADER_SIZE + compressedLength);
+        } finally {
+            deflater.end();
+        }
+    }
+
+    private static byte[] inflateBlock(byte[] compressed, int length, int expectedCrc) throws IOException {
+        byte[] data = new byte[length];
+        Inflater inflater = new Inflater(true);
+        try {
+            inflater.setInput(compressed);
+            int inflated = 0;
+            while (inflated < length) {
+                int count = inflater.inflate(data, inflated, length - inflated);
+                if (count == 0 && (inflater.finished() || inflater.needsInput() || inflater.needsDictionary())) {
+                    break;
+                }
+                inflated += count;
+            }
+            if (inflated != length) {
+                throw new IOException(String.format("Corrupted build cache entry block: expected %d bytes but found %d.", length, inflated));
+            }
+        } catch (DataFormatException e) {
+            throw new IOException("Corrupted build cache entry block.", e);
+        } finally {
+            inflater.end();
+        }
+        CRC32 crc = new CRC32();
+        crc.update(data, 0, length);
+        if ((int) crc.getValue() != expectedCrc) {
+            throw new IOException("Corrupted build cache entry block: checksum mismatch.");
+        }
+        return data;
+    }
+
+    private static int readInt(DataInputStream input) throws IOException {
+        try {
+            return input.readInt();
+        } catch (EOFException e) {
+            throw new EOFException("Unexpected end of build cache entry.");
+        }
+    }
+
+    private static void writeInt(byte[] buffer, int offset, int value) {
+        buffer[offset] = (byte) (value >>> 24);
+        buffer[offset + 1] = (byte) (value >>> 16);
+        buffer[offset + 2] = (byte) (value >>> 8);
+        buffer[offset + 3] = (byte) value;
+    }
+
+    private class ParallelDeflateOutputStream extends OutputStream {
+        private final OutputStream output;
+        private final Deque<Future<byte[]>> pending = new ArrayDeque<>();
+        private byte[] buffer = new byte[blockSize];
+        private int count;
+        private boolean closed;
+
+        ParallelDeflateOutputStream(OutputStream output) {
+            this.output = output;
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            if (count == buffer.length) {
+                submitBlock();
+            }
+            buffer[count++] = (byte) b;
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            while (len > 0) {
+                if (count == buffer.length) {
+                    submitBlock();
+                }
+                int chunk = Math.min(len, buffer.length - count);
+                System.arraycopy(b, off, buffer, count, chunk);
+                count += chunk;
+                off += chunk;
+                len -= chunk;
+            }
+        }
+
+        private void submitBlock() throws IOException {
+            if (pending.size() >= maxPendingBlocks()) {
+                output.write(await(pending.removeFirst()));
+            }
+            byte[] data = buffer;
+            int length = count;
+            pending.addLast(executor.submit(() -> deflateBlock(data, length)));
+            buffer = new byte[blockSize];
+            count = 0;
+        }
+
+        @Override
+        public void flush() throws IOException {
+            output.flush();
+        }
+
+        @Override
+        public void close() throws IOException {
+            if (closed) {
+                return;
+            }
+            closed = true;
+            try {
+                if (count > 0) {
+                    submitBlock();
+                }
+                while (!pending.isEmpty()) {
+                    output.write(await(pending.removeFirst()));
+                }
+                output.write(new byte[BLOCK_HEADER_SIZE]);
+            } finally {
+                cancelAll(pending);
+                output.close();
+            }
+        }
+    }
+
+    private class ParallelInflateInputStream extends InputStream {
+        private final DataInputStream input;
+        private final int streamBlockSize;
+        private final Deque<Future<byte[]>> pending = new ArrayDeque<>();
+        private byte[] block = new byte[0];
+        private int position;
+        private boolean endOfInput;
+
+        ParallelInflateInputStream(DataInputStream input, int streamBlockSize) {
+            this.input = input;
+            this.streamBlockSize = streamBlockSize;
+        }
+
+        @Override
+        public int read() throws IOException {
+            if (!ensureAvailable()) {
+                return -1;
+            }
+            return block[position++] & 0xff;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            if (len == 0) {
+                return 0;
+            }
+            if (!ensureAvailable()) {
+                return -1;
+            }
+            int chunk = Math.min(len, block.length - position);
+            System.arraycopy(block, position, b, off, chunk);
+            position += chunk;
+            return chunk;
+        }
+
+        @Override
+        public int available() {
+            return block.length - position;
+        }
+
+        private boolean ensureAvailable() throws IOException {
+            while (position == block.length) {
+                fillPipeline();
+                if (pending.isEmpty()) {
+                    return false;
+                }
+                block = await(pending.removeFirst());
+                position = 0;
+            }
+            return true;
+        }
+
+        private void fillPipeline() throws IOException {
+            while (!endOfInput && pending.size() < maxPendingBlocks()) {
+                int length = readInt(input);
+                int compressedLength = readInt(input);
+                int crc = readInt(input);
+                if (length == 0) {
+                    endOfInput = true;
+                    return;
+                }
+                // Bound the buffers allocated for a block, as the lengths come from a possibly corrupted entry
+                if (length < 0 || length > streamBlockSize || compressedLength < 0 || compressedLength > maxCompressedLength(length)) {
+                    throw new IOException("Corrupted build cache entry block header.");
+                }
+                byte[] compressed = new byte[compressedLength];
+                input.readFully(compressed);
+                pending.addLast(executor.submit(() -> inflateBlock(compressed, length, crc)));
+            }
+        }
+
+        @Override
+        public void close() throws IOException {
+            cancelAll(pending);
+            input.close();
+        }
+    }
+}
@@ -0,0 +1,252 @@
+/*
+ * Copyright 2021 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.caching.internal.packaging.impl
+
+import org.gradle.caching.internal.CacheableEntity
+import org.gradle.caching.internal.origin.OriginReader
+import org.gradle.caching.internal.origin.OriginWriter
+import org.gradle.caching.internal.packaging.BuildCacheEntryCodec
+import org.gradle.caching.internal.packaging.BuildCacheEntryPacker
+import org.gradle.internal.snapshot.FileSystemSnapshot
+import spock.lang.Specification
+
+import java.util.concurrent.Executors
+import java.util.zip.Deflater
+import java.util.zip.GZIPInputStream
+
+class CodecBuildCacheEntryPackerTest extends Specification {
+    def parallelDeflate = new ParallelDeflateBuildCacheEntryCodec(Executors.newFixedThreadPool(2), 2, 1000, Deflater.DEFAULT_COMPRESSION)
+    def codecs = [new GZipBuildCacheEntryCodec(), new StoreBuildCacheEntryCodec(), parallelDeflate]
+    def delegate = new PayloadPacker()
+    def entity = Stub(CacheableEntity)
+
+    def cleanup() {
+        parallelDeflate.close()
+    }
+
+    def "entries written with #codecName can be unpacked by packers using any codec"() {
+        def writer = packer(codecName)
+        def payload = payload(size)
+
+        when:
+        def entry = pack(writer, payload)
+
+        then:
+        codecs.every { unpack(packer(it.name), entry) == payload }
+
+        where:
+        codecName          | size
+        "gzip"             | 0
+        "gzip"             | 100000
+        "store"            | 0
+        "store"            | 100000
+        "parallel-deflate" | 0
+        "parallel-deflate" | 999
+        "parallel-deflate" | 100000
+    }
+
+    def "gzip entries are plain gzip streams"() {
+        def payload = payload(1000)
+
+        when:
+        def entry = pack(packer("gzip"), payload)
+
+        then:
+        new GZIPInputStream(new ByteArrayInputStream(entry)).bytes == payload
+    }
+
+    def "store entries contain the uncompressed payload after the header"() {
+        def payload = payload(1000)
+
+        when:
+        def entry = pack(packer("store"), payload)
+
+        then:
+        entry.length == payload.length + 4
+        entry[4..-1] == payload.toList()
+    }
+
+    def "fails to unpack entry written with unknown codec"() {
+        def entry = pack(packer("store"), payload(10))
+        entry[3] = 42
+
+        when:
+        unpack(packer("gzip"), entry)
+
+        then:
+        def e = thrown(IOException)
+        e.message == "Build cache entry was written with an unknown codec (id 42)."
+    }
+
+    def "fails to unpack entry with unknown format"() {
+        when:
+        unpack(packer("gzip"), "not a cache entry".bytes)
+
+        then:
+        def e = thrown(IOException)
+        e.message == "Build cache entry has an unknown format."
+    }
+
+    def "parallel deflate detects corrupted blocks"() {
+        def entry = pack(packer("parallel-deflate"), payload(5000))
+        entry[entry.length - 20] ^= 0x55
+
+        when:
+        unpack(packer("parallel-deflate"), entry)
+
+        then:
+        thrown(IOException)
+    }
+
+    def "parallel deflate detects truncated entries"() {
+        def entry = pack(packer("parallel-deflate"), payload(5000))
+
+        when:
+        unpack(packer("parallel-deflate"), Arrays.copyOf(entry, entry.length - 5))
+
+        then:
+        thrown(EOFException)
+    }
+
+    def "parallel deflate rejects block header with #description"() {
+        def entry = pack(packer("parallel-deflate"), payload(5000))
+        // The first block header follows the 4 byte codec header and the block size
+        writeInt(entry, offset, value)
+
+        when:
+        unpack(packer("parallel-deflate"), entry)
+
+        then:
+        def e = thrown(IOException)
+        e.message == "Corrupted build cache entry block header."
+
+        where:
+        description                             | offset | value
+        "negative length"                       | 8      | -1
+        "length larger than block size"         | 8      | 1001
+        "huge length"                           | 8      | Integer.MAX_VALUE
+        "negative compressed length"            | 12     | -1
+        "compressed length larger than bound"   | 12     | 1200
+        "huge compressed length"                | 12     | Integer.MAX_VALUE
+    }
+
+    def "parallel deflate rejects block size #blockSize in entry header"() {
+        def entry = pack(packer("parallel-deflate"), payload(5000))
+        writeInt(entry, 4, blockSize)
+
+        when:
+        unpack(packer("parallel-deflate"), entry)
+
+        then:
+        def e = thrown(IOException)
+        e.message == "Corrupted build cache entry header."
+
+        where:
+        blockSize << [0, -1, ParallelDeflateBuildCacheEntryCodec.MAX_BLOCK_SIZE + 1]
+    }
+
+    def "parallel deflate reads entries written with another block size"() {
+        def otherCodec = new ParallelDeflateBuildCacheEntryCodec(Executors.newFixedThreadPool(2), 2, 4000, Deflater.DEFAULT_COMPRESSION)
+        def writer = new CodecBuildCacheEntryPacker(delegate, otherCodec, [otherCodec])
+        def payload = payload(10000)
+
+        when:
+        def entry = pack(writer, payload)
+
+        then:
+        unpack(packer("parallel-deflate"), entry) == payload
+
+        cleanup:
+        otherCodec.close()
+    }
+
+    def "selects codec by name"() {
+        expect:
+        CodecBuildCacheEntryPacker.selectCodec(codecs, null).name == "gzip"
+        CodecBuildCacheEntryPacker.selectCodec(codecs, "").name == "gzip"
+        CodecBuildCacheEntryPacker.selectCodec(codecs, "store").name == "store"
+        CodecBuildCacheEntryPacker.selectCodec(codecs, "Parallel-Deflate").name == "parallel-deflate"
+
+        when:
+        CodecBuildCacheEntryPacker.selectCodec(codecs, "unknown")
+
+        then:
+        def e = thrown(IllegalArgumentException)
+        e.message == "Unknown build cache entry codec 'unknown'. Known codecs are [gzip, store, parallel-deflate]."
+    }
+
+    def "rejects codecs with the same id"() {
+        def other = Stub(BuildCacheEntryCodec) {
+            getId() >> (byte) 1
+            getName() >> "other"
+        }
+
+        when:
+        new CodecBuildCacheEntryPacker(delegate, codecs[0], codecs + other)
+
+        then:
+        thrown(IllegalArgumentException)
+    }
+
+    private CodecBuildCacheEntryPacker packer(String codecName) {
+        new CodecBuildCacheEntryPacker(delegate, CodecBuildCacheEntryPacker.selectCodec(codecs, codecName), codecs)
+    }
+
+    private byte[] pack(BuildCacheEntryPacker packer, byte[] payload) {
+        def output = new ByteArrayOutputStream()
+        delegate.payload = payload
+        packer.pack(entity, [:], output, Stub(OriginWriter))
+        output.toByteArray()
+    }
+
+    private byte[] unpack(BuildCacheEntryPacker packer, byte[] entry) {
+        packer.unpack(entity, new ByteArrayInputStream(entry), Stub(OriginReader))
+        delegate.payload
+    }
+
+    private static void writeInt(byte[] bytes, int offset, int value) {
+        bytes[offset] = (byte) (value >>> 24)
+        bytes[offset + 1] = (byte) (value >>> 16)
+        bytes[offset + 2] = (byte) (value >>> 8)
+        bytes[offset + 3] = (byte) value
+    }
+
+    private static byte[] payload(int size) {
+        def random = new Random(size)
+        def payload = new byte[size]
+        for (int i = 0; i < size; i++) {
+            payload[i] = (byte) ('a' + random.nextInt(16))
+        }
+        payload
+    }
+
+    private static class PayloadPacker implements BuildCacheEntryPacker {
+        byte[] payload
+
+        @Override
+        PackResult pack(CacheableEntity entity, Map<String, ? extends FileSystemSnapshot> snapshots, OutputStream output, OriginWriter writeOrigin) throws IOException {
+            output.write(payload)
+            new PackResult(1)
+        }
+
+        @Override
+        UnpackResult unpack(CacheableEntity entity, InputStream input, OriginReader readOrigin) throws IOException {
+            payload = input.bytes
+            new UnpackResult(null, 1, [:])
+        }
+    }
+}
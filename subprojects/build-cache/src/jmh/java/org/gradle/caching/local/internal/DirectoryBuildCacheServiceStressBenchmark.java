@@ -0,0 +1,215 @@
+/*
+ * Copyright 2021 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.caching.local.internal;
+
+import org.apache.commons.io.FileUtils;
+import org.gradle.api.internal.file.temp.DefaultTemporaryFileProvider;
+import org.gradle.cache.PersistentCache;
+import org.gradle.caching.BuildCacheEntryWriter;
+import org.gradle.caching.BuildCacheKey;
+import org.gradle.internal.resource.local.PathKeyFileStore;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.lang.reflect.Proxy;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
+
+/**
+ * Stress tests a directory build cache shared by several processes, like concurrent builds on one CI agent.
+ *
+ * Each worker process performs a mix of loads and stores against a shared set of keys. The benchmark measures the time
+ * until all workers have completed, excluding the time to start the worker JVMs.
+ */
+@Fork(1)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 10)
+@State(Scope.Benchmark)
+public class DirectoryBuildCacheServiceStressBenchmark {
+    private static final String READY = "ready";
+    private static final String GO = "go";
+
+    @Param({"1", "2", "4", "8"})
+    int processes;
+
+    @Param({"1000"})
+    int operationsPerProcess;
+
+    @Param({"16384"})
+    int entrySize;
+
+    File cacheDir;
+    List<Process> workers;
+
+    @Setup(Level.Invocation)
+    public void startWorkers() throws IOException {
+        cacheDir = Files.createTempDirectory("build-cache-stress").toFile();
+        workers = new ArrayList<>(processes);
+        String java = new File(System.getProperty("java.home"), "bin/java").getAbsolutePath();
+        for (int i = 0; i < processes; i++) {
+            Process worker = new ProcessBuilder(
+                java, "-cp", System.getProperty("java.class.path"), DirectoryBuildCacheServiceStressBenchmark.class.getName(),
+                cacheDir.getAbsolutePath(), String.valueOf(operationsPerProcess), String.valueOf(entrySize), String.valueOf(i)
+            ).redirectError(ProcessBuilder.Redirect.INHERIT).start();
+            workers.add(worker);
+        }
+        for (Process worker : workers) {
+            BufferedReader output = new BufferedReader(new InputStreamReader(worker.getInputStream(), StandardCharsets.UTF_8));
+            if (!READY.equals(output.readLine())) {
+                throw new IllegalStateException("Worker failed to start.");
+            }
+        }
+    }
+
+    @TearDown(Level.Invocation)
+    public void stopWorkers() throws IOException {
+        for (Process worker : workers) {
+            worker.destroyForcibly();
+        }
+        FileUtils.forceDelete(cacheDir);
+    }
+
+    @Benchmark
+    public void storeAndLoad() throws Exception {
+        for (Process worker : workers) {
+            Writer input = new OutputStreamWriter(worker.getOutputStream(), StandardCharsets.UTF_8);
+            input.write(GO + "\n");
+            input.flush();
+        }
+        for (Process worker : workers) {
+            if (worker.waitFor() != 0) {
+                throw new IllegalStateException("Worker failed with exit code " + worker.exitValue());
+            }
+        }
+    }
+
+    /**
+     * Entry point of the worker processes.
+     */
+    public static void main(String[] args) throws Exception {
+        File cacheDir = new File(args[0]);
+        int operations = Integer.parseInt(args[1]);
+        int entrySize = Integer.parseInt(args[2]);
+        Random random = new Random(Long.parseLong(args[3]));
+
+        DirectoryBuildCacheService service = new DirectoryBuildCacheService(
+            unsupported(PathKeyFileStore.class),
+            persistentCache(cacheDir),
+            new DefaultBuildCacheTempFileStore(new DefaultTemporaryFileProvider(() -> cacheDir)),
+            file -> {},
+            DirectoryBuildCacheServiceFactory.FAILED_READ_SUFFIX
+        );
+        byte[] content = new byte[entrySize];
+        random.nextBytes(content);
+        byte[] buffer = new byte[8192];
+
+        System.out.println(READY);
+        System.out.flush();
+        BufferedReader input = new BufferedReader(new InputStreamReader(System.in, StandardCharsets.UTF_8));
+        if (!GO.equals(input.readLine())) {
+            throw new IllegalStateException("Worker was not started.");
+        }
+
+        for (int i = 0; i < operations; i++) {
+            // All workers share the same keys, so they contend on the same entries
+            BuildCacheKey key = new Key(String.format("%032x", random.nextInt(operations)));
+            if (random.nextBoolean()) {
+                service.load(key, entryInput -> {
+                    while (entryInput.read(buffer) >= 0) {
+                        // Consume the entry
+                    }
+                });
+            } else {
+                service.store(key, new BuildCacheEntryWriter() {
+                    @Override
+                    public void writeTo(OutputStream output) throws IOException {
+                        output.write(content);
+                    }
+
+                    @Override
+                    public long getSize() {
+                        return content.length;
+                    }
+                });
+            }
+        }
+    }
+
+    private static PersistentCache persistentCache(File baseDir) {
+        return (PersistentCache) Proxy.newProxyInstance(PersistentCache.class.getClassLoader(), new Class<?>[]{PersistentCache.class}, (proxy, method, args) -> {
+            if (method.getName().equals("getBaseDir")) {
+                return baseDir;
+            }
+            throw new UnsupportedOperationException(method.getName());
+        });
+    }
+
+    private static <T> T unsupported(Class<T> type) {
+        return type.cast(Proxy.newProxyInstance(type.getClassLoader(), new Class<?>[]{type}, (proxy, method, args) -> {
+            throw new UnsupportedOperationException(method.getName());
+        }));
+    }
+
+    private static class Key implements BuildCacheKey {
+        private final String hashCode;
+
+        Key(String hashCode) {
+            this.hashCode = hashCode;
+        }
+
+        @Override
+        public String getHashCode() {
+            return hashCode;
+        }
+
+        @Override
+        public byte[] toByteArray() {
+            return hashCode.getBytes(StandardCharsets.UTF_8);
+        }
+
+        @Override
+        public String getDisplayName() {
+            return hashCode;
+        }
+    }
+}
@@ -16,9 +16,11 @@
 
 package org.gradle.caching.internal.controller;
 
+import org.gradle.caching.BuildCacheKey;
 import org.gradle.caching.BuildCacheService;
 
 import java.io.Closeable;
+import java.util.Collection;
 import java.util.Optional;
 
 /**
@@ -34,6 +36,11 @@ public interface BuildCacheController extends Closeable {
 
     <T> Optional<T> load(BuildCacheLoadCommand<T> command);
 
+    /**
+     * Hints that entries for the given keys are likely to be loaded soon, so they can be fetched in the background.
+     */
+    void prefetch(Collection<BuildCacheKey> keys);
+
     void store(BuildCacheStoreCommand command);
 
 }
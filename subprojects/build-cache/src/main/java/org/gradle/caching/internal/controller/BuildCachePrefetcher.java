@@ -0,0 +1,306 @@
+/*
+ * Copyright 2021 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.caching.internal.controller;
+
+import org.gradle.api.internal.file.temp.TemporaryFileProvider;
+import org.gradle.caching.BuildCacheEntryReader;
+import org.gradle.caching.BuildCacheEntryWriter;
+import org.gradle.caching.BuildCacheException;
+import org.gradle.caching.BuildCacheKey;
+import org.gradle.caching.BuildCacheService;
+import org.gradle.caching.internal.controller.service.BatchingBuildCacheService;
+import org.gradle.caching.internal.controller.service.LoadTarget;
+import org.gradle.caching.local.internal.BuildCacheTempFileStore;
+import org.gradle.internal.UncheckedException;
+import org.gradle.internal.concurrent.ManagedExecutor;
+import org.gradle.internal.options.IntegerInternalOption;
+import org.gradle.internal.options.InternalOption;
+import org.gradle.util.internal.GFileUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.annotation.Nullable;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.stream.Collectors;
+
+/**
+ * Decorates the remote build cache service, so that its entries can be downloaded in parallel, ahead of the loads that need them.
+ *
+ * <p>Loads go through this service like any other load from the remote cache, so they are reported by build operations and
+ * their failures are handled by the remote build cache handle. A load of a prefetched entry waits for its download and reads the
+ * downloaded file. When the download failed, the load fails the same way.</p>
+ *
+ * <p>When the remote cache is a {@link BatchingBuildCacheService}, the prefetcher first asks which of the keys exist, so that missing
+ * entries do not cost a download request each. A single lookup runs at a time. Keys that are prefetched while a lookup is running are
+ * looked up together by the next one, so that work units which compute their keys at the same time share a request.</p>
+ */
+public class BuildCachePrefetcher implements BuildCacheService {
+
+    /**
+     * Enables prefetching by specifying the number of parallel downloads, e.g. {@code -Dorg.gradle.caching.prefetch.threads=8}. Prefetching is disabled by default.
+     */
+    public static final InternalOption<Integer> THREADS_OPTION = new IntegerInternalOption("org.gradle.caching.prefetch.threads", 0, 0);
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(BuildCachePrefetcher.class);
+
+    private final BuildCacheService remote;
+    private final TemporaryFileProvider temporaryFileProvider;
+    private final ManagedExecutor executor;
+    private final ConcurrentMap<String, CompletableFuture<PrefetchedEntry>> entries = new ConcurrentHashMap<>();
+    private final Set<File> untakenFiles = ConcurrentHashMap.newKeySet();
+    private final Map<BuildCacheKey, CompletableFuture<PrefetchedEntry>> pendingLookups = new LinkedHashMap<>();
+    private boolean lookupRunning;
+    private volatile boolean batchedLookupsSupported;
+    private volatile boolean closed;
+
+    public BuildCachePrefetcher(BuildCacheService remote, TemporaryFileProvider temporaryFileProvider, ManagedExecutor executor) {
+        this.remote = remote;
+        this.temporaryFileProvider = temporaryFileProvider;
+        this.executor = executor;
+        this.batchedLookupsSupported = remote instanceof BatchingBuildCacheService;
+    }
+
+    /**
+     * Starts downloading the entries for the given keys in the background. Keys that are already being prefetched are ignored.
+     */
+    public void prefetch(Collection<BuildCacheKey> keys) {
+        if (closed) {
+            return;
+        }
+        Map<BuildCacheKey, CompletableFuture<PrefetchedEntry>> added = new LinkedHashMap<>();
+        for (BuildCacheKey key : keys) {
+            CompletableFuture<PrefetchedEntry> future = new CompletableFuture<>();
+            if (entries.putIfAbsent(key.getHashCode(), future) == null) {
+                added.put(key, future);
+            }
+        }
+        if (added.isEmpty()) {
+            return;
+        }
+        if (!batchedLookupsSupported) {
+            added.forEach(this::startDownload);
+            return;
+        }
+        synchronized (pendingLookups) {
+            pendingLookups.putAll(added);
+            if (lookupRunning) {
+                // Picked up by the running lookup once it has finished its current request
+                return;
+            }
+            lookupRunning = true;
+        }
+        try {
+            executor.execute(this::lookUpPendingKeys);
+        } catch (RejectedExecutionException e) {
+            // Closed in the meantime, let the loads ask the remote cache themselves
+            synchronized (pendingLookups) {
+                lookupRunning = false;
+                pendingLookups.values().forEach(future -> complete(future, null));
+                pendingLookups.clear();
+            }
+        }
+    }
+
+    private void lookUpPendingKeys() {
+        while (true) {
+            Map<BuildCacheKey, CompletableFuture<PrefetchedEntry>> batch;
+            synchronized (pendingLookups) {
+                if (pendingLookups.isEmpty()) {
+                    lookupRunning = false;
+                    return;
+                }
+                batch = new LinkedHashMap<>(pendingLookups);
+                pendingLookups.clear();
+            }
+            Set<String> existing = findExistingEntries(batch.keySet());
+            batch.forEach((key, future) -> {
+                if (existing != null && !existing.contains(key.getHashCode())) {
+                    complete(future, PrefetchedEntry.MISS);
+                } else {
+                    startDownload(key, future);
+                }
+            });
+        }
+    }
+
+    @Nullable
+    private Set<String> findExistingEntries(Collection<BuildCacheKey> keys) {
+        if (closed || !batchedLookupsSupported) {
+            return null;
+        }
+        try {
+            Optional<Set<BuildCacheKey>> existing = ((BatchingBuildCacheService) remote).findExistingEntries(keys);
+            if (!existing.isPresent()) {
+                // Not going to change for this remote cache
+                batchedLookupsSupported = false;
+                return null;
+            }
+            return existing.get().stream().map(BuildCacheKey::getHashCode).collect(Collectors.toSet());
+        } catch (Exception e) {
+            // The downloads report the problem, if it persists
+            LOGGER.debug("Could not look up {} entries in remote build cache", keys.size(), e);
+            return null;
+        }
+    }
+
+    private void startDownload(BuildCacheKey key, CompletableFuture<PrefetchedEntry> future) {
+        try {
+            executor.execute(() -> {
+                try {
+                    complete(future, download(key));
+                } catch (Throwable t) {
+                    future.completeExceptionally(t);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            // Closed in the meantime, let the load ask the remote cache itself
+            complete(future, null);
+        }
+    }
+
+    private void complete(CompletableFuture<PrefetchedEntry> future, @Nullable PrefetchedEntry entry) {
+        if (!future.complete(entry) && entry != null && entry.isFound()) {
+            // Cancelled, nobody is going to take the entry
+            discard(entry.file);
+        }
+    }
+
+    @Nullable
+    private PrefetchedEntry download(BuildCacheKey key) {
+        if (closed) {
+            return null;
+        }
+        File file = temporaryFileProvider.createTemporaryFile(key.getHashCode() + "-", BuildCacheTempFileStore.PARTIAL_FILE_SUFFIX);
+        untakenFiles.add(file);
+        try {
+            LoadTarget loadTarget = new LoadTarget(file);
+            remote.load(key, loadTarget);
+            if (loadTarget.isLoaded()) {
+                return new PrefetchedEntry(file);
+            }
+            discard(file);
+            return PrefetchedEntry.MISS;
+        } catch (RuntimeException e) {
+            discard(file);
+            throw e;
+        }
+    }
+
+    private void discard(File file) {
+        untakenFiles.remove(file);
+        GFileUtils.deleteQuietly(file);
+    }
+
+    /**
+     * Loads the entry from its prefetched download when there is one, or from the remote cache otherwise.
+     */
+    @Override
+    public boolean load(BuildCacheKey key, BuildCacheEntryReader reader) throws BuildCacheException {
+        PrefetchedEntry entry = take(key);
+        if (entry == null) {
+            return remote.load(key, reader);
+        }
+        if (!entry.isFound()) {
+            return false;
+        }
+        try (InputStream input = new FileInputStream(entry.file)) {
+            reader.readFrom(input);
+            return true;
+        } catch (IOException e) {
+            throw new BuildCacheException("Could not read prefetched build cache entry " + key.getDisplayName(), e);
+        } finally {
+            GFileUtils.deleteQuietly(entry.file);
+        }
+    }
+
+    /**
+     * Takes the prefetched entry for the given key, waiting for its download to finish.
+     *
+     * Returns {@code null} when the entry was not prefetched. Rethrows the failure of the download, if any.
+     */
+    @Nullable
+    private PrefetchedEntry take(BuildCacheKey key) {
+        CompletableFuture<PrefetchedEntry> future = entries.remove(key.getHashCode());
+        if (future == null) {
+            return null;
+        }
+        try {
+            PrefetchedEntry entry = future.get();
+            if (entry != null && entry.isFound()) {
+                untakenFiles.remove(entry.file);
+            }
+            return entry;
+        } catch (InterruptedException e) {
+            throw UncheckedException.throwAsUncheckedException(e);
+        } catch (CancellationException e) {
+            return null;
+        } catch (ExecutionException e) {
+            throw UncheckedException.throwAsUncheckedException(e.getCause());
+        }
+    }
+
+    @Override
+    public void store(BuildCacheKey key, BuildCacheEntryWriter writer) throws BuildCacheException {
+        remote.store(key, writer);
+    }
+
+    @Override
+    public void close() throws IOException {
+        closed = true;
+        entries.values().forEach(future -> future.cancel(false));
+        entries.clear();
+        try {
+            // Waits for running downloads, so that all files are known below
+            executor.stop();
+            untakenFiles.forEach(GFileUtils::deleteQuietly);
+            untakenFiles.clear();
+        } finally {
+            remote.close();
+        }
+    }
+
+    /**
+     * The outcome of prefetching a single entry: either the downloaded file, or the knowledge that the remote cache does not have the entry.
+     */
+    private static class PrefetchedEntry {
+        private static final PrefetchedEntry MISS = new PrefetchedEntry(null);
+
+        private final File file;
+
+        private PrefetchedEntry(@Nullable File file) {
+            this.file = file;
+        }
+
+        boolean isFound() {
+            return file != null;
+        }
+    }
+}
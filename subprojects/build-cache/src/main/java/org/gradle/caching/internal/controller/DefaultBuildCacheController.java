@@ -51,7 +51,10 @@
 import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.util.Collection;
+import java.util.List;
 import java.util.Optional;
+import java.util.stream.Collectors;
 
 public class DefaultBuildCacheController implements BuildCacheController {
 
@@ -62,6 +65,7 @@ public class DefaultBuildCacheController implements BuildCacheController {
     final LocalBuildCacheServiceHandle local;
 
     private final BuildCacheTempFileStore tmp;
+    private final BuildCachePrefetcher prefetcher;
     private final BuildOperationExecutor buildOperationExecutor;
     private final boolean emitDebugLogging;
 
@@ -73,12 +77,15 @@ public DefaultBuildCacheController(
         TemporaryFileProvider temporaryFileProvider,
         boolean logStackTraces,
         boolean emitDebugLogging,
-        boolean disableRemoteOnError
+        boolean disableRemoteOnError,
+        @Nullable BuildCachePrefetcher prefetcher
     ) {
+        this.prefetcher = prefetcher;
         this.buildOperationExecutor = buildOperationExecutor;
         this.emitDebugLogging = emitDebugLogging;
         this.local = toLocalHandle(config.getLocal(), config.isLocalPush());
-        this.remote = toRemoteHandle(config.getRemote(), config.isRemotePush(), buildOperationExecutor, logStackTraces, disableRemoteOnError);
+        // Prefetched entries are loaded through the remote handle too, so that their loads are reported and their failures handled like any other
+        this.remote = toRemoteHandle(prefetcher != null ? prefetcher : config.getRemote(), config.isRemotePush(), buildOperationExecutor, logStackTraces, disableRemoteOnError);
         this.tmp = toTempFileStore(config.getLocal(), temporaryFileProvider);
     }
 
@@ -132,6 +139,21 @@ public <T> Optional<T> load(BuildCacheLoadCommand<T> command) {
             : Optional.of(result.getMetadata());
     }
 
+    @Override
+    public void prefetch(Collection<BuildCacheKey> keys) {
+        if (prefetcher == null || !remote.canLoad()) {
+            return;
+        }
+        List<BuildCacheKey> missingLocally = keys.stream()
+            .filter(key -> !isAvailableLocally(key))
+            .collect(Collectors.toList());
+        prefetcher.prefetch(missingLocally);
+    }
+
+    private boolean isAvailableLocally(BuildCacheKey key) {
+        return local.canLoad() && local.contains(key);
+    }
+
     private class Unpack<T> implements Action<File> {
         private final BuildCacheLoadCommand<T> command;
 
@@ -16,6 +16,9 @@
 
 package org.gradle.caching.internal.controller;
 
+import org.gradle.caching.BuildCacheKey;
+
+import java.util.Collection;
 import java.util.Optional;
 
 public class NoOpBuildCacheController implements BuildCacheController {
@@ -40,6 +43,11 @@ public <T> Optional<T> load(BuildCacheLoadCommand<T> command) {
         return Optional.empty();
     }
 
+    @Override
+    public void prefetch(Collection<BuildCacheKey> keys) {
+
+    }
+
     @Override
     public void store(BuildCacheStoreCommand command) {
 
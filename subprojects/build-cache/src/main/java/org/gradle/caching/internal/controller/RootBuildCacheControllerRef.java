@@ -16,6 +16,9 @@
 
 package org.gradle.caching.internal.controller;
 
+import org.gradle.caching.BuildCacheKey;
+
+import java.util.Collection;
 import java.util.Optional;
 
 public class RootBuildCacheControllerRef {
@@ -63,6 +66,11 @@ public <T> Optional<T> load(BuildCacheLoadCommand<T> command) {
             return delegate.load(command);
         }
 
+        @Override
+        public void prefetch(Collection<BuildCacheKey> keys) {
+            delegate.prefetch(keys);
+        }
+
         @Override
         public void store(BuildCacheStoreCommand command) {
             delegate.store(command);
@@ -35,7 +35,7 @@ public class BaseBuildCacheServiceHandle implements BuildCacheServiceHandle {
     private final boolean logStackTraces;
     private final boolean disableOnError;
 
-    private boolean disabled;
+    private volatile boolean disabled;
 
     public BaseBuildCacheServiceHandle(
         BuildCacheService service,
@@ -0,0 +1,39 @@
+/*
+ * Copyright 2021 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.caching.internal.controller.service;
+
+import org.gradle.caching.BuildCacheException;
+import org.gradle.caching.BuildCacheKey;
+import org.gradle.caching.BuildCacheService;
+
+import java.util.Collection;
+import java.util.Optional;
+import java.util.Set;
+
+/**
+ * A {@link BuildCacheService} that can check for the presence of many entries with a single request.
+ */
+public interface BatchingBuildCacheService extends BuildCacheService {
+
+    /**
+     * Returns the subset of the given keys for which the cache has an entry.
+     *
+     * Returns {@link Optional#empty()} when the backing cache does not support batched lookups,
+     * in which case callers should fall back to loading entries one by one.
+     */
+    Optional<Set<BuildCacheKey>> findExistingEntries(Collection<BuildCacheKey> keys) throws BuildCacheException;
+}
@@ -49,6 +49,11 @@ public void load(BuildCacheKey key, Action<? super File> reader) {
         service.loadLocally(key, reader);
     }
 
+    @Override
+    public boolean contains(BuildCacheKey key) {
+        return service.contains(key);
+    }
+
     @Override
     public boolean canStore() {
         return pushEnabled;
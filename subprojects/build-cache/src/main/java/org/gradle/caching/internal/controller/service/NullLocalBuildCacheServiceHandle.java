@@ -46,6 +46,11 @@ public void load(BuildCacheKey key, Action<? super File> reader) {
         throw new UnsupportedOperationException();
     }
 
+    @Override
+    public boolean contains(BuildCacheKey key) {
+        return false;
+    }
+
     @Override
     public boolean canStore() {
         return false;
@@ -25,6 +25,7 @@
 import org.gradle.caching.BuildCacheException;
 import org.gradle.caching.BuildCacheKey;
 import org.gradle.caching.BuildCacheService;
+import org.gradle.internal.FileUtils;
 import org.gradle.internal.UncheckedException;
 import org.gradle.internal.file.FileAccessTracker;
 import org.gradle.internal.resource.local.LocallyAvailableResource;
@@ -36,17 +37,27 @@
 import java.io.FileInputStream;
 import java.io.FileOutputStream;
 import java.io.IOException;
-import java.util.concurrent.locks.ReadWriteLock;
-import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
 
+/**
+ * A build cache stored in a local directory, which can be shared by multiple Gradle processes.
+ *
+ * Entries are written to a temporary file in the cache directory and published with an atomic rename.
+ * Loading and storing entries does not require the cross-process lock, only cleanup of the cache does.
+ */
 public class DirectoryBuildCacheService implements LocalBuildCacheService, BuildCacheService {
 
+    /**
+     * Older Gradle versions write entries in place, with a marker file next to the entry while it is written.
+     */
+    private static final String IN_PROGRESS_MARKER_FILE_SUFFIX = ".fslck";
+
     private final PathKeyFileStore fileStore;
     private final PersistentCache persistentCache;
     private final BuildCacheTempFileStore tempFileStore;
     private final FileAccessTracker fileAccessTracker;
     private final String failedFileSuffix;
-    private final ReadWriteLock lock = new ReentrantReadWriteLock();
 
     public DirectoryBuildCacheService(PathKeyFileStore fileStore, PersistentCache persistentCache, BuildCacheTempFileStore tempFileStore, FileAccessTracker fileAccessTracker, String failedFileSuffix) {
         this.fileStore = fileStore;
@@ -90,32 +101,41 @@ public boolean load(final BuildCacheKey key, final BuildCacheEntryReader reader)
 
     @Override
     public void loadLocally(final BuildCacheKey key, final Action<? super File> reader) {
-        // We need to lock other processes out here because garbage collection can be under way in another process
-        persistentCache.withFileLock(new Runnable() {
-            @Override
-            public void run() {
-                lock.readLock().lock();
-                try {
-                    loadInsideLock(key, reader);
-                } finally {
-                    lock.readLock().unlock();
+        File file = getEntryFile(key);
+        if (getInProgressMarkerFile(file).exists()) {
+            // The entry is being written in place by an older Gradle version, or such a write was interrupted.
+            // Wait for the writer under the cross-process lock, and let the file store clean up after an interrupted write.
+            persistentCache.withFileLock(new Runnable() {
+                @Override
+                public void run() {
+                    LocallyAvailableResource resource = fileStore.get(key.getHashCode());
+                    if (resource != null) {
+                        loadEntry(resource.getFile(), reader);
+                    }
                 }
-            }
-        });
+            });
+        } else if (file.isFile()) {
+            // Entries are published with an atomic rename and never modified afterwards, so they can be read without locking
+            loadEntry(file, reader);
+        }
     }
 
-    private void loadInsideLock(BuildCacheKey key, Action<? super File> reader) {
-        LocallyAvailableResource resource = fileStore.get(key.getHashCode());
-        if (resource == null) {
-            return;
-        }
+    @Override
+    public boolean contains(BuildCacheKey key) {
+        return getEntryFile(key).isFile();
+    }
 
-        File file = resource.getFile();
+    private void loadEntry(File file, Action<? super File> reader) {
         fileAccessTracker.markAccessed(file);
 
         try {
             reader.execute(file);
         } catch (Exception e) {
+            if (!file.exists()) {
+                // Removed by cleanup in another process before we got to read it
+                return;
+            }
+
             // Try to move the file out of the way in case its permanently corrupt
             // Don't delete, so that it can be potentially used for debugging
             File failedFile = new File(file.getAbsolutePath() + failedFileSuffix);
@@ -152,32 +172,53 @@ public void execute(@Nonnull File file) {
 
     @Override
     public void storeLocally(final BuildCacheKey key, final File file) {
-        persistentCache.withFileLock(new Runnable() {
-            @Override
-            public void run() {
-                lock.writeLock().lock();
-                try {
-                    storeInsideLock(key, file);
-                } finally {
-                    lock.writeLock().unlock();
+        if (FileUtils.canonicalize(file.getParentFile()).equals(FileUtils.canonicalize(persistentCache.getBaseDir()))) {
+            publish(key, file);
+        } else {
+            // Renames are only atomic within the same file system, so first copy the file next to its final location
+            tempFileStore.withTempFile(key, new Action<File>() {
+                @Override
+                public void execute(@Nonnull File tempFile) {
+                    try {
+                        Files.copy(file.toPath(), tempFile.toPath(), StandardCopyOption.REPLACE_EXISTING);
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                    publish(key, tempFile);
                 }
-            }
-        });
+            });
+        }
     }
 
-    private void storeInsideLock(BuildCacheKey key, File file) {
-        LocallyAvailableResource resource = fileStore.move(key.getHashCode(), file);
-        fileAccessTracker.markAccessed(resource.getFile());
+    /**
+     * Publishes the entry with an atomic rename, so that concurrent readers see either the complete entry or no entry at all.
+     */
+    private void publish(BuildCacheKey key, File file) {
+        File entryFile = getEntryFile(key);
+        try {
+            Files.move(file.toPath(), entryFile.toPath(), StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            // Some file systems refuse to replace a file that is open for reading.
+            // Entries for the same key are interchangeable, so the existing entry is as good as ours.
+            if (!entryFile.isFile()) {
+                throw new UncheckedIOException(String.format("Could not store build cache entry '%s'.", entryFile), e);
+            }
+            GFileUtils.deleteQuietly(file);
+        }
+        fileAccessTracker.markAccessed(entryFile);
     }
 
     @Override
     public void withTempFile(final BuildCacheKey key, final Action<? super File> action) {
-        persistentCache.withFileLock(new Runnable() {
-            @Override
-            public void run() {
-                tempFileStore.withTempFile(key, action);
-            }
-        });
+        tempFileStore.withTempFile(key, action);
+    }
+
+    private File getEntryFile(BuildCacheKey key) {
+        return new File(persistentCache.getBaseDir(), key.getHashCode());
+    }
+
+    private static File getInProgressMarkerFile(File file) {
+        return new File(file.getParentFile(), file.getName() + IN_PROGRESS_MARKER_FILE_SUFFIX);
     }
 
     @Override
@@ -0,0 +1,52 @@
+/*
+ * Copyright 2021 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.caching.local.internal;
+
+import org.gradle.cache.CleanableStore;
+import org.gradle.cache.CleanupAction;
+import org.gradle.cache.CleanupProgressMonitor;
+import org.gradle.cache.FileLock;
+import org.gradle.cache.FileLockManager;
+
+import java.io.File;
+
+import static org.gradle.cache.FileLockManager.LockMode.Exclusive;
+import static org.gradle.cache.internal.filelock.LockOptionsBuilder.mode;
+
+/**
+ * Runs a cleanup action while holding the exclusive cross-process lock of the cache.
+ *
+ * This keeps processes from cleaning up the same cache concurrently, and waits for processes that still read and write the cache under the lock.
+ */
+public class ExclusiveLockCleanupAction implements CleanupAction {
+    private final FileLockManager lockManager;
+    private final File lockTarget;
+    private final CleanupAction delegate;
+
+    public ExclusiveLockCleanupAction(FileLockManager lockManager, File lockTarget, CleanupAction delegate) {
+        this.lockManager = lockManager;
+        this.lockTarget = lockTarget;
+        this.delegate = delegate;
+    }
+
+    @Override
+    public void clean(CleanableStore cleanableStore, CleanupProgressMonitor progressMonitor) {
+        try (FileLock ignored = lockManager.lock(lockTarget, mode(Exclusive), cleanableStore.getDisplayName(), "cleanup")) {
+            delegate.clean(cleanableStore, progressMonitor);
+        }
+    }
+}
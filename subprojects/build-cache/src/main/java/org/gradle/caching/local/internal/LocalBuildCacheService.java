@@ -34,6 +34,15 @@ public interface LocalBuildCacheService extends BuildCacheTempFileStore, Closeab
      */
     void loadLocally(BuildCacheKey key, Action<? super File> reader);
 
+    /**
+     * Whether the local file store has a cache artifact for the given key, without reading it.
+     */
+    default boolean contains(BuildCacheKey key) {
+        boolean[] found = new boolean[1];
+        loadLocally(key, file -> found[0] = true);
+        return found[0];
+    }
+
     /**
      * Store the given file in the local file store as a cache artifact.
      */
@@ -0,0 +1,210 @@
+/*
+ * Copyright 2021 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.caching.internal.controller
+
+import org.gradle.api.internal.file.TestFiles
+import org.gradle.caching.BuildCacheEntryReader
+import org.gradle.caching.BuildCacheKey
+import org.gradle.caching.BuildCacheService
+import org.gradle.caching.internal.controller.service.BatchingBuildCacheService
+import org.gradle.internal.concurrent.DefaultExecutorFactory
+import org.gradle.test.fixtures.file.TestNameTestDirectoryProvider
+import org.junit.Rule
+import spock.lang.Specification
+
+import java.util.concurrent.CountDownLatch
+
+class BuildCachePrefetcherTest extends Specification {
+    @Rule
+    final TestNameTestDirectoryProvider tmpDir = new TestNameTestDirectoryProvider(getClass())
+
+    BuildCacheService remote = Mock(BuildCacheService)
+    def executorFactory = new DefaultExecutorFactory()
+    def prefetcher = new BuildCachePrefetcher(remote, TestFiles.tmpDirTemporaryFileProvider(tmpDir.createDir("prefetch")), executorFactory.create("prefetch", 2))
+
+    def cleanup() {
+        prefetcher.close()
+        executorFactory.stop()
+    }
+
+    def "downloads entries in the background"() {
+        def keys = (1..10).collect { key("key$it") }
+
+        when:
+        prefetcher.prefetch(keys)
+        def contents = keys.collect { load(it) }
+
+        then:
+        10 * remote.load(_, _) >> { BuildCacheKey key, BuildCacheEntryReader reader ->
+            reader.readFrom(new ByteArrayInputStream(key.hashCode.bytes))
+            true
+        }
+        contents == keys*.hashCode
+        tmpDir.file("prefetch").list().length == 0
+    }
+
+    def "loads missing entry without asking remote again"() {
+        def key = key("key")
+
+        when:
+        prefetcher.prefetch([key])
+        def loaded = prefetcher.load(key, Mock(BuildCacheEntryReader))
+
+        then:
+        1 * remote.load(key, _) >> false
+        !loaded
+    }
+
+    def "loads entry that was not prefetched from remote"() {
+        def key = key("key")
+        def reader = Mock(BuildCacheEntryReader)
+
+        when:
+        def loaded = prefetcher.load(key, reader)
+
+        then:
+        1 * remote.load(key, reader) >> true
+        loaded
+    }
+
+    def "rethrows failure of download when loading entry"() {
+        def key = key("key")
+        def failure = new RuntimeException("broken")
+
+        when:
+        prefetcher.prefetch([key])
+        prefetcher.load(key, Mock(BuildCacheEntryReader))
+
+        then:
+        1 * remote.load(key, _) >> { throw failure }
+        def e = thrown(RuntimeException)
+        e.is(failure)
+        tmpDir.file("prefetch").list().length == 0
+    }
+
+    def "prefetches each entry only once until loaded"() {
+        def key = key("key")
+
+        when:
+        prefetcher.prefetch([key])
+        prefetcher.prefetch([key])
+        prefetcher.load(key, Mock(BuildCacheEntryReader))
+
+        then:
+        1 * remote.load(key, _) >> false
+    }
+
+    def "deletes downloaded entries that were never loaded on close"() {
+        def key = key("key")
+
+        when:
+        prefetcher.prefetch([key])
+        prefetcher.close()
+
+        then:
+        _ * remote.load(key, _) >> { BuildCacheKey k, BuildCacheEntryReader reader ->
+            reader.readFrom(new ByteArrayInputStream("data".bytes))
+            true
+        }
+        (1.._) * remote.close()
+        tmpDir.file("prefetch").list().length == 0
+    }
+
+    def "downloads only entries found by batched lookup"() {
+        def found = key("found")
+        def missing = key("missing")
+        withBatchingRemote()
+
+        when:
+        prefetcher.prefetch([found, missing])
+        def foundContent = load(found)
+        def missingLoaded = prefetcher.load(missing, Mock(BuildCacheEntryReader))
+
+        then:
+        1 * remote.findExistingEntries({ it as List == [found, missing] }) >> Optional.of([found] as Set)
+        1 * remote.load(found, _) >> { BuildCacheKey key, BuildCacheEntryReader reader ->
+            reader.readFrom(new ByteArrayInputStream("data".bytes))
+            true
+        }
+        0 * remote.load(missing, _)
+        foundContent == "data"
+        !missingLoaded
+    }
+
+    def "looks up keys prefetched while a lookup is running together"() {
+        def first = key("first")
+        def second = key("second")
+        def third = key("third")
+        def lookupStarted = new CountDownLatch(1)
+        def release = new CountDownLatch(1)
+        withBatchingRemote()
+
+        when:
+        prefetcher.prefetch([first])
+        lookupStarted.await()
+        prefetcher.prefetch([second])
+        prefetcher.prefetch([third])
+        release.countDown()
+        def loaded = [first, second, third].collect { prefetcher.load(it, Mock(BuildCacheEntryReader)) }
+
+        then:
+        1 * remote.findExistingEntries({ it as List == [first] }) >> {
+            lookupStarted.countDown()
+            release.await()
+            Optional.of([] as Set)
+        }
+        1 * remote.findExistingEntries({ it as List == [second, third] }) >> Optional.of([] as Set)
+        0 * remote.load(_, _)
+        loaded == [false, false, false]
+    }
+
+    def "downloads entries when remote does not support batched lookups"() {
+        def key = key("key")
+        def other = key("other")
+        withBatchingRemote()
+
+        when:
+        prefetcher.prefetch([key])
+        prefetcher.load(key, Mock(BuildCacheEntryReader))
+        prefetcher.prefetch([other])
+        prefetcher.load(other, Mock(BuildCacheEntryReader))
+
+        then:
+        1 * remote.findExistingEntries(_) >> Optional.empty()
+        1 * remote.load(key, _) >> false
+        1 * remote.load(other, _) >> false
+    }
+
+    private void withBatchingRemote() {
+        prefetcher.close()
+        remote = Mock(BatchingBuildCacheService)
+        prefetcher = new BuildCachePrefetcher(remote, TestFiles.tmpDirTemporaryFileProvider(tmpDir.createDir("prefetch")), executorFactory.create("prefetch", 2))
+    }
+
+    private String load(BuildCacheKey key) {
+        String content = null
+        assert prefetcher.load(key, { InputStream input -> content = input.text } as BuildCacheEntryReader)
+        content
+    }
+
+    private BuildCacheKey key(String hashCode) {
+        Stub(BuildCacheKey) {
+            getHashCode() >> hashCode
+            getDisplayName() >> hashCode
+        }
+    }
+}
@@ -22,8 +22,11 @@ import org.gradle.caching.BuildCacheEntryReader
 import org.gradle.caching.BuildCacheEntryWriter
 import org.gradle.caching.BuildCacheKey
 import org.gradle.caching.BuildCacheService
+import org.gradle.caching.internal.controller.service.BatchingBuildCacheService
 import org.gradle.caching.internal.controller.service.BuildCacheServicesConfiguration
+import org.gradle.caching.internal.operations.BuildCacheRemoteLoadBuildOperationType
 import org.gradle.caching.local.internal.LocalBuildCacheService
+import org.gradle.internal.concurrent.DefaultExecutorFactory
 import org.gradle.internal.operations.TestBuildOperationExecutor
 import org.gradle.test.fixtures.file.TestNameTestDirectoryProvider
 import spock.lang.Specification
@@ -44,6 +47,7 @@ class DefaultBuildCacheControllerTest extends Specification {
     def localPush = true
     def remote = Mock(BuildCacheService)
     def remotePush = true
+    BuildCachePrefetcher prefetcher = null
     def loadmetadata = Mock(Object)
 
     def storeCommand = Stub(BuildCacheStoreCommand) {
@@ -84,6 +88,16 @@ class DefaultBuildCacheControllerTest extends Specification {
 
     interface Local extends BuildCacheService, LocalBuildCacheService {}
 
+    def executorFactory = new DefaultExecutorFactory()
+
+    def cleanup() {
+        executorFactory.stop()
+    }
+
+    private void withPrefetcher() {
+        prefetcher = new BuildCachePrefetcher(remote, TestFiles.tmpDirTemporaryFileProvider(tmpDir.createDir("prefetch")), executorFactory.create("prefetch", 2))
+    }
+
     BuildCacheController getController(boolean disableRemoteOnError = true) {
         new DefaultBuildCacheController(
             new BuildCacheServicesConfiguration(
@@ -96,7 +110,8 @@ class DefaultBuildCacheControllerTest extends Specification {
             TestFiles.tmpDirTemporaryFileProvider(tmpDir.root),
             false,
             false,
-            disableRemoteOnError
+            disableRemoteOnError,
+            prefetcher
         )
     }
 
@@ -273,6 +288,90 @@ class DefaultBuildCacheControllerTest extends Specification {
         1 * remote.store(key, _)
     }
 
+    def "loads prefetched entry without asking remote again"() {
+        given:
+        withPrefetcher()
+        def controller = getController()
+        _ * local.loadLocally(key, _) // miss
+
+        when:
+        controller.prefetch([key])
+        controller.load(loadCommand)
+
+        then:
+        1 * remote.load(key, _) >> { BuildCacheKey key, BuildCacheEntryReader reader ->
+            reader.readFrom(new ByteArrayInputStream("foo".bytes))
+            true
+        }
+        1 * local.storeLocally(key, _)
+        tmpDir.file("prefetch").list().length == 0
+        operations.log.mostRecentResult(BuildCacheRemoteLoadBuildOperationType).hit
+        operations.log.mostRecentResult(BuildCacheRemoteLoadBuildOperationType).archiveSize == 3
+    }
+
+    def "does not prefetch entries available locally"() {
+        given:
+        withPrefetcher()
+        def controller = getController()
+        _ * local.contains(key) >> true
+
+        when:
+        controller.prefetch([key])
+        controller.load(loadCommand)
+
+        then:
+        1 * local.loadLocally(key, _) >> { BuildCacheKey key, Action<File> action ->
+            def file = tmpDir.file("file")
+            file.text = "alma"
+            action.execute(file)
+        }
+        0 * remote.load(_, _)
+    }
+
+    def "does not ask remote for entries found missing by batched lookup"() {
+        given:
+        local = null
+        remote = Mock(BatchingBuildCacheService)
+        withPrefetcher()
+        def controller = getController()
+        def otherKey = Mock(BuildCacheKey) {
+            getHashCode() >> "other"
+        }
+        def otherLoadCommand = Stub(BuildCacheLoadCommand) {
+            getKey() >> otherKey
+        }
+
+        when:
+        controller.prefetch([key, otherKey])
+        controller.load(loadCommand)
+        def result = controller.load(otherLoadCommand)
+
+        then:
+        1 * remote.findExistingEntries({ it as Set == [key, otherKey] as Set }) >> Optional.of([key] as Set)
+        1 * remote.load(key, _) >> true
+        0 * remote.load(otherKey, _)
+        !result.present
+    }
+
+    def "disables remote when prefetching fails"() {
+        given:
+        local = null
+        withPrefetcher()
+        def controller = getController()
+        def failure = new RuntimeException("broken")
+
+        when:
+        controller.prefetch([key])
+        def result = controller.load(loadCommand)
+
+        then:
+        1 * remote.load(key, _) >> { throw failure }
+        0 * remote.load(key, _)
+        !result.present
+        !controller.remote.canLoad()
+        operations.log.mostRecentFailure(BuildCacheRemoteLoadBuildOperationType) != null
+    }
+
     def "close only closes once"() {
         when:
         def controller = getController()
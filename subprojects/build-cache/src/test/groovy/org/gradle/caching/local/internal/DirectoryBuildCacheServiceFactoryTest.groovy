@@ -17,10 +17,10 @@
 package org.gradle.caching.local.internal
 
 import org.gradle.api.internal.file.FileResolver
-import org.gradle.api.internal.file.TestFiles
 import org.gradle.cache.CacheBuilder
 import org.gradle.cache.CacheRepository
 import org.gradle.cache.CleanupAction
+import org.gradle.cache.FileLockManager
 import org.gradle.cache.internal.CleanupActionFactory
 import org.gradle.cache.scopes.GlobalScopedCache
 import org.gradle.caching.BuildCacheServiceFactory
@@ -44,7 +44,8 @@ class DirectoryBuildCacheServiceFactoryTest extends Specification {
     def fileStoreFactory = Mock(DirectoryBuildCacheFileStoreFactory)
     def cleanupActionFactory = Mock(CleanupActionFactory)
     def fileAccessTimeJournal = Mock(FileAccessTimeJournal)
-    def factory = new DirectoryBuildCacheServiceFactory(cacheRepository, globalScopedCache, resolver, fileStoreFactory, cleanupActionFactory, fileAccessTimeJournal, TestFiles.tmpDirTemporaryFileProvider(temporaryFolder.root))
+    def fileLockManager = Mock(FileLockManager)
+    def factory = new DirectoryBuildCacheServiceFactory(cacheRepository, globalScopedCache, resolver, fileStoreFactory, cleanupActionFactory, fileAccessTimeJournal, fileLockManager)
     def cacheBuilder = Stub(CacheBuilder)
     def config = Mock(DirectoryBuildCache)
     def buildCacheDescriber = new NoopBuildCacheDescriber()
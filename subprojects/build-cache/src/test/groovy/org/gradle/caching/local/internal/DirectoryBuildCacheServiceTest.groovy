@@ -134,4 +134,73 @@ class DirectoryBuildCacheServiceTest extends Specification {
         1 * fileAccessTracker.markAccessed(cachedFile)
         loaded
     }
+
+    def "stores and loads entries without acquiring the cross-process lock"() {
+        def originalFile = temporaryFolder.createFile("foo")
+        originalFile.text = "bar"
+
+        when:
+        service.storeLocally(key, originalFile)
+        def loaded = service.load(key, { input -> assert input.text == "bar" } as BuildCacheEntryReader)
+
+        then:
+        loaded
+        cacheDir.listFiles()*.name == [hashCode]
+        0 * persistentCache.withFileLock(_)
+    }
+
+    def "loads entry being written by older Gradle version under the cross-process lock"() {
+        cacheDir.file(hashCode).text = "partial"
+        cacheDir.file(hashCode + ".fslck").createFile()
+
+        when:
+        def loaded = service.load(key, { input -> throw new AssertionError("Should not load partial entry") } as BuildCacheEntryReader)
+
+        then:
+        !loaded
+        1 * persistentCache.withFileLock(_) >> { Runnable r -> r.run() }
+        cacheDir.listFiles() as List == []
+    }
+
+    def "treats entry removed while loading as a miss"() {
+        def entry = cacheDir.file(hashCode)
+        entry.text = "foo"
+
+        when:
+        service.loadLocally(key, { file ->
+            file.delete()
+            throw new FileNotFoundException(file.absolutePath)
+        })
+
+        then:
+        noExceptionThrown()
+        cacheDir.listFiles() as List == []
+    }
+
+    def "moves entry that cannot be loaded out of the way"() {
+        def entry = cacheDir.file(hashCode)
+        entry.text = "foo"
+
+        when:
+        service.loadLocally(key, { file -> throw new RuntimeException("Corrupt entry") })
+
+        then:
+        def ex = thrown RuntimeException
+        ex.message == "Corrupt entry"
+        cacheDir.listFiles()*.name == [hashCode + ".failed"]
+    }
+
+    def "replaces existing entry when storing"() {
+        def entry = cacheDir.file(hashCode)
+        entry.text = "old"
+        def originalFile = temporaryFolder.createFile("foo")
+        originalFile.text = "new"
+
+        when:
+        service.storeLocally(key, originalFile)
+
+        then:
+        entry.text == "new"
+        cacheDir.listFiles()*.name == [hashCode]
+    }
 }
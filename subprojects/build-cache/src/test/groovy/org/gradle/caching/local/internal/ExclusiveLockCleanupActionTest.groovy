@@ -0,0 +1,70 @@
+/*
+ * Copyright 2021 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.caching.local.internal
+
+import org.gradle.cache.CleanableStore
+import org.gradle.cache.CleanupAction
+import org.gradle.cache.CleanupProgressMonitor
+import org.gradle.cache.FileLock
+import org.gradle.cache.FileLockManager
+import spock.lang.Specification
+
+import static org.gradle.cache.FileLockManager.LockMode.Exclusive
+
+class ExclusiveLockCleanupActionTest extends Specification {
+    def lockManager = Mock(FileLockManager)
+    def lockTarget = new File("cache")
+    def delegate = Mock(CleanupAction)
+    def store = Stub(CleanableStore) {
+        getDisplayName() >> "Build cache"
+    }
+    def progressMonitor = Stub(CleanupProgressMonitor)
+    def action = new ExclusiveLockCleanupAction(lockManager, lockTarget, delegate)
+
+    def "runs cleanup while holding exclusive lock"() {
+        def lock = Mock(FileLock)
+
+        when:
+        action.clean(store, progressMonitor)
+
+        then:
+        1 * lockManager.lock(lockTarget, { it.mode == Exclusive }, "Build cache", "cleanup") >> lock
+
+        then:
+        1 * delegate.clean(store, progressMonitor)
+
+        then:
+        1 * lock.close()
+    }
+
+    def "releases lock when cleanup fails"() {
+        def lock = Mock(FileLock)
+        def failure = new RuntimeException("broken")
+
+        when:
+        action.clean(store, progressMonitor)
+
+        then:
+        1 * lockManager.lock(lockTarget, _, _, _) >> lock
+        1 * delegate.clean(store, progressMonitor) >> { throw failure }
+        1 * lock.close()
+
+        and:
+        def e = thrown(RuntimeException)
+        e.is(failure)
+    }
+}
@@ -1,6 +1,7 @@
 plugins {
     id("gradlebuild.distribution.implementation-java")
     id("gradlebuild.publish-public-libraries")
+    id("gradlebuild.jmh")
 }
 
 description = "Build operations are our way to inspect the process of executing a build"
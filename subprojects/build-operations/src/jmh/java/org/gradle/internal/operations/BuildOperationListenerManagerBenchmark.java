@@ -0,0 +1,112 @@
+/*
+ * Copyright 2021 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.internal.operations;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+import static java.util.concurrent.TimeUnit.NANOSECONDS;
+import static java.util.concurrent.TimeUnit.SECONDS;
+
+/**
+ * Measures the overhead of notifying the build operation listeners for each operation, as seen by the threads running the operations.
+ */
+@Fork(1)
+@Threads(4)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(NANOSECONDS)
+@Warmup(iterations = 3, time = 2, timeUnit = SECONDS)
+@Measurement(iterations = 5, time = 2, timeUnit = SECONDS)
+@State(Scope.Benchmark)
+public class BuildOperationListenerManagerBenchmark {
+    private static final OperationStartEvent START_EVENT = new OperationStartEvent(0);
+    private static final OperationProgressEvent PROGRESS_EVENT = new OperationProgressEvent(0, null);
+    private static final OperationFinishEvent FINISH_EVENT = new OperationFinishEvent(0, 0, null, null);
+
+    @Param({"sync", "async"})
+    String dispatch;
+
+    @Param({"1", "3"})
+    int listeners;
+
+    // The work done by each listener for each notification, in JMH CPU tokens
+    @Param({"10", "100"})
+    int listenerWork;
+
+    private final AtomicLong ids = new AtomicLong();
+    private DefaultBuildOperationListenerManager manager;
+    private BuildOperationListener broadcaster;
+
+    @Setup
+    public void setup() {
+        manager = new DefaultBuildOperationListenerManager(dispatch.equals("async"));
+        for (int i = 0; i < listeners; i++) {
+            manager.addAsyncListener(new WorkingListener(listenerWork));
+        }
+        broadcaster = manager.getBroadcaster();
+    }
+
+    @TearDown
+    public void tearDown() {
+        manager.close();
+    }
+
+    @Benchmark
+    public void operation() {
+        BuildOperationDescriptor operation = BuildOperationDescriptor.displayName("operation").build(new OperationIdentifier(ids.incrementAndGet()), null);
+        broadcaster.started(operation, START_EVENT);
+        broadcaster.progress(operation.getId(), PROGRESS_EVENT);
+        broadcaster.finished(operation, FINISH_EVENT);
+    }
+
+    private static class WorkingListener implements BuildOperationListener {
+        private final int work;
+
+        WorkingListener(int work) {
+            this.work = work;
+        }
+
+        @Override
+        public void started(BuildOperationDescriptor buildOperation, OperationStartEvent startEvent) {
+            Blackhole.consumeCPU(work);
+        }
+
+        @Override
+        public void progress(OperationIdentifier operationIdentifier, OperationProgressEvent progressEvent) {
+            Blackhole.consumeCPU(work);
+        }
+
+        @Override
+        public void finished(BuildOperationDescriptor buildOperation, OperationFinishEvent finishEvent) {
+            Blackhole.consumeCPU(work);
+        }
+    }
+}
@@ -0,0 +1,297 @@
+/*
+ * Copyright 2021 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.internal.operations;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Forwards build operation notifications to a listener on a dedicated dispatcher thread.
+ *
+ * <p>Each thread that emits notifications writes them to its own ring buffer, which only that thread writes to and only the dispatcher reads from,
+ * so emitting a notification takes no locks. Each notification is given a sequence number as it is written, and the dispatcher delivers the
+ * notifications from all buffers in sequence order. The listener receives the notifications in the order they were emitted, including
+ * notifications for the same operation emitted by different threads.</p>
+ *
+ * <p>Notifications emitted on the dispatcher thread itself, for example by the listener, are delivered immediately, as they would be
+ * by a synchronous broadcast.</p>
+ */
+class AsyncBuildOperationListenerDispatcher implements BuildOperationListener {
+    private static final Logger LOGGER = LoggerFactory.getLogger(AsyncBuildOperationListenerDispatcher.class);
+
+    static final int BUFFER_SIZE = 1024;
+    private static final int SPINS_BEFORE_PARKING = 64;
+    private static final long IDLE_PARK_NANOS = TimeUnit.MILLISECONDS.toNanos(10);
+    private static final long BACK_OFF_PARK_NANOS = TimeUnit.MICROSECONDS.toNanos(20);
+
+    private final BuildOperationListener listener;
+    private final AtomicLong sequence = new AtomicLong();
+    private final List<NotificationBuffer> buffers = new CopyOnWriteArrayList<NotificationBuffer>();
+    private final ThreadLocal<NotificationBuffer> currentBuffer = new ThreadLocal<NotificationBuffer>();
+    private final Thread dispatcherThread;
+
+    // The sequence number of the next notification to deliver. Only written by the dispatcher thread.
+    private volatile long delivered;
+    private volatile boolean dispatcherParked;
+    private volatile boolean stopped;
+
+    AsyncBuildOperationListenerDispatcher(BuildOperationListener listener) {
+        this.listener = listener;
+        this.dispatcherThread = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                dispatch();
+            }
+        }, "Build operation listener dispatcher");
+        dispatcherThread.setDaemon(true);
+        dispatcherThread.start();
+    }
+
+    @Override
+    public void started(BuildOperationDescriptor buildOperation, OperationStartEvent startEvent) {
+        if (isDispatcherThread()) {
+            listener.started(buildOperation, startEvent);
+        } else {
+            publish(new Notification(Notification.STARTED, buildOperation, buildOperation.getId(), startEvent));
+        }
+    }
+
+    @Override
+    public void progress(OperationIdentifier operationIdentifier, OperationProgressEvent progressEvent) {
+        if (isDispatcherThread()) {
+            listener.progress(operationIdentifier, progressEvent);
+        } else {
+            publish(new Notification(Notification.PROGRESS, null, operationIdentifier, progressEvent));
+        }
+    }
+
+    @Override
+    public void finished(BuildOperationDescriptor buildOperation, OperationFinishEvent finishEvent) {
+        if (isDispatcherThread()) {
+            listener.finished(buildOperation, finishEvent);
+        } else {
+            publish(new Notification(Notification.FINISHED, buildOperation, buildOperation.getId(), finishEvent));
+        }
+    }
+
+    /**
+     * Waits until all notifications emitted before this method was called have been delivered.
+     * Returns immediately when called from the dispatcher thread.
+     */
+    void flush() {
+        if (isDispatcherThread()) {
+            return;
+        }
+        long target = sequence.get();
+        while (delivered < target && dispatcherThread.isAlive()) {
+            wakeDispatcher();
+            LockSupport.parkNanos(BACK_OFF_PARK_NANOS);
+        }
+    }
+
+    /**
+     * Delivers the pending notifications and stops the dispatcher thread.
+     */
+    void stop() {
+        flush();
+        stopped = true;
+        LockSupport.unpark(dispatcherThread);
+        if (!isDispatcherThread()) {
+            try {
+                dispatcherThread.join();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    private boolean isDispatcherThread() {
+        return Thread.currentThread() == dispatcherThread;
+    }
+
+    private void publish(Notification notification) {
+        NotificationBuffer buffer = currentBuffer.get();
+        if (buffer == null) {
+            buffer = new NotificationBuffer(Thread.currentThread());
+            currentBuffer.set(buffer);
+            buffers.add(buffer);
+        }
+        // Make room before taking a sequence number, so the dispatcher never waits for a notification that is waiting for the dispatcher
+        for (int attempt = 0; buffer.isFull(); attempt++) {
+            if (!dispatcherThread.isAlive()) {
+                // Stopped, so nothing will be delivered anymore
+                return;
+            }
+            wakeDispatcher();
+            backOff(attempt);
+        }
+        notification.sequence = sequence.getAndIncrement();
+        buffer.add(notification);
+        wakeDispatcher();
+    }
+
+    private void wakeDispatcher() {
+        if (dispatcherParked) {
+            LockSupport.unpark(dispatcherThread);
+        }
+    }
+
+    private static void backOff(int attempt) {
+        if (attempt < SPINS_BEFORE_PARKING) {
+            Thread.yield();
+        } else {
+            LockSupport.parkNanos(BACK_OFF_PARK_NANOS);
+        }
+    }
+
+    private void dispatch() {
+        int idleAttempts = 0;
+        NotificationBuffer current = null;
+        while (true) {
+            long next = delivered;
+            // Most of the time, consecutive notifications come from the same thread
+            if (current == null || !current.hasNext(next)) {
+                current = bufferWithNext(next);
+            }
+            if (current != null) {
+                deliver(current.take());
+                delivered = next + 1;
+                idleAttempts = 0;
+            } else if (sequence.get() != next) {
+                // The next notification has been given its sequence number, but is not in its buffer yet
+                backOff(idleAttempts++);
+            } else if (stopped) {
+                return;
+            } else if (idleAttempts < SPINS_BEFORE_PARKING) {
+                idleAttempts++;
+                Thread.yield();
+            } else {
+                discardBuffersOfFinishedThreads();
+                dispatcherParked = true;
+                if (sequence.get() == next && !stopped) {
+                    LockSupport.parkNanos(this, IDLE_PARK_NANOS);
+                }
+                dispatcherParked = false;
+            }
+        }
+    }
+
+    private NotificationBuffer bufferWithNext(long next) {
+        for (NotificationBuffer buffer : buffers) {
+            if (buffer.hasNext(next)) {
+                return buffer;
+            }
+        }
+        return null;
+    }
+
+    private void deliver(Notification notification) {
+        try {
+            switch (notification.type) {
+                case Notification.STARTED:
+                    listener.started(notification.buildOperation, (OperationStartEvent) notification.event);
+                    break;
+                case Notification.PROGRESS:
+                    listener.progress(notification.operationIdentifier, (OperationProgressEvent) notification.event);
+                    break;
+                default:
+                    listener.finished(notification.buildOperation, (OperationFinishEvent) notification.event);
+                    break;
+            }
+        } catch (Throwable t) {
+            LOGGER.error("Failed to notify build operation listener.", t);
+        }
+    }
+
+    private void discardBuffersOfFinishedThreads() {
+        for (NotificationBuffer buffer : buffers) {
+            // A thread that has finished writes no more notifications, so an empty buffer stays empty
+            if (!buffer.owner.isAlive() && buffer.isEmpty()) {
+                buffers.remove(buffer);
+            }
+        }
+    }
+
+    private static class Notification {
+        static final int STARTED = 0;
+        static final int PROGRESS = 1;
+        static final int FINISHED = 2;
+
+        final int type;
+        final BuildOperationDescriptor buildOperation;
+        final OperationIdentifier operationIdentifier;
+        final Object event;
+        long sequence;
+
+        Notification(int type, BuildOperationDescriptor buildOperation, OperationIdentifier operationIdentifier, Object event) {
+            this.type = type;
+            this.buildOperation = buildOperation;
+            this.operationIdentifier = operationIdentifier;
+            this.event = event;
+        }
+    }
+
+    /**
+     * A ring buffer with a single writer, the owner thread, and a single reader, the dispatcher thread.
+     */
+    private static class NotificationBuffer {
+        private final Thread owner;
+        private final Notification[] notifications = new Notification[BUFFER_SIZE];
+        // Only written by the dispatcher thread
+        private volatile long head;
+        // Only written by the owner thread
+        private volatile long tail;
+
+        NotificationBuffer(Thread owner) {
+            this.owner = owner;
+        }
+
+        boolean isFull() {
+            return tail - head == BUFFER_SIZE;
+        }
+
+        boolean isEmpty() {
+            return head == tail;
+        }
+
+        void add(Notification notification) {
+            long tail = this.tail;
+            notifications[(int) (tail & (BUFFER_SIZE - 1))] = notification;
+            this.tail = tail + 1;
+        }
+
+        boolean hasNext(long sequence) {
+            long head = this.head;
+            return head != tail && notifications[(int) (head & (BUFFER_SIZE - 1))].sequence == sequence;
+        }
+
+        Notification take() {
+            long head = this.head;
+            int index = (int) (head & (BUFFER_SIZE - 1));
+            Notification notification = notifications[index];
+            notifications[index] = null;
+            this.head = head + 1;
+            return notification;
+        }
+    }
+}
@@ -40,6 +40,20 @@ public interface BuildOperationListenerManager {
 
     void addListener(BuildOperationListener listener);
 
+    /**
+     * Adds a listener that does not need to be notified on the thread running the operation.
+     *
+     * When asynchronous dispatch is enabled, such listeners are notified on a dedicated thread, so that the operations do not wait for them.
+     * They receive the notifications in the order they were emitted, and in the same registration order as the other listeners,
+     * but without any ordering relative to the listeners added with {@link #addListener(BuildOperationListener)}.
+     * Otherwise, they are notified in the same way as those listeners.
+     */
+    void addAsyncListener(BuildOperationListener listener);
+
+    /**
+     * Removes a listener. For a listener added with {@link #addAsyncListener(BuildOperationListener)}, waits until the listener has received
+     * the notifications emitted before it was removed.
+     */
     void removeListener(BuildOperationListener listener);
 
     BuildOperationListener getBroadcaster();
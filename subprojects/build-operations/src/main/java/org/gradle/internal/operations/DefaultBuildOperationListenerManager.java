@@ -16,6 +16,7 @@
 
 package org.gradle.internal.operations;
 
+import java.io.Closeable;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
@@ -25,14 +26,18 @@
 import java.util.concurrent.locks.Lock;
 import java.util.concurrent.locks.ReentrantLock;
 
-public class DefaultBuildOperationListenerManager implements BuildOperationListenerManager {
+public class DefaultBuildOperationListenerManager implements BuildOperationListenerManager, Closeable {
+
+    private final boolean asyncDispatch;
 
     // This cannot be CopyOnWriteArrayList because we need to iterate it in reverse,
     // which requires atomically getting an iterator and the size.
     // Moreover, we iterate this list far more often that we mutate,
     // making a (albeit home grown) copy-on-write strategy more appealing.
     private List<ProgressShieldingBuildOperationListener> listeners = Collections.emptyList();
+    private List<ProgressShieldingBuildOperationListener> asyncListeners = Collections.emptyList();
     private final Lock listenersLock = new ReentrantLock();
+    private volatile AsyncBuildOperationListenerDispatcher asyncDispatcher;
 
     private final BuildOperationListener broadcaster = new BuildOperationListener() {
         @Override
@@ -42,6 +47,10 @@ public void started(BuildOperationDescriptor buildOperation, OperationStartEvent
             for (int i = 0; i < listeners.size(); ++i) {
                 listeners.get(i).started(buildOperation, startEvent);
             }
+            AsyncBuildOperationListenerDispatcher asyncDispatcher = DefaultBuildOperationListenerManager.this.asyncDispatcher;
+            if (asyncDispatcher != null) {
+                asyncDispatcher.started(buildOperation, startEvent);
+            }
         }
 
         @Override
@@ -51,6 +60,10 @@ public void progress(OperationIdentifier operationIdentifier, OperationProgressE
             for (int i = 0; i < listeners.size(); ++i) {
                 listeners.get(i).progress(operationIdentifier, progressEvent);
             }
+            AsyncBuildOperationListenerDispatcher asyncDispatcher = DefaultBuildOperationListenerManager.this.asyncDispatcher;
+            if (asyncDispatcher != null) {
+                asyncDispatcher.progress(operationIdentifier, progressEvent);
+            }
         }
 
         @Override
@@ -59,9 +72,55 @@ public void finished(BuildOperationDescriptor buildOperation, OperationFinishEve
             for (int i = listeners.size() - 1; i >= 0; --i) {
                 listeners.get(i).finished(buildOperation, finishEvent);
             }
+            AsyncBuildOperationListenerDispatcher asyncDispatcher = DefaultBuildOperationListenerManager.this.asyncDispatcher;
+            if (asyncDispatcher != null) {
+                asyncDispatcher.finished(buildOperation, finishEvent);
+            }
+        }
+    };
+
+    /**
+     * Notifies the asynchronous listeners, on the dispatcher thread.
+     */
+    private final BuildOperationListener asyncBroadcaster = new BuildOperationListener() {
+        @Override
+        public void started(BuildOperationDescriptor buildOperation, OperationStartEvent startEvent) {
+            List<? extends BuildOperationListener> listeners = asyncListeners;
+            //noinspection ForLoopReplaceableByForEach
+            for (int i = 0; i < listeners.size(); ++i) {
+                listeners.get(i).started(buildOperation, startEvent);
+            }
+        }
+
+        @Override
+        public void progress(OperationIdentifier operationIdentifier, OperationProgressEvent progressEvent) {
+            List<? extends BuildOperationListener> listeners = asyncListeners;
+            //noinspection ForLoopReplaceableByForEach
+            for (int i = 0; i < listeners.size(); ++i) {
+                listeners.get(i).progress(operationIdentifier, progressEvent);
+            }
+        }
+
+        @Override
+        public void finished(BuildOperationDescriptor buildOperation, OperationFinishEvent finishEvent) {
+            List<? extends BuildOperationListener> listeners = asyncListeners;
+            for (int i = listeners.size() - 1; i >= 0; --i) {
+                listeners.get(i).finished(buildOperation, finishEvent);
+            }
         }
     };
 
+    public DefaultBuildOperationListenerManager() {
+        this(false);
+    }
+
+    /**
+     * @param asyncDispatch whether the listeners added with {@link #addAsyncListener(BuildOperationListener)} are notified asynchronously
+     */
+    public DefaultBuildOperationListenerManager(boolean asyncDispatch) {
+        this.asyncDispatch = asyncDispatch;
+    }
+
     @Override
     public void addListener(BuildOperationListener listener) {
         listenersLock.lock();
@@ -75,27 +134,80 @@ public void addListener(BuildOperationListener listener) {
     }
 
     @Override
-    public void removeListener(BuildOperationListener listener) {
+    public void addAsyncListener(BuildOperationListener listener) {
+        if (!asyncDispatch) {
+            addListener(listener);
+            return;
+        }
         listenersLock.lock();
         try {
-            List<ProgressShieldingBuildOperationListener> listeners = new ArrayList<ProgressShieldingBuildOperationListener>(this.listeners);
-            ListIterator<ProgressShieldingBuildOperationListener> listIterator = listeners.listIterator();
-            while (listIterator.hasNext()) {
-                if (listIterator.next().delegate.equals(listener)) {
-                    listIterator.remove();
-                }
+            List<ProgressShieldingBuildOperationListener> listeners = new ArrayList<ProgressShieldingBuildOperationListener>(this.asyncListeners);
+            listeners.add(new ProgressShieldingBuildOperationListener(listener));
+            this.asyncListeners = listeners;
+            if (asyncDispatcher == null) {
+                asyncDispatcher = new AsyncBuildOperationListenerDispatcher(asyncBroadcaster);
             }
-            this.listeners = listeners;
         } finally {
             listenersLock.unlock();
         }
     }
 
+    @Override
+    public void removeListener(BuildOperationListener listener) {
+        AsyncBuildOperationListenerDispatcher asyncDispatcher = this.asyncDispatcher;
+        if (asyncDispatcher != null && contains(asyncListeners, listener)) {
+            // Deliver what was emitted before the listener was removed
+            asyncDispatcher.flush();
+        }
+        listenersLock.lock();
+        try {
+            this.listeners = without(this.listeners, listener);
+            this.asyncListeners = without(this.asyncListeners, listener);
+        } finally {
+            listenersLock.unlock();
+        }
+    }
+
+    private static boolean contains(List<ProgressShieldingBuildOperationListener> listeners, BuildOperationListener listener) {
+        for (ProgressShieldingBuildOperationListener candidate : listeners) {
+            if (candidate.delegate.equals(listener)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static List<ProgressShieldingBuildOperationListener> without(List<ProgressShieldingBuildOperationListener> original, BuildOperationListener listener) {
+        List<ProgressShieldingBuildOperationListener> listeners = new ArrayList<ProgressShieldingBuildOperationListener>(original);
+        ListIterator<ProgressShieldingBuildOperationListener> listIterator = listeners.listIterator();
+        while (listIterator.hasNext()) {
+            if (listIterator.next().delegate.equals(listener)) {
+                listIterator.remove();
+            }
+        }
+        return listeners;
+    }
+
     @Override
     public BuildOperationListener getBroadcaster() {
         return broadcaster;
     }
 
+    @Override
+    public void close() {
+        AsyncBuildOperationListenerDispatcher asyncDispatcher;
+        listenersLock.lock();
+        try {
+            asyncDispatcher = this.asyncDispatcher;
+            this.asyncDispatcher = null;
+        } finally {
+            listenersLock.unlock();
+        }
+        if (asyncDispatcher != null) {
+            asyncDispatcher.stop();
+        }
+    }
+
     /**
      * Prevents sending progress notifications to a given listener outside of start/finished for that operation.
      */
@@ -122,6 +122,73 @@ class DefaultBuildOperationListenerManagerTest extends Specification {
         ]
     }
 
+    def "notifies async listeners in order on a dedicated thread when async dispatch is enabled"() {
+        given:
+        def asyncManager = new DefaultBuildOperationListenerManager(true)
+        def asyncBroadcaster = asyncManager.broadcaster
+        def threads = Collections.synchronizedSet(new HashSet<Thread>())
+        def listener = new RecordingListener("1") {
+            @Override
+            void started(BuildOperationDescriptor buildOperation, OperationStartEvent startEvent) {
+                threads << Thread.currentThread()
+                super.started(buildOperation, startEvent)
+            }
+        }
+        asyncManager.addAsyncListener(listener)
+        asyncManager.addAsyncListener(recordingListener("2"))
+
+        when:
+        asyncBroadcaster.started(op1, startEvent)
+        asyncBroadcaster.progress(id1, progressEvent)
+        def thread = new Thread({
+            asyncBroadcaster.started(op2, startEvent)
+            asyncBroadcaster.finished(op1, finishEvent)
+        })
+        thread.start()
+        thread.join()
+        asyncBroadcaster.finished(op2, finishEvent)
+        asyncManager.removeListener(listener)
+        asyncBroadcaster.started(op1, startEvent)
+        asyncManager.close()
+
+        then:
+        threads.size() == 1
+        threads.first() != Thread.currentThread()
+        events == [
+            start("1", id1),
+            start("2", id1),
+            progress("1", id1),
+            progress("2", id1),
+            start("1", id2),
+            start("2", id2),
+            finished("2", id1),
+            finished("1", id1),
+            finished("2", id2),
+            finished("1", id2),
+            start("2", id1)
+        ]
+    }
+
+    def "notifies async listeners synchronously when async dispatch is not enabled"() {
+        given:
+        def thread = null
+        manager.addAsyncListener(new RecordingListener("1") {
+            @Override
+            void started(BuildOperationDescriptor buildOperation, OperationStartEvent startEvent) {
+                thread = Thread.currentThread()
+                super.started(buildOperation, startEvent)
+            }
+        })
+        manager.addListener(recordingListener("2"))
+
+        when:
+        broadcaster.started(op1, startEvent)
+
+        then:
+        thread == Thread.currentThread()
+        events == [start("1", id1), start("2", id1)]
+    }
+
     BuildOperationListener recordingListener(String label) {
         new RecordingListener(label)
     }
@@ -0,0 +1,126 @@
+/*
+ * Copyright 2021 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.api.internal.file.archive;
+
+import org.apache.tools.zip.ZipOutputStream;
+import org.gradle.api.file.RelativePath;
+import org.gradle.api.internal.DocumentationRegistry;
+import org.gradle.api.internal.file.copy.DefaultZipCompressor;
+import org.gradle.api.internal.file.copy.FileCopyDetailsInternal;
+import org.gradle.internal.concurrent.DefaultExecutorFactory;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.lang.reflect.Proxy;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static java.util.concurrent.TimeUnit.SECONDS;
+
+/**
+ * Measures the time to write a deflated ZIP with a single {@link ZipOutputStream} (parallelism 1)
+ * and with entries compressed in parallel and written by {@link ZipArchiveWriter}.
+ */
+@Fork(1)
+@Warmup(iterations = 3, time = 2, timeUnit = SECONDS)
+@Measurement(iterations = 5, time = 2, timeUnit = SECONDS)
+@State(Scope.Benchmark)
+public class ZipCopyActionBenchmark {
+
+    @Param({"1", "2", "4", "8"})
+    int parallelism;
+
+    @Param({"2000"})
+    int fileCount;
+
+    File zipFile;
+    DefaultExecutorFactory executorFactory;
+    ZipCopyAction copyAction;
+    List<FileCopyDetailsInternal> files;
+
+    @Setup(Level.Trial)
+    public void setup() throws IOException {
+        zipFile = Files.createTempFile("zip-copy-action", ".zip").toFile();
+        executorFactory = new DefaultExecutorFactory();
+        ZipCopyParallelism zipCopyParallelism = parallelism == 1 ? ZipCopyParallelism.SEQUENTIAL : new ZipCopyParallelism(parallelism, false);
+        copyAction = new ZipCopyAction(zipFile, new DefaultZipCompressor(false, ZipOutputStream.DEFLATED), new DocumentationRegistry(), "UTF-8", false, zipCopyParallelism, executorFactory);
+        files = new ArrayList<>(fileCount);
+        Random random = new Random(fileCount);
+        for (int i = 0; i < fileCount; i++) {
+            // Source-like content of a few KB up to a few hundred KB, so there is something to compress
+            StringBuilder content = new StringBuilder();
+            int lines = 50 + random.nextInt(i % 20 == 0 ? 5000 : 200);
+            for (int line = 0; line < lines; line++) {
+                content.append("    private final String field").append(random.nextInt(1000)).append(" = \"").append(Long.toHexString(random.nextLong())).append("\";\n");
+            }
+            files.add(file("org/gradle/sample/pkg" + (i % 50) + "/Sample" + i + ".java", content.toString().getBytes(StandardCharsets.UTF_8)));
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        executorFactory.stop();
+        zipFile.delete();
+    }
+
+    @Benchmark
+    public long zip() {
+        copyAction.execute(action -> {
+            for (FileCopyDetailsInternal file : files) {
+                action.processFile(file);
+            }
+        });
+        return zipFile.length();
+    }
+
+    private static FileCopyDetailsInternal file(String path, byte[] content) {
+        RelativePath relativePath = RelativePath.parse(true, path);
+        return (FileCopyDetailsInternal) Proxy.newProxyInstance(ZipCopyActionBenchmark.class.getClassLoader(), new Class<?>[]{FileCopyDetailsInternal.class}, (proxy, method, args) -> {
+            switch (method.getName()) {
+                case "getRelativePath":
+                    return relativePath;
+                case "isDirectory":
+                    return false;
+                case "getLastModified":
+                    return 0L;
+                case "getMode":
+                    return 0644;
+                case "copyTo":
+                    ((OutputStream) args[0]).write(content);
+                    return null;
+                case "toString":
+                    return path;
+                default:
+                    throw new UnsupportedOperationException(method.getName());
+            }
+        });
+    }
+}
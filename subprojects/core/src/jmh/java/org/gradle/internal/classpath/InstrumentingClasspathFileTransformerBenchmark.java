@@ -0,0 +1,184 @@
+/*
+ * Copyright 2021 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.internal.classpath;
+
+import org.gradle.api.internal.file.temp.DefaultTemporaryFileProvider;
+import org.gradle.cache.internal.ReadOnlyBuildLogicCache;
+import org.gradle.internal.concurrent.DefaultExecutorFactory;
+import org.gradle.internal.concurrent.ManagedExecutor;
+import org.gradle.internal.file.FileMetadata;
+import org.gradle.internal.file.Stat;
+import org.gradle.internal.file.impl.DefaultFileMetadata;
+import org.objectweb.asm.ClassWriter;
+import org.objectweb.asm.MethodVisitor;
+import org.objectweb.asm.Opcodes;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+import static java.util.concurrent.TimeUnit.SECONDS;
+import static org.gradle.internal.file.FileMetadata.AccessType.DIRECT;
+
+/**
+ * Measures the time to instrument a plugin-like classpath: a few large jars and many small ones, all instrumented concurrently
+ * the way {@link DefaultCachedClasspathTransformer} does.
+ *
+ * With 0 entry threads the classes of a jar are instrumented one after the other, on the thread that transforms the jar.
+ */
+@Fork(1)
+@Warmup(iterations = 3, time = 2, timeUnit = SECONDS)
+@Measurement(iterations = 5, time = 2, timeUnit = SECONDS)
+@State(Scope.Benchmark)
+public class InstrumentingClasspathFileTransformerBenchmark {
+
+    @Param({"0", "2", "4", "8"})
+    int entryThreads;
+
+    File tmpDir;
+    List<File> classpath;
+    DefaultExecutorFactory executorFactory;
+    ExecutorService jarExecutor;
+    InstrumentingClasspathFileTransformer transformer;
+
+    @Setup(Level.Trial)
+    public void setup() throws IOException {
+        tmpDir = Files.createTempDirectory("instrumenting-classpath").toFile();
+        classpath = new ArrayList<>();
+        for (int i = 0; i < 2; i++) {
+            classpath.add(createJar("large" + i, 3000));
+        }
+        for (int i = 0; i < 40; i++) {
+            classpath.add(createJar("small" + i, 80));
+        }
+
+        executorFactory = new DefaultExecutorFactory();
+        Executor entryExecutor;
+        if (entryThreads == 0) {
+            entryExecutor = Runnable::run;
+        } else {
+            ManagedExecutor managedExecutor = executorFactory.create("jar entry transforms", entryThreads);
+            entryExecutor = managedExecutor;
+        }
+        jarExecutor = Executors.newFixedThreadPool(Runtime.getRuntime().availableProcessors());
+        ClasspathBuilder classpathBuilder = new ClasspathBuilder(new DefaultTemporaryFileProvider(() -> tmpDir));
+        transformer = new InstrumentingClasspathFileTransformer(null, new ClasspathWalker(new NioStat()), classpathBuilder, new InstrumentingTransformer(), entryExecutor, new ReadOnlyBuildLogicCache(tmpDir, null));
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        jarExecutor.shutdownNow();
+        executorFactory.stop();
+        try (java.util.stream.Stream<java.nio.file.Path> paths = Files.walk(tmpDir.toPath())) {
+            paths.sorted(java.util.Comparator.reverseOrder()).map(java.nio.file.Path::toFile).forEach(File::delete);
+        }
+    }
+
+    @Benchmark
+    public void instrumentClasspath() throws Exception {
+        List<Callable<Void>> transforms = new ArrayList<>();
+        for (File jar : classpath) {
+            transforms.add(() -> {
+                transformer.instrument(jar, new File(tmpDir, "instrumented/" + jar.getName()));
+                return null;
+            });
+        }
+        for (Future<Void> result : jarExecutor.invokeAll(transforms)) {
+            result.get();
+        }
+    }
+
+    private File createJar(String name, int classCount) throws IOException {
+        File jar = new File(tmpDir, name + ".jar");
+        try (ZipOutputStream outputStream = new ZipOutputStream(new FileOutputStream(jar))) {
+            for (int i = 0; i < classCount; i++) {
+                String className = "org/gradle/sample/" + name + "/pkg" + (i % 20) + "/Sample" + i;
+                outputStream.putNextEntry(new ZipEntry(className + ".class"));
+                outputStream.write(createClass(className));
+                outputStream.closeEntry();
+            }
+            outputStream.putNextEntry(new ZipEntry("META-INF/" + name + ".properties"));
+            outputStream.write(("name=" + name + "\n").getBytes("UTF-8"));
+            outputStream.closeEntry();
+        }
+        return jar;
+    }
+
+    /**
+     * Creates a class with some methods that read system properties, which is what the instrumentation intercepts.
+     */
+    private static byte[] createClass(String className) {
+        ClassWriter classWriter = new ClassWriter(ClassWriter.COMPUTE_FRAMES);
+        classWriter.visit(Opcodes.V1_8, Opcodes.ACC_PUBLIC, className, null, "java/lang/Object", null);
+        MethodVisitor constructor = classWriter.visitMethod(Opcodes.ACC_PUBLIC, "<init>", "()V", null, null);
+        constructor.visitCode();
+        constructor.visitVarInsn(Opcodes.ALOAD, 0);
+        constructor.visitMethodInsn(Opcodes.INVOKESPECIAL, "java/lang/Object", "<init>", "()V", false);
+        constructor.visitInsn(Opcodes.RETURN);
+        constructor.visitMaxs(0, 0);
+        constructor.visitEnd();
+        for (int i = 0; i < 20; i++) {
+            MethodVisitor method = classWriter.visitMethod(Opcodes.ACC_PUBLIC | Opcodes.ACC_STATIC, "property" + i, "()I", null, null);
+            method.visitCode();
+            method.visitLdcInsn("some.property." + i);
+            method.visitMethodInsn(Opcodes.INVOKESTATIC, "java/lang/System", "getProperty", "(Ljava/lang/String;)Ljava/lang/String;", false);
+            method.visitMethodInsn(Opcodes.INVOKEVIRTUAL, "java/lang/String", "length", "()I", false);
+            method.visitLdcInsn(i);
+            method.visitInsn(Opcodes.IADD);
+            method.visitInsn(Opcodes.IRETURN);
+            method.visitMaxs(0, 0);
+            method.visitEnd();
+        }
+        classWriter.visitEnd();
+        return classWriter.toByteArray();
+    }
+
+    private static class NioStat implements Stat {
+        @Override
+        public int getUnixMode(File f) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public FileMetadata stat(File f) {
+            if (f.isFile()) {
+                return DefaultFileMetadata.file(f.lastModified(), f.length(), DIRECT);
+            }
+            return f.isDirectory() ? DefaultFileMetadata.directory(DIRECT) : DefaultFileMetadata.missing(DIRECT);
+        }
+    }
+}
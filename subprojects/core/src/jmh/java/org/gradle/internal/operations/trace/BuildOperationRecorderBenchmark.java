@@ -0,0 +1,85 @@
+/*
+ * Copyright 2021 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.internal.operations.trace;
+
+import org.gradle.internal.operations.BuildOperationDescriptor;
+import org.gradle.internal.operations.BuildOperationListener;
+import org.gradle.internal.operations.DefaultBuildOperationListenerManager;
+import org.gradle.internal.operations.OperationFinishEvent;
+import org.gradle.internal.operations.OperationIdentifier;
+import org.gradle.internal.operations.OperationStartEvent;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+
+import static java.util.concurrent.TimeUnit.NANOSECONDS;
+import static java.util.concurrent.TimeUnit.SECONDS;
+
+/**
+ * Measures the cost of recording each build operation with {@link BuildOperationRecorder}.
+ */
+@Fork(1)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(NANOSECONDS)
+@Warmup(iterations = 3, time = 2, timeUnit = SECONDS)
+@Measurement(iterations = 5, time = 2, timeUnit = SECONDS)
+@State(Scope.Benchmark)
+public class BuildOperationRecorderBenchmark {
+    @Param({"false", "true"})
+    boolean recording;
+
+    private long id;
+    private long time;
+    private File file;
+    private BuildOperationRecorder recorder;
+    private BuildOperationListener broadcaster;
+
+    @Setup
+    public void setup() throws IOException {
+        file = Files.createTempFile("recording", ".bin").toFile();
+        DefaultBuildOperationListenerManager manager = new DefaultBuildOperationListenerManager(false);
+        recorder = new BuildOperationRecorder(recording ? file : null, manager, 4 * 1024 * 1024);
+        broadcaster = manager.getBroadcaster();
+    }
+
+    @TearDown
+    public void tearDown() {
+        recorder.stop();
+        file.delete();
+    }
+
+    @Benchmark
+    public void operation() {
+        BuildOperationDescriptor operation = BuildOperationDescriptor.displayName("operation " + (id % 100)).details(this).build(new OperationIdentifier(++id), null);
+        broadcaster.started(operation, new OperationStartEvent(time));
+        time += 3;
+        broadcaster.finished(operation, new OperationFinishEvent(time - 3, time, null, null));
+    }
+}
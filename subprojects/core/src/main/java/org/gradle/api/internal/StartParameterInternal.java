@@ -21,6 +21,7 @@
 import org.gradle.initialization.StartParameterBuildOptions.ConfigurationCacheProblemsOption;
 import org.gradle.internal.buildoption.BuildOption;
 import org.gradle.internal.buildtree.BuildModelParameters;
+import org.gradle.internal.hash.FileContentHashFunction;
 import org.gradle.internal.watch.vfs.WatchMode;
 
 import java.io.File;
@@ -29,6 +30,7 @@ public class StartParameterInternal extends StartParameter {
     private WatchMode watchFileSystemMode = WatchMode.DEFAULT;
     private boolean watchFileSystemDebugLogging;
     private boolean vfsVerboseLogging;
+    private FileContentHashFunction fileContentHashFunction = FileContentHashFunction.MD5;
 
     private BuildOption.Value<Boolean> configurationCache = BuildOption.Value.defaultValue(false);
     private BuildOption.Value<Boolean> isolatedProjects = BuildOption.Value.defaultValue(false);
@@ -62,6 +64,7 @@ protected StartParameterInternal prepareNewBuild(StartParameter startParameter)
         p.watchFileSystemMode = watchFileSystemMode;
         p.watchFileSystemDebugLogging = watchFileSystemDebugLogging;
         p.vfsVerboseLogging = vfsVerboseLogging;
+        p.fileContentHashFunction = fileContentHashFunction;
         p.configurationCache = configurationCache;
         p.isolatedProjects = isolatedProjects;
         p.configurationCacheProblems = configurationCacheProblems;
@@ -121,6 +124,14 @@ public void setVfsVerboseLogging(boolean vfsVerboseLogging) {
         this.vfsVerboseLogging = vfsVerboseLogging;
     }
 
+    public FileContentHashFunction getFileContentHashFunction() {
+        return fileContentHashFunction;
+    }
+
+    public void setFileContentHashFunction(FileContentHashFunction fileContentHashFunction) {
+        this.fileContentHashFunction = fileContentHashFunction;
+    }
+
     /**
      * Used by the Kotlin plugin, via reflection.
      */
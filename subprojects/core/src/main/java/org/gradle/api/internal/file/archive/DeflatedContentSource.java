@@ -0,0 +1,47 @@
+/*
+ * Copyright 2021 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.api.internal.file.archive;
+
+import javax.annotation.Nullable;
+import java.io.InputStream;
+
+/**
+ * A file whose content may be stored deflated in a ZIP file, in which case it can be copied into another ZIP file without inflating it.
+ */
+public interface DeflatedContentSource {
+    /**
+     * Returns the deflated content of this file, or {@code null} when the content is not available in deflated form.
+     */
+    @Nullable
+    DeflatedContent getDeflatedContent();
+
+    interface DeflatedContent {
+        long getCrc();
+
+        /**
+         * The size of the content once inflated.
+         */
+        long getSize();
+
+        long getCompressedSize();
+
+        /**
+         * Opens the raw deflated content.
+         */
+        InputStream open();
+    }
+}
@@ -0,0 +1,572 @@
+/*
+ * Copyright 2021 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.api.internal.file.archive;
+
+import org.apache.tools.zip.GeneralPurposeBit;
+import org.apache.tools.zip.Zip64ExtendedInformationExtraField;
+import org.apache.tools.zip.Zip64Mode;
+import org.apache.tools.zip.Zip64RequiredException;
+import org.apache.tools.zip.ZipEightByteInteger;
+import org.apache.tools.zip.ZipEncoding;
+import org.apache.tools.zip.ZipEncodingHelper;
+import org.apache.tools.zip.ZipEntry;
+import org.apache.tools.zip.ZipLong;
+import org.apache.tools.zip.ZipOutputStream;
+import org.apache.tools.zip.ZipShort;
+import org.apache.tools.zip.ZipUtil;
+
+import javax.annotation.Nullable;
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.zip.CRC32;
+import java.util.zip.Deflater;
+
+/**
+ * Writes a ZIP file entry by entry, where the content of an entry is usually compressed before the entry is written.
+ *
+ * The file written is byte for byte the same as the one {@link ZipOutputStream} writes to a file with the same compression method, zip64 mode
+ * and encoding, so archives stay reproducible regardless of which of the two wrote them. {@link Zip64Mode#Always} is not supported.
+ */
+class ZipArchiveWriter implements Closeable {
+    private static final long ZIP32_LIMIT = 0xFFFFFFFFL;
+    private static final int ZIP32_ENTRY_LIMIT = 0xFFFF;
+    private static final int LOCAL_FILE_HEADER_LENGTH = 30;
+    private static final int CENTRAL_FILE_HEADER_LENGTH = 46;
+    private static final byte[] LOCAL_FILE_HEADER_SIG = ZipLong.getBytes(0x04034b50L);
+    private static final byte[] CENTRAL_FILE_HEADER_SIG = ZipLong.getBytes(0x02014b50L);
+    private static final byte[] END_OF_CENTRAL_DIRECTORY_SIG = ZipLong.getBytes(0x06054b50L);
+    private static final byte[] ZIP64_END_OF_CENTRAL_DIRECTORY_SIG = ZipLong.getBytes(0x06064b50L);
+    private static final byte[] ZIP64_END_OF_CENTRAL_DIRECTORY_LOCATOR_SIG = ZipLong.getBytes(0x07064b50L);
+    private static final ZipShort ZIP64_EXTRA_HEADER_ID = new ZipShort(0x0001);
+    private static final int VERSION_DEFAULT = 10;
+    private static final int VERSION_MADE_BY = 20;
+    private static final int VERSION_ZIP64 = 45;
+    private static final String ARCHIVE_TOO_BIG_MESSAGE = "archive's size exceeds the limit of 4GByte.";
+    private static final String TOO_MANY_ENTRIES_MESSAGE = "archive contains more than 65535 entries.";
+
+    private final RandomAccessFile file;
+    private final int method;
+    private final Zip64Mode zip64Mode;
+    private final ZipEncoding zipEncoding;
+    private final boolean useUtf8Flag;
+    private final byte[] buffer = new byte[64 * 1024];
+    private final List<WrittenEntry> entries = new ArrayList<>();
+    private int buffered;
+    private long written;
+    private boolean hasUsedZip64;
+    private StreamingEntry currentEntry;
+    private boolean finished;
+
+    /**
+     * @param method the compression method used for entries that do not specify one.
+     * @param encoding the encoding of entry names, or {@code null} to use the platform's default encoding.
+     */
+    ZipArchiveWriter(File zipFile, int method, Zip64Mode zip64Mode, @Nullable String encoding) throws IOException {
+        if (zip64Mode == Zip64Mode.Always) {
+            throw new IllegalArgumentException("Zip64 mode " + zip64Mode + " is not supported.");
+        }
+        this.method = method;
+        this.zip64Mode = zip64Mode;
+        this.zipEncoding = ZipEncodingHelper.getZipEncoding(encoding);
+        // Same as ZipOutputStream, which only clears the language encoding flag when an encoding is set explicitly
+        this.useUtf8Flag = encoding == null || isUtf8(encoding);
+        this.file = new RandomAccessFile(zipFile, "rw");
+        file.setLength(0);
+    }
+
+    private static boolean isUtf8(String encoding) {
+        return "UTF8".equalsIgnoreCase(encoding) || "utf-8".equalsIgnoreCase(encoding);
+    }
+
+    /**
+     * Compresses the given content using the given method.
+     */
+    static CompressedContent compress(byte[] content, int length, int method) {
+        CRC32 crc = new CRC32();
+        crc.update(content, 0, length);
+        if (method == ZipOutputStream.STORED) {
+            return new CompressedContent(crc.getValue(), length, content, length);
+        }
+        Deflater deflater = new Deflater(Deflater.DEFAULT_COMPRESSION, true);
+        try {
+            ContentBuffer compressed = new ContentBuffer(Math.max(64, length / 2));
+            deflater.setInput(content, 0, length);
+            while (!deflater.needsInput()) {
+                compressed.deflate(deflater);
+            }
+            deflater.finish();
+            while (!deflater.finished()) {
+                compressed.deflate(deflater);
+            }
+            return new CompressedContent(crc.getValue(), length, compressed.bytes, compressed.length);
+        } finally {
+            deflater.end();
+        }
+    }
+
+    /**
+     * Writes an entry whose content has already been compressed using the compression method of the entry.
+     */
+    void writeEntry(ZipEntry entry, CompressedContent content) throws IOException {
+        beginEntry(entry);
+        prepareEntry(entry, content.getCrc(), content.getSize(), content.getCompressedSize());
+        write(localFileHeader(entry, false));
+        write(content.getBytes(), 0, content.getCompressedLength());
+        endEntry(entry);
+    }
+
+    /**
+     * Writes an entry whose content has already been compressed using the compression method of the entry, reading the compressed content from the given stream.
+     */
+    void writeEntry(ZipEntry entry, long crc, long size, long compressedSize, InputStream compressedContent) throws IOException {
+        beginEntry(entry);
+        prepareEntry(entry, crc, size, compressedSize);
+        write(localFileHeader(entry, false));
+        long remaining = compressedSize;
+        while (remaining > 0) {
+            if (buffered == buffer.length) {
+                flushBuffer();
+            }
+            int read = compressedContent.read(buffer, buffered, (int) Math.min(remaining, buffer.length - buffered));
+            if (read < 0) {
+                throw new IOException("Unexpected end of compressed content of entry " + entry.getName());
+            }
+            buffered += read;
+            written += read;
+            remaining -= read;
+        }
+        endEntry(entry);
+    }
+
+    /**
+     * Starts an entry whose content is not known up front. The content written to the returned stream is compressed as it is written,
+     * and the entry is completed by {@link #closeEntry()}.
+     */
+    OutputStream startEntry(ZipEntry entry) throws IOException {
+        beginEntry(entry);
+        prepareEntry(entry, 0, 0, 0);
+        long headerOffset = written;
+        write(localFileHeader(entry, true));
+        currentEntry = new StreamingEntry(entry, headerOffset, written);
+        return currentEntry;
+    }
+
+    void closeEntry() throws IOException {
+        StreamingEntry streamingEntry = currentEntry;
+        if (streamingEntry == null) {
+            throw new IOException("No current entry to close");
+        }
+        streamingEntry.finish();
+        currentEntry = null;
+        ZipEntry entry = streamingEntry.entry;
+        prepareEntry(entry, streamingEntry.crc.getValue(), streamingEntry.size, written - streamingEntry.dataOffset);
+
+        flushBuffer();
+        long end = file.getFilePointer();
+        file.seek(streamingEntry.headerOffset);
+        file.write(localFileHeader(entry, false));
+        file.seek(end);
+        endEntry(entry);
+    }
+
+    private void beginEntry(ZipEntry entry) throws IOException {
+        if (finished) {
+            throw new IOException("Stream has already been finished");
+        }
+        if (currentEntry != null) {
+            closeEntry();
+        }
+        if (entry.getMethod() == -1) {
+            entry.setMethod(method);
+        }
+        entries.add(new WrittenEntry(entry, encodeName(entry), written));
+    }
+
+    private void prepareEntry(ZipEntry entry, long crc, long size, long compressedSize) {
+        entry.setCrc(crc);
+        entry.setSize(size);
+        entry.setCompressedSize(compressedSize);
+    }
+
+    private void endEntry(ZipEntry entry) throws Zip64RequiredException {
+        if (isTooLargeForZip32(entry)) {
+            if (zip64Mode == Zip64Mode.Never) {
+                throw new Zip64RequiredException(entry.getName() + "'s size exceeds the limit of 4GByte.");
+            }
+            hasUsedZip64 = true;
+        }
+    }
+
+    /**
+     * Creates the local file header of an entry in the form {@link ZipOutputStream} leaves it once the entry is complete.
+     * Unless zip64 extensions are disabled, the stream reserves space for the sizes of the entry in a zip64 extra field, which
+     * is kept in the local file header even when the sizes turn out to fit into the header itself.
+     */
+    private byte[] localFileHeader(ZipEntry entry, boolean placeholder) throws IOException {
+        boolean hasZip64Extra = zip64Mode != Zip64Mode.Never;
+        boolean zip64Required = hasZip64Extra && !placeholder && isTooLargeForZip32(entry);
+        if (hasZip64Extra) {
+            entry.addAsFirstExtraField(new Zip64ExtendedInformationExtraField(new ZipEightByteInteger(entry.getSize()), new ZipEightByteInteger(entry.getCompressedSize())));
+        }
+        byte[] extra = entry.getLocalFileDataExtra();
+        if (hasZip64Extra && !zip64Required) {
+            entry.removeExtraField(ZIP64_EXTRA_HEADER_ID);
+        }
+        ByteBuffer name = encodeName(entry);
+        int nameLength = name.limit() - name.position();
+
+        byte[] header = new byte[LOCAL_FILE_HEADER_LENGTH + nameLength + extra.length];
+        System.arraycopy(LOCAL_FILE_HEADER_SIG, 0, header, 0, 4);
+        ZipShort.putShort(zip64Required ? VERSION_ZIP64 : VERSION_DEFAULT, header, 4);
+        generalPurposeBits().encode(header, 6);
+        ZipShort.putShort(entry.getMethod(), header, 8);
+        ZipUtil.toDosTime(entry.getTime(), header, 10);
+        ZipLong.putLong(entry.getCrc(), header, 14);
+        if (zip64Required) {
+            ZipLong.putLong(ZIP32_LIMIT, header, 18);
+            ZipLong.putLong(ZIP32_LIMIT, header, 22);
+        } else {
+            ZipLong.putLong(entry.getCompressedSize(), header, 18);
+            ZipLong.putLong(entry.getSize(), header, 22);
+        }
+        ZipShort.putShort(nameLength, header, 26);
+        ZipShort.putShort(extra.length, header, 28);
+        System.arraycopy(name.array(), name.arrayOffset(), header, LOCAL_FILE_HEADER_LENGTH, nameLength);
+        System.arraycopy(extra, 0, header, LOCAL_FILE_HEADER_LENGTH + nameLength, extra.length);
+        return header;
+    }
+
+    private byte[] centralFileHeader(WrittenEntry writtenEntry) throws IOException {
+        ZipEntry entry = writtenEntry.entry;
+        long offset = writtenEntry.offset;
+        boolean tooLargeForZip32 = isTooLargeForZip32(entry);
+        boolean needsZip64Extra = tooLargeForZip32 || offset >= ZIP32_LIMIT;
+        if (needsZip64Extra) {
+            if (zip64Mode == Zip64Mode.Never) {
+                throw new Zip64RequiredException(ARCHIVE_TOO_BIG_MESSAGE);
+            }
+            hasUsedZip64 = true;
+            Zip64ExtendedInformationExtraField zip64Extra = new Zip64ExtendedInformationExtraField();
+            if (tooLargeForZip32) {
+                zip64Extra.setSize(new ZipEightByteInteger(entry.getSize()));
+                zip64Extra.setCompressedSize(new ZipEightByteInteger(entry.getCompressedSize()));
+            }
+            if (offset >= ZIP32_LIMIT) {
+                zip64Extra.setRelativeHeaderOffset(new ZipEightByteInteger(offset));
+            }
+            entry.addAsFirstExtraField(zip64Extra);
+        }
+        byte[] extra = entry.getCentralDirectoryExtra();
+        ByteBuffer name = writtenEntry.name;
+        int nameLength = name.limit() - name.position();
+        String comment = entry.getComment() == null ? "" : entry.getComment();
+        ByteBuffer encodedComment = zipEncoding.encode(comment);
+        int commentLength = encodedComment.limit() - encodedComment.position();
+
+        byte[] header = new byte[CENTRAL_FILE_HEADER_LENGTH + nameLength + extra.length + commentLength];
+        System.arraycopy(CENTRAL_FILE_HEADER_SIG, 0, header, 0, 4);
+        ZipShort.putShort((entry.getPlatform() << 8) | (hasUsedZip64 ? VERSION_ZIP64 : VERSION_MADE_BY), header, 4);
+        ZipShort.putShort(needsZip64Extra ? VERSION_ZIP64 : VERSION_DEFAULT, header, 6);
+        generalPurposeBits().encode(header, 8);
+        ZipShort.putShort(entry.getMethod(), header, 10);
+        ZipUtil.toDosTime(entry.getTime(), header, 12);
+        ZipLong.putLong(entry.getCrc(), header, 16);
+        if (tooLargeForZip32) {
+            ZipLong.putLong(ZIP32_LIMIT, header, 20);
+            ZipLong.putLong(ZIP32_LIMIT, header, 24);
+        } else {
+            ZipLong.putLong(entry.getCompressedSize(), header, 20);
+            ZipLong.putLong(entry.getSize(), header, 24);
+        }
+        ZipShort.putShort(nameLength, header, 28);
+        ZipShort.putShort(extra.length, header, 30);
+        ZipShort.putShort(commentLength, header, 32);
+        ZipShort.putShort(entry.getInternalAttributes(), header, 36);
+        ZipLong.putLong(entry.getExternalAttributes(), header, 38);
+        ZipLong.putLong(Math.min(offset, ZIP32_LIMIT), header, 42);
+        int pos = CENTRAL_FILE_HEADER_LENGTH;
+        System.arraycopy(name.array(), name.arrayOffset(), header, pos, nameLength);
+        pos += nameLength;
+        System.arraycopy(extra, 0, header, pos, extra.length);
+        pos += extra.length;
+        System.arraycopy(encodedComment.array(), encodedComment.arrayOffset(), header, pos, commentLength);
+        return header;
+    }
+
+    private GeneralPurposeBit generalPurposeBits() {
+        GeneralPurposeBit bits = new GeneralPurposeBit();
+        bits.useUTF8ForNames(useUtf8Flag);
+        return bits;
+    }
+
+    private ByteBuffer encodeName(ZipEntry entry) throws IOException {
+        return zipEncoding.encode(entry.getName());
+    }
+
+    private static boolean isTooLargeForZip32(ZipEntry entry) {
+        return entry.getSize() >= ZIP32_LIMIT || entry.getCompressedSize() >= ZIP32_LIMIT;
+    }
+
+    /**
+     * Writes the central directory. Does not close the file.
+     */
+    void finish() throws IOException {
+        if (finished) {
+            throw new IOException("This archive has already been finished");
+        }
+        if (currentEntry != null) {
+            closeEntry();
+        }
+        long centralDirectoryOffset = written;
+        for (WrittenEntry entry : entries) {
+            write(centralFileHeader(entry));
+        }
+        long centralDirectoryLength = written - centralDirectoryOffset;
+        writeZip64CentralDirectoryEnd(centralDirectoryOffset, centralDirectoryLength);
+        writeCentralDirectoryEnd(centralDirectoryOffset, centralDirectoryLength);
+        flushBuffer();
+        entries.clear();
+        finished = true;
+    }
+
+    private void writeZip64CentralDirectoryEnd(long centralDirectoryOffset, long centralDirectoryLength) throws IOException {
+        if (zip64Mode == Zip64Mode.Never) {
+            return;
+        }
+        if (!hasUsedZip64 && (centralDirectoryOffset >= ZIP32_LIMIT || centralDirectoryLength >= ZIP32_LIMIT || entries.size() >= ZIP32_ENTRY_LIMIT)) {
+            hasUsedZip64 = true;
+        }
+        if (!hasUsedZip64) {
+            return;
+        }
+        long offset = written;
+        write(ZIP64_END_OF_CENTRAL_DIRECTORY_SIG);
+        write(ZipEightByteInteger.getBytes(44));
+        write(ZipShort.getBytes(VERSION_ZIP64));
+        write(ZipShort.getBytes(VERSION_ZIP64));
+        write(ZipLong.getBytes(0));
+        write(ZipLong.getBytes(0));
+        byte[] entryCount = ZipEightByteInteger.getBytes(entries.size());
+        write(entryCount);
+        write(entryCount);
+        write(ZipEightByteInteger.getBytes(centralDirectoryLength));
+        write(ZipEightByteInteger.getBytes(centralDirectoryOffset));
+
+        write(ZIP64_END_OF_CENTRAL_DIRECTORY_LOCATOR_SIG);
+        write(ZipLong.getBytes(0));
+        write(ZipEightByteInteger.getBytes(offset));
+        write(ZipLong.getBytes(1));
+    }
+
+    private void writeCentralDirectoryEnd(long centralDirectoryOffset, long centralDirectoryLength) throws IOException {
+        write(END_OF_CENTRAL_DIRECTORY_SIG);
+        write(ZipShort.getBytes(0));
+        write(ZipShort.getBytes(0));
+        int entryCount = entries.size();
+        if (entryCount > ZIP32_ENTRY_LIMIT && zip64Mode == Zip64Mode.Never) {
+            throw new Zip64RequiredException(TOO_MANY_ENTRIES_MESSAGE);
+        }
+        if (centralDirectoryOffset > ZIP32_LIMIT && zip64Mode == Zip64Mode.Never) {
+            throw new Zip64RequiredException(ARCHIVE_TOO_BIG_MESSAGE);
+        }
+        byte[] count = ZipShort.getBytes(Math.min(entryCount, ZIP32_ENTRY_LIMIT));
+        write(count);
+        write(count);
+        write(ZipLong.getBytes(Math.min(centralDirectoryLength, ZIP32_LIMIT)));
+        write(ZipLong.getBytes(Math.min(centralDirectoryOffset, ZIP32_LIMIT)));
+        write(ZipShort.getBytes(0));
+    }
+
+    private void write(byte[] bytes) throws IOException {
+        write(bytes, 0, bytes.length);
+    }
+
+    private void write(byte[] bytes, int offset, int length) throws IOException {
+        if (length > buffer.length - buffered) {
+            flushBuffer();
+            if (length > buffer.length) {
+                file.write(bytes, offset, length);
+                written += length;
+                return;
+            }
+        }
+        System.arraycopy(bytes, offset, buffer, buffered, length);
+        buffered += length;
+        written += length;
+    }
+
+    private void flushBuffer() throws IOException {
+        if (buffered > 0) {
+            file.write(buffer, 0, buffered);
+            buffered = 0;
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        try {
+            if (!finished) {
+                finish();
+            }
+        } finally {
+            file.close();
+        }
+    }
+
+    /**
+     * The content of an entry, compressed using the compression method of the entry.
+     */
+    static class CompressedContent {
+        private final long crc;
+        private final long size;
+        private final byte[] bytes;
+        private final int compressedLength;
+
+        CompressedContent(long crc, long size, byte[] bytes, int compressedLength) {
+            this.crc = crc;
+            this.size = size;
+            this.bytes = bytes;
+            this.compressedLength = compressedLength;
+        }
+
+        long getCrc() {
+            return crc;
+        }
+
+        long getSize() {
+            return size;
+        }
+
+        long getCompressedSize() {
+            return compressedLength;
+        }
+
+        byte[] getBytes() {
+            return bytes;
+        }
+
+        int getCompressedLength() {
+            return compressedLength;
+        }
+    }
+
+    private static class WrittenEntry {
+        final ZipEntry entry;
+        final ByteBuffer name;
+        final long offset;
+
+        WrittenEntry(ZipEntry entry, ByteBuffer name, long offset) {
+            this.entry = entry;
+            this.name = name;
+            this.offset = offset;
+        }
+    }
+
+    private static class ContentBuffer {
+        byte[] bytes;
+        int length;
+
+        ContentBuffer(int initialCapacity) {
+            bytes = new byte[initialCapacity];
+        }
+
+        void deflate(Deflater deflater) {
+            if (length == bytes.length) {
+                byte[] grown = new byte[bytes.length * 2];
+                System.arraycopy(bytes, 0, grown, 0, length);
+                bytes = grown;
+            }
+            length += deflater.deflate(bytes, length, bytes.length - length);
+        }
+    }
+
+    /**
+     * Compresses the content of an entry straight into the file.
+     */
+    private class StreamingEntry extends OutputStream {
+        final ZipEntry entry;
+        final long headerOffset;
+        final long dataOffset;
+        final CRC32 crc = new CRC32();
+        final Deflater deflater;
+        final byte[] deflated;
+        long size;
+
+        StreamingEntry(ZipEntry entry, long headerOffset, long dataOffset) {
+            this.entry = entry;
+            this.headerOffset = headerOffset;
+            this.dataOffset = dataOffset;
+            if (entry.getMethod() == ZipOutputStream.DEFLATED) {
+                deflater = new Deflater(Deflater.DEFAULT_COMPRESSION, true);
+                deflated = new byte[8192];
+            } else {
+                deflater = null;
+                deflated = null;
+            }
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            write(new byte[]{(byte) b}, 0, 1);
+        }
+
+        @Override
+        public void write(byte[] bytes, int offset, int length) throws IOException {
+            if (currentEntry != this) {
+                throw new IOException("Entry " + entry.getName() + " has already been closed");
+            }
+            crc.update(bytes, offset, length);
+            size += length;
+            if (deflater == null) {
+                ZipArchiveWriter.this.write(bytes, offset, length);
+                return;
+            }
+            deflater.setInput(bytes, offset, length);
+            while (!deflater.needsInput()) {
+                deflate();
+            }
+        }
+
+        void finish() throws IOException {
+            if (deflater == null) {
+                return;
+            }
+            try {
+                deflater.finish();
+                while (!deflater.finished()) {
+                    deflate();
+                }
+            } finally {
+                deflater.end();
+            }
+        }
+
+        private void deflate() throws IOException {
+            int length = deflater.deflate(deflated, 0, deflated.length);
+            if (length > 0) {
+                ZipArchiveWriter.this.write(deflated, 0, length);
+            }
+        }
+    }
+}
@@ -0,0 +1,494 @@
+/*
+ * Copyright 2021 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.api.internal.file.archive;
+
+import org.apache.tools.zip.ZipEncoding;
+import org.apache.tools.zip.ZipEncodingHelper;
+import org.apache.tools.zip.ZipUtil;
+import org.gradle.api.UncheckedIOException;
+import org.gradle.internal.io.BufferCaster;
+import org.gradle.internal.io.MappedByteBuffers;
+
+import javax.annotation.Nullable;
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.zip.CRC32;
+import java.util.zip.Inflater;
+import java.util.zip.InflaterInputStream;
+import java.util.zip.ZipException;
+
+/**
+ * Reads the entries of a ZIP file from its central directory. Unlike {@link org.apache.tools.zip.ZipFile}, this does not read the local
+ * header of every entry when the file is opened: the local header of an entry is only read when the content of the entry is opened.
+ *
+ * Entry names, timestamps and modes are read the same way as by {@link org.apache.tools.zip.ZipFile} with the platform encoding,
+ * except that extended timestamps are read from the central directory rather than from the local header of the entry.
+ * Central directories larger than {@link #MAPPED_CENTRAL_DIRECTORY_THRESHOLD} are memory mapped while they are read, instead of being
+ * copied onto the heap.
+ */
+class ZipCentralDirectory implements Closeable {
+    static final long MAPPED_CENTRAL_DIRECTORY_THRESHOLD = 4 * 1024 * 1024;
+
+    private static final int LOCAL_FILE_HEADER_SIG = 0x04034b50;
+    private static final int CENTRAL_FILE_HEADER_SIG = 0x02014b50;
+    private static final int END_OF_CENTRAL_DIRECTORY_SIG = 0x06054b50;
+    private static final int ZIP64_END_OF_CENTRAL_DIRECTORY_SIG = 0x06064b50;
+    private static final int ZIP64_END_OF_CENTRAL_DIRECTORY_LOCATOR_SIG = 0x07064b50;
+    private static final int LOCAL_FILE_HEADER_LENGTH = 30;
+    private static final int CENTRAL_FILE_HEADER_LENGTH = 46;
+    private static final int END_OF_CENTRAL_DIRECTORY_LENGTH = 22;
+    private static final int ZIP64_END_OF_CENTRAL_DIRECTORY_LENGTH = 56;
+    private static final int ZIP64_END_OF_CENTRAL_DIRECTORY_LOCATOR_LENGTH = 20;
+    private static final int MAX_COMMENT_LENGTH = 0xFFFF;
+    private static final long ZIP64_MAGIC = 0xFFFFFFFFL;
+    private static final int ZIP64_EXTRA_FIELD_ID = 0x0001;
+    private static final int UNICODE_PATH_EXTRA_FIELD_ID = 0x7075;
+    private static final int EXTENDED_TIMESTAMP_EXTRA_FIELD_ID = 0x5455;
+    private static final int NTFS_EXTRA_FIELD_ID = 0x000A;
+    private static final int ENCRYPTED_FLAG = 1;
+    private static final int UTF8_FLAG = 1 << 11;
+    private static final int PLATFORM_FAT = 0;
+    private static final int PLATFORM_UNIX = 3;
+    private static final int STORED = 0;
+    private static final int DEFLATED = 8;
+    private static final ZipEncoding UTF8_ENCODING = ZipEncodingHelper.getZipEncoding("UTF-8");
+
+    private final File zipFile;
+    private final FileChannel channel;
+    private final ZipEncoding nameEncoding = ZipEncodingHelper.getZipEncoding(null);
+    private final List<Entry> entries;
+
+    ZipCentralDirectory(File zipFile) throws IOException {
+        this(zipFile, MAPPED_CENTRAL_DIRECTORY_THRESHOLD);
+    }
+
+    ZipCentralDirectory(File zipFile, long mappedThreshold) throws IOException {
+        this.zipFile = zipFile;
+        this.channel = FileChannel.open(zipFile.toPath(), StandardOpenOption.READ);
+        try {
+            this.entries = readEntries(mappedThreshold);
+        } catch (IOException | RuntimeException e) {
+            try {
+                channel.close();
+            } catch (IOException closeFailure) {
+                e.addSuppressed(closeFailure);
+            }
+            throw e;
+        }
+    }
+
+    /**
+     * Returns the entries in the order of the central directory.
+     */
+    List<Entry> getEntries() {
+        return entries;
+    }
+
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+
+    private List<Entry> readEntries(long mappedThreshold) throws IOException {
+        long fileLength = channel.size();
+        int tailLength = (int) Math.min(fileLength, END_OF_CENTRAL_DIRECTORY_LENGTH + MAX_COMMENT_LENGTH);
+        ByteBuffer tail = read(fileLength - tailLength, tailLength);
+        int endOfCentralDirectory = -1;
+        for (int pos = tailLength - END_OF_CENTRAL_DIRECTORY_LENGTH; pos >= 0; pos--) {
+            if (tail.getInt(pos) == END_OF_CENTRAL_DIRECTORY_SIG) {
+                endOfCentralDirectory = pos;
+                break;
+            }
+        }
+        if (endOfCentralDirectory < 0) {
+            throw new ZipException("archive is not a ZIP archive");
+        }
+
+        long centralDirectoryEnd = fileLength - tailLength + endOfCentralDirectory;
+        long centralDirectoryOffset = unsignedInt(tail, endOfCentralDirectory + 16);
+        long entryCount = unsignedShort(tail, endOfCentralDirectory + 10);
+        boolean zip64 = false;
+        if (centralDirectoryEnd >= ZIP64_END_OF_CENTRAL_DIRECTORY_LOCATOR_LENGTH) {
+            ByteBuffer locator = read(centralDirectoryEnd - ZIP64_END_OF_CENTRAL_DIRECTORY_LOCATOR_LENGTH, ZIP64_END_OF_CENTRAL_DIRECTORY_LOCATOR_LENGTH);
+            if (locator.getInt(0) == ZIP64_END_OF_CENTRAL_DIRECTORY_LOCATOR_SIG) {
+                long zip64EndOfCentralDirectory = locator.getLong(8);
+                if (zip64EndOfCentralDirectory < 0 || zip64EndOfCentralDirectory + ZIP64_END_OF_CENTRAL_DIRECTORY_LENGTH > fileLength) {
+                    throw new ZipException("archive's ZIP64 end of central directory locator is corrupt.");
+                }
+                ByteBuffer zip64Record = read(zip64EndOfCentralDirectory, ZIP64_END_OF_CENTRAL_DIRECTORY_LENGTH);
+                if (zip64Record.getInt(0) != ZIP64_END_OF_CENTRAL_DIRECTORY_SIG) {
+                    throw new ZipException("archive's ZIP64 end of central directory locator is corrupt.");
+                }
+                centralDirectoryEnd = zip64EndOfCentralDirectory;
+                centralDirectoryOffset = zip64Record.getLong(48);
+                entryCount = zip64Record.getLong(32);
+                zip64 = true;
+            }
+        }
+        if (centralDirectoryOffset < 0 || centralDirectoryOffset > centralDirectoryEnd || centralDirectoryEnd - centralDirectoryOffset > Integer.MAX_VALUE) {
+            throw new ZipException("archive's central directory offset is corrupt.");
+        }
+        if (entryCount < 0 || entryCount > (centralDirectoryEnd - centralDirectoryOffset) / CENTRAL_FILE_HEADER_LENGTH) {
+            throw new ZipException("archive's central directory entry count is corrupt.");
+        }
+        if (entryCount == 0 && startsWithLocalFileHeader()) {
+            throw new ZipException("central directory is empty, can't expand corrupt archive.");
+        }
+
+        int centralDirectoryLength = (int) (centralDirectoryEnd - centralDirectoryOffset);
+        if (centralDirectoryLength >= mappedThreshold) {
+            MappedByteBuffer centralDirectory = channel.map(FileChannel.MapMode.READ_ONLY, centralDirectoryOffset, centralDirectoryLength);
+            try {
+                centralDirectory.order(ByteOrder.LITTLE_ENDIAN);
+                return readEntries(centralDirectory, entryCount, zip64);
+            } finally {
+                MappedByteBuffers.unmap(centralDirectory);
+            }
+        }
+        return readEntries(read(centralDirectoryOffset, centralDirectoryLength), entryCount, zip64);
+    }
+
+    /**
+     * Reads the given number of entries from the central directory.
+     *
+     * Without a ZIP64 end of central directory record, the entry count only has 16 bits, and some tools write an archive with more entries
+     * by truncating the count. Records following the expected ones are read as well then, as long as the count matches modulo 2^16.
+     */
+    private List<Entry> readEntries(ByteBuffer centralDirectory, long entryCount, boolean zip64) throws IOException {
+        List<Entry> entries = new ArrayList<>((int) entryCount);
+        int limit = centralDirectory.limit();
+        int pos = 0;
+        while (entries.size() < entryCount || (!zip64 && pos + CENTRAL_FILE_HEADER_LENGTH <= limit && centralDirectory.getInt(pos) == CENTRAL_FILE_HEADER_SIG)) {
+            if (pos + CENTRAL_FILE_HEADER_LENGTH > limit || centralDirectory.getInt(pos) != CENTRAL_FILE_HEADER_SIG) {
+                throw new ZipException(String.format("Expected central directory record %d of %d at offset %d of %s", entries.size() + 1, entryCount, pos, zipFile));
+            }
+            int versionMadeBy = unsignedShort(centralDirectory, pos + 4);
+            int flags = unsignedShort(centralDirectory, pos + 8);
+            int method = unsignedShort(centralDirectory, pos + 10);
+            long dosTime = unsignedInt(centralDirectory, pos + 12);
+            long crc = unsignedInt(centralDirectory, pos + 16);
+            long compressedSize = unsignedInt(centralDirectory, pos + 20);
+            long size = unsignedInt(centralDirectory, pos + 24);
+            int nameLength = unsignedShort(centralDirectory, pos + 28);
+            int extraLength = unsignedShort(centralDirectory, pos + 30);
+            int commentLength = unsignedShort(centralDirectory, pos + 32);
+            long externalAttributes = unsignedInt(centralDirectory, pos + 38);
+            long localHeaderOffset = unsignedInt(centralDirectory, pos + 42);
+            int nameStart = pos + CENTRAL_FILE_HEADER_LENGTH;
+            int extraStart = nameStart + nameLength;
+            int next = extraStart + extraLength + commentLength;
+            if (next > limit) {
+                throw new ZipException(String.format("Truncated central directory record at offset %d of %s", pos, zipFile));
+            }
+
+            if (size == ZIP64_MAGIC || compressedSize == ZIP64_MAGIC || localHeaderOffset == ZIP64_MAGIC) {
+                int zip64Extra = findExtraField(centralDirectory, extraStart, extraLength, ZIP64_EXTRA_FIELD_ID);
+                if (zip64Extra >= 0) {
+                    int fieldPos = zip64Extra + 4;
+                    int fieldEnd = fieldPos + unsignedShort(centralDirectory, zip64Extra + 2);
+                    if (size == ZIP64_MAGIC && fieldPos + 8 <= fieldEnd) {
+                        size = centralDirectory.getLong(fieldPos);
+                        fieldPos += 8;
+                    }
+                    if (compressedSize == ZIP64_MAGIC && fieldPos + 8 <= fieldEnd) {
+                        compressedSize = centralDirectory.getLong(fieldPos);
+                        fieldPos += 8;
+                    }
+                    if (localHeaderOffset == ZIP64_MAGIC && fieldPos + 8 <= fieldEnd) {
+                        localHeaderOffset = centralDirectory.getLong(fieldPos);
+                    }
+                }
+            }
+
+            byte[] rawName = new byte[nameLength];
+            for (int i = 0; i < nameLength; i++) {
+                rawName[i] = centralDirectory.get(nameStart + i);
+            }
+            int platform = (versionMadeBy >> 8) & 0x0F;
+            String name = decodeName(rawName, flags, centralDirectory, extraStart, extraLength);
+            if (platform == PLATFORM_FAT && name.indexOf('/') < 0) {
+                name = name.replace('\\', '/');
+            }
+            int unixMode = platform == PLATFORM_UNIX ? (int) ((externalAttributes >> 16) & 0xFFFF) : 0;
+            byte[] timestampExtra = null;
+            if (findExtraField(centralDirectory, extraStart, extraLength, EXTENDED_TIMESTAMP_EXTRA_FIELD_ID) >= 0 || findExtraField(centralDirectory, extraStart, extraLength, NTFS_EXTRA_FIELD_ID) >= 0) {
+                timestampExtra = new byte[extraLength];
+                for (int i = 0; i < extraLength; i++) {
+                    timestampExtra[i] = centralDirectory.get(extraStart + i);
+                }
+            }
+            entries.add(new Entry(name, flags, method, dosTime, timestampExtra, crc, size, compressedSize, unixMode, localHeaderOffset));
+            pos = next;
+        }
+        if (entries.size() % 0x10000 != entryCount % 0x10000) {
+            throw new ZipException(String.format("Found %d central directory records instead of %d in %s", entries.size(), entryCount, zipFile));
+        }
+        return entries;
+    }
+
+    private String decodeName(byte[] rawName, int flags, ByteBuffer centralDirectory, int extraStart, int extraLength) throws IOException {
+        if ((flags & UTF8_FLAG) != 0) {
+            return UTF8_ENCODING.decode(rawName);
+        }
+        // Prefer the name from a Unicode path extra field, when it was written for the same raw name
+        int unicodePathExtra = findExtraField(centralDirectory, extraStart, extraLength, UNICODE_PATH_EXTRA_FIELD_ID);
+        if (unicodePathExtra >= 0) {
+            int dataLength = unsignedShort(centralDirectory, unicodePathExtra + 2);
+            if (dataLength >= 5 && centralDirectory.get(unicodePathExtra + 4) == 1) {
+                CRC32 crc = new CRC32();
+                crc.update(rawName);
+                if (crc.getValue() == unsignedInt(centralDirectory, unicodePathExtra + 5)) {
+                    byte[] unicodeName = new byte[dataLength - 5];
+                    for (int i = 0; i < unicodeName.length; i++) {
+                        unicodeName[i] = centralDirectory.get(unicodePathExtra + 9 + i);
+                    }
+                    try {
+                        return UTF8_ENCODING.decode(unicodeName);
+                    } catch (IOException e) {
+                        // Fall back to the raw name
+                    }
+                }
+            }
+        }
+        return nameEncoding.decode(rawName);
+    }
+
+    /**
+     * Returns the position of the header of the given extra field, or -1 when the extra data does not contain the field.
+     */
+    private static int findExtraField(ByteBuffer buffer, int start, int length, int id) {
+        int pos = start;
+        int end = start + length;
+        while (pos + 4 <= end) {
+            int dataLength = unsignedShort(buffer, pos + 2);
+            if (pos + 4 + dataLength > end) {
+                break;
+            }
+            if (unsignedShort(buffer, pos) == id) {
+                return pos;
+            }
+            pos += 4 + dataLength;
+        }
+        return -1;
+    }
+
+    private boolean startsWithLocalFileHeader() throws IOException {
+        return channel.size() >= 4 && read(0, 4).getInt(0) == LOCAL_FILE_HEADER_SIG;
+    }
+
+    private ByteBuffer read(long position, int length) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(length).order(ByteOrder.LITTLE_ENDIAN);
+        while (buffer.hasRemaining()) {
+            if (channel.read(buffer, position + buffer.position()) < 0) {
+                throw new ZipException("Unexpected end of file " + zipFile);
+            }
+        }
+        BufferCaster.cast(buffer).flip();
+        return buffer;
+    }
+
+    private static int unsignedShort(ByteBuffer buffer, int pos) {
+        return buffer.getShort(pos) & 0xFFFF;
+    }
+
+    private static long unsignedInt(ByteBuffer buffer, int pos) {
+        return buffer.getInt(pos) & 0xFFFFFFFFL;
+    }
+
+    class Entry {
+        private final String name;
+        private final int flags;
+        private final int method;
+        private final long dosTime;
+        private final byte[] timestampExtra;
+        private final long crc;
+        private final long size;
+        private final long compressedSize;
+        private final int unixMode;
+        private final long localHeaderOffset;
+        private volatile long dataOffset = -1;
+
+        private Entry(String name, int flags, int method, long dosTime, @Nullable byte[] timestampExtra, long crc, long size, long compressedSize, int unixMode, long localHeaderOffset) {
+            this.name = name;
+            this.flags = flags;
+            this.method = method;
+            this.dosTime = dosTime;
+            this.timestampExtra = timestampExtra;
+            this.crc = crc;
+            this.size = size;
+            this.compressedSize = compressedSize;
+            this.unixMode = unixMode;
+            this.localHeaderOffset = localHeaderOffset;
+        }
+
+        String getName() {
+            return name;
+        }
+
+        boolean isDirectory() {
+            return name.endsWith("/");
+        }
+
+        long getTime() {
+            long time = ZipUtil.dosToJavaTime(dosTime);
+            if (timestampExtra == null) {
+                return time;
+            }
+            // Same as org.apache.tools.zip.ZipEntry, which leaves it to java.util.zip.ZipEntry to read the extended timestamp fields
+            java.util.zip.ZipEntry entry = new java.util.zip.ZipEntry(name);
+            entry.setTime(time);
+            entry.setExtra(timestampExtra);
+            return entry.getTime();
+        }
+
+        long getSize() {
+            return size;
+        }
+
+        /**
+         * Returns the Unix mode of the entry, or 0 when the entry was not added on a Unix platform.
+         */
+        int getUnixMode() {
+            return unixMode;
+        }
+
+        InputStream open() throws IOException {
+            if ((flags & ENCRYPTED_FLAG) != 0) {
+                throw new ZipException(String.format("Unsupported feature encryption used in entry %s", name));
+            }
+            switch (method) {
+                case STORED:
+                    return new RegionInputStream(getDataOffset(), compressedSize, false);
+                case DEFLATED:
+                    final Inflater inflater = new Inflater(true);
+                    // The inflater needs an extra dummy byte at the end of the deflated data when it is not wrapped in a ZLIB header
+                    return new InflaterInputStream(new RegionInputStream(getDataOffset(), compressedSize, true), inflater, 8192) {
+                        @Override
+                        public void close() throws IOException {
+                            try {
+                                super.close();
+                            } finally {
+                                inflater.end();
+                            }
+                        }
+                    };
+                default:
+                    throw new ZipException(String.format("Unsupported compression method %d used in entry %s", method, name));
+            }
+        }
+
+        /**
+         * Returns the raw content of the entry, when it is deflated.
+         */
+        @Nullable
+        DeflatedContentSource.DeflatedContent getDeflatedContent() {
+            if (method != DEFLATED || (flags & ENCRYPTED_FLAG) != 0) {
+                return null;
+            }
+            return new DeflatedContentSource.DeflatedContent() {
+                @Override
+                public long getCrc() {
+                    return crc;
+                }
+
+                @Override
+                public long getSize() {
+                    return size;
+                }
+
+                @Override
+                public long getCompressedSize() {
+                    return compressedSize;
+                }
+
+                @Override
+                public InputStream open() {
+                    try {
+                        return new RegionInputStream(getDataOffset(), compressedSize, false);
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                }
+            };
+        }
+
+        private long getDataOffset() throws IOException {
+            if (dataOffset < 0) {
+                ByteBuffer localHeader = read(localHeaderOffset, LOCAL_FILE_HEADER_LENGTH);
+                if (localHeader.getInt(0) != LOCAL_FILE_HEADER_SIG) {
+                    throw new ZipException(String.format("Invalid local file header for entry %s at offset %d of %s", name, localHeaderOffset, zipFile));
+                }
+                dataOffset = localHeaderOffset + LOCAL_FILE_HEADER_LENGTH + unsignedShort(localHeader, 26) + unsignedShort(localHeader, 28);
+            }
+            return dataOffset;
+        }
+    }
+
+    private class RegionInputStream extends InputStream {
+        private long position;
+        private long remaining;
+        private boolean addDummyByte;
+
+        RegionInputStream(long position, long length, boolean addDummyByte) {
+            this.position = position;
+            this.remaining = length;
+            this.addDummyByte = addDummyByte;
+        }
+
+        @Override
+        public int read() throws IOException {
+            byte[] single = new byte[1];
+            return read(single, 0, 1) < 0 ? -1 : single[0] & 0xFF;
+        }
+
+        @Override
+        public int read(byte[] bytes, int offset, int length) throws IOException {
+            if (length == 0) {
+                return 0;
+            }
+            if (remaining == 0) {
+                if (addDummyByte) {
+                    addDummyByte = false;
+                    bytes[offset] = 0;
+                    return 1;
+                }
+                return -1;
+            }
+            int read = channel.read(ByteBuffer.wrap(bytes, offset, (int) Math.min(length, remaining)), position);
+            if (read < 0) {
+                throw new ZipException("Unexpected end of file " + zipFile);
+            }
+            position += read;
+            remaining -= read;
+            return read;
+        }
+
+        @Override
+        public int available() {
+            return (int) Math.min(remaining, Integer.MAX_VALUE);
+        }
+    }
+}
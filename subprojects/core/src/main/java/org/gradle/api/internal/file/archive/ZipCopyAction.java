@@ -33,10 +33,21 @@
 import org.gradle.api.tasks.WorkResults;
 import org.gradle.api.tasks.bundling.Zip;
 import org.gradle.internal.IoActions;
+import org.gradle.internal.concurrent.ExecutorFactory;
+import org.gradle.internal.concurrent.ManagedExecutor;
 
+import javax.annotation.Nullable;
 import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.ArrayDeque;
 import java.util.Calendar;
+import java.util.Deque;
 import java.util.GregorianCalendar;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
 
 public class ZipCopyAction implements CopyAction {
     /**
@@ -56,22 +67,44 @@ public class ZipCopyAction implements CopyAction {
      */
     public static final long CONSTANT_TIME_FOR_ZIP_ENTRIES = new GregorianCalendar(1980, Calendar.FEBRUARY, 1, 0, 0, 0).getTimeInMillis();
 
+    /**
+     * Entries with more content than this are compressed while they are written, rather than being held in memory until they can be written.
+     */
+    private static final int MAX_BUFFERED_ENTRY_SIZE = 8 * 1024 * 1024;
+
+    /**
+     * The maximum amount of content held in memory for entries that wait to be compressed or written.
+     */
+    private static final long MAX_PENDING_BYTES = 64 * 1024 * 1024;
+
     private final File zipFile;
     private final ZipCompressor compressor;
     private final DocumentationRegistry documentationRegistry;
     private final String encoding;
     private final boolean preserveFileTimestamps;
+    private final ZipCopyParallelism parallelism;
+    private final ExecutorFactory executorFactory;
 
     public ZipCopyAction(File zipFile, ZipCompressor compressor, DocumentationRegistry documentationRegistry, String encoding, boolean preserveFileTimestamps) {
+        this(zipFile, compressor, documentationRegistry, encoding, preserveFileTimestamps, ZipCopyParallelism.SEQUENTIAL, null);
+    }
+
+    public ZipCopyAction(File zipFile, ZipCompressor compressor, DocumentationRegistry documentationRegistry, String encoding, boolean preserveFileTimestamps, ZipCopyParallelism parallelism, @Nullable ExecutorFactory executorFactory) {
         this.zipFile = zipFile;
         this.compressor = compressor;
         this.documentationRegistry = documentationRegistry;
         this.encoding = encoding;
         this.preserveFileTimestamps = preserveFileTimestamps;
+        this.parallelism = parallelism;
+        this.executorFactory = executorFactory;
     }
 
     @Override
     public WorkResult execute(final CopyActionProcessingStream stream) {
+        if (parallelism.isEnabled()) {
+            return executeWithArchiveWriter(stream);
+        }
+
         final ZipOutputStream zipOutStr;
 
         try {
@@ -89,15 +122,49 @@ public void execute(ZipOutputStream outputStream) {
             });
         } catch (UncheckedIOException e) {
             if (e.getCause() instanceof Zip64RequiredException) {
-                throw new org.gradle.api.tasks.bundling.internal.Zip64RequiredException(
-                        String.format("%s\n\nTo build this archive, please enable the zip64 extension.\nSee: %s", e.getCause().getMessage(), documentationRegistry.getDslRefForProperty(Zip.class, "zip64"))
-                );
+                throw zip64Required((Zip64RequiredException) e.getCause());
+            }
+        }
+
+        return WorkResults.didWork(true);
+    }
+
+    private WorkResult executeWithArchiveWriter(CopyActionProcessingStream stream) {
+        ZipArchiveWriter writer;
+        try {
+            writer = new ZipArchiveWriter(zipFile, compressor.getEntryCompressionMethod(), compressor.getZip64Mode(), encoding);
+        } catch (Exception e) {
+            throw new GradleException(String.format("Could not create ZIP '%s'.", zipFile), e);
+        }
+
+        ManagedExecutor executor = parallelism.getParallelism() > 1 && executorFactory != null
+            ? executorFactory.create("ZIP entry compression", parallelism.getParallelism())
+            : null;
+        try {
+            ParallelStreamAction action = new ParallelStreamAction(writer, executor);
+            stream.process(action);
+            action.writePendingEntries(0);
+            writer.close();
+        } catch (Zip64RequiredException e) {
+            throw zip64Required(e);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        } finally {
+            if (executor != null) {
+                executor.stop();
             }
+            IoActions.closeQuietly(writer);
         }
 
         return WorkResults.didWork(true);
     }
 
+    private RuntimeException zip64Required(Zip64RequiredException e) {
+        return new org.gradle.api.tasks.bundling.internal.Zip64RequiredException(
+            String.format("%s\n\nTo build this archive, please enable the zip64 extension.\nSee: %s", e.getMessage(), documentationRegistry.getDslRefForProperty(Zip.class, "zip64"))
+        );
+    }
+
     private class StreamAction implements CopyActionProcessingStreamAction {
         private final ZipOutputStream zipOutStr;
 
@@ -119,9 +186,7 @@ public void processFile(FileCopyDetailsInternal details) {
 
         private void visitFile(FileCopyDetails fileDetails) {
             try {
-                ZipEntry archiveEntry = new ZipEntry(fileDetails.getRelativePath().getPathString());
-                archiveEntry.setTime(getArchiveTimeFor(fileDetails));
-                archiveEntry.setUnixMode(UnixStat.FILE_FLAG | fileDetails.getMode());
+                ZipEntry archiveEntry = fileEntryFor(fileDetails);
                 zipOutStr.putNextEntry(archiveEntry);
                 fileDetails.copyTo(zipOutStr);
                 zipOutStr.closeEntry();
@@ -132,10 +197,7 @@ private void visitFile(FileCopyDetails fileDetails) {
 
         private void visitDir(FileCopyDetails dirDetails) {
             try {
-                // Trailing slash in name indicates that entry is a directory
-                ZipEntry archiveEntry = new ZipEntry(dirDetails.getRelativePath().getPathString() + '/');
-                archiveEntry.setTime(getArchiveTimeFor(dirDetails));
-                archiveEntry.setUnixMode(UnixStat.DIR_FLAG | dirDetails.getMode());
+                ZipEntry archiveEntry = dirEntryFor(dirDetails);
                 zipOutStr.putNextEntry(archiveEntry);
                 zipOutStr.closeEntry();
             } catch (Exception e) {
@@ -144,6 +206,208 @@ private void visitDir(FileCopyDetails dirDetails) {
         }
     }
 
+    /**
+     * Compresses entries on a pool of threads, or on the calling thread when there is no pool, and writes them in the order they are visited.
+     * The content of entries is read on the visiting thread, as it may only be available while the entry is being visited.
+     */
+    private class ParallelStreamAction implements CopyActionProcessingStreamAction {
+        private final ZipArchiveWriter writer;
+        private final ManagedExecutor executor;
+        private final int compressionMethod;
+        private final int maxPendingEntries;
+        private final Deque<PendingEntry> pendingEntries = new ArrayDeque<>();
+        private long pendingBytes;
+
+        ParallelStreamAction(ZipArchiveWriter writer, @Nullable ManagedExecutor executor) {
+            this.writer = writer;
+            this.executor = executor;
+            this.compressionMethod = compressor.getEntryCompressionMethod();
+            this.maxPendingEntries = parallelism.getParallelism() * 16;
+        }
+
+        @Override
+        public void processFile(FileCopyDetailsInternal details) {
+            PendingEntry entry;
+            try {
+                if (details.isDirectory()) {
+                    entry = new PendingEntry(details, dirEntryFor(details), compress(new byte[0], 0), 0);
+                } else {
+                    entry = visitFile(details);
+                }
+            } catch (EntryFailure e) {
+                throw e;
+            } catch (Exception e) {
+                throw new GradleException(String.format("Could not add %s to ZIP '%s'.", details, zipFile), e);
+            }
+            if (entry != null) {
+                pendingEntries.add(entry);
+                pendingBytes += entry.bufferedBytes;
+                writePendingEntries(maxPendingEntries);
+            }
+        }
+
+        /**
+         * Returns the entry to write, or {@code null} when the entry was too large to buffer and has already been written.
+         */
+        @Nullable
+        private PendingEntry visitFile(FileCopyDetailsInternal details) throws IOException {
+            ZipEntry archiveEntry = fileEntryFor(details);
+            DeflatedContentSource.DeflatedContent deflatedContent = parallelism.isCopyDeflatedEntries() && compressionMethod == ZipOutputStream.DEFLATED && details instanceof DeflatedContentSource
+                ? ((DeflatedContentSource) details).getDeflatedContent()
+                : null;
+            if (deflatedContent != null) {
+                return copyDeflatedContent(details, archiveEntry, deflatedContent);
+            }
+
+            ContentCollector collector = new ContentCollector(archiveEntry);
+            details.copyTo(collector);
+            if (collector.entryContent != null) {
+                writer.closeEntry();
+                return null;
+            }
+            return new PendingEntry(details, archiveEntry, compress(collector.buffer, collector.count), collector.count);
+        }
+
+        @Nullable
+        private PendingEntry copyDeflatedContent(FileCopyDetails details, ZipEntry archiveEntry, DeflatedContentSource.DeflatedContent deflatedContent) throws IOException {
+            try (InputStream content = deflatedContent.open()) {
+                if (deflatedContent.getCompressedSize() > MAX_BUFFERED_ENTRY_SIZE) {
+                    writePendingEntries(0);
+                    writer.writeEntry(archiveEntry, deflatedContent.getCrc(), deflatedContent.getSize(), deflatedContent.getCompressedSize(), content);
+                    return null;
+                }
+                byte[] bytes = new byte[(int) deflatedContent.getCompressedSize()];
+                int count = 0;
+                while (count < bytes.length) {
+                    int read = content.read(bytes, count, bytes.length - count);
+                    if (read < 0) {
+                        throw new IOException("Unexpected end of deflated content of " + details);
+                    }
+                    count += read;
+                }
+                ZipArchiveWriter.CompressedContent compressedContent = new ZipArchiveWriter.CompressedContent(deflatedContent.getCrc(), deflatedContent.getSize(), bytes, count);
+                return new PendingEntry(details, archiveEntry, new CompletedFuture(compressedContent), count);
+            }
+        }
+
+        private Future<ZipArchiveWriter.CompressedContent> compress(final byte[] content, final int length) {
+            FutureTask<ZipArchiveWriter.CompressedContent> task = new FutureTask<>(() -> ZipArchiveWriter.compress(content, length, compressionMethod));
+            if (executor != null) {
+                executor.execute(task);
+            } else {
+                task.run();
+            }
+            return task;
+        }
+
+        /**
+         * Writes pending entries in order until no more than the given number of entries, and no more than {@link #MAX_PENDING_BYTES}, are left pending.
+         * Entries that are already compressed are written in any case.
+         */
+        void writePendingEntries(int maxPending) {
+            while (!pendingEntries.isEmpty()) {
+                PendingEntry next = pendingEntries.peek();
+                if (!next.content.isDone() && pendingEntries.size() <= maxPending && pendingBytes <= MAX_PENDING_BYTES) {
+                    return;
+                }
+                pendingEntries.remove();
+                pendingBytes -= next.bufferedBytes;
+                try {
+                    writer.writeEntry(next.archiveEntry, next.content.get());
+                } catch (ExecutionException e) {
+                    throw new EntryFailure(next.details, e.getCause());
+                } catch (Exception e) {
+                    throw new EntryFailure(next.details, e);
+                }
+            }
+        }
+
+        /**
+         * Collects the content of an entry in memory, or writes it straight to the archive once it turns out to be too large.
+         */
+        private class ContentCollector extends OutputStream {
+            private final ZipEntry archiveEntry;
+            private byte[] buffer = new byte[8192];
+            private int count;
+            private OutputStream entryContent;
+
+            ContentCollector(ZipEntry archiveEntry) {
+                this.archiveEntry = archiveEntry;
+            }
+
+            @Override
+            public void write(int b) throws IOException {
+                write(new byte[]{(byte) b}, 0, 1);
+            }
+
+            @Override
+            public void write(byte[] bytes, int offset, int length) throws IOException {
+                if (entryContent == null && count + length > MAX_BUFFERED_ENTRY_SIZE) {
+                    writePendingEntries(0);
+                    entryContent = writer.startEntry(archiveEntry);
+                    entryContent.write(buffer, 0, count);
+                    buffer = null;
+                }
+                if (entryContent != null) {
+                    entryContent.write(bytes, offset, length);
+                    return;
+                }
+                if (count + length > buffer.length) {
+                    byte[] grown = new byte[Math.min(MAX_BUFFERED_ENTRY_SIZE, Math.max(buffer.length * 2, count + length))];
+                    System.arraycopy(buffer, 0, grown, 0, count);
+                    buffer = grown;
+                }
+                System.arraycopy(bytes, offset, buffer, count, length);
+                count += length;
+            }
+        }
+    }
+
+    private static class PendingEntry {
+        final FileCopyDetails details;
+        final ZipEntry archiveEntry;
+        final Future<ZipArchiveWriter.CompressedContent> content;
+        final long bufferedBytes;
+
+        PendingEntry(FileCopyDetails details, ZipEntry archiveEntry, Future<ZipArchiveWriter.CompressedContent> content, long bufferedBytes) {
+            this.details = details;
+            this.archiveEntry = archiveEntry;
+            this.content = content;
+            this.bufferedBytes = bufferedBytes;
+        }
+    }
+
+    private static class CompletedFuture extends FutureTask<ZipArchiveWriter.CompressedContent> {
+        CompletedFuture(ZipArchiveWriter.CompressedContent content) {
+            super(() -> content);
+            run();
+        }
+    }
+
+    /**
+     * A failure to write an entry that was visited earlier than the entry being visited.
+     */
+    private class EntryFailure extends GradleException {
+        EntryFailure(FileCopyDetails details, Throwable cause) {
+            super(String.format("Could not add %s to ZIP '%s'.", details, zipFile), cause);
+        }
+    }
+
+    private ZipEntry fileEntryFor(FileCopyDetails fileDetails) {
+        ZipEntry archiveEntry = new ZipEntry(fileDetails.getRelativePath().getPathString());
+        archiveEntry.setTime(getArchiveTimeFor(fileDetails));
+        archiveEntry.setUnixMode(UnixStat.FILE_FLAG | fileDetails.getMode());
+        return archiveEntry;
+    }
+
+    private ZipEntry dirEntryFor(FileCopyDetails dirDetails) {
+        // Trailing slash in name indicates that entry is a directory
+        ZipEntry archiveEntry = new ZipEntry(dirDetails.getRelativePath().getPathString() + '/');
+        archiveEntry.setTime(getArchiveTimeFor(dirDetails));
+        archiveEntry.setUnixMode(UnixStat.DIR_FLAG | dirDetails.getMode());
+        return archiveEntry;
+    }
+
     private long getArchiveTimeFor(FileCopyDetails details) {
         return preserveFileTimestamps ? details.getLastModified() : CONSTANT_TIME_FOR_ZIP_ENTRIES;
     }
@@ -0,0 +1,70 @@
+/*
+ * Copyright 2021 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.api.internal.file.archive;
+
+import org.gradle.internal.options.IntegerInternalOption;
+import org.gradle.internal.options.InternalFlag;
+import org.gradle.internal.options.InternalOption;
+import org.gradle.internal.options.InternalOptions;
+
+/**
+ * Controls whether {@link ZipCopyAction} compresses entries on the thread visiting them, or on a bounded pool of threads.
+ *
+ * Entries compressed in parallel are still written in the order they are visited, and the archive is byte for byte the same as when
+ * it is written sequentially. Optionally, entries whose content is already deflated in a source ZIP file can be copied without
+ * inflating and deflating them again. The archive then keeps the compressed form of those entries as produced by whatever wrote the source file.
+ */
+public class ZipCopyParallelism {
+    /**
+     * The number of threads used to compress entries, e.g. {@code -Dorg.gradle.internal.zip.parallelism=4}.
+     */
+    public static final InternalOption<Integer> PARALLELISM_OPTION = new IntegerInternalOption("org.gradle.internal.zip.parallelism", 1, 1);
+
+    /**
+     * Enables copying deflated entries of source ZIP files as they are, e.g. {@code -Dorg.gradle.internal.zip.copyDeflatedEntries=true}.
+     */
+    public static final InternalOption<Boolean> COPY_DEFLATED_ENTRIES_OPTION = new InternalFlag("org.gradle.internal.zip.copyDeflatedEntries");
+
+    public static final ZipCopyParallelism SEQUENTIAL = new ZipCopyParallelism(1, false);
+
+    private final int parallelism;
+    private final boolean copyDeflatedEntries;
+
+    public ZipCopyParallelism(int parallelism, boolean copyDeflatedEntries) {
+        this.parallelism = parallelism;
+        this.copyDeflatedEntries = copyDeflatedEntries;
+    }
+
+    public static ZipCopyParallelism fromOptions(InternalOptions options) {
+        return new ZipCopyParallelism(options.getOption(PARALLELISM_OPTION), options.getOption(COPY_DEFLATED_ENTRIES_OPTION));
+    }
+
+    public int getParallelism() {
+        return parallelism;
+    }
+
+    /**
+     * Whether the archive is written by {@link ZipArchiveWriter} rather than by a single {@link org.apache.tools.zip.ZipOutputStream}.
+     */
+    public boolean isEnabled() {
+        return parallelism > 1 || copyDeflatedEntries;
+    }
+
+    public boolean isCopyDeflatedEntries() {
+        return copyDeflatedEntries;
+    }
+}
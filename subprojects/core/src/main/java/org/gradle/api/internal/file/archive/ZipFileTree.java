@@ -15,8 +15,8 @@
  */
 package org.gradle.api.internal.file.archive;
 
-import org.apache.tools.zip.ZipEntry;
-import org.apache.tools.zip.ZipFile;
+import com.google.common.base.Supplier;
+import com.google.common.base.Suppliers;
 import org.gradle.api.GradleException;
 import org.gradle.api.InvalidUserDataException;
 import org.gradle.api.UncheckedIOException;
@@ -31,10 +31,10 @@
 import org.gradle.internal.hash.FileHasher;
 import org.gradle.internal.nativeintegration.filesystem.FileSystem;
 
+import javax.annotation.Nullable;
 import java.io.File;
 import java.io.IOException;
 import java.io.InputStream;
-import java.util.Enumeration;
 import java.util.Iterator;
 import java.util.Map;
 import java.util.TreeMap;
@@ -87,28 +87,27 @@ public void visit(FileVisitor visitor) {
         AtomicBoolean stopFlag = new AtomicBoolean();
 
         try {
-            ZipFile zip = new ZipFile(zipFile);
-            File expandedDir = getExpandedDir();
+            ZipCentralDirectory centralDirectory = new ZipCentralDirectory(zipFile);
             try {
-                // The iteration order of zip.getEntries() is based on the hash of the zip entry. This isn't much use
+                // The entries are only expanded when a visitor asks for their file, so only hash the ZIP to locate the expanded directory then
+                Supplier<File> expandedDir = Suppliers.memoize(this::getExpandedDir);
+                // The iteration order of the central directory is the order in which the entries were added to the ZIP. This isn't much use
                 // to us. So, collect the entries in a map and iterate over them in alphabetical order.
-                Map<String, ZipEntry> entriesByName = new TreeMap<String, ZipEntry>();
-                Enumeration entries = zip.getEntries();
-                while (entries.hasMoreElements()) {
-                    ZipEntry entry = (ZipEntry) entries.nextElement();
+                Map<String, ZipCentralDirectory.Entry> entriesByName = new TreeMap<String, ZipCentralDirectory.Entry>();
+                for (ZipCentralDirectory.Entry entry : centralDirectory.getEntries()) {
                     entriesByName.put(entry.getName(), entry);
                 }
-                Iterator<ZipEntry> sortedEntries = entriesByName.values().iterator();
+                Iterator<ZipCentralDirectory.Entry> sortedEntries = entriesByName.values().iterator();
                 while (!stopFlag.get() && sortedEntries.hasNext()) {
-                    ZipEntry entry = sortedEntries.next();
+                    ZipCentralDirectory.Entry entry = sortedEntries.next();
                     if (entry.isDirectory()) {
-                        visitor.visitDir(new DetailsImpl(zipFile, expandedDir, entry, zip, stopFlag, chmod));
+                        visitor.visitDir(new DetailsImpl(zipFile, expandedDir, entry, stopFlag, chmod));
                     } else {
-                        visitor.visitFile(new DetailsImpl(zipFile, expandedDir, entry, zip, stopFlag, chmod));
+                        visitor.visitFile(new DetailsImpl(zipFile, expandedDir, entry, stopFlag, chmod));
                     }
                 }
             } finally {
-                zip.close();
+                centralDirectory.close();
             }
         } catch (Exception e) {
             throw new GradleException(String.format("Could not expand %s.", getDisplayName()), e);
@@ -126,20 +125,18 @@ private File getExpandedDir() {
         return new File(tmpDir, expandedDirName);
     }
 
-    private static class DetailsImpl extends AbstractFileTreeElement implements FileVisitDetails {
+    private static class DetailsImpl extends AbstractFileTreeElement implements FileVisitDetails, DeflatedContentSource {
         private final File originalFile;
-        private final File expandedDir;
-        private final ZipEntry entry;
-        private final ZipFile zip;
+        private final Supplier<File> expandedDir;
+        private final ZipCentralDirectory.Entry entry;
         private final AtomicBoolean stopFlag;
         private File file;
 
-        public DetailsImpl(File originalFile, File expandedDir, ZipEntry entry, ZipFile zip, AtomicBoolean stopFlag, Chmod chmod) {
+        public DetailsImpl(File originalFile, Supplier<File> expandedDir, ZipCentralDirectory.Entry entry, AtomicBoolean stopFlag, Chmod chmod) {
             super(chmod);
             this.originalFile = originalFile;
             this.expandedDir = expandedDir;
             this.entry = entry;
-            this.zip = zip;
             this.stopFlag = stopFlag;
         }
 
@@ -156,7 +153,7 @@ public void stopVisiting() {
         @Override
         public File getFile() {
             if (file == null) {
-                file = new File(expandedDir, entry.getName());
+                file = new File(expandedDir.get(), entry.getName());
                 if (!file.exists()) {
                     copyTo(file);
                 }
@@ -182,12 +179,18 @@ public long getSize() {
         @Override
         public InputStream open() {
             try {
-                return zip.getInputStream(entry);
+                return entry.open();
             } catch (IOException e) {
                 throw new UncheckedIOException(e);
             }
         }
 
+        @Nullable
+        @Override
+        public DeflatedContent getDeflatedContent() {
+            return entry.getDeflatedContent();
+        }
+
         @Override
         public RelativePath getRelativePath() {
             return new RelativePath(!entry.isDirectory(), entry.getName().split("/"));
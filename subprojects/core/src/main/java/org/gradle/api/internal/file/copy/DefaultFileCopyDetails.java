@@ -25,6 +25,7 @@
 import org.gradle.api.file.FileVisitDetails;
 import org.gradle.api.file.RelativePath;
 import org.gradle.api.internal.file.AbstractFileTreeElement;
+import org.gradle.api.internal.file.archive.DeflatedContentSource;
 import org.gradle.api.model.ObjectFactory;
 import org.gradle.internal.Actions;
 import org.gradle.internal.file.Chmod;
@@ -38,7 +39,7 @@
 import java.io.OutputStream;
 import java.util.Map;
 
-public class DefaultFileCopyDetails extends AbstractFileTreeElement implements FileVisitDetails, FileCopyDetailsInternal {
+public class DefaultFileCopyDetails extends AbstractFileTreeElement implements FileVisitDetails, FileCopyDetailsInternal, DeflatedContentSource {
     private final FileVisitDetails fileDetails;
     private final CopySpecResolver specResolver;
     private final FilterChain filterChain;
@@ -123,6 +124,15 @@ public void copyTo(OutputStream output) {
         }
     }
 
+    @Nullable
+    @Override
+    public DeflatedContent getDeflatedContent() {
+        if (filterChain.hasFilters() || !(fileDetails instanceof DeflatedContentSource)) {
+            return null;
+        }
+        return ((DeflatedContentSource) fileDetails).getDeflatedContent();
+    }
+
     @Override
     public boolean copyTo(File target) {
         if (filterChain.hasFilters()) {
@@ -32,6 +32,16 @@ public DefaultZipCompressor(boolean allowZip64Mode, int entryCompressionMethod)
         zip64Mode = allowZip64Mode ? Zip64Mode.AsNeeded : Zip64Mode.Never;
     }
 
+    @Override
+    public int getEntryCompressionMethod() {
+        return entryCompressionMethod;
+    }
+
+    @Override
+    public Zip64Mode getZip64Mode() {
+        return zip64Mode;
+    }
+
     @Override
     public ZipOutputStream createArchiveOutputStream(File destination) throws IOException {
         ZipOutputStream outStream = new ZipOutputStream(destination);
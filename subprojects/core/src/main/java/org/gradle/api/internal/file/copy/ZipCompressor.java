@@ -15,6 +15,7 @@
  */
 package org.gradle.api.internal.file.copy;
 
+import org.apache.tools.zip.Zip64Mode;
 import org.apache.tools.zip.ZipOutputStream;
 import org.gradle.api.internal.file.archive.compression.ArchiveOutputStreamFactory;
 
@@ -26,4 +27,11 @@ public interface ZipCompressor extends ArchiveOutputStreamFactory {
     @Override
     ZipOutputStream createArchiveOutputStream(File destination) throws IOException;
 
+    /**
+     * The compression method used for the entries of the archive, either {@link ZipOutputStream#DEFLATED} or {@link ZipOutputStream#STORED}.
+     */
+    int getEntryCompressionMethod();
+
+    Zip64Mode getZip64Mode();
+
 }
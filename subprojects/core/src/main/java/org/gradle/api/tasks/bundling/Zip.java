@@ -19,12 +19,15 @@
 import org.gradle.api.InvalidUserDataException;
 import org.gradle.api.internal.DocumentationRegistry;
 import org.gradle.api.internal.file.archive.ZipCopyAction;
+import org.gradle.api.internal.file.archive.ZipCopyParallelism;
 import org.gradle.api.internal.file.copy.CopyAction;
 import org.gradle.api.internal.file.copy.DefaultZipCompressor;
 import org.gradle.api.internal.file.copy.ZipCompressor;
 import org.gradle.api.tasks.Input;
 import org.gradle.api.tasks.Internal;
 import org.gradle.api.tasks.Optional;
+import org.gradle.internal.concurrent.ExecutorFactory;
+import org.gradle.internal.options.InternalOptions;
 import org.gradle.work.DisableCachingByDefault;
 
 import javax.annotation.Nullable;
@@ -62,7 +65,9 @@ protected ZipCompressor getCompressor() {
     @Override
     protected CopyAction createCopyAction() {
         DocumentationRegistry documentationRegistry = getServices().get(DocumentationRegistry.class);
-        return new ZipCopyAction(getArchiveFile().get().getAsFile(), getCompressor(), documentationRegistry, metadataCharset, isPreserveFileTimestamps());
+        ExecutorFactory executorFactory = getServices().get(ExecutorFactory.class);
+        ZipCopyParallelism parallelism = ZipCopyParallelism.fromOptions(getServices().get(InternalOptions.class));
+        return new ZipCopyAction(getArchiveFile().get().getAsFile(), getCompressor(), documentationRegistry, metadataCharset, isPreserveFileTimestamps(), parallelism, executorFactory);
     }
 
     /**
@@ -0,0 +1,99 @@
+/*
+ * Copyright 2021 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.cache.internal;
+
+import org.gradle.cache.GlobalCache;
+import org.gradle.cache.scopes.GlobalScopedCache;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.annotation.Nullable;
+import java.io.File;
+import java.nio.file.Path;
+import java.util.Collections;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * A pre-populated, read-only copy of the build logic caches, which is checked before the writable caches in the Gradle user home.
+ *
+ * <p>The build logic caches hold the instrumented classpath jars and the compiled build scripts. The read-only copy has the same layout as the
+ * {@code caches} directory of a Gradle user home, so it can be seeded by copying that directory, for example into the base image of ephemeral CI agents.
+ * Its location is given by the {@value #READONLY_CACHE_ENV_VAR} environment variable.</p>
+ *
+ * <p>The entries of these caches are keyed by the hash of their inputs and are never changed once complete, so the read-only copy is used without any locking.
+ * Nothing is ever written to it.</p>
+ */
+public class ReadOnlyBuildLogicCache implements GlobalCache {
+    public static final String READONLY_CACHE_ENV_VAR = "GRADLE_RO_BUILD_LOGIC_CACHE";
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(ReadOnlyBuildLogicCache.class);
+
+    private final Path writableRootDir;
+    @Nullable
+    private final Path readOnlyRootDir;
+
+    public ReadOnlyBuildLogicCache(GlobalScopedCache globalScopedCache) {
+        this(globalScopedCache.getRootDir(), readOnlyRootDirFrom(System.getenv(READONLY_CACHE_ENV_VAR)));
+    }
+
+    /**
+     * @param writableRootDir The root of the writable caches.
+     * @param readOnlyRootDir The root of the read-only copy, or {@code null} when there is none.
+     */
+    public ReadOnlyBuildLogicCache(File writableRootDir, @Nullable File readOnlyRootDir) {
+        this.writableRootDir = writableRootDir.toPath().toAbsolutePath();
+        this.readOnlyRootDir = readOnlyRootDir == null ? null : readOnlyRootDir.toPath().toAbsolutePath();
+    }
+
+    @Nullable
+    private static File readOnlyRootDirFrom(@Nullable String value) {
+        if (value == null || value.isEmpty()) {
+            return null;
+        }
+        File rootDir = new File(value).getAbsoluteFile();
+        if (!rootDir.isDirectory()) {
+            LOGGER.warn("The read-only build logic cache is disabled because of a configuration problem:");
+            LOGGER.warn("The " + READONLY_CACHE_ENV_VAR + " environment variable was set to " + rootDir + " which doesn't exist!");
+            return null;
+        }
+        LOGGER.info("The read-only build logic cache is enabled \nThe {} environment variable was set to {}", READONLY_CACHE_ENV_VAR, rootDir);
+        return rootDir;
+    }
+
+    /**
+     * Returns the location in the read-only copy of the given location of the writable caches, if there is a read-only copy.
+     * The returned location may not exist.
+     */
+    public Optional<File> readOnlyLocationOf(File writableLocation) {
+        if (readOnlyRootDir == null) {
+            return Optional.empty();
+        }
+        Path location = writableLocation.toPath().toAbsolutePath();
+        if (!location.startsWith(writableRootDir)) {
+            return Optional.empty();
+        }
+        return Optional.of(readOnlyRootDir.resolve(writableRootDir.relativize(location)).toFile());
+    }
+
+    @Override
+    public List<File> getGlobalCacheRoots() {
+        return readOnlyRootDir == null
+            ? Collections.emptyList()
+            : Collections.singletonList(readOnlyRootDir.toFile());
+    }
+}
@@ -16,6 +16,7 @@
 
 package org.gradle.caching.internal;
 
+import com.google.common.collect.ImmutableList;
 import org.gradle.StartParameter;
 import org.gradle.api.internal.GradleInternal;
 import org.gradle.api.internal.cache.StringInterner;
@@ -27,13 +28,18 @@
 import org.gradle.caching.configuration.internal.DefaultBuildCacheServiceRegistration;
 import org.gradle.caching.internal.controller.BuildCacheCommandFactory;
 import org.gradle.caching.internal.controller.BuildCacheController;
+import org.gradle.caching.internal.controller.BuildCachePrefetcher;
 import org.gradle.caching.internal.controller.RootBuildCacheControllerRef;
 import org.gradle.caching.internal.controller.impl.DefaultBuildCacheCommandFactory;
 import org.gradle.caching.internal.origin.OriginMetadataFactory;
+import org.gradle.caching.internal.packaging.BuildCacheEntryCodec;
 import org.gradle.caching.internal.packaging.BuildCacheEntryPacker;
+import org.gradle.caching.internal.packaging.impl.CodecBuildCacheEntryPacker;
 import org.gradle.caching.internal.packaging.impl.DefaultTarPackerFileSystemSupport;
 import org.gradle.caching.internal.packaging.impl.FilePermissionAccess;
-import org.gradle.caching.internal.packaging.impl.GZipBuildCacheEntryPacker;
+import org.gradle.caching.internal.packaging.impl.GZipBuildCacheEntryCodec;
+import org.gradle.caching.internal.packaging.impl.ParallelDeflateBuildCacheEntryCodec;
+import org.gradle.caching.internal.packaging.impl.StoreBuildCacheEntryCodec;
 import org.gradle.caching.internal.packaging.impl.TarBuildCacheEntryPacker;
 import org.gradle.caching.internal.packaging.impl.TarPackerFileSystemSupport;
 import org.gradle.caching.internal.services.BuildCacheControllerFactory;
@@ -41,6 +47,7 @@
 import org.gradle.caching.local.internal.DirectoryBuildCacheFileStoreFactory;
 import org.gradle.caching.local.internal.DirectoryBuildCacheServiceFactory;
 import org.gradle.internal.SystemProperties;
+import org.gradle.internal.concurrent.ExecutorFactory;
 import org.gradle.internal.file.Deleter;
 import org.gradle.internal.file.FileException;
 import org.gradle.internal.hash.ChecksumService;
@@ -49,6 +56,9 @@
 import org.gradle.internal.nativeintegration.filesystem.FileSystem;
 import org.gradle.internal.nativeintegration.network.HostnameLookup;
 import org.gradle.internal.operations.BuildOperationExecutor;
+import org.gradle.internal.options.InternalOption;
+import org.gradle.internal.options.InternalOptions;
+import org.gradle.internal.options.StringInternalOption;
 import org.gradle.internal.os.OperatingSystem;
 import org.gradle.internal.reflect.Instantiator;
 import org.gradle.internal.resource.local.DefaultPathKeyFileStore;
@@ -69,6 +79,11 @@
  */
 public final class BuildCacheServices extends AbstractPluginServiceRegistry {
 
+    /**
+     * The internal option used to select the codec for new cache entries, e.g. {@code -Dorg.gradle.caching.entry.codec=store}.
+     */
+    public static final InternalOption<String> ENTRY_CODEC_OPTION = new StringInternalOption("org.gradle.caching.entry.codec", GZipBuildCacheEntryCodec.NAME);
+
     @Override
     public void registerBuildTreeServices(ServiceRegistration registration) {
         registration.addProvider(new Object() {
@@ -115,14 +130,26 @@ TarPackerFileSystemSupport createPackerFileSystemSupport(Deleter deleter) {
                 return new DefaultTarPackerFileSystemSupport(deleter);
             }
 
+            ParallelDeflateBuildCacheEntryCodec createParallelDeflateBuildCacheEntryCodec(ExecutorFactory executorFactory) {
+                int parallelism = Runtime.getRuntime().availableProcessors();
+                return new ParallelDeflateBuildCacheEntryCodec(executorFactory.create("Build cache entry compression", parallelism), parallelism);
+            }
+
             BuildCacheEntryPacker createResultPacker(
                 TarPackerFileSystemSupport fileSystemSupport,
                 FileSystem fileSystem,
                 StreamHasher fileHasher,
-                StringInterner stringInterner
+                StringInterner stringInterner,
+                ParallelDeflateBuildCacheEntryCodec parallelDeflateCodec,
+                InternalOptions internalOptions
             ) {
-                return new GZipBuildCacheEntryPacker(
-                    new TarBuildCacheEntryPacker(fileSystemSupport, new FilePermissionsAccessAdapter(fileSystem), fileHasher, stringInterner));
+                List<BuildCacheEntryCodec> codecs = ImmutableList.of(new GZipBuildCacheEntryCodec(), new StoreBuildCacheEntryCodec(), parallelDeflateCodec);
+                BuildCacheEntryCodec codec = CodecBuildCacheEntryPacker.selectCodec(codecs, internalOptions.getOption(ENTRY_CODEC_OPTION));
+                return new CodecBuildCacheEntryPacker(
+                    new TarBuildCacheEntryPacker(fileSystemSupport, new FilePermissionsAccessAdapter(fileSystem), fileHasher, stringInterner),
+                    codec,
+                    codecs
+                );
             }
 
             OriginMetadataFactory createOriginMetadataFactory(
@@ -157,10 +184,12 @@ BuildCacheController createBuildCacheController(
                 InstantiatorFactory instantiatorFactory,
                 GradleInternal gradle,
                 RootBuildCacheControllerRef rootControllerRef,
-                TemporaryFileProvider temporaryFileProvider
+                TemporaryFileProvider temporaryFileProvider,
+                ExecutorFactory executorFactory,
+                InternalOptions internalOptions
             ) {
                 if (isRoot(gradle) || isGradleBuildTaskRoot(rootControllerRef)) {
-                    return doCreateBuildCacheController(serviceRegistry, buildCacheConfiguration, buildOperationExecutor, instantiatorFactory, gradle, temporaryFileProvider);
+                    return doCreateBuildCacheController(serviceRegistry, buildCacheConfiguration, buildOperationExecutor, instantiatorFactory, gradle, temporaryFileProvider, executorFactory, internalOptions);
                 } else {
                     // must be an included build or buildSrc
                     return rootControllerRef.getForNonRootBuild();
@@ -180,7 +209,7 @@ private boolean isRoot(GradleInternal gradle) {
                 return gradle.isRootBuild();
             }
 
-            private BuildCacheController doCreateBuildCacheController(ServiceRegistry serviceRegistry, BuildCacheConfigurationInternal buildCacheConfiguration, BuildOperationExecutor buildOperationExecutor, InstantiatorFactory instantiatorFactory, GradleInternal gradle, TemporaryFileProvider temporaryFileProvider) {
+            private BuildCacheController doCreateBuildCacheController(ServiceRegistry serviceRegistry, BuildCacheConfigurationInternal buildCacheConfiguration, BuildOperationExecutor buildOperationExecutor, InstantiatorFactory instantiatorFactory, GradleInternal gradle, TemporaryFileProvider temporaryFileProvider, ExecutorFactory executorFactory, InternalOptions internalOptions) {
                 StartParameter startParameter = gradle.getStartParameter();
                 Path buildIdentityPath = gradle.getIdentityPath();
                 BuildCacheControllerFactory.BuildCacheMode buildCacheMode = startParameter.isBuildCacheEnabled() ? BuildCacheControllerFactory.BuildCacheMode.ENABLED : BuildCacheControllerFactory.BuildCacheMode.DISABLED;
@@ -197,7 +226,9 @@ private BuildCacheController doCreateBuildCacheController(ServiceRegistry servic
                     remoteAccessMode,
                     logStackTraces,
                     emitDebugLogging,
-                    instantiatorFactory.inject(serviceRegistry)
+                    instantiatorFactory.inject(serviceRegistry),
+                    executorFactory,
+                    internalOptions.getOption(BuildCachePrefetcher.THREADS_OPTION)
                 );
             }
         });
@@ -26,6 +26,7 @@
 import org.gradle.caching.configuration.internal.BuildCacheConfigurationInternal;
 import org.gradle.caching.internal.FinalizeBuildCacheConfigurationBuildOperationType;
 import org.gradle.caching.internal.controller.BuildCacheController;
+import org.gradle.caching.internal.controller.BuildCachePrefetcher;
 import org.gradle.caching.internal.controller.DefaultBuildCacheController;
 import org.gradle.caching.internal.controller.NoOpBuildCacheController;
 import org.gradle.caching.internal.controller.service.BuildCacheServiceRole;
@@ -33,6 +34,7 @@
 import org.gradle.caching.local.DirectoryBuildCache;
 import org.gradle.caching.local.internal.DirectoryBuildCacheService;
 import org.gradle.internal.Cast;
+import org.gradle.internal.concurrent.ExecutorFactory;
 import org.gradle.internal.operations.BuildOperationContext;
 import org.gradle.internal.operations.BuildOperationDescriptor;
 import org.gradle.internal.operations.BuildOperationExecutor;
@@ -71,7 +73,9 @@ public static BuildCacheController create(
         final RemoteAccessMode remoteAccessMode,
         final boolean logStackTraces,
         final boolean emitDebugLogging,
-        final Instantiator instantiator
+        final Instantiator instantiator,
+        final ExecutorFactory executorFactory,
+        final int prefetchThreads
     ) {
         return buildOperationExecutor.call(new CallableBuildOperation<BuildCacheController>() {
             @Override
@@ -123,7 +127,8 @@ public BuildCacheController call(BuildOperationContext context) {
                         temporaryFileProvider,
                         logStackTraces,
                         emitDebugLogging,
-                        !Boolean.getBoolean(REMOTE_CONTINUE_ON_ERROR_PROPERTY)
+                        !Boolean.getBoolean(REMOTE_CONTINUE_ON_ERROR_PROPERTY),
+                        createPrefetcher(remoteDescribedService, temporaryFileProvider, executorFactory, prefetchThreads)
                     );
                 }
             }
@@ -136,6 +141,19 @@ public BuildOperationDescriptor.Builder description() {
         });
     }
 
+    @Nullable
+    private static BuildCachePrefetcher createPrefetcher(
+        @Nullable DescribedBuildCacheService<BuildCache, BuildCacheService> remote,
+        TemporaryFileProvider temporaryFileProvider,
+        ExecutorFactory executorFactory,
+        int threads
+    ) {
+        if (remote == null || threads == 0) {
+            return null;
+        }
+        return new BuildCachePrefetcher(remote.service, temporaryFileProvider, executorFactory.create("Build cache prefetch", threads));
+    }
+
     private static BuildCacheServicesConfiguration toConfiguration(
         @Nullable DescribedBuildCacheService<DirectoryBuildCache, DirectoryBuildCacheService> local,
         @Nullable DescribedBuildCacheService<BuildCache, BuildCacheService> remote
@@ -24,15 +24,27 @@
 import org.gradle.internal.operations.BuildOperationContext;
 import org.gradle.internal.operations.BuildOperationDescriptor;
 import org.gradle.internal.operations.BuildOperationExecutor;
+import org.gradle.internal.operations.BuildOperationProgressEventEmitter;
 import org.gradle.internal.operations.CallableBuildOperation;
+import org.gradle.internal.resources.ResourceLockCoordinationService;
+import org.gradle.internal.resources.ResourceLockWaitStatistics;
 
 public class BuildOperationFiringBuildWorkerExecutor implements BuildWorkExecutor {
     private final BuildWorkExecutor delegate;
     private final BuildOperationExecutor buildOperationExecutor;
+    private final BuildOperationProgressEventEmitter progressEventEmitter;
+    private final ResourceLockCoordinationService coordinationService;
 
-    public BuildOperationFiringBuildWorkerExecutor(BuildWorkExecutor delegate, BuildOperationExecutor buildOperationExecutor) {
+    public BuildOperationFiringBuildWorkerExecutor(
+        BuildWorkExecutor delegate,
+        BuildOperationExecutor buildOperationExecutor,
+        BuildOperationProgressEventEmitter progressEventEmitter,
+        ResourceLockCoordinationService coordinationService
+    ) {
         this.delegate = delegate;
         this.buildOperationExecutor = buildOperationExecutor;
+        this.progressEventEmitter = progressEventEmitter;
+        this.coordinationService = coordinationService;
     }
 
     @Override
@@ -51,7 +63,11 @@ public ExecuteTasks(GradleInternal gradle, ExecutionPlan plan) {
 
         @Override
         public ExecutionResult<Void> call(BuildOperationContext context) throws Exception {
+            ResourceLockWaitStatistics statisticsBefore = coordinationService.getWaitStatistics();
             ExecutionResult<Void> result = delegate.execute(gradle, plan);
+            // The coordination service is shared by all builds in the daemon, so this includes waits of builds running concurrently
+            ResourceLockWaitStatistics statistics = coordinationService.getWaitStatistics().since(statisticsBefore);
+            progressEventEmitter.emitNowForCurrent(new DefaultResourceLockWaitProgressDetails(statistics));
             if (!result.getFailures().isEmpty()) {
                 context.failed(result.getFailure());
             }
@@ -70,4 +86,27 @@ public BuildOperationDescriptor.Builder description() {
             return builder;
         }
     }
+
+    private static class DefaultResourceLockWaitProgressDetails implements ResourceLockWaitProgressDetails {
+        private final ResourceLockWaitStatistics statistics;
+
+        DefaultResourceLockWaitProgressDetails(ResourceLockWaitStatistics statistics) {
+            this.statistics = statistics;
+        }
+
+        @Override
+        public long getBlockedCount() {
+            return statistics.getBlockedCount();
+        }
+
+        @Override
+        public long getRetryCount() {
+            return statistics.getRetryCount();
+        }
+
+        @Override
+        public long getTotalWaitTimeMillis() {
+            return statistics.getTotalWaitTimeMillis();
+        }
+    }
 }
@@ -0,0 +1,35 @@
+/*
+ * Copyright 2021 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.execution;
+
+/**
+ * Progress details emitted at the end of running the tasks of a build, describing how long worker threads waited for resource locks
+ * such as project locks, worker leases and shared resources.
+ */
+public interface ResourceLockWaitProgressDetails {
+    /**
+     * The number of lock requests which had to wait at least once.
+     */
+    long getBlockedCount();
+
+    /**
+     * The number of times a waiting lock request was retried. Retries beyond {@link #getBlockedCount()} did not make progress.
+     */
+    long getRetryCount();
+
+    long getTotalWaitTimeMillis();
+}
@@ -70,8 +70,8 @@ public class DefaultExecutionPlan implements ExecutionPlan {
 
     private final Set<Node> entryNodes = new LinkedHashSet<>();
     private final NodeMapping nodeMapping = new NodeMapping();
-    private final List<Node> executionQueue = new LinkedList<>();
-    private final Set<ResourceLock> projectLocks = new HashSet<>();
+    private final Set<Node> executionQueue = new LinkedHashSet<>();
+    private final ReadyNodes readyNodes = new ReadyNodes();
     private final FailureCollector failureCollector = new FailureCollector();
     private final String displayName;
     private final TaskNodeFactory taskNodeFactory;
@@ -89,7 +89,6 @@ public class DefaultExecutionPlan implements ExecutionPlan {
     private final Set<Node> producedButNotYetConsumed = newIdentityHashSet();
     private final Map<Pair<Node, Node>, Boolean> reachableCache = new HashMap<>();
     private final List<Node> dependenciesWhichRequireMonitoring = new ArrayList<>();
-    private boolean maybeNodesReady;
 
     private boolean buildCancelled;
 
@@ -336,11 +335,6 @@ public NodeInVisitingSegment apply(Node node) {
                     dependency.getMutationInfo().consumingNodes.add(node);
                 }
 
-                ResourceLock projectLock = node.getProjectToLock();
-                if (projectLock != null) {
-                    projectLocks.add(projectLock);
-                }
-
                 // Add any finalizers to the queue
                 for (Node finalizer : node.getFinalizers()) {
                     if (!visitingNodes.containsKey(finalizer)) {
@@ -354,8 +348,10 @@ public NodeInVisitingSegment apply(Node node) {
         dependencyResolver.clear();
         nodeMapping.removeIf(Node::requiresMonitoring);
         executionQueue.addAll(nodeMapping);
+        readyNodes.reset(executionQueue);
         for (Node node : executionQueue) {
-            maybeNodesReady |= node.updateAllDependenciesComplete() && node.isReady();
+            node.updateAllDependenciesComplete();
+            maybeNodeReady(node);
         }
         this.dependenciesWhichRequireMonitoring.addAll(dependenciesWhichRequireMonitoring);
     }
@@ -546,11 +542,6 @@ public void setContinueOnFailure(boolean continueOnFailure) {
     @Override
     @Nullable
     public Node selectNext(WorkerLeaseRegistry.WorkerLease workerLease, ResourceLockState resourceLockState) {
-        if (allProjectsLocked()) {
-            // TODO - this is incorrect. We can still run nodes that don't need a project lock
-            return null;
-        }
-
         for (Iterator<Node> iterator = dependenciesWhichRequireMonitoring.iterator(); iterator.hasNext();) {
             Node node = iterator.next();
             if (node.isComplete()) {
@@ -559,49 +550,56 @@ public Node selectNext(WorkerLeaseRegistry.WorkerLease workerLease, ResourceLock
                 iterator.remove();
             }
         }
-        if (!maybeNodesReady) {
+        if (readyNodes.isEmpty()) {
             return null;
         }
-        Iterator<Node> iterator = executionQueue.iterator();
-        boolean foundReadyNode = false;
-        while (iterator.hasNext()) {
-            Node node = iterator.next();
-            if (node.isReady() && node.allDependenciesComplete()) {
-                foundReadyNode = true;
 
-                if (!tryAcquireWorkerLeaseForNode(node, workerLease)) {
-                    resourceLockState.releaseLocks();
-                    // if we can't get a worker lease, we won't be able to execute any other nodes, either
-                    break;
-                }
+        // Nodes of projects which are locked by other workers are not offered, so nodes that don't need a project lock can still run
+        List<Node> noLongerReady = new ArrayList<>();
+        Node selected = null;
+        for (Node node : readyNodes.candidates()) {
+            if (!node.isReady() || !node.allDependenciesComplete()) {
+                noLongerReady.add(node);
+                continue;
+            }
 
-                if (!tryAcquireLocksForNode(node)) {
-                    resourceLockState.releaseLocks();
-                    continue;
-                }
+            if (!tryAcquireWorkerLeaseForNode(node, workerLease)) {
+                resourceLockState.releaseLocks();
+                // if we can't get a worker lease, we won't be able to execute any other nodes, either
+                break;
+            }
 
-                MutationInfo mutations = getResolvedMutationInfo(node);
+            if (!tryAcquireLocksForNode(node)) {
+                resourceLockState.releaseLocks();
+                continue;
+            }
 
-                if (conflictsWithOtherNodes(node, mutations)) {
-                    resourceLockState.releaseLocks();
-                    continue;
-                }
+            if (conflictsWithOtherNodes(node, getResolvedMutationInfo(node))) {
+                resourceLockState.releaseLocks();
+                continue;
+            }
 
-                if (node.allDependenciesSuccessful()) {
-                    node.startExecution(this::recordNodeExecutionStarted);
-                    if (mutations.hasValidationProblem) {
-                        invalidNodeRunning = true;
-                    }
-                } else {
-                    node.skipExecution(this::recordNodeCompleted);
-                }
-                iterator.remove();
-                return node;
+            selected = node;
+            break;
+        }
+        noLongerReady.forEach(readyNodes::remove);
+
+        if (selected == null) {
+            LOGGER.debug("No node could be selected, nodes ready: {}", !readyNodes.isEmpty());
+            return null;
+        }
+
+        readyNodes.remove(selected);
+        executionQueue.remove(selected);
+        if (selected.allDependenciesSuccessful()) {
+            selected.startExecution(this::recordNodeExecutionStarted);
+            if (selected.getMutationInfo().hasValidationProblem) {
+                invalidNodeRunning = true;
             }
+        } else {
+            selected.skipExecution(this::recordNodeCompleted);
         }
-        LOGGER.debug("No node could be selected, nodes ready: {}", foundReadyNode);
-        maybeNodesReady = foundReadyNode;
-        return null;
+        return selected;
     }
 
     private boolean tryAcquireLocksForNode(Node node) {
@@ -637,7 +635,15 @@ private boolean tryAcquireWorkerLeaseForNode(Node node, WorkerLeaseRegistry.Work
 
     private void updateAllDependenciesCompleteForPredecessors(Node node) {
         for (Node predecessor : node.getAllPredecessors()) {
-            maybeNodesReady |= predecessor.updateAllDependenciesComplete() && predecessor.isReady();
+            if (predecessor.updateAllDependenciesComplete()) {
+                maybeNodeReady(predecessor);
+            }
+        }
+    }
+
+    private void maybeNodeReady(Node node) {
+        if (node.isReady() && node.allDependenciesComplete()) {
+            readyNodes.add(node);
         }
     }
 
@@ -676,15 +682,6 @@ private MutationInfo getResolvedMutationInfo(Node node) {
         return mutations;
     }
 
-    private boolean allProjectsLocked() {
-        for (ResourceLock lock : projectLocks) {
-            if (!lock.isLocked()) {
-                return false;
-            }
-        }
-        return !projectLocks.isEmpty();
-    }
-
     private boolean canRunWithCurrentlyExecutedNodes(MutationInfo mutations) {
         if (mutations.hasValidationProblem) {
             if (!runningNodes.isEmpty()) {
@@ -794,7 +791,6 @@ public void finishedExecuting(Node node) {
         try {
             if (!node.isComplete()) {
                 enforceFinalizers(node);
-                maybeNodesReady = true;
                 if (node.isFailed()) {
                     LOGGER.debug("Node {} failed", node);
                     handleFailure(node);
@@ -814,7 +810,7 @@ public void finishedExecuting(Node node) {
         }
     }
 
-    private static void enforceFinalizers(Node node) {
+    private void enforceFinalizers(Node node) {
         for (Node finalizerNode : node.getFinalizers()) {
             if (finalizerNode.isRequired() || finalizerNode.isMustNotRun()) {
                 enforceWithDependencies(finalizerNode);
@@ -822,7 +818,7 @@ private static void enforceFinalizers(Node node) {
         }
     }
 
-    private static void enforceWithDependencies(Node node) {
+    private void enforceWithDependencies(Node node) {
         Set<Node> enforcedNodes = new HashSet<>();
 
         Deque<Node> candidates = new ArrayDeque<>();
@@ -837,6 +833,8 @@ private static void enforceWithDependencies(Node node) {
 
                 if (candidate.isMustNotRun() || candidate.isRequired()) {
                     candidate.enforceRun();
+                    // The node may already have all of its dependencies complete, in which case it can run now
+                    maybeNodeReady(candidate);
                     // Completed changed from true to false - inform all nodes depending on this one.
                     for (Node predecessor : candidate.getAllPredecessors()) {
                         predecessor.forceAllDependenciesCompleteUpdate();
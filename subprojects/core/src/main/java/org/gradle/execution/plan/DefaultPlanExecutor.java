@@ -44,6 +44,16 @@
 @NonNullApi
 public class DefaultPlanExecutor implements PlanExecutor {
     private static final Logger LOGGER = LoggerFactory.getLogger(DefaultPlanExecutor.class);
+    /**
+     * The state that threads waiting for a node to complete wait for. Nodes can depend on nodes of other builds, which are executed by
+     * other plans, so this is shared by all plans.
+     */
+    private static final Object NODE_COMPLETION = new Object() {
+        @Override
+        public String toString() {
+            return "node completion";
+        }
+    };
     private final int executorCount;
     private final ExecutorFactory executorFactory;
     private final WorkerLeaseService workerLeaseService;
@@ -85,6 +95,7 @@ private void awaitCompletion(final ExecutionPlan executionPlan, final Collection
                 executionPlan.collectFailures(failures);
                 return FINISHED;
             } else {
+                resourceLockState.registerWaitingFor(NODE_COMPLETION);
                 return RETRY;
             }
         });
@@ -202,11 +213,12 @@ private boolean executeNextNode(final WorkerLease workerLease, final Action<Node
                 }
 
                 if (selected.get() == null && nodesRemaining.get()) {
-                    // Release worker lease while waiting
+                    // Release worker lease while waiting, the coordination service wakes up threads waiting for a lease
                     if (workerLease.isLockedByCurrentThread()) {
                         workerLease.unlock();
-                        coordinationService.notifyStateChange();
                     }
+                    // Wait for a node to complete, or for one of the resources that could not be acquired to be released
+                    resourceLockState.registerWaitingFor(NODE_COMPLETION);
                     return RETRY;
                 } else {
                     return FINISHED;
@@ -232,9 +244,9 @@ private void execute(final Node selected, Action<Node> nodeExecutor) {
             } finally {
                 coordinationService.withStateLock(state -> {
                     executionPlan.finishedExecuting(selected);
-                    // Notify other threads that the node is finished as this may unblock further work
+                    // Notify the threads waiting for a node to complete, as this may unblock further work
                     // or this might be the last node in the graph
-                    coordinationService.notifyStateChange();
+                    coordinationService.notifyStateChange(NODE_COMPLETION);
                     return FINISHED;
                 });
             }
@@ -0,0 +1,194 @@
+/*
+ * Copyright 2021 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.execution.plan;
+
+import com.google.common.collect.AbstractIterator;
+import org.gradle.api.NonNullApi;
+import org.gradle.internal.resources.ResourceLock;
+
+import javax.annotation.Nullable;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NavigableSet;
+import java.util.PriorityQueue;
+import java.util.TreeSet;
+
+/**
+ * The set of nodes of an execution plan that may be ready to execute, maintained as nodes become ready instead of being discovered by scanning the whole plan.
+ *
+ * <p>Nodes are grouped by the project lock they require, with a separate group for nodes that do not require a project lock.
+ * When looking for a node to execute, groups whose project lock is held by another thread are skipped as a whole, so that nodes
+ * which don't need a project lock can still be selected when all project locks are taken.</p>
+ *
+ * <p>Candidates are offered in execution plan order. A node is only added when it becomes ready, and the caller is responsible for
+ * removing nodes which are no longer ready, for example because they have been selected or a finalizer has been enforced.</p>
+ *
+ * <p>This class is not thread-safe, and the nodes must not be modified while iterating over the candidates.</p>
+ */
+@NonNullApi
+class ReadyNodes {
+    private final Map<Node, Integer> planOrder = new IdentityHashMap<>();
+    private final Comparator<Node> inPlanOrder = Comparator.comparingInt(planOrder::get);
+    private final Map<ResourceLock, Group> groupsByProjectLock = new HashMap<>();
+    private final Group nodesWithoutProjectLock = new Group(null);
+    private final Map<Node, Group> groupsByNode = new IdentityHashMap<>();
+    private final NavigableSet<Group> nonEmptyGroups = new TreeSet<>(Comparator.comparing(Group::first, inPlanOrder));
+
+    /**
+     * Discards all ready nodes and uses the given nodes, in iteration order, as the execution plan.
+     */
+    public void reset(Iterable<Node> plan) {
+        planOrder.clear();
+        groupsByProjectLock.clear();
+        nodesWithoutProjectLock.nodes.clear();
+        groupsByNode.clear();
+        nonEmptyGroups.clear();
+        int index = 0;
+        for (Node node : plan) {
+            planOrder.put(node, index++);
+        }
+    }
+
+    /**
+     * Adds a node which has become ready to execute. Nodes which are not part of the execution plan are ignored.
+     */
+    public void add(Node node) {
+        if (!planOrder.containsKey(node)) {
+            return;
+        }
+        Group group = groupsByNode.computeIfAbsent(node, this::groupFor);
+        if (group.nodes.isEmpty()) {
+            group.nodes.add(node);
+            nonEmptyGroups.add(group);
+        } else if (!group.nodes.contains(node)) {
+            // Re-insert the group, since its position depends on its first node
+            nonEmptyGroups.remove(group);
+            group.nodes.add(node);
+            nonEmptyGroups.add(group);
+        }
+    }
+
+    /**
+     * Removes a node which is not ready to execute any more.
+     */
+    public void remove(Node node) {
+        Group group = groupsByNode.get(node);
+        if (group == null || !group.nodes.contains(node)) {
+            return;
+        }
+        nonEmptyGroups.remove(group);
+        group.nodes.remove(node);
+        if (!group.nodes.isEmpty()) {
+            nonEmptyGroups.add(group);
+        }
+    }
+
+    public boolean isEmpty() {
+        return nonEmptyGroups.isEmpty();
+    }
+
+    /**
+     * Returns the ready nodes in execution plan order, skipping the nodes whose project lock is held by some other thread.
+     */
+    public Iterable<Node> candidates() {
+        return CandidateIterator::new;
+    }
+
+    private Group groupFor(Node node) {
+        ResourceLock projectLock = node.getProjectToLock();
+        if (projectLock == null) {
+            return nodesWithoutProjectLock;
+        }
+        return groupsByProjectLock.computeIfAbsent(projectLock, Group::new);
+    }
+
+    private static boolean isLockedByOtherThread(@Nullable ResourceLock lock) {
+        return lock != null && lock.isLocked() && !lock.isLockedByCurrentThread();
+    }
+
+    private class Group {
+        @Nullable
+        private final ResourceLock projectLock;
+        private final NavigableSet<Node> nodes = new TreeSet<>(inPlanOrder);
+
+        private Group(@Nullable ResourceLock projectLock) {
+            this.projectLock = projectLock;
+        }
+
+        Node first() {
+            return nodes.first();
+        }
+    }
+
+    /**
+     * Lazily merges the available groups, so that only the groups which contain one of the returned nodes are looked at.
+     */
+    private class CandidateIterator extends AbstractIterator<Node> {
+        private final Iterator<Group> groups = nonEmptyGroups.iterator();
+        private final PriorityQueue<Cursor> cursors = new PriorityQueue<>(Comparator.comparing((Cursor cursor) -> cursor.current, inPlanOrder));
+        private Group nextGroup = nextAvailableGroup();
+
+        @Override
+        protected Node computeNext() {
+            while (nextGroup != null && (cursors.isEmpty() || inPlanOrder.compare(nextGroup.first(), cursors.peek().current) < 0)) {
+                cursors.add(new Cursor(nextGroup.nodes.iterator()));
+                nextGroup = nextAvailableGroup();
+            }
+            Cursor cursor = cursors.poll();
+            if (cursor == null) {
+                return endOfData();
+            }
+            Node node = cursor.current;
+            if (cursor.advance()) {
+                cursors.add(cursor);
+            }
+            return node;
+        }
+
+        @Nullable
+        private Group nextAvailableGroup() {
+            while (groups.hasNext()) {
+                Group group = groups.next();
+                if (!isLockedByOtherThread(group.projectLock)) {
+                    return group;
+                }
+            }
+            return null;
+        }
+    }
+
+    private static class Cursor {
+        private final Iterator<Node> nodes;
+        private Node current;
+
+        private Cursor(Iterator<Node> nodes) {
+            this.nodes = nodes;
+            this.current = nodes.next();
+        }
+
+        boolean advance() {
+            if (nodes.hasNext()) {
+                current = nodes.next();
+                return true;
+            }
+            return false;
+        }
+    }
+}
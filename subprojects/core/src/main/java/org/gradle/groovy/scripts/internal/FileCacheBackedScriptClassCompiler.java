@@ -21,6 +21,7 @@
 import org.gradle.api.file.RelativePath;
 import org.gradle.api.internal.initialization.ClassLoaderScope;
 import org.gradle.cache.PersistentCache;
+import org.gradle.cache.internal.ReadOnlyBuildLogicCache;
 import org.gradle.cache.scopes.GlobalScopedCache;
 import org.gradle.groovy.scripts.ScriptSource;
 import org.gradle.internal.Pair;
@@ -50,6 +51,7 @@
 import java.io.File;
 import java.io.IOException;
 import java.net.URI;
+import java.util.Optional;
 
 import static org.gradle.internal.classpath.CachedClasspathTransformer.StandardTransform.BuildLogic;
 
@@ -63,12 +65,14 @@ public class FileCacheBackedScriptClassCompiler implements ScriptClassCompiler,
     private final GlobalScopedCache cacheRepository;
     private final ClassLoaderHierarchyHasher classLoaderHierarchyHasher;
     private final CachedClasspathTransformer classpathTransformer;
+    private final ReadOnlyBuildLogicCache readOnlyCache;
 
     public FileCacheBackedScriptClassCompiler(
         GlobalScopedCache cacheRepository, ScriptCompilationHandler scriptCompilationHandler,
         ProgressLoggerFactory progressLoggerFactory, ClassLoaderHierarchyHasher classLoaderHierarchyHasher,
-        CachedClasspathTransformer classpathTransformer) {
+        CachedClasspathTransformer classpathTransformer, ReadOnlyBuildLogicCache readOnlyCache) {
         this.cacheRepository = cacheRepository;
+        this.readOnlyCache = readOnlyCache;
         this.scriptCompilationHandler = scriptCompilationHandler;
         this.progressLoggerFactory = progressLoggerFactory;
         this.classLoaderHierarchyHasher = classLoaderHierarchyHasher;
@@ -100,6 +104,13 @@ public <T extends Script, M> CompiledScript<T, M> compile(final ScriptSource sou
         hasher.putHash(sourceHashCode);
         hasher.putHash(classLoaderHash);
         String key = hasher.hash().toCompactString();
+        String cacheKey = "scripts/" + key;
+
+        // A script compiled into the read-only cache is used without locking, as the read-only cache is never changed
+        Optional<File> readOnlyCacheDir = readOnlyCacheDirFor(cacheKey, operation);
+        if (readOnlyCacheDir.isPresent()) {
+            return loadFromDir(source, sourceHashCode, targetScope, readOnlyCacheDir.get(), remapped, operation, scriptBaseClass);
+        }
 
         // Caching involves 2 distinct caches, so that 2 scripts with the same (hash, classpath) do not get compiled twice
         // 1. First, we look for a cache script which (path, hash) matches. This cache is invalidated when the compile classpath of the script changes
@@ -107,7 +118,7 @@ public <T extends Script, M> CompiledScript<T, M> compile(final ScriptSource sou
         // Both caches can be closed directly after use because:
         // For 1, if the script changes or its compile classpath changes, a different directory will be used
         // For 2, if the script changes, a different cache is used. If the classpath changes, the cache is invalidated, but classes are remapped to 1. anyway so never directly used
-        final PersistentCache cache = cacheRepository.cache("scripts/" + key)
+        final PersistentCache cache = cacheRepository.cache(cacheKey)
             .withDisplayName(dslId + " generic class cache for " + source.getDisplayName())
             .withInitializer(new ProgressReportingInitializer(
                 progressLoggerFactory,
@@ -115,15 +126,26 @@ public <T extends Script, M> CompiledScript<T, M> compile(final ScriptSource sou
                 "Compiling " + source.getShortDisplayName()))
             .open();
         try {
-            File genericClassesDir = classesDir(cache, operation);
-            File metadataDir = metadataDir(cache);
-            ClassPath remappedClasses = remapClasses(genericClassesDir, remapped);
-            return scriptCompilationHandler.loadFromDir(source, sourceHashCode, targetScope, remappedClasses, metadataDir, operation, scriptBaseClass);
+            return loadFromDir(source, sourceHashCode, targetScope, cache.getBaseDir(), remapped, operation, scriptBaseClass);
         } finally {
             cache.close();
         }
     }
 
+    private Optional<File> readOnlyCacheDirFor(String cacheKey, CompileOperation<?> operation) {
+        // The metadata is written once the classes have been compiled, so its presence marks a complete entry
+        return readOnlyCache.readOnlyLocationOf(cacheRepository.baseDirForCache(cacheKey))
+            .filter(cacheDir -> classesDir(cacheDir, operation).isDirectory() && metadataDir(cacheDir).isDirectory());
+    }
+
+    private <T extends Script, M> CompiledScript<T, M> loadFromDir(ScriptSource source, HashCode sourceHashCode, ClassLoaderScope targetScope, File cacheDir,
+                                                                   RemappingScriptSource remapped, CompileOperation<M> operation, Class<T> scriptBaseClass) {
+        File genericClassesDir = classesDir(cacheDir, operation);
+        File metadataDir = metadataDir(cacheDir);
+        ClassPath remappedClasses = remapClasses(genericClassesDir, remapped);
+        return scriptCompilationHandler.loadFromDir(source, sourceHashCode, targetScope, remappedClasses, metadataDir, operation, scriptBaseClass);
+    }
+
     private <T extends Script, M> CompiledScript<T, M> emptyCompiledScript(CompileOperation<M> operation) {
         return new EmptyCompiledScript<>(operation);
     }
@@ -159,12 +181,12 @@ public Pair<RelativePath, ClassVisitor> apply(ClasspathEntryVisitor.Entry entry,
     public void close() {
     }
 
-    private File classesDir(PersistentCache cache, CompileOperation<?> operation) {
-        return new File(cache.getBaseDir(), operation.getId());
+    private File classesDir(File cacheDir, CompileOperation<?> operation) {
+        return new File(cacheDir, operation.getId());
     }
 
-    private File metadataDir(PersistentCache cache) {
-        return new File(cache.getBaseDir(), "metadata");
+    private File metadataDir(File cacheDir) {
+        return new File(cacheDir, "metadata");
     }
 
     private class CompileToCrossBuildCacheAction implements Action<PersistentCache> {
@@ -185,8 +207,8 @@ public <T extends Script> CompileToCrossBuildCacheAction(ScriptSource source, Cl
 
         @Override
         public void execute(PersistentCache cache) {
-            File classesDir = classesDir(cache, operation);
-            File metadataDir = metadataDir(cache);
+            File classesDir = classesDir(cache.getBaseDir(), operation);
+            File metadataDir = metadataDir(cache.getBaseDir());
             scriptCompilationHandler.compileToDir(source, classLoader, classesDir, metadataDir, operation, scriptBaseClass, verifier);
         }
     }
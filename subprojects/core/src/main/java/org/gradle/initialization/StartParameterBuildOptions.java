@@ -32,6 +32,7 @@
 import org.gradle.internal.buildoption.ListBuildOption;
 import org.gradle.internal.buildoption.Origin;
 import org.gradle.internal.buildoption.StringBuildOption;
+import org.gradle.internal.hash.FileContentHashFunction;
 import org.gradle.internal.watch.vfs.WatchMode;
 
 import java.io.File;
@@ -66,6 +67,7 @@ public class StartParameterBuildOptions extends BuildOptionSet<StartParameterInt
         options.add(new WatchFileSystemOption());
         options.add(new WatchFileSystemDebugLoggingOption());
         options.add(new VfsVerboseLoggingOption());
+        options.add(new FileContentHashFunctionOption());
         options.add(new BuildScanOption());
         options.add(new DependencyLockingWriteOption());
         options.add(new DependencyVerificationWriteOption());
@@ -345,6 +347,19 @@ public void applyTo(boolean value, StartParameterInternal startParameter, Origin
         }
     }
 
+    public static class FileContentHashFunctionOption extends EnumBuildOption<FileContentHashFunction, StartParameterInternal> {
+        public static final String GRADLE_PROPERTY = FileContentHashFunction.SYSTEM_PROPERTY;
+
+        public FileContentHashFunctionOption() {
+            super(GRADLE_PROPERTY, FileContentHashFunction.class, FileContentHashFunction.values(), GRADLE_PROPERTY);
+        }
+
+        @Override
+        public void applyTo(FileContentHashFunction value, StartParameterInternal startParameter, Origin origin) {
+            startParameter.setFileContentHashFunction(value);
+        }
+    }
+
     public static class BuildScanOption extends BooleanBuildOption<StartParameterInternal> {
         public static final String LONG_OPTION = "scan";
 
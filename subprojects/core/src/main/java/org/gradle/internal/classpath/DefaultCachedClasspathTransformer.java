@@ -20,6 +20,7 @@
 import org.gradle.cache.FileLockManager;
 import org.gradle.cache.GlobalCacheLocations;
 import org.gradle.cache.PersistentCache;
+import org.gradle.cache.internal.ReadOnlyBuildLogicCache;
 import org.gradle.cache.scopes.GlobalScopedCache;
 import org.gradle.internal.Either;
 import org.gradle.internal.concurrent.CompositeStoppable;
@@ -32,6 +33,7 @@
 import org.gradle.internal.snapshot.FileSystemLocationSnapshot;
 import org.gradle.internal.vfs.FileSystemAccess;
 
+import javax.annotation.Nullable;
 import java.io.Closeable;
 import java.io.File;
 import java.net.URL;
@@ -59,6 +61,10 @@ public class DefaultCachedClasspathTransformer implements CachedClasspathTransfo
     private final GlobalCacheLocations globalCacheLocations;
     private final FileLockManager fileLockManager;
     private final ManagedExecutor executor;
+    private final ManagedExecutor entryExecutor;
+    private final ReadOnlyBuildLogicCache readOnlyCache;
+    @Nullable
+    private final File readOnlyCacheDir;
 
     public DefaultCachedClasspathTransformer(
         GlobalScopedCache globalScopedCache,
@@ -69,7 +75,8 @@ public DefaultCachedClasspathTransformer(
         FileSystemAccess fileSystemAccess,
         ExecutorFactory executorFactory,
         GlobalCacheLocations globalCacheLocations,
-        FileLockManager fileLockManager
+        FileLockManager fileLockManager,
+        ReadOnlyBuildLogicCache readOnlyCache
     ) {
         this.classpathWalker = classpathWalker;
         this.classpathBuilder = classpathBuilder;
@@ -77,13 +84,17 @@ public DefaultCachedClasspathTransformer(
         this.globalCacheLocations = globalCacheLocations;
         this.fileLockManager = fileLockManager;
         this.cache = classpathTransformerCacheFactory.createCache(globalScopedCache, fileAccessTimeJournal);
+        this.readOnlyCache = readOnlyCache;
+        this.readOnlyCacheDir = readOnlyCache.readOnlyLocationOf(cache.getBaseDir()).orElse(null);
         this.fileAccessTracker = classpathTransformerCacheFactory.createFileAccessTracker(cache, fileAccessTimeJournal);
         this.executor = executorFactory.create("jar transforms", Runtime.getRuntime().availableProcessors());
+        // The jar transforms wait for the entries to be transformed, so these need their own threads
+        this.entryExecutor = executorFactory.create("jar entry transforms", Runtime.getRuntime().availableProcessors());
     }
 
     @Override
     public void close() {
-        CompositeStoppable.stoppable(executor, cache).stop();
+        CompositeStoppable.stoppable(executor, entryExecutor, cache).stop();
     }
 
     @Override
@@ -151,7 +162,7 @@ private ClasspathFileTransformer fileTransformerFor(StandardTransform transform)
     }
 
     private InstrumentingClasspathFileTransformer instrumentingClasspathFileTransformerFor(CachedClasspathTransformer.Transform transform) {
-        return new InstrumentingClasspathFileTransformer(fileLockManager, classpathWalker, classpathBuilder, transform);
+        return new InstrumentingClasspathFileTransformer(fileLockManager, classpathWalker, classpathBuilder, transform, entryExecutor, readOnlyCache);
     }
 
     private Optional<Either<URL, Callable<URL>>> cachedURL(URL original, ClasspathFileTransformer transformer, Set<HashCode> seen) {
@@ -201,7 +212,8 @@ private FileSystemLocationSnapshot snapshotOf(File file) {
 
     private boolean shouldUseFromCache(File original) {
         // Transform everything that has not already been transformed
-        return !original.toPath().startsWith(cache.getBaseDir().toPath());
+        return !original.toPath().startsWith(cache.getBaseDir().toPath())
+            && (readOnlyCacheDir == null || !original.toPath().startsWith(readOnlyCacheDir.toPath()));
     }
 
     private void markAccessed(File result, File original) {
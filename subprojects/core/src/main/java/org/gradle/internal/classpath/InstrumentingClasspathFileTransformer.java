@@ -16,6 +16,7 @@
 
 package org.gradle.internal.classpath;
 
+import com.google.common.annotations.VisibleForTesting;
 import org.gradle.api.UncheckedIOException;
 import org.gradle.api.file.RelativePath;
 import org.gradle.api.internal.file.archive.ZipEntry;
@@ -23,7 +24,9 @@
 import org.gradle.api.internal.file.archive.impl.FileZipInput;
 import org.gradle.cache.FileLock;
 import org.gradle.cache.FileLockManager;
+import org.gradle.cache.internal.ReadOnlyBuildLogicCache;
 import org.gradle.internal.Pair;
+import org.gradle.internal.UncheckedException;
 import org.gradle.internal.file.FileException;
 import org.gradle.internal.file.FileType;
 import org.gradle.internal.hash.HashCode;
@@ -39,6 +42,12 @@
 
 import java.io.File;
 import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.Optional;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.FutureTask;
 
 import static java.lang.String.format;
 import static org.gradle.cache.internal.filelock.LockOptionsBuilder.mode;
@@ -46,23 +55,37 @@
 class InstrumentingClasspathFileTransformer implements ClasspathFileTransformer {
     private static final Logger LOGGER = LoggerFactory.getLogger(InstrumentingClasspathFileTransformer.class);
     private static final int CACHE_FORMAT = 5;
+    /**
+     * The maximum number of entries of a single classpath element that are read but not yet written to the instrumented jar.
+     */
+    private static final int MAX_PENDING_ENTRIES = 64;
 
     private final FileLockManager fileLockManager;
     private final ClasspathWalker classpathWalker;
     private final ClasspathBuilder classpathBuilder;
     private final CachedClasspathTransformer.Transform transform;
+    private final Executor entryExecutor;
+    private final ReadOnlyBuildLogicCache readOnlyCache;
     private final HashCode configHash;
 
+    /**
+     * @param entryExecutor Used to instrument the classes of a classpath element. The instrumented classes are written to the jar in the order of the original
+     * entries, so the output does not depend on the executor. Must not be an executor that is waiting for the transformation of the classpath element.
+     */
     public InstrumentingClasspathFileTransformer(
         FileLockManager fileLockManager,
         ClasspathWalker classpathWalker,
         ClasspathBuilder classpathBuilder,
-        CachedClasspathTransformer.Transform transform
+        CachedClasspathTransformer.Transform transform,
+        Executor entryExecutor,
+        ReadOnlyBuildLogicCache readOnlyCache
     ) {
         this.fileLockManager = fileLockManager;
         this.classpathWalker = classpathWalker;
         this.classpathBuilder = classpathBuilder;
         this.transform = transform;
+        this.entryExecutor = entryExecutor;
+        this.readOnlyCache = readOnlyCache;
         this.configHash = configHashFor(transform);
     }
 
@@ -86,6 +109,12 @@ public File transform(File source, FileSystemLocationSnapshot sourceSnapshot, Fi
             return transformed;
         }
 
+        // The read-only cache is never changed, so a complete entry can be used without locking
+        Optional<File> readOnlyTransformed = readOnlyCopyOf(transformed, receipt);
+        if (readOnlyTransformed.isPresent()) {
+            return readOnlyTransformed.get();
+        }
+
         final File lockFile = new File(destDir, destFileName + ".lock");
         final FileLock fileLock = exclusiveLockFor(lockFile);
         try {
@@ -108,6 +137,12 @@ public File transform(File source, FileSystemLocationSnapshot sourceSnapshot, Fi
         }
     }
 
+    private Optional<File> readOnlyCopyOf(File transformed, File receipt) {
+        return readOnlyCache.readOnlyLocationOf(receipt)
+            .filter(File::isFile)
+            .flatMap(readOnlyReceipt -> readOnlyCache.readOnlyLocationOf(transformed));
+    }
+
     private FileLock exclusiveLockFor(File file) {
         return fileLockManager.lock(
             file,
@@ -133,7 +168,8 @@ private void transform(File source, File dest) {
         }
     }
 
-    private void instrument(File source, File dest) {
+    @VisibleForTesting
+    void instrument(File source, File dest) {
         classpathBuilder.jar(dest, builder -> {
             try {
                 visitEntries(source, builder);
@@ -145,22 +181,75 @@ private void instrument(File source, File dest) {
     }
 
     private void visitEntries(File source, ClasspathBuilder.EntryBuilder builder) throws IOException, FileException {
-        classpathWalker.visit(source, entry -> {
-            try {
-                if (entry.getName().endsWith(".class")) {
-                    ClassReader reader = new ClassReader(entry.getContent());
-                    ClassWriter classWriter = new ClassWriter(ClassWriter.COMPUTE_MAXS);
-                    Pair<RelativePath, ClassVisitor> chain = transform.apply(entry, classWriter);
-                    reader.accept(chain.right, 0);
-                    byte[] bytes = classWriter.toByteArray();
-                    builder.put(chain.left.getPathString(), bytes);
-                } else {
-                    builder.put(entry.getName(), entry.getContent());
+        Deque<FutureTask<Pair<String, byte[]>>> pendingEntries = new ArrayDeque<>();
+        try {
+            classpathWalker.visit(source, entry -> {
+                pendingEntries.add(process(source, entry));
+                while (!pendingEntries.isEmpty() && (pendingEntries.size() > MAX_PENDING_ENTRIES || pendingEntries.peek().isDone())) {
+                    write(pendingEntries.remove(), builder);
                 }
+            });
+            while (!pendingEntries.isEmpty()) {
+                write(pendingEntries.remove(), builder);
+            }
+        } finally {
+            for (FutureTask<Pair<String, byte[]>> pendingEntry : pendingEntries) {
+                pendingEntry.cancel(false);
+            }
+        }
+    }
+
+    /**
+     * Reads the content of the entry, which is only available while the entry is being visited, and instruments it on the entry executor when it is a class.
+     */
+    private FutureTask<Pair<String, byte[]>> process(File source, ClasspathEntryVisitor.Entry entry) throws IOException {
+        String name = entry.getName();
+        byte[] content;
+        try {
+            content = entry.getContent();
+        } catch (Throwable e) {
+            throw failedToProcess(source, name, e);
+        }
+        if (!name.endsWith(".class")) {
+            FutureTask<Pair<String, byte[]>> resource = new FutureTask<>(() -> Pair.of(name, content));
+            resource.run();
+            return resource;
+        }
+        ClasspathEntryVisitor.Entry classEntry = new ReadEntry(name, entry.getPath(), content);
+        FutureTask<Pair<String, byte[]>> instrumentation = new FutureTask<>(() -> {
+            try {
+                ClassReader reader = new ClassReader(content);
+                ClassWriter classWriter = new ClassWriter(ClassWriter.COMPUTE_MAXS);
+                Pair<RelativePath, ClassVisitor> chain = transform.apply(classEntry, classWriter);
+                reader.accept(chain.right, 0);
+                return Pair.of(chain.left.getPathString(), classWriter.toByteArray());
             } catch (Throwable e) {
-                throw new IOException("Failed to process the entry '" + entry.getName() + "' from '" + source + "'", e);
+                throw failedToProcess(source, name, e);
             }
         });
+        entryExecutor.execute(instrumentation);
+        return instrumentation;
+    }
+
+    private static void write(FutureTask<Pair<String, byte[]>> pendingEntry, ClasspathBuilder.EntryBuilder builder) throws IOException {
+        // Instrument the entry on this thread, when the executor has not started it yet
+        pendingEntry.run();
+        Pair<String, byte[]> entry;
+        try {
+            entry = pendingEntry.get();
+        } catch (InterruptedException e) {
+            throw UncheckedException.throwAsUncheckedException(e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof IOException) {
+                throw (IOException) e.getCause();
+            }
+            throw UncheckedException.throwAsUncheckedException(e.getCause());
+        }
+        builder.put(entry.left, entry.right);
+    }
+
+    private static IOException failedToProcess(File source, String name, Throwable failure) {
+        return new IOException("Failed to process the entry '" + name + "' from '" + source + "'", failure);
     }
 
     private boolean isSignedJar(File source) {
@@ -181,4 +270,34 @@ private boolean isSignedJar(File source) {
         }
         return false;
     }
+
+    /**
+     * An entry whose content has already been read, so that it can be used after the visit of the entry has finished.
+     */
+    private static class ReadEntry implements ClasspathEntryVisitor.Entry {
+        private final String name;
+        private final RelativePath path;
+        private final byte[] content;
+
+        ReadEntry(String name, RelativePath path, byte[] content) {
+            this.name = name;
+            this.path = path;
+            this.content = content;
+        }
+
+        @Override
+        public String getName() {
+            return name;
+        }
+
+        @Override
+        public RelativePath getPath() {
+            return path;
+        }
+
+        @Override
+        public byte[] getContent() {
+            return content;
+        }
+    }
 }
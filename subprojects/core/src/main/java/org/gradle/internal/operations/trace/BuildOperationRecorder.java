@@ -0,0 +1,257 @@
+/*
+ * Copyright 2021 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.internal.operations.trace;
+
+import org.gradle.StartParameter;
+import org.gradle.internal.UncheckedException;
+import org.gradle.internal.concurrent.Stoppable;
+import org.gradle.internal.io.MappedByteBuffers;
+import org.gradle.internal.operations.BuildOperationDescriptor;
+import org.gradle.internal.operations.BuildOperationListener;
+import org.gradle.internal.operations.BuildOperationListenerManager;
+import org.gradle.internal.operations.OperationFinishEvent;
+import org.gradle.internal.operations.OperationIdentifier;
+import org.gradle.internal.operations.OperationProgressEvent;
+import org.gradle.internal.operations.OperationStartEvent;
+
+import javax.annotation.Nullable;
+import java.io.File;
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Records the build operations of a build session to a compact binary file, with low enough overhead to be used for production builds.
+ * Can be enabled for any build with `-Dorg.gradle.internal.operations.recording=«path-base»`, which writes «path-base»-recording.bin.
+ *
+ * Unlike {@link BuildOperationTrace}, only the structure and timing of the operations is recorded, along with the types of their details and results.
+ * Use {@link ChromeTraceConverter} to convert a recording into a trace that can be viewed in Chrome or Perfetto.
+ *
+ * The file is written through a memory mapping, and only ever appended to. It starts with a header of the magic number and the format version,
+ * followed by records that each start with a tag byte. Integers are written as variable length quantities, and timestamps as the difference
+ * to the timestamp of the previous record. Strings, such as display names, are written once in a string record and then referred to by their index.
+ * A zero tag marks the end of the records, so a recording that was not closed cleanly can still be read up to the last complete record.
+ */
+public class BuildOperationRecorder implements Stoppable {
+
+    public static final String SYSPROP = "org.gradle.internal.operations.recording";
+
+    static final int MAGIC = 0x47424f52;
+    static final int VERSION = 1;
+
+    static final byte END = 0;
+    // length, UTF-8 bytes
+    static final byte STRING = 1;
+    // id, parent id, display name, details type, thread name, time
+    static final byte START = 2;
+    // id, details type, time
+    static final byte PROGRESS = 3;
+    // id, result type, failed, time
+    static final byte FINISH = 4;
+
+    // String index 0 means no string
+    static final int NO_STRING = 0;
+
+    private static final int REGION_SIZE = 4 * 1024 * 1024;
+    private static final int MAX_RECORD_SIZE = 64;
+    private static final int MAX_INTERNED_STRINGS = 100000;
+
+    private final BuildOperationListenerManager buildOperationListenerManager;
+    private final File file;
+    private final int regionSize;
+    private final Map<String, Integer> strings = new HashMap<>();
+    private FileChannel channel;
+    private MappedByteBuffer region;
+    private long regionStart;
+    private int nextString = NO_STRING + 1;
+    private long lastTime;
+
+    private final BuildOperationListener listener = new BuildOperationListener() {
+        @Override
+        public void started(BuildOperationDescriptor buildOperation, OperationStartEvent startEvent) {
+            OperationIdentifier parentId = buildOperation.getParentId();
+            Object details = buildOperation.getDetails();
+            String threadName = Thread.currentThread().getName();
+            synchronized (BuildOperationRecorder.this) {
+                if (region == null) {
+                    // Notified concurrently with stop()
+                    return;
+                }
+                int displayName = string(buildOperation.getDisplayName());
+                int detailsType = details == null ? NO_STRING : string(details.getClass().getName());
+                int thread = string(threadName);
+                ensureCapacity(MAX_RECORD_SIZE);
+                region.put(START);
+                putVarLong(buildOperation.getId().getId());
+                putVarLong(parentId == null ? 0 : parentId.getId());
+                putVarLong(displayName);
+                putVarLong(detailsType);
+                putVarLong(thread);
+                putTime(startEvent.getStartTime());
+            }
+        }
+
+        @Override
+        public void progress(OperationIdentifier operationIdentifier, OperationProgressEvent progressEvent) {
+            Object details = progressEvent.getDetails();
+            synchronized (BuildOperationRecorder.this) {
+                if (region == null) {
+                    // Notified concurrently with stop()
+                    return;
+                }
+                int detailsType = details == null ? NO_STRING : string(details.getClass().getName());
+                ensureCapacity(MAX_RECORD_SIZE);
+                region.put(PROGRESS);
+                putVarLong(operationIdentifier.getId());
+                putVarLong(detailsType);
+                putTime(progressEvent.getTime());
+            }
+        }
+
+        @Override
+        public void finished(BuildOperationDescriptor buildOperation, OperationFinishEvent finishEvent) {
+            Object result = finishEvent.getResult();
+            synchronized (BuildOperationRecorder.this) {
+                if (region == null) {
+                    // Notified concurrently with stop()
+                    return;
+                }
+                int resultType = result == null ? NO_STRING : string(result.getClass().getName());
+                ensureCapacity(MAX_RECORD_SIZE);
+                region.put(FINISH);
+                putVarLong(buildOperation.getId().getId());
+                putVarLong(resultType);
+                region.put(finishEvent.getFailure() == null ? (byte) 0 : (byte) 1);
+                putTime(finishEvent.getEndTime());
+            }
+        }
+    };
+
+    public BuildOperationRecorder(StartParameter startParameter, BuildOperationListenerManager buildOperationListenerManager) {
+        this(recordingFile(startParameter), buildOperationListenerManager, REGION_SIZE);
+    }
+
+    BuildOperationRecorder(@Nullable File file, BuildOperationListenerManager buildOperationListenerManager, int regionSize) {
+        this.buildOperationListenerManager = buildOperationListenerManager;
+        this.file = file;
+        this.regionSize = regionSize;
+        if (file == null) {
+            return;
+        }
+        try {
+            file.getAbsoluteFile().getParentFile().mkdirs();
+            channel = FileChannel.open(file.toPath(), StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.READ, StandardOpenOption.WRITE);
+            region = channel.map(FileChannel.MapMode.READ_WRITE, 0, regionSize);
+            region.putInt(MAGIC);
+            region.putInt(VERSION);
+        } catch (IOException e) {
+            throw UncheckedException.throwAsUncheckedException(e);
+        }
+        // Added as a synchronous listener, so that the thread running each operation is recorded
+        buildOperationListenerManager.addListener(listener);
+    }
+
+    @Nullable
+    private static File recordingFile(StartParameter startParameter) {
+        String basePath = startParameter.getSystemPropertiesArgs().get(SYSPROP);
+        if (basePath == null) {
+            basePath = System.getProperty(SYSPROP);
+        }
+        if (basePath == null || basePath.equals(Boolean.FALSE.toString())) {
+            return null;
+        }
+        return new File((basePath.trim().isEmpty() ? "operations" : basePath) + "-recording.bin").getAbsoluteFile();
+    }
+
+    @Override
+    public void stop() {
+        if (file == null) {
+            return;
+        }
+        buildOperationListenerManager.removeListener(listener);
+        synchronized (this) {
+            if (region == null) {
+                return;
+            }
+            try {
+                long length = regionStart + region.position();
+                MappedByteBuffers.unmap(region);
+                region = null;
+                try {
+                    channel.truncate(length);
+                } catch (IOException e) {
+                    // Can happen when the region could not be unmapped. The zero padding is ignored when reading.
+                }
+                channel.close();
+            } catch (IOException e) {
+                throw UncheckedException.throwAsUncheckedException(e);
+            }
+        }
+    }
+
+    private int string(String value) {
+        Integer index = strings.get(value);
+        if (index != null) {
+            return index;
+        }
+        if (strings.size() == MAX_INTERNED_STRINGS) {
+            // Forget the strings written so far rather than holding on to them. They are written again when used again.
+            strings.clear();
+        }
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        ensureCapacity(bytes.length + MAX_RECORD_SIZE);
+        region.put(STRING);
+        putVarLong(bytes.length);
+        region.put(bytes);
+        index = nextString++;
+        strings.put(value, index);
+        return index;
+    }
+
+    private void putTime(long time) {
+        long delta = time - lastTime;
+        lastTime = time;
+        // Operations finish in a different order to which they start, so the difference can be negative
+        putVarLong((delta << 1) ^ (delta >> 63));
+    }
+
+    private void putVarLong(long value) {
+        while ((value & ~0x7FL) != 0) {
+            region.put((byte) ((value & 0x7F) | 0x80));
+            value >>>= 7;
+        }
+        region.put((byte) value);
+    }
+
+    private void ensureCapacity(int size) {
+        if (region.remaining() >= size) {
+            return;
+        }
+        long position = regionStart + region.position();
+        MappedByteBuffers.unmap(region);
+        try {
+            region = channel.map(FileChannel.MapMode.READ_WRITE, position, Math.max(regionSize, size));
+        } catch (IOException e) {
+            throw UncheckedException.throwAsUncheckedException(e);
+        }
+        regionStart = position;
+    }
+}
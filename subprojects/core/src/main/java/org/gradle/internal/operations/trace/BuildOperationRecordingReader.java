@@ -0,0 +1,126 @@
+/*
+ * Copyright 2021 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.internal.operations.trace;
+
+import javax.annotation.Nullable;
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Reads a file written by {@link BuildOperationRecorder}.
+ */
+class BuildOperationRecordingReader {
+
+    interface Visitor {
+        void started(long id, long parentId, String displayName, @Nullable String detailsType, String threadName, long startTime);
+
+        void progress(long id, @Nullable String detailsType, long time);
+
+        void finished(long id, @Nullable String resultType, boolean failed, long endTime);
+    }
+
+    private final File file;
+
+    BuildOperationRecordingReader(File file) {
+        this.file = file;
+    }
+
+    void read(Visitor visitor) throws IOException {
+        try (DataInputStream input = new DataInputStream(new BufferedInputStream(new FileInputStream(file)))) {
+            if (input.readInt() != BuildOperationRecorder.MAGIC) {
+                throw new IOException("File " + file + " is not a build operation recording.");
+            }
+            int version = input.readInt();
+            if (version != BuildOperationRecorder.VERSION) {
+                throw new IOException("Unsupported build operation recording version " + version + " in " + file + ".");
+            }
+            List<String> strings = new ArrayList<>();
+            strings.add(null);
+            long time = 0;
+            while (true) {
+                int tag = input.read();
+                switch (tag) {
+                    case -1:
+                    case BuildOperationRecorder.END:
+                        return;
+                    case BuildOperationRecorder.STRING:
+                        byte[] bytes = new byte[(int) readVarLong(input)];
+                        input.readFully(bytes);
+                        strings.add(new String(bytes, StandardCharsets.UTF_8));
+                        break;
+                    case BuildOperationRecorder.START: {
+                        long id = readVarLong(input);
+                        long parentId = readVarLong(input);
+                        String displayName = strings.get((int) readVarLong(input));
+                        String detailsType = strings.get((int) readVarLong(input));
+                        String threadName = strings.get((int) readVarLong(input));
+                        time += readTimeDelta(input);
+                        visitor.started(id, parentId, displayName, detailsType, threadName, time);
+                        break;
+                    }
+                    case BuildOperationRecorder.PROGRESS: {
+                        long id = readVarLong(input);
+                        String detailsType = strings.get((int) readVarLong(input));
+                        time += readTimeDelta(input);
+                        visitor.progress(id, detailsType, time);
+                        break;
+                    }
+                    case BuildOperationRecorder.FINISH: {
+                        long id = readVarLong(input);
+                        String resultType = strings.get((int) readVarLong(input));
+                        boolean failed = input.readByte() != 0;
+                        time += readTimeDelta(input);
+                        visitor.finished(id, resultType, failed, time);
+                        break;
+                    }
+                    default:
+                        throw new IOException("Unexpected record type " + tag + " found in " + file + ".");
+                }
+            }
+        } catch (EOFException e) {
+            // The last record is incomplete, as the build did not stop cleanly. Ignore it.
+        }
+    }
+
+    private long readTimeDelta(InputStream input) throws IOException {
+        long value = readVarLong(input);
+        return (value >>> 1) ^ -(value & 1);
+    }
+
+    private long readVarLong(InputStream input) throws IOException {
+        long value = 0;
+        for (int shift = 0; shift < 64; shift += 7) {
+            int b = input.read();
+            if (b < 0) {
+                throw new EOFException();
+            }
+            value |= (long) (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) {
+                return value;
+            }
+        }
+        throw new IOException("Malformed number found in " + file + ".");
+    }
+}
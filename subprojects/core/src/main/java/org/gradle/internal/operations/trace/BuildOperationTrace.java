@@ -137,7 +137,7 @@ public BuildOperationTrace(StartParameter startParameter, BuildOperationListener
             throw UncheckedException.throwAsUncheckedException(e);
         }
 
-        buildOperationListenerManager.addListener(listener);
+        buildOperationListenerManager.addAsyncListener(listener);
     }
 
     @Override
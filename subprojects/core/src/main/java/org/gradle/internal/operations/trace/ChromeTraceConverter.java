@@ -0,0 +1,216 @@
+/*
+ * Copyright 2021 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.internal.operations.trace;
+
+import javax.annotation.Nullable;
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Converts a recording written by {@link BuildOperationRecorder} into the Chrome trace event format,
+ * which can be viewed with chrome://tracing or https://ui.perfetto.dev.
+ *
+ * Usage: {@code ChromeTraceConverter «recording.bin» «trace.json»}
+ */
+public class ChromeTraceConverter {
+
+    public static void main(String[] args) throws IOException {
+        if (args.length != 2) {
+            System.err.println("Usage: ChromeTraceConverter <recording> <trace>");
+            System.exit(1);
+        }
+        convert(new File(args[0]), new File(args[1]));
+    }
+
+    public static void convert(File recording, File trace) throws IOException {
+        try (Writer writer = new BufferedWriter(new OutputStreamWriter(new FileOutputStream(trace), StandardCharsets.UTF_8))) {
+            writer.write("{\"traceEvents\":[");
+            EventWriter eventWriter = new EventWriter(writer);
+            new BuildOperationRecordingReader(recording).read(eventWriter);
+            eventWriter.finish();
+            writer.write("\n]}\n");
+        }
+    }
+
+    private static class Operation {
+        final long parentId;
+        final String displayName;
+        final String detailsType;
+        final int threadId;
+        final long startTime;
+
+        Operation(long parentId, String displayName, @Nullable String detailsType, int threadId, long startTime) {
+            this.parentId = parentId;
+            this.displayName = displayName;
+            this.detailsType = detailsType;
+            this.threadId = threadId;
+            this.startTime = startTime;
+        }
+    }
+
+    private static class EventWriter implements BuildOperationRecordingReader.Visitor {
+        private final Writer writer;
+        private final Map<Long, Operation> running = new HashMap<>();
+        private final Map<String, Integer> threads = new LinkedHashMap<>();
+        private long firstTime = -1;
+        private boolean first = true;
+        private IOException exception;
+
+        EventWriter(Writer writer) {
+            this.writer = writer;
+        }
+
+        @Override
+        public void started(long id, long parentId, String displayName, @Nullable String detailsType, String threadName, long startTime) {
+            Integer threadId = threads.get(threadName);
+            if (threadId == null) {
+                threadId = threads.size() + 1;
+                threads.put(threadName, threadId);
+            }
+            if (firstTime < 0) {
+                // Times are written relative to the start of the first operation, to keep the numbers small
+                firstTime = startTime;
+            }
+            running.put(id, new Operation(parentId, displayName, detailsType, threadId, startTime));
+        }
+
+        @Override
+        public void progress(long id, @Nullable String detailsType, long time) {
+            Operation operation = running.get(id);
+            if (operation == null || detailsType == null) {
+                return;
+            }
+            StringBuilder event = new StringBuilder();
+            event.append("{\"name\":");
+            appendString(event, simpleName(detailsType));
+            event.append(",\"ph\":\"i\",\"s\":\"t\",\"pid\":1,\"tid\":").append(operation.threadId);
+            event.append(",\"ts\":").append(micros(time));
+            event.append(",\"args\":{\"id\":").append(id).append(",\"type\":");
+            appendString(event, detailsType);
+            event.append("}}");
+            write(event);
+        }
+
+        @Override
+        public void finished(long id, @Nullable String resultType, boolean failed, long endTime) {
+            Operation operation = running.remove(id);
+            if (operation == null) {
+                return;
+            }
+            StringBuilder event = new StringBuilder();
+            event.append("{\"name\":");
+            appendString(event, operation.displayName);
+            event.append(",\"cat\":");
+            appendString(event, operation.detailsType == null ? "operation" : simpleName(operation.detailsType));
+            event.append(",\"ph\":\"X\",\"pid\":1,\"tid\":").append(operation.threadId);
+            event.append(",\"ts\":").append(micros(operation.startTime));
+            event.append(",\"dur\":").append((endTime - operation.startTime) * 1000);
+            event.append(",\"args\":{\"id\":").append(id);
+            if (operation.parentId != 0) {
+                event.append(",\"parentId\":").append(operation.parentId);
+            }
+            if (operation.detailsType != null) {
+                event.append(",\"details\":");
+                appendString(event, operation.detailsType);
+            }
+            if (resultType != null) {
+                event.append(",\"result\":");
+                appendString(event, resultType);
+            }
+            if (failed) {
+                event.append(",\"failed\":true");
+            }
+            event.append("}}");
+            write(event);
+        }
+
+        void finish() throws IOException {
+            for (Map.Entry<String, Integer> thread : threads.entrySet()) {
+                StringBuilder event = new StringBuilder();
+                event.append("{\"name\":\"thread_name\",\"ph\":\"M\",\"pid\":1,\"tid\":").append(thread.getValue());
+                event.append(",\"args\":{\"name\":");
+                appendString(event, thread.getKey());
+                event.append("}}");
+                write(event);
+            }
+            if (exception != null) {
+                throw exception;
+            }
+        }
+
+        private void write(CharSequence event) {
+            if (exception != null) {
+                return;
+            }
+            try {
+                writer.write(first ? "\n" : ",\n");
+                writer.append(event);
+                first = false;
+            } catch (IOException e) {
+                exception = e;
+            }
+        }
+
+        private long micros(long time) {
+            return (time - firstTime) * 1000;
+        }
+
+        private static String simpleName(String type) {
+            String name = type.substring(type.lastIndexOf('.') + 1);
+            return name.substring(name.lastIndexOf('$') + 1);
+        }
+
+        private static void appendString(StringBuilder builder, String value) {
+            builder.append('"');
+            for (int i = 0; i < value.length(); i++) {
+                char ch = value.charAt(i);
+                switch (ch) {
+                    case '"':
+                        builder.append("\\\"");
+                        break;
+                    case '\\':
+                        builder.append("\\\\");
+                        break;
+                    case '\n':
+                        builder.append("\\n");
+                        break;
+                    case '\r':
+                        builder.append("\\r");
+                        break;
+                    case '\t':
+                        builder.append("\\t");
+                        break;
+                    default:
+                        if (ch < 0x20) {
+                            builder.append(String.format("\\u%04x", (int) ch));
+                        } else {
+                            builder.append(ch);
+                        }
+                }
+            }
+            builder.append('"');
+        }
+    }
+}
@@ -47,6 +47,8 @@
 import org.gradle.internal.jvm.inspection.JvmVersionDetector;
 import org.gradle.internal.nativeintegration.ProcessEnvironment;
 import org.gradle.internal.nativeintegration.filesystem.FileSystem;
+import org.gradle.internal.options.DefaultInternalOptions;
+import org.gradle.internal.options.InternalOptions;
 import org.gradle.internal.remote.internal.inet.InetAddressFactory;
 import org.gradle.internal.remote.services.MessagingServices;
 import org.gradle.internal.service.ServiceRegistration;
@@ -80,6 +82,10 @@ DefaultFileLockContentionHandler createFileLockContentionHandler(ExecutorFactory
             inetAddressFactory);
     }
 
+    InternalOptions createInternalOptions() {
+        return new DefaultInternalOptions();
+    }
+
     ExecutorFactory createExecutorFactory() {
         return new DefaultExecutorFactory();
     }
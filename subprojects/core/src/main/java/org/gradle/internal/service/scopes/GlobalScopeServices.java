@@ -69,6 +69,7 @@
 import org.gradle.internal.execution.history.impl.DefaultOverlappingOutputDetector;
 import org.gradle.internal.filewatch.DefaultFileWatcherFactory;
 import org.gradle.internal.filewatch.FileWatcherFactory;
+import org.gradle.internal.hash.FileContentHashFunction;
 import org.gradle.internal.installation.CurrentGradleInstallation;
 import org.gradle.internal.installation.GradleRuntimeShadedJarDetector;
 import org.gradle.internal.instantiation.InjectAnnotationHandler;
@@ -81,6 +82,9 @@
 import org.gradle.internal.operations.BuildOperationProgressEventEmitter;
 import org.gradle.internal.operations.CurrentBuildOperationRef;
 import org.gradle.internal.operations.DefaultBuildOperationListenerManager;
+import org.gradle.internal.options.InternalFlag;
+import org.gradle.internal.options.InternalOption;
+import org.gradle.internal.options.InternalOptions;
 import org.gradle.internal.reflect.DirectInstantiator;
 import org.gradle.internal.resources.DefaultResourceLockCoordinationService;
 import org.gradle.internal.resources.ResourceLockCoordinationService;
@@ -119,6 +123,12 @@
  */
 public class GlobalScopeServices extends WorkerSharedGlobalScopeServices {
 
+    /**
+     * Enables the asynchronous notification of the build operation listeners added with {@link BuildOperationListenerManager#addAsyncListener},
+     * e.g. {@code -Dorg.gradle.internal.operations.listeners.async=true}.
+     */
+    public static final InternalOption<Boolean> ASYNC_BUILD_OPERATION_LISTENERS_OPTION = new InternalFlag("org.gradle.internal.operations.listeners.async");
+
     protected final ClassPath additionalModuleClassPath;
     private final GradleBuildEnvironment environment;
 
@@ -127,7 +137,11 @@ public GlobalScopeServices(final boolean longLiving) {
     }
 
     public GlobalScopeServices(final boolean longLiving, ClassPath additionalModuleClassPath) {
-        super();
+        this(longLiving, additionalModuleClassPath, FileContentHashFunction.fromSystemProperties());
+    }
+
+    public GlobalScopeServices(final boolean longLiving, ClassPath additionalModuleClassPath, FileContentHashFunction fileContentHashFunction) {
+        super(fileContentHashFunction);
         this.additionalModuleClassPath = additionalModuleClassPath;
         this.environment = () -> longLiving;
     }
@@ -150,8 +164,8 @@ CurrentBuildOperationRef createCurrentBuildOperationRef() {
         return CurrentBuildOperationRef.instance();
     }
 
-    BuildOperationListenerManager createBuildOperationListenerManager() {
-        return new DefaultBuildOperationListenerManager();
+    BuildOperationListenerManager createBuildOperationListenerManager(InternalOptions internalOptions) {
+        return new DefaultBuildOperationListenerManager(internalOptions.getOption(ASYNC_BUILD_OPERATION_LISTENERS_OPTION));
     }
 
     BuildOperationProgressEventEmitter createBuildOperationProgressEventEmitter(
@@ -80,7 +80,9 @@
 import org.gradle.internal.logging.LoggingManagerInternal;
 import org.gradle.internal.logging.text.StyledTextOutputFactory;
 import org.gradle.internal.operations.BuildOperationExecutor;
+import org.gradle.internal.operations.BuildOperationProgressEventEmitter;
 import org.gradle.internal.reflect.Instantiator;
+import org.gradle.internal.resources.ResourceLockCoordinationService;
 import org.gradle.internal.resources.SharedResourceLeaseRegistry;
 import org.gradle.internal.scopeids.id.BuildInvocationScopeId;
 import org.gradle.internal.service.DefaultServiceRegistry;
@@ -114,11 +116,18 @@ CommandLineTaskParser createCommandLineTaskParser(OptionReader optionReader, Tas
         return new CommandLineTaskParser(new CommandLineTaskConfigurer(optionReader), taskSelector);
     }
 
-    BuildWorkExecutor createBuildExecuter(StyledTextOutputFactory textOutputFactory, BuildOperationExecutor buildOperationExecutor) {
+    BuildWorkExecutor createBuildExecuter(
+        StyledTextOutputFactory textOutputFactory,
+        BuildOperationExecutor buildOperationExecutor,
+        BuildOperationProgressEventEmitter progressEventEmitter,
+        ResourceLockCoordinationService coordinationService
+    ) {
         return new BuildOperationFiringBuildWorkerExecutor(
             new DryRunBuildExecutionAction(textOutputFactory,
                 new SelectedTaskExecutionAction()),
-            buildOperationExecutor);
+            buildOperationExecutor,
+            progressEventEmitter,
+            coordinationService);
     }
 
     BuildConfigurationActionExecuter createBuildConfigurationActionExecuter(CommandLineTaskParser commandLineTaskParser, ProjectConfigurer projectConfigurer, ProjectStateRegistry projectStateRegistry, List<BuiltInCommand> builtInCommands) {
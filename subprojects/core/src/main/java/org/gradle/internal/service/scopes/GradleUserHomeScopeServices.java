@@ -41,6 +41,7 @@
 import org.gradle.cache.internal.FileContentCacheFactory;
 import org.gradle.cache.internal.GradleUserHomeCleanupServices;
 import org.gradle.cache.internal.InMemoryCacheDecoratorFactory;
+import org.gradle.cache.internal.ReadOnlyBuildLogicCache;
 import org.gradle.cache.internal.scopes.DefaultCacheScopeMapping;
 import org.gradle.cache.internal.scopes.DefaultGlobalScopedCache;
 import org.gradle.cache.scopes.GlobalScopedCache;
@@ -206,6 +207,10 @@ DefaultGeneratedGradleJarCache createGeneratedGradleJarCache(GlobalScopedCache c
         return new DefaultGeneratedGradleJarCache(cacheRepository, gradleVersion);
     }
 
+    ReadOnlyBuildLogicCache createReadOnlyBuildLogicCache(GlobalScopedCache cacheRepository) {
+        return new ReadOnlyBuildLogicCache(cacheRepository);
+    }
+
     FileContentCacheFactory createFileContentCacheFactory(ListenerManager listenerManager, FileSystemAccess fileSystemAccess, GlobalScopedCache cacheRepository, InMemoryCacheDecoratorFactory inMemoryCacheDecoratorFactory) {
         return new DefaultFileContentCacheFactory(listenerManager, fileSystemAccess, cacheRepository, inMemoryCacheDecoratorFactory);
     }
@@ -67,16 +67,21 @@
 import org.gradle.internal.fingerprint.impl.DefaultGenericFileTreeSnapshotter;
 import org.gradle.internal.fingerprint.impl.FileCollectionFingerprinterRegistrations;
 import org.gradle.internal.hash.DefaultFileHasher;
+import org.gradle.internal.hash.FileContentHashFunction;
 import org.gradle.internal.hash.FileHasher;
 import org.gradle.internal.hash.HashCode;
 import org.gradle.internal.hash.StreamHasher;
 import org.gradle.internal.nativeintegration.NativeCapabilities;
 import org.gradle.internal.nativeintegration.filesystem.FileSystem;
+import org.gradle.internal.options.IntegerInternalOption;
+import org.gradle.internal.options.InternalOption;
+import org.gradle.internal.options.InternalOptions;
 import org.gradle.internal.os.OperatingSystem;
 import org.gradle.internal.serialize.HashCodeSerializer;
 import org.gradle.internal.service.ServiceRegistration;
 import org.gradle.internal.snapshot.CaseSensitivity;
 import org.gradle.internal.snapshot.ValueSnapshotter;
+import org.gradle.internal.snapshot.impl.DirectorySnapshotterParallelism;
 import org.gradle.internal.snapshot.impl.DirectorySnapshotterStatistics;
 import org.gradle.internal.vfs.FileSystemAccess;
 import org.gradle.internal.vfs.VirtualFileSystem;
@@ -91,8 +96,10 @@
 import org.gradle.internal.watch.vfs.WatchableFileSystemDetector;
 import org.gradle.internal.watch.vfs.impl.DefaultWatchableFileSystemDetector;
 import org.gradle.internal.watch.vfs.impl.LocationsWrittenByCurrentBuild;
+import org.gradle.internal.watch.vfs.impl.PersistentVirtualFileSystemState;
 import org.gradle.internal.watch.vfs.impl.WatchingNotSupportedVirtualFileSystem;
 import org.gradle.internal.watch.vfs.impl.WatchingVirtualFileSystem;
+import org.gradle.util.GradleVersion;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -116,8 +123,19 @@ public class VirtualFileSystemServices extends AbstractPluginServiceRegistry {
      */
     public static final String VFS_DROP_PROPERTY = "org.gradle.vfs.drop";
 
+    /**
+     * When file system watching is enabled, this system property can be used to persist the VFS in the project cache directory at the end of the build,
+     * so a new daemon can start with it instead of an empty VFS.
+     */
+    public static final String VFS_PERSIST_PROPERTY = "org.gradle.vfs.persist";
+
     public static final String MAX_HIERARCHIES_TO_WATCH_PROPERTY = "org.gradle.vfs.watch.hierarchies.max";
 
+    /**
+     * The number of threads used to walk a directory tree, e.g. {@code -Dorg.gradle.internal.snapshot.parallelism=4}. Directory trees are walked on a single thread by default.
+     */
+    public static final InternalOption<Integer> SNAPSHOT_PARALLELISM_OPTION = new IntegerInternalOption("org.gradle.internal.snapshot.parallelism", 1, 1);
+
     private static final int DEFAULT_MAX_HIERARCHIES_TO_WATCH = 50;
     private static final int FILE_HASHER_MEMORY_CACHE_SIZE = 400000;
 
@@ -126,6 +144,11 @@ public static boolean isDropVfs(StartParameter startParameter) {
         return dropVfs != null && !"false".equalsIgnoreCase(dropVfs);
     }
 
+    public static boolean isPersistVfs(StartParameter startParameter) {
+        String persistVfs = getSystemProperty(VFS_PERSIST_PROPERTY, startParameter.getSystemPropertiesArgs());
+        return persistVfs != null && !"false".equalsIgnoreCase(persistVfs);
+    }
+
     public static int getMaximumNumberOfWatchedHierarchies(StartParameter startParameter) {
         String fromProperty = getSystemProperty(MAX_HIERARCHIES_TO_WATCH_PROPERTY, startParameter.getSystemPropertiesArgs());
         return fromProperty != null && !fromProperty.isEmpty()
@@ -161,6 +184,10 @@ FileHasherStatistics.Collector createCachingFileHasherStatisticsCollector() {
         DirectorySnapshotterStatistics.Collector createDirectorySnapshotterStatisticsCollector() {
             return new DirectorySnapshotterStatistics.Collector();
         }
+
+        DirectorySnapshotterParallelism createDirectorySnapshotterParallelism(InternalOptions internalOptions) {
+            return new DirectorySnapshotterParallelism(internalOptions.getOption(SNAPSHOT_PARALLELISM_OPTION));
+        }
     }
 
     @VisibleForTesting
@@ -176,9 +203,10 @@ FileHasher createCachingFileHasher(
             FileSystem fileSystem,
             GradleUserHomeScopeFileTimeStampInspector fileTimeStampInspector,
             StreamHasher streamHasher,
+            FileContentHashFunction fileContentHashFunction,
             StringInterner stringInterner
         ) {
-            CachingFileHasher fileHasher = new CachingFileHasher(new DefaultFileHasher(streamHasher), fileStore, stringInterner, fileTimeStampInspector, "fileHashes", fileSystem, FILE_HASHER_MEMORY_CACHE_SIZE, statisticsCollector);
+            CachingFileHasher fileHasher = new CachingFileHasher(new DefaultFileHasher(streamHasher), fileStore, stringInterner, fileTimeStampInspector, fileContentHashFunction.versionedCacheName("fileHashes"), fileSystem, FILE_HASHER_MEMORY_CACHE_SIZE, statisticsCollector);
             fileTimeStampInspector.attach(fileHasher);
             return fileHasher;
         }
@@ -210,7 +238,8 @@ BuildLifecycleAwareVirtualFileSystem createVirtualFileSystem(
             ListenerManager listenerManager,
             FileSystem fileSystem,
             GlobalCacheLocations globalCacheLocations,
-            WatchableFileSystemDetector watchableFileSystemDetector
+            WatchableFileSystemDetector watchableFileSystemDetector,
+            FileContentHashFunction fileContentHashFunction
         ) {
             CaseSensitivity caseSensitivity = fileSystem.isCaseSensitive() ? CASE_SENSITIVE : CASE_INSENSITIVE;
             VfsRootReference rootReference = new VfsRootReference(DefaultSnapshotHierarchy.empty(caseSensitivity));
@@ -227,7 +256,8 @@ BuildLifecycleAwareVirtualFileSystem createVirtualFileSystem(
                     watcherRegistryFactory,
                     rootReference,
                     sectionId -> documentationRegistry.getDocumentationFor("gradle_daemon", sectionId),
-                    locationsWrittenByCurrentBuild
+                    locationsWrittenByCurrentBuild,
+                    new PersistentVirtualFileSystemState(GradleVersion.current().getVersion() + "-" + fileContentHashFunction.versionedCacheName("vfs"))
                 ))
                 .orElse(new WatchingNotSupportedVirtualFileSystem(rootReference));
             listenerManager.addListener((BuildAddedListener) buildState -> {
@@ -246,7 +276,8 @@ FileSystemAccess createFileSystemAccess(
             ListenerManager listenerManager,
             PatternSpecFactory patternSpecFactory,
             FileSystemAccess.WriteListener writeListener,
-            DirectorySnapshotterStatistics.Collector statisticsCollector
+            DirectorySnapshotterStatistics.Collector statisticsCollector,
+            DirectorySnapshotterParallelism directorySnapshotterParallelism
         ) {
             DefaultFileSystemAccess fileSystemAccess = new DefaultFileSystemAccess(
                 hasher,
@@ -255,6 +286,7 @@ FileSystemAccess createFileSystemAccess(
                 virtualFileSystem,
                 writeListener,
                 statisticsCollector,
+                directorySnapshotterParallelism,
                 DirectoryScanner.getDefaultExcludes()
             );
             listenerManager.addListener(new DefaultExcludesBuildListener(fileSystemAccess) {
@@ -343,10 +375,11 @@ FileHasher createFileHasher(
             FileHasher globalHasher,
             FileSystem fileSystem,
             StreamHasher streamHasher,
+            FileContentHashFunction fileContentHashFunction,
             StringInterner stringInterner,
             FileHasherStatistics.Collector statisticsCollector
         ) {
-            CachingFileHasher localHasher = new CachingFileHasher(new DefaultFileHasher(streamHasher), cacheAccess, stringInterner, fileTimeStampInspector, "fileHashes", fileSystem, FILE_HASHER_MEMORY_CACHE_SIZE, statisticsCollector);
+            CachingFileHasher localHasher = new CachingFileHasher(new DefaultFileHasher(streamHasher), cacheAccess, stringInterner, fileTimeStampInspector, fileContentHashFunction.versionedCacheName("fileHashes"), fileSystem, FILE_HASHER_MEMORY_CACHE_SIZE, statisticsCollector);
             return new SplitFileHasher(globalHasher, localHasher, globalCacheLocations);
         }
 
@@ -357,7 +390,8 @@ FileSystemAccess createFileSystemAccess(
             StringInterner stringInterner,
             VirtualFileSystem root,
             FileSystemAccess.WriteListener writeListener,
-            DirectorySnapshotterStatistics.Collector statisticsCollector
+            DirectorySnapshotterStatistics.Collector statisticsCollector,
+            DirectorySnapshotterParallelism directorySnapshotterParallelism
         ) {
             DefaultFileSystemAccess buildSessionsScopedVirtualFileSystem = new DefaultFileSystemAccess(
                 hasher,
@@ -366,6 +400,7 @@ FileSystemAccess createFileSystemAccess(
                 root,
                 writeListener,
                 statisticsCollector,
+                directorySnapshotterParallelism,
                 DirectoryScanner.getDefaultExcludes()
             );
 
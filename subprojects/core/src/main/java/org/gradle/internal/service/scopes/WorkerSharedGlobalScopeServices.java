@@ -32,6 +32,7 @@
 import org.gradle.cache.internal.CrossBuildInMemoryCacheFactory;
 import org.gradle.cache.internal.DefaultCacheFactory;
 import org.gradle.cache.internal.DefaultCrossBuildInMemoryCacheFactory;
+import org.gradle.cache.internal.btree.BlockStoreType;
 import org.gradle.initialization.DefaultLegacyTypesSupport;
 import org.gradle.initialization.LegacyTypesSupport;
 import org.gradle.internal.concurrent.ExecutorFactory;
@@ -39,6 +40,7 @@
 import org.gradle.internal.file.Deleter;
 import org.gradle.internal.file.impl.DefaultDeleter;
 import org.gradle.internal.hash.DefaultStreamHasher;
+import org.gradle.internal.hash.FileContentHashFunction;
 import org.gradle.internal.hash.StreamHasher;
 import org.gradle.internal.instantiation.InstantiatorFactory;
 import org.gradle.internal.logging.events.OutputEventListener;
@@ -48,6 +50,7 @@
 import org.gradle.internal.nativeintegration.filesystem.FileSystem;
 import org.gradle.internal.operations.BuildOperationIdFactory;
 import org.gradle.internal.operations.DefaultBuildOperationIdFactory;
+import org.gradle.internal.options.InternalOptions;
 import org.gradle.internal.os.OperatingSystem;
 import org.gradle.internal.state.DefaultManagedFactoryRegistry;
 import org.gradle.internal.state.ManagedFactoryRegistry;
@@ -67,8 +70,21 @@
 
 public class WorkerSharedGlobalScopeServices extends BasicGlobalScopeServices {
 
-    protected CacheFactory createCacheFactory(FileLockManager fileLockManager, ExecutorFactory executorFactory, ProgressLoggerFactory progressLoggerFactory) {
-        return new DefaultCacheFactory(fileLockManager, executorFactory, progressLoggerFactory);
+    private final FileContentHashFunction fileContentHashFunction;
+
+    /**
+     * Uses the file content hash function this process was started with.
+     */
+    public WorkerSharedGlobalScopeServices() {
+        this(FileContentHashFunction.fromSystemProperties());
+    }
+
+    public WorkerSharedGlobalScopeServices(FileContentHashFunction fileContentHashFunction) {
+        this.fileContentHashFunction = fileContentHashFunction;
+    }
+
+    protected CacheFactory createCacheFactory(FileLockManager fileLockManager, ExecutorFactory executorFactory, ProgressLoggerFactory progressLoggerFactory, InternalOptions internalOptions) {
+        return new DefaultCacheFactory(fileLockManager, executorFactory, progressLoggerFactory, internalOptions.getOption(BlockStoreType.OPTION));
     }
 
     LegacyTypesSupport createLegacyTypesSupport() {
@@ -103,8 +119,12 @@ DefaultFilePropertyFactory createFilePropertyFactory(PropertyHost propertyHost,
         return new DefaultFilePropertyFactory(propertyHost, fileResolver, fileCollectionFactory);
     }
 
-    StreamHasher createStreamHasher() {
-        return new DefaultStreamHasher();
+    FileContentHashFunction createFileContentHashFunction() {
+        return fileContentHashFunction;
+    }
+
+    StreamHasher createStreamHasher(FileContentHashFunction fileContentHashFunction) {
+        return new DefaultStreamHasher(fileContentHashFunction.getHashFunction());
     }
 
     Deleter createDeleter(Clock clock, FileSystem fileSystem, OperatingSystem os) {
@@ -70,6 +70,8 @@
 import org.gradle.internal.model.StateTransitionControllerFactory;
 import org.gradle.internal.nativeintegration.filesystem.FileSystem;
 import org.gradle.internal.operations.BuildOperationExecutor;
+import org.gradle.internal.options.DefaultInternalOptions;
+import org.gradle.internal.options.InternalOptions;
 import org.gradle.internal.reflect.Instantiator;
 import org.gradle.internal.scopeids.PersistentScopeIdLoader;
 import org.gradle.internal.scopeids.ScopeIdsServices;
@@ -139,6 +141,10 @@ DefaultListenerManager createListenerManager(DefaultListenerManager parent) {
         return parent.createChild(Scopes.BuildSession.class);
     }
 
+    InternalOptions createInternalOptions(StartParameter startParameter) {
+        return new DefaultInternalOptions(startParameter.getSystemPropertiesArgs());
+    }
+
     CrossProjectConfigurator createCrossProjectConfigurator(BuildOperationExecutor buildOperationExecutor) {
         return new BuildOperationCrossProjectConfigurator(buildOperationExecutor);
     }
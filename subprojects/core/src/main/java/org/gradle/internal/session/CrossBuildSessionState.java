@@ -39,6 +39,7 @@
 import org.gradle.internal.operations.logging.LoggingBuildOperationProgressBroadcaster;
 import org.gradle.internal.operations.notify.BuildOperationNotificationBridge;
 import org.gradle.internal.operations.notify.BuildOperationNotificationValve;
+import org.gradle.internal.operations.trace.BuildOperationRecorder;
 import org.gradle.internal.operations.trace.BuildOperationTrace;
 import org.gradle.internal.service.ServiceRegistration;
 import org.gradle.internal.service.ServiceRegistry;
@@ -71,8 +72,9 @@ public CrossBuildSessionState(ServiceRegistry parent, StartParameter startParame
             .parent(parent)
             .provider(new Services(startParameter))
             .build();
-        // Trigger listener to wire itself in
+        // Trigger listeners to wire themselves in
         services.get(BuildOperationTrace.class);
+        services.get(BuildOperationRecorder.class);
     }
 
     public ServiceRegistry getServices() {
@@ -144,6 +146,10 @@ BuildOperationTrace createBuildOperationTrace(BuildOperationListenerManager buil
             return new BuildOperationTrace(startParameter, buildOperationListenerManager);
         }
 
+        BuildOperationRecorder createBuildOperationRecorder(BuildOperationListenerManager buildOperationListenerManager) {
+            return new BuildOperationRecorder(startParameter, buildOperationListenerManager);
+        }
+
         BuildOperationNotificationBridge createBuildOperationNotificationBridge(BuildOperationListenerManager buildOperationListenerManager, ListenerManager generalListenerManager) {
             return new BuildOperationNotificationBridge(buildOperationListenerManager, generalListenerManager);
         }
@@ -21,6 +21,7 @@
 import org.gradle.internal.concurrent.ExecutorFactory;
 import org.gradle.internal.logging.LoggingManagerInternal;
 import org.gradle.internal.logging.progress.ProgressLoggerFactory;
+import org.gradle.internal.options.InternalOptions;
 import org.gradle.internal.service.scopes.GlobalScopeServices;
 
 public class TestGlobalScopeServices extends GlobalScopeServices {
@@ -29,7 +30,7 @@ public TestGlobalScopeServices() {
     }
 
     @Override
-    protected CacheFactory createCacheFactory(FileLockManager fileLockManager, ExecutorFactory executorFactory, ProgressLoggerFactory progressLoggerFactory) {
+    protected CacheFactory createCacheFactory(FileLockManager fileLockManager, ExecutorFactory executorFactory, ProgressLoggerFactory progressLoggerFactory, InternalOptions internalOptions) {
         return new TestInMemoryCacheFactory();
     }
 
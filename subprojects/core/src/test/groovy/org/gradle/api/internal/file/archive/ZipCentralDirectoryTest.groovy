@@ -0,0 +1,139 @@
+/*
+ * Copyright 2021 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.api.internal.file.archive
+
+import org.apache.tools.zip.Zip64Mode
+import org.apache.tools.zip.ZipEntry
+import org.apache.tools.zip.ZipFile
+import org.apache.tools.zip.ZipOutputStream
+import org.gradle.test.fixtures.file.TestNameTestDirectoryProvider
+import org.junit.Rule
+import spock.lang.Specification
+import spock.lang.Unroll
+
+class ZipCentralDirectoryTest extends Specification {
+    @Rule
+    TestNameTestDirectoryProvider tmpDir = new TestNameTestDirectoryProvider(getClass())
+    def zipFile = tmpDir.file("test.zip")
+
+    @Unroll
+    def "reads same entries as Ant ZipFile (method #method, zip64 #zip64Mode, encoding #encoding, mapped #mapped)"() {
+        given:
+        def outputStream = new ZipOutputStream(zipFile)
+        outputStream.encoding = encoding
+        outputStream.method = method
+        outputStream.useZip64 = zip64Mode
+        outputStream.createUnicodeExtraFields = ZipOutputStream.UnicodeExtraFieldPolicy.NOT_ENCODEABLE
+        ["dir/", "dir/file.txt", "äöü.txt", "dir/中文.txt", "empty.txt"].eachWithIndex { String name, int index ->
+            def entry = new ZipEntry(name)
+            entry.time = 1_600_000_000_000L + index * 2000L
+            entry.unixMode = (name.endsWith("/") ? 040000 : 0100000) | (0640 + index)
+            outputStream.putNextEntry(entry)
+            if (!entry.directory && name != "empty.txt") {
+                outputStream.write(("content of $name\n" * 100).getBytes("UTF-8"))
+            }
+            outputStream.closeEntry()
+        }
+        outputStream.close()
+
+        when:
+        def expected = new ZipFile(zipFile).withCloseable { zip ->
+            zip.entries.collect { ZipEntry entry -> [entry.name, entry.directory, entry.time, entry.size, entry.unixMode, zip.getInputStream(entry).withStream { it.bytes }] }
+        }
+        def actual = new ZipCentralDirectory(zipFile, mapped ? 0 : ZipCentralDirectory.MAPPED_CENTRAL_DIRECTORY_THRESHOLD).withCloseable { centralDirectory ->
+            centralDirectory.entries.collect { entry -> [entry.name, entry.directory, entry.time, entry.size, entry.unixMode, entry.open().withStream { it.bytes }] }
+        }
+
+        then:
+        actual.size() == 5
+        actual == expected
+
+        where:
+        method                   | zip64Mode          | encoding     | mapped
+        ZipOutputStream.STORED   | Zip64Mode.AsNeeded | "UTF-8"      | false
+        ZipOutputStream.DEFLATED | Zip64Mode.AsNeeded | "UTF-8"      | false
+        ZipOutputStream.DEFLATED | Zip64Mode.Always   | "UTF-8"      | false
+        ZipOutputStream.DEFLATED | Zip64Mode.AsNeeded | "ISO-8859-1" | false
+        ZipOutputStream.DEFLATED | Zip64Mode.Always   | "ISO-8859-1" | true
+        ZipOutputStream.STORED   | Zip64Mode.AsNeeded | "UTF-8"      | true
+    }
+
+    def "provides raw content of deflated entries"() {
+        given:
+        def content = ("some content\n" * 1000).getBytes("UTF-8")
+        def outputStream = new ZipOutputStream(zipFile)
+        outputStream.putNextEntry(new ZipEntry("file.txt"))
+        outputStream.write(content)
+        outputStream.closeEntry()
+        outputStream.method = ZipOutputStream.STORED
+        outputStream.putNextEntry(new ZipEntry("stored.txt"))
+        outputStream.write(content)
+        outputStream.closeEntry()
+        outputStream.close()
+
+        when:
+        def centralDirectory = new ZipCentralDirectory(zipFile)
+        def deflated = centralDirectory.entries[0].deflatedContent
+        def inflated = new java.util.zip.InflaterInputStream(new SequenceInputStream(deflated.open(), new ByteArrayInputStream(new byte[1])), new java.util.zip.Inflater(true)).bytes
+
+        then:
+        deflated.size == content.length
+        deflated.compressedSize < content.length
+        inflated == content
+        centralDirectory.entries[1].deflatedContent == null
+
+        cleanup:
+        centralDirectory?.close()
+    }
+
+    def "fails for file that is not a ZIP"() {
+        given:
+        zipFile.text = "not a zip file"
+
+        when:
+        new ZipCentralDirectory(zipFile)
+
+        then:
+        thrown(java.util.zip.ZipException)
+    }
+
+    def "fails when central directory contains fewer records than the end of central directory declares"() {
+        given:
+        def outputStream = new ZipOutputStream(zipFile)
+        outputStream.useZip64 = zip64Mode
+        ["a.txt", "b.txt", "c.txt"].each { name ->
+            outputStream.putNextEntry(new ZipEntry(name))
+            outputStream.write(name.bytes)
+            outputStream.closeEntry()
+        }
+        outputStream.close()
+        def bytes = zipFile.bytes
+        def centralDirectoryRecords = (0..bytes.length - 4).findAll { bytes[it] == 0x50 && bytes[it + 1] == 0x4b && bytes[it + 2] == 0x01 && bytes[it + 3] == 0x02 }
+        bytes[centralDirectoryRecords[1] + 3] = 0x09
+        zipFile.bytes = bytes
+
+        when:
+        new ZipCentralDirectory(zipFile)
+
+        then:
+        def e = thrown(java.util.zip.ZipException)
+        e.message.startsWith("Expected central directory record 2 of 3")
+
+        where:
+        zip64Mode << [Zip64Mode.AsNeeded, Zip64Mode.Always]
+    }
+}
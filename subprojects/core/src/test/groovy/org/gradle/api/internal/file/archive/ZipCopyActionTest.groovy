@@ -24,11 +24,14 @@ import org.gradle.api.internal.file.copy.CopyActionProcessingStream
 import org.gradle.api.internal.file.copy.DefaultZipCompressor
 import org.gradle.api.internal.file.copy.FileCopyDetailsInternal
 import org.gradle.api.tasks.bundling.Zip
+import org.gradle.internal.concurrent.DefaultExecutorFactory
+import org.gradle.internal.options.DefaultInternalOptions
 import org.gradle.test.fixtures.archive.ZipTestFixture
 import org.gradle.test.fixtures.file.TestFile
 import org.gradle.test.fixtures.file.TestNameTestDirectoryProvider
 import org.junit.Rule
 import spock.lang.Specification
+import spock.lang.Unroll
 
 import static org.gradle.api.internal.file.copy.CopyActionExecuterUtil.visit
 import static org.hamcrest.CoreMatchers.equalTo
@@ -142,6 +145,71 @@ class ZipCopyActionTest extends Specification {
         e.cause.is(failure)
     }
 
+    @Unroll
+    void "parallel compression writes same archive as sequential compression (method #method, zip64 #zip64, encoding #zipEncoding)"() {
+        given:
+        def executorFactory = new DefaultExecutorFactory()
+        def entries = [dir("dir"), file("dir/file1"), largeFile("dir/large", 9 * 1024 * 1024), file("dir/\u00e4\u00f6\u00fc"), dir("empty"), file("file2")]
+        def sequentialZip = tmpDir.file("sequential.zip")
+        def parallelZip = tmpDir.file("parallel.zip")
+
+        when:
+        visitor = new ZipCopyAction(sequentialZip, new DefaultZipCompressor(zip64, method), new DocumentationRegistry(), zipEncoding, false)
+        zip(entries as FileCopyDetailsInternal[])
+        visitor = new ZipCopyAction(parallelZip, new DefaultZipCompressor(zip64, method), new DocumentationRegistry(), zipEncoding, false, new ZipCopyParallelism(4, false), executorFactory)
+        zip(entries as FileCopyDetailsInternal[])
+
+        then:
+        parallelZip.bytes == sequentialZip.bytes
+
+        cleanup:
+        executorFactory.stop()
+
+        where:
+        method                    | zip64 | zipEncoding
+        ZipOutputStream.STORED    | false | 'UTF-8'
+        ZipOutputStream.DEFLATED  | false | 'UTF-8'
+        ZipOutputStream.DEFLATED  | true  | 'UTF-8'
+        ZipOutputStream.DEFLATED  | false | 'ISO-8859-1'
+        ZipOutputStream.DEFLATED  | false | null
+    }
+
+    void wrapsFailureToAddElementWhenCompressingInParallel() {
+        given:
+        def executorFactory = new DefaultExecutorFactory()
+        Throwable failure = new RuntimeException("broken")
+        def brokenFile = brokenFile("dir/file1", failure)
+        visitor = new ZipCopyAction(zipFile, new DefaultZipCompressor(false, ZipOutputStream.DEFLATED), new DocumentationRegistry(), encoding, false, new ZipCopyParallelism(4, false), executorFactory)
+
+        when:
+        zip(file("file2"), brokenFile, file("file3"))
+
+        then:
+        def e = thrown(Exception)
+        e.message == String.format("Could not add $brokenFile to ZIP '%s'.", zipFile)
+        e.cause.is(failure)
+
+        cleanup:
+        executorFactory.stop()
+    }
+
+    void readsCompressionParallelismFromOptions() {
+        expect:
+        ZipCopyParallelism.fromOptions(new DefaultInternalOptions([:])).parallelism == 1
+        !ZipCopyParallelism.fromOptions(new DefaultInternalOptions([:])).enabled
+        ZipCopyParallelism.fromOptions(new DefaultInternalOptions(["org.gradle.internal.zip.parallelism": "8"])).parallelism == 8
+        ZipCopyParallelism.fromOptions(new DefaultInternalOptions(["org.gradle.internal.zip.copyDeflatedEntries": "true"])).copyDeflatedEntries
+        !ZipCopyParallelism.SEQUENTIAL.enabled
+        new ZipCopyParallelism(2, false).enabled
+        new ZipCopyParallelism(1, true).enabled
+
+        when:
+        ZipCopyParallelism.fromOptions(new DefaultInternalOptions(["org.gradle.internal.zip.parallelism": "0"]))
+
+        then:
+        thrown(IllegalArgumentException)
+    }
+
     private void zip(final FileCopyDetailsInternal... files) {
         visitor.execute(new CopyActionProcessingStream() {
             void process(CopyActionProcessingStreamAction action) {
@@ -164,6 +232,20 @@ class ZipCopyActionTest extends Specification {
         mock
     }
 
+    private FileCopyDetailsInternal largeFile(final String path, int size) {
+        def content = new byte[size]
+        new Random(size).nextBytes(content)
+        def mock = Mock(FileCopyDetailsInternal)
+        mock.getRelativePath() >> RelativePath.parse(false, path)
+        mock.getLastModified() >> 1000L
+        mock.isDirectory() >> false
+        mock.getMode() >> 1
+        mock.copyTo(_ as OutputStream) >> { OutputStream out ->
+            out.write(content)
+        }
+        mock
+    }
+
     private FileCopyDetailsInternal dir(final String path) {
         def mock = Mock(FileCopyDetailsInternal)
         mock.getRelativePath() >> RelativePath.parse(false, path)
@@ -15,8 +15,13 @@
  */
 package org.gradle.api.internal.file.archive;
 
+import org.apache.tools.zip.Zip64Mode;
+import org.apache.tools.zip.ZipEntry;
+import org.apache.tools.zip.ZipOutputStream;
 import org.gradle.api.GradleException;
 import org.gradle.api.InvalidUserDataException;
+import org.gradle.api.file.FileVisitDetails;
+import org.gradle.api.file.FileVisitor;
 import org.gradle.test.fixtures.file.TestFile;
 import org.gradle.test.fixtures.file.TestNameTestDirectoryProvider;
 import org.gradle.util.TestUtil;
@@ -24,6 +29,9 @@
 import org.junit.Rule;
 import org.junit.Test;
 
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.Map;
@@ -34,6 +42,7 @@
 import static org.gradle.util.internal.WrapUtil.toList;
 import static org.hamcrest.CoreMatchers.equalTo;
 import static org.hamcrest.MatcherAssert.assertThat;
+import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.fail;
 
 public class ZipFileTreeTest {
@@ -136,4 +145,47 @@ public void doesNotOverwriteFilesOnSecondVisit() throws InterruptedException {
         assertVisits(tree, toList("file1.txt"), new ArrayList<String>());
         content.assertHasNotChangedSince(snapshot);
     }
+
+    @Test
+    public void doesNotExpandZipWhenOnlyReadingContent() {
+        rootDir.file("subdir/file1.txt").write("content 1");
+        rootDir.file("file2.txt").write("content 2");
+        rootDir.zipTo(zipFile);
+
+        final Map<String, String> contents = new HashMap<String, String>();
+        tree.visit(new FileVisitor() {
+            @Override
+            public void visitDir(FileVisitDetails dirDetails) {
+            }
+
+            @Override
+            public void visitFile(FileVisitDetails fileDetails) {
+                ByteArrayOutputStream content = new ByteArrayOutputStream();
+                fileDetails.copyTo(content);
+                contents.put(fileDetails.getPath(), new String(content.toByteArray(), StandardCharsets.UTF_8));
+            }
+        });
+
+        assertThat(contents.get("subdir/file1.txt"), equalTo("content 1"));
+        assertThat(contents.get("file2.txt"), equalTo("content 2"));
+        assertFalse(expandDir.exists());
+    }
+
+    @Test
+    public void visitsContentsOfZip64File() throws IOException {
+        ZipOutputStream outputStream = new ZipOutputStream(zipFile);
+        try {
+            outputStream.setUseZip64(Zip64Mode.Always);
+            outputStream.putNextEntry(new ZipEntry("subdir/"));
+            outputStream.closeEntry();
+            outputStream.putNextEntry(new ZipEntry("subdir/file1.txt"));
+            outputStream.write("content".getBytes(StandardCharsets.UTF_8));
+            outputStream.closeEntry();
+        } finally {
+            outputStream.close();
+        }
+
+        assertVisits(tree, toList("subdir/file1.txt"), toList("subdir"));
+        assertSetContainsForAllTypes(tree, toList("subdir/file1.txt"));
+    }
 }
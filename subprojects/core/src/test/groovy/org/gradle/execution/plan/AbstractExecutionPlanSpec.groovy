@@ -152,6 +152,14 @@ abstract class AbstractExecutionPlanSpec extends Specification {
         void registerUnlocked(ResourceLock resourceLock) {
         }
 
+        @Override
+        void registerFailedToLock(ResourceLock resourceLock) {
+        }
+
+        @Override
+        void registerWaitingFor(Object state) {
+        }
+
         @Override
         void releaseLocks() {
             locks.forEach { it.unlock() }
@@ -0,0 +1,120 @@
+/*
+ * Copyright 2021 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.execution.plan
+
+import org.gradle.internal.resources.ResourceLock
+import spock.lang.Specification
+
+class ReadyNodesTest extends Specification {
+    def readyNodes = new ReadyNodes()
+    def projectA = Stub(ResourceLock)
+    def projectB = Stub(ResourceLock)
+
+    def "offers ready nodes in plan order across projects"() {
+        def a1 = node(projectA)
+        def b1 = node(projectB)
+        def free = node(null)
+        def a2 = node(projectA)
+        readyNodes.reset([a1, b1, free, a2])
+
+        when:
+        readyNodes.add(a2)
+        readyNodes.add(free)
+        readyNodes.add(a1)
+        readyNodes.add(b1)
+
+        then:
+        readyNodes.candidates().toList() == [a1, b1, free, a2]
+    }
+
+    def "ignores nodes which are not part of the plan"() {
+        def scheduled = node(projectA)
+        def other = node(projectA)
+        readyNodes.reset([scheduled])
+
+        when:
+        readyNodes.add(other)
+
+        then:
+        readyNodes.empty
+
+        when:
+        readyNodes.add(scheduled)
+
+        then:
+        readyNodes.candidates().toList() == [scheduled]
+    }
+
+    def "skips nodes of projects locked by other threads"() {
+        def a1 = node(projectA)
+        def b1 = node(projectB)
+        def free = node(null)
+        def a2 = node(projectA)
+        readyNodes.reset([a1, b1, free, a2])
+        [a1, b1, free, a2].each { readyNodes.add(it) }
+
+        when:
+        projectA.isLocked() >> true
+        projectA.isLockedByCurrentThread() >> false
+        projectB.isLocked() >> true
+        projectB.isLockedByCurrentThread() >> true
+
+        then:
+        readyNodes.candidates().toList() == [b1, free]
+    }
+
+    def "removed nodes are no longer offered"() {
+        def a1 = node(projectA)
+        def a2 = node(projectA)
+        def b1 = node(projectB)
+        readyNodes.reset([a1, a2, b1])
+        [a1, a2, b1].each { readyNodes.add(it) }
+
+        when:
+        readyNodes.remove(a1)
+        readyNodes.remove(b1)
+
+        then:
+        !readyNodes.empty
+        readyNodes.candidates().toList() == [a2]
+
+        when:
+        readyNodes.remove(a2)
+
+        then:
+        readyNodes.empty
+        readyNodes.candidates().toList() == []
+    }
+
+    def "adding a node twice offers it once"() {
+        def a1 = node(projectA)
+        readyNodes.reset([a1])
+
+        when:
+        readyNodes.add(a1)
+        readyNodes.add(a1)
+
+        then:
+        readyNodes.candidates().toList() == [a1]
+    }
+
+    private Node node(ResourceLock projectLock) {
+        return Stub(Node) {
+            getProjectToLock() >> projectLock
+        }
+    }
+}
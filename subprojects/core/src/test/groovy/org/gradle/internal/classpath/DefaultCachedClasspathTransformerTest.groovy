@@ -21,6 +21,7 @@ import org.gradle.api.internal.file.TestFiles
 import org.gradle.cache.CacheBuilder
 import org.gradle.cache.FileLockManager
 import org.gradle.cache.GlobalCacheLocations
+import org.gradle.cache.internal.ReadOnlyBuildLogicCache
 import org.gradle.cache.internal.UsedGradleVersions
 import org.gradle.cache.scopes.GlobalScopedCache
 import org.gradle.internal.Pair
@@ -64,6 +65,8 @@ class DefaultCachedClasspathTransformerTest extends ConcurrentSpec {
     def fileSystemAccess = TestFiles.fileSystemAccess()
     def globalCacheLocations = Stub(GlobalCacheLocations)
     def fileLockManager = Stub(FileLockManager)
+    def readOnlyCacheDir = testDir.file("read-only")
+    def readOnlyCache = new ReadOnlyBuildLogicCache(testDir, readOnlyCacheDir)
     URLClassLoader testClassLoader = null
 
     @Subject
@@ -76,7 +79,8 @@ class DefaultCachedClasspathTransformerTest extends ConcurrentSpec {
         fileSystemAccess,
         executorFactory,
         globalCacheLocations,
-        fileLockManager
+        fileLockManager,
+        readOnlyCache
     )
 
     def cleanup() {
@@ -258,6 +262,53 @@ class DefaultCachedClasspathTransformerTest extends ConcurrentSpec {
         0 * fileAccessTimeJournal._
     }
 
+    def "uses transformed file from read-only cache when usage is build logic"() {
+        given:
+        def file = testDir.file("thing.jar")
+        jar(file)
+        def classpath = DefaultClassPath.of(file)
+        def readOnlyFile = readOnlyCacheDir.file("cached/0cb8786b33ff79c0745a33823265f936/thing.jar")
+        readOnlyFile.text = "seeded"
+        readOnlyCacheDir.file("cached/0cb8786b33ff79c0745a33823265f936/thing.jar.receipt").createFile()
+
+        when:
+        def cachedClasspath = transformer.transform(classpath, BuildLogic)
+
+        then:
+        cachedClasspath.asFiles == [readOnlyFile]
+        readOnlyFile.text == "seeded"
+        !testDir.file("cached/0cb8786b33ff79c0745a33823265f936").exists()
+
+        and:
+        0 * fileAccessTimeJournal._
+
+        when:
+        def cachedClasspath2 = transformer.transform(cachedClasspath, BuildLogic)
+
+        then:
+        cachedClasspath2.asFiles == [readOnlyFile]
+        0 * fileAccessTimeJournal._
+    }
+
+    def "ignores incomplete file in read-only cache when usage is build logic"() {
+        given:
+        def file = testDir.file("thing.jar")
+        jar(file)
+        def classpath = DefaultClassPath.of(file)
+        readOnlyCacheDir.file("cached/0cb8786b33ff79c0745a33823265f936/thing.jar").text = "incomplete"
+        def cachedFile = testDir.file("cached/0cb8786b33ff79c0745a33823265f936/thing.jar")
+
+        when:
+        def cachedClasspath = transformer.transform(classpath, BuildLogic)
+
+        then:
+        cachedClasspath.asFiles == [cachedFile]
+
+        and:
+        1 * fileAccessTimeJournal.setLastAccessTime(cachedFile.parentFile, _)
+        0 * fileAccessTimeJournal._
+    }
+
     def "transforms directory into cache when usage is build logic"() {
         given:
         def dir = testDir.file("thing.dir")
@@ -308,6 +359,31 @@ class DefaultCachedClasspathTransformerTest extends ConcurrentSpec {
         0 * fileAccessTimeJournal._
     }
 
+    def "transforms classes of a file in parallel and keeps entries in their original order when usage is build logic"() {
+        given:
+        def file = testDir.file("thing.jar")
+        def entryNames = (0..<200).collect { it % 3 == 0 ? "resource${it}.txt" : "org/test/Thing${it}.class" }
+        classpathBuilder.jar(file) { builder ->
+            entryNames.each { name ->
+                builder.put(name, name.endsWith(".class") ? classOne() : name.bytes)
+            }
+        }
+        def classpath = DefaultClassPath.of(file)
+
+        when:
+        def cachedClasspath = transformer.transform(classpath, BuildLogic)
+
+        then:
+        def cachedFile = cachedClasspath.asFiles.first()
+        def zip = new java.util.zip.ZipFile(cachedFile)
+        def entries = zip.entries().collect { it }
+        entries.findAll { !it.directory }*.name == entryNames
+        zip.getInputStream(zip.getEntry("resource3.txt")).text == "resource3.txt"
+
+        cleanup:
+        zip?.close()
+    }
+
     def "removes entries with duplicate content when usage is none"() {
         given:
         def dir = testDir.file("thing.dir")
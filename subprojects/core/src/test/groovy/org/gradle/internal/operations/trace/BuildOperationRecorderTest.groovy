@@ -0,0 +1,152 @@
+/*
+ * Copyright 2021 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.internal.operations.trace
+
+import groovy.json.JsonSlurper
+import org.gradle.internal.operations.BuildOperationDescriptor
+import org.gradle.internal.operations.DefaultBuildOperationListenerManager
+import org.gradle.internal.operations.OperationFinishEvent
+import org.gradle.internal.operations.OperationIdentifier
+import org.gradle.internal.operations.OperationProgressEvent
+import org.gradle.internal.operations.OperationStartEvent
+import org.gradle.test.fixtures.file.TestNameTestDirectoryProvider
+import org.junit.Rule
+import spock.lang.Specification
+
+class BuildOperationRecorderTest extends Specification {
+    @Rule
+    TestNameTestDirectoryProvider tmpDir = new TestNameTestDirectoryProvider(getClass())
+    def recording = tmpDir.file("recording.bin")
+    def listenerManager = new DefaultBuildOperationListenerManager(false)
+    def broadcaster = listenerManager.broadcaster
+
+    def "records operations which span multiple regions and converts them to a Chrome trace"() {
+        def recorder = new BuildOperationRecorder(recording, listenerManager, 64)
+        def root = BuildOperationDescriptor.displayName("Root \"operation\"").build(new OperationIdentifier(1), null)
+        def children = (2..50).collect {
+            BuildOperationDescriptor.displayName("Child ${it % 5}").details("details").build(new OperationIdentifier(it), root.id)
+        }
+
+        when:
+        broadcaster.started(root, new OperationStartEvent(1000))
+        children.eachWithIndex { child, index ->
+            broadcaster.started(child, new OperationStartEvent(1000 + index))
+            broadcaster.progress(child.id, new OperationProgressEvent(1001 + index, 12))
+            broadcaster.finished(child, new OperationFinishEvent(1000 + index, 1002 + index, index == 3 ? new RuntimeException() : null, 12L))
+        }
+        broadcaster.finished(root, new OperationFinishEvent(1000, 1100, null, null))
+        recorder.stop()
+
+        and:
+        def operations = []
+        new BuildOperationRecordingReader(recording).read(new BuildOperationRecordingReader.Visitor() {
+            @Override
+            void started(long id, long parentId, String displayName, String detailsType, String threadName, long startTime) {
+                operations << [id, parentId, displayName, detailsType, threadName, startTime]
+            }
+
+            @Override
+            void progress(long id, String detailsType, long time) {
+            }
+
+            @Override
+            void finished(long id, String resultType, boolean failed, long endTime) {
+                operations << [id, resultType, failed, endTime]
+            }
+        })
+
+        then:
+        operations.size() == 100
+        operations[0] == [1L, 0L, "Root \"operation\"", null, Thread.currentThread().name, 1000L]
+        operations[1] == [2L, 1L, "Child 2", String.name, Thread.currentThread().name, 1000L]
+        operations[2] == [2L, Long.name, false, 1002L]
+        operations[8] == [5L, Long.name, true, 1005L]
+        operations[99] == [1L, null, false, 1100L]
+
+        when:
+        def trace = tmpDir.file("trace.json")
+        ChromeTraceConverter.convert(recording, trace)
+        def events = new JsonSlurper().parse(trace).traceEvents
+
+        then:
+        events.count { it.ph == "X" } == 50
+        events.count { it.ph == "i" } == 49
+        events.find { it.ph == "M" }.args.name == Thread.currentThread().name
+        with(events.find { it.ph == "X" && it.args.id == 1 }) {
+            name == "Root \"operation\""
+            ts == 0
+            dur == 100000
+        }
+        with(events.find { it.ph == "X" && it.args.id == 5 }) {
+            name == "Child 0"
+            ts == 3000
+            args.parentId == 1
+            args.failed
+        }
+    }
+
+    def "ignores the incomplete end of a recording"() {
+        def recorder = new BuildOperationRecorder(recording, listenerManager, 1024)
+        def operation = BuildOperationDescriptor.displayName("Operation").build(new OperationIdentifier(1), null)
+        broadcaster.started(operation, new OperationStartEvent(1000))
+        broadcaster.finished(operation, new OperationFinishEvent(1000, 1010, null, null))
+        recorder.stop()
+
+        when:
+        recording.bytes = recording.bytes[0..-2] as byte[]
+        def trace = tmpDir.file("trace.json")
+        ChromeTraceConverter.convert(recording, trace)
+        def events = new JsonSlurper().parse(trace).traceEvents
+
+        then:
+        events.count { it.ph == "X" } == 0
+        events.count { it.ph == "M" } == 1
+    }
+
+    def "does not record operations when not enabled"() {
+        when:
+        def recorder = new BuildOperationRecorder(null, listenerManager, 1024)
+        def operation = BuildOperationDescriptor.displayName("Operation").build(new OperationIdentifier(1), null)
+        broadcaster.started(operation, new OperationStartEvent(1000))
+        broadcaster.finished(operation, new OperationFinishEvent(1000, 1010, null, null))
+        recorder.stop()
+
+        then:
+        noExceptionThrown()
+        !recording.exists()
+        tmpDir.testDirectory.list().length == 0
+    }
+
+    def "ignores operations which the listener is notified of after stop"() {
+        def recorder = new BuildOperationRecorder(recording, listenerManager, 1024)
+        def operation = BuildOperationDescriptor.displayName("Operation").build(new OperationIdentifier(1), null)
+        broadcaster.started(operation, new OperationStartEvent(1000))
+        recorder.stop()
+        def length = recording.length()
+
+        when:
+        // Notifications which raced with removing the listener
+        recorder.@listener.progress(operation.id, new OperationProgressEvent(1005, null))
+        recorder.@listener.finished(operation, new OperationFinishEvent(1000, 1010, null, null))
+        recorder.@listener.started(operation, new OperationStartEvent(1020))
+        recorder.stop()
+
+        then:
+        noExceptionThrown()
+        recording.length() == length
+    }
+}
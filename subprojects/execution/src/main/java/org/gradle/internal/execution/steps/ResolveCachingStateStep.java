@@ -82,7 +82,10 @@ public CachingResult execute(UnitOfWork work, C context) {
         }
 
         cachingState.apply(
-            enabled -> logCacheKey(enabled.getKey(), work),
+            enabled -> {
+                logCacheKey(enabled.getKey(), work);
+                prefetchIfLoadIsExpected(enabled.getKey(), work, context);
+            },
             disabled -> logDisabledReasons(disabled.getDisabledReasons(), work)
         );
 
@@ -202,6 +205,14 @@ private CachingState calculateCachingStateWithNoCapturedInputs(UnitOfWork work)
             .orElse(CachingState.NOT_DETERMINED);
     }
 
+    private void prefetchIfLoadIsExpected(BuildCacheKey cacheKey, UnitOfWork work, C context) {
+        // Work without a previous execution cannot be up-to-date, so it will try to load its outputs from the cache.
+        // The key is only known once the inputs have been fingerprinted, so keys of work executing in parallel are looked up together by the prefetcher.
+        if (!context.getPreviousExecutionState().isPresent() && work.isAllowedToLoadFromCache()) {
+            buildCache.prefetch(ImmutableList.of(cacheKey));
+        }
+    }
+
     private void logCacheKey(BuildCacheKey cacheKey, UnitOfWork work) {
         if (buildCache.isEmitDebugLogging()) {
             LOGGER.warn("Build cache key for {} is {}", work.getDisplayName(), cacheKey.getDisplayName());
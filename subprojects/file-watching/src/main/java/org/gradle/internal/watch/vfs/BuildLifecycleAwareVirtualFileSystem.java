@@ -52,4 +52,21 @@ public interface BuildLifecycleAwareVirtualFileSystem extends VirtualFileSystem
      */
     void beforeBuildFinished(WatchMode watchMode, VfsLogging vfsLogging, WatchLogging watchLogging, BuildOperationRunner buildOperationRunner, int maximumNumberOfWatchedHierarchies);
 
+    /**
+     * Restores the state written by {@link #persistState(File, File)}.
+     *
+     * This only has an effect when watching has been started by the current build, so the restored state is kept up-to-date from then on.
+     * Restored locations which have been changed since the state was persisted are invalidated.
+     * This also starts recording the directory stamps needed to persist the state, see {@link org.gradle.internal.watch.vfs.impl.PersistentVirtualFileSystemState}.
+     */
+    void restoreState(File stateFile);
+
+    /**
+     * Persists the state retained until the next build for the locations in the build root directory.
+     * Nothing is persisted when the file system is not being watched.
+     *
+     * Called after {@link #beforeBuildFinished(WatchMode, VfsLogging, WatchLogging, BuildOperationRunner, int)}, only when the build succeeded.
+     */
+    void persistState(File stateFile, File buildRootDirectory);
+
 }
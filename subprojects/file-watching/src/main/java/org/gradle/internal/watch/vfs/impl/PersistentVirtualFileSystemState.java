@@ -0,0 +1,437 @@
+/*
+ * Copyright 2021 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.internal.watch.vfs.impl;
+
+import org.gradle.internal.file.FileMetadata.AccessType;
+import org.gradle.internal.file.impl.DefaultFileMetadata;
+import org.gradle.internal.hash.HashCode;
+import org.gradle.internal.snapshot.DirectorySnapshot;
+import org.gradle.internal.snapshot.FileSystemLocationSnapshot;
+import org.gradle.internal.snapshot.MissingFileSnapshot;
+import org.gradle.internal.snapshot.RegularFileSnapshot;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.annotation.Nullable;
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.LinkOption;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Consumer;
+
+/**
+ * Persists the snapshots retained by the virtual file system, so a new daemon can start with the state left behind by the previous one.
+ *
+ * The state is only written while the file system is being watched, so the snapshots have been kept up-to-date by the watchers until then.
+ * The state records a marker of the watch session which did this.
+ *
+ * Since nothing watched the file system in between, restored snapshots need to be checked against the file system.
+ * The check only looks at metadata: regular files are compared by modification time and length, like the cross-build file hash cache does,
+ * and directories by the modification time and file key (the inode on Unix), which change whenever an entry is added or removed.
+ * The stamps of directories are recorded when their snapshots are stored in the virtual file system, see {@link #snapshotsChanged(Collection, Collection)},
+ * since the directory may change afterwards, which only the watchers notice.
+ * Locations modified shortly before the state was written are never trusted, since a later modification may not change their timestamp.
+ */
+public class PersistentVirtualFileSystemState {
+    private static final Logger LOGGER = LoggerFactory.getLogger(PersistentVirtualFileSystemState.class);
+
+    private static final int MAGIC = 0x56465353;
+    private static final int FORMAT_VERSION = 2;
+    private static final long RACY_INTERVAL_MILLIS = 2000;
+
+    private static final byte DIRECTORY = 0;
+    private static final byte REGULAR_FILE = 1;
+    private static final byte MISSING = 2;
+
+    private final String stateVersion;
+    private final Map<String, DirectoryStamp> directoryStamps = new ConcurrentHashMap<>();
+    private volatile boolean recordingDirectoryStamps;
+
+    /**
+     * @param stateVersion identifies everything besides the format which makes persisted snapshots incompatible, e.g. the Gradle version or the file content hash function.
+     */
+    public PersistentVirtualFileSystemState(String stateVersion) {
+        this.stateVersion = stateVersion;
+    }
+
+    /**
+     * Starts a new watch session, forgetting the directory stamps recorded during the previous one.
+     */
+    public WatchSession startWatchSession() {
+        directoryStamps.clear();
+        return new WatchSession(UUID.randomUUID().toString(), System.currentTimeMillis());
+    }
+
+    /**
+     * Starts recording the stamps of the directories stored in the virtual file system from now on.
+     * Directories stored earlier have no stamp, so they are treated as changed when the state is restored.
+     */
+    public void startRecordingDirectoryStamps() {
+        recordingDirectoryStamps = true;
+    }
+
+    /**
+     * Records the stamps of the directories in the snapshots added to the virtual file system, and forgets the ones of removed snapshots.
+     */
+    public void snapshotsChanged(Collection<FileSystemLocationSnapshot> removedSnapshots, Collection<FileSystemLocationSnapshot> addedSnapshots) {
+        if (!recordingDirectoryStamps) {
+            return;
+        }
+        removedSnapshots.forEach(removedSnapshot -> visitDirectories(removedSnapshot, directory -> directoryStamps.remove(directory.getAbsolutePath())));
+        addedSnapshots.forEach(addedSnapshot -> visitDirectories(addedSnapshot, directory -> directoryStamps.put(directory.getAbsolutePath(), DirectoryStamp.of(directory.getAbsolutePath()))));
+    }
+
+    private static void visitDirectories(FileSystemLocationSnapshot snapshot, Consumer<DirectorySnapshot> action) {
+        snapshot.accept(new FileSystemLocationSnapshot.FileSystemLocationSnapshotVisitor() {
+            @Override
+            public void visitDirectory(DirectorySnapshot directorySnapshot) {
+                action.accept(directorySnapshot);
+                directorySnapshot.getChildren().forEach(child -> visitDirectories(child, action));
+            }
+        });
+    }
+
+    /**
+     * Replaces the state in the given file with the given root snapshots, or deletes the file when there are none.
+     *
+     * @param watchSession the watch session which has kept the snapshots up-to-date.
+     */
+    public void write(File stateFile, WatchSession watchSession, Collection<FileSystemLocationSnapshot> rootSnapshots) {
+        try {
+            if (rootSnapshots.isEmpty()) {
+                Files.deleteIfExists(stateFile.toPath());
+                return;
+            }
+            Path stateDir = stateFile.getParentFile().toPath();
+            Files.createDirectories(stateDir);
+            Path tempFile = Files.createTempFile(stateDir, stateFile.getName(), ".tmp");
+            try {
+                try (DataOutputStream output = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(tempFile)))) {
+                    output.writeInt(MAGIC);
+                    output.writeInt(FORMAT_VERSION);
+                    output.writeUTF(stateVersion);
+                    output.writeUTF(watchSession.id);
+                    output.writeLong(watchSession.startedAt);
+                    output.writeLong(System.currentTimeMillis());
+                    output.writeInt(rootSnapshots.size());
+                    for (FileSystemLocationSnapshot rootSnapshot : rootSnapshots) {
+                        output.writeUTF(rootSnapshot.getAbsolutePath());
+                        writeSnapshot(output, rootSnapshot, directoryStamps);
+                    }
+                }
+                // Another daemon may read or write the same state concurrently, so only ever expose complete files
+                Files.move(tempFile, stateFile.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            } finally {
+                Files.deleteIfExists(tempFile);
+            }
+        } catch (IOException | UncheckedIOException e) {
+            LOGGER.info("Unable to persist the virtual file system state to {}", stateFile, e);
+        }
+    }
+
+    /**
+     * Reads the state from the given file, if it exists and has been written by a compatible version.
+     */
+    @Nullable
+    public PersistedSnapshots read(File stateFile) {
+        if (!stateFile.isFile()) {
+            return null;
+        }
+        try (DataInputStream input = new DataInputStream(new BufferedInputStream(Files.newInputStream(stateFile.toPath())))) {
+            if (input.readInt() != MAGIC || input.readInt() != FORMAT_VERSION || !stateVersion.equals(input.readUTF())) {
+                LOGGER.info("Ignoring virtual file system state in {} written by a different version", stateFile);
+                return null;
+            }
+            WatchSession watchSession = new WatchSession(input.readUTF(), input.readLong());
+            long writtenAt = input.readLong();
+            int rootCount = input.readInt();
+            List<FileSystemLocationSnapshot> rootSnapshots = new ArrayList<>(rootCount);
+            Map<String, DirectoryStamp> directoryStamps = new HashMap<>();
+            for (int i = 0; i < rootCount; i++) {
+                String absolutePath = input.readUTF();
+                rootSnapshots.add(readSnapshot(input, absolutePath, directoryStamps));
+            }
+            return new PersistedSnapshots(rootSnapshots, directoryStamps, watchSession, writtenAt);
+        } catch (IOException | RuntimeException e) {
+            LOGGER.info("Unable to read the virtual file system state from {}", stateFile, e);
+            return null;
+        }
+    }
+
+    private static void writeSnapshot(DataOutputStream output, FileSystemLocationSnapshot snapshot, Map<String, DirectoryStamp> directoryStamps) {
+        snapshot.accept(new FileSystemLocationSnapshot.FileSystemLocationSnapshotVisitor() {
+            @Override
+            public void visitDirectory(DirectorySnapshot directorySnapshot) {
+                try {
+                    writeHeader(output, DIRECTORY, directorySnapshot);
+                    writeHashCode(output, directorySnapshot.getHash());
+                    DirectoryStamp stamp = directoryStamps.getOrDefault(directorySnapshot.getAbsolutePath(), DirectoryStamp.UNKNOWN);
+                    output.writeLong(stamp.lastModified);
+                    output.writeUTF(stamp.fileKey);
+                    List<FileSystemLocationSnapshot> children = directorySnapshot.getChildren();
+                    output.writeInt(children.size());
+                    for (FileSystemLocationSnapshot child : children) {
+                        output.writeUTF(child.getName());
+                        writeSnapshot(output, child, directoryStamps);
+                    }
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            }
+
+            @Override
+            public void visitRegularFile(RegularFileSnapshot fileSnapshot) {
+                try {
+                    writeHeader(output, REGULAR_FILE, fileSnapshot);
+                    writeHashCode(output, fileSnapshot.getHash());
+                    output.writeLong(fileSnapshot.getMetadata().getLastModified());
+                    output.writeLong(fileSnapshot.getMetadata().getLength());
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            }
+
+            @Override
+            public void visitMissing(MissingFileSnapshot missingSnapshot) {
+                try {
+                    writeHeader(output, MISSING, missingSnapshot);
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            }
+        });
+    }
+
+    private static void writeHeader(DataOutputStream output, byte type, FileSystemLocationSnapshot snapshot) throws IOException {
+        output.writeByte(type);
+        output.writeByte(snapshot.getAccessType().ordinal());
+    }
+
+    private static void writeHashCode(DataOutputStream output, HashCode hashCode) throws IOException {
+        byte[] bytes = hashCode.toByteArray();
+        output.writeByte(bytes.length);
+        output.write(bytes);
+    }
+
+    private static FileSystemLocationSnapshot readSnapshot(DataInputStream input, String absolutePath, Map<String, DirectoryStamp> directoryStamps) throws IOException {
+        String name = new File(absolutePath).getName();
+        byte type = input.readByte();
+        AccessType accessType = AccessType.values()[input.readByte()];
+        switch (type) {
+            case DIRECTORY:
+                HashCode merkleHash = readHashCode(input);
+                directoryStamps.put(absolutePath, new DirectoryStamp(input.readLong(), input.readUTF()));
+                int childCount = input.readInt();
+                List<FileSystemLocationSnapshot> children = new ArrayList<>(childCount);
+                for (int i = 0; i < childCount; i++) {
+                    String childName = input.readUTF();
+                    children.add(readSnapshot(input, absolutePath + File.separatorChar + childName, directoryStamps));
+                }
+                return new DirectorySnapshot(absolutePath, name, accessType, merkleHash, children);
+            case REGULAR_FILE:
+                HashCode contentHash = readHashCode(input);
+                long lastModified = input.readLong();
+                long length = input.readLong();
+                return new RegularFileSnapshot(absolutePath, name, contentHash, DefaultFileMetadata.file(lastModified, length, accessType));
+            case MISSING:
+                return new MissingFileSnapshot(absolutePath, name, accessType);
+            default:
+                throw new IOException("Unknown snapshot type " + type);
+        }
+    }
+
+    private static HashCode readHashCode(DataInputStream input) throws IOException {
+        byte[] bytes = new byte[input.readUnsignedByte()];
+        input.readFully(bytes);
+        return HashCode.fromBytes(bytes);
+    }
+
+    /**
+     * Marks a period in which a daemon watched the file system without interruption.
+     */
+    public static class WatchSession {
+        private final String id;
+        private final long startedAt;
+
+        private WatchSession(String id, long startedAt) {
+            this.id = id;
+            this.startedAt = startedAt;
+        }
+
+        @Override
+        public String toString() {
+            return "watch session " + id + " started at " + Instant.ofEpochMilli(startedAt);
+        }
+    }
+
+    /**
+     * Snapshots read from a persisted state.
+     */
+    public static class PersistedSnapshots {
+        private final List<FileSystemLocationSnapshot> rootSnapshots;
+        private final Map<String, DirectoryStamp> directoryStamps;
+        private final WatchSession watchSession;
+        private final long writtenAt;
+
+        private PersistedSnapshots(List<FileSystemLocationSnapshot> rootSnapshots, Map<String, DirectoryStamp> directoryStamps, WatchSession watchSession, long writtenAt) {
+            this.rootSnapshots = rootSnapshots;
+            this.directoryStamps = directoryStamps;
+            this.watchSession = watchSession;
+            this.writtenAt = writtenAt;
+        }
+
+        public List<FileSystemLocationSnapshot> getRootSnapshots() {
+            return rootSnapshots;
+        }
+
+        /**
+         * The watch session which kept the snapshots up-to-date until the state was written.
+         */
+        public WatchSession getWatchSession() {
+            return watchSession;
+        }
+
+        /**
+         * Checks the snapshots against the file system, and returns the locations which need to be invalidated.
+         *
+         * Locations below a changed directory are not checked, since invalidating the directory drops them as well.
+         */
+        public List<String> findChangedLocations() {
+            List<String> changedLocations = new ArrayList<>();
+            for (FileSystemLocationSnapshot rootSnapshot : rootSnapshots) {
+                collectChangedLocations(rootSnapshot, changedLocations);
+            }
+            return changedLocations;
+        }
+
+        private void collectChangedLocations(FileSystemLocationSnapshot snapshot, List<String> changedLocations) {
+            String absolutePath = snapshot.getAbsolutePath();
+            BasicFileAttributes attributes;
+            boolean viaSymlink;
+            try {
+                Path path = new File(absolutePath).toPath();
+                attributes = Files.readAttributes(path, BasicFileAttributes.class, LinkOption.NOFOLLOW_LINKS);
+                viaSymlink = attributes.isSymbolicLink();
+                if (viaSymlink) {
+                    attributes = Files.readAttributes(path, BasicFileAttributes.class);
+                }
+            } catch (NoSuchFileException e) {
+                attributes = null;
+                viaSymlink = snapshot.getAccessType() == AccessType.VIA_SYMLINK && Files.isSymbolicLink(new File(absolutePath).toPath());
+            } catch (IOException e) {
+                changedLocations.add(absolutePath);
+                return;
+            }
+            if (viaSymlink != (snapshot.getAccessType() == AccessType.VIA_SYMLINK)) {
+                changedLocations.add(absolutePath);
+                return;
+            }
+            BasicFileAttributes currentAttributes = attributes;
+            snapshot.accept(new FileSystemLocationSnapshot.FileSystemLocationSnapshotVisitor() {
+                @Override
+                public void visitDirectory(DirectorySnapshot directorySnapshot) {
+                    DirectoryStamp stamp = directoryStamps.get(absolutePath);
+                    if (currentAttributes == null
+                        || !currentAttributes.isDirectory()
+                        || stamp == null
+                        || !stamp.matches(currentAttributes)
+                        || isRacy(stamp.lastModified)) {
+                        changedLocations.add(absolutePath);
+                        return;
+                    }
+                    for (FileSystemLocationSnapshot child : directorySnapshot.getChildren()) {
+                        collectChangedLocations(child, changedLocations);
+                    }
+                }
+
+                @Override
+                public void visitRegularFile(RegularFileSnapshot fileSnapshot) {
+                    long lastModified = fileSnapshot.getMetadata().getLastModified();
+                    if (currentAttributes == null
+                        || !currentAttributes.isRegularFile()
+                        || currentAttributes.lastModifiedTime().toMillis() != lastModified
+                        || currentAttributes.size() != fileSnapshot.getMetadata().getLength()
+                        || isRacy(lastModified)) {
+                        changedLocations.add(absolutePath);
+                    }
+                }
+
+                @Override
+                public void visitMissing(MissingFileSnapshot missingSnapshot) {
+                    if (currentAttributes != null) {
+                        changedLocations.add(absolutePath);
+                    }
+                }
+            });
+        }
+
+        private boolean isRacy(long lastModified) {
+            return lastModified >= writtenAt - RACY_INTERVAL_MILLIS;
+        }
+    }
+
+    private static class DirectoryStamp {
+        private static final DirectoryStamp UNKNOWN = new DirectoryStamp(-1, "");
+
+        private final long lastModified;
+        private final String fileKey;
+
+        DirectoryStamp(long lastModified, String fileKey) {
+            this.lastModified = lastModified;
+            this.fileKey = fileKey;
+        }
+
+        static DirectoryStamp of(String absolutePath) {
+            try {
+                BasicFileAttributes attributes = Files.readAttributes(new File(absolutePath).toPath(), BasicFileAttributes.class);
+                return attributes.isDirectory()
+                    ? new DirectoryStamp(attributes.lastModifiedTime().toMillis(), fileKeyOf(attributes))
+                    : UNKNOWN;
+            } catch (IOException e) {
+                return UNKNOWN;
+            }
+        }
+
+        boolean matches(BasicFileAttributes attributes) {
+            return lastModified >= 0
+                && lastModified == attributes.lastModifiedTime().toMillis()
+                && fileKey.equals(fileKeyOf(attributes));
+        }
+
+        private static String fileKeyOf(BasicFileAttributes attributes) {
+            Object fileKey = attributes.fileKey();
+            return fileKey == null ? "" : fileKey.toString();
+        }
+    }
+}
@@ -92,4 +92,12 @@ public BuildOperationDescriptor.Builder description() {
             }
         }));
     }
+
+    @Override
+    public void restoreState(File stateFile) {
+    }
+
+    @Override
+    public void persistState(File stateFile, File buildRootDirectory) {
+    }
 }
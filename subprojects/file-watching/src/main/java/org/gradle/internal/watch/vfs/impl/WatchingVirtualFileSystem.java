@@ -22,6 +22,7 @@
 import org.gradle.internal.operations.BuildOperationDescriptor;
 import org.gradle.internal.operations.BuildOperationRunner;
 import org.gradle.internal.operations.CallableBuildOperation;
+import org.gradle.internal.snapshot.FileSystemLocationSnapshot;
 import org.gradle.internal.snapshot.FileSystemNode;
 import org.gradle.internal.snapshot.SnapshotHierarchy;
 import org.gradle.internal.vfs.impl.AbstractVirtualFileSystem;
@@ -48,8 +49,10 @@
 import java.io.IOException;
 import java.nio.file.Path;
 import java.util.LinkedHashSet;
+import java.util.List;
 import java.util.Set;
 import java.util.function.Supplier;
+import java.util.stream.Collectors;
 
 public class WatchingVirtualFileSystem extends AbstractVirtualFileSystem implements BuildLifecycleAwareVirtualFileSystem, Closeable {
     private static final Logger LOGGER = LoggerFactory.getLogger(WatchingVirtualFileSystem.class);
@@ -59,6 +62,7 @@ public class WatchingVirtualFileSystem extends AbstractVirtualFileSystem impleme
     private final FileWatcherRegistryFactory watcherRegistryFactory;
     private final DaemonDocumentationIndex daemonDocumentationIndex;
     private final LocationsWrittenByCurrentBuild locationsWrittenByCurrentBuild;
+    private final PersistentVirtualFileSystemState persistentState;
     private Logger warningLogger = LOGGER;
 
     /**
@@ -67,19 +71,23 @@ public class WatchingVirtualFileSystem extends AbstractVirtualFileSystem impleme
     private final Set<File> watchableHierarchiesRegisteredEarly = new LinkedHashSet<>();
 
     private FileWatcherRegistry watchRegistry;
+    private PersistentVirtualFileSystemState.WatchSession watchSession;
     private Exception reasonForNotWatchingFiles;
     private boolean stateInvalidatedAtStartOfBuild;
+    private boolean watchingStartedByCurrentBuild;
 
     public WatchingVirtualFileSystem(
         FileWatcherRegistryFactory watcherRegistryFactory,
         VfsRootReference rootReference,
         DaemonDocumentationIndex daemonDocumentationIndex,
-        LocationsWrittenByCurrentBuild locationsWrittenByCurrentBuild
+        LocationsWrittenByCurrentBuild locationsWrittenByCurrentBuild,
+        PersistentVirtualFileSystemState persistentState
     ) {
         super(rootReference);
         this.watcherRegistryFactory = watcherRegistryFactory;
         this.daemonDocumentationIndex = daemonDocumentationIndex;
         this.locationsWrittenByCurrentBuild = locationsWrittenByCurrentBuild;
+        this.persistentState = persistentState;
     }
 
     @Override
@@ -89,9 +97,10 @@ protected SnapshotHierarchy updateNotifyingListeners(UpdateFunction updateFuncti
         } else {
             SnapshotCollectingDiffListener diffListener = new SnapshotCollectingDiffListener();
             SnapshotHierarchy newRoot = updateFunction.update(diffListener);
-            return withWatcherChangeErrorHandling(newRoot, () -> diffListener.publishSnapshotDiff((removedSnapshots, addedSnapshots) ->
-                watchRegistry.virtualFileSystemContentsChanged(removedSnapshots, addedSnapshots, newRoot)
-            ));
+            return withWatcherChangeErrorHandling(newRoot, () -> diffListener.publishSnapshotDiff((removedSnapshots, addedSnapshots) -> {
+                persistentState.snapshotsChanged(removedSnapshots, addedSnapshots);
+                watchRegistry.virtualFileSystemContentsChanged(removedSnapshots, addedSnapshots, newRoot);
+            }));
         }
     }
 
@@ -99,6 +108,7 @@ protected SnapshotHierarchy updateNotifyingListeners(UpdateFunction updateFuncti
     public boolean afterBuildStarted(WatchMode watchMode, VfsLogging vfsLogging, WatchLogging watchLogging, BuildOperationRunner buildOperationRunner) {
         warningLogger = watchMode.loggerForWarnings(LOGGER);
         stateInvalidatedAtStartOfBuild = false;
+        watchingStartedByCurrentBuild = false;
         reasonForNotWatchingFiles = null;
         rootReference.update(currentRoot -> buildOperationRunner.call(new CallableBuildOperation<SnapshotHierarchy>() {
             @Override
@@ -109,6 +119,7 @@ public SnapshotHierarchy call(BuildOperationContext context) {
                     if (watchRegistry == null) {
                         context.setStatus("Starting file system watching");
                         newRoot = startWatching(currentRoot, watchMode);
+                        watchingStartedByCurrentBuild = watchRegistry != null;
                         statisticsSinceLastBuild = null;
                     } else {
                         FileWatcherRegistry.FileWatchingStatistics statistics = watchRegistry.getAndResetStatistics();
@@ -263,6 +274,44 @@ public BuildOperationDescriptor.Builder description() {
         warningLogger = LOGGER;
     }
 
+    @Override
+    public void restoreState(File stateFile) {
+        persistentState.startRecordingDirectoryStamps();
+        if (!watchingStartedByCurrentBuild) {
+            return;
+        }
+        watchingStartedByCurrentBuild = false;
+        PersistentVirtualFileSystemState.PersistedSnapshots persistedSnapshots = persistentState.read(stateFile);
+        if (persistedSnapshots == null) {
+            return;
+        }
+        // Store the snapshots before checking them, so any change after the check is reported by the watchers
+        List<FileSystemLocationSnapshot> rootSnapshots = persistedSnapshots.getRootSnapshots();
+        rootReference.update(currentRoot -> updateNotifyingListeners(diffListener -> {
+            SnapshotHierarchy newRoot = currentRoot;
+            for (FileSystemLocationSnapshot rootSnapshot : rootSnapshots) {
+                newRoot = newRoot.store(rootSnapshot.getAbsolutePath(), rootSnapshot, diffListener);
+            }
+            return newRoot;
+        }));
+        List<String> changedLocations = persistedSnapshots.findChangedLocations();
+        if (!changedLocations.isEmpty()) {
+            invalidate(changedLocations);
+        }
+        LOGGER.info("Restored virtual file system state for {} locations kept up-to-date by {} from {}, {} of them changed since",
+            rootSnapshots.size(), persistedSnapshots.getWatchSession(), stateFile, changedLocations.size());
+    }
+
+    @Override
+    public void persistState(File stateFile, File buildRootDirectory) {
+        if (watchRegistry == null) {
+            // Nothing has kept the state up-to-date
+            return;
+        }
+        List<FileSystemLocationSnapshot> rootSnapshots = rootReference.getRoot().rootSnapshotsUnder(buildRootDirectory.getAbsolutePath()).collect(Collectors.toList());
+        persistentState.write(stateFile, watchSession, rootSnapshots);
+    }
+
     /**
      * Start watching the known areas of the file system for changes.
      */
@@ -290,6 +339,7 @@ public void stopWatchingAfterError() {
                     stopWatchingAndInvalidateHierarchyAfterError();
                 }
             });
+            watchSession = persistentState.startWatchSession();
             SnapshotHierarchy newRoot = watchRegistry.updateVfsOnBuildStarted(currentRoot.empty(), watchMode);
             watchableHierarchiesRegisteredEarly.forEach(watchableHierarchy -> watchRegistry.registerWatchableHierarchy(watchableHierarchy, newRoot));
             watchableHierarchiesRegisteredEarly.clear();
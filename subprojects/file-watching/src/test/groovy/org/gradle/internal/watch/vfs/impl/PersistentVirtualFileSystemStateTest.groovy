@@ -0,0 +1,185 @@
+/*
+ * Copyright 2021 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.internal.watch.vfs.impl
+
+import org.gradle.internal.file.FileMetadata.AccessType
+import org.gradle.internal.file.impl.DefaultFileMetadata
+import org.gradle.internal.hash.Hashing
+import org.gradle.internal.snapshot.DirectorySnapshot
+import org.gradle.internal.snapshot.FileSystemLocationSnapshot
+import org.gradle.internal.snapshot.MissingFileSnapshot
+import org.gradle.internal.snapshot.RegularFileSnapshot
+import org.gradle.test.fixtures.file.TestFile
+import org.gradle.test.fixtures.file.TestNameTestDirectoryProvider
+import org.junit.Rule
+import spock.lang.Specification
+
+class PersistentVirtualFileSystemStateTest extends Specification {
+    @Rule
+    TestNameTestDirectoryProvider tmpDir = new TestNameTestDirectoryProvider(getClass())
+    def stateFile = tmpDir.file("state/vfs-state.bin")
+    def persistentState = new PersistentVirtualFileSystemState("1.0")
+    def watchSession = persistentState.startWatchSession()
+
+    def root = tmpDir.createDir("root")
+    def oldTimestamp = System.currentTimeMillis() - 10_000
+
+    def "restores unchanged snapshots"() {
+        def rootSnapshot = snapshotRoot()
+
+        when:
+        persist(rootSnapshot)
+        def persisted = persistentState.read(stateFile)
+
+        then:
+        persisted.watchSession.toString() == watchSession.toString()
+        persisted.rootSnapshots.size() == 1
+        def restored = persisted.rootSnapshots[0] as DirectorySnapshot
+        restored.absolutePath == root.absolutePath
+        restored.hash == rootSnapshot.hash
+        restored.children*.absolutePath == rootSnapshot.children*.absolutePath
+        restored.children*.hash == rootSnapshot.children*.hash
+        (restored.children[1] as RegularFileSnapshot).metadata == (rootSnapshot.children[1] as RegularFileSnapshot).metadata
+        persisted.findChangedLocations().empty
+    }
+
+    def "detects changed locations"() {
+        def rootSnapshot = snapshotRoot()
+        persist(rootSnapshot)
+
+        when:
+        change()
+
+        then:
+        persistentState.read(stateFile).findChangedLocations() == [changedLocation ? root.file(changedLocation).absolutePath : root.absolutePath]
+
+        where:
+        changedLocation | change
+        "file.txt"      | { root.file("file.txt").text = "changed content" }
+        "dir"           | { root.file("dir/added.txt").text = "added" }
+        "dir"           | { root.file("dir/nested.txt").delete() }
+        // Creating the missing file changes the parent directory
+        null            | { root.file("missing").text = "now exists" }
+    }
+
+    def "does not trust recently modified locations"() {
+        def rootSnapshot = snapshotRoot()
+        root.file("file.txt").setLastModified(System.currentTimeMillis())
+        def recentlyModified = regularFile(root.file("file.txt"))
+        def recentlyModifiedRoot = new DirectorySnapshot(root.absolutePath, root.name, AccessType.DIRECT, rootSnapshot.hash, [rootSnapshot.children[0], recentlyModified, rootSnapshot.children[2]])
+
+        when:
+        persist(recentlyModifiedRoot)
+
+        then:
+        persistentState.read(stateFile).findChangedLocations() == [root.file("file.txt").absolutePath]
+    }
+
+    def "uses the directory stamps recorded when the snapshots were stored"() {
+        def rootSnapshot = snapshotRoot()
+        persistentState.startRecordingDirectoryStamps()
+        persistentState.snapshotsChanged([], [rootSnapshot])
+
+        when:
+        // A change the watchers would have reported, had it happened after the directory was watched
+        root.file("dir/added.txt").text = "added"
+        persistentState.write(stateFile, watchSession, [rootSnapshot])
+
+        then:
+        persistentState.read(stateFile).findChangedLocations() == [root.file("dir").absolutePath]
+    }
+
+    def "treats directories without recorded stamp as changed"() {
+        def rootSnapshot = snapshotRoot()
+
+        when:
+        persistentState.write(stateFile, watchSession, [rootSnapshot])
+
+        then:
+        persistentState.read(stateFile).findChangedLocations() == [root.absolutePath]
+    }
+
+    def "forgets the directory stamps of removed snapshots and of previous watch sessions"() {
+        def rootSnapshot = snapshotRoot()
+        persistentState.startRecordingDirectoryStamps()
+
+        when:
+        persistentState.snapshotsChanged([], [rootSnapshot])
+        persistentState.snapshotsChanged([rootSnapshot.children[0]], [])
+        persistentState.write(stateFile, watchSession, [rootSnapshot])
+
+        then:
+        persistentState.read(stateFile).findChangedLocations() == [root.file("dir").absolutePath]
+
+        when:
+        persistentState.snapshotsChanged([], [rootSnapshot])
+        def newWatchSession = persistentState.startWatchSession()
+        persistentState.write(stateFile, newWatchSession, [rootSnapshot])
+
+        then:
+        persistentState.read(stateFile).findChangedLocations() == [root.absolutePath]
+    }
+
+    def "ignores state written by a different version"() {
+        persist(snapshotRoot())
+
+        expect:
+        stateFile.exists()
+        new PersistentVirtualFileSystemState("2.0").read(stateFile) == null
+    }
+
+    def "ignores corrupted state"() {
+        persist(snapshotRoot())
+        stateFile.bytes = stateFile.bytes.take(stateFile.bytes.length - 10) as byte[]
+
+        expect:
+        persistentState.read(stateFile) == null
+    }
+
+    def "removes state when nothing needs to be persisted"() {
+        persist(snapshotRoot())
+
+        when:
+        persistentState.write(stateFile, watchSession, [])
+
+        then:
+        !stateFile.exists()
+        persistentState.read(stateFile) == null
+    }
+
+    private void persist(FileSystemLocationSnapshot rootSnapshot) {
+        persistentState.startRecordingDirectoryStamps()
+        persistentState.snapshotsChanged([], [rootSnapshot])
+        persistentState.write(stateFile, watchSession, [rootSnapshot])
+    }
+
+    private DirectorySnapshot snapshotRoot() {
+        def file = root.createFile("file.txt")
+        file.text = "content"
+        def dir = root.createDir("dir")
+        def nested = dir.createFile("nested.txt")
+        [file, nested, dir, root].each { it.setLastModified(oldTimestamp) }
+
+        def dirSnapshot = new DirectorySnapshot(dir.absolutePath, dir.name, AccessType.DIRECT, Hashing.hashString("dir"), [regularFile(nested)])
+        def missingSnapshot = new MissingFileSnapshot(root.file("missing").absolutePath, "missing", AccessType.DIRECT)
+        return new DirectorySnapshot(root.absolutePath, root.name, AccessType.DIRECT, Hashing.hashString("root"), [dirSnapshot, regularFile(file), missingSnapshot] as List<FileSystemLocationSnapshot>)
+    }
+
+    private static RegularFileSnapshot regularFile(TestFile file) {
+        return new RegularFileSnapshot(file.absolutePath, file.name, Hashing.hashString(file.text), DefaultFileMetadata.file(file.lastModified(), file.length(), AccessType.DIRECT))
+    }
+}
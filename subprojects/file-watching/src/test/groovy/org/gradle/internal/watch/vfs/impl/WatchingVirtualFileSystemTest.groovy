@@ -16,7 +16,9 @@
 
 package org.gradle.internal.watch.vfs.impl
 
+import org.gradle.internal.file.FileMetadata.AccessType
 import org.gradle.internal.operations.TestBuildOperationExecutor
+import org.gradle.internal.snapshot.MissingFileSnapshot
 import org.gradle.internal.snapshot.CaseSensitivity
 import org.gradle.internal.snapshot.SnapshotHierarchy
 import org.gradle.internal.vfs.impl.DefaultSnapshotHierarchy
@@ -27,9 +29,13 @@ import org.gradle.internal.watch.registry.impl.DaemonDocumentationIndex
 import org.gradle.internal.watch.vfs.VfsLogging
 import org.gradle.internal.watch.vfs.WatchLogging
 import org.gradle.internal.watch.vfs.WatchMode
+import org.gradle.test.fixtures.file.TestNameTestDirectoryProvider
+import org.junit.Rule
 import spock.lang.Specification
 
 class WatchingVirtualFileSystemTest extends Specification {
+    @Rule
+    TestNameTestDirectoryProvider tmpDir = new TestNameTestDirectoryProvider(getClass())
     def watcherRegistryFactory = Mock(FileWatcherRegistryFactory)
     def watcherRegistry = Mock(FileWatcherRegistry)
     def emptySnapshotHierarchy = DefaultSnapshotHierarchy.empty(CaseSensitivity.CASE_SENSITIVE)
@@ -40,11 +46,13 @@ class WatchingVirtualFileSystemTest extends Specification {
     def daemonDocumentationIndex = Mock(DaemonDocumentationIndex)
     def locationsUpdatedByCurrentBuild = Mock(LocationsWrittenByCurrentBuild)
     def buildOperationRunner = new TestBuildOperationExecutor()
+    def persistentState = new PersistentVirtualFileSystemState("test")
     def watchingVirtualFileSystem = new WatchingVirtualFileSystem(
         watcherRegistryFactory,
         rootReference,
         daemonDocumentationIndex,
-        locationsUpdatedByCurrentBuild
+        locationsUpdatedByCurrentBuild,
+        persistentState
     )
 
     def "invalidates the virtual file system before and after the build when watching is disabled"() {
@@ -158,4 +166,59 @@ class WatchingVirtualFileSystemTest extends Specification {
         then:
         1 * watcherRegistry.registerWatchableHierarchy(newWatchableHierarchy, _)
     }
+
+    def "restores persisted state only when watching has been started by the current build"() {
+        def stateFile = tmpDir.file("vfs-state.bin")
+        def buildRoot = tmpDir.createDir("build")
+        def missingFile = buildRoot.file("missing")
+        persistentState.write(stateFile, persistentState.startWatchSession(), [new MissingFileSnapshot(missingFile.absolutePath, AccessType.DIRECT)])
+
+        when:
+        watchingVirtualFileSystem.afterBuildStarted(WatchMode.ENABLED, VfsLogging.NORMAL, WatchLogging.NORMAL, buildOperationRunner)
+        watchingVirtualFileSystem.restoreState(stateFile)
+        then:
+        1 * watcherRegistryFactory.createFileWatcherRegistry(_) >> watcherRegistry
+        1 * watcherRegistry.updateVfsOnBuildStarted(_, _) >> emptySnapshotHierarchy
+        1 * watcherRegistry.setDebugLoggingEnabled(false)
+        1 * watcherRegistry.virtualFileSystemContentsChanged([], { it*.absolutePath == [missingFile.absolutePath] }, _)
+        0 * _
+
+        watchingVirtualFileSystem.findMetadata(missingFile.absolutePath).present
+
+        when:
+        watchingVirtualFileSystem.beforeBuildFinished(WatchMode.ENABLED, VfsLogging.NORMAL, WatchLogging.NORMAL, buildOperationRunner, Integer.MAX_VALUE)
+        watchingVirtualFileSystem.persistState(stateFile, buildRoot)
+        then:
+        1 * watcherRegistry.getAndResetStatistics() >> Stub(FileWatcherRegistry.FileWatchingStatistics)
+        1 * watcherRegistry.updateVfsOnBuildFinished(_, WatchMode.ENABLED, Integer.MAX_VALUE) >> { SnapshotHierarchy root, watchMode, maxHierarchies -> root }
+        0 * _
+
+        persistentState.read(stateFile).rootSnapshots*.absolutePath == [missingFile.absolutePath]
+
+        when:
+        rootReference.update { root -> root.empty() }
+        watchingVirtualFileSystem.afterBuildStarted(WatchMode.ENABLED, VfsLogging.NORMAL, WatchLogging.NORMAL, buildOperationRunner)
+        watchingVirtualFileSystem.restoreState(stateFile)
+        then:
+        1 * watcherRegistry.updateVfsOnBuildStarted(_ as SnapshotHierarchy, WatchMode.ENABLED) >> { SnapshotHierarchy root, watchMode -> root }
+        1 * watcherRegistry.getAndResetStatistics() >> Stub(FileWatcherRegistry.FileWatchingStatistics)
+        1 * watcherRegistry.setDebugLoggingEnabled(false)
+        0 * _
+
+        !watchingVirtualFileSystem.findMetadata(missingFile.absolutePath).present
+    }
+
+    def "does not persist state when not watching"() {
+        def stateFile = tmpDir.file("vfs-state.bin")
+        stateFile.text = "previous state"
+
+        when:
+        watchingVirtualFileSystem.afterBuildStarted(WatchMode.DISABLED, VfsLogging.NORMAL, WatchLogging.NORMAL, buildOperationRunner)
+        watchingVirtualFileSystem.beforeBuildFinished(WatchMode.DISABLED, VfsLogging.NORMAL, WatchLogging.NORMAL, buildOperationRunner, Integer.MAX_VALUE)
+        watchingVirtualFileSystem.persistState(stateFile, tmpDir.createDir("build"))
+        then:
+        0 * _
+
+        stateFile.text == "previous state"
+    }
 }
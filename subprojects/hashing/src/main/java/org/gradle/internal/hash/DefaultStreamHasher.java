@@ -28,13 +28,27 @@ public class DefaultStreamHasher implements StreamHasher {
     private static final HashCode SIGNATURE = Hashing.signature(DefaultStreamHasher.class);
 
     private final Queue<byte[]> buffers = new ArrayBlockingQueue<byte[]>(16);
+    private final HashFunction hashFunction;
+    private final HashCode signature;
+
+    public DefaultStreamHasher() {
+        this(Hashing.md5());
+    }
+
+    public DefaultStreamHasher(HashFunction hashFunction) {
+        this.hashFunction = hashFunction;
+        // Keep the signature of the default hash function stable, and make sure hashes of other functions never clash with it
+        this.signature = hashFunction == Hashing.md5()
+            ? SIGNATURE
+            : Hashing.signature(DefaultStreamHasher.class.getName() + ":" + hashFunction.getAlgorithm());
+    }
 
     @Override
     public HashCode hash(InputStream inputStream) {
         try {
             return doHash(inputStream, ByteStreams.nullOutputStream());
         } catch (IOException e) {
-            throw new UncheckedIOException("Failed to create MD5 hash for file content.", e);
+            throw new UncheckedIOException(String.format("Failed to create %s hash for file content.", hashFunction.getAlgorithm()), e);
         }
     }
 
@@ -46,8 +60,8 @@ public HashCode hashCopy(InputStream inputStream, OutputStream outputStream) thr
     private HashCode doHash(InputStream inputStream, OutputStream outputStream) throws IOException {
         byte[] buffer = takeBuffer();
         try {
-            PrimitiveHasher hasher = Hashing.newPrimitiveHasher();
-            hasher.putHash(SIGNATURE);
+            PrimitiveHasher hasher = hashFunction.newPrimitiveHasher();
+            hasher.putHash(signature);
             while (true) {
                 int nread = inputStream.read(buffer);
                 if (nread < 0) {
@@ -0,0 +1,82 @@
+/*
+ * Copyright 2021 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.internal.hash;
+
+import java.util.Locale;
+
+/**
+ * The hash function used to hash the content of files.
+ *
+ * Hashes produced by different functions are not comparable, so anything persisting file content hashes
+ * should use a {@link #versionedCacheName(String) versioned name} for its storage.
+ */
+public enum FileContentHashFunction {
+    MD5(Hashing.md5(), ""),
+    MURMUR3(Hashing.murmur3(), "-murmur3");
+
+    /**
+     * The internal build option used to select the file content hash function, e.g. {@code -Dorg.gradle.internal.file.hash.function=murmur3}.
+     *
+     * The function is chosen once per build process: the daemon is started with this system property set, and passes
+     * it on to the worker processes it starts, so that all processes hash file content the same way.
+     */
+    public static final String SYSTEM_PROPERTY = "org.gradle.internal.file.hash.function";
+
+    private final HashFunction hashFunction;
+    private final String cacheNameSuffix;
+
+    FileContentHashFunction(HashFunction hashFunction, String cacheNameSuffix) {
+        this.hashFunction = hashFunction;
+        this.cacheNameSuffix = cacheNameSuffix;
+    }
+
+    public HashFunction getHashFunction() {
+        return hashFunction;
+    }
+
+    /**
+     * Returns the name to use for a cache of file content hashes produced by this function.
+     */
+    public String versionedCacheName(String cacheName) {
+        return cacheName + cacheNameSuffix;
+    }
+
+    /**
+     * Returns the function selected for the current process.
+     */
+    public static FileContentHashFunction fromSystemProperties() {
+        return forName(System.getProperty(SYSTEM_PROPERTY));
+    }
+
+    /**
+     * Returns the value to pass to another process via {@link #SYSTEM_PROPERTY} to select this function.
+     */
+    public String getPropertyValue() {
+        return name().toLowerCase(Locale.ROOT);
+    }
+
+    public static FileContentHashFunction forName(String name) {
+        if (name == null || name.isEmpty()) {
+            return MD5;
+        }
+        try {
+            return valueOf(name.toUpperCase(Locale.ROOT));
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException(String.format("Unknown file content hash function '%s' specified by system property '%s'.", name, SYSTEM_PROPERTY), e);
+        }
+    }
+}
@@ -45,6 +45,8 @@ private Hashing() {
 
     private static final HashFunction SHA512 = MessageDigestHashFunction.of("SHA-512");
 
+    private static final HashFunction MURMUR3 = new Murmur3HashFunction();
+
     private static final HashFunction DEFAULT = MD5;
 
     /**
@@ -141,35 +143,23 @@ public static HashFunction sha512() {
         return SHA512;
     }
 
-    private static abstract class MessageDigestHashFunction implements HashFunction {
+    /**
+     * 128-bit MurmurHash3 (x64 variant) hashing function.
+     *
+     * This is not a cryptographic hash function, but is considerably faster than MD5 for hashing large amounts of content.
+     * Produces the same hashes as Guava's {@code Hashing.murmur3_128()}.
+     */
+    public static HashFunction murmur3() {
+        return MURMUR3;
+    }
+
+    private static abstract class AbstractHashFunction implements HashFunction {
         private final int hexDigits;
 
-        public MessageDigestHashFunction(int hashBits) {
+        public AbstractHashFunction(int hashBits) {
             this.hexDigits = hashBits / 4;
         }
 
-        public static MessageDigestHashFunction of(String algorithm) {
-            MessageDigest prototype;
-            try {
-                prototype = MessageDigest.getInstance(algorithm);
-            } catch (NoSuchAlgorithmException e) {
-                throw new IllegalArgumentException("Cannot instantiate digest algorithm: " + algorithm);
-            }
-            int hashBits = prototype.getDigestLength() * 8;
-            try {
-                prototype.clone();
-                return new CloningMessageDigestHashFunction(prototype, hashBits);
-            } catch (CloneNotSupportedException e) {
-                return new RegularMessageDigestHashFunction(algorithm, hashBits);
-            }
-        }
-
-        @Override
-        public PrimitiveHasher newPrimitiveHasher() {
-            MessageDigest digest = createDigest();
-            return new MessageDigestHasher(digest);
-        }
-
         @Override
         public Hasher newHasher() {
             return new DefaultHasher(newPrimitiveHasher());
@@ -207,8 +197,6 @@ private HashingOutputStream primitiveStreamHasher() {
             return new HashingOutputStream(this, ByteStreams.nullOutputStream());
         }
 
-        protected abstract MessageDigest createDigest();
-
         @Override
         public int getHexDigits() {
             return hexDigits;
@@ -220,6 +208,36 @@ public String toString() {
         }
     }
 
+    private static abstract class MessageDigestHashFunction extends AbstractHashFunction {
+        public MessageDigestHashFunction(int hashBits) {
+            super(hashBits);
+        }
+
+        public static MessageDigestHashFunction of(String algorithm) {
+            MessageDigest prototype;
+            try {
+                prototype = MessageDigest.getInstance(algorithm);
+            } catch (NoSuchAlgorithmException e) {
+                throw new IllegalArgumentException("Cannot instantiate digest algorithm: " + algorithm);
+            }
+            int hashBits = prototype.getDigestLength() * 8;
+            try {
+                prototype.clone();
+                return new CloningMessageDigestHashFunction(prototype, hashBits);
+            } catch (CloneNotSupportedException e) {
+                return new RegularMessageDigestHashFunction(algorithm, hashBits);
+            }
+        }
+
+        @Override
+        public PrimitiveHasher newPrimitiveHasher() {
+            MessageDigest digest = createDigest();
+            return new MessageDigestHasher(digest);
+        }
+
+        protected abstract MessageDigest createDigest();
+    }
+
     private static class CloningMessageDigestHashFunction extends MessageDigestHashFunction {
         private final MessageDigest prototype;
 
@@ -351,6 +369,209 @@ public HashCode hash() {
         }
     }
 
+    private static class Murmur3HashFunction extends AbstractHashFunction {
+        public Murmur3HashFunction() {
+            super(128);
+        }
+
+        @Override
+        public String getAlgorithm() {
+            return "MURMUR3-128";
+        }
+
+        @Override
+        public PrimitiveHasher newPrimitiveHasher() {
+            return new Murmur3Hasher();
+        }
+    }
+
+    /**
+     * Streaming implementation of the x64 128-bit variant of MurmurHash3, with a seed of 0.
+     * Input is buffered in 16 byte blocks, primitives are fed to the hash in little-endian byte order.
+     */
+    private static class Murmur3Hasher implements PrimitiveHasher {
+        private static final int BLOCK_SIZE = 16;
+        private static final long C1 = 0x87c37b91114253d5L;
+        private static final long C2 = 0x4cf5ad432745937fL;
+
+        private final byte[] buffer = new byte[BLOCK_SIZE];
+        private int buffered;
+        private long h1;
+        private long h2;
+        private long length;
+        private boolean done;
+
+        private void checkNotDone() {
+            if (done) {
+                throw new IllegalStateException("Cannot reuse hasher!");
+            }
+        }
+
+        @Override
+        public void putByte(byte b) {
+            checkNotDone();
+            buffer[buffered++] = b;
+            if (buffered == BLOCK_SIZE) {
+                processBlock(buffer, 0);
+                buffered = 0;
+            }
+        }
+
+        @Override
+        public void putBytes(byte[] bytes) {
+            putBytes(bytes, 0, bytes.length);
+        }
+
+        @Override
+        public void putBytes(byte[] bytes, int off, int len) {
+            checkNotDone();
+            int end = off + len;
+            if (buffered > 0) {
+                int toCopy = Math.min(BLOCK_SIZE - buffered, len);
+                System.arraycopy(bytes, off, buffer, buffered, toCopy);
+                buffered += toCopy;
+                off += toCopy;
+                if (buffered < BLOCK_SIZE) {
+                    return;
+                }
+                processBlock(buffer, 0);
+                buffered = 0;
+            }
+            while (end - off >= BLOCK_SIZE) {
+                processBlock(bytes, off);
+                off += BLOCK_SIZE;
+            }
+            buffered = end - off;
+            System.arraycopy(bytes, off, buffer, 0, buffered);
+        }
+
+        @Override
+        public void putInt(int value) {
+            for (int i = 0; i < 4; i++) {
+                putByte((byte) (value >>> (8 * i)));
+            }
+        }
+
+        @Override
+        public void putLong(long value) {
+            for (int i = 0; i < 8; i++) {
+                putByte((byte) (value >>> (8 * i)));
+            }
+        }
+
+        @Override
+        public void putDouble(double value) {
+            putLong(Double.doubleToRawLongBits(value));
+        }
+
+        @Override
+        public void putBoolean(boolean value) {
+            putByte((byte) (value ? 1 : 0));
+        }
+
+        @Override
+        public void putString(CharSequence value) {
+            putBytes(value.toString().getBytes(Charsets.UTF_8));
+        }
+
+        @Override
+        public void putHash(HashCode hashCode) {
+            putBytes(hashCode.getBytes());
+        }
+
+        private void processBlock(byte[] bytes, int off) {
+            long k1 = getLongLittleEndian(bytes, off);
+            long k2 = getLongLittleEndian(bytes, off + 8);
+            length += BLOCK_SIZE;
+
+            h1 ^= mixK1(k1);
+            h1 = Long.rotateLeft(h1, 27);
+            h1 += h2;
+            h1 = h1 * 5 + 0x52dce729;
+
+            h2 ^= mixK2(k2);
+            h2 = Long.rotateLeft(h2, 31);
+            h2 += h1;
+            h2 = h2 * 5 + 0x38495ab5;
+        }
+
+        private void processRemaining() {
+            long k1 = 0;
+            long k2 = 0;
+            length += buffered;
+            for (int i = buffered - 1; i >= 8; i--) {
+                k2 ^= (buffer[i] & 0xFFL) << (8 * (i - 8));
+            }
+            for (int i = Math.min(buffered, 8) - 1; i >= 0; i--) {
+                k1 ^= (buffer[i] & 0xFFL) << (8 * i);
+            }
+            h1 ^= mixK1(k1);
+            h2 ^= mixK2(k2);
+        }
+
+        @Override
+        public HashCode hash() {
+            checkNotDone();
+            done = true;
+            if (buffered > 0) {
+                processRemaining();
+            }
+
+            h1 ^= length;
+            h2 ^= length;
+
+            h1 += h2;
+            h2 += h1;
+
+            h1 = fmix64(h1);
+            h2 = fmix64(h2);
+
+            h1 += h2;
+            h2 += h1;
+
+            byte[] bytes = new byte[BLOCK_SIZE];
+            for (int i = 0; i < 8; i++) {
+                bytes[i] = (byte) (h1 >>> (8 * i));
+                bytes[i + 8] = (byte) (h2 >>> (8 * i));
+            }
+            return HashCode.fromBytesNoCopy(bytes);
+        }
+
+        private static long getLongLittleEndian(byte[] bytes, int off) {
+            return (bytes[off] & 0xFFL)
+                | (bytes[off + 1] & 0xFFL) << 8
+                | (bytes[off + 2] & 0xFFL) << 16
+                | (bytes[off + 3] & 0xFFL) << 24
+                | (bytes[off + 4] & 0xFFL) << 32
+                | (bytes[off + 5] & 0xFFL) << 40
+                | (bytes[off + 6] & 0xFFL) << 48
+                | (bytes[off + 7] & 0xFFL) << 56;
+        }
+
+        private static long mixK1(long k1) {
+            k1 *= C1;
+            k1 = Long.rotateLeft(k1, 31);
+            k1 *= C2;
+            return k1;
+        }
+
+        private static long mixK2(long k2) {
+            k2 *= C2;
+            k2 = Long.rotateLeft(k2, 33);
+            k2 *= C1;
+            return k2;
+        }
+
+        private static long fmix64(long k) {
+            k ^= k >>> 33;
+            k *= 0xff51afd7ed558ccdL;
+            k ^= k >>> 33;
+            k *= 0xc4ceb9fe1a85ec53L;
+            k ^= k >>> 33;
+            return k;
+        }
+    }
+
     private static class DefaultHasher implements Hasher {
         private final PrimitiveHasher hasher;
 
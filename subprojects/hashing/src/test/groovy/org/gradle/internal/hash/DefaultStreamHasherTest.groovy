@@ -36,4 +36,14 @@ class DefaultStreamHasherTest extends Specification {
         hash.toString() == "af67a92e9f73b51572e9b94e343d2840"
         output.toByteArray() == "hello".bytes
     }
+
+    def "hashes of different hash functions do not match"() {
+        def md5 = new DefaultStreamHasher(Hashing.md5()).hash(new ByteArrayInputStream("hello".bytes))
+        def murmur3 = new DefaultStreamHasher(Hashing.murmur3()).hash(new ByteArrayInputStream("hello".bytes))
+        expect:
+        md5.toString() == "af67a92e9f73b51572e9b94e343d2840"
+        murmur3.toByteArray().length == 16
+        murmur3 != md5
+        murmur3 == new DefaultStreamHasher(Hashing.murmur3()).hash(new ByteArrayInputStream("hello".bytes))
+    }
 }
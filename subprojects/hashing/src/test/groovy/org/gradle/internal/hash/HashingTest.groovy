@@ -16,6 +16,7 @@
 
 package org.gradle.internal.hash
 
+import com.google.common.base.Charsets
 import spock.lang.Specification
 
 import static java.lang.Thread.currentThread
@@ -109,6 +110,47 @@ class HashingTest extends Specification {
         hashStrings(["abc", "de"]) != hashStrings(["ab", "cde"])
     }
 
+    def 'murmur3 produces the same hashes as Guava'() {
+        def random = new Random(1234)
+        def bytes = new byte[length]
+        random.nextBytes(bytes)
+
+        when:
+        def hasher = Hashing.murmur3().newPrimitiveHasher()
+        hasher.putBytes(bytes, 0, length.intdiv(3))
+        hasher.putBytes(bytes, length.intdiv(3), length - length.intdiv(3))
+        hasher.putInt(length)
+        hasher.putLong(length * 31L)
+        hasher.putString("h\u00e9llo")
+        def hash = hasher.hash()
+
+        then:
+        def expected = com.google.common.hash.Hashing.murmur3_128().newHasher()
+            .putBytes(bytes, 0, length.intdiv(3))
+            .putBytes(bytes, length.intdiv(3), length - length.intdiv(3))
+            .putInt(length)
+            .putLong(length * 31L)
+            .putString("h\u00e9llo", Charsets.UTF_8)
+            .hash()
+        hash.toString() == expected.toString()
+
+        where:
+        length << [0, 1, 7, 8, 15, 16, 17, 31, 32, 33, 100, 8193]
+    }
+
+    def 'cannot reuse murmur3 hasher'() {
+        given:
+        def hasher = Hashing.murmur3().newPrimitiveHasher()
+        hasher.putInt(1)
+        hasher.hash()
+
+        when:
+        hasher.putInt(2)
+
+        then:
+        thrown(IllegalStateException)
+    }
+
     def hashStrings(List<String> strings) {
         def hasher = Hashing.newHasher()
         strings.each { hasher.putString(it) }
@@ -34,6 +34,8 @@ import javax.servlet.http.HttpServletRequest
 import javax.servlet.http.HttpServletResponse
 
 class HttpBuildCacheServer extends ExternalResource implements HttpServerFixture {
+    static final String BATCH_LOOKUP_CONTENT_TYPE = "application/vnd.gradle.build-cache-lookup.v1"
+
     private final TestDirectoryProvider provider
     private final WebAppContext webapp
     private TestFile cacheDir
@@ -100,6 +102,22 @@ class HttpBuildCacheServer extends ExternalResource implements HttpServerFixture
         this
     }
 
+    /**
+     * Answers batched lookups, a POST of one cache key per line, with the keys that have an entry in the cache directory.
+     */
+    HttpBuildCacheServer withBatchLookup() {
+        addResponder({ HttpServletRequest request, HttpServletResponse response ->
+            if (request.method != "POST" || !request.contentType?.startsWith(BATCH_LOOKUP_CONTENT_TYPE)) {
+                return true
+            }
+            def dir = new File(request.servletContext.getRealPath(request.requestURI))
+            def existing = request.reader.readLines()*.trim().findAll { it && new File(dir, it).isFile() }
+            response.contentType = BATCH_LOOKUP_CONTENT_TYPE
+            response.writer.write(existing.join("\n"))
+            false
+        } as Responder)
+    }
+
     @Override
     void start() {
         cacheDir = provider.testDirectory.createDir('http-cache-dir')
@@ -1,5 +1,6 @@
 plugins {
     id("gradlebuild.distribution.api-java")
+    id("gradlebuild.jmh")
 }
 
 description = "Source for JavaCompile, JavaExec and Javadoc tasks. It also contains logic for incremental Java compilation."
@@ -0,0 +1,161 @@
+/*
+ * Copyright 2021 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.api.internal.tasks.compile.incremental.deps;
+
+import it.unimi.dsi.fastutil.ints.IntOpenHashSet;
+import it.unimi.dsi.fastutil.ints.IntSet;
+import org.gradle.api.internal.cache.StringInterner;
+import org.gradle.api.internal.tasks.compile.incremental.compilerapi.deps.DependentsSet;
+import org.gradle.api.internal.tasks.compile.incremental.serialization.HierarchicalNameSerializer;
+import org.gradle.internal.hash.HashCode;
+import org.gradle.internal.serialize.InputStreamBackedDecoder;
+import org.gradle.internal.serialize.OutputStreamBackedEncoder;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+
+import static java.util.concurrent.TimeUnit.SECONDS;
+
+/**
+ * Compares merging and deserializing the class set analysis of a synthetic classpath with merging the same data held in maps keyed by class name,
+ * the way it was stored before {@link ClassSetAnalysisData} used class name tables.
+ *
+ * Run with {@code -prof gc} to compare the allocations.
+ */
+@Fork(1)
+@Warmup(iterations = 3, time = 2, timeUnit = SECONDS)
+@Measurement(iterations = 5, time = 2, timeUnit = SECONDS)
+@State(Scope.Benchmark)
+public class ClassSetAnalysisDataBenchmark {
+
+    @Param({"20"})
+    int jarCount;
+
+    @Param({"1000", "10000"})
+    int classesPerJar;
+
+    List<ClassSetAnalysisData> datas;
+    List<MapBasedClassSet> mapBasedDatas;
+    byte[] serializedMerged;
+    ClassSetAnalysisData.Serializer serializer;
+
+    @Setup(Level.Trial)
+    public void setup() throws Exception {
+        Random random = new Random(42);
+        datas = new ArrayList<>(jarCount);
+        mapBasedDatas = new ArrayList<>(jarCount);
+        int classCount = jarCount * classesPerJar;
+        for (int jar = 0; jar < jarCount; jar++) {
+            Map<String, HashCode> classHashes = new LinkedHashMap<>();
+            Map<String, DependentsSet> dependents = new LinkedHashMap<>();
+            Map<String, IntSet> classesToConstants = new LinkedHashMap<>();
+            for (int i = 0; i < classesPerJar; i++) {
+                // Every tenth class is shadowed by a class of the same name in the previous jar
+                int classIndex = i % 10 == 0 && jar > 0 ? (jar - 1) * classesPerJar + i : jar * classesPerJar + i;
+                classHashes.put(className(classIndex), HashCode.fromInt(random.nextInt()));
+            }
+            for (String className : classHashes.keySet()) {
+                Set<String> accessibleDependents = new HashSet<>();
+                Set<String> privateDependents = new HashSet<>();
+                for (int j = random.nextInt(8); j > 0; j--) {
+                    accessibleDependents.add(className(random.nextInt(classCount)));
+                }
+                for (int j = random.nextInt(4); j > 0; j--) {
+                    privateDependents.add(className(random.nextInt(classCount)));
+                }
+                dependents.put(className, DependentsSet.dependentClasses(privateDependents, accessibleDependents));
+                if (random.nextInt(20) == 0) {
+                    classesToConstants.put(className, new IntOpenHashSet(new int[]{random.nextInt(), random.nextInt()}));
+                }
+            }
+            datas.add(new ClassSetAnalysisData(classHashes, dependents, classesToConstants, null));
+            mapBasedDatas.add(new MapBasedClassSet(classHashes, dependents, classesToConstants));
+        }
+
+        serializer = new ClassSetAnalysisData.Serializer(() -> new HierarchicalNameSerializer(new StringInterner()));
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        OutputStreamBackedEncoder encoder = new OutputStreamBackedEncoder(bytes);
+        serializer.write(encoder, ClassSetAnalysisData.merge(datas));
+        encoder.flush();
+        serializedMerged = bytes.toByteArray();
+    }
+
+    private static String className(int index) {
+        return "org.gradle.sample.p" + (index % 100) + ".Class" + index;
+    }
+
+    @Benchmark
+    public ClassSetAnalysisData merge() {
+        return ClassSetAnalysisData.merge(datas);
+    }
+
+    @Benchmark
+    public MapBasedClassSet mergeMapBased() {
+        return MapBasedClassSet.merge(mapBasedDatas);
+    }
+
+    @Benchmark
+    public ClassSetAnalysisData read() throws Exception {
+        return serializer.read(new InputStreamBackedDecoder(new ByteArrayInputStream(serializedMerged)));
+    }
+
+    /**
+     * The map based representation and merge algorithm used by {@link ClassSetAnalysisData} before it used class name tables.
+     */
+    public static class MapBasedClassSet {
+        final Map<String, HashCode> classHashes;
+        final Map<String, DependentsSet> dependents;
+        final Map<String, IntSet> classesToConstants;
+
+        MapBasedClassSet(Map<String, HashCode> classHashes, Map<String, DependentsSet> dependents, Map<String, IntSet> classesToConstants) {
+            this.classHashes = classHashes;
+            this.dependents = dependents;
+            this.classesToConstants = classesToConstants;
+        }
+
+        static MapBasedClassSet merge(List<MapBasedClassSet> datas) {
+            Map<String, HashCode> classHashes = new HashMap<>();
+            Map<String, List<DependentsSet>> dependents = new HashMap<>();
+            Map<String, IntSet> classesToConstants = new HashMap<>();
+            for (MapBasedClassSet data : datas) {
+                data.classHashes.forEach(classHashes::putIfAbsent);
+                data.dependents.forEach((className, dependentsSet) -> dependents.computeIfAbsent(className, k -> new ArrayList<>()).add(dependentsSet));
+                data.classesToConstants.forEach(classesToConstants::putIfAbsent);
+            }
+            Map<String, DependentsSet> mergedDependents = new HashMap<>(dependents.size());
+            dependents.forEach((className, dependentsSets) -> mergedDependents.put(className, DependentsSet.merge(dependentsSets)));
+            return new MapBasedClassSet(classHashes, mergedDependents, classesToConstants);
+        }
+    }
+}
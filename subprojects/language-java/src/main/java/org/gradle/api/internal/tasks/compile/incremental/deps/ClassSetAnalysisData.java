@@ -16,17 +16,18 @@
 
 package org.gradle.api.internal.tasks.compile.incremental.deps;
 
-import com.google.common.collect.ArrayListMultimap;
+import com.google.common.annotations.VisibleForTesting;
 import com.google.common.collect.ImmutableMap;
 import com.google.common.collect.ImmutableSet;
-import com.google.common.collect.Lists;
-import com.google.common.collect.Multimap;
-import com.google.common.collect.Sets;
+import it.unimi.dsi.fastutil.ints.Int2ObjectMap;
+import it.unimi.dsi.fastutil.ints.Int2ObjectOpenHashMap;
+import it.unimi.dsi.fastutil.ints.IntOpenHashSet;
 import it.unimi.dsi.fastutil.ints.IntSet;
 import it.unimi.dsi.fastutil.ints.IntSets;
+import it.unimi.dsi.fastutil.objects.Object2IntMap;
+import it.unimi.dsi.fastutil.objects.Object2IntOpenHashMap;
 import org.apache.commons.lang.StringUtils;
 import org.gradle.api.internal.tasks.compile.incremental.compilerapi.CompilerApiData;
-import org.gradle.api.internal.tasks.compile.incremental.compilerapi.deps.DependentSetSerializer;
 import org.gradle.api.internal.tasks.compile.incremental.compilerapi.deps.DependentsSet;
 import org.gradle.api.internal.tasks.compile.incremental.serialization.HierarchicalNameSerializer;
 import org.gradle.internal.hash.HashCode;
@@ -34,13 +35,13 @@
 import org.gradle.internal.serialize.Decoder;
 import org.gradle.internal.serialize.Encoder;
 import org.gradle.internal.serialize.HashCodeSerializer;
-import org.gradle.internal.serialize.IntSetSerializer;
 
-import java.util.ArrayDeque;
+import javax.annotation.Nullable;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
 import java.util.Collection;
 import java.util.Collections;
-import java.util.Deque;
-import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
@@ -54,6 +55,11 @@
  * Contains information about the accessible, inlineable constants in each class, since these require full recompilation of dependents if changed.
  * If analysis failed for any reason, that reason is captured and triggers full rebuilds if this class set is used.
  *
+ * Class sets of whole classpaths can contain hundreds of thousands of classes, so the data is kept in a compact form:
+ * Every class name is stored once in a class name table and referred to by its index everywhere else.
+ * The classes contained in the set come first in that table, followed by the classes which are only referenced by the set.
+ * Dependents and constants are stored as one array of values for all classes, plus an array of offsets into it per class.
+ *
  * @see ClassSetAnalysis for the logic that calculates transitive dependencies.
  */
 public class ClassSetAnalysisData {
@@ -61,55 +67,316 @@ public class ClassSetAnalysisData {
     static final String MODULE_INFO = "module-info";
     static final String PACKAGE_INFO = "package-info";
 
+    private static final byte HAS_DEPENDENTS = 1;
+    private static final byte HAS_CONSTANTS = 2;
+
     /**
      * Merges the given class sets, applying classpath shadowing semantics. I.e. only the first occurrency of each class will be kept.
      */
     public static ClassSetAnalysisData merge(List<ClassSetAnalysisData> datas) {
-        int classCount = 0;
-        int constantsCount = 0;
-        int dependentsCount = 0;
+        if (datas.size() == 1) {
+            return datas.get(0);
+        }
+        int nameCount = 0;
         for (ClassSetAnalysisData data : datas) {
-            classCount += data.classHashes.size();
-            constantsCount += data.classesToConstants.size();
-            dependentsCount += data.dependents.size();
+            nameCount += data.classNames.length;
+        }
+        Object2IntOpenHashMap<String> indices = new Object2IntOpenHashMap<>(nameCount);
+        indices.defaultReturnValue(-1);
+        List<String> names = new ArrayList<>(nameCount);
+        List<HashCode> hashes = new ArrayList<>(nameCount);
+
+        // Map the class name table of each set to the merged table, adding the classes contained in any set first
+        int[][] mappings = new int[datas.size()][];
+        for (int d = 0; d < datas.size(); d++) {
+            ClassSetAnalysisData data = datas.get(d);
+            int[] mapping = new int[data.classNames.length];
+            for (int i = 0; i < data.classHashes.length; i++) {
+                String className = data.classNames[i];
+                int index = indices.getInt(className);
+                if (index < 0) {
+                    index = names.size();
+                    indices.put(className, index);
+                    names.add(className);
+                    hashes.add(data.classHashes[i]);
+                }
+                mapping[i] = index;
+            }
+            mappings[d] = mapping;
+        }
+        for (int d = 0; d < datas.size(); d++) {
+            ClassSetAnalysisData data = datas.get(d);
+            int[] mapping = mappings[d];
+            for (int i = data.classHashes.length; i < data.classNames.length; i++) {
+                String className = data.classNames[i];
+                int index = indices.getInt(className);
+                if (index < 0) {
+                    index = names.size();
+                    indices.put(className, index);
+                    names.add(className);
+                }
+                mapping[i] = index;
+            }
         }
 
-        Map<String, HashCode> classHashes = new HashMap<>(classCount);
-        Map<String, IntSet> classesToConstants = new HashMap<>(constantsCount);
-        Multimap<String, DependentsSet> dependents = ArrayListMultimap.create(dependentsCount, 10);
+        int mergedCount = names.size();
+        byte[] flags = new byte[mergedCount];
+        Int2ObjectMap<String> dependencyToAllReasons = new Int2ObjectOpenHashMap<>();
         String fullRebuildCause = null;
 
-        for (ClassSetAnalysisData data : Lists.reverse(datas)) {
-            classHashes.putAll(data.classHashes);
-            classesToConstants.putAll(data.classesToConstants);
-            data.dependents.forEach(dependents::put);
-            if (fullRebuildCause == null) {
+        // Dependents of the same class in different sets are combined
+        int[] privateDependentsOffsets = new int[mergedCount + 1];
+        int[] accessibleDependentsOffsets = new int[mergedCount + 1];
+        for (int d = 0; d < datas.size(); d++) {
+            ClassSetAnalysisData data = datas.get(d);
+            int[] mapping = mappings[d];
+            for (int i = 0; i < data.classNames.length; i++) {
+                if ((data.flags[i] & HAS_DEPENDENTS) != 0) {
+                    int index = mapping[i];
+                    flags[index] |= HAS_DEPENDENTS;
+                    privateDependentsOffsets[index + 1] += data.privateDependentsOffsets[i + 1] - data.privateDependentsOffsets[i];
+                    accessibleDependentsOffsets[index + 1] += data.accessibleDependentsOffsets[i + 1] - data.accessibleDependentsOffsets[i];
+                }
+            }
+            data.dependencyToAllReasons.forEach((i, reason) -> dependencyToAllReasons.put(mapping[i], reason));
+            if (data.fullRebuildCause != null) {
                 fullRebuildCause = data.fullRebuildCause;
             }
         }
-        ImmutableMap.Builder<String, DependentsSet> mergedDependents = ImmutableMap.builderWithExpectedSize(dependents.size());
-        for (Map.Entry<String, Collection<DependentsSet>> entry : dependents.asMap().entrySet()) {
-            mergedDependents.put(entry.getKey(), DependentsSet.merge(entry.getValue()));
+        int[] privateDependents = new int[toOffsets(privateDependentsOffsets)];
+        int[] accessibleDependents = new int[toOffsets(accessibleDependentsOffsets)];
+        int[] privateDependentsEnd = Arrays.copyOf(privateDependentsOffsets, mergedCount);
+        int[] accessibleDependentsEnd = Arrays.copyOf(accessibleDependentsOffsets, mergedCount);
+        for (int d = 0; d < datas.size(); d++) {
+            ClassSetAnalysisData data = datas.get(d);
+            int[] mapping = mappings[d];
+            for (int i = 0; i < data.classNames.length; i++) {
+                if ((data.flags[i] & HAS_DEPENDENTS) != 0) {
+                    int index = mapping[i];
+                    privateDependentsEnd[index] = appendMapped(data.privateDependents, data.privateDependentsOffsets[i], data.privateDependentsOffsets[i + 1], mapping, privateDependents, privateDependentsEnd[index]);
+                    accessibleDependentsEnd[index] = appendMapped(data.accessibleDependents, data.accessibleDependentsOffsets[i], data.accessibleDependentsOffsets[i + 1], mapping, accessibleDependents, accessibleDependentsEnd[index]);
+                }
+            }
+        }
+        privateDependents = sortAndDeduplicate(privateDependents, privateDependentsOffsets, dependencyToAllReasons);
+        accessibleDependents = sortAndDeduplicate(accessibleDependents, accessibleDependentsOffsets, dependencyToAllReasons);
+
+        // Constants are taken from the first set which has constants for a class
+        int[] constantsOffsets = new int[mergedCount + 1];
+        int[] constantsSource = new int[mergedCount];
+        for (int d = 0; d < datas.size(); d++) {
+            ClassSetAnalysisData data = datas.get(d);
+            int[] mapping = mappings[d];
+            for (int i = 0; i < data.classNames.length; i++) {
+                int index = mapping[i];
+                if ((data.flags[i] & HAS_CONSTANTS) != 0 && (flags[index] & HAS_CONSTANTS) == 0) {
+                    flags[index] |= HAS_CONSTANTS;
+                    constantsSource[index] = d;
+                    constantsOffsets[index + 1] = data.constantsOffsets[i + 1] - data.constantsOffsets[i];
+                }
+            }
+        }
+        int[] constants = new int[toOffsets(constantsOffsets)];
+        for (int d = 0; d < datas.size(); d++) {
+            ClassSetAnalysisData data = datas.get(d);
+            int[] mapping = mappings[d];
+            for (int i = 0; i < data.classNames.length; i++) {
+                int index = mapping[i];
+                if ((data.flags[i] & HAS_CONSTANTS) != 0 && constantsSource[index] == d) {
+                    System.arraycopy(data.constants, data.constantsOffsets[i], constants, constantsOffsets[index], data.constantsOffsets[i + 1] - data.constantsOffsets[i]);
+                }
+            }
         }
-        return new ClassSetAnalysisData(classHashes, mergedDependents.build(), classesToConstants, fullRebuildCause);
+
+        return new ClassSetAnalysisData(
+            names.toArray(new String[0]),
+            indices,
+            hashes.toArray(new HashCode[0]),
+            flags,
+            privateDependentsOffsets,
+            privateDependents,
+            accessibleDependentsOffsets,
+            accessibleDependents,
+            dependencyToAllReasons,
+            constantsOffsets,
+            constants,
+            fullRebuildCause
+        );
     }
 
-    private final Map<String, HashCode> classHashes;
-    private final Map<String, DependentsSet> dependents;
-    private final Map<String, IntSet> classesToConstants;
+    /**
+     * Turns the counts at {@code offsets[i + 1]} into the offsets of each class and returns the total count.
+     */
+    private static int toOffsets(int[] offsets) {
+        for (int i = 1; i < offsets.length; i++) {
+            offsets[i] += offsets[i - 1];
+        }
+        return offsets[offsets.length - 1];
+    }
+
+    private static int appendMapped(int[] source, int start, int end, int[] mapping, int[] target, int targetIndex) {
+        for (int i = start; i < end; i++) {
+            target[targetIndex++] = mapping[source[i]];
+        }
+        return targetIndex;
+    }
+
+    /**
+     * Sorts the values of each class and removes duplicates, as well as the values of classes which are a dependency to all others.
+     * Updates the offsets in place and returns the compacted values.
+     */
+    private static int[] sortAndDeduplicate(int[] values, int[] offsets, Int2ObjectMap<String> dependencyToAllReasons) {
+        int count = 0;
+        int start = offsets[0];
+        for (int i = 0; i < offsets.length - 1; i++) {
+            int end = offsets[i + 1];
+            offsets[i] = count;
+            if (end > start && !dependencyToAllReasons.containsKey(i)) {
+                Arrays.sort(values, start, end);
+                values[count++] = values[start];
+                for (int j = start + 1; j < end; j++) {
+                    if (values[j] != values[count - 1]) {
+                        values[count++] = values[j];
+                    }
+                }
+            }
+            start = end;
+        }
+        offsets[offsets.length - 1] = count;
+        return count == values.length ? values : Arrays.copyOf(values, count);
+    }
+
+    private final String[] classNames;
+    private final HashCode[] classHashes;
+    private final byte[] flags;
+    private final int[] privateDependentsOffsets;
+    private final int[] privateDependents;
+    private final int[] accessibleDependentsOffsets;
+    private final int[] accessibleDependents;
+    private final Int2ObjectMap<String> dependencyToAllReasons;
+    private final int[] constantsOffsets;
+    private final int[] constants;
     private final String fullRebuildCause;
+    private volatile Object2IntMap<String> classIndices;
 
     public ClassSetAnalysisData() {
         this(Collections.emptyMap(), Collections.emptyMap(), Collections.emptyMap(), null);
     }
 
     public ClassSetAnalysisData(Map<String, HashCode> classHashes, Map<String, DependentsSet> dependents, Map<String, IntSet> classesToConstants, String fullRebuildCause) {
+        this(builder(classHashes, dependents, classesToConstants), fullRebuildCause);
+    }
+
+    private static Builder builder(Map<String, HashCode> classHashes, Map<String, DependentsSet> dependents, Map<String, IntSet> classesToConstants) {
+        Builder builder = new Builder();
+        classHashes.forEach(builder::addClass);
+        dependents.forEach(builder::addDependents);
+        classesToConstants.forEach((className, constants) -> builder.addConstants(className, constants.toIntArray()));
+        return builder;
+    }
+
+    private ClassSetAnalysisData(Builder builder, @Nullable String fullRebuildCause) {
+        this.classNames = builder.names.toArray(new String[0]);
+        this.classIndices = builder.indices;
+        this.classHashes = builder.hashes.toArray(new HashCode[0]);
+        this.flags = new byte[classNames.length];
+        this.privateDependentsOffsets = new int[classNames.length + 1];
+        this.privateDependents = pack(builder.privateDependents, privateDependentsOffsets);
+        this.accessibleDependentsOffsets = new int[classNames.length + 1];
+        this.accessibleDependents = pack(builder.accessibleDependents, accessibleDependentsOffsets);
+        this.dependencyToAllReasons = builder.dependencyToAllReasons;
+        this.constantsOffsets = new int[classNames.length + 1];
+        this.constants = pack(builder.constants, constantsOffsets);
+        this.fullRebuildCause = fullRebuildCause;
+        for (int index : builder.accessibleDependents.keySet()) {
+            flags[index] |= HAS_DEPENDENTS;
+        }
+        for (int index : builder.constants.keySet()) {
+            flags[index] |= HAS_CONSTANTS;
+        }
+    }
+
+    private ClassSetAnalysisData(
+        String[] classNames,
+        @Nullable Object2IntMap<String> classIndices,
+        HashCode[] classHashes,
+        byte[] flags,
+        int[] privateDependentsOffsets,
+        int[] privateDependents,
+        int[] accessibleDependentsOffsets,
+        int[] accessibleDependents,
+        Int2ObjectMap<String> dependencyToAllReasons,
+        int[] constantsOffsets,
+        int[] constants,
+        @Nullable String fullRebuildCause
+    ) {
+        this.classNames = classNames;
+        this.classIndices = classIndices;
         this.classHashes = classHashes;
-        this.dependents = dependents;
-        this.classesToConstants = classesToConstants;
+        this.flags = flags;
+        this.privateDependentsOffsets = privateDependentsOffsets;
+        this.privateDependents = privateDependents;
+        this.accessibleDependentsOffsets = accessibleDependentsOffsets;
+        this.accessibleDependents = accessibleDependents;
+        this.dependencyToAllReasons = dependencyToAllReasons;
+        this.constantsOffsets = constantsOffsets;
+        this.constants = constants;
         this.fullRebuildCause = fullRebuildCause;
     }
 
+    private static int[] pack(Int2ObjectMap<int[]> valuesByIndex, int[] offsets) {
+        for (Int2ObjectMap.Entry<int[]> entry : valuesByIndex.int2ObjectEntrySet()) {
+            offsets[entry.getIntKey() + 1] = entry.getValue().length;
+        }
+        int[] values = new int[toOffsets(offsets)];
+        for (Int2ObjectMap.Entry<int[]> entry : valuesByIndex.int2ObjectEntrySet()) {
+            System.arraycopy(entry.getValue(), 0, values, offsets[entry.getIntKey()], entry.getValue().length);
+        }
+        return values;
+    }
+
+    /**
+     * Returns the index of the given class in the class name table, or -1 if it is neither contained in nor referenced by this set.
+     * The lookup table is only created when needed, since the class sets of single classpath entries are usually only merged.
+     */
+    private int indexOf(String className) {
+        Object2IntMap<String> indices = classIndices;
+        if (indices == null) {
+            Object2IntOpenHashMap<String> newIndices = new Object2IntOpenHashMap<>(classNames.length);
+            newIndices.defaultReturnValue(-1);
+            for (int i = 0; i < classNames.length; i++) {
+                newIndices.put(classNames[i], i);
+            }
+            indices = newIndices;
+            classIndices = indices;
+        }
+        return indices.getInt(className);
+    }
+
+    private int classIndexOf(String className) {
+        int index = indexOf(className);
+        return index < classHashes.length ? index : -1;
+    }
+
+    private boolean hasDependents(int index) {
+        return (flags[index] & HAS_DEPENDENTS) != 0;
+    }
+
+    private boolean hasConstants(int index) {
+        return (flags[index] & HAS_CONSTANTS) != 0;
+    }
+
+    private Set<String> classNames(int[] values, int start, int end) {
+        if (start == end) {
+            return Collections.emptySet();
+        }
+        ImmutableSet.Builder<String> builder = ImmutableSet.builderWithExpectedSize(end - start);
+        for (int i = start; i < end; i++) {
+            builder.add(classNames[values[i]]);
+        }
+        return builder.build();
+    }
+
     /**
      * Returns a shrunk down version of this class set, which only contains information about types that could affect the other set.
      * This is useful for reducing the size of classpath snapshots, since a classpath usually contains a lot more types than the client
@@ -122,78 +389,107 @@ public ClassSetAnalysisData reduceToTypesAffecting(ClassSetAnalysisData other, C
         if (fullRebuildCause != null) {
             return this;
         }
-        Set<String> usedClasses = new HashSet<>(classHashes.size());
-        for (Map.Entry<String, DependentsSet> entry : dependents.entrySet()) {
-            if (entry.getValue().isDependencyToAll()) {
-                usedClasses.add(entry.getKey());
+        BitSet usedClasses = new BitSet(classNames.length);
+        for (int index : dependencyToAllReasons.keySet()) {
+            usedClasses.set(index);
+        }
+        for (int i = 0; i < classHashes.length; i++) {
+            if (classNames[i].endsWith(PACKAGE_INFO)) {
+                usedClasses.set(i);
             }
         }
-        for (String cls : classHashes.keySet()) {
-            if (cls.endsWith(PACKAGE_INFO)) {
-                usedClasses.add(cls);
+        for (int i = 0; i < other.classNames.length; i++) {
+            if (other.hasDependents(i)) {
+                int index = indexOf(other.classNames[i]);
+                if (index >= 0) {
+                    usedClasses.set(index);
+                }
             }
         }
-        usedClasses.addAll(other.dependents.keySet());
 
-        Multimap<String, String> dependencies = getForwardDependencyView();
-
-        Set<String> visited = new HashSet<>(usedClasses.size());
-        Deque<String> pending = new ArrayDeque<>(usedClasses);
-        while (!pending.isEmpty()) {
-            String cls = pending.poll();
-            if (visited.add(cls)) {
-                usedClasses.add(cls);
-                pending.addAll(dependencies.get(cls));
+        int[] dependenciesOffsets = new int[classNames.length + 1];
+        int[] dependencies = getForwardDependencyView(dependenciesOffsets);
+        int[] pending = new int[classNames.length];
+        int pendingCount = 0;
+        for (int i = usedClasses.nextSetBit(0); i >= 0; i = usedClasses.nextSetBit(i + 1)) {
+            pending[pendingCount++] = i;
+        }
+        while (pendingCount > 0) {
+            int index = pending[--pendingCount];
+            for (int i = dependenciesOffsets[index]; i < dependenciesOffsets[index + 1]; i++) {
+                int dependency = dependencies[i];
+                if (!usedClasses.get(dependency)) {
+                    usedClasses.set(dependency);
+                    pending[pendingCount++] = dependency;
+                }
             }
         }
 
-        Set<String> usedConstantSources = compilerApiData.isSupportsConstantsMapping()
-            ? compilerApiData.getConstantToClassMapping().getConstantDependents().keySet()
-            : classesToConstants.keySet();
-
-        usedClasses.addAll(usedConstantSources);
+        BitSet usedConstantSources = new BitSet(classNames.length);
+        if (compilerApiData.isSupportsConstantsMapping()) {
+            for (String constantSource : compilerApiData.getConstantToClassMapping().getConstantDependents().keySet()) {
+                int index = indexOf(constantSource);
+                if (index >= 0) {
+                    usedConstantSources.set(index);
+                }
+            }
+        } else {
+            for (int i = 0; i < classNames.length; i++) {
+                if (hasConstants(i)) {
+                    usedConstantSources.set(i);
+                }
+            }
+        }
+        usedClasses.or(usedConstantSources);
 
-        Map<String, HashCode> classHashes = new HashMap<>(usedClasses.size());
-        Map<String, DependentsSet> dependents = new HashMap<>(usedClasses.size());
-        Map<String, IntSet> classesToConstants = new HashMap<>(usedClasses.size());
-        for (String usedClass : usedClasses) {
-            HashCode hash = this.classHashes.get(usedClass);
-            if (hash != null) {
-                classHashes.put(usedClass, hash);
-                DependentsSet dependentsSet = this.dependents.get(usedClass);
-                if (dependentsSet != null) {
-                    if (dependentsSet.isDependencyToAll()) {
-                        dependents.put(usedClass, dependentsSet);
-                    } else {
-                        Set<String> usedAccessibleClasses = new HashSet<>(dependentsSet.getAccessibleDependentClasses());
-                        usedAccessibleClasses.retainAll(usedClasses);
-                        if (!usedAccessibleClasses.isEmpty()) {
-                            dependents.put(usedClass, DependentsSet.dependentClasses(Collections.emptySet(), usedAccessibleClasses));
+        Builder builder = new Builder();
+        for (int i = usedClasses.nextSetBit(0); i >= 0 && i < classHashes.length; i = usedClasses.nextSetBit(i + 1)) {
+            builder.addClass(classNames[i], classHashes[i]);
+        }
+        for (int i = usedClasses.nextSetBit(0); i >= 0 && i < classHashes.length; i = usedClasses.nextSetBit(i + 1)) {
+            if (hasDependents(i)) {
+                String dependencyToAllReason = dependencyToAllReasons.get(i);
+                if (dependencyToAllReason != null) {
+                    builder.addDependencyToAll(classNames[i], dependencyToAllReason);
+                } else {
+                    List<String> usedAccessibleClasses = new ArrayList<>();
+                    for (int j = accessibleDependentsOffsets[i]; j < accessibleDependentsOffsets[i + 1]; j++) {
+                        if (usedClasses.get(accessibleDependents[j])) {
+                            usedAccessibleClasses.add(classNames[accessibleDependents[j]]);
                         }
                     }
+                    if (!usedAccessibleClasses.isEmpty()) {
+                        builder.addDependentClasses(classNames[i], Collections.emptySet(), usedAccessibleClasses);
+                    }
                 }
-                IntSet constants = this.classesToConstants.get(usedClass);
-                if (constants != null && usedConstantSources.contains(usedClass)) {
-                    classesToConstants.put(usedClass, constants);
-                }
+            }
+            if (hasConstants(i) && usedConstantSources.get(i)) {
+                builder.addConstants(classNames[i], Arrays.copyOfRange(constants, constantsOffsets[i], constantsOffsets[i + 1]));
             }
         }
 
-        return new ClassSetAnalysisData(classHashes, dependents, classesToConstants, null);
+        return new ClassSetAnalysisData(builder, null);
     }
 
     /**
      * Takes the reverse dependency view of this set and reverses it, so it turns into a forward dependency view.
      * Excludes types that are dependencies to all others, these need to be handled separately by the caller.
      */
-    private Multimap<String, String> getForwardDependencyView() {
-        Multimap<String, String> dependencies = ArrayListMultimap.create(dependents.size(), 10);
-        for (Map.Entry<String, DependentsSet> entry : dependents.entrySet()) {
-            if (entry.getValue().isDependencyToAll()) {
-                continue;
+    private int[] getForwardDependencyView(int[] dependenciesOffsets) {
+        for (int i = 0; i < classNames.length; i++) {
+            if (hasDependents(i) && !dependencyToAllReasons.containsKey(i)) {
+                for (int j = accessibleDependentsOffsets[i]; j < accessibleDependentsOffsets[i + 1]; j++) {
+                    dependenciesOffsets[accessibleDependents[j] + 1]++;
+                }
             }
-            for (String dependent : entry.getValue().getAccessibleDependentClasses()) {
-                dependencies.put(dependent, entry.getKey());
+        }
+        int[] dependencies = new int[toOffsets(dependenciesOffsets)];
+        int[] dependenciesEnd = Arrays.copyOf(dependenciesOffsets, classNames.length);
+        for (int i = 0; i < classNames.length; i++) {
+            if (hasDependents(i) && !dependencyToAllReasons.containsKey(i)) {
+                for (int j = accessibleDependentsOffsets[i]; j < accessibleDependentsOffsets[i + 1]; j++) {
+                    dependencies[dependenciesEnd[accessibleDependents[j]]++] = i;
+                }
             }
         }
         return dependencies;
@@ -215,21 +511,28 @@ public DependentsSet getChangedClassesSince(ClassSetAnalysisData other) {
         }
 
         ImmutableSet.Builder<String> changed = ImmutableSet.builder();
-        for (String added : Sets.difference(classHashes.keySet(), other.classHashes.keySet())) {
-            DependentsSet dependents = getDependents(added);
-            if (dependents.isDependencyToAll()) {
-                return dependents;
-            }
-            if (added.endsWith(PACKAGE_INFO)) {
-                changed.add(added);
+        for (int i = 0; i < classHashes.length; i++) {
+            String added = classNames[i];
+            if (other.classIndexOf(added) < 0) {
+                DependentsSet dependents = getDependents(added);
+                if (dependents.isDependencyToAll()) {
+                    return dependents;
+                }
+                if (added.endsWith(PACKAGE_INFO)) {
+                    changed.add(added);
+                }
             }
         }
-        for (Map.Entry<String, HashCode> removedOrChanged : Sets.difference(other.classHashes.entrySet(), classHashes.entrySet())) {
-            DependentsSet dependents = getDependents(removedOrChanged.getKey());
-            if (dependents.isDependencyToAll()) {
-                return dependents;
+        for (int i = 0; i < other.classHashes.length; i++) {
+            String removedOrChanged = other.classNames[i];
+            int index = classIndexOf(removedOrChanged);
+            if (index < 0 || !classHashes[index].equals(other.classHashes[i])) {
+                DependentsSet dependents = getDependents(removedOrChanged);
+                if (dependents.isDependencyToAll()) {
+                    return dependents;
+                }
+                changed.add(removedOrChanged);
             }
-            changed.add(removedOrChanged.getKey());
         }
         return DependentsSet.dependentClasses(ImmutableSet.of(), changed.build());
     }
@@ -248,15 +551,30 @@ public DependentsSet getDependents(String className) {
             String packageName = className.equals(PACKAGE_INFO) ? null : StringUtils.removeEnd(className, "." + PACKAGE_INFO);
             return getDependentsOfPackage(packageName);
         }
-        DependentsSet dependentsSet = dependents.get(className);
-        return dependentsSet == null ? DependentsSet.empty() : dependentsSet;
+        int index = indexOf(className);
+        if (index < 0 || !hasDependents(index)) {
+            return DependentsSet.empty();
+        }
+        return getDependents(index);
+    }
+
+    private DependentsSet getDependents(int index) {
+        String dependencyToAllReason = dependencyToAllReasons.get(index);
+        if (dependencyToAllReason != null) {
+            return DependentsSet.dependencyToAll(dependencyToAllReason);
+        }
+        return DependentsSet.dependentClasses(
+            classNames(privateDependents, privateDependentsOffsets[index], privateDependentsOffsets[index + 1]),
+            classNames(accessibleDependents, accessibleDependentsOffsets[index], accessibleDependentsOffsets[index + 1])
+        );
     }
 
     private DependentsSet getDependentsOfPackage(String packageName) {
         Set<String> typesInPackage = new HashSet<>();
-        for (String type : classHashes.keySet()) {
-            int i = type.lastIndexOf(".");
-            if (i < 0 && packageName == null || i > 0 && type.substring(0, i).equals(packageName)) {
+        for (int i = 0; i < classHashes.length; i++) {
+            String type = classNames[i];
+            int separator = type.lastIndexOf(".");
+            if (separator < 0 && packageName == null || separator > 0 && type.substring(0, separator).equals(packageName)) {
                 typesInPackage.add(type);
             }
         }
@@ -267,11 +585,105 @@ private DependentsSet getDependentsOfPackage(String packageName) {
      * Gets the accessible, inlineable constants of the given class.
      */
     public IntSet getConstants(String className) {
-        IntSet integers = classesToConstants.get(className);
-        if (integers == null) {
+        int index = indexOf(className);
+        if (index < 0 || !hasConstants(index)) {
             return IntSets.EMPTY_SET;
         }
-        return integers;
+        return new IntOpenHashSet(constants, constantsOffsets[index], constantsOffsets[index + 1] - constantsOffsets[index]);
+    }
+
+    @VisibleForTesting
+    Map<String, DependentsSet> getDependentsMap() {
+        ImmutableMap.Builder<String, DependentsSet> builder = ImmutableMap.builder();
+        for (int i = 0; i < classNames.length; i++) {
+            if (hasDependents(i)) {
+                builder.put(classNames[i], getDependents(i));
+            }
+        }
+        return builder.build();
+    }
+
+    @VisibleForTesting
+    Map<String, IntSet> getClassesToConstants() {
+        ImmutableMap.Builder<String, IntSet> builder = ImmutableMap.builder();
+        for (int i = 0; i < classNames.length; i++) {
+            if (hasConstants(i)) {
+                builder.put(classNames[i], getConstants(classNames[i]));
+            }
+        }
+        return builder.build();
+    }
+
+    /**
+     * Collects the contents of a class set by class name. All classes contained in the set must be added before anything else.
+     */
+    private static class Builder {
+        private final Object2IntOpenHashMap<String> indices = new Object2IntOpenHashMap<>();
+        private final List<String> names = new ArrayList<>();
+        private final List<HashCode> hashes = new ArrayList<>();
+        private final Int2ObjectMap<int[]> privateDependents = new Int2ObjectOpenHashMap<>();
+        private final Int2ObjectMap<int[]> accessibleDependents = new Int2ObjectOpenHashMap<>();
+        private final Int2ObjectMap<String> dependencyToAllReasons = new Int2ObjectOpenHashMap<>();
+        private final Int2ObjectMap<int[]> constants = new Int2ObjectOpenHashMap<>();
+
+        Builder() {
+            indices.defaultReturnValue(-1);
+        }
+
+        void addClass(String className, HashCode hash) {
+            if (names.size() != hashes.size()) {
+                throw new IllegalStateException("Classes must be added before their dependents and constants.");
+            }
+            indices.put(className, names.size());
+            names.add(className);
+            hashes.add(hash);
+        }
+
+        private int indexOf(String className) {
+            int index = indices.getInt(className);
+            if (index < 0) {
+                index = names.size();
+                indices.put(className, index);
+                names.add(className);
+            }
+            return index;
+        }
+
+        private int[] indicesOf(Collection<String> classNames) {
+            int[] result = new int[classNames.size()];
+            int i = 0;
+            for (String className : classNames) {
+                result[i++] = indexOf(className);
+            }
+            return result;
+        }
+
+        void addDependents(String className, DependentsSet dependents) {
+            if (dependents.isDependencyToAll()) {
+                addDependencyToAll(className, dependents.getDescription());
+            } else if (!dependents.getDependentResources().isEmpty()) {
+                throw new IllegalArgumentException("Class sets cannot have dependent resources.");
+            } else {
+                addDependentClasses(className, dependents.getPrivateDependentClasses(), dependents.getAccessibleDependentClasses());
+            }
+        }
+
+        void addDependencyToAll(String className, String reason) {
+            int index = indexOf(className);
+            dependencyToAllReasons.put(index, reason);
+            privateDependents.put(index, new int[0]);
+            accessibleDependents.put(index, new int[0]);
+        }
+
+        void addDependentClasses(String className, Collection<String> privateDependentClasses, Collection<String> accessibleDependentClasses) {
+            int index = indexOf(className);
+            privateDependents.put(index, indicesOf(privateDependentClasses));
+            accessibleDependents.put(index, indicesOf(accessibleDependentClasses));
+        }
+
+        void addConstants(String className, int[] classConstants) {
+            constants.put(indexOf(className), classConstants);
+        }
     }
 
     public static class Serializer extends AbstractSerializer<ClassSetAnalysisData> {
@@ -283,61 +695,141 @@ public Serializer(Supplier<HierarchicalNameSerializer> classNameSerializerSuppli
             this.classNameSerializerSupplier = classNameSerializerSupplier;
         }
 
+        /**
+         * Reads the class name table and then the dependents and constants directly into the arrays used by {@link ClassSetAnalysisData}, without creating any intermediate collections.
+         */
         @Override
         public ClassSetAnalysisData read(Decoder decoder) throws Exception {
             HierarchicalNameSerializer hierarchicalNameSerializer = classNameSerializerSupplier.get();
-            DependentSetSerializer dependentSetSerializer = new DependentSetSerializer(() -> hierarchicalNameSerializer);
-            int count = decoder.readSmallInt();
-            ImmutableMap.Builder<String, HashCode> classHashes = ImmutableMap.builderWithExpectedSize(count);
-            for (int i = 0; i < count; i++) {
-                String className = hierarchicalNameSerializer.read(decoder);
-                HashCode hashCode = hashCodeSerializer.read(decoder);
-                classHashes.put(className, hashCode);
+            String[] classNames = new String[decoder.readSmallInt()];
+            HashCode[] classHashes = new HashCode[decoder.readSmallInt()];
+            for (int i = 0; i < classNames.length; i++) {
+                classNames[i] = hierarchicalNameSerializer.read(decoder);
+            }
+            for (int i = 0; i < classHashes.length; i++) {
+                classHashes[i] = hashCodeSerializer.read(decoder);
             }
+            byte[] flags = new byte[classNames.length];
 
-            count = decoder.readSmallInt();
-            ImmutableMap.Builder<String, DependentsSet> dependentsBuilder = ImmutableMap.builderWithExpectedSize(count);
+            Int2ObjectMap<String> dependencyToAllReasons = new Int2ObjectOpenHashMap<>();
+            int[] privateDependentsOffsets = new int[classNames.length + 1];
+            int[] privateDependents = new int[decoder.readSmallInt()];
+            int[] accessibleDependentsOffsets = new int[classNames.length + 1];
+            int[] accessibleDependents = new int[decoder.readSmallInt()];
+            int count = decoder.readSmallInt();
+            int next = 0;
+            int privateCount = 0;
+            int accessibleCount = 0;
             for (int i = 0; i < count; i++) {
-                String className = hierarchicalNameSerializer.read(decoder);
-                DependentsSet dependents = dependentSetSerializer.read(decoder);
-                dependentsBuilder.put(className, dependents);
+                int index = decoder.readSmallInt();
+                for (; next <= index; next++) {
+                    privateDependentsOffsets[next] = privateCount;
+                    accessibleDependentsOffsets[next] = accessibleCount;
+                }
+                flags[index] |= HAS_DEPENDENTS;
+                if (decoder.readBoolean()) {
+                    dependencyToAllReasons.put(index, decoder.readString());
+                } else {
+                    privateCount = readIndices(decoder, privateDependents, privateCount);
+                    accessibleCount = readIndices(decoder, accessibleDependents, accessibleCount);
+                }
+            }
+            for (; next <= classNames.length; next++) {
+                privateDependentsOffsets[next] = privateCount;
+                accessibleDependentsOffsets[next] = accessibleCount;
             }
 
+            int[] constantsOffsets = new int[classNames.length + 1];
+            int[] constants = new int[decoder.readSmallInt()];
             count = decoder.readSmallInt();
-            ImmutableMap.Builder<String, IntSet> classesToConstantsBuilder = ImmutableMap.builderWithExpectedSize(count);
+            next = 0;
+            int constantsCount = 0;
             for (int i = 0; i < count; i++) {
-                String className = hierarchicalNameSerializer.read(decoder);
-                IntSet constants = IntSetSerializer.INSTANCE.read(decoder);
-                classesToConstantsBuilder.put(className, constants);
+                int index = decoder.readSmallInt();
+                for (; next <= index; next++) {
+                    constantsOffsets[next] = constantsCount;
+                }
+                flags[index] |= HAS_CONSTANTS;
+                int classConstantsCount = decoder.readSmallInt();
+                for (int j = 0; j < classConstantsCount; j++) {
+                    constants[constantsCount++] = decoder.readInt();
+                }
+            }
+            for (; next <= classNames.length; next++) {
+                constantsOffsets[next] = constantsCount;
             }
 
             String fullRebuildCause = decoder.readNullableString();
 
-            return new ClassSetAnalysisData(classHashes.build(), dependentsBuilder.build(), classesToConstantsBuilder.build(), fullRebuildCause);
+            return new ClassSetAnalysisData(classNames, null, classHashes, flags, privateDependentsOffsets, privateDependents, accessibleDependentsOffsets, accessibleDependents, dependencyToAllReasons, constantsOffsets, constants, fullRebuildCause);
+        }
+
+        private static int readIndices(Decoder decoder, int[] target, int targetIndex) throws Exception {
+            int count = decoder.readSmallInt();
+            for (int i = 0; i < count; i++) {
+                target[targetIndex++] = decoder.readSmallInt();
+            }
+            return targetIndex;
         }
 
         @Override
         public void write(Encoder encoder, ClassSetAnalysisData value) throws Exception {
             HierarchicalNameSerializer hierarchicalNameSerializer = classNameSerializerSupplier.get();
-            DependentSetSerializer dependentSetSerializer = new DependentSetSerializer(() -> hierarchicalNameSerializer);
-            encoder.writeSmallInt(value.classHashes.size());
-            for (Map.Entry<String, HashCode> entry : value.classHashes.entrySet()) {
-                hierarchicalNameSerializer.write(encoder, entry.getKey());
-                hashCodeSerializer.write(encoder, entry.getValue());
+            encoder.writeSmallInt(value.classNames.length);
+            encoder.writeSmallInt(value.classHashes.length);
+            for (String className : value.classNames) {
+                hierarchicalNameSerializer.write(encoder, className);
+            }
+            for (HashCode hash : value.classHashes) {
+                hashCodeSerializer.write(encoder, hash);
             }
 
-            encoder.writeSmallInt(value.dependents.size());
-            for (Map.Entry<String, DependentsSet> entry : value.dependents.entrySet()) {
-                hierarchicalNameSerializer.write(encoder, entry.getKey());
-                dependentSetSerializer.write(encoder, entry.getValue());
+            encoder.writeSmallInt(value.privateDependents.length);
+            encoder.writeSmallInt(value.accessibleDependents.length);
+            encoder.writeSmallInt(count(value.flags, HAS_DEPENDENTS));
+            for (int i = 0; i < value.classNames.length; i++) {
+                if (value.hasDependents(i)) {
+                    encoder.writeSmallInt(i);
+                    String dependencyToAllReason = value.dependencyToAllReasons.get(i);
+                    encoder.writeBoolean(dependencyToAllReason != null);
+                    if (dependencyToAllReason != null) {
+                        encoder.writeString(dependencyToAllReason);
+                    } else {
+                        writeIndices(encoder, value.privateDependents, value.privateDependentsOffsets[i], value.privateDependentsOffsets[i + 1]);
+                        writeIndices(encoder, value.accessibleDependents, value.accessibleDependentsOffsets[i], value.accessibleDependentsOffsets[i + 1]);
+                    }
+                }
             }
 
-            encoder.writeSmallInt(value.classesToConstants.size());
-            for (Map.Entry<String, IntSet> entry : value.classesToConstants.entrySet()) {
-                hierarchicalNameSerializer.write(encoder, entry.getKey());
-                IntSetSerializer.INSTANCE.write(encoder, entry.getValue());
+            encoder.writeSmallInt(value.constants.length);
+            encoder.writeSmallInt(count(value.flags, HAS_CONSTANTS));
+            for (int i = 0; i < value.classNames.length; i++) {
+                if (value.hasConstants(i)) {
+                    encoder.writeSmallInt(i);
+                    encoder.writeSmallInt(value.constantsOffsets[i + 1] - value.constantsOffsets[i]);
+                    for (int j = value.constantsOffsets[i]; j < value.constantsOffsets[i + 1]; j++) {
+                        encoder.writeInt(value.constants[j]);
+                    }
+                }
             }
             encoder.writeNullableString(value.fullRebuildCause);
         }
+
+        private static int count(byte[] flags, byte flag) {
+            int count = 0;
+            for (byte flagsOfClass : flags) {
+                if ((flagsOfClass & flag) != 0) {
+                    count++;
+                }
+            }
+            return count;
+        }
+
+        private static void writeIndices(Encoder encoder, int[] values, int start, int end) throws Exception {
+            encoder.writeSmallInt(end - start);
+            for (int i = start; i < end; i++) {
+                encoder.writeSmallInt(values[i]);
+            }
+        }
     }
 }
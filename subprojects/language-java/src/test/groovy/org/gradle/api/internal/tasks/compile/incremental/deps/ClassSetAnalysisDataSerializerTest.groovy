@@ -49,15 +49,15 @@ class ClassSetAnalysisDataSerializerTest extends Specification {
         ClassSetAnalysisData read = serializer.read(new InputStreamBackedDecoder(new ByteArrayInputStream(os.toByteArray())))
 
         then:
-        read.dependents.keySet() == data.dependents.keySet()
+        read.dependentsMap.keySet() == data.dependentsMap.keySet()
 
         ["A", "B", "C"].each {
-            assert read.dependents[it].privateDependentClasses == data.dependents[it].privateDependentClasses
-            assert read.dependents[it].accessibleDependentClasses == data.dependents[it].accessibleDependentClasses
-            assert read.dependents[it].dependencyToAll == data.dependents[it].dependencyToAll
+            assert read.dependentsMap[it].privateDependentClasses == data.dependentsMap[it].privateDependentClasses
+            assert read.dependentsMap[it].accessibleDependentClasses == data.dependentsMap[it].accessibleDependentClasses
+            assert read.dependentsMap[it].dependencyToAll == data.dependentsMap[it].dependencyToAll
         }
 
-        read.dependents["D"].dependencyToAll
+        read.dependentsMap["D"].dependencyToAll
         read.classesToConstants == [C: [1,2] as Set, D: [] as Set]
         read.fullRebuildCause == "Because"
     }
@@ -0,0 +1,75 @@
+/*
+ * Copyright 2021 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.api.internal.tasks.compile.incremental.deps
+
+import it.unimi.dsi.fastutil.ints.IntOpenHashSet
+import org.gradle.api.internal.tasks.compile.incremental.compilerapi.CompilerApiData
+import org.gradle.internal.hash.HashCode
+import spock.lang.Specification
+
+import static org.gradle.api.internal.tasks.compile.incremental.compilerapi.deps.DependentsSet.dependencyToAll
+import static org.gradle.api.internal.tasks.compile.incremental.compilerapi.deps.DependentsSet.dependentClasses
+
+class ClassSetAnalysisDataTest extends Specification {
+
+    def "merge keeps the first occurrence of each class and combines dependents"() {
+        def first = new ClassSetAnalysisData(
+            [A: HashCode.fromInt(1), B: HashCode.fromInt(1)],
+            [A: dependentClasses(["B"] as Set, ["X"] as Set), C: dependencyToAll("first")],
+            [A: new IntOpenHashSet([1])],
+            null
+        )
+        def second = new ClassSetAnalysisData(
+            [A: HashCode.fromInt(2), C: HashCode.fromInt(2)],
+            [A: dependentClasses([] as Set, ["X", "C"] as Set), C: dependencyToAll("second")],
+            [A: new IntOpenHashSet([2]), C: new IntOpenHashSet([3])],
+            null
+        )
+
+        when:
+        def merged = ClassSetAnalysisData.merge([first, second])
+
+        then:
+        merged.getChangedClassesSince(second).accessibleDependentClasses == ["A"] as Set
+        merged.getDependents("A").privateDependentClasses == ["B"] as Set
+        merged.getDependents("A").accessibleDependentClasses == ["X", "C"] as Set
+        merged.getDependents("C").description == "second"
+        merged.getDependents("X").isEmpty()
+        merged.getConstants("A") == [1] as Set
+        merged.getConstants("C") == [3] as Set
+        merged.getConstants("X").isEmpty()
+    }
+
+    def "reduces to the types affecting another class set"() {
+        def data = new ClassSetAnalysisData(
+            [A: HashCode.fromInt(1), B: HashCode.fromInt(1), C: HashCode.fromInt(1), D: HashCode.fromInt(1)],
+            [A: dependentClasses([] as Set, ["B"] as Set), B: dependentClasses(["C"] as Set, ["X"] as Set), D: dependentClasses([] as Set, ["C"] as Set)],
+            [:],
+            null
+        )
+        def other = new ClassSetAnalysisData([X: HashCode.fromInt(1)], [B: dependentClasses([] as Set, ["X"] as Set)], [:], null)
+
+        when:
+        def reduced = data.reduceToTypesAffecting(other, CompilerApiData.unavailable())
+
+        then:
+        reduced.dependentsMap.keySet() == ["A"] as Set
+        reduced.getDependents("A").accessibleDependentClasses == ["B"] as Set
+        reduced.getDependents("B").isEmpty()
+        reduced.getChangedClassesSince(new ClassSetAnalysisData()).isEmpty()
+    }
+}
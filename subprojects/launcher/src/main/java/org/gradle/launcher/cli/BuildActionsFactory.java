@@ -138,7 +138,7 @@ private Runnable runBuildInProcess(StartParameterInternal startParameter, Daemon
             .displayName("Global services")
             .parent(loggingServices)
             .parent(NativeServices.getInstance())
-            .provider(new GlobalScopeServices(startParameter.isContinuous()))
+            .provider(new GlobalScopeServices(startParameter.isContinuous(), ClassPath.EMPTY, startParameter.getFileContentHashFunction()))
             .build();
 
         // Force the user home services to be stopped first, the dependencies between the user home services and the global services are not preserved currently
@@ -78,6 +78,7 @@ public Parameters convert(ParsedCommandLine args, @Nullable File currentDir) thr
 
         DaemonParameters daemonParameters = new DaemonParameters(buildLayout, fileCollectionFactory, properties.getRequestedSystemProperties());
         daemonParametersConverter.convert(args, properties, daemonParameters);
+        daemonParameters.setFileContentHashFunction(startParameter.getFileContentHashFunction());
 
         return new Parameters(buildLayout, startParameter, daemonParameters);
     }
@@ -20,6 +20,7 @@
 import org.gradle.api.internal.file.FileCollectionFactory;
 import org.gradle.api.specs.Spec;
 import org.gradle.cache.internal.HeapProportionalCacheSizer;
+import org.gradle.internal.hash.FileContentHashFunction;
 import org.gradle.process.internal.CurrentProcess;
 import org.gradle.process.internal.JvmOptions;
 import org.gradle.util.internal.CollectionUtils;
@@ -42,6 +43,13 @@ public class DaemonJvmOptions extends JvmOptions {
         SSL_KEYSTORE_KEY, SSL_KEYSTOREPASSWORD_KEY, SSL_KEYSTORETYPE_KEY, SSL_TRUSTPASSWORD_KEY, SSL_TRUSTSTORE_KEY, SSL_TRUSTSTORETYPE_KEY, HeapProportionalCacheSizer.CACHE_RESERVED_SYSTEM_PROPERTY
     );
 
+    /**
+     * System properties that are read when the build process starts, so need to be passed as JVM arguments to both long-lived and single-use daemons.
+     */
+    public static final Set<String> IMMUTABLE_BUILD_PROCESS_SYSTEM_PROPERTIES = ImmutableSet.of(
+        FileContentHashFunction.SYSTEM_PROPERTY
+    );
+
     public DaemonJvmOptions(FileCollectionFactory fileCollectionFactory) {
         super(fileCollectionFactory);
         final JvmOptions currentProcessJvmOptions = new CurrentProcess(fileCollectionFactory).getJvmOptions();
@@ -51,7 +59,7 @@ public DaemonJvmOptions(FileCollectionFactory fileCollectionFactory) {
 
     private void handleDaemonImmutableProperties(Map<String, Object> systemProperties) {
         for (Map.Entry<String, ?> entry : systemProperties.entrySet()) {
-            if(IMMUTABLE_DAEMON_SYSTEM_PROPERTIES.contains(entry.getKey())){
+            if (IMMUTABLE_DAEMON_SYSTEM_PROPERTIES.contains(entry.getKey()) || IMMUTABLE_BUILD_PROCESS_SYSTEM_PROPERTIES.contains(entry.getKey())) {
                 immutableSystemProperties.put(entry.getKey(), entry.getValue());
             }
         }
@@ -68,7 +76,7 @@ public boolean isSatisfiedBy(Map.Entry<String, Object> element) {
 
     @Override
     public void systemProperty(String name, Object value) {
-        if (IMMUTABLE_DAEMON_SYSTEM_PROPERTIES.contains(name)) {
+        if (IMMUTABLE_DAEMON_SYSTEM_PROPERTIES.contains(name) || IMMUTABLE_BUILD_PROCESS_SYSTEM_PROPERTIES.contains(name)) {
             immutableSystemProperties.put(name, value);
         } else {
             super.systemProperty(name, value);
@@ -18,6 +18,7 @@
 import com.google.common.collect.ImmutableList;
 import org.gradle.api.JavaVersion;
 import org.gradle.api.internal.file.FileCollectionFactory;
+import org.gradle.internal.hash.FileContentHashFunction;
 import org.gradle.internal.jvm.JavaInfo;
 import org.gradle.internal.jvm.JpmsConfiguration;
 import org.gradle.internal.jvm.Jvm;
@@ -160,6 +161,20 @@ public void setJvmArgs(Iterable<String> jvmArgs) {
         userDefinedImmutableJvmArgs = userDefinedImmutableJvmArgs || !immutableBefore.equals(immutableAfter);
     }
 
+    /**
+     * Requires the build process to hash file content with the given function. The function is selected when the process starts,
+     * so this is an immutable JVM argument of the process.
+     */
+    public void setFileContentHashFunction(FileContentHashFunction fileContentHashFunction) {
+        if (fileContentHashFunction == FileContentHashFunction.MD5) {
+            return;
+        }
+        List<String> immutableBefore = jvmOptions.getAllImmutableJvmArgs();
+        jvmOptions.systemProperty(FileContentHashFunction.SYSTEM_PROPERTY, fileContentHashFunction.getPropertyValue());
+        List<String> immutableAfter = jvmOptions.getAllImmutableJvmArgs();
+        userDefinedImmutableJvmArgs = userDefinedImmutableJvmArgs || !immutableBefore.equals(immutableAfter);
+    }
+
     public boolean hasUserDefinedImmutableJvmArgs() {
         return userDefinedImmutableJvmArgs;
     }
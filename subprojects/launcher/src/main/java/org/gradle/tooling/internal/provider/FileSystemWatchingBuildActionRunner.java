@@ -19,6 +19,7 @@
 import org.gradle.api.internal.StartParameterInternal;
 import org.gradle.api.internal.changedetection.state.FileHasherStatistics;
 import org.gradle.initialization.StartParameterBuildOptions;
+import org.gradle.initialization.layout.BuildLayout;
 import org.gradle.internal.buildtree.BuildActionRunner;
 import org.gradle.internal.buildtree.BuildTreeLifecycleController;
 import org.gradle.internal.file.StatStatistics;
@@ -35,6 +36,9 @@
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import javax.annotation.Nullable;
+import java.io.File;
+
 public class FileSystemWatchingBuildActionRunner implements BuildActionRunner {
     private static final Logger LOGGER = LoggerFactory.getLogger(FileSystemWatchingBuildActionRunner.class);
 
@@ -44,6 +48,7 @@ public class FileSystemWatchingBuildActionRunner implements BuildActionRunner {
     private final FileHasherStatistics.Collector fileHasherStatisticsCollector;
     private final DirectorySnapshotterStatistics.Collector directorySnapshotterStatisticsCollector;
     private final BuildOperationRunner buildOperationRunner;
+    private final BuildLayout buildLayout;
     private final BuildActionRunner delegate;
 
     public FileSystemWatchingBuildActionRunner(
@@ -53,6 +58,7 @@ public FileSystemWatchingBuildActionRunner(
         FileHasherStatistics.Collector fileHasherStatisticsCollector,
         DirectorySnapshotterStatistics.Collector directorySnapshotterStatisticsCollector,
         BuildOperationRunner buildOperationRunner,
+        BuildLayout buildLayout,
         BuildActionRunner delegate
     ) {
         this.eventEmitter = eventEmitter;
@@ -61,6 +67,7 @@ public FileSystemWatchingBuildActionRunner(
         this.fileHasherStatisticsCollector = fileHasherStatisticsCollector;
         this.directorySnapshotterStatisticsCollector = directorySnapshotterStatisticsCollector;
         this.buildOperationRunner = buildOperationRunner;
+        this.buildLayout = buildLayout;
         this.delegate = delegate;
     }
 
@@ -77,8 +84,9 @@ public Result run(BuildAction action, BuildTreeLifecycleController buildControll
             : WatchLogging.NORMAL;
 
         LOGGER.info("Watching the file system is configured to be {}", watchFileSystemMode.getDescription());
-        if (watchFileSystemMode.isEnabled()) {
-            dropVirtualFileSystemIfRequested(startParameter, virtualFileSystem);
+        boolean dropVirtualFileSystem = watchFileSystemMode.isEnabled() && VirtualFileSystemServices.isDropVfs(startParameter);
+        if (dropVirtualFileSystem) {
+            virtualFileSystem.invalidateAll();
         }
         if (verboseVfsLogging == VfsLogging.VERBOSE) {
             logVfsStatistics("since last build", statStatisticsCollector, fileHasherStatisticsCollector, directorySnapshotterStatisticsCollector);
@@ -102,6 +110,10 @@ public Result run(BuildAction action, BuildTreeLifecycleController buildControll
 
         boolean actuallyWatching = virtualFileSystem.afterBuildStarted(watchFileSystemMode, verboseVfsLogging, debugWatchLogging, buildOperationRunner);
         LOGGER.info("File system watching is {}", actuallyWatching ? "active" : "inactive");
+        File vfsStateFile = determineVfsStateFile(startParameter, watchFileSystemMode);
+        if (actuallyWatching && vfsStateFile != null && !dropVirtualFileSystem) {
+            virtualFileSystem.restoreState(vfsStateFile);
+        }
         //noinspection Convert2Lambda
         eventEmitter.emitNowForCurrent(new FileSystemWatchingSettingsFinalizedProgressDetails() {
             @Override
@@ -110,11 +122,17 @@ public boolean isEnabled() {
             }
         });
 
+        Result result = null;
         try {
-            return delegate.run(action, buildController);
+            result = delegate.run(action, buildController);
+            return result;
         } finally {
             int maximumNumberOfWatchedHierarchies = VirtualFileSystemServices.getMaximumNumberOfWatchedHierarchies(startParameter);
             virtualFileSystem.beforeBuildFinished(watchFileSystemMode, verboseVfsLogging, debugWatchLogging, buildOperationRunner, maximumNumberOfWatchedHierarchies);
+            // Only persist the state of a successful build, which the watchers have kept up-to-date throughout
+            if (vfsStateFile != null && actuallyWatching && result != null && result.getBuildFailure() == null) {
+                virtualFileSystem.persistState(vfsStateFile, buildLayout.getRootDirectory());
+            }
             if (verboseVfsLogging == VfsLogging.VERBOSE) {
                 logVfsStatistics("during current build", statStatisticsCollector, fileHasherStatisticsCollector, directorySnapshotterStatisticsCollector);
             }
@@ -133,9 +151,12 @@ private static void logVfsStatistics(
         LOGGER.warn("VFS> > DirectorySnapshotter: {}", directorySnapshotterStatisticsCollector.collect());
     }
 
-    private static void dropVirtualFileSystemIfRequested(StartParameterInternal startParameter, BuildLifecycleAwareVirtualFileSystem virtualFileSystem) {
-        if (VirtualFileSystemServices.isDropVfs(startParameter)) {
-            virtualFileSystem.invalidateAll();
+    @Nullable
+    private File determineVfsStateFile(StartParameterInternal startParameter, WatchMode watchFileSystemMode) {
+        // Watching is never enabled with a custom project cache directory, see above
+        if (!watchFileSystemMode.isEnabled() || !VirtualFileSystemServices.isPersistVfs(startParameter)) {
+            return null;
         }
+        return new File(buildLayout.getRootDirectory(), ".gradle/vfs/vfs-state.bin");
     }
 }
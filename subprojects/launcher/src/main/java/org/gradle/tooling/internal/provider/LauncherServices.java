@@ -220,6 +220,7 @@ BuildTreeActionExecutor createActionExecutor(List<BuildActionRunner> buildAction
                         fileHasherStatisticsCollector,
                         directorySnapshotterStatisticsCollector,
                         buildOperationRunner,
+                        buildLayout,
                         new BuildOutcomeReportingBuildActionRunner(
                             styledTextOutputFactory,
                             workValidationWarningReporter,
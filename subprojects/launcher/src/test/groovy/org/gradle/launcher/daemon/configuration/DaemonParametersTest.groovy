@@ -17,6 +17,7 @@ package org.gradle.launcher.daemon.configuration
 
 import org.gradle.api.JavaVersion
 import org.gradle.api.internal.file.TestFiles
+import org.gradle.internal.hash.FileContentHashFunction
 import org.gradle.internal.jvm.JavaInfo
 import org.gradle.internal.jvm.Jvm
 import org.gradle.launcher.configuration.BuildLayoutResult
@@ -75,6 +76,26 @@ class DaemonParametersTest extends Specification {
         parameters.effectiveJvmArgs.intersect(parameters.DEFAULT_JVM_ARGS).empty
     }
 
+    def "file content hash function other than the default is an immutable jvm arg of single-use and long-lived daemons"() {
+        when:
+        parameters.setFileContentHashFunction(FileContentHashFunction.MURMUR3)
+
+        then:
+        parameters.hasUserDefinedImmutableJvmArgs()
+        parameters.effectiveJvmArgs.contains("-D${FileContentHashFunction.SYSTEM_PROPERTY}=murmur3".toString())
+        parameters.effectiveSingleUseJvmArgs.contains("-D${FileContentHashFunction.SYSTEM_PROPERTY}=murmur3".toString())
+        !parameters.systemProperties.containsKey(FileContentHashFunction.SYSTEM_PROPERTY)
+    }
+
+    def "default file content hash function does not require a particular daemon"() {
+        when:
+        parameters.setFileContentHashFunction(FileContentHashFunction.MD5)
+
+        then:
+        !parameters.hasUserDefinedImmutableJvmArgs()
+        !parameters.effectiveJvmArgs.any { it.contains(FileContentHashFunction.SYSTEM_PROPERTY) }
+    }
+
     def "can apply defaults for Java 7 and earlier"() {
         when:
         parameters.applyDefaultsFor(JavaVersion.VERSION_1_7)
@@ -19,12 +19,14 @@ package org.gradle.tooling.internal.provider
 
 import org.gradle.api.internal.StartParameterInternal
 import org.gradle.api.internal.changedetection.state.FileHasherStatistics
+import org.gradle.initialization.layout.BuildLayout
 import org.gradle.internal.buildtree.BuildActionRunner
 import org.gradle.internal.buildtree.BuildTreeLifecycleController
 import org.gradle.internal.file.StatStatistics
 import org.gradle.internal.invocation.BuildAction
 import org.gradle.internal.operations.BuildOperationProgressEventEmitter
 import org.gradle.internal.operations.BuildOperationRunner
+import org.gradle.internal.service.scopes.VirtualFileSystemServices
 import org.gradle.internal.snapshot.impl.DirectorySnapshotterStatistics
 import org.gradle.internal.watch.options.FileSystemWatchingSettingsFinalizedProgressDetails
 import org.gradle.internal.watch.vfs.BuildLifecycleAwareVirtualFileSystem
@@ -42,6 +44,11 @@ class FileSystemWatchingBuildActionRunnerTest extends Specification {
     def delegate = Mock(BuildActionRunner)
     def buildAction = Stub(BuildAction)
     def buildOperationProgressEventEmitter = Mock(BuildOperationProgressEventEmitter)
+    def rootDirectory = new File("root")
+    def buildLayout = Stub(BuildLayout) {
+        getRootDirectory() >> rootDirectory
+    }
+    def systemPropertiesArgs = [:]
 
     def runner = new FileSystemWatchingBuildActionRunner(
         buildOperationProgressEventEmitter,
@@ -50,10 +57,11 @@ class FileSystemWatchingBuildActionRunnerTest extends Specification {
         Stub(FileHasherStatistics.Collector),
         Stub(DirectorySnapshotterStatistics.Collector),
         buildOperationRunner,
+        buildLayout,
         delegate)
 
     def setup() {
-        _ * startParameter.getSystemPropertiesArgs() >> [:]
+        _ * startParameter.getSystemPropertiesArgs() >> { systemPropertiesArgs }
         _ * buildAction.startParameter >> startParameter
     }
 
@@ -95,6 +103,72 @@ class FileSystemWatchingBuildActionRunnerTest extends Specification {
         WatchMode.DISABLED | VfsLogging.NORMAL  | WatchLogging.DEBUG  | false
     }
 
+    def "restores and persists the virtual file system state when requested (watching active: #actuallyEnabled)"() {
+        _ * startParameter.watchFileSystemMode >> WatchMode.ENABLED
+        _ * startParameter.projectCacheDir >> null
+        systemPropertiesArgs[VirtualFileSystemServices.VFS_PERSIST_PROPERTY] = "true"
+        def stateFile = new File(rootDirectory, ".gradle/vfs/vfs-state.bin")
+
+        when:
+        runner.run(buildAction, buildController)
+
+        then:
+        1 * watchingHandler.afterBuildStarted(WatchMode.ENABLED, _, _, buildOperationRunner) >> actuallyEnabled
+
+        then:
+        (actuallyEnabled ? 1 : 0) * watchingHandler.restoreState(stateFile)
+        1 * buildOperationProgressEventEmitter.emitNowForCurrent(_)
+
+        then:
+        1 * delegate.run(buildAction, buildController) >> BuildActionRunner.Result.of(null)
+
+        then:
+        1 * watchingHandler.beforeBuildFinished(WatchMode.ENABLED, _, _, buildOperationRunner, _)
+
+        then:
+        (actuallyEnabled ? 1 : 0) * watchingHandler.persistState(stateFile, rootDirectory)
+
+        then:
+        0 * _
+
+        where:
+        actuallyEnabled << [true, false]
+    }
+
+    def "does not persist the virtual file system state when the build fails"() {
+        _ * startParameter.watchFileSystemMode >> WatchMode.ENABLED
+        _ * startParameter.projectCacheDir >> null
+        systemPropertiesArgs[VirtualFileSystemServices.VFS_PERSIST_PROPERTY] = "true"
+
+        when:
+        runner.run(buildAction, buildController)
+
+        then:
+        1 * watchingHandler.afterBuildStarted(WatchMode.ENABLED, _, _, buildOperationRunner) >> true
+        1 * delegate.run(buildAction, buildController) >> BuildActionRunner.Result.failed(new RuntimeException("broken"))
+        1 * watchingHandler.beforeBuildFinished(WatchMode.ENABLED, _, _, buildOperationRunner, _)
+        0 * watchingHandler.persistState(_, _)
+    }
+
+    def "does not restore the virtual file system state when dropping the virtual file system"() {
+        _ * startParameter.watchFileSystemMode >> WatchMode.ENABLED
+        _ * startParameter.projectCacheDir >> null
+        systemPropertiesArgs[VirtualFileSystemServices.VFS_PERSIST_PROPERTY] = "true"
+        systemPropertiesArgs[VirtualFileSystemServices.VFS_DROP_PROPERTY] = "true"
+
+        when:
+        runner.run(buildAction, buildController)
+
+        then:
+        1 * watchingHandler.invalidateAll()
+        1 * watchingHandler.afterBuildStarted(WatchMode.ENABLED, _, _, buildOperationRunner) >> true
+        0 * watchingHandler.restoreState(_)
+        1 * delegate.run(buildAction, buildController) >> BuildActionRunner.Result.of(null)
+
+        then:
+        1 * watchingHandler.persistState(_, rootDirectory)
+    }
+
     def "watching enabled by default is disabled when project cache dir is specified"() {
         _ * startParameter.watchFileSystemMode >> WatchMode.DEFAULT
         _ * startParameter.projectCacheDir >> Mock(File)
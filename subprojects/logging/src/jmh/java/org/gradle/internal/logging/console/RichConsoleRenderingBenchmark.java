@@ -0,0 +1,164 @@
+/*
+ * Copyright 2021 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.internal.logging.console;
+
+import org.gradle.api.logging.LogLevel;
+import org.gradle.internal.logging.events.LogEvent;
+import org.gradle.internal.logging.events.OutputEvent;
+import org.gradle.internal.logging.events.OutputEventListener;
+import org.gradle.internal.logging.events.ProgressCompleteEvent;
+import org.gradle.internal.logging.events.ProgressEvent;
+import org.gradle.internal.logging.events.ProgressStartEvent;
+import org.gradle.internal.logging.events.UpdateNowEvent;
+import org.gradle.internal.nativeintegration.console.ConsoleMetaData;
+import org.gradle.internal.operations.BuildOperationCategory;
+import org.gradle.internal.operations.OperationIdentifier;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.util.ArrayList;
+import java.util.List;
+
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
+import static java.util.concurrent.TimeUnit.SECONDS;
+
+/**
+ * Measures the cost of rendering the output of a busy build to the rich console, by replaying a stream of output events
+ * that resembles the output of many workers running chatty tasks in parallel.
+ */
+@Fork(1)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(MILLISECONDS)
+@Warmup(iterations = 3, time = 2, timeUnit = SECONDS)
+@Measurement(iterations = 5, time = 2, timeUnit = SECONDS)
+@State(Scope.Benchmark)
+public class RichConsoleRenderingBenchmark {
+    private static final int FRAMES = 200;
+    private static final int FRAMES_PER_TASK = 4;
+
+    @Param({"8", "64"})
+    int workers;
+
+    // Log lines written by each worker for each frame
+    @Param({"0", "2"})
+    int logLines;
+
+    private final List<OutputEvent> events = new ArrayList<OutputEvent>();
+    private OutputEventListener renderer;
+    private CountingOutputStream output;
+
+    @Setup
+    public void setup() {
+        ConsoleMetaData metaData = new ConsoleMetaData() {
+            @Override
+            public boolean isStdOut() {
+                return true;
+            }
+
+            @Override
+            public boolean isStdErr() {
+                return false;
+            }
+
+            @Override
+            public int getCols() {
+                return 160;
+            }
+
+            @Override
+            public int getRows() {
+                return 200;
+            }
+
+            @Override
+            public boolean isWrapStreams() {
+                return false;
+            }
+        };
+        // Write to the console in the same way as when it is attached to a terminal
+        output = new CountingOutputStream();
+        OutputStreamWriter writer = new OutputStreamWriter(output);
+        AnsiConsole console = new AnsiConsole(writer, writer, new DefaultColorMap(), metaData, true);
+        renderer = new BuildStatusRenderer(
+            new WorkInProgressRenderer(
+                new StyledTextOutputBackedRenderer(console.getBuildOutputArea()),
+                console.getBuildProgressArea(),
+                new DefaultWorkInProgressFormatter(metaData),
+                new ConsoleLayoutCalculator(metaData)),
+            console.getStatusBar(), console, metaData);
+        recordEvents();
+    }
+
+    private void recordEvents() {
+        long nextId = 1;
+        long[] tasks = new long[workers];
+        for (int frame = 0; frame < FRAMES; frame++) {
+            for (int worker = 0; worker < workers; worker++) {
+                if (frame % FRAMES_PER_TASK == worker % FRAMES_PER_TASK || tasks[worker] == 0) {
+                    if (tasks[worker] != 0) {
+                        events.add(new ProgressCompleteEvent(new OperationIdentifier(tasks[worker]), frame, null, false));
+                    }
+                    tasks[worker] = nextId++;
+                    String taskPath = ":project" + worker + ":task" + frame;
+                    events.add(new ProgressStartEvent(new OperationIdentifier(tasks[worker]), null, frame, "task", "Execute " + taskPath, null, taskPath, 0, true, new OperationIdentifier(tasks[worker]), BuildOperationCategory.TASK));
+                }
+                events.add(new ProgressEvent(new OperationIdentifier(tasks[worker]), "Compiling file " + frame + " of " + FRAMES, false));
+                for (int line = 0; line < logLines; line++) {
+                    events.add(new LogEvent(frame, "task", LogLevel.LIFECYCLE, "Output line " + line + " of worker " + worker + " in frame " + frame, null));
+                }
+            }
+            events.add(new UpdateNowEvent(frame));
+        }
+        for (long task : tasks) {
+            events.add(new ProgressCompleteEvent(new OperationIdentifier(task), FRAMES, null, false));
+        }
+        events.add(new UpdateNowEvent(FRAMES));
+    }
+
+    @Benchmark
+    public long replay() {
+        for (OutputEvent event : events) {
+            renderer.onOutput(event);
+        }
+        return output.count;
+    }
+
+    private static class CountingOutputStream extends OutputStream {
+        long count;
+
+        @Override
+        public void write(int b) {
+            count++;
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) {
+            count += len;
+        }
+    }
+}
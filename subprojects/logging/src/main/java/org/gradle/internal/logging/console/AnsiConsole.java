@@ -53,6 +53,7 @@ private AnsiConsole(Appendable target, Flushable flushable, ColorMap colorMap, C
     @Override
     public void flush() {
         redraw();
+        ansiExecutor.flush();
         try {
             flushable.flush();
         } catch (IOException e) {
@@ -21,4 +21,9 @@
 public interface AnsiExecutor {
     void write(Action<? super AnsiContext> action);
     void writeAt(Cursor writePos, Action<? super AnsiContext> action);
+
+    /**
+     * Writes any buffered output to the target.
+     */
+    void flush();
 }
@@ -25,7 +25,16 @@
 
 import java.io.IOException;
 
+/**
+ * Writes to the console through ANSI control sequences.
+ *
+ * <p>Output is collected in a buffer and written to the target when the executor is flushed, or when the buffer becomes large, so that
+ * each redraw of the console reaches the target in as few writes as possible.</p>
+ */
 public class DefaultAnsiExecutor implements AnsiExecutor {
+    private static final int MAX_BUFFERED_CHARS = 8192;
+
+    private final StringBuilder buffer = new StringBuilder();
     private final Appendable target;
     private final ColorMap colorMap;
     private final AnsiFactory factory;
@@ -102,10 +111,23 @@ private void positionCursorAt(Cursor position, Ansi ansi) {
     }
 
     private void write(Ansi ansi) {
+        buffer.append(ansi.toString());
+        if (buffer.length() >= MAX_BUFFERED_CHARS) {
+            flush();
+        }
+    }
+
+    @Override
+    public void flush() {
+        if (buffer.length() == 0) {
+            return;
+        }
         try {
-            target.append(ansi.toString());
+            target.append(buffer);
         } catch (IOException e) {
             throw new UncheckedIOException(e);
+        } finally {
+            buffer.setLength(0);
         }
     }
 
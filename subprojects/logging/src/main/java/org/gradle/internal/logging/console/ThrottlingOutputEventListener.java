@@ -23,8 +23,8 @@
 import org.gradle.internal.logging.events.UpdateNowEvent;
 import org.gradle.internal.time.Clock;
 
-import java.util.ArrayList;
-import java.util.List;
+import java.util.ArrayDeque;
+import java.util.Deque;
 import java.util.concurrent.Executors;
 import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.TimeUnit;
@@ -40,7 +40,7 @@ public class ThrottlingOutputEventListener implements OutputEventListener {
     private final int throttleMs;
     private final Object lock = new Object();
 
-    private final List<OutputEvent> queue = new ArrayList<OutputEvent>();
+    private final Deque<OutputEvent> queue = new ArrayDeque<OutputEvent>();
 
     public ThrottlingOutputEventListener(OutputEventListener listener, Clock clock) {
         this(listener, Integer.getInteger("org.gradle.internal.console.throttle", 100), Executors.newSingleThreadScheduledExecutor(), clock);
@@ -90,8 +90,8 @@ public void onOutput(OutputEvent newEvent) {
 
     private void renderNow() {
         // Remove event only as it is handled, and leave unhandled events in the queue
-        while (!queue.isEmpty()) {
-            OutputEvent event = queue.remove(0);
+        OutputEvent event;
+        while ((event = queue.poll()) != null) {
             listener.onOutput(event);
         }
     }
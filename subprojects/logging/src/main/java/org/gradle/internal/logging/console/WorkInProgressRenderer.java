@@ -65,7 +65,10 @@ public WorkInProgressRenderer(OutputEventListener listener, BuildProgressArea pr
 
     @Override
     public void onOutput(OutputEvent event) {
-        queue.add(event);
+        // Only progress events change the progress area. When none are received between two updates, the labels are left as they are
+        if (event instanceof ProgressStartEvent || event instanceof ProgressEvent || event instanceof ProgressCompleteEvent) {
+            queue.add(event);
+        }
 
         if (event instanceof UpdateNowEvent) {
             renderNow();
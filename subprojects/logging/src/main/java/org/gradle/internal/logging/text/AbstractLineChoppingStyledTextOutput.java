@@ -38,6 +38,16 @@ protected AbstractLineChoppingStyledTextOutput() {
 
     @Override
     protected final void doAppend(String text) {
+        if (isPlainLineText(text)) {
+            // Fast path for the common case of text that does not contain any end of line
+            if (currentState == START_LINE_STATE) {
+                doStartLine();
+                currentState = INITIAL_STATE;
+            }
+            doLineText(text);
+            return;
+        }
+
         StateContext context = new StateContext(text);
 
         while (context.hasChar()) {
@@ -47,6 +57,19 @@ protected final void doAppend(String text) {
         context.flushLineText();
     }
 
+    private boolean isPlainLineText(String text) {
+        if ((currentState != INITIAL_STATE && currentState != START_LINE_STATE) || !seenFromEol.none() || text.isEmpty()) {
+            return false;
+        }
+        for (int i = 0; i < text.length(); i++) {
+            char ch = text.charAt(i);
+            if (ch == '\r' || ch == '\n' || ch == eolChars[0]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
     /**
      * Called before text is about to be appended to the start of a line.
      */
@@ -135,6 +135,36 @@ class DefaultAnsiExecutorTest extends Specification {
         0 * newLineListener._
     }
 
+    def "buffers output until flushed"() {
+        given:
+        consoleMetaData.cols >> TERMINAL_WIDTH
+        def output = new StringBuilder()
+        def executor = new DefaultAnsiExecutor(output, colorMap, { new Ansi() } as AnsiFactory, consoleMetaData, writeCursor, newLineListener)
+
+        when:
+        executor.writeAt(Cursor.newBottomLeft()) {
+            it.a("ABC")
+        }
+        executor.writeAt(Cursor.newBottomLeft()) {
+            it.a("DE")
+        }
+
+        then:
+        output.length() == 0
+
+        when:
+        executor.flush()
+
+        then:
+        output.toString() == "ABC" + new Ansi().cursorLeft(3).toString() + "DE"
+
+        when:
+        executor.flush()
+
+        then:
+        output.toString() == "ABC" + new Ansi().cursorLeft(3).toString() + "DE"
+    }
+
     def expectLineWrapCallback(int writtenRow, int writtenLength) {
         int numberOfWrap = writtenLength / (TERMINAL_WIDTH + 1)
         while (numberOfWrap-- > 0) {
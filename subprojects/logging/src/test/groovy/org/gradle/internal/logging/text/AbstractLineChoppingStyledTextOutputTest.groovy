@@ -106,6 +106,25 @@ class AbstractLineChoppingStyledTextOutputTest extends Specification {
         [type, eol] << EOLS
     }
 
+    def "append text of a line in multiple calls [#type]"() {
+        def output = output()
+
+        when:
+        output.text("a")
+        output.text("b")
+        output.text(eol)
+        output.text("c")
+        output.text("d")
+        output.text("")
+        output.text("e${eol}")
+
+        then:
+        result.toString() == "[a][b]{eol}{start}[c][d][e]{eol}"
+
+        where:
+        [type, eol] << EOLS
+    }
+
     def "can append eol in chunks"() {
         System.setProperty("line.separator", "----")
         def output = output()
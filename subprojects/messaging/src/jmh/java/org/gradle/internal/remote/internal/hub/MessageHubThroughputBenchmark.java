@@ -0,0 +1,137 @@
+/*
+ * Copyright 2021 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.internal.remote.internal.hub;
+
+import org.gradle.api.Action;
+import org.gradle.internal.Cast;
+import org.gradle.internal.concurrent.DefaultExecutorFactory;
+import org.gradle.internal.dispatch.Dispatch;
+import org.gradle.internal.id.UUIDGenerator;
+import org.gradle.internal.remote.ConnectionAcceptor;
+import org.gradle.internal.remote.internal.ConnectCompletion;
+import org.gradle.internal.remote.internal.RemoteConnection;
+import org.gradle.internal.remote.internal.hub.protocol.InterHubMessage;
+import org.gradle.internal.remote.internal.inet.InetAddressFactory;
+import org.gradle.internal.remote.internal.inet.TcpIncomingConnector;
+import org.gradle.internal.remote.internal.inet.TcpOutgoingConnector;
+import org.gradle.internal.serialize.BaseSerializerFactory;
+import org.gradle.internal.serialize.Serializers;
+import org.gradle.internal.serialize.StatefulSerializer;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+import static java.util.concurrent.TimeUnit.SECONDS;
+
+/**
+ * Measures how many messages per second one message hub can send to another over a local connection, for a stream of small messages
+ * such as log events or test output events. Compares flushing after every write to the connection with batching of messages.
+ */
+@Fork(1)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(SECONDS)
+@Warmup(iterations = 3, time = 2, timeUnit = SECONDS)
+@Measurement(iterations = 5, time = 2, timeUnit = SECONDS)
+@State(Scope.Benchmark)
+public class MessageHubThroughputBenchmark {
+    private static final int MESSAGES = 10000;
+
+    // The maximum batch latency in microseconds, 0 disables batching
+    @Param({"0", "1000"})
+    long batchLatency;
+
+    // The number of messages sent in quick succession, before the sender pauses
+    @Param({"1", "100"})
+    int burstSize;
+
+    private DefaultExecutorFactory executorFactory;
+    private ConnectionAcceptor acceptor;
+    private MessageHub sender;
+    private MessageHub receiver;
+    private RemoteConnection<InterHubMessage> senderConnection;
+    private Dispatch<String> outgoing;
+    private final Semaphore received = new Semaphore(0);
+    private String message;
+
+    @Setup
+    public void setup() throws InterruptedException {
+        executorFactory = new DefaultExecutorFactory();
+        Action<Throwable> errorHandler = new Action<Throwable>() {
+            @Override
+            public void execute(Throwable throwable) {
+                throwable.printStackTrace();
+            }
+        };
+        BatchingPolicy batchingPolicy = new BatchingPolicy(batchLatency, TimeUnit.MICROSECONDS, BatchingPolicy.MAX_BATCH_SIZE);
+        sender = new MessageHub("sender", executorFactory, errorHandler, batchingPolicy);
+        receiver = new MessageHub("receiver", executorFactory, errorHandler, batchingPolicy);
+        receiver.addHandler("channel", new Dispatch<Object>() {
+            @Override
+            public void dispatch(Object message) {
+                received.release();
+            }
+        });
+
+        final StatefulSerializer<InterHubMessage> serializer = new InterHubMessageSerializer(Cast.<StatefulSerializer<Object>>uncheckedNonnullCast(Serializers.stateful(BaseSerializerFactory.STRING_SERIALIZER)));
+        TcpIncomingConnector incomingConnector = new TcpIncomingConnector(executorFactory, new InetAddressFactory(), new UUIDGenerator());
+        acceptor = incomingConnector.accept(new Action<ConnectCompletion>() {
+            @Override
+            public void execute(ConnectCompletion completion) {
+                receiver.addConnection(completion.create(serializer));
+            }
+        }, false);
+        senderConnection = new TcpOutgoingConnector().connect(acceptor.getAddress()).create(serializer);
+        sender.addConnection(senderConnection);
+        outgoing = sender.getOutgoing("channel", String.class);
+        message = "a message of some typical size, such as a log event or a test output event";
+    }
+
+    @TearDown
+    public void tearDown() {
+        sender.stop();
+        senderConnection.stop();
+        receiver.stop();
+        acceptor.stop();
+        executorFactory.stop();
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(MESSAGES)
+    public void sendMessages() throws InterruptedException {
+        for (int i = 0; i < MESSAGES; i += burstSize) {
+            for (int j = 0; j < burstSize; j++) {
+                outgoing.dispatch(message);
+            }
+            // Give the dispatch thread a chance to catch up, as a producer that does some work between messages would
+            Thread.yield();
+        }
+        received.acquire(MESSAGES);
+    }
+}
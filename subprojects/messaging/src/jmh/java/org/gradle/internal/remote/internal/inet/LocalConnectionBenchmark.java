@@ -0,0 +1,142 @@
+/*
+ * Copyright 2021 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.internal.remote.internal.inet;
+
+import org.gradle.api.Action;
+import org.gradle.internal.concurrent.DefaultExecutorFactory;
+import org.gradle.internal.id.UUIDGenerator;
+import org.gradle.internal.remote.ConnectionAcceptor;
+import org.gradle.internal.remote.MessagingServer;
+import org.gradle.internal.remote.ObjectConnection;
+import org.gradle.internal.remote.internal.hub.MessageHubBackedClient;
+import org.gradle.internal.remote.internal.hub.MessageHubBackedServer;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Queue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+
+import static java.util.concurrent.TimeUnit.MICROSECONDS;
+import static java.util.concurrent.TimeUnit.SECONDS;
+
+/**
+ * Measures the latency and throughput of a connection between two local endpoints, over TCP loopback and over a Unix domain socket.
+ * The endpoints are connected by a {@link MessagingServer} and a messaging client, the same way as the daemon and worker processes, so the
+ * measurements include the message hubs and the serialization of method calls. The server echoes each message back to the client.
+ */
+@Fork(1)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(MICROSECONDS)
+@Warmup(iterations = 3, time = 2, timeUnit = SECONDS)
+@Measurement(iterations = 5, time = 2, timeUnit = SECONDS)
+@State(Scope.Benchmark)
+public class LocalConnectionBenchmark {
+    private static final int BURST_SIZE = 100;
+
+    @Param({"tcp", "unix"})
+    String transport;
+
+    private DefaultExecutorFactory executorFactory;
+    private ConnectionAcceptor acceptor;
+    private ObjectConnection client;
+    private final Queue<ObjectConnection> serverConnections = new ConcurrentLinkedQueue<ObjectConnection>();
+    private final BlockingQueue<String> replies = new LinkedBlockingQueue<String>();
+    private EchoProtocol echo;
+    private String message;
+
+    public interface EchoProtocol {
+        void echo(String message);
+    }
+
+    public interface ReplyProtocol {
+        void reply(String message);
+    }
+
+    @Setup
+    public void setup() {
+        boolean useUnixDomainSockets = transport.equals("unix");
+        if (useUnixDomainSockets && !UnixDomainSockets.isEnabled()) {
+            throw new IllegalStateException("Unix domain sockets are not available.");
+        }
+        executorFactory = new DefaultExecutorFactory();
+        MessagingServer server = new MessageHubBackedServer(new TcpIncomingConnector(executorFactory, new InetAddressFactory(), new UUIDGenerator(), useUnixDomainSockets), executorFactory);
+        acceptor = server.accept(new Action<ObjectConnection>() {
+            @Override
+            public void execute(ObjectConnection connection) {
+                final ReplyProtocol reply = connection.addOutgoing(ReplyProtocol.class);
+                connection.addIncoming(EchoProtocol.class, new EchoProtocol() {
+                    @Override
+                    public void echo(String message) {
+                        reply.reply(message);
+                    }
+                });
+                connection.connect();
+                serverConnections.add(connection);
+            }
+        });
+        client = new MessageHubBackedClient(new TcpOutgoingConnector(useUnixDomainSockets), executorFactory).getConnection(acceptor.getAddress());
+        client.addIncoming(ReplyProtocol.class, new ReplyProtocol() {
+            @Override
+            public void reply(String message) {
+                replies.add(message);
+            }
+        });
+        echo = client.addOutgoing(EchoProtocol.class);
+        client.connect();
+        message = "a message of some typical size, such as a log event or a worker request";
+    }
+
+    @TearDown
+    public void tearDown() {
+        client.stop();
+        for (ObjectConnection connection : serverConnections) {
+            connection.stop();
+        }
+        acceptor.stop();
+        executorFactory.stop();
+    }
+
+    @Benchmark
+    public String roundTrip() throws InterruptedException {
+        echo.echo(message);
+        return replies.take();
+    }
+
+    @Benchmark
+    public String burst() throws InterruptedException {
+        for (int i = 0; i < BURST_SIZE; i++) {
+            echo.echo(message);
+        }
+        String last = null;
+        for (int i = 0; i < BURST_SIZE; i++) {
+            last = replies.take();
+        }
+        return last;
+    }
+}
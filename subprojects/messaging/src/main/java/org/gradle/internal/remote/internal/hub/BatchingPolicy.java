@@ -0,0 +1,98 @@
+/*
+ * Copyright 2021 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.internal.remote.internal.hub;
+
+import org.gradle.internal.options.IntegerInternalOption;
+import org.gradle.internal.options.InternalOption;
+import org.gradle.internal.options.InternalOptions;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Decides when the messages written to a connection are flushed.
+ *
+ * <p>When messages are written one at a time, each message is flushed as soon as it has been written, so that occasional messages and request/response
+ * exchanges are not delayed. When messages are piling up, that is, more than one message was waiting to be written in the current batch or in the
+ * previous batch flushed shortly before, the connection waits a little for more messages so that they can be written to the connection together
+ * and flushed once. The batch is flushed when no further message arrives within the idle time, when it contains the maximum number of messages,
+ * or when the oldest message in the batch has waited for the maximum latency.</p>
+ *
+ * <p>The maximum latency can be set in microseconds with {@code -Dorg.gradle.internal.remote.batchLatency=<micros>}. A value of 0 disables waiting, so that
+ * the messages are flushed as soon as all queued messages have been written.</p>
+ */
+class BatchingPolicy {
+    static final InternalOption<Integer> MAX_LATENCY_OPTION = new IntegerInternalOption("org.gradle.internal.remote.batchLatency", 1000, 0);
+    static final int MAX_BATCH_SIZE = 1000;
+
+    private final long maxLatencyNanos;
+    private final long idleNanos;
+    private final int maxBatchSize;
+
+    BatchingPolicy(long maxLatency, TimeUnit unit, int maxBatchSize) {
+        this.maxLatencyNanos = unit.toNanos(maxLatency);
+        this.idleNanos = maxLatencyNanos / 10;
+        this.maxBatchSize = maxBatchSize;
+    }
+
+    static BatchingPolicy fromOptions(InternalOptions options) {
+        return forMaxLatency(options.getOption(MAX_LATENCY_OPTION));
+    }
+
+    static BatchingPolicy forMaxLatency(long maxLatencyMicros) {
+        return new BatchingPolicy(maxLatencyMicros, TimeUnit.MICROSECONDS, MAX_BATCH_SIZE);
+    }
+
+    /**
+     * Starts a new batch, whose first messages were taken from the queue at the given time.
+     *
+     * @param lastFlush the time of the previous flush of the connection.
+     * @param lastBatchSize the number of messages flushed by the previous flush.
+     */
+    Batch startBatch(long now, long lastFlush, int lastBatchSize) {
+        boolean busy = lastBatchSize > 1 && now - lastFlush < maxLatencyNanos;
+        return new Batch(now, busy);
+    }
+
+    class Batch {
+        private final long deadline;
+        private final boolean busy;
+        private int size;
+
+        private Batch(long start, boolean busy) {
+            this.deadline = start + maxLatencyNanos;
+            this.busy = busy;
+        }
+
+        void added(int count) {
+            size += count;
+        }
+
+        int size() {
+            return size;
+        }
+
+        /**
+         * Returns how long to wait for more messages before flushing the batch, or 0 to flush the batch now.
+         */
+        long waitNanos(long now) {
+            if (maxLatencyNanos == 0 || size >= maxBatchSize || !(busy || size > 1)) {
+                return 0;
+            }
+            return Math.max(0, Math.min(idleNanos, deadline - now));
+        }
+    }
+}
@@ -23,6 +23,7 @@
 import org.gradle.internal.concurrent.ManagedExecutor;
 import org.gradle.internal.dispatch.BoundedDispatch;
 import org.gradle.internal.dispatch.Dispatch;
+import org.gradle.internal.options.DefaultInternalOptions;
 import org.gradle.internal.remote.internal.Connection;
 import org.gradle.internal.remote.internal.RecoverableMessageIOException;
 import org.gradle.internal.remote.internal.RemoteConnection;
@@ -32,6 +33,7 @@
 import java.util.ArrayList;
 import java.util.List;
 import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.LockSupport;
 import java.util.concurrent.locks.ReentrantLock;
 
 /**
@@ -55,13 +57,19 @@ private enum State {Running, Stopping, Stopped}
     private final IncomingQueue incomingQueue = new IncomingQueue(lock);
     private final OutgoingQueue outgoingQueue = new OutgoingQueue(incomingQueue, lock);
     private final ConnectionSet connections = new ConnectionSet(incomingQueue, outgoingQueue);
+    private final BatchingPolicy batchingPolicy;
 
     /**
      * @param errorHandler Notified when some async activity fails. Must be thread-safe.
      */
     public MessageHub(String displayName, ExecutorFactory executorFactory, Action<? super Throwable> errorHandler) {
+        this(displayName, executorFactory, errorHandler, BatchingPolicy.fromOptions(new DefaultInternalOptions()));
+    }
+
+    MessageHub(String displayName, ExecutorFactory executorFactory, Action<? super Throwable> errorHandler, BatchingPolicy batchingPolicy) {
         this.displayName = displayName;
         this.errorHandler = errorHandler;
+        this.batchingPolicy = batchingPolicy;
         workers = executorFactory.create(displayName + " workers");
     }
 
@@ -315,6 +323,8 @@ private ConnectionDispatch(ConnectionState connectionState) {
         public void run() {
             try {
                 List<InterHubMessage> messages = new ArrayList<InterHubMessage>();
+                long lastFlush = 0;
+                int lastBatchSize = 0;
                 try {
                     while (true) {
                         lock.lock();
@@ -323,19 +333,34 @@ public void run() {
                         } finally {
                             lock.unlock();
                         }
-                        for (InterHubMessage message : messages) {
-                            try {
-                                connection.dispatch(message);
-                            } catch (RecoverableMessageIOException e) {
-                                addToIncoming(new StreamFailureMessage(e));
-                            }
-                            if (message instanceof EndOfStream) {
+                        // Write messages to the connection until the batch should be flushed
+                        BatchingPolicy.Batch batch = batchingPolicy.startBatch(System.nanoTime(), lastFlush, lastBatchSize);
+                        while (true) {
+                            if (dispatch(messages)) {
                                 connection.flush();
                                 return;
                             }
+                            batch.added(messages.size());
+                            messages.clear();
+                            long waitNanos = batch.waitNanos(System.nanoTime());
+                            if (waitNanos == 0) {
+                                break;
+                            }
+                            // Wait without being woken by each new message, then take whatever has arrived
+                            LockSupport.parkNanos(waitNanos);
+                            lock.lock();
+                            try {
+                                queue.poll(messages);
+                            } finally {
+                                lock.unlock();
+                            }
+                            if (messages.isEmpty()) {
+                                break;
+                            }
                         }
                         connection.flush();
-                        messages.clear();
+                        lastFlush = System.nanoTime();
+                        lastBatchSize = batch.size();
                     }
                 } finally {
                     lock.lock();
@@ -349,6 +374,23 @@ public void run() {
                 errorHandler.execute(t);
             }
         }
+
+        /**
+         * Writes the given messages to the connection, returning true when the end of the stream has been reached.
+         */
+        private boolean dispatch(List<InterHubMessage> messages) {
+            for (InterHubMessage message : messages) {
+                try {
+                    connection.dispatch(message);
+                } catch (RecoverableMessageIOException e) {
+                    addToIncoming(new StreamFailureMessage(e));
+                }
+                if (message instanceof EndOfStream) {
+                    return true;
+                }
+            }
+            return false;
+        }
     }
 
     private class ChannelDispatch<T> implements Dispatch<T> {
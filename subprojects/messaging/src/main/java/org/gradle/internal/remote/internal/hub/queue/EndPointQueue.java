@@ -56,6 +56,17 @@ public void take(Collection<InterHubMessage> drainTo) {
         queue.clear();
     }
 
+    /**
+     * Takes the queued messages, without waiting for a message to arrive when the queue is empty.
+     */
+    public void poll(Collection<InterHubMessage> drainTo) {
+        if (queue.isEmpty()) {
+            owner.empty(this);
+        }
+        drainTo.addAll(queue);
+        queue.clear();
+    }
+
     public void stop() {
         owner.stopped(this);
     }
@@ -49,7 +49,10 @@ public void dispatch(InterHubMessage message) {
     }
 
     void empty(EndPointQueue endPointQueue) {
-        waiting.add(endPointQueue);
+        // The endpoint may already be waiting, when it has polled for messages and none were available
+        if (!waiting.contains(endPointQueue)) {
+            waiting.add(endPointQueue);
+        }
         flush();
     }
 
@@ -32,7 +32,7 @@ public SocketConnectCompletion(SocketChannel socket) {
 
     @Override
     public String toString() {
-        return socket.socket().getLocalSocketAddress() + " to " + socket.socket().getRemoteSocketAddress();
+        return SocketConnection.describe(socket, true) + " to " + SocketConnection.describe(socket, false);
     }
 
     @Override
@@ -33,6 +33,7 @@
 
 import java.io.*;
 import java.net.InetSocketAddress;
+import java.net.SocketAddress;
 import java.nio.ByteBuffer;
 import java.nio.channels.ClosedSelectorException;
 import java.nio.channels.SelectionKey;
@@ -42,8 +43,8 @@
 public class SocketConnection<T> implements RemoteConnection<T> {
     private static final Logger LOGGER = LoggerFactory.getLogger(SocketConnection.class);
     private final SocketChannel socket;
-    private final SocketInetAddress localAddress;
-    private final SocketInetAddress remoteAddress;
+    private final Object localAddress;
+    private final Object remoteAddress;
     private final ObjectWriter<T> objectWriter;
     private final ObjectReader<T> objectReader;
     private final InputStream instr;
@@ -61,15 +62,30 @@ public SocketConnection(SocketChannel socket, MessageSerializer streamSerializer
         } catch (IOException e) {
             throw UncheckedException.throwAsUncheckedException(e);
         }
-        InetSocketAddress localSocketAddress = (InetSocketAddress) socket.socket().getLocalSocketAddress();
-        localAddress = new SocketInetAddress(localSocketAddress.getAddress(), localSocketAddress.getPort());
-        InetSocketAddress remoteSocketAddress = (InetSocketAddress) socket.socket().getRemoteSocketAddress();
-        remoteAddress = new SocketInetAddress(remoteSocketAddress.getAddress(), remoteSocketAddress.getPort());
+        localAddress = describe(socket, true);
+        remoteAddress = describe(socket, false);
         objectReader = messageSerializer.newReader(streamSerializer.newDecoder(instr));
         encoder = streamSerializer.newEncoder(outstr);
         objectWriter = messageSerializer.newWriter(encoder);
     }
 
+    /**
+     * Describes one end of the connection, which is either a TCP or a Unix domain socket.
+     */
+    static Object describe(SocketChannel socket, boolean local) {
+        SocketAddress address;
+        try {
+            address = local ? socket.getLocalAddress() : socket.getRemoteAddress();
+        } catch (IOException e) {
+            throw UncheckedException.throwAsUncheckedException(e);
+        }
+        if (address instanceof InetSocketAddress) {
+            InetSocketAddress inetSocketAddress = (InetSocketAddress) address;
+            return new SocketInetAddress(inetSocketAddress.getAddress(), inetSocketAddress.getPort());
+        }
+        return address;
+    }
+
     @Override
     public String toString() {
         return "socket connection from " + localAddress + " to " + remoteAddress;
@@ -29,8 +29,12 @@
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import javax.annotation.Nullable;
+import java.io.File;
+import java.io.IOException;
 import java.net.InetAddress;
 import java.net.InetSocketAddress;
+import java.net.SocketAddress;
 import java.nio.channels.ClosedChannelException;
 import java.nio.channels.ServerSocketChannel;
 import java.nio.channels.SocketChannel;
@@ -43,11 +47,20 @@ public class TcpIncomingConnector implements IncomingConnector {
     private final ExecutorFactory executorFactory;
     private final InetAddressFactory addressFactory;
     private final IdGenerator<UUID> idGenerator;
+    private final boolean useUnixDomainSockets;
 
     public TcpIncomingConnector(ExecutorFactory executorFactory, InetAddressFactory addressFactory, IdGenerator<UUID> idGenerator) {
+        this(executorFactory, addressFactory, idGenerator, UnixDomainSockets.isEnabled());
+    }
+
+    /**
+     * @param useUnixDomainSockets whether to also accept connections from local processes over a Unix domain socket.
+     */
+    public TcpIncomingConnector(ExecutorFactory executorFactory, InetAddressFactory addressFactory, IdGenerator<UUID> idGenerator, boolean useUnixDomainSockets) {
         this.executorFactory = executorFactory;
         this.addressFactory = addressFactory;
         this.idGenerator = idGenerator;
+        this.useUnixDomainSockets = useUnixDomainSockets;
     }
 
     @Override
@@ -63,12 +76,18 @@ public ConnectionAcceptor accept(Action<ConnectCompletion> action, boolean allow
         }
 
         UUID id = idGenerator.generateId();
+        final File socketFile = useUnixDomainSockets ? UnixDomainSockets.socketFileFor(id) : null;
+        final ServerSocketChannel localServerSocket = socketFile != null ? bindLocalSocket(socketFile) : null;
+
         List<InetAddress> addresses = Collections.singletonList(addressFactory.getLocalBindingAddress());
-        final Address address = new MultiChoiceAddress(id, localPort, addresses);
+        final Address address = new MultiChoiceAddress(id, localPort, addresses, localServerSocket != null ? socketFile : null);
         LOGGER.debug("Listening on {}.", address);
 
         final ManagedExecutor executor = executorFactory.create("Incoming " + (allowRemote ? "remote" : "local")+ " TCP Connector on port " + localPort);
         executor.execute(new Receiver(serverSocket, action, allowRemote));
+        if (localServerSocket != null) {
+            executor.execute(new Receiver(localServerSocket, action, allowRemote));
+        }
 
         return new ConnectionAcceptor() {
             @Override
@@ -78,7 +97,10 @@ public Address getAddress() {
 
             @Override
             public void requestStop() {
-                CompositeStoppable.stoppable(serverSocket).stop();
+                CompositeStoppable.stoppable(serverSocket, localServerSocket).stop();
+                if (localServerSocket != null) {
+                    socketFile.delete();
+                }
             }
 
             @Override
@@ -89,6 +111,21 @@ public void stop() {
         };
     }
 
+    @Nullable
+    private static ServerSocketChannel bindLocalSocket(File socketFile) {
+        try {
+            // A socket file left behind by a process which exited without stopping its connector prevents binding to the same path.
+            // The file is not registered for deletion on exit, as the daemon creates connectors for its whole lifetime and the registrations would pile up.
+            if (socketFile.exists() && !socketFile.delete()) {
+                throw new IOException(String.format("Could not delete stale socket file %s.", socketFile));
+            }
+            return UnixDomainSockets.bind(socketFile);
+        } catch (Exception e) {
+            LOGGER.debug("Could not listen on Unix domain socket {}, accepting connections over TCP only.", socketFile, e);
+            return null;
+        }
+    }
+
     private class Receiver implements Runnable {
         private final ServerSocketChannel serverSocket;
         private final Action<ConnectCompletion> action;
@@ -106,14 +143,17 @@ public void run() {
                 try {
                     while (true) {
                         final SocketChannel socket = serverSocket.accept();
-                        InetSocketAddress remoteSocketAddress = (InetSocketAddress) socket.socket().getRemoteSocketAddress();
-                        InetAddress remoteInetAddress = remoteSocketAddress.getAddress();
-                        if (!allowRemote && !addressFactory.isCommunicationAddress(remoteInetAddress)) {
-                            LOGGER.error("Cannot accept connection from remote address {}.", remoteInetAddress);
-                            socket.close();
-                            continue;
+                        SocketAddress remoteSocketAddress = socket.getRemoteAddress();
+                        // Connections over a Unix domain socket are always from the local machine
+                        if (!allowRemote && remoteSocketAddress instanceof InetSocketAddress) {
+                            InetAddress remoteInetAddress = ((InetSocketAddress) remoteSocketAddress).getAddress();
+                            if (!addressFactory.isCommunicationAddress(remoteInetAddress)) {
+                                LOGGER.error("Cannot accept connection from remote address {}.", remoteInetAddress);
+                                socket.close();
+                                continue;
+                            }
                         }
-                        LOGGER.debug("Accepted connection from {} to {}.", socket.socket().getRemoteSocketAddress(), socket.socket().getLocalSocketAddress());
+                        LOGGER.debug("Accepted connection from {} to {}.", remoteSocketAddress, socket.getLocalAddress());
                         try {
                             action.execute(new SocketConnectCompletion(socket));
                         } catch (Throwable t) {
@@ -23,6 +23,7 @@
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.io.File;
 import java.io.IOException;
 import java.net.*;
 import java.nio.channels.SocketChannel;
@@ -31,6 +32,18 @@
 public class TcpOutgoingConnector implements OutgoingConnector {
     private static final Logger LOGGER = LoggerFactory.getLogger(TcpOutgoingConnector.class);
     private static final int CONNECT_TIMEOUT = 10000;
+    private final boolean useUnixDomainSockets;
+
+    public TcpOutgoingConnector() {
+        this(UnixDomainSockets.isEnabled());
+    }
+
+    /**
+     * @param useUnixDomainSockets whether to connect over a Unix domain socket when the destination offers one, rather than over TCP.
+     */
+    public TcpOutgoingConnector(boolean useUnixDomainSockets) {
+        this.useUnixDomainSockets = useUnixDomainSockets;
+    }
 
     @Override
     public ConnectCompletion connect(Address destinationAddress) throws org.gradle.internal.remote.internal.ConnectException {
@@ -40,6 +53,19 @@ public ConnectCompletion connect(Address destinationAddress) throws org.gradle.i
         InetEndpoint address = (InetEndpoint) destinationAddress;
         LOGGER.debug("Attempting to connect to {}.", address);
 
+        if (useUnixDomainSockets && address instanceof MultiChoiceAddress) {
+            File socketFile = ((MultiChoiceAddress) address).getSocketFile();
+            if (socketFile != null) {
+                try {
+                    SocketChannel socketChannel = UnixDomainSockets.connect(socketFile);
+                    LOGGER.debug("Connected to Unix domain socket {}.", socketFile);
+                    return new SocketConnectCompletion(socketChannel);
+                } catch (Exception e) {
+                    LOGGER.debug("Cannot connect to Unix domain socket {}, falling back to TCP.", socketFile, e);
+                }
+            }
+        }
+
         // Try each address in turn. Not all of them are necessarily reachable (eg when socket option IPV6_V6ONLY
         // is on - the default for debian and others), so we will try each of them until we can connect
         List<InetAddress> candidateAddresses = address.getCandidates();
@@ -0,0 +1,113 @@
+/*
+ * Copyright 2021 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.internal.remote.internal.inet;
+
+import org.gradle.internal.UncheckedException;
+
+import javax.annotation.Nullable;
+import java.io.File;
+import java.io.IOException;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.net.ProtocolFamily;
+import java.net.SocketAddress;
+import java.net.StandardProtocolFamily;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.nio.file.Path;
+import java.util.UUID;
+
+/**
+ * Creates Unix domain socket channels, which are available from Java 16. The channels are created reflectively, as this code also runs on older JVMs.
+ * Unix domain sockets can be disabled with {@code -Dorg.gradle.internal.remote.unixDomainSockets=false}, in which case only TCP is used.
+ */
+class UnixDomainSockets {
+    static final String SYSTEM_PROPERTY = "org.gradle.internal.remote.unixDomainSockets";
+
+    private static final ProtocolFamily UNIX;
+    private static final Method OPEN_SERVER_SOCKET;
+    private static final Method ADDRESS_OF;
+
+    static {
+        ProtocolFamily unix = null;
+        Method openServerSocket = null;
+        Method addressOf = null;
+        try {
+            unix = StandardProtocolFamily.valueOf("UNIX");
+            openServerSocket = ServerSocketChannel.class.getMethod("open", ProtocolFamily.class);
+            addressOf = Class.forName("java.net.UnixDomainSocketAddress").getMethod("of", Path.class);
+        } catch (Exception e) {
+            // Not supported by this JVM
+            unix = null;
+            openServerSocket = null;
+            addressOf = null;
+        }
+        UNIX = unix;
+        OPEN_SERVER_SOCKET = openServerSocket;
+        ADDRESS_OF = addressOf;
+    }
+
+    private UnixDomainSockets() {
+    }
+
+    static boolean isEnabled() {
+        return UNIX != null && !Boolean.FALSE.toString().equals(System.getProperty(SYSTEM_PROPERTY));
+    }
+
+    /**
+     * Returns the location of the socket file for the given connector. The path is kept short, as the length of socket paths is limited to around 100 bytes.
+     */
+    static File socketFileFor(UUID id) {
+        return new File(System.getProperty("java.io.tmpdir"), "gradle-" + Long.toHexString(id.getMostSignificantBits()) + Long.toHexString(id.getLeastSignificantBits()) + ".sock");
+    }
+
+    static ServerSocketChannel bind(File socketFile) throws IOException {
+        ServerSocketChannel serverSocket = (ServerSocketChannel) invoke(OPEN_SERVER_SOCKET, null, UNIX);
+        try {
+            serverSocket.bind(addressOf(socketFile));
+        } catch (IOException e) {
+            serverSocket.close();
+            throw e;
+        }
+        return serverSocket;
+    }
+
+    static SocketChannel connect(File socketFile) throws IOException {
+        // Opens a channel of the protocol family of the address
+        return SocketChannel.open(addressOf(socketFile));
+    }
+
+    private static SocketAddress addressOf(File socketFile) throws IOException {
+        return (SocketAddress) invoke(ADDRESS_OF, null, socketFile.toPath());
+    }
+
+    private static Object invoke(Method method, @Nullable Object target, Object arg) throws IOException {
+        if (method == null) {
+            throw new UnsupportedOperationException("Unix domain sockets are not supported by this JVM.");
+        }
+        try {
+            return method.invoke(target, arg);
+        } catch (InvocationTargetException e) {
+            if (e.getCause() instanceof IOException) {
+                throw (IOException) e.getCause();
+            }
+            throw UncheckedException.throwAsUncheckedException(e.getCause());
+        } catch (IllegalAccessException e) {
+            throw UncheckedException.throwAsUncheckedException(e);
+        }
+    }
+}
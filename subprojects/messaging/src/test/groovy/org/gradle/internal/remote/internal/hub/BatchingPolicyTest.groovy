@@ -0,0 +1,107 @@
+/*
+ * Copyright 2021 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.internal.remote.internal.hub
+
+import org.gradle.internal.options.DefaultInternalOptions
+import spock.lang.Specification
+
+import java.util.concurrent.TimeUnit
+
+class BatchingPolicyTest extends Specification {
+    def policy = new BatchingPolicy(1000, TimeUnit.NANOSECONDS, 10)
+
+    def "flushes single message immediately"() {
+        def batch = policy.startBatch(5000, 4900, 1)
+        batch.added(1)
+
+        expect:
+        batch.waitNanos(5000) == 0
+    }
+
+    def "waits for more messages when more than one message is queued"() {
+        def batch = policy.startBatch(5000, 3000, 1)
+        batch.added(2)
+
+        expect:
+        batch.waitNanos(5000) == 100
+    }
+
+    def "waits for more messages when previous batch contained more than one message and was flushed recently"() {
+        def batch = policy.startBatch(5000, 4500, 2)
+        batch.added(1)
+
+        expect:
+        batch.waitNanos(5000) == 100
+        batch.waitNanos(5850) == 100
+        batch.waitNanos(5950) == 50
+        batch.waitNanos(6000) == 0
+        batch.waitNanos(7000) == 0
+    }
+
+    def "flushes single message immediately when previous batch was not flushed recently"() {
+        def batch = policy.startBatch(5000, 3000, 2)
+        batch.added(1)
+
+        expect:
+        batch.waitNanos(5000) == 0
+    }
+
+    def "flushes when batch is full"() {
+        def batch = policy.startBatch(5000, 4500, 2)
+
+        when:
+        batch.added(9)
+
+        then:
+        batch.waitNanos(5000) == 100
+
+        when:
+        batch.added(1)
+
+        then:
+        batch.waitNanos(5000) == 0
+    }
+
+    def "does not batch when max latency is zero"() {
+        def batch = BatchingPolicy.forMaxLatency(0).startBatch(5000, 5000, 2)
+        batch.added(2)
+
+        expect:
+        batch.waitNanos(5000) == 0
+    }
+
+    def "reads max latency from options"() {
+        expect:
+        waitNanos(BatchingPolicy.fromOptions(new DefaultInternalOptions([:]))) == TimeUnit.MICROSECONDS.toNanos(100)
+        waitNanos(BatchingPolicy.fromOptions(new DefaultInternalOptions(["org.gradle.internal.remote.batchLatency": "200"]))) == TimeUnit.MICROSECONDS.toNanos(20)
+
+        when:
+        BatchingPolicy.fromOptions(new DefaultInternalOptions(["org.gradle.internal.remote.batchLatency": value]))
+
+        then:
+        thrown(IllegalArgumentException)
+
+        where:
+        value << ["-1", "soon"]
+    }
+
+    private static long waitNanos(BatchingPolicy policy) {
+        def batch = policy.startBatch(5000, 5000, 0)
+        batch.added(2)
+        return batch.waitNanos(5000)
+    }
+}
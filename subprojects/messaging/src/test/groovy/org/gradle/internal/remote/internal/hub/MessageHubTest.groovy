@@ -31,6 +31,7 @@ import spock.lang.Timeout
 import java.util.concurrent.BlockingQueue
 import java.util.concurrent.CopyOnWriteArrayList
 import java.util.concurrent.LinkedBlockingQueue
+import java.util.concurrent.TimeUnit
 
 @Timeout(60)
 class MessageHubTest extends ConcurrentSpec {
@@ -196,6 +197,48 @@ class MessageHubTest extends ConcurrentSpec {
         connection.stop()
     }
 
+    def "outgoing messages that pile up while connection is busy are flushed together"() {
+        def batchingHub = new MessageHub("<hub>", executorFactory, errorHandler, new BatchingPolicy(5, TimeUnit.SECONDS, 5))
+        def messages = new CopyOnWriteArrayList()
+        def flushes = new CopyOnWriteArrayList()
+        RemoteConnection<InterHubMessage> outgoing = Mock()
+        def connection = new MockOutgoingConnection(outgoing)
+
+        given:
+        outgoing.dispatch({ it instanceof ChannelMessage }) >> { ChannelMessage message ->
+            messages.add(message.payload)
+        }
+        outgoing.flush() >> {
+            flushes.add(messages.collect())
+            if (flushes.size() == 1) {
+                instant.firstFlush
+                thread.blockUntil.queued
+            } else if (flushes.size() == 2) {
+                instant.secondFlush
+            }
+        }
+
+        and:
+        batchingHub.addConnection(connection)
+
+        when:
+        def dispatcher = batchingHub.getOutgoing("channel", Long)
+        dispatcher.dispatch(0)
+        thread.blockUntil.firstFlush
+        (1..3).each { dispatcher.dispatch(it) }
+        instant.queued
+        (4..5).each { dispatcher.dispatch(it) }
+        thread.blockUntil.secondFlush
+
+        then:
+        flushes[0] == [0]
+        flushes[1] == 0..5
+
+        cleanup:
+        connection.stop()
+        batchingHub.stop()
+    }
+
     def "each outgoing message is dispatched to exactly one connection"() {
         def messages = new CopyOnWriteArrayList()
         RemoteConnection<InterHubMessage> outgoing = Mock()
@@ -33,6 +33,7 @@ import org.junit.Rule
 import spock.lang.Issue
 import spock.lang.Shared
 import spock.lang.Timeout
+import spock.util.concurrent.BlockingVariable
 
 import java.nio.channels.SocketChannel
 
@@ -128,6 +129,67 @@ class TcpConnectorTest extends ConcurrentSpec {
         e.cause instanceof java.net.ConnectException
     }
 
+    @Requires(TestPrecondition.JDK16_OR_LATER)
+    def "client connects to server over Unix domain socket when available"() {
+        def incomingConnector = new TcpIncomingConnector(executorFactory, addressFactory, idGenerator, true)
+        def outgoingConnector = new TcpOutgoingConnector(true)
+        def received = new BlockingVariable<String>()
+        Action action = { ConnectCompletion completion ->
+            received.set(completion.create(serializer).receive())
+        } as Action
+
+        when:
+        def acceptor = incomingConnector.accept(action, false)
+        def socketFile = acceptor.address.socketFile
+        def connection = outgoingConnector.connect(acceptor.address).create(serializer)
+        connection.dispatch("hello")
+        connection.flush()
+
+        then:
+        socketFile.exists()
+        connection.toString().contains(socketFile.path)
+        received.get() == "hello"
+
+        when:
+        connection.stop()
+        acceptor.stop()
+
+        then:
+        !socketFile.exists()
+    }
+
+    @Requires(TestPrecondition.JDK16_OR_LATER)
+    def "client falls back to TCP when cannot connect over Unix domain socket"() {
+        def incomingConnector = new TcpIncomingConnector(executorFactory, addressFactory, idGenerator, true)
+        def outgoingConnector = new TcpOutgoingConnector(true)
+
+        when:
+        def acceptor = incomingConnector.accept(Mock(Action), false)
+        MultiChoiceAddress address = acceptor.address
+        def tcpOnly = new MultiChoiceAddress(address.canonicalAddress, address.port, address.candidates, new File(address.socketFile.parentFile, "missing.sock"))
+        def connection = outgoingConnector.connect(tcpOnly).create(serializer)
+
+        then:
+        !connection.toString().contains(".sock")
+
+        cleanup:
+        connection?.stop()
+        acceptor?.stop()
+    }
+
+    def "server does not listen on Unix domain socket when disabled"() {
+        def incomingConnector = new TcpIncomingConnector(executorFactory, addressFactory, idGenerator, false)
+
+        when:
+        def acceptor = incomingConnector.accept(Mock(Action), false)
+
+        then:
+        acceptor.address.socketFile == null
+
+        cleanup:
+        acceptor?.stop()
+    }
+
     def "server closes connection when action fails"() {
         Action action = Mock()
 
@@ -0,0 +1,107 @@
+/*
+ * Copyright 2021 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.cache.internal;
+
+import org.apache.commons.io.FileUtils;
+import org.gradle.cache.IndexedCacheLayout;
+import org.gradle.cache.IndexedCacheStore;
+import org.gradle.cache.internal.btree.BTreePersistentIndexedCache;
+import org.gradle.cache.internal.logstructured.LogStructuredIndexedCache;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.Random;
+
+import static java.util.concurrent.TimeUnit.SECONDS;
+import static org.gradle.internal.serialize.BaseSerializerFactory.BYTE_ARRAY_SERIALIZER;
+import static org.gradle.internal.serialize.BaseSerializerFactory.STRING_SERIALIZER;
+
+/**
+ * Compares the write and read throughput of the {@link IndexedCacheLayout}s.
+ */
+@Fork(1)
+@Warmup(iterations = 5, time = 1, timeUnit = SECONDS)
+@Measurement(iterations = 5, time = 1, timeUnit = SECONDS)
+@State(Scope.Benchmark)
+public class IndexedCacheLayoutBenchmark {
+
+    @Param({"BTREE", "LOG_STRUCTURED"})
+    IndexedCacheLayout layout;
+
+    @Param({"10000"})
+    int entries;
+
+    @Param({"256", "4096"})
+    int valueSize;
+
+    File tempDir;
+    IndexedCacheStore<String, byte[]> store;
+    byte[] value;
+    Random random = new Random(1234L);
+
+    @Setup(Level.Iteration)
+    public void setup() throws IOException {
+        tempDir = Files.createTempDirectory("indexed-cache-benchmark").toFile();
+        value = new byte[valueSize];
+        random.nextBytes(value);
+        store = createStore();
+        for (int i = 0; i < entries; i++) {
+            store.put(key(i), value);
+        }
+    }
+
+    @TearDown(Level.Iteration)
+    public void tearDown() throws IOException {
+        store.close();
+        FileUtils.forceDelete(tempDir);
+    }
+
+    @Benchmark
+    public void put() {
+        store.put(key(random.nextInt(entries)), value);
+    }
+
+    @Benchmark
+    public byte[] get() {
+        return store.get(key(random.nextInt(entries)));
+    }
+
+    private IndexedCacheStore<String, byte[]> createStore() {
+        switch (layout) {
+            case LOG_STRUCTURED:
+                return new LogStructuredIndexedCache<String, byte[]>(new File(tempDir, "cache.log"), STRING_SERIALIZER, BYTE_ARRAY_SERIALIZER);
+            case BTREE:
+            default:
+                return new BTreePersistentIndexedCache<String, byte[]>(new File(tempDir, "cache.bin"), STRING_SERIALIZER, BYTE_ARRAY_SERIALIZER);
+        }
+    }
+
+    private static String key(int i) {
+        return "/some/path/to/a/task/in/the/build:" + i;
+    }
+}
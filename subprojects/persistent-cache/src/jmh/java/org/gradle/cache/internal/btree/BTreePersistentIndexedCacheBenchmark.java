@@ -0,0 +1,90 @@
+/*
+ * Copyright 2021 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.cache.internal.btree;
+
+import org.apache.commons.io.FileUtils;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.Random;
+
+import static java.util.concurrent.TimeUnit.SECONDS;
+import static org.gradle.internal.serialize.BaseSerializerFactory.LONG_SERIALIZER;
+import static org.gradle.internal.serialize.BaseSerializerFactory.STRING_SERIALIZER;
+
+/**
+ * Measures random lookups in a {@link BTreePersistentIndexedCache} backed by the different {@link BlockStore} implementations.
+ */
+@Fork(1)
+@Warmup(iterations = 5, time = 1, timeUnit = SECONDS)
+@Measurement(iterations = 5, time = 1, timeUnit = SECONDS)
+@State(Scope.Benchmark)
+public class BTreePersistentIndexedCacheBenchmark {
+
+    @Param({"FILE", "MAPPED"})
+    BlockStoreType blockStoreType;
+
+    @Param({"10000", "200000"})
+    int entries;
+
+    File tempDir;
+    BTreePersistentIndexedCache<String, Long> cache;
+    Random random = new Random(1234L);
+
+    @Setup(Level.Trial)
+    public void setup() throws IOException {
+        tempDir = Files.createTempDirectory("btree-benchmark").toFile();
+        File cacheFile = new File(tempDir, "cache.bin");
+        BTreePersistentIndexedCache<String, Long> writer = new BTreePersistentIndexedCache<String, Long>(cacheFile, STRING_SERIALIZER, LONG_SERIALIZER, BlockStoreType.FILE);
+        for (int i = 0; i < entries; i++) {
+            writer.put(key(i), (long) i);
+        }
+        writer.close();
+        cache = new BTreePersistentIndexedCache<String, Long>(cacheFile, STRING_SERIALIZER, LONG_SERIALIZER, blockStoreType);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        cache.close();
+        FileUtils.forceDelete(tempDir);
+    }
+
+    @Benchmark
+    public Long randomLookup() {
+        return cache.get(key(random.nextInt(entries)));
+    }
+
+    @Benchmark
+    public Long randomMiss() {
+        return cache.get(key(entries + random.nextInt(entries)));
+    }
+
+    private static String key(int i) {
+        return "/some/path/to/a/file/in/the/build/" + i;
+    }
+}
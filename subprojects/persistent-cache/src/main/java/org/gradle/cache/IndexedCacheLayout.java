@@ -0,0 +1,35 @@
+/*
+ * Copyright 2021 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.cache;
+
+/**
+ * The on-disk layout used to store the entries of a {@link PersistentIndexedCache}.
+ */
+public enum IndexedCacheLayout {
+    /**
+     * Entries are stored in a B-tree, and space of updated or removed entries is reused for new entries.
+     * Suits caches which are mostly read.
+     */
+    BTREE,
+
+    /**
+     * Entries are appended to a log, and an index of the latest entry for each key is kept in memory.
+     * Suits caches which are frequently updated, as updates are sequential writes.
+     * Space of updated or removed entries is reclaimed by {@link org.gradle.cache.internal.logstructured.LogStructuredIndexedCacheCompaction}, which should be registered with the names of these caches as a cleanup action of the containing cache.
+     */
+    LOG_STRUCTURED
+}
@@ -27,24 +27,26 @@
     private final Serializer<K> keySerializer;
     private final Serializer<V> valueSerializer;
     private final CacheDecorator cacheDecorator;
+    private final IndexedCacheLayout layout;
 
     public static <K, V> PersistentIndexedCacheParameters<K, V> of(String cacheName, Serializer<K> keySerializer, Serializer<V> valueSerializer) {
-        return new PersistentIndexedCacheParameters<K, V>(cacheName, keySerializer, valueSerializer, null);
+        return new PersistentIndexedCacheParameters<K, V>(cacheName, keySerializer, valueSerializer, null, IndexedCacheLayout.BTREE);
     }
 
     public static <K, V> PersistentIndexedCacheParameters<K, V> of(String cacheName, Class<K> keyType, Serializer<V> valueSerializer) {
-        return new PersistentIndexedCacheParameters<K, V>(cacheName, SERIALIZER_FACTORY.getSerializerFor(keyType), valueSerializer, null);
+        return new PersistentIndexedCacheParameters<K, V>(cacheName, SERIALIZER_FACTORY.getSerializerFor(keyType), valueSerializer, null, IndexedCacheLayout.BTREE);
     }
 
     public static <K, V> PersistentIndexedCacheParameters<K, V> of(String cacheName, Class<K> keyType, Class<V> valueType) {
-        return new PersistentIndexedCacheParameters<K, V>(cacheName, SERIALIZER_FACTORY.getSerializerFor(keyType), SERIALIZER_FACTORY.getSerializerFor(valueType), null);
+        return new PersistentIndexedCacheParameters<K, V>(cacheName, SERIALIZER_FACTORY.getSerializerFor(keyType), SERIALIZER_FACTORY.getSerializerFor(valueType), null, IndexedCacheLayout.BTREE);
     }
 
-    private PersistentIndexedCacheParameters(String cacheName, Serializer<K> keySerializer, Serializer<V> valueSerializer, @Nullable CacheDecorator cacheDecorator) {
+    private PersistentIndexedCacheParameters(String cacheName, Serializer<K> keySerializer, Serializer<V> valueSerializer, @Nullable CacheDecorator cacheDecorator, IndexedCacheLayout layout) {
         this.cacheName = cacheName;
         this.keySerializer = keySerializer;
         this.valueSerializer = valueSerializer;
         this.cacheDecorator = cacheDecorator;
+        this.layout = layout;
     }
 
     public String getCacheName() {
@@ -65,6 +67,17 @@ public CacheDecorator getCacheDecorator() {
     }
 
     public PersistentIndexedCacheParameters<K, V> withCacheDecorator(CacheDecorator cacheDecorator) {
-        return new PersistentIndexedCacheParameters<K, V>(cacheName, keySerializer, valueSerializer, cacheDecorator);
+        return new PersistentIndexedCacheParameters<K, V>(cacheName, keySerializer, valueSerializer, cacheDecorator, layout);
+    }
+
+    public IndexedCacheLayout getLayout() {
+        return layout;
+    }
+
+    /**
+     * Specifies the on-disk layout of the cache. Defaults to {@link IndexedCacheLayout#BTREE}.
+     */
+    public PersistentIndexedCacheParameters<K, V> withLayout(IndexedCacheLayout layout) {
+        return new PersistentIndexedCacheParameters<K, V>(cacheName, keySerializer, valueSerializer, cacheDecorator, layout);
     }
 }
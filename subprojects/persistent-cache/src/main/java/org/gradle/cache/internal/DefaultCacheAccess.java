@@ -25,13 +25,17 @@
 import org.gradle.cache.FileIntegrityViolationException;
 import org.gradle.cache.FileLock;
 import org.gradle.cache.FileLockManager;
+import org.gradle.cache.IndexedCacheLayout;
+import org.gradle.cache.IndexedCacheStore;
 import org.gradle.cache.InsufficientLockModeException;
 import org.gradle.cache.LockOptions;
 import org.gradle.cache.LockTimeoutException;
 import org.gradle.cache.MultiProcessSafePersistentIndexedCache;
 import org.gradle.cache.PersistentIndexedCacheParameters;
 import org.gradle.cache.internal.btree.BTreePersistentIndexedCache;
+import org.gradle.cache.internal.btree.BlockStoreType;
 import org.gradle.cache.internal.cacheops.CacheAccessOperationsStack;
+import org.gradle.cache.internal.logstructured.LogStructuredIndexedCache;
 import org.gradle.internal.Cast;
 import org.gradle.internal.Factories;
 import org.gradle.internal.Factory;
@@ -69,6 +73,7 @@ public class DefaultCacheAccess implements CacheCoordinator {
     private final File baseDir;
     private final CacheCleanupAction cleanupAction;
     private final ExecutorFactory executorFactory;
+    private final BlockStoreType blockStoreType;
     private final FileAccess fileAccess;
     private final Map<String, IndexedCacheEntry<?, ?>> caches = new HashMap<String, IndexedCacheEntry<?, ?>>();
     private final AbstractCrossProcessCacheAccess crossProcessCacheAccess;
@@ -87,10 +92,15 @@ public class DefaultCacheAccess implements CacheCoordinator {
     private int cacheClosedCount;
 
     public DefaultCacheAccess(String cacheDisplayName, File lockTarget, LockOptions lockOptions, File baseDir, FileLockManager lockManager, CacheInitializationAction initializationAction, CacheCleanupAction cleanupAction, ExecutorFactory executorFactory) {
+        this(cacheDisplayName, lockTarget, lockOptions, baseDir, lockManager, initializationAction, cleanupAction, executorFactory, BlockStoreType.FILE);
+    }
+
+    public DefaultCacheAccess(String cacheDisplayName, File lockTarget, LockOptions lockOptions, File baseDir, FileLockManager lockManager, CacheInitializationAction initializationAction, CacheCleanupAction cleanupAction, ExecutorFactory executorFactory, BlockStoreType blockStoreType) {
         this.cacheDisplayName = cacheDisplayName;
         this.baseDir = baseDir;
         this.cleanupAction = cleanupAction;
         this.executorFactory = executorFactory;
+        this.blockStoreType = blockStoreType;
         this.operations = new CacheAccessOperationsStack();
 
         Action<FileLock> onFileLockAcquireAction = this::afterLockAcquire;
@@ -282,7 +292,7 @@ public <K, V> MultiProcessSafePersistentIndexedCache<K, V> newCache(final Persis
             if (entry == null) {
                 File cacheFile = findCacheFile(parameters);
                 LOG.debug("Creating new cache for {}, path {}, access {}", parameters.getCacheName(), cacheFile, this);
-                Factory<BTreePersistentIndexedCache<K, V>> indexedCacheFactory = () -> doCreateCache(cacheFile, parameters.getKeySerializer(), parameters.getValueSerializer());
+                Factory<IndexedCacheStore<K, V>> indexedCacheFactory = () -> createStore(parameters, cacheFile);
 
                 MultiProcessSafePersistentIndexedCache<K, V> indexedCache = new DefaultMultiProcessSafePersistentIndexedCache<K, V>(indexedCacheFactory, fileAccess);
                 CacheDecorator decorator = parameters.getCacheDecorator();
@@ -307,7 +317,23 @@ public <K, V> MultiProcessSafePersistentIndexedCache<K, V> newCache(final Persis
     }
 
     private <K, V> File findCacheFile(PersistentIndexedCacheParameters<K, V> parameters) {
-        return new File(baseDir, parameters.getCacheName() + ".bin");
+        switch (parameters.getLayout()) {
+            case LOG_STRUCTURED:
+                return new File(baseDir, parameters.getCacheName() + ".log");
+            case BTREE:
+            default:
+                return new File(baseDir, parameters.getCacheName() + ".bin");
+        }
+    }
+
+    private <K, V> IndexedCacheStore<K, V> createStore(PersistentIndexedCacheParameters<K, V> parameters, File cacheFile) {
+        switch (parameters.getLayout()) {
+            case LOG_STRUCTURED:
+                return new LogStructuredIndexedCache<>(cacheFile, parameters.getKeySerializer(), parameters.getValueSerializer());
+            case BTREE:
+            default:
+                return doCreateCache(cacheFile, parameters.getKeySerializer(), parameters.getValueSerializer());
+        }
     }
 
     @Override
@@ -316,7 +342,7 @@ public <K, V> boolean cacheExists(PersistentIndexedCacheParameters<K, V> paramet
     }
 
     <K, V> BTreePersistentIndexedCache<K, V> doCreateCache(File cacheFile, Serializer<K> keySerializer, Serializer<V> valueSerializer) {
-        return new BTreePersistentIndexedCache<>(cacheFile, keySerializer, valueSerializer);
+        return new BTreePersistentIndexedCache<>(cacheFile, keySerializer, valueSerializer, blockStoreType);
     }
 
     /**
@@ -482,6 +508,7 @@ void assertCompatibleCacheParameters(PersistentIndexedCacheParameters<K, V> para
             checkCompatibleKeySerializer(faultMessages, parameters.getKeySerializer());
             checkCompatibleValueSerializer(faultMessages, parameters.getValueSerializer());
             checkCompatibleCacheDecorator(faultMessages, parameters.getCacheDecorator());
+            checkCompatibleLayout(faultMessages, parameters.getLayout());
 
             if (!faultMessages.isEmpty()) {
                 String lineSeparator = SystemProperties.getInstance().getLineSeparator();
@@ -524,6 +551,14 @@ private void checkCompatibleCacheDecorator(Collection<String> faultMessages, Cac
                         cacheDecorator, parameters.getCacheDecorator()));
             }
         }
+
+        private void checkCompatibleLayout(Collection<String> faultMessages, IndexedCacheLayout layout) {
+            if (layout != parameters.getLayout()) {
+                faultMessages.add(
+                    String.format(" * Requested cache layout (%s) doesn't match current cache layout (%s)",
+                        layout, parameters.getLayout()));
+            }
+        }
     }
 
     @VisibleForTesting
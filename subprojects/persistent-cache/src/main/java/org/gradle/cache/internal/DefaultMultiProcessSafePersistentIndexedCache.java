@@ -18,18 +18,18 @@
 import org.gradle.cache.FileAccess;
 import org.gradle.cache.FileIntegrityViolationException;
 import org.gradle.cache.FileLock;
+import org.gradle.cache.IndexedCacheStore;
 import org.gradle.cache.MultiProcessSafePersistentIndexedCache;
-import org.gradle.cache.internal.btree.BTreePersistentIndexedCache;
 import org.gradle.internal.Factory;
 
 import java.util.function.Function;
 
 public class DefaultMultiProcessSafePersistentIndexedCache<K, V> implements MultiProcessSafePersistentIndexedCache<K, V> {
     private final FileAccess fileAccess;
-    private final Factory<BTreePersistentIndexedCache<K, V>> factory;
-    private BTreePersistentIndexedCache<K, V> cache;
+    private final Factory<? extends IndexedCacheStore<K, V>> factory;
+    private IndexedCacheStore<K, V> cache;
 
-    public DefaultMultiProcessSafePersistentIndexedCache(Factory<BTreePersistentIndexedCache<K, V>> factory, FileAccess fileAccess) {
+    public DefaultMultiProcessSafePersistentIndexedCache(Factory<? extends IndexedCacheStore<K, V>> factory, FileAccess fileAccess) {
         this.factory = factory;
         this.fileAccess = fileAccess;
     }
@@ -41,7 +41,7 @@ public String toString() {
 
     @Override
     public V getIfPresent(final K key) {
-        final BTreePersistentIndexedCache<K, V> cache = getCache();
+        final IndexedCacheStore<K, V> cache = getCache();
         try {
             return fileAccess.readFile((Factory<V>) () -> cache.get(key));
         } catch (FileIntegrityViolationException e) {
@@ -61,7 +61,7 @@ public V get(K key, Function<? super K, ? extends V> producer) {
 
     @Override
     public void put(final K key, final V value) {
-        final BTreePersistentIndexedCache<K, V> cache = getCache();
+        final IndexedCacheStore<K, V> cache = getCache();
         // Use writeFile because the cache can internally recover from datafile
         // corruption, so we don't care at this level if it's corrupt
         fileAccess.writeFile(() -> cache.put(key, value));
@@ -69,7 +69,7 @@ public void put(final K key, final V value) {
 
     @Override
     public void remove(final K key) {
-        final BTreePersistentIndexedCache<K, V> cache = getCache();
+        final IndexedCacheStore<K, V> cache = getCache();
         // Use writeFile because the cache can internally recover from datafile
         // corruption, so we don't care at this level if it's corrupt
         fileAccess.writeFile(() -> cache.remove(key));
@@ -94,7 +94,7 @@ public void finishWork() {
     public void beforeLockRelease(FileLock.State currentCacheState) {
     }
 
-    private BTreePersistentIndexedCache<K, V> getCache() {
+    private IndexedCacheStore<K, V> getCache() {
         if (cache == null) {
             // Use writeFile because the cache can internally recover from datafile
             // corruption, so we don't care at this level if it's corrupt
@@ -23,6 +23,7 @@
 import org.gradle.cache.FileLockManager;
 import org.gradle.cache.LockOptions;
 import org.gradle.cache.PersistentCache;
+import org.gradle.cache.internal.btree.BlockStoreType;
 import org.gradle.internal.concurrent.ExecutorFactory;
 import org.gradle.internal.logging.progress.ProgressLoggerFactory;
 import org.gradle.util.internal.GFileUtils;
@@ -42,7 +43,11 @@ public class DefaultPersistentDirectoryCache extends DefaultPersistentDirectoryS
     private final Action<? super PersistentCache> initAction;
 
     public DefaultPersistentDirectoryCache(File dir, String displayName, Map<String, ?> properties, CacheBuilder.LockTarget lockTarget, LockOptions lockOptions, Action<? super PersistentCache> initAction, CleanupAction cleanupAction, FileLockManager lockManager, ExecutorFactory executorFactory, ProgressLoggerFactory progressLoggerFactory) {
-        super(dir, displayName, lockTarget, lockOptions, cleanupAction, lockManager, executorFactory, progressLoggerFactory);
+        this(dir, displayName, properties, lockTarget, lockOptions, initAction, cleanupAction, lockManager, executorFactory, progressLoggerFactory, BlockStoreType.FILE);
+    }
+
+    public DefaultPersistentDirectoryCache(File dir, String displayName, Map<String, ?> properties, CacheBuilder.LockTarget lockTarget, LockOptions lockOptions, Action<? super PersistentCache> initAction, CleanupAction cleanupAction, FileLockManager lockManager, ExecutorFactory executorFactory, ProgressLoggerFactory progressLoggerFactory, BlockStoreType blockStoreType) {
+        super(dir, displayName, lockTarget, lockOptions, cleanupAction, lockManager, executorFactory, progressLoggerFactory, blockStoreType);
         this.initAction = initAction;
         this.properties.putAll(properties);
     }
@@ -23,6 +23,7 @@
 import org.gradle.cache.LockOptions;
 import org.gradle.cache.PersistentIndexedCache;
 import org.gradle.cache.PersistentIndexedCacheParameters;
+import org.gradle.cache.internal.btree.BlockStoreType;
 import org.gradle.internal.Factory;
 import org.gradle.internal.concurrent.ExecutorFactory;
 import org.gradle.internal.logging.progress.ProgressLogger;
@@ -53,6 +54,7 @@ public class DefaultPersistentDirectoryStore implements ReferencablePersistentCa
     private final CleanupAction cleanupAction;
     private final FileLockManager lockManager;
     private final ExecutorFactory executorFactory;
+    private final BlockStoreType blockStoreType;
     private final String displayName;
     protected final File propertiesFile;
     private final File gcFile;
@@ -68,6 +70,20 @@ public DefaultPersistentDirectoryStore(
         FileLockManager fileLockManager,
         ExecutorFactory executorFactory,
         ProgressLoggerFactory progressLoggerFactory
+    ) {
+        this(dir, displayName, lockTarget, lockOptions, cleanupAction, fileLockManager, executorFactory, progressLoggerFactory, BlockStoreType.FILE);
+    }
+
+    public DefaultPersistentDirectoryStore(
+        File dir,
+        @Nullable String displayName,
+        CacheBuilder.LockTarget lockTarget,
+        LockOptions lockOptions,
+        @Nullable CleanupAction cleanupAction,
+        FileLockManager fileLockManager,
+        ExecutorFactory executorFactory,
+        ProgressLoggerFactory progressLoggerFactory,
+        BlockStoreType blockStoreType
     ) {
         this.dir = dir;
         this.lockTarget = lockTarget;
@@ -75,6 +91,7 @@ public DefaultPersistentDirectoryStore(
         this.cleanupAction = cleanupAction;
         this.lockManager = fileLockManager;
         this.executorFactory = executorFactory;
+        this.blockStoreType = blockStoreType;
         this.propertiesFile = new File(dir, "cache.properties");
         this.gcFile = new File(dir, "gc.properties");
         this.progressLoggerFactory = progressLoggerFactory;
@@ -95,7 +112,7 @@ public DefaultPersistentDirectoryStore open() {
     }
 
     private CacheCoordinator createCacheAccess() {
-        return new DefaultCacheAccess(displayName, getLockTarget(), lockOptions, dir, lockManager, getInitAction(), getCleanupAction(), executorFactory);
+        return new DefaultCacheAccess(displayName, getLockTarget(), lockOptions, dir, lockManager, getInitAction(), getCleanupAction(), executorFactory, blockStoreType);
     }
 
     private File getLockTarget() {
@@ -0,0 +1,54 @@
+/*
+ * Copyright 2021 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.cache.internal.btree;
+
+import org.gradle.internal.options.EnumInternalOption;
+import org.gradle.internal.options.InternalOption;
+
+import java.io.File;
+
+/**
+ * The kind of {@link BlockStore} used to access the file of a {@link BTreePersistentIndexedCache}.
+ * Both kinds use the same file format.
+ */
+public enum BlockStoreType {
+    /**
+     * Reads and writes blocks using seek and read/write calls on the file.
+     */
+    FILE {
+        @Override
+        BlockStore createStore(File cacheFile) {
+            return new FileBackedBlockStore(cacheFile);
+        }
+    },
+    /**
+     * Reads and writes blocks through memory mapped regions of the file.
+     */
+    MAPPED {
+        @Override
+        BlockStore createStore(File cacheFile) {
+            return new MappedFileBlockStore(cacheFile);
+        }
+    };
+
+    /**
+     * The internal option used to select the block store for all indexed caches, e.g. {@code -Dorg.gradle.cache.internal.btree.blockStore=mapped}.
+     */
+    public static final InternalOption<BlockStoreType> OPTION = new EnumInternalOption<>("org.gradle.cache.internal.btree.blockStore", BlockStoreType.class, FILE);
+
+    abstract BlockStore createStore(File cacheFile);
+}
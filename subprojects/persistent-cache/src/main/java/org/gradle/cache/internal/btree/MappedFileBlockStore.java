@@ -0,0 +1,474 @@
+/*
+ * Copyright 2021 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.cache.internal.btree;
+
+import org.gradle.api.UncheckedIOException;
+import org.gradle.internal.io.MappedByteBuffers;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.RandomAccessFile;
+import java.nio.Buffer;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * A {@link BlockStore} which reads and writes blocks through memory mapped regions of the cache file, rather than through seek and read/write calls.
+ *
+ * <p>Blocks use the same on-disk layout as {@link FileBackedBlockStore}, so a cache file can be opened with either store.
+ * The file is grown in chunks of {@value #GROWTH_CHUNK_SIZE} bytes as blocks are written, and is truncated back to the end of the last written block when the store is closed.
+ * Writes go to the OS page cache as soon as they are made, as with {@link FileBackedBlockStore}. If the process dies before the store is closed, the file may contain some
+ * zero padding at the end, which is never referenced by any block. It is found by walking the blocks and discarded when the store is next opened.</p>
+ */
+public class MappedFileBlockStore implements BlockStore {
+    static final int REGION_SIZE = 64 * 1024 * 1024;
+    static final int GROWTH_CHUNK_SIZE = 1024 * 1024;
+
+    private final File cacheFile;
+    private final int regionSize;
+    private final int growthChunkSize;
+    private final List<MappedByteBuffer> regions = new ArrayList<MappedByteBuffer>();
+    private RandomAccessFile file;
+    private FileChannel channel;
+    private boolean readOnly;
+    private long nextBlock;
+    private Factory factory;
+    private long currentFileSize;
+    private long capacity;
+
+    public MappedFileBlockStore(File cacheFile) {
+        this(cacheFile, REGION_SIZE, GROWTH_CHUNK_SIZE);
+    }
+
+    MappedFileBlockStore(File cacheFile, int regionSize, int growthChunkSize) {
+        this.cacheFile = cacheFile;
+        this.regionSize = regionSize;
+        this.growthChunkSize = growthChunkSize;
+    }
+
+    @Override
+    public String toString() {
+        return "cache '" + cacheFile + "'";
+    }
+
+    @Override
+    public void open(Runnable runnable, Factory factory) {
+        this.factory = factory;
+        try {
+            cacheFile.getParentFile().mkdirs();
+            file = openRandomAccessFile();
+            channel = file.getChannel();
+            currentFileSize = file.length();
+            capacity = currentFileSize;
+            // The file has been truncated to the end of the last block, unless it was not closed after growing by a chunk
+            if (!readOnly && currentFileSize > 0 && currentFileSize % growthChunkSize == 0) {
+                discardPadding();
+            }
+            nextBlock = currentFileSize;
+            if (currentFileSize == 0) {
+                runnable.run();
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private void discardPadding() throws IOException {
+        long endOfBlocks = findEndOfBlocks();
+        unmapRegions();
+        if (endOfBlocks < currentFileSize) {
+            file.setLength(endOfBlocks);
+            currentFileSize = endOfBlocks;
+            capacity = endOfBlocks;
+        }
+    }
+
+    /**
+     * Returns the end of the last block when it is only followed by zero padding, or the size of the file otherwise.
+     */
+    private long findEndOfBlocks() throws IOException {
+        long pos = 0;
+        while (pos + BlockImpl.HEADER_SIZE <= currentFileSize) {
+            DataInputStream input = new DataInputStream(new RegionInputStream(pos));
+            // No block has type 0, so this is where the padding starts
+            if (input.readByte() == 0) {
+                break;
+            }
+            int payloadSize = input.readInt();
+            long next = pos + BlockImpl.HEADER_SIZE + BlockImpl.TAIL_SIZE + payloadSize;
+            if (payloadSize < 0 || next > currentFileSize) {
+                return currentFileSize;
+            }
+            pos = next;
+        }
+        RegionInputStream remaining = new RegionInputStream(pos);
+        byte[] buffer = new byte[4096];
+        int count;
+        while ((count = remaining.read(buffer, 0, buffer.length)) > 0) {
+            for (int i = 0; i < count; i++) {
+                if (buffer[i] != 0) {
+                    return currentFileSize;
+                }
+            }
+        }
+        return pos;
+    }
+
+    private RandomAccessFile openRandomAccessFile() throws FileNotFoundException {
+        try {
+            readOnly = false;
+            return new RandomAccessFile(cacheFile, "rw");
+        } catch (FileNotFoundException e) {
+            readOnly = true;
+            return new RandomAccessFile(cacheFile, "r");
+        }
+    }
+
+    @Override
+    public void close() {
+        try {
+            unmapRegions();
+            if (!readOnly && file.length() != currentFileSize) {
+                discardUnusedSpace();
+            }
+            file.close();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private void discardUnusedSpace() {
+        try {
+            file.setLength(currentFileSize);
+        } catch (IOException e) {
+            // Can happen when the regions could not be unmapped. The padding is skipped when the store is next opened.
+        }
+    }
+
+    @Override
+    public void clear() {
+        try {
+            unmapRegions();
+            file.setLength(0);
+            currentFileSize = 0;
+            capacity = 0;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        nextBlock = 0;
+    }
+
+    @Override
+    public void attach(BlockPayload block) {
+        if (block.getBlock() == null) {
+            block.setBlock(new BlockImpl(block));
+        }
+    }
+
+    @Override
+    public void remove(BlockPayload block) {
+        BlockImpl blockImpl = (BlockImpl) block.getBlock();
+        blockImpl.detach();
+    }
+
+    @Override
+    public void flush() {
+    }
+
+    @Override
+    public <T extends BlockPayload> T readFirst(Class<T> payloadType) {
+        return read(BlockPointer.pos(0), payloadType);
+    }
+
+    @Override
+    public <T extends BlockPayload> T read(BlockPointer pos, Class<T> payloadType) {
+        assert !pos.isNull();
+        try {
+            T payload = payloadType.cast(factory.create(payloadType));
+            BlockImpl block = new BlockImpl(payload, pos);
+            block.read();
+            return payload;
+        } catch (CorruptedCacheException e) {
+            throw e;
+        } catch (Exception e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    @Override
+    public void write(BlockPayload block) {
+        BlockImpl blockImpl = (BlockImpl) block.getBlock();
+        try {
+            blockImpl.write();
+        } catch (CorruptedCacheException e) {
+            throw e;
+        } catch (Exception e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private long alloc(long length) {
+        long pos = nextBlock;
+        nextBlock += length;
+        return pos;
+    }
+
+    /**
+     * Makes sure the file is at least the given size, growing it by whole chunks.
+     */
+    private void ensureCapacity(long size) throws IOException {
+        if (size <= capacity) {
+            return;
+        }
+        long newCapacity = (size + growthChunkSize - 1) / growthChunkSize * growthChunkSize;
+        // The last region may have been mapped with the old file size, so discard it
+        int lastRegion = (int) (capacity / regionSize);
+        if (lastRegion < regions.size()) {
+            MappedByteBuffers.unmap(regions.set(lastRegion, null));
+        }
+        file.setLength(newCapacity);
+        capacity = newCapacity;
+    }
+
+    private MappedByteBuffer region(int index) throws IOException {
+        while (regions.size() <= index) {
+            regions.add(null);
+        }
+        MappedByteBuffer region = regions.get(index);
+        if (region == null) {
+            long start = (long) index * regionSize;
+            long size = Math.min(regionSize, capacity - start);
+            region = channel.map(readOnly ? FileChannel.MapMode.READ_ONLY : FileChannel.MapMode.READ_WRITE, start, size);
+            regions.set(index, region);
+        }
+        return region;
+    }
+
+    private void unmapRegions() {
+        for (MappedByteBuffer region : regions) {
+            MappedByteBuffers.unmap(region);
+        }
+        regions.clear();
+    }
+
+    /**
+     * Reads bytes from the mapped regions, starting at some position of the file.
+     */
+    private class RegionInputStream extends InputStream {
+        private long pos;
+        private long count;
+
+        RegionInputStream(long pos) {
+            this.pos = pos;
+        }
+
+        @Override
+        public int read() throws IOException {
+            if (pos >= currentFileSize) {
+                return -1;
+            }
+            int value = region((int) (pos / regionSize)).get((int) (pos % regionSize)) & 0xFF;
+            pos++;
+            count++;
+            return value;
+        }
+
+        @Override
+        public int read(byte[] bytes, int off, int len) throws IOException {
+            if (len == 0) {
+                return 0;
+            }
+            if (pos >= currentFileSize) {
+                return -1;
+            }
+            int offsetInRegion = (int) (pos % regionSize);
+            int available = (int) Math.min(Math.min(len, regionSize - offsetInRegion), currentFileSize - pos);
+            ByteBuffer region = region((int) (pos / regionSize)).duplicate();
+            ((Buffer) region).position(offsetInRegion);
+            region.get(bytes, off, available);
+            pos += available;
+            count += available;
+            return available;
+        }
+    }
+
+    /**
+     * Writes bytes to the mapped regions, starting at some position of the file and growing the file as required.
+     */
+    private class RegionOutputStream extends OutputStream {
+        private long pos;
+        private long count;
+
+        RegionOutputStream(long pos) {
+            this.pos = pos;
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            ensureCapacity(pos + 1);
+            region((int) (pos / regionSize)).put((int) (pos % regionSize), (byte) b);
+            pos++;
+            count++;
+        }
+
+        @Override
+        public void write(byte[] bytes, int off, int len) throws IOException {
+            ensureCapacity(pos + len);
+            while (len > 0) {
+                int offsetInRegion = (int) (pos % regionSize);
+                int toWrite = Math.min(len, regionSize - offsetInRegion);
+                ByteBuffer region = region((int) (pos / regionSize)).duplicate();
+                ((Buffer) region).position(offsetInRegion);
+                region.put(bytes, off, toWrite);
+                pos += toWrite;
+                count += toWrite;
+                off += toWrite;
+                len -= toWrite;
+            }
+        }
+    }
+
+    private final class BlockImpl extends Block {
+        private static final int HEADER_SIZE = 1 + INT_SIZE; // type, payload size
+        private static final int TAIL_SIZE = INT_SIZE;
+
+        private BlockPointer pos;
+        private int payloadSize;
+
+        private BlockImpl(BlockPayload payload, BlockPointer pos) {
+            this(payload);
+            setPos(pos);
+        }
+
+        public BlockImpl(BlockPayload payload) {
+            super(payload);
+            pos = null;
+            payloadSize = -1;
+        }
+
+        @Override
+        public boolean hasPos() {
+            return pos != null;
+        }
+
+        @Override
+        public BlockPointer getPos() {
+            if (pos == null) {
+                pos = BlockPointer.pos(alloc(getSize()));
+            }
+            return pos;
+        }
+
+        @Override
+        public void setPos(BlockPointer pos) {
+            assert this.pos == null && !pos.isNull();
+            this.pos = pos;
+        }
+
+        @Override
+        public int getSize() {
+            if (payloadSize < 0) {
+                payloadSize = getPayload().getSize();
+            }
+            return payloadSize + HEADER_SIZE + TAIL_SIZE;
+        }
+
+        @Override
+        public void setSize(int size) {
+            int newPayloadSize = size - HEADER_SIZE - TAIL_SIZE;
+            assert newPayloadSize >= payloadSize;
+            payloadSize = newPayloadSize;
+        }
+
+        public void write() throws Exception {
+            long pos = getPos().getPos();
+            long finalSize = pos + HEADER_SIZE + TAIL_SIZE + payloadSize;
+            ensureCapacity(finalSize);
+
+            RegionOutputStream output = new RegionOutputStream(pos);
+            DataOutputStream outputStream = new DataOutputStream(output);
+
+            BlockPayload payload = getPayload();
+
+            // Write header
+            outputStream.writeByte(payload.getType());
+            outputStream.writeInt(payloadSize);
+
+            // Write body
+            payload.write(outputStream);
+
+            // Write count
+            long bytesWritten = output.count;
+            if (bytesWritten > Integer.MAX_VALUE) {
+                throw new IllegalArgumentException("Block payload exceeds maximum size");
+            }
+            outputStream.writeInt((int) bytesWritten);
+            outputStream.flush();
+
+            if (currentFileSize < finalSize) {
+                currentFileSize = finalSize;
+            }
+        }
+
+        public void read() throws Exception {
+            long pos = getPos().getPos();
+            assert pos >= 0;
+            if (pos + HEADER_SIZE >= currentFileSize) {
+                throw blockCorruptedException();
+            }
+
+            RegionInputStream input = new RegionInputStream(pos);
+            DataInputStream inputStream = new DataInputStream(input);
+
+            BlockPayload payload = getPayload();
+
+            // Read header
+            byte type = inputStream.readByte();
+            if (type != payload.getType()) {
+                throw blockCorruptedException();
+            }
+
+            // Read body
+            payloadSize = inputStream.readInt();
+            if (pos + HEADER_SIZE + TAIL_SIZE + payloadSize > currentFileSize) {
+                throw blockCorruptedException();
+            }
+            payload.read(inputStream);
+
+            // Read and verify count
+            long actualCount = input.count;
+            long count = inputStream.readInt();
+            if (actualCount != count) {
+                throw blockCorruptedException();
+            }
+        }
+
+        @Override
+        public RuntimeException blockCorruptedException() {
+            return new CorruptedCacheException(String.format("Corrupted %s found in %s.", this,
+                    MappedFileBlockStore.this));
+        }
+    }
+}
@@ -0,0 +1,304 @@
+/*
+ * Copyright 2021 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.cache.internal.logstructured;
+
+import org.gradle.api.UncheckedIOException;
+import org.gradle.cache.IndexedCacheStore;
+import org.gradle.internal.hash.Hashing;
+import org.gradle.internal.hash.PrimitiveHasher;
+import org.gradle.internal.serialize.Serializer;
+import org.gradle.internal.serialize.kryo.KryoBackedDecoder;
+import org.gradle.internal.serialize.kryo.KryoBackedEncoder;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.annotation.Nullable;
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.zip.CRC32;
+import java.util.zip.CheckedInputStream;
+import java.util.zip.CheckedOutputStream;
+
+/**
+ * An indexed cache which appends every update to a {@link ValueLog}, and keeps an index from the hash of each key to its latest record in memory.
+ *
+ * <p>When the cache is closed, the index is written to a separate file along with the length of the log it covers, so that the next time the cache
+ * is opened only the records appended since need to be read. If the index file is missing or does not match the log, the index is rebuilt from the whole log.</p>
+ *
+ * <p>The log only grows. Space used by updated and removed entries is reclaimed by {@link LogStructuredIndexedCacheCompaction}.</p>
+ */
+public class LogStructuredIndexedCache<K, V> implements IndexedCacheStore<K, V> {
+    private static final Logger LOGGER = LoggerFactory.getLogger(LogStructuredIndexedCache.class);
+    static final String LOG_FILE_EXTENSION = ".log";
+    private static final String INDEX_FILE_EXTENSION = ".idx";
+    private static final long INDEX_MAGIC = 0x4752444C49445831L;
+
+    private final File logFile;
+    private final File indexFile;
+    private final Serializer<K> keySerializer;
+    private final Serializer<V> valueSerializer;
+    private final ByteArrayOutputStream keyBytes = new ByteArrayOutputStream();
+    private final KryoBackedEncoder keyEncoder = new KryoBackedEncoder(keyBytes);
+    private final ByteArrayOutputStream valueBytes = new ByteArrayOutputStream();
+    private final KryoBackedEncoder valueEncoder = new KryoBackedEncoder(valueBytes);
+    private final LongToLongHashIndex index = new LongToLongHashIndex();
+    private ValueLog log;
+    private boolean indexChanged;
+
+    public LogStructuredIndexedCache(File logFile, Serializer<K> keySerializer, Serializer<V> valueSerializer) {
+        this.logFile = logFile;
+        this.indexFile = indexFileFor(logFile);
+        this.keySerializer = keySerializer;
+        this.valueSerializer = valueSerializer;
+        try {
+            open();
+        } catch (Exception e) {
+            throw new UncheckedIOException(String.format("Could not open %s.", this), e);
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "cache " + logFile.getName() + " (" + logFile + ")";
+    }
+
+    static File indexFileFor(File logFile) {
+        String name = logFile.getName();
+        if (name.endsWith(LOG_FILE_EXTENSION)) {
+            name = name.substring(0, name.length() - LOG_FILE_EXTENSION.length());
+        }
+        return new File(logFile.getParentFile(), name + INDEX_FILE_EXTENSION);
+    }
+
+    private void open() throws IOException {
+        LOGGER.debug("Opening {}", this);
+        log = ValueLog.open(logFile);
+        index.clear();
+        indexChanged = false;
+        long indexedLength = log.isCreated() ? ValueLog.HEADER_SIZE : readIndex();
+        long end = log.scan(indexedLength, new ValueLog.RecordVisitor() {
+            @Override
+            public void visitRecord(long pos, int recordSize, byte[] key, @Nullable byte[] value) {
+                if (value == null) {
+                    index.remove(hash(key));
+                } else {
+                    index.put(hash(key), pos);
+                }
+            }
+        });
+        if (end != indexedLength) {
+            indexChanged = true;
+        }
+    }
+
+    @Override
+    @Nullable
+    public V get(K key) {
+        try {
+            byte[] serializedKey = serialize(keyEncoder, keyBytes, keySerializer, key);
+            long pos = index.get(hash(serializedKey));
+            if (pos == LongToLongHashIndex.ABSENT) {
+                return null;
+            }
+            ValueLog.Record record = log.read(pos);
+            if (record.isRemoved() || !record.hasKey(serializedKey)) {
+                // A different key with the same hash
+                return null;
+            }
+            KryoBackedDecoder decoder = new KryoBackedDecoder(new ByteArrayInputStream(record.getBytes(), record.getValueOffset(), record.getValueLength()));
+            return valueSerializer.read(decoder);
+        } catch (CorruptedCacheException e) {
+            rebuild();
+            return null;
+        } catch (Exception e) {
+            throw new UncheckedIOException(String.format("Could not read entry '%s' from %s.", key, this), e);
+        }
+    }
+
+    @Override
+    public void put(K key, V value) {
+        try {
+            byte[] serializedKey = serialize(keyEncoder, keyBytes, keySerializer, key);
+            byte[] serializedValue = serialize(valueEncoder, valueBytes, valueSerializer, value);
+            long pos = log.append(serializedKey, serializedValue);
+            index.put(hash(serializedKey), pos);
+            indexChanged = true;
+        } catch (Exception e) {
+            throw new UncheckedIOException(String.format("Could not add entry '%s' to %s.", key, this), e);
+        }
+    }
+
+    @Override
+    public void remove(K key) {
+        try {
+            byte[] serializedKey = serialize(keyEncoder, keyBytes, keySerializer, key);
+            if (index.remove(hash(serializedKey)) != LongToLongHashIndex.ABSENT) {
+                log.append(serializedKey, null);
+                indexChanged = true;
+            }
+        } catch (Exception e) {
+            throw new UncheckedIOException(String.format("Could not remove entry '%s' from %s.", key, this), e);
+        }
+    }
+
+    @Override
+    public void reset() {
+        close();
+        try {
+            open();
+        } catch (Exception e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    @Override
+    public void close() {
+        LOGGER.debug("Closing {}", this);
+        try {
+            try {
+                log.flush();
+                if (indexChanged) {
+                    writeIndex();
+                }
+            } finally {
+                log.close();
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        } finally {
+            log = null;
+        }
+    }
+
+    @Override
+    public boolean isOpen() {
+        return log != null;
+    }
+
+    private void rebuild() {
+        LOGGER.warn("{} is corrupt. Discarding.", this);
+        try {
+            log.close();
+            Files.deleteIfExists(indexFile.toPath());
+            Files.deleteIfExists(logFile.toPath());
+            open();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Loads the index file, returning the length of the log covered by the index.
+     */
+    private long readIndex() {
+        if (!indexFile.isFile()) {
+            return ValueLog.HEADER_SIZE;
+        }
+        try {
+            CheckedInputStream checkedInputStream = new CheckedInputStream(new BufferedInputStream(new FileInputStream(indexFile)), new CRC32());
+            DataInputStream input = new DataInputStream(checkedInputStream);
+            try {
+                if (input.readLong() != INDEX_MAGIC || input.readLong() != log.getGeneration()) {
+                    return ValueLog.HEADER_SIZE;
+                }
+                long indexedLength = input.readLong();
+                int size = input.readInt();
+                if (indexedLength > log.getLength()) {
+                    return ValueLog.HEADER_SIZE;
+                }
+                for (int i = 0; i < size; i++) {
+                    index.put(input.readLong(), input.readLong());
+                }
+                long expectedChecksum = checkedInputStream.getChecksum().getValue();
+                if (input.readLong() != expectedChecksum) {
+                    index.clear();
+                    return ValueLog.HEADER_SIZE;
+                }
+                return indexedLength;
+            } finally {
+                input.close();
+            }
+        } catch (IOException e) {
+            LOGGER.debug("Could not read index file {}, rebuilding the index from {}.", indexFile, logFile, e);
+            index.clear();
+            return ValueLog.HEADER_SIZE;
+        }
+    }
+
+    /**
+     * Writes the index file, replacing the existing file only once the new file is complete.
+     */
+    private void writeIndex() throws IOException {
+        File tempFile = new File(indexFile.getParentFile(), indexFile.getName() + ".tmp");
+        CheckedOutputStream checkedOutputStream = new CheckedOutputStream(new BufferedOutputStream(new FileOutputStream(tempFile)), new CRC32());
+        final DataOutputStream output = new DataOutputStream(checkedOutputStream);
+        try {
+            output.writeLong(INDEX_MAGIC);
+            output.writeLong(log.getGeneration());
+            output.writeLong(log.getLength());
+            output.writeInt(index.size());
+            final IOException[] failure = new IOException[1];
+            index.forEach(new LongToLongHashIndex.EntryVisitor() {
+                @Override
+                public void visit(long key, long value) {
+                    try {
+                        output.writeLong(key);
+                        output.writeLong(value);
+                    } catch (IOException e) {
+                        failure[0] = e;
+                    }
+                }
+            });
+            if (failure[0] != null) {
+                throw failure[0];
+            }
+            output.writeLong(checkedOutputStream.getChecksum().getValue());
+        } finally {
+            output.close();
+        }
+        Files.move(tempFile.toPath(), indexFile.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        indexChanged = false;
+    }
+
+    private static <T> byte[] serialize(KryoBackedEncoder encoder, ByteArrayOutputStream bytes, Serializer<T> serializer, T value) throws Exception {
+        bytes.reset();
+        serializer.write(encoder, value);
+        encoder.flush();
+        return bytes.toByteArray();
+    }
+
+    static long hash(byte[] key) {
+        PrimitiveHasher hasher = Hashing.murmur3().newPrimitiveHasher();
+        hasher.putBytes(key);
+        byte[] hash = hasher.hash().toByteArray();
+        long result = 0;
+        for (int i = 0; i < 8; i++) {
+            result = (result << 8) | (hash[i] & 0xFF);
+        }
+        return result;
+    }
+}
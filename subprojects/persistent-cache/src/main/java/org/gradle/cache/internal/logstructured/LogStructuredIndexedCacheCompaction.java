@@ -0,0 +1,164 @@
+/*
+ * Copyright 2021 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.cache.internal.logstructured;
+
+import com.google.common.annotations.VisibleForTesting;
+import com.google.common.collect.ImmutableSet;
+import org.gradle.cache.CleanableStore;
+import org.gradle.cache.CleanupAction;
+import org.gradle.cache.CleanupProgressMonitor;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.annotation.Nullable;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.Collection;
+import java.util.Set;
+
+/**
+ * Reclaims the space used by updated and removed entries of the given {@link LogStructuredIndexedCache}s of a cache directory,
+ * by rewriting each log that contains enough garbage with only its live records. Only the logs of the named caches are considered,
+ * and a file that does not contain a log is left untouched.
+ *
+ * <p>Like other cleanup actions, this runs while the containing cache is closed and exclusively locked.</p>
+ */
+public class LogStructuredIndexedCacheCompaction implements CleanupAction {
+    private static final Logger LOGGER = LoggerFactory.getLogger(LogStructuredIndexedCacheCompaction.class);
+    private static final long DEFAULT_MIN_LOG_SIZE = 1024 * 1024;
+    private static final double DEFAULT_MIN_GARBAGE_RATIO = 0.5;
+
+    private final Set<String> cacheNames;
+    private final long minLogSize;
+    private final double minGarbageRatio;
+
+    /**
+     * @param cacheNames the names of the caches of the directory that were created with {@link org.gradle.cache.IndexedCacheLayout#LOG_STRUCTURED}.
+     */
+    public LogStructuredIndexedCacheCompaction(Collection<String> cacheNames) {
+        this(cacheNames, DEFAULT_MIN_LOG_SIZE, DEFAULT_MIN_GARBAGE_RATIO);
+    }
+
+    /**
+     * @param cacheNames the names of the caches of the directory that were created with {@link org.gradle.cache.IndexedCacheLayout#LOG_STRUCTURED}.
+     * @param minLogSize logs smaller than this are not compacted.
+     * @param minGarbageRatio the proportion of a log that has to be taken by garbage for the log to be compacted.
+     */
+    public LogStructuredIndexedCacheCompaction(Collection<String> cacheNames, long minLogSize, double minGarbageRatio) {
+        this.cacheNames = ImmutableSet.copyOf(cacheNames);
+        this.minLogSize = minLogSize;
+        this.minGarbageRatio = minGarbageRatio;
+    }
+
+    @Override
+    public void clean(CleanableStore cleanableStore, CleanupProgressMonitor progressMonitor) {
+        Collection<File> reservedFiles = cleanableStore.getReservedCacheFiles();
+        for (String cacheName : cacheNames) {
+            File file = new File(cleanableStore.getBaseDir(), cacheName + LogStructuredIndexedCache.LOG_FILE_EXTENSION);
+            if (!file.isFile() || reservedFiles.contains(file)) {
+                continue;
+            }
+            try {
+                if (compact(file)) {
+                    progressMonitor.incrementDeleted();
+                } else {
+                    progressMonitor.incrementSkipped();
+                }
+            } catch (Exception e) {
+                LOGGER.debug("Could not compact {}.", file, e);
+                progressMonitor.incrementSkipped();
+            }
+        }
+    }
+
+    /**
+     * Compacts the given log if it contains enough garbage, returning whether it was compacted. The log is only read until it has
+     * been validated, and is then replaced by a compacted copy. A file that does not contain a log is not compacted.
+     */
+    @VisibleForTesting
+    boolean compact(File logFile) throws IOException {
+        final LongToLongHashIndex livePositions = new LongToLongHashIndex();
+        final LongToLongHashIndex liveSizes = new LongToLongHashIndex();
+        final long[] liveBytes = new long[1];
+        long end;
+        ValueLog log = ValueLog.openExisting(logFile);
+        if (log == null) {
+            LOGGER.debug("Not compacting {}, it does not contain a log.", logFile);
+            return false;
+        }
+        try {
+            end = log.scan(ValueLog.HEADER_SIZE, new ValueLog.RecordVisitor() {
+                @Override
+                public void visitRecord(long pos, int recordSize, byte[] key, @Nullable byte[] value) {
+                    long hash = LogStructuredIndexedCache.hash(key);
+                    long previousSize = liveSizes.remove(hash);
+                    if (previousSize != LongToLongHashIndex.ABSENT) {
+                        liveBytes[0] -= previousSize;
+                    }
+                    if (value == null) {
+                        livePositions.remove(hash);
+                    } else {
+                        livePositions.put(hash, pos);
+                        liveSizes.put(hash, recordSize);
+                        liveBytes[0] += recordSize;
+                    }
+                }
+            });
+        } finally {
+            log.close();
+        }
+
+        long recordBytes = end - ValueLog.HEADER_SIZE;
+        long garbage = recordBytes - liveBytes[0];
+        if (end < minLogSize || garbage < recordBytes * minGarbageRatio) {
+            LOGGER.debug("Not compacting {}, {} of {} bytes are garbage.", logFile, garbage, recordBytes);
+            return false;
+        }
+
+        LOGGER.debug("Compacting {}, {} of {} bytes are garbage.", logFile, garbage, recordBytes);
+        File compactedFile = new File(logFile.getParentFile(), logFile.getName() + ".compact");
+        Files.deleteIfExists(compactedFile.toPath());
+        final ValueLog compacted = ValueLog.open(compactedFile);
+        try {
+            log = ValueLog.openExisting(logFile);
+            if (log == null) {
+                throw new IOException(String.format("Log %s changed while it was being compacted.", logFile));
+            }
+            try {
+                log.scan(ValueLog.HEADER_SIZE, new ValueLog.RecordVisitor() {
+                    @Override
+                    public void visitRecord(long pos, int recordSize, byte[] key, @Nullable byte[] value) throws IOException {
+                        if (value != null && livePositions.get(LogStructuredIndexedCache.hash(key)) == pos) {
+                            compacted.append(key, value);
+                        }
+                    }
+                });
+            } finally {
+                log.close();
+            }
+        } finally {
+            compacted.close();
+        }
+
+        // The compacted log has a new generation, so an existing index file would be ignored. Delete it anyway, before replacing the log
+        Files.deleteIfExists(LogStructuredIndexedCache.indexFileFor(logFile).toPath());
+        Files.move(compactedFile.toPath(), logFile.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        return true;
+    }
+}
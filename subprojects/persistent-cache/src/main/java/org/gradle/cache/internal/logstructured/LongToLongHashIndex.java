@@ -0,0 +1,154 @@
+/*
+ * Copyright 2021 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.cache.internal.logstructured;
+
+import java.util.Arrays;
+
+/**
+ * A compact map from the hash of a key to the position of its latest record in the log, using open addressing with linear probing.
+ * Uses two {@code long} arrays rather than boxed entries, so an index of a million entries takes about 32 MB.
+ */
+class LongToLongHashIndex {
+    static final long ABSENT = -1;
+    private static final int MIN_CAPACITY = 16;
+
+    private long[] keys;
+    private long[] values;
+    private int size;
+    private int mask;
+
+    LongToLongHashIndex() {
+        allocate(MIN_CAPACITY);
+    }
+
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Returns the value associated with the given key, or {@link #ABSENT}.
+     */
+    public long get(long key) {
+        int slot = slotFor(key);
+        while (values[slot] != ABSENT) {
+            if (keys[slot] == key) {
+                return values[slot];
+            }
+            slot = (slot + 1) & mask;
+        }
+        return ABSENT;
+    }
+
+    /**
+     * Associates the given non-negative value with the given key, returning the previous value or {@link #ABSENT}.
+     */
+    public long put(long key, long value) {
+        assert value >= 0;
+        int slot = slotFor(key);
+        while (values[slot] != ABSENT) {
+            if (keys[slot] == key) {
+                long previous = values[slot];
+                values[slot] = value;
+                return previous;
+            }
+            slot = (slot + 1) & mask;
+        }
+        keys[slot] = key;
+        values[slot] = value;
+        size++;
+        if (size * 4 > keys.length * 3) {
+            rehash(keys.length * 2);
+        }
+        return ABSENT;
+    }
+
+    /**
+     * Removes the given key, returning its value or {@link #ABSENT}.
+     */
+    public long remove(long key) {
+        int slot = slotFor(key);
+        while (values[slot] != ABSENT) {
+            if (keys[slot] == key) {
+                long previous = values[slot];
+                shiftBack(slot);
+                size--;
+                return previous;
+            }
+            slot = (slot + 1) & mask;
+        }
+        return ABSENT;
+    }
+
+    public void clear() {
+        allocate(MIN_CAPACITY);
+    }
+
+    public void forEach(EntryVisitor visitor) {
+        for (int i = 0; i < keys.length; i++) {
+            if (values[i] != ABSENT) {
+                visitor.visit(keys[i], values[i]);
+            }
+        }
+    }
+
+    /**
+     * Fills the slot of a removed entry by moving back entries of the same probe sequence, so no tombstones are needed.
+     */
+    private void shiftBack(int slot) {
+        int free = slot;
+        int current = (slot + 1) & mask;
+        while (values[current] != ABSENT) {
+            int home = slotFor(keys[current]);
+            // Move the entry if its home slot is not within (free, current]
+            if (((current - home) & mask) >= ((current - free) & mask)) {
+                keys[free] = keys[current];
+                values[free] = values[current];
+                free = current;
+            }
+            current = (current + 1) & mask;
+        }
+        values[free] = ABSENT;
+    }
+
+    private int slotFor(long key) {
+        // The keys are already well distributed hashes
+        return (int) (key ^ (key >>> 32)) & mask;
+    }
+
+    private void rehash(int capacity) {
+        long[] oldKeys = keys;
+        long[] oldValues = values;
+        allocate(capacity);
+        for (int i = 0; i < oldKeys.length; i++) {
+            if (oldValues[i] != ABSENT) {
+                put(oldKeys[i], oldValues[i]);
+            }
+        }
+    }
+
+    private void allocate(int capacity) {
+        keys = new long[capacity];
+        values = new long[capacity];
+        Arrays.fill(values, ABSENT);
+        mask = capacity - 1;
+        size = 0;
+    }
+
+    interface EntryVisitor {
+        void visit(long key, long value);
+    }
+}
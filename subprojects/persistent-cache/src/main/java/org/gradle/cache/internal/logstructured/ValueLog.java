@@ -0,0 +1,387 @@
+/*
+ * Copyright 2021 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.cache.internal.logstructured;
+
+import javax.annotation.Nullable;
+import java.io.BufferedInputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.security.SecureRandom;
+import java.util.zip.CRC32;
+
+/**
+ * An append-only file of key/value records.
+ *
+ * <p>The file starts with a header containing a random generation number, which changes every time the file is rewritten.
+ * Each record contains the length of the key, the length of the value or -1 for a removed key, the key and value bytes, and a CRC32 checksum
+ * of all of these. Records are never modified once written. A record that was only partly written, for example because the process was killed,
+ * is detected by its checksum and discarded by {@link #scan(long, RecordVisitor)}.</p>
+ *
+ * <p>Appended records are buffered in memory and written to the file in batches.</p>
+ */
+class ValueLog implements Closeable {
+    private static final long MAGIC = 0x4752444C4F473031L;
+    private static final int VERSION = 1;
+    static final int HEADER_SIZE = 8 + 4 + 8;
+    static final int RECORD_OVERHEAD = 4 + 4 + 4;
+    private static final int REMOVED = -1;
+    private static final int WRITE_BUFFER_SIZE = 64 * 1024;
+
+    private final File file;
+    private final RandomAccessFile randomAccessFile;
+    private final FileChannel channel;
+    private final long generation;
+    private final boolean created;
+    private final boolean readOnly;
+    private final CRC32 checksum = new CRC32();
+    private final ByteBuffer recordHeader = ByteBuffer.allocate(8);
+    private byte[] writeBuffer = new byte[WRITE_BUFFER_SIZE];
+    private int buffered;
+    private long flushedLength;
+
+    private ValueLog(File file, RandomAccessFile randomAccessFile, long generation, boolean created, boolean readOnly) throws IOException {
+        this.file = file;
+        this.randomAccessFile = randomAccessFile;
+        this.channel = randomAccessFile.getChannel();
+        this.generation = generation;
+        this.created = created;
+        this.readOnly = readOnly;
+        this.flushedLength = channel.size();
+    }
+
+    /**
+     * Opens the given log file, creating a new empty log if the file does not exist or does not contain a log.
+     */
+    static ValueLog open(File file) throws IOException {
+        file.getParentFile().mkdirs();
+        RandomAccessFile randomAccessFile = new RandomAccessFile(file, "rw");
+        try {
+            Long generation = readGeneration(randomAccessFile);
+            if (generation != null) {
+                return new ValueLog(file, randomAccessFile, generation, false, false);
+            }
+            return new ValueLog(file, randomAccessFile, writeHeader(randomAccessFile), true, false);
+        } catch (IOException e) {
+            randomAccessFile.close();
+            throw e;
+        }
+    }
+
+    /**
+     * Opens the given log file for reading, returning null if the file does not contain a log. The file is never modified,
+     * and {@link #scan(long, RecordVisitor)} leaves a partially written record at the end of the file in place.
+     */
+    @Nullable
+    static ValueLog openExisting(File file) throws IOException {
+        RandomAccessFile randomAccessFile = new RandomAccessFile(file, "r");
+        try {
+            Long generation = readGeneration(randomAccessFile);
+            if (generation == null) {
+                randomAccessFile.close();
+                return null;
+            }
+            return new ValueLog(file, randomAccessFile, generation, false, true);
+        } catch (IOException e) {
+            randomAccessFile.close();
+            throw e;
+        }
+    }
+
+    /**
+     * Returns the generation of the log in the given file, or null if the file does not start with a valid header.
+     */
+    @Nullable
+    private static Long readGeneration(RandomAccessFile randomAccessFile) throws IOException {
+        if (randomAccessFile.length() < HEADER_SIZE) {
+            return null;
+        }
+        randomAccessFile.seek(0);
+        long magic = randomAccessFile.readLong();
+        int version = randomAccessFile.readInt();
+        long generation = randomAccessFile.readLong();
+        if (magic != MAGIC || version != VERSION) {
+            return null;
+        }
+        return generation;
+    }
+
+    /**
+     * Discards any content of the given file and writes the header of an empty log, returning its generation.
+     */
+    static long writeHeader(RandomAccessFile randomAccessFile) throws IOException {
+        long generation = new SecureRandom().nextLong();
+        randomAccessFile.setLength(0);
+        randomAccessFile.seek(0);
+        randomAccessFile.writeLong(MAGIC);
+        randomAccessFile.writeInt(VERSION);
+        randomAccessFile.writeLong(generation);
+        return generation;
+    }
+
+    @Override
+    public String toString() {
+        return "log '" + file + "'";
+    }
+
+    /**
+     * Returns true when this log was created empty when opened.
+     */
+    boolean isCreated() {
+        return created;
+    }
+
+    long getGeneration() {
+        return generation;
+    }
+
+    /**
+     * Returns the length of the log, including buffered records.
+     */
+    long getLength() {
+        return flushedLength + buffered;
+    }
+
+    /**
+     * Appends a record, returning its position.
+     *
+     * @param value the value, or null to record that the key was removed.
+     */
+    long append(byte[] key, @Nullable byte[] value) throws IOException {
+        int recordSize = recordSize(key.length, value == null ? 0 : value.length);
+        if (buffered + recordSize > writeBuffer.length) {
+            flush();
+            if (recordSize > writeBuffer.length) {
+                writeBuffer = new byte[recordSize];
+            }
+        }
+        long pos = getLength();
+        int start = buffered;
+        putInt(key.length);
+        putInt(value == null ? REMOVED : value.length);
+        putBytes(key);
+        if (value != null) {
+            putBytes(value);
+        }
+        checksum.reset();
+        checksum.update(writeBuffer, start, buffered - start);
+        putInt((int) checksum.getValue());
+        return pos;
+    }
+
+    /**
+     * Reads the record at the given position.
+     */
+    Record read(long pos) throws IOException {
+        if (pos >= flushedLength) {
+            flush();
+        }
+        if (pos < HEADER_SIZE || pos + RECORD_OVERHEAD > flushedLength) {
+            throw corrupted(pos);
+        }
+        recordHeader.clear();
+        readFully(recordHeader, pos);
+        int keyLength = recordHeader.getInt(0);
+        int valueLength = recordHeader.getInt(4);
+        if (!isValidLength(keyLength, valueLength, flushedLength - pos)) {
+            throw corrupted(pos);
+        }
+        ByteBuffer record = ByteBuffer.allocate(recordSize(keyLength, Math.max(valueLength, 0)));
+        readFully(record, pos);
+        byte[] bytes = record.array();
+        checksum.reset();
+        checksum.update(bytes, 0, bytes.length - 4);
+        if ((int) checksum.getValue() != record.getInt(bytes.length - 4)) {
+            throw corrupted(pos);
+        }
+        return new Record(bytes, keyLength, valueLength);
+    }
+
+    /**
+     * Visits the records from the given position to the end of the log, returning the end of the last valid record.
+     * Any content following the last valid record is discarded, unless the log was opened read-only.
+     */
+    long scan(long from, RecordVisitor visitor) throws IOException {
+        flush();
+        long pos = Math.max(from, HEADER_SIZE);
+        long length = flushedLength;
+        channel.position(pos);
+        DataInputStream input = new DataInputStream(new BufferedInputStream(Channels.newInputStream(channel), WRITE_BUFFER_SIZE));
+        CRC32 recordChecksum = new CRC32();
+        while (pos + RECORD_OVERHEAD <= length) {
+            int keyLength = input.readInt();
+            int valueLength = input.readInt();
+            if (!isValidLength(keyLength, valueLength, length - pos)) {
+                break;
+            }
+            byte[] key = new byte[keyLength];
+            byte[] value = valueLength == REMOVED ? null : new byte[valueLength];
+            try {
+                input.readFully(key);
+                if (value != null) {
+                    input.readFully(value);
+                }
+                int expectedChecksum = input.readInt();
+                recordChecksum.reset();
+                updateInt(recordChecksum, keyLength);
+                updateInt(recordChecksum, valueLength);
+                recordChecksum.update(key);
+                if (value != null) {
+                    recordChecksum.update(value);
+                }
+                if ((int) recordChecksum.getValue() != expectedChecksum) {
+                    break;
+                }
+            } catch (EOFException e) {
+                break;
+            }
+            int recordSize = recordSize(keyLength, value == null ? 0 : value.length);
+            visitor.visitRecord(pos, recordSize, key, value);
+            pos += recordSize;
+        }
+        if (pos < length && !readOnly) {
+            // Discard a partially written record
+            channel.truncate(pos);
+            flushedLength = pos;
+        }
+        return pos;
+    }
+
+    /**
+     * Writes any buffered records to the file.
+     */
+    void flush() throws IOException {
+        if (buffered == 0) {
+            return;
+        }
+        ByteBuffer buffer = ByteBuffer.wrap(writeBuffer, 0, buffered);
+        long pos = flushedLength;
+        while (buffer.hasRemaining()) {
+            pos += channel.write(buffer, pos);
+        }
+        flushedLength = pos;
+        buffered = 0;
+    }
+
+    @Override
+    public void close() throws IOException {
+        try {
+            flush();
+        } finally {
+            randomAccessFile.close();
+        }
+    }
+
+    static int recordSize(int keyLength, int valueLength) {
+        return RECORD_OVERHEAD + keyLength + valueLength;
+    }
+
+    private static boolean isValidLength(int keyLength, int valueLength, long available) {
+        return keyLength >= 0 && valueLength >= REMOVED && (long) recordSize(keyLength, Math.max(valueLength, 0)) <= available;
+    }
+
+    private CorruptedCacheException corrupted(long pos) {
+        return new CorruptedCacheException(String.format("Corrupted record at offset %s found in %s.", pos, this));
+    }
+
+    private void readFully(ByteBuffer buffer, long pos) throws IOException {
+        while (buffer.hasRemaining()) {
+            int read = channel.read(buffer, pos + buffer.position());
+            if (read < 0) {
+                throw corrupted(pos);
+            }
+        }
+    }
+
+    private void putInt(int value) {
+        writeBuffer[buffered++] = (byte) (value >>> 24);
+        writeBuffer[buffered++] = (byte) (value >>> 16);
+        writeBuffer[buffered++] = (byte) (value >>> 8);
+        writeBuffer[buffered++] = (byte) value;
+    }
+
+    private void putBytes(byte[] bytes) {
+        System.arraycopy(bytes, 0, writeBuffer, buffered, bytes.length);
+        buffered += bytes.length;
+    }
+
+    private static void updateInt(CRC32 checksum, int value) {
+        checksum.update(value >>> 24);
+        checksum.update(value >>> 16);
+        checksum.update(value >>> 8);
+        checksum.update(value);
+    }
+
+    /**
+     * A record read from the log.
+     */
+    static class Record {
+        private final byte[] bytes;
+        private final int keyLength;
+        private final int valueLength;
+
+        private Record(byte[] bytes, int keyLength, int valueLength) {
+            this.bytes = bytes;
+            this.keyLength = keyLength;
+            this.valueLength = valueLength;
+        }
+
+        boolean hasKey(byte[] key) {
+            if (key.length != keyLength) {
+                return false;
+            }
+            for (int i = 0; i < keyLength; i++) {
+                if (bytes[8 + i] != key[i]) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        boolean isRemoved() {
+            return valueLength == REMOVED;
+        }
+
+        /**
+         * Returns the offset of the value within {@link #getBytes()}.
+         */
+        int getValueOffset() {
+            return 8 + keyLength;
+        }
+
+        int getValueLength() {
+            return Math.max(valueLength, 0);
+        }
+
+        byte[] getBytes() {
+            return bytes;
+        }
+    }
+
+    interface RecordVisitor {
+        /**
+         * @param value the value of the record, or null if the record marks the key as removed.
+         */
+        void visitRecord(long pos, int recordSize, byte[] key, @Nullable byte[] value) throws IOException;
+    }
+}
@@ -22,6 +22,7 @@ import org.gradle.cache.CrossProcessCacheAccess
 import org.gradle.cache.FileLock
 import org.gradle.cache.FileLockManager
 import org.gradle.cache.FileLockReleasedSignal
+import org.gradle.cache.IndexedCacheLayout
 import org.gradle.cache.LockOptions
 import org.gradle.cache.MultiProcessSafePersistentIndexedCache
 import org.gradle.cache.PersistentIndexedCacheParameters
@@ -697,6 +698,20 @@ class DefaultCacheAccessTest extends ConcurrentSpec {
         access?.close()
     }
 
+    def "throws InvalidCacheReuseException when cache layout differs"() {
+        def access = newAccess(OnDemand)
+
+        when:
+        access.newCache(PersistentIndexedCacheParameters.of('cache', String.class, Integer.class))
+        access.newCache(PersistentIndexedCacheParameters.of('cache', String.class, Integer.class).withLayout(IndexedCacheLayout.LOG_STRUCTURED))
+
+        then:
+        thrown(DefaultCacheAccess.InvalidCacheReuseException)
+
+        cleanup:
+        access?.close()
+    }
+
     def "throws InvalidCacheReuseException when cache decorator differs"() {
         def access = newAccess(OnDemand)
         def decorator = Mock(CacheDecorator)
@@ -0,0 +1,204 @@
+/*
+ * Copyright 2021 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.cache.internal.btree
+
+import org.gradle.internal.options.DefaultInternalOptions
+import org.gradle.internal.serialize.DefaultSerializer
+import org.gradle.test.fixtures.file.TestNameTestDirectoryProvider
+import org.junit.Rule
+import spock.lang.Specification
+
+class MappedFileBlockStoreTest extends Specification {
+    @Rule
+    TestNameTestDirectoryProvider tmpDir = new TestNameTestDirectoryProvider(getClass())
+    def cacheFile = tmpDir.file("cache.bin")
+    def factory = { type -> new TestPayload() } as BlockStore.Factory
+
+    def "can write and read blocks which span regions"() {
+        def store = new MappedFileBlockStore(cacheFile, 64, 16)
+        store.open({}, factory)
+
+        when:
+        def blocks = (0..<10).collect { new TestPayload(value: "value $it " + ("x" * it * 7)) }
+        blocks.each {
+            store.attach(it)
+            store.write(it)
+        }
+
+        then:
+        blocks.every { store.read(it.pos, TestPayload).value == it.value }
+
+        when:
+        def endOfLastBlock = blocks.last().pos.pos + blocks.last().block.size
+        store.close()
+
+        then:
+        cacheFile.length() == endOfLastBlock
+
+        when:
+        store = new MappedFileBlockStore(cacheFile, 64, 16)
+        store.open({ throw new AssertionError() }, factory)
+
+        then:
+        blocks.every { store.read(it.pos, TestPayload).value == it.value }
+
+        cleanup:
+        store?.close()
+    }
+
+    def "discards zero padding left by a store which was not closed"() {
+        def store = new MappedFileBlockStore(cacheFile, 64, 16)
+        store.open({}, factory)
+        def blocks = (0..<5).collect { new TestPayload(value: "value $it") }
+        blocks.each {
+            store.attach(it)
+            store.write(it)
+        }
+        def endOfLastBlock = blocks.last().pos.pos + blocks.last().block.size
+        store.close()
+
+        and:
+        // Grown to the next chunk, as when the process dies before the store is closed
+        cacheFile.append(new byte[(int) (16 - endOfLastBlock % 16 + 16)])
+
+        when:
+        store = new MappedFileBlockStore(cacheFile, 64, 16)
+        store.open({ throw new AssertionError() }, factory)
+
+        then:
+        cacheFile.length() == endOfLastBlock
+        blocks.every { store.read(it.pos, TestPayload).value == it.value }
+
+        when:
+        def block = new TestPayload(value: "new value")
+        store.attach(block)
+        store.write(block)
+
+        then:
+        block.pos.pos == endOfLastBlock
+        store.read(block.pos, TestPayload).value == "new value"
+
+        cleanup:
+        store?.close()
+    }
+
+    def "keeps content after the last block which is not zero padding"() {
+        def store = new MappedFileBlockStore(cacheFile, 64, 16)
+        store.open({}, factory)
+        def block = new TestPayload(value: "value")
+        store.attach(block)
+        store.write(block)
+        store.close()
+
+        and:
+        def padding = new byte[(int) (16 - cacheFile.length() % 16 + 16)]
+        padding[-1] = 1
+        cacheFile.append(padding)
+        def length = cacheFile.length()
+
+        when:
+        store = new MappedFileBlockStore(cacheFile, 64, 16)
+        store.open({ throw new AssertionError() }, factory)
+
+        then:
+        cacheFile.length() == length
+        store.read(block.pos, TestPayload).value == "value"
+
+        cleanup:
+        store?.close()
+    }
+
+    def "detects corrupted block"() {
+        def store = new MappedFileBlockStore(cacheFile, 64, 16)
+        store.open({}, factory)
+        def block = new TestPayload(value: "value")
+        store.attach(block)
+        store.write(block)
+
+        when:
+        store.read(BlockPointer.pos(block.pos.pos + 1), TestPayload)
+
+        then:
+        thrown(CorruptedCacheException)
+
+        cleanup:
+        store.close()
+    }
+
+    def "cache file written with one block store can be read with the other"() {
+        def serializer = new DefaultSerializer<String>()
+
+        when:
+        def cache = new BTreePersistentIndexedCache<String, String>(cacheFile, serializer, serializer, writeWith)
+        (1..100).each { cache.put("key $it", "value $it") }
+        cache.close()
+
+        and:
+        cache = new BTreePersistentIndexedCache<String, String>(cacheFile, serializer, serializer, readWith)
+
+        then:
+        (1..100).every { cache.get("key $it") == "value $it" }
+        cache.verify()
+
+        cleanup:
+        cache?.close()
+
+        where:
+        writeWith             | readWith
+        BlockStoreType.MAPPED | BlockStoreType.FILE
+        BlockStoreType.FILE   | BlockStoreType.MAPPED
+        BlockStoreType.MAPPED | BlockStoreType.MAPPED
+    }
+
+    def "selects block store from internal option value"() {
+        expect:
+        new DefaultInternalOptions([:]).getOption(BlockStoreType.OPTION) == BlockStoreType.FILE
+        new DefaultInternalOptions([(BlockStoreType.OPTION.propertyName): "file"]).getOption(BlockStoreType.OPTION) == BlockStoreType.FILE
+        new DefaultInternalOptions([(BlockStoreType.OPTION.propertyName): "mapped"]).getOption(BlockStoreType.OPTION) == BlockStoreType.MAPPED
+
+        when:
+        new DefaultInternalOptions([(BlockStoreType.OPTION.propertyName): "unknown"]).getOption(BlockStoreType.OPTION)
+
+        then:
+        def e = thrown(IllegalArgumentException)
+        e.message == "Invalid value 'unknown' for internal option 'org.gradle.cache.internal.btree.blockStore'. The value should be one of [file, mapped]."
+    }
+
+    static class TestPayload extends BlockPayload {
+        String value = ""
+
+        @Override
+        protected int getSize() {
+            return 2 + value.length()
+        }
+
+        @Override
+        protected byte getType() {
+            return 0x55
+        }
+
+        @Override
+        protected void read(DataInputStream inputStream) throws Exception {
+            value = inputStream.readUTF()
+        }
+
+        @Override
+        protected void write(DataOutputStream outputStream) throws Exception {
+            outputStream.writeUTF(value)
+        }
+    }
+}
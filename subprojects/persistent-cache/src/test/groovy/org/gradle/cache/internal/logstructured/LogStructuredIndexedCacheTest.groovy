@@ -0,0 +1,232 @@
+/*
+ * Copyright 2021 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.cache.internal.logstructured
+
+import org.gradle.cache.CleanableStore
+import org.gradle.cache.CleanupProgressMonitor
+import org.gradle.test.fixtures.file.TestNameTestDirectoryProvider
+import org.junit.Rule
+import spock.lang.Specification
+
+import static org.gradle.internal.serialize.BaseSerializerFactory.STRING_SERIALIZER
+
+class LogStructuredIndexedCacheTest extends Specification {
+    @Rule
+    TestNameTestDirectoryProvider tmpDir = new TestNameTestDirectoryProvider(getClass())
+    def cacheFile = tmpDir.file("cache.log")
+    LogStructuredIndexedCache<String, String> cache
+
+    def cleanup() {
+        if (cache?.open) {
+            cache.close()
+        }
+    }
+
+    def "returns null for entry which does not exist"() {
+        given:
+        openCache()
+
+        expect:
+        cache.get("unknown") == null
+    }
+
+    def "can add, update and remove entries"() {
+        given:
+        openCache()
+
+        when:
+        cache.put("a", "1")
+        cache.put("b", "2")
+        cache.put("a", "3")
+        cache.remove("b")
+        cache.remove("unknown")
+
+        then:
+        cache.get("a") == "3"
+        cache.get("b") == null
+    }
+
+    def "persists entries when reopened"() {
+        given:
+        openCache()
+        (1..100).each { cache.put("key $it", "value $it") }
+        (1..100).findAll { it % 3 == 0 }.each { cache.remove("key $it") }
+        cache.put("key 1", "updated")
+
+        when:
+        cache.close()
+        openCache()
+
+        then:
+        cache.get("key 1") == "updated"
+        (2..100).every { cache.get("key $it") == (it % 3 == 0 ? null : "value $it") }
+    }
+
+    def "rebuilds index when index file is missing or stale"() {
+        given:
+        openCache()
+        (1..10).each { cache.put("key $it", "value $it") }
+        cache.close()
+        def indexFile = LogStructuredIndexedCache.indexFileFor(cacheFile)
+        def staleIndex = indexFile.bytes
+
+        and:
+        openCache()
+        (11..20).each { cache.put("key $it", "value $it") }
+        cache.close()
+
+        when:
+        indexFile.bytes = staleIndex
+        openCache()
+
+        then:
+        (1..20).every { cache.get("key $it") == "value $it" }
+
+        when:
+        cache.close()
+        indexFile.delete()
+        openCache()
+
+        then:
+        (1..20).every { cache.get("key $it") == "value $it" }
+    }
+
+    def "discards partially written record at end of log"() {
+        given:
+        openCache()
+        cache.put("a", "1")
+        cache.put("b", "2")
+        cache.close()
+        LogStructuredIndexedCache.indexFileFor(cacheFile).delete()
+
+        when:
+        def file = new RandomAccessFile(cacheFile, "rw")
+        file.setLength(file.length() - 2)
+        file.close()
+        openCache()
+
+        then:
+        cache.get("a") == "1"
+        cache.get("b") == null
+
+        when:
+        cache.put("b", "3")
+        cache.close()
+        openCache()
+
+        then:
+        cache.get("a") == "1"
+        cache.get("b") == "3"
+    }
+
+    def "starts with an empty cache when the file is not a log"() {
+        given:
+        cacheFile.text = "not a log"
+
+        when:
+        openCache()
+
+        then:
+        cache.get("a") == null
+
+        when:
+        cache.put("a", "1")
+
+        then:
+        cache.get("a") == "1"
+    }
+
+    def "compaction removes updated and removed entries"() {
+        given:
+        openCache()
+        (1..100).each { cache.put("key $it", "value $it") }
+        (1..100).each { cache.put("key $it", "updated $it") }
+        (51..100).each { cache.remove("key $it") }
+        cache.close()
+        def sizeBeforeCompaction = cacheFile.length()
+
+        when:
+        def compacted = new LogStructuredIndexedCacheCompaction(["cache"], 0, 0.5).compact(cacheFile)
+
+        then:
+        compacted
+        cacheFile.length() < sizeBeforeCompaction / 3
+        !LogStructuredIndexedCache.indexFileFor(cacheFile).exists()
+
+        when:
+        openCache()
+
+        then:
+        (1..50).every { cache.get("key $it") == "updated $it" }
+        (51..100).every { cache.get("key $it") == null }
+    }
+
+    def "compaction skips logs without enough garbage"() {
+        given:
+        openCache()
+        (1..100).each { cache.put("key $it", "value $it") }
+        cache.put("key 1", "updated")
+        cache.close()
+        def sizeBeforeCompaction = cacheFile.length()
+
+        expect:
+        !new LogStructuredIndexedCacheCompaction(["cache"], 0, 0.5).compact(cacheFile)
+        cacheFile.length() == sizeBeforeCompaction
+    }
+
+    def "compaction leaves files which do not contain a log untouched"() {
+        given:
+        def otherLog = tmpDir.file("other.log")
+        otherLog.text = "some text which is not a value log"
+
+        expect:
+        !new LogStructuredIndexedCacheCompaction(["other"], 0, 0.5).compact(otherLog)
+        otherLog.text == "some text which is not a value log"
+        !tmpDir.file("other.log.compact").exists()
+    }
+
+    def "cleanup action compacts the logs of the given caches only"() {
+        given:
+        openCache()
+        (1..100).each { cache.put("key $it", "value $it") }
+        (1..100).each { cache.remove("key $it") }
+        cache.close()
+        def otherFile = tmpDir.file("other.bin")
+        otherFile.text = "not a log"
+        def unrelatedLog = tmpDir.file("unrelated.log")
+        unrelatedLog.text = "not a value log"
+        def store = Stub(CleanableStore) {
+            getBaseDir() >> tmpDir.testDirectory
+            getReservedCacheFiles() >> []
+        }
+        def progressMonitor = Mock(CleanupProgressMonitor)
+
+        when:
+        new LogStructuredIndexedCacheCompaction(["cache"], 0, 0.5).clean(store, progressMonitor)
+
+        then:
+        1 * progressMonitor.incrementDeleted()
+        0 * progressMonitor._
+        cacheFile.length() == ValueLog.HEADER_SIZE
+        otherFile.text == "not a log"
+        unrelatedLog.text == "not a value log"
+    }
+
+    private void openCache() {
+        cache = new LogStructuredIndexedCache<String, String>(cacheFile, STRING_SERIALIZER, STRING_SERIALIZER)
+    }
+}
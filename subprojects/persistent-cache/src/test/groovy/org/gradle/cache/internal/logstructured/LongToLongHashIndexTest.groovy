@@ -0,0 +1,67 @@
+/*
+ * Copyright 2021 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.cache.internal.logstructured
+
+import spock.lang.Specification
+
+import static org.gradle.cache.internal.logstructured.LongToLongHashIndex.ABSENT
+
+class LongToLongHashIndexTest extends Specification {
+    def index = new LongToLongHashIndex()
+
+    def "can add, update and remove entries"() {
+        expect:
+        index.get(1) == ABSENT
+        index.put(1, 10) == ABSENT
+        index.put(2, 20) == ABSENT
+        index.put(1, 11) == 10
+        index.size() == 2
+        index.get(1) == 11
+        index.remove(1) == 11
+        index.remove(1) == ABSENT
+        index.get(1) == ABSENT
+        index.get(2) == 20
+        index.size() == 1
+    }
+
+    def "behaves like a map for colliding keys and many entries"() {
+        def random = new Random(1234)
+        def expected = [:]
+
+        when:
+        10000.times {
+            // Keys which differ only in high bits collide in a small table
+            long key = ((long) random.nextInt(2000)) << 40
+            long previous = expected.containsKey(key) ? expected[key] : ABSENT
+            if (random.nextInt(3) == 0) {
+                assert index.remove(key) == previous
+                expected.remove(key)
+            } else {
+                long value = random.nextInt(Integer.MAX_VALUE)
+                assert index.put(key, value) == previous
+                expected[key] = value
+            }
+        }
+
+        then:
+        index.size() == expected.size()
+        expected.every { key, value -> index.get(key) == value }
+        def visited = [:]
+        index.forEach { key, value -> visited[key] = value }
+        visited == expected
+    }
+}
@@ -0,0 +1,149 @@
+/*
+ * Copyright 2021 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.internal.snapshot.impl;
+
+import com.google.common.collect.Interners;
+import org.gradle.internal.hash.FileHasher;
+import org.gradle.internal.hash.HashCode;
+import org.gradle.internal.hash.Hashing;
+import org.gradle.internal.snapshot.FileSystemLocationSnapshot;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.Collections;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static java.util.concurrent.TimeUnit.SECONDS;
+
+/**
+ * Measures the time to snapshot synthetic directory trees with different levels of parallelism.
+ *
+ * The wide tree has many directories directly below the root, the deep tree is a narrow chain of nested directories.
+ */
+@Fork(1)
+@Warmup(iterations = 3, time = 2, timeUnit = SECONDS)
+@Measurement(iterations = 5, time = 2, timeUnit = SECONDS)
+@State(Scope.Benchmark)
+public class DirectorySnapshotterBenchmark {
+
+    @Param({"wide", "deep"})
+    String treeShape;
+
+    @Param({"1", "2", "4", "8"})
+    int parallelism;
+
+    Path root;
+    DirectorySnapshotterParallelism snapshotterParallelism;
+    DirectorySnapshotter snapshotter;
+
+    @Setup(Level.Trial)
+    public void setup() throws IOException {
+        root = Files.createTempDirectory("directory-snapshotter");
+        switch (treeShape) {
+            case "wide":
+                createWideTree(root, 200, 25);
+                break;
+            case "deep":
+                createDeepTree(root, 50, 2, 50);
+                break;
+            default:
+                throw new IllegalArgumentException("Unknown tree shape: " + treeShape);
+        }
+        snapshotterParallelism = new DirectorySnapshotterParallelism(parallelism);
+        snapshotter = new DirectorySnapshotter(new ContentFileHasher(), Interners.newWeakInterner(), Collections.emptyList(), new DirectorySnapshotterStatistics.Collector(), snapshotterParallelism);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        snapshotterParallelism.close();
+        Files.walkFileTree(root, new SimpleFileVisitor<Path>() {
+            @Override
+            public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) throws IOException {
+                Files.delete(file);
+                return FileVisitResult.CONTINUE;
+            }
+
+            @Override
+            public FileVisitResult postVisitDirectory(Path dir, IOException exc) throws IOException {
+                Files.delete(dir);
+                return FileVisitResult.CONTINUE;
+            }
+        });
+    }
+
+    @Benchmark
+    public FileSystemLocationSnapshot snapshot() {
+        return snapshotter.snapshot(root.toString(), null, new AtomicBoolean());
+    }
+
+    private static void createWideTree(Path root, int directoryCount, int filesPerDirectory) throws IOException {
+        for (int i = 0; i < directoryCount; i++) {
+            createFiles(Files.createDirectory(root.resolve("dir" + i)), filesPerDirectory);
+        }
+    }
+
+    private static void createDeepTree(Path root, int depth, int directoriesPerLevel, int filesPerDirectory) throws IOException {
+        Path current = root;
+        for (int level = 0; level < depth; level++) {
+            for (int i = 1; i < directoriesPerLevel; i++) {
+                createFiles(Files.createDirectory(current.resolve("sibling" + i)), filesPerDirectory);
+            }
+            createFiles(current, filesPerDirectory);
+            current = Files.createDirectory(current.resolve("nested"));
+        }
+    }
+
+    private static void createFiles(Path directory, int count) throws IOException {
+        for (int i = 0; i < count; i++) {
+            Path file = directory.resolve("file" + i + ".txt");
+            Files.write(file, (file + "\n").getBytes(StandardCharsets.UTF_8));
+        }
+    }
+
+    private static class ContentFileHasher implements FileHasher {
+        @Override
+        public HashCode hash(File file) {
+            try {
+                return Hashing.hashBytes(Files.readAllBytes(file.toPath()));
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+
+        @Override
+        public HashCode hash(File file, long length, long lastModified) {
+            return hash(file);
+        }
+    }
+}
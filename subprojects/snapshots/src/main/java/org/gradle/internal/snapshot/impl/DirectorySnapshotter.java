@@ -17,6 +17,7 @@
 package org.gradle.internal.snapshot.impl;
 
 import com.google.common.annotations.VisibleForTesting;
+import com.google.common.collect.ImmutableList;
 import com.google.common.collect.ImmutableSet;
 import com.google.common.collect.Interner;
 import com.google.common.collect.Iterables;
@@ -42,19 +43,26 @@
 import java.io.File;
 import java.io.IOException;
 import java.io.UncheckedIOException;
+import java.nio.file.DirectoryIteratorException;
+import java.nio.file.DirectoryStream;
 import java.nio.file.FileSystemLoopException;
 import java.nio.file.FileVisitOption;
 import java.nio.file.FileVisitResult;
 import java.nio.file.Files;
+import java.nio.file.LinkOption;
 import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.nio.file.attribute.BasicFileAttributes;
 import java.util.ArrayDeque;
+import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Deque;
 import java.util.EnumSet;
 import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
 import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
 import java.util.function.Predicate;
 
 import static org.gradle.internal.snapshot.MerkleDirectorySnapshotBuilder.EmptyDirectoryHandlingStrategy.INCLUDE_EMPTY_DIRS;
@@ -70,8 +78,8 @@ public String remapAbsolutePath(Path path) {
         }
 
         @Override
-        public SymbolicLinkMapping withNewMapping(String source, String target, RelativePathTracker currentPathTracker) {
-            return new DefaultSymbolicLinkMapping(source, target, currentPathTracker.getSegments());
+        public SymbolicLinkMapping withNewMapping(String source, String target, Iterable<String> currentSegments) {
+            return new DefaultSymbolicLinkMapping(source, target, currentSegments);
         }
 
         @Override
@@ -84,17 +92,31 @@ public Iterable<String> getRemappedSegments(Iterable<String> segments) {
     private final Interner<String> stringInterner;
     private final DefaultExcludes defaultExcludes;
     private final DirectorySnapshotterStatistics.Collector collector;
+    private final DirectorySnapshotterParallelism parallelism;
 
     public DirectorySnapshotter(FileHasher hasher, Interner<String> stringInterner, Collection<String> defaultExcludes, DirectorySnapshotterStatistics.Collector collector) {
+        this(hasher, stringInterner, defaultExcludes, collector, DirectorySnapshotterParallelism.SEQUENTIAL);
+    }
+
+    /**
+     * When walking in parallel, the predicate passed to {@link #snapshot(String, SnapshottingFilter.DirectoryWalkerPredicate, AtomicBoolean)}
+     * and the file hasher are called from multiple threads at once.
+     */
+    public DirectorySnapshotter(FileHasher hasher, Interner<String> stringInterner, Collection<String> defaultExcludes, DirectorySnapshotterStatistics.Collector collector, DirectorySnapshotterParallelism parallelism) {
         this.hasher = hasher;
         this.stringInterner = stringInterner;
         this.defaultExcludes = new DefaultExcludes(defaultExcludes);
         this.collector = collector;
+        this.parallelism = parallelism;
     }
 
     public FileSystemLocationSnapshot snapshot(String absolutePath, @Nullable SnapshottingFilter.DirectoryWalkerPredicate predicate, final AtomicBoolean hasBeenFiltered) {
+        Path rootPath = Paths.get(absolutePath);
+        ForkJoinPool pool = parallelism.getPool();
+        if (pool != null && Files.isDirectory(rootPath, LinkOption.NOFOLLOW_LINKS)) {
+            return new ParallelWalk(predicate, hasBeenFiltered).walk(pool, rootPath);
+        }
         try {
-            Path rootPath = Paths.get(absolutePath);
             PathVisitor visitor = new PathVisitor(predicate, hasBeenFiltered, hasher, stringInterner, defaultExcludes, collector, EMPTY_SYMBOLIC_LINK_MAPPING);
             Files.walkFileTree(rootPath, DONT_FOLLOW_SYMLINKS, Integer.MAX_VALUE, visitor);
             return visitor.getResult();
@@ -103,10 +125,56 @@ public FileSystemLocationSnapshot snapshot(String absolutePath, @Nullable Snapsh
         }
     }
 
+    private static FileSystemLeafSnapshot snapshotFile(FileHasher hasher, Interner<String> stringInterner, SymbolicLinkMapping symbolicLinkMapping, Path absoluteFilePath, String internedName, BasicFileAttributes attrs, AccessType accessType) {
+        String internedRemappedAbsoluteFilePath = stringInterner.intern(symbolicLinkMapping.remapAbsolutePath(absoluteFilePath));
+        if (attrs.isSymbolicLink()) {
+            return new MissingFileSnapshot(internedRemappedAbsoluteFilePath, internedName, accessType);
+        } else if (!attrs.isRegularFile()) {
+            throw new UncheckedIOException(new IOException(String.format("Cannot snapshot %s: not a regular file", internedRemappedAbsoluteFilePath)));
+        }
+        long lastModified = attrs.lastModifiedTime().toMillis();
+        long fileLength = attrs.size();
+        FileMetadata metadata = DefaultFileMetadata.file(lastModified, fileLength, accessType);
+        HashCode hash = hasher.hash(absoluteFilePath.toFile(), fileLength, lastModified);
+        return new RegularFileSnapshot(internedRemappedAbsoluteFilePath, internedName, hash, metadata);
+    }
+
+    /**
+     * Returns whether we want to visit the given path during our walk, or ignore it completely,
+     * based on the directory/file excludes or the provided filtering predicate.
+     * Excludes won't mark this walk as `filtered`, only if the `predicate` rejects any entry.
+     **/
+    private static boolean shouldVisit(
+        DefaultExcludes defaultExcludes,
+        @Nullable SnapshottingFilter.DirectoryWalkerPredicate predicate,
+        AtomicBoolean hasBeenFiltered,
+        Path path,
+        String internedName,
+        boolean isDirectory,
+        Iterable<String> remappedRelativePath
+    ) {
+        if (isDirectory) {
+            if (defaultExcludes.excludeDir(internedName)) {
+                return false;
+            }
+        } else if (defaultExcludes.excludeFile(internedName)) {
+            return false;
+        }
+
+        if (predicate == null) {
+            return true;
+        }
+        boolean allowed = predicate.test(path, internedName, isDirectory, remappedRelativePath);
+        if (!allowed) {
+            hasBeenFiltered.set(true);
+        }
+        return allowed;
+    }
+
     private interface SymbolicLinkMapping {
         String remapAbsolutePath(Path path);
         @CheckReturnValue
-        SymbolicLinkMapping withNewMapping(String source, String target, RelativePathTracker currentPathTracker);
+        SymbolicLinkMapping withNewMapping(String source, String target, Iterable<String> currentSegments);
         Iterable<String> getRemappedSegments(Iterable<String> segments);
     }
 
@@ -137,8 +205,8 @@ public String remapAbsolutePath(String absolutePath) {
         }
 
         @Override
-        public SymbolicLinkMapping withNewMapping(String source, String target, RelativePathTracker currentPathTracker) {
-            return new DefaultSymbolicLinkMapping(remapAbsolutePath(source), target, getRemappedSegments(currentPathTracker.getSegments()));
+        public SymbolicLinkMapping withNewMapping(String source, String target, Iterable<String> currentSegments) {
+            return new DefaultSymbolicLinkMapping(remapAbsolutePath(source), target, getRemappedSegments(currentSegments));
         }
 
         @Override
@@ -286,7 +354,7 @@ protected FileVisitResult doVisitFile(Path file, BasicFileAttributes attrs) {
                                     stringInterner,
                                     defaultExcludes,
                                     collector,
-                                    symbolicLinkMapping.withNewMapping(file.toString(), targetDirString, pathTracker)
+                                    symbolicLinkMapping.withNewMapping(file.toString(), targetDirString, pathTracker.getSegments())
                                 );
                                 Files.walkFileTree(targetDir, EnumSet.noneOf(FileVisitOption.class), Integer.MAX_VALUE, subtreeVisitor);
                                 DirectorySnapshot result = (DirectorySnapshot) subtreeVisitor.getResult();
@@ -320,11 +388,11 @@ private boolean introducesCycle(String targetDirString) {
         private void visitResolvedFile(Path file, BasicFileAttributes targetAttributes, AccessType accessType) {
             String internedName = intern(file.getFileName().toString());
             if (shouldVisit(file, internedName, false, pathTracker.getSegments())) {
-                builder.visitLeafElement(snapshotFile(file, internedName, targetAttributes, accessType));
+                builder.visitLeafElement(snapshotFile(hasher, stringInterner, symbolicLinkMapping, file, internedName, targetAttributes, accessType));
             }
         }
 
-        private BasicFileAttributes readAttributesOfSymlinkTarget(Path symlink, BasicFileAttributes symlinkAttributes) {
+        private static BasicFileAttributes readAttributesOfSymlinkTarget(Path symlink, BasicFileAttributes symlinkAttributes) {
             try {
                 return Files.readAttributes(symlink, BasicFileAttributes.class);
             } catch (IOException ioe) {
@@ -334,20 +402,6 @@ private BasicFileAttributes readAttributesOfSymlinkTarget(Path symlink, BasicFil
             }
         }
 
-        private FileSystemLeafSnapshot snapshotFile(Path absoluteFilePath, String internedName, BasicFileAttributes attrs, AccessType accessType) {
-            String internedRemappedAbsoluteFilePath = intern(symbolicLinkMapping.remapAbsolutePath(absoluteFilePath));
-            if (attrs.isSymbolicLink()) {
-                return new MissingFileSnapshot(internedRemappedAbsoluteFilePath, internedName, accessType);
-            } else if (!attrs.isRegularFile()) {
-                throw new UncheckedIOException(new IOException(String.format("Cannot snapshot %s: not a regular file", internedRemappedAbsoluteFilePath)));
-            }
-            long lastModified = attrs.lastModifiedTime().toMillis();
-            long fileLength = attrs.size();
-            FileMetadata metadata = DefaultFileMetadata.file(lastModified, fileLength, accessType);
-            HashCode hash = hasher.hash(absoluteFilePath.toFile(), fileLength, lastModified);
-            return new RegularFileSnapshot(internedRemappedAbsoluteFilePath, internedName, hash, metadata);
-        }
-
         /** unlistable directories (and maybe some locked files) will stop here */
         @Override
         protected FileVisitResult doVisitFileFailed(Path file, IOException exc) {
@@ -391,37 +445,273 @@ private String intern(String string) {
             return stringInterner.intern(string);
         }
 
-        /**
-         * Returns whether we want to visit the given path during our walk, or ignore it completely,
-         * based on the directory/file excludes or the provided filtering predicate.
-         * Excludes won't mark this walk as `filtered`, only if the `predicate` rejects any entry.
-         **/
         private boolean shouldVisit(Path path, String internedName, boolean isDirectory, Iterable<String> relativePath) {
-            if (isDirectory) {
-                if (defaultExcludes.excludeDir(internedName)) {
-                    return false;
+            return DirectorySnapshotter.shouldVisit(defaultExcludes, predicate, hasBeenFiltered, path, internedName, isDirectory, symbolicLinkMapping.getRemappedSegments(relativePath));
+        }
+
+        private String getInternedFileName(Path dir) {
+            return DirectorySnapshotter.getInternedFileName(stringInterner, dir);
+        }
+
+        public FileSystemLocationSnapshot getResult() {
+            return builder.getResult();
+        }
+    }
+
+    private static String getInternedFileName(Interner<String> stringInterner, Path path) {
+        Path fileName = path.getFileName();
+        return fileName == null ? "" : stringInterner.intern(fileName.toString());
+    }
+
+    /**
+     * Walks a directory tree on a fork-join pool, producing the same snapshot as {@link PathVisitor}.
+     *
+     * Each directory is listed by its own task and regular files are hashed in batches, so both deep and wide trees are split up.
+     * Tasks don't throw: the first failure is recorded and rethrown once the walk is done, so callers see the same exception as for a sequential walk.
+     */
+    private class ParallelWalk {
+        private static final int FILES_PER_TASK = 16;
+
+        private final SnapshottingFilter.DirectoryWalkerPredicate predicate;
+        private final AtomicBoolean hasBeenFiltered;
+        private final AtomicReference<RuntimeException> failure = new AtomicReference<>();
+
+        ParallelWalk(@Nullable SnapshottingFilter.DirectoryWalkerPredicate predicate, AtomicBoolean hasBeenFiltered) {
+            this.predicate = predicate;
+            this.hasBeenFiltered = hasBeenFiltered;
+        }
+
+        @Nullable
+        FileSystemLocationSnapshot walk(ForkJoinPool pool, Path rootPath) {
+            collector.recordVisitHierarchy();
+            String rootName = getInternedFileName(stringInterner, rootPath);
+            DirectorySnapshot result = pool.invoke(new DirectoryTask(rootPath, rootName, AccessType.DIRECT, EMPTY_SYMBOLIC_LINK_MAPPING, ImmutableList.of(), null, true));
+            RuntimeException walkFailure = failure.get();
+            if (walkFailure != null) {
+                throw walkFailure;
+            }
+            return result;
+        }
+
+        private boolean shouldVisit(SymbolicLinkMapping symbolicLinkMapping, Path path, String internedName, boolean isDirectory, Iterable<String> relativePath) {
+            return DirectorySnapshotter.shouldVisit(defaultExcludes, predicate, hasBeenFiltered, path, internedName, isDirectory, symbolicLinkMapping.getRemappedSegments(relativePath));
+        }
+
+        private class DirectoryTask extends RecursiveTask<DirectorySnapshot> {
+            private final Path dir;
+            private final String internedName;
+            private final AccessType accessType;
+            private final SymbolicLinkMapping symbolicLinkMapping;
+            private final ImmutableList<String> relativePath;
+            private final ParentDirectories parentDirectories;
+            private final boolean isRoot;
+
+            DirectoryTask(Path dir, String internedName, AccessType accessType, SymbolicLinkMapping symbolicLinkMapping, ImmutableList<String> relativePath, @Nullable ParentDirectories parentDirectories, boolean isRoot) {
+                this.dir = dir;
+                this.internedName = internedName;
+                this.accessType = accessType;
+                this.symbolicLinkMapping = symbolicLinkMapping;
+                this.relativePath = relativePath;
+                this.parentDirectories = new ParentDirectories(dir.toString(), parentDirectories);
+                this.isRoot = isRoot;
+            }
+
+            @Override
+            @Nullable
+            protected DirectorySnapshot compute() {
+                try {
+                    return failure.get() == null ? snapshotDirectory() : null;
+                } catch (RuntimeException e) {
+                    failure.compareAndSet(null, e);
+                    return null;
                 }
-            } else if (defaultExcludes.excludeFile(internedName)) {
-                return false;
             }
 
-            if (predicate == null) {
-                return true;
+            @Nullable
+            private DirectorySnapshot snapshotDirectory() {
+                List<Path> entries = new ArrayList<>();
+                try (DirectoryStream<Path> stream = Files.newDirectoryStream(dir)) {
+                    for (Path entry : stream) {
+                        entries.add(entry);
+                    }
+                } catch (DirectoryIteratorException e) {
+                    throw new UncheckedIOException(String.format("Could not read directory path '%s'.", dir), e.getCause());
+                } catch (IOException e) {
+                    collector.recordVisitFileFailed();
+                    // The parent only creates tasks for directories it wants to visit
+                    if (!isRoot || shouldVisit(symbolicLinkMapping, dir, internedName, Files.isDirectory(dir), relativePath)) {
+                        throw new UncheckedIOException(e);
+                    }
+                    return null;
+                }
+                collector.recordVisitDirectory();
+
+                List<DirectoryTask> directoryTasks = new ArrayList<>();
+                List<FileToSnapshot> files = new ArrayList<>();
+                for (Path entry : entries) {
+                    visitEntry(entry, directoryTasks, files);
+                }
+
+                List<FileBatchTask> fileTasks = new ArrayList<>();
+                for (int start = FILES_PER_TASK; start < files.size(); start += FILES_PER_TASK) {
+                    FileBatchTask fileTask = new FileBatchTask(files.subList(start, Math.min(start + FILES_PER_TASK, files.size())));
+                    fileTask.fork();
+                    fileTasks.add(fileTask);
+                }
+
+                MerkleDirectorySnapshotBuilder builder = MerkleDirectorySnapshotBuilder.sortingRequired();
+                builder.enterDirectory(accessType, stringInterner.intern(symbolicLinkMapping.remapAbsolutePath(dir)), internedName, INCLUDE_EMPTY_DIRS);
+                for (FileToSnapshot file : files.subList(0, Math.min(FILES_PER_TASK, files.size()))) {
+                    builder.visitLeafElement(file.snapshot());
+                }
+                boolean complete = true;
+                for (FileBatchTask fileTask : fileTasks) {
+                    List<FileSystemLeafSnapshot> fileSnapshots = fileTask.join();
+                    if (fileSnapshots == null) {
+                        complete = false;
+                    } else {
+                        fileSnapshots.forEach(builder::visitLeafElement);
+                    }
+                }
+                for (DirectoryTask directoryTask : directoryTasks) {
+                    DirectorySnapshot directorySnapshot = directoryTask.join();
+                    if (directorySnapshot == null) {
+                        complete = false;
+                    } else {
+                        builder.visitDirectory(directorySnapshot);
+                    }
+                }
+                if (!complete) {
+                    return null;
+                }
+                builder.leaveDirectory();
+                return (DirectorySnapshot) builder.getResult();
             }
-            boolean allowed = predicate.test(path, internedName, isDirectory, symbolicLinkMapping.getRemappedSegments(relativePath));
-            if (!allowed) {
-                hasBeenFiltered.set(true);
+
+            private void visitEntry(Path entry, List<DirectoryTask> directoryTasks, List<FileToSnapshot> files) {
+                String internedEntryName = getInternedFileName(stringInterner, entry);
+                ImmutableList<String> entryRelativePath = ImmutableList.<String>builder().addAll(relativePath).add(internedEntryName).build();
+                BasicFileAttributes attrs;
+                try {
+                    attrs = Files.readAttributes(entry, BasicFileAttributes.class, LinkOption.NOFOLLOW_LINKS);
+                } catch (IOException e) {
+                    collector.recordVisitFileFailed();
+                    if (shouldVisit(symbolicLinkMapping, entry, internedEntryName, Files.isDirectory(entry), entryRelativePath)) {
+                        throw new UncheckedIOException(e);
+                    }
+                    return;
+                }
+                if (attrs.isDirectory()) {
+                    if (shouldVisit(symbolicLinkMapping, entry, internedEntryName, true, entryRelativePath)) {
+                        forkDirectoryTask(directoryTasks, new DirectoryTask(entry, internedEntryName, AccessType.DIRECT, symbolicLinkMapping, entryRelativePath, parentDirectories, false));
+                    } else {
+                        collector.recordVisitDirectory();
+                    }
+                    return;
+                }
+                collector.recordVisitFile();
+                if (!attrs.isSymbolicLink()) {
+                    if (shouldVisit(symbolicLinkMapping, entry, internedEntryName, false, entryRelativePath)) {
+                        files.add(new FileToSnapshot(entry, internedEntryName, attrs, AccessType.DIRECT, symbolicLinkMapping));
+                    }
+                    return;
+                }
+                BasicFileAttributes targetAttributes = PathVisitor.readAttributesOfSymlinkTarget(entry, attrs);
+                if (!targetAttributes.isDirectory()) {
+                    if (shouldVisit(symbolicLinkMapping, entry, internedEntryName, false, entryRelativePath)) {
+                        files.add(new FileToSnapshot(entry, internedEntryName, targetAttributes, AccessType.VIA_SYMLINK, symbolicLinkMapping));
+                    }
+                    return;
+                }
+                Path targetDir;
+                try {
+                    targetDir = entry.toRealPath();
+                } catch (IOException e) {
+                    throw new UncheckedIOException(String.format("Could not list contents of directory '%s'.", entry), e);
+                }
+                String targetDirString = targetDir.toString();
+                if (parentDirectories.contains(targetDirString)) {
+                    return;
+                }
+                if (shouldVisit(symbolicLinkMapping, targetDir, internedEntryName, true, entryRelativePath)) {
+                    collector.recordVisitHierarchy();
+                    SymbolicLinkMapping subtreeMapping = symbolicLinkMapping.withNewMapping(entry.toString(), targetDirString, entryRelativePath);
+                    forkDirectoryTask(directoryTasks, new DirectoryTask(targetDir, internedEntryName, AccessType.VIA_SYMLINK, subtreeMapping, ImmutableList.of(), null, false));
+                }
+            }
+
+            private void forkDirectoryTask(List<DirectoryTask> directoryTasks, DirectoryTask directoryTask) {
+                directoryTask.fork();
+                directoryTasks.add(directoryTask);
             }
-            return allowed;
         }
 
-        private String getInternedFileName(Path dir) {
-            Path fileName = dir.getFileName();
-            return fileName == null ? "" : intern(fileName.toString());
+        private class FileBatchTask extends RecursiveTask<List<FileSystemLeafSnapshot>> {
+            private final List<FileToSnapshot> files;
+
+            FileBatchTask(List<FileToSnapshot> files) {
+                this.files = files;
+            }
+
+            @Override
+            @Nullable
+            protected List<FileSystemLeafSnapshot> compute() {
+                try {
+                    List<FileSystemLeafSnapshot> snapshots = new ArrayList<>(files.size());
+                    for (FileToSnapshot file : files) {
+                        if (failure.get() != null) {
+                            return null;
+                        }
+                        snapshots.add(file.snapshot());
+                    }
+                    return snapshots;
+                } catch (RuntimeException e) {
+                    failure.compareAndSet(null, e);
+                    return null;
+                }
+            }
         }
 
-        public FileSystemLocationSnapshot getResult() {
-            return builder.getResult();
+        private class FileToSnapshot {
+            private final Path file;
+            private final String internedName;
+            private final BasicFileAttributes attrs;
+            private final AccessType accessType;
+            private final SymbolicLinkMapping symbolicLinkMapping;
+
+            FileToSnapshot(Path file, String internedName, BasicFileAttributes attrs, AccessType accessType, SymbolicLinkMapping symbolicLinkMapping) {
+                this.file = file;
+                this.internedName = internedName;
+                this.attrs = attrs;
+                this.accessType = accessType;
+                this.symbolicLinkMapping = symbolicLinkMapping;
+            }
+
+            FileSystemLeafSnapshot snapshot() {
+                return snapshotFile(hasher, stringInterner, symbolicLinkMapping, file, internedName, attrs, accessType);
+            }
+        }
+    }
+
+    /**
+     * The directories from the root of a walk to the current directory, used to detect cycles introduced by symbolic links.
+     */
+    private static class ParentDirectories {
+        private final String path;
+        private final ParentDirectories parent;
+
+        ParentDirectories(String path, @Nullable ParentDirectories parent) {
+            this.path = path;
+            this.parent = parent;
+        }
+
+        boolean contains(String directory) {
+            for (ParentDirectories current = this; current != null; current = current.parent) {
+                if (current.path.equals(directory)) {
+                    return true;
+                }
+            }
+            return false;
         }
     }
 }
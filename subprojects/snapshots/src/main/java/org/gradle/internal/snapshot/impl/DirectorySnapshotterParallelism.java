@@ -0,0 +1,72 @@
+/*
+ * Copyright 2021 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.internal.snapshot.impl;
+
+import javax.annotation.Nullable;
+import java.io.Closeable;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinWorkerThread;
+
+/**
+ * Controls whether {@link DirectorySnapshotter} walks directory trees on a single thread, or splits the walk across a bounded fork-join pool.
+ *
+ * The pool is shared by all snapshotters using this instance and is only created when first needed.
+ */
+public class DirectorySnapshotterParallelism implements Closeable {
+    public static final DirectorySnapshotterParallelism SEQUENTIAL = new DirectorySnapshotterParallelism(1);
+
+    private final int parallelism;
+    private ForkJoinPool pool;
+    private boolean closed;
+
+    public DirectorySnapshotterParallelism(int parallelism) {
+        this.parallelism = parallelism;
+    }
+
+    public int getParallelism() {
+        return parallelism;
+    }
+
+    /**
+     * Returns the pool to walk directory trees with, or {@code null} when they should be walked sequentially.
+     */
+    @Nullable
+    synchronized ForkJoinPool getPool() {
+        if (parallelism <= 1 || closed) {
+            return null;
+        }
+        if (pool == null) {
+            pool = new ForkJoinPool(parallelism, DirectorySnapshotterParallelism::newWorkerThread, null, false);
+        }
+        return pool;
+    }
+
+    private static ForkJoinWorkerThread newWorkerThread(ForkJoinPool pool) {
+        ForkJoinWorkerThread thread = ForkJoinPool.defaultForkJoinWorkerThreadFactory.newThread(pool);
+        thread.setName("Directory snapshotter " + thread.getPoolIndex());
+        return thread;
+    }
+
+    @Override
+    public synchronized void close() {
+        closed = true;
+        if (pool != null) {
+            pool.shutdownNow();
+            pool = null;
+        }
+    }
+}
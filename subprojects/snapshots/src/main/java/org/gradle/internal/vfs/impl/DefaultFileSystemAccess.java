@@ -31,6 +31,7 @@
 import org.gradle.internal.snapshot.RegularFileSnapshot;
 import org.gradle.internal.snapshot.SnapshottingFilter;
 import org.gradle.internal.snapshot.impl.DirectorySnapshotter;
+import org.gradle.internal.snapshot.impl.DirectorySnapshotterParallelism;
 import org.gradle.internal.snapshot.impl.DirectorySnapshotterStatistics;
 import org.gradle.internal.snapshot.impl.FileSystemSnapshotFilter;
 import org.gradle.internal.vfs.FileSystemAccess;
@@ -54,6 +55,7 @@ public class DefaultFileSystemAccess implements FileSystemAccess {
     private final Interner<String> stringInterner;
     private final WriteListener writeListener;
     private final DirectorySnapshotterStatistics.Collector statisticsCollector;
+    private final DirectorySnapshotterParallelism parallelism;
     private ImmutableList<String> defaultExcludes;
     private DirectorySnapshotter directorySnapshotter;
     private final FileHasher hasher;
@@ -67,13 +69,27 @@ public DefaultFileSystemAccess(
         WriteListener writeListener,
         DirectorySnapshotterStatistics.Collector statisticsCollector,
         String... defaultExcludes
+    ) {
+        this(hasher, stringInterner, stat, virtualFileSystem, writeListener, statisticsCollector, DirectorySnapshotterParallelism.SEQUENTIAL, defaultExcludes);
+    }
+
+    public DefaultFileSystemAccess(
+        FileHasher hasher,
+        Interner<String> stringInterner,
+        Stat stat,
+        VirtualFileSystem virtualFileSystem,
+        WriteListener writeListener,
+        DirectorySnapshotterStatistics.Collector statisticsCollector,
+        DirectorySnapshotterParallelism parallelism,
+        String... defaultExcludes
     ) {
         this.stringInterner = stringInterner;
         this.stat = stat;
         this.writeListener = writeListener;
         this.statisticsCollector = statisticsCollector;
+        this.parallelism = parallelism;
         this.defaultExcludes = ImmutableList.copyOf(defaultExcludes);
-        this.directorySnapshotter = new DirectorySnapshotter(hasher, stringInterner, this.defaultExcludes, statisticsCollector);
+        this.directorySnapshotter = new DirectorySnapshotter(hasher, stringInterner, this.defaultExcludes, statisticsCollector, parallelism);
         this.hasher = hasher;
         this.virtualFileSystem = virtualFileSystem;
     }
@@ -228,7 +244,7 @@ public void updateDefaultExcludes(String... newDefaultExcludesArgs) {
         if (!defaultExcludes.equals(newDefaultExcludes)) {
             LOGGER.debug("Default excludes changes from {} to {}", defaultExcludes, newDefaultExcludes);
             defaultExcludes = newDefaultExcludes;
-            directorySnapshotter = new DirectorySnapshotter(hasher, stringInterner, newDefaultExcludes, statisticsCollector);
+            directorySnapshotter = new DirectorySnapshotter(hasher, stringInterner, newDefaultExcludes, statisticsCollector, parallelism);
             virtualFileSystem.invalidateAll();
         }
     }
@@ -68,12 +68,13 @@ class DirectorySnapshotterAsDirectoryWalkerTest extends AbstractDirectoryWalkerT
     @Override
     protected List<DirectorySnapshotter> getWalkers() {
         [
-            directorySnapshotter()
+            directorySnapshotter(),
+            directorySnapshotter(new DirectorySnapshotterParallelism(4))
         ]
     }
 
-    private DirectorySnapshotter directorySnapshotter() {
-        new DirectorySnapshotter(TestFiles.fileHasher(), new StringInterner(), [], Stub(DirectorySnapshotterStatistics.Collector))
+    private DirectorySnapshotter directorySnapshotter(DirectorySnapshotterParallelism parallelism = DirectorySnapshotterParallelism.SEQUENTIAL) {
+        new DirectorySnapshotter(TestFiles.fileHasher(), new StringInterner(), [], Stub(DirectorySnapshotterStatistics.Collector), parallelism)
     }
 
     private static List<FileVisitDetails> walkFiles(rootDir) {
@@ -24,8 +24,11 @@ import org.gradle.internal.file.FileMetadata.AccessType
 import org.gradle.internal.fingerprint.impl.PatternSetSnapshottingFilter
 import org.gradle.internal.hash.TestFileHasher
 import org.gradle.internal.snapshot.DirectorySnapshot
+import org.gradle.internal.snapshot.FileSystemLocationSnapshot
+import org.gradle.internal.snapshot.FileSystemSnapshotHierarchyVisitor
 import org.gradle.internal.snapshot.MissingFileSnapshot
 import org.gradle.internal.snapshot.RegularFileSnapshot
+import org.gradle.internal.snapshot.SnapshotVisitResult
 import org.gradle.internal.snapshot.SnapshotVisitorUtil
 import org.gradle.internal.snapshot.SnapshottingFilter
 import org.gradle.test.fixtures.file.CleanupTestDirectory
@@ -398,6 +401,74 @@ class DirectorySnapshotterTest extends Specification {
         !defaultExcludes.excludeFile('#some')
     }
 
+    @Requires(TestPrecondition.SYMLINKS)
+    def "parallel walk produces the same snapshot as a sequential walk (filtered: #filtered)"() {
+        def rootDir = tmpDir.createDir("root")
+        (0..<3).each { i ->
+            (0..<40).each { j ->
+                rootDir.file("dir$i/file${j}.txt").text = "content $i $j"
+                rootDir.file("dir$i/sub$j/file${j}.txt").text = "nested content $i $j"
+            }
+        }
+        rootDir.file("dir0/empty").createDir()
+        rootDir.file("linkToDir").createLink(rootDir.file("dir1"))
+        rootDir.file("dir2/cycle").createLink(rootDir.file("dir2"))
+        rootDir.file("dir2/linkToFile").createLink(rootDir.file("dir0/file1.txt"))
+        rootDir.file("dir2/broken").createLink(rootDir.file("missing"))
+        def predicate = filtered ? directoryWalkerPredicate(new PatternSet().exclude("dir1/sub1*/**", "**/file2.txt")) : null
+        def parallelism = new DirectorySnapshotterParallelism(4)
+        def parallelSnapshotter = new DirectorySnapshotter(fileHasher, new StringInterner(), [], statisticsCollector, parallelism)
+        def parallelFiltered = new AtomicBoolean()
+
+        when:
+        def sequentialSnapshot = directorySnapshotter.snapshot(rootDir.absolutePath, predicate, actuallyFiltered)
+        def parallelSnapshot = parallelSnapshotter.snapshot(rootDir.absolutePath, predicate, parallelFiltered)
+
+        then:
+        parallelSnapshot.hash == sequentialSnapshot.hash
+        describe(parallelSnapshot) == describe(sequentialSnapshot)
+        actuallyFiltered.get() == filtered
+        parallelFiltered.get() == filtered
+
+        cleanup:
+        parallelism.close()
+
+        where:
+        filtered << [false, true]
+    }
+
+    @Requires(TestPrecondition.UNIX_DERIVATIVE)
+    def "parallel walk fails like a sequential walk"() {
+        def rootDir = tmpDir.createDir("root")
+        (0..<40).each { rootDir.file("dir/file${it}.txt").text = "content $it" }
+        def pipe = rootDir.file("dir/testPipe").createNamedPipe()
+        def parallelism = new DirectorySnapshotterParallelism(4)
+        def parallelSnapshotter = new DirectorySnapshotter(fileHasher, new StringInterner(), [], statisticsCollector, parallelism)
+
+        when:
+        parallelSnapshotter.snapshot(rootDir.absolutePath, null, actuallyFiltered)
+
+        then:
+        def ex = thrown(UncheckedIOException)
+        ex.message == "java.io.IOException: Cannot snapshot ${pipe.absolutePath}: not a regular file"
+
+        cleanup:
+        pipe.delete()
+        parallelism.close()
+    }
+
+    private static List<String> describe(FileSystemLocationSnapshot snapshot) {
+        List<String> entries = []
+        snapshot.accept(new FileSystemSnapshotHierarchyVisitor() {
+            @Override
+            SnapshotVisitResult visitEntry(FileSystemLocationSnapshot entry) {
+                entries << "${entry.class.simpleName} ${entry.absolutePath} ${entry.name} ${entry.accessType} ${entry.hash}".toString()
+                return SnapshotVisitResult.CONTINUE
+            }
+        })
+        return entries
+    }
+
     private static String fileSystemRoot() {
         "${Paths.get("").toAbsolutePath().root}"
     }
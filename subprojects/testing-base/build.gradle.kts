@@ -1,5 +1,6 @@
 plugins {
     id("gradlebuild.distribution.api-java")
+    id("gradlebuild.jmh")
 }
 
 gradlebuildJava.usedInWorkers()
@@ -48,6 +49,8 @@ dependencies {
     testFixturesImplementation(libs.guava)
     testFixturesImplementation(libs.jsoup)
 
+    jmhImplementation(testFixtures(project(":core")))
+
     testRuntimeOnly(project(":distributions-core")) {
         because("ProjectBuilder tests load services from a Gradle distribution.")
     }
@@ -0,0 +1,168 @@
+/*
+ * Copyright 2021 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.api.internal.tasks.testing.report;
+
+import org.gradle.api.internal.tasks.testing.DefaultTestOutputEvent;
+import org.gradle.api.internal.tasks.testing.junit.result.Binary2JUnitXmlReportGenerator;
+import org.gradle.api.internal.tasks.testing.junit.result.BinaryResultBackedTestResultsProvider;
+import org.gradle.api.internal.tasks.testing.junit.result.JUnitXmlResultOptions;
+import org.gradle.api.internal.tasks.testing.junit.result.TestClassResult;
+import org.gradle.api.internal.tasks.testing.junit.result.TestMethodResult;
+import org.gradle.api.internal.tasks.testing.junit.result.TestOutputStore;
+import org.gradle.api.internal.tasks.testing.junit.result.TestResultSerializer;
+import org.gradle.api.internal.tasks.testing.junit.result.TestResultsProvider;
+import org.gradle.api.tasks.testing.TestOutputEvent;
+import org.gradle.api.tasks.testing.TestResult;
+import org.gradle.internal.concurrent.DefaultExecutorFactory;
+import org.gradle.internal.concurrent.DefaultParallelismConfiguration;
+import org.gradle.internal.operations.BuildOperationDescriptor;
+import org.gradle.internal.operations.BuildOperationExecutor;
+import org.gradle.internal.operations.BuildOperationListener;
+import org.gradle.internal.operations.DefaultBuildOperationExecutor;
+import org.gradle.internal.operations.DefaultBuildOperationIdFactory;
+import org.gradle.internal.operations.DefaultBuildOperationQueueFactory;
+import org.gradle.internal.operations.OperationFinishEvent;
+import org.gradle.internal.operations.OperationIdentifier;
+import org.gradle.internal.operations.OperationProgressEvent;
+import org.gradle.internal.operations.OperationStartEvent;
+import org.gradle.internal.progress.NoOpProgressLoggerFactory;
+import org.gradle.internal.resources.DefaultResourceLockCoordinationService;
+import org.gradle.internal.time.Time;
+import org.gradle.internal.work.DefaultWorkerLeaseService;
+import org.gradle.util.internal.GFileUtils;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+
+import static java.util.concurrent.TimeUnit.SECONDS;
+
+/**
+ * Measures the generation of the HTML and JUnit XML reports for a synthetic result set of 50000 test cases in 1000 classes with captured output.
+ *
+ * Run with {@code -prof gc} to compare the allocations.
+ */
+@Fork(1)
+@Warmup(iterations = 2, time = 5, timeUnit = SECONDS)
+@Measurement(iterations = 5, time = 5, timeUnit = SECONDS)
+@State(Scope.Benchmark)
+public class TestReportGenerationBenchmark {
+    private static final int CLASS_COUNT = 1000;
+    private static final int TESTS_PER_CLASS = 50;
+
+    @Param({"1", "4"})
+    int maxWorkers;
+
+    File resultsDir;
+    File reportDir;
+    DefaultWorkerLeaseService workerLeaseService;
+    BuildOperationExecutor buildOperationExecutor;
+    TestResultsProvider resultsProvider;
+
+    @Setup(Level.Trial)
+    public void setup() throws IOException {
+        resultsDir = Files.createTempDirectory("test-results").toFile();
+        reportDir = Files.createTempDirectory("test-report").toFile();
+        writeResults(resultsDir);
+
+        DefaultParallelismConfiguration parallelismConfiguration = new DefaultParallelismConfiguration(false, maxWorkers);
+        workerLeaseService = new DefaultWorkerLeaseService(new DefaultResourceLockCoordinationService(), parallelismConfiguration);
+        buildOperationExecutor = new DefaultBuildOperationExecutor(
+            new NoOpBuildOperationListener(), Time.clock(), new NoOpProgressLoggerFactory(),
+            new DefaultBuildOperationQueueFactory(workerLeaseService), new DefaultExecutorFactory(), parallelismConfiguration, new DefaultBuildOperationIdFactory());
+        resultsProvider = new BinaryResultBackedTestResultsProvider(resultsDir);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        resultsProvider.close();
+        GFileUtils.deleteDirectory(resultsDir);
+        GFileUtils.deleteDirectory(reportDir);
+    }
+
+    @Benchmark
+    public void htmlReport() {
+        workerLeaseService.runAsWorkerThread(new Runnable() {
+            @Override
+            public void run() {
+                new DefaultTestReport(buildOperationExecutor).generateReport(resultsProvider, new File(reportDir, "html"));
+            }
+        });
+    }
+
+    @Benchmark
+    public void junitXmlReport() {
+        workerLeaseService.runAsWorkerThread(new Runnable() {
+            @Override
+            public void run() {
+                File xmlDir = new File(reportDir, "xml");
+                GFileUtils.mkdirs(xmlDir);
+                new Binary2JUnitXmlReportGenerator(xmlDir, resultsProvider, new JUnitXmlResultOptions(false, false), buildOperationExecutor, "localhost").generate();
+            }
+        });
+    }
+
+    private static void writeResults(File resultsDir) {
+        List<TestClassResult> results = new ArrayList<TestClassResult>(CLASS_COUNT);
+        TestOutputStore.Writer outputWriter = new TestOutputStore(resultsDir).writer();
+        long testId = 0;
+        for (int classId = 1; classId <= CLASS_COUNT; classId++) {
+            TestClassResult classResult = new TestClassResult(classId, "org.gradle.sample.p" + (classId % 20) + ".SampleTest" + classId, 0);
+            for (int i = 0; i < TESTS_PER_CLASS; i++) {
+                testId++;
+                boolean failed = i % 25 == 0;
+                TestMethodResult methodResult = new TestMethodResult(testId, "test" + i, failed ? TestResult.ResultType.FAILURE : TestResult.ResultType.SUCCESS, 10, 10);
+                if (failed) {
+                    methodResult.addFailure("expected:<1> but was:<2>", "java.lang.AssertionError: expected:<1> but was:<2>\n\tat org.gradle.sample.SampleTest.test(SampleTest.java:42)\n", "java.lang.AssertionError");
+                }
+                classResult.add(methodResult);
+                for (int line = 0; line < 20; line++) {
+                    outputWriter.onOutput(classId, testId, new DefaultTestOutputEvent(TestOutputEvent.Destination.StdOut, "Output line " + line + " of test " + i + "\n"));
+                }
+            }
+            results.add(classResult);
+        }
+        outputWriter.close();
+        new TestResultSerializer(resultsDir).write(results);
+    }
+
+    private static class NoOpBuildOperationListener implements BuildOperationListener {
+        @Override
+        public void started(BuildOperationDescriptor buildOperation, OperationStartEvent startEvent) {
+        }
+
+        @Override
+        public void progress(OperationIdentifier operationIdentifier, OperationProgressEvent progressEvent) {
+        }
+
+        @Override
+        public void finished(BuildOperationDescriptor buildOperation, OperationFinishEvent finishEvent) {
+        }
+    }
+}
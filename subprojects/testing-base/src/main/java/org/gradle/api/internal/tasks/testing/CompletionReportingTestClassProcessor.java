@@ -0,0 +1,27 @@
+/*
+ * Copyright 2021 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.api.internal.tasks.testing;
+
+/**
+ * A {@link TestClassProcessor} that notifies a {@link TestClassCompletionListener} as it finishes with each test class.
+ */
+public interface CompletionReportingTestClassProcessor extends TestClassProcessor {
+    /**
+     * Sets the listener to notify. Must be called before {@link #startProcessing(TestResultProcessor)}.
+     */
+    void setCompletionListener(TestClassCompletionListener listener);
+}
@@ -0,0 +1,34 @@
+/*
+ * Copyright 2021 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.api.internal.tasks.testing;
+
+/**
+ * Notified as a {@link TestClassProcessor} finishes with the test classes it has been given, so that more work can be handed to it.
+ */
+public interface TestClassCompletionListener {
+    /**
+     * Called when the processor has finished processing the given test class. Note that processors that defer execution
+     * until they are stopped may call this before the tests of the class have run.
+     */
+    void testClassCompleted(String testClassName);
+
+    /**
+     * Called when the processor has stopped unexpectedly, for example because its worker process has crashed.
+     * No further test classes will be completed.
+     */
+    void processorFailed();
+}
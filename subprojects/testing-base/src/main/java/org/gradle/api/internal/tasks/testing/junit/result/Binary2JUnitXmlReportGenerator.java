@@ -78,14 +78,16 @@ public BuildOperationDescriptor.Builder description() {
             }
         });
 
-        buildOperationExecutor.runAll(new Action<BuildOperationQueue<JUnitXmlReportFileGenerator>>() {
+        // Write the file for each class while the remaining results are read, so that not all results need to be held in memory
+        buildOperationExecutor.runAll(new Action<BuildOperationQueue<RunnableBuildOperation>>() {
             @Override
-            public void execute(final BuildOperationQueue<JUnitXmlReportFileGenerator> queue) {
+            public void execute(BuildOperationQueue<RunnableBuildOperation> queue) {
+                final ReportGenerationQueue generationQueue = new ReportGenerationQueue(queue, buildOperationExecutor);
                 testResultsProvider.visitClasses(new Action<TestClassResult>() {
                     @Override
                     public void execute(final TestClassResult result) {
                         final File reportFile = new File(testResultsDir, getReportFileName(result));
-                        queue.add(new JUnitXmlReportFileGenerator(result, reportFile, xmlWriter));
+                        generationQueue.add(new JUnitXmlReportFileGenerator(result, reportFile, xmlWriter));
                     }
                 });
             }
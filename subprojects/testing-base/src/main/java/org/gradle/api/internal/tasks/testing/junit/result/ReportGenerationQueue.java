@@ -0,0 +1,81 @@
+/*
+ * Copyright 2021 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.api.internal.tasks.testing.junit.result;
+
+import org.gradle.internal.operations.BuildOperationContext;
+import org.gradle.internal.operations.BuildOperationDescriptor;
+import org.gradle.internal.operations.BuildOperationExecutor;
+import org.gradle.internal.operations.BuildOperationQueue;
+import org.gradle.internal.operations.RunnableBuildOperation;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Queues the generation of report files while the results are visited, so that files are generated on the build's worker threads while the remaining results are still being read.
+ *
+ * The number of queued operations is limited. When the limit is reached, operations are run on the visiting thread instead.
+ * This keeps the visiting thread from reading all results into memory ahead of the workers.
+ */
+public class ReportGenerationQueue {
+    public static final int DEFAULT_MAX_PENDING_OPERATIONS = 200;
+
+    private final BuildOperationQueue<RunnableBuildOperation> queue;
+    private final BuildOperationExecutor buildOperationExecutor;
+    private final int maxPendingOperations;
+    private final AtomicInteger pendingOperations = new AtomicInteger();
+
+    public ReportGenerationQueue(BuildOperationQueue<RunnableBuildOperation> queue, BuildOperationExecutor buildOperationExecutor) {
+        this(queue, buildOperationExecutor, DEFAULT_MAX_PENDING_OPERATIONS);
+    }
+
+    public ReportGenerationQueue(BuildOperationQueue<RunnableBuildOperation> queue, BuildOperationExecutor buildOperationExecutor, int maxPendingOperations) {
+        this.queue = queue;
+        this.buildOperationExecutor = buildOperationExecutor;
+        this.maxPendingOperations = maxPendingOperations;
+    }
+
+    public void add(RunnableBuildOperation operation) {
+        if (pendingOperations.incrementAndGet() > maxPendingOperations) {
+            pendingOperations.decrementAndGet();
+            buildOperationExecutor.run(operation);
+        } else {
+            queue.add(new PendingOperation(operation));
+        }
+    }
+
+    private class PendingOperation implements RunnableBuildOperation {
+        private final RunnableBuildOperation delegate;
+
+        PendingOperation(RunnableBuildOperation delegate) {
+            this.delegate = delegate;
+        }
+
+        @Override
+        public void run(BuildOperationContext context) throws Exception {
+            try {
+                delegate.run(context);
+            } finally {
+                pendingOperations.decrementAndGet();
+            }
+        }
+
+        @Override
+        public BuildOperationDescriptor.Builder description() {
+            return delegate.description();
+        }
+    }
+}
@@ -16,6 +16,8 @@
 
 package org.gradle.api.internal.tasks.testing.processors;
 
+import org.gradle.api.internal.tasks.testing.CompletionReportingTestClassProcessor;
+import org.gradle.api.internal.tasks.testing.TestClassCompletionListener;
 import org.gradle.api.internal.tasks.testing.TestClassProcessor;
 import org.gradle.api.internal.tasks.testing.TestClassRunInfo;
 import org.gradle.api.internal.tasks.testing.TestResultProcessor;
@@ -26,20 +28,34 @@
 import org.gradle.internal.concurrent.CompositeStoppable;
 import org.gradle.internal.dispatch.DispatchException;
 
+import java.util.ArrayDeque;
 import java.util.ArrayList;
+import java.util.Deque;
 import java.util.List;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
 
 /**
- * Manages a set of parallel TestClassProcessors. Uses a simple round-robin algorithm to assign test classes to
- * processors.
+ * Manages a set of parallel TestClassProcessors.
+ *
+ * <p>Test classes are put on a shared queue, in the order they are received. Processors that report when they have finished
+ * with a test class (see {@link CompletionReportingTestClassProcessor}) pull the next test class from the queue once they are idle,
+ * so that a processor that has been given a slow test class does not accumulate further work while the others sit idle.
+ * Other processors are assigned test classes using a simple round-robin algorithm.</p>
+ *
+ * <p>Because test classes are pulled as processors become idle, {@link #stop()} blocks until the queue has been drained.</p>
  */
 public class MaxNParallelTestClassProcessor implements TestClassProcessor {
     private final int maxProcessors;
     private final Factory<TestClassProcessor> factory;
     private final ActorFactory actorFactory;
+    private final Lock lock = new ReentrantLock();
+    private final Condition stateChanged = lock.newCondition();
+    private final Deque<TestClassRunInfo> pendingTestClasses = new ArrayDeque<TestClassRunInfo>();
     private TestResultProcessor resultProcessor;
     private int pos;
-    private List<TestClassProcessor> processors = new ArrayList<TestClassProcessor>();
+    private List<ProcessorState> processors = new ArrayList<ProcessorState>();
     private List<TestClassProcessor> rawProcessors = new ArrayList<TestClassProcessor>();
     private List<Actor> actors = new ArrayList<Actor>();
     private Actor resultProcessorActor;
@@ -64,26 +80,97 @@ public void processTestClass(TestClassRunInfo testClass) {
             return;
         }
 
-        TestClassProcessor processor;
+        lock.lock();
+        try {
+            pendingTestClasses.add(testClass);
+            dispatchPendingTestClasses();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Hands pending test classes to processors which can accept them. Must be called while holding the lock.
+     */
+    private void dispatchPendingTestClasses() {
+        while (!pendingTestClasses.isEmpty() && !stoppedNow) {
+            ProcessorState processor = selectProcessor();
+            if (processor == null) {
+                return;
+            }
+            processor.process(pendingTestClasses.removeFirst());
+        }
+    }
+
+    private ProcessorState selectProcessor() {
         if (processors.size() < maxProcessors) {
-            processor = factory.create();
-            rawProcessors.add(processor);
-            Actor actor = actorFactory.createActor(processor);
-            processor = actor.getProxy(TestClassProcessor.class);
-            actors.add(actor);
-            processors.add(processor);
-            processor.startProcessing(resultProcessor);
-        } else {
-            processor = processors.get(pos);
+            return startProcessor();
+        }
+        for (int i = 0; i < processors.size(); i++) {
+            ProcessorState processor = processors.get(pos);
             pos = (pos + 1) % processors.size();
+            if (processor.canAccept()) {
+                return processor;
+            }
+        }
+        if (!hasAvailableProcessors()) {
+            // All processors that report completion have failed. Fall back to round-robin, so that the failure is reported when the processors are stopped
+            ProcessorState processor = processors.get(pos);
+            pos = (pos + 1) % processors.size();
+            return processor;
+        }
+        return null;
+    }
+
+    private boolean hasAvailableProcessors() {
+        for (ProcessorState processor : processors) {
+            if (!processor.failed) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private ProcessorState startProcessor() {
+        TestClassProcessor processor = factory.create();
+        ProcessorState state = new ProcessorState(processor instanceof CompletionReportingTestClassProcessor);
+        if (state.reportsCompletion) {
+            ((CompletionReportingTestClassProcessor) processor).setCompletionListener(state);
+        }
+        rawProcessors.add(processor);
+        Actor actor = actorFactory.createActor(processor);
+        state.processor = actor.getProxy(TestClassProcessor.class);
+        actors.add(actor);
+        processors.add(state);
+        state.processor.startProcessing(resultProcessor);
+        return state;
+    }
+
+    private void awaitPendingTestClassesDispatched() {
+        lock.lock();
+        try {
+            while (!pendingTestClasses.isEmpty() && !stoppedNow) {
+                try {
+                    stateChanged.await();
+                } catch (InterruptedException e) {
+                    throw UncheckedException.throwAsUncheckedException(e);
+                }
+            }
+            pendingTestClasses.clear();
+        } finally {
+            lock.unlock();
         }
-        processor.processTestClass(testClass);
     }
 
     @Override
     public void stop() {
+        awaitPendingTestClassesDispatched();
+        List<TestClassProcessor> asyncProcessors = new ArrayList<TestClassProcessor>();
+        for (ProcessorState processor : processors) {
+            asyncProcessors.add(processor.processor);
+        }
         try {
-            CompositeStoppable.stoppable(processors).add(actors).add(resultProcessorActor).stop();
+            CompositeStoppable.stoppable(asyncProcessors).add(actors).add(resultProcessorActor).stop();
         } catch (DispatchException e) {
             throw UncheckedException.throwAsUncheckedException(e.getCause());
         }
@@ -92,8 +179,61 @@ public void stop() {
     @Override
     public void stopNow() {
         stoppedNow = true;
+        lock.lock();
+        try {
+            stateChanged.signalAll();
+        } finally {
+            lock.unlock();
+        }
         for (TestClassProcessor processor : rawProcessors) {
             processor.stopNow();
         }
     }
+
+    /**
+     * Tracks the work given to a single processor. Completion notifications arrive on other threads.
+     */
+    private class ProcessorState implements TestClassCompletionListener {
+        private final boolean reportsCompletion;
+        private TestClassProcessor processor;
+        private int inFlight;
+        private boolean failed;
+
+        ProcessorState(boolean reportsCompletion) {
+            this.reportsCompletion = reportsCompletion;
+        }
+
+        boolean canAccept() {
+            return !reportsCompletion || (!failed && inFlight == 0);
+        }
+
+        void process(TestClassRunInfo testClass) {
+            inFlight++;
+            processor.processTestClass(testClass);
+        }
+
+        @Override
+        public void testClassCompleted(String testClassName) {
+            lock.lock();
+            try {
+                inFlight--;
+                dispatchPendingTestClasses();
+                stateChanged.signalAll();
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        @Override
+        public void processorFailed() {
+            lock.lock();
+            try {
+                failed = true;
+                dispatchPendingTestClasses();
+                stateChanged.signalAll();
+            } finally {
+                lock.unlock();
+            }
+        }
+    }
 }
@@ -16,16 +16,19 @@
 
 package org.gradle.api.internal.tasks.testing.processors;
 
+import org.gradle.api.internal.tasks.testing.CompletionReportingTestClassProcessor;
+import org.gradle.api.internal.tasks.testing.TestClassCompletionListener;
 import org.gradle.api.internal.tasks.testing.TestClassProcessor;
 import org.gradle.api.internal.tasks.testing.TestClassRunInfo;
 import org.gradle.api.internal.tasks.testing.TestResultProcessor;
 import org.gradle.internal.Factory;
 
-public class RestartEveryNTestClassProcessor implements TestClassProcessor {
+public class RestartEveryNTestClassProcessor implements CompletionReportingTestClassProcessor {
     private final Factory<TestClassProcessor> factory;
     private final long restartEvery;
     private long testCount;
     private TestResultProcessor resultProcessor;
+    private TestClassCompletionListener completionListener;
     private volatile boolean stoppedNow;
     private volatile TestClassProcessor processor;
 
@@ -34,6 +37,11 @@ public RestartEveryNTestClassProcessor(Factory<TestClassProcessor> factory, long
         this.restartEvery = restartEvery;
     }
 
+    @Override
+    public void setCompletionListener(TestClassCompletionListener completionListener) {
+        this.completionListener = completionListener;
+    }
+
     @Override
     public void startProcessing(TestResultProcessor resultProcessor) {
         this.resultProcessor = resultProcessor;
@@ -47,6 +55,9 @@ public void processTestClass(TestClassRunInfo testClass) {
 
         if (processor == null) {
             processor = factory.create();
+            if (completionListener != null) {
+                ((CompletionReportingTestClassProcessor) processor).setCompletionListener(completionListener);
+            }
             processor.startProcessing(resultProcessor);
         }
         processor.processTestClass(testClass);
@@ -0,0 +1,82 @@
+/*
+ * Copyright 2021 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.api.internal.tasks.testing.processors;
+
+import org.gradle.api.internal.tasks.testing.TestClassProcessor;
+import org.gradle.api.internal.tasks.testing.TestClassRunInfo;
+import org.gradle.api.internal.tasks.testing.TestResultProcessor;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Passes test classes to its delegate ordered by how long they took in the previous run, longest first, so that slow
+ * test classes are not left for the end of a parallel test run. Test classes without a previous duration are passed on
+ * as soon as they are received, as nothing is known about how long they take. The other test classes are held back until
+ * all test classes have been received.
+ */
+public class RunLongestFirstTestClassProcessor implements TestClassProcessor {
+    private final Map<String, Long> previousDurations;
+    private final TestClassProcessor delegate;
+    private final List<TestClassRunInfo> testClasses = new ArrayList<TestClassRunInfo>();
+
+    public RunLongestFirstTestClassProcessor(Map<String, Long> previousDurations, TestClassProcessor delegate) {
+        this.previousDurations = previousDurations;
+        this.delegate = delegate;
+    }
+
+    @Override
+    public void startProcessing(TestResultProcessor resultProcessor) {
+        delegate.startProcessing(resultProcessor);
+    }
+
+    @Override
+    public void processTestClass(TestClassRunInfo testClass) {
+        if (previousDurations.containsKey(testClass.getTestClassName())) {
+            testClasses.add(testClass);
+        } else {
+            delegate.processTestClass(testClass);
+        }
+    }
+
+    @Override
+    public void stop() {
+        // The sort is stable, so test classes with equal durations keep the order they were received in
+        Collections.sort(testClasses, new Comparator<TestClassRunInfo>() {
+            @Override
+            public int compare(TestClassRunInfo left, TestClassRunInfo right) {
+                return Long.compare(previousDuration(right), previousDuration(left));
+            }
+        });
+        for (TestClassRunInfo testClass : testClasses) {
+            delegate.processTestClass(testClass);
+        }
+        delegate.stop();
+    }
+
+    private long previousDuration(TestClassRunInfo testClass) {
+        return previousDurations.get(testClass.getTestClassName());
+    }
+
+    @Override
+    public void stopNow() {
+        delegate.stopNow();
+    }
+}
@@ -0,0 +1,221 @@
+/*
+ * Copyright 2021 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.api.internal.tasks.testing.report;
+
+import org.gradle.api.UncheckedIOException;
+import org.gradle.api.internal.tasks.testing.junit.result.TestClassResult;
+import org.gradle.api.internal.tasks.testing.junit.result.TestFailure;
+import org.gradle.api.internal.tasks.testing.junit.result.TestMethodResult;
+import org.gradle.api.internal.tasks.testing.junit.result.TestResultsProvider;
+import org.gradle.api.tasks.testing.TestOutputEvent;
+import org.gradle.internal.hash.HashCode;
+import org.gradle.internal.hash.Hasher;
+import org.gradle.internal.hash.Hashing;
+import org.gradle.util.GradleVersion;
+import org.gradle.util.internal.GFileUtils;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.Writer;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Keeps track of the inputs of the class pages in a report directory, so that pages whose inputs have not changed since the previous report are not rendered again.
+ *
+ * The inputs of a class page are the results of the class and the output of its tests. The index is only written once all pages have been rendered, so an incomplete report is rendered from scratch.
+ */
+class ClassPageIndex {
+    private static final int VERSION = 1;
+    private static final String INDEX_FILE_NAME = "classes/.page-index.bin";
+
+    private final File reportDir;
+    private final Map<String, HashCode> previousHashes;
+    private final ConcurrentMap<String, HashCode> currentHashes = new ConcurrentHashMap<String, HashCode>();
+
+    private ClassPageIndex(File reportDir, Map<String, HashCode> previousHashes) {
+        this.reportDir = reportDir;
+        this.previousHashes = previousHashes;
+    }
+
+    /**
+     * Loads the index of the previous report in the given directory and removes it from the directory.
+     * Returns {@code null} when there is no usable index, in which case the previous pages cannot be reused.
+     */
+    static ClassPageIndex load(File reportDir) {
+        File indexFile = new File(reportDir, INDEX_FILE_NAME);
+        if (!indexFile.isFile()) {
+            return null;
+        }
+        try {
+            Map<String, HashCode> hashes = read(indexFile);
+            return hashes == null ? null : new ClassPageIndex(reportDir, hashes);
+        } catch (IOException e) {
+            return null;
+        } finally {
+            GFileUtils.deleteQuietly(indexFile);
+        }
+    }
+
+    static ClassPageIndex empty(File reportDir) {
+        return new ClassPageIndex(reportDir, Collections.<String, HashCode>emptyMap());
+    }
+
+    private static Map<String, HashCode> read(File indexFile) throws IOException {
+        DataInputStream input = new DataInputStream(new BufferedInputStream(new FileInputStream(indexFile)));
+        try {
+            if (input.readInt() != VERSION || !input.readUTF().equals(GradleVersion.current().getVersion())) {
+                return null;
+            }
+            int count = input.readInt();
+            Map<String, HashCode> hashes = new HashMap<String, HashCode>(count);
+            for (int i = 0; i < count; i++) {
+                String pageUrl = input.readUTF();
+                byte[] hash = new byte[input.readUnsignedByte()];
+                input.readFully(hash);
+                hashes.put(pageUrl, HashCode.fromBytes(hash));
+            }
+            return hashes;
+        } finally {
+            input.close();
+        }
+    }
+
+    /**
+     * Starts hashing the inputs of a class page with the results of the class. The output of the class is added by {@link #hashOutput(Hasher, long, TestResultsProvider)}.
+     */
+    static Hasher hashResults(TestClassResult classResult) {
+        Hasher hasher = Hashing.newHasher();
+        hasher.putString(classResult.getClassName());
+        hasher.putString(classResult.getClassDisplayName());
+        hasher.putInt(classResult.getResults().size());
+        for (TestMethodResult methodResult : classResult.getResults()) {
+            hasher.putString(methodResult.getName());
+            putNullableString(hasher, methodResult.getDisplayName());
+            hasher.putInt(methodResult.getResultType().ordinal());
+            hasher.putLong(methodResult.getDuration());
+            hasher.putInt(methodResult.getFailures().size());
+            for (TestFailure failure : methodResult.getFailures()) {
+                putNullableString(hasher, failure.getExceptionType());
+                putNullableString(hasher, failure.getMessage());
+                putNullableString(hasher, failure.getStackTrace());
+            }
+        }
+        return hasher;
+    }
+
+    private static void putNullableString(Hasher hasher, String value) {
+        if (value == null) {
+            hasher.putNull();
+        } else {
+            hasher.putString(value);
+        }
+    }
+
+    static HashCode hashOutput(Hasher hasher, long classId, TestResultsProvider resultsProvider) {
+        for (TestOutputEvent.Destination destination : TestOutputEvent.Destination.values()) {
+            hasher.putInt(destination.ordinal());
+            if (resultsProvider.hasOutput(classId, destination)) {
+                HashingWriter writer = new HashingWriter(hasher);
+                resultsProvider.writeAllOutput(classId, destination, writer);
+                writer.close();
+            }
+        }
+        return hasher.hash();
+    }
+
+    /**
+     * Records the hash of the inputs of the given page, and returns whether the page from the previous report can be kept.
+     */
+    boolean recordAndCheckUpToDate(String pageUrl, HashCode hash) {
+        currentHashes.put(pageUrl, hash);
+        return hash.equals(previousHashes.get(pageUrl)) && new File(reportDir, pageUrl).isFile();
+    }
+
+    /**
+     * Removes the class pages of the previous report that are not part of this report.
+     */
+    void removeStalePages() {
+        File[] pages = new File(reportDir, "classes").listFiles();
+        if (pages == null) {
+            return;
+        }
+        for (File page : pages) {
+            if (page.getName().endsWith(".html") && !currentHashes.containsKey("classes/" + page.getName())) {
+                GFileUtils.deleteQuietly(page);
+            }
+        }
+    }
+
+    void write() {
+        File indexFile = new File(reportDir, INDEX_FILE_NAME);
+        try {
+            GFileUtils.mkdirs(indexFile.getParentFile());
+            DataOutputStream output = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(indexFile)));
+            try {
+                output.writeInt(VERSION);
+                output.writeUTF(GradleVersion.current().getVersion());
+                output.writeInt(currentHashes.size());
+                for (Map.Entry<String, HashCode> entry : currentHashes.entrySet()) {
+                    output.writeUTF(entry.getKey());
+                    byte[] hash = entry.getValue().toByteArray();
+                    output.writeByte(hash.length);
+                    output.write(hash);
+                }
+            } finally {
+                output.close();
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private static class HashingWriter extends Writer {
+        private final Hasher hasher;
+
+        HashingWriter(Hasher hasher) {
+            this.hasher = hasher;
+        }
+
+        @Override
+        public void write(char[] chars, int off, int len) {
+            hasher.putString(new String(chars, off, len));
+        }
+
+        @Override
+        public void write(String str, int off, int len) {
+            hasher.putString(str.substring(off, off + len));
+        }
+
+        @Override
+        public void flush() {
+        }
+
+        @Override
+        public void close() {
+        }
+    }
+}
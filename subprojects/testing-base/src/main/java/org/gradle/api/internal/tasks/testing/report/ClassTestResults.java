@@ -91,6 +91,14 @@ public Collection<TestResult> getTestResults() {
         return results;
     }
 
+    /**
+     * Discards the results of the individual tests once the page of this class has been rendered.
+     * The totals are kept, as well as the failed and ignored tests, which are also referenced by the package and overview pages.
+     */
+    public void discardTestResults() {
+        results.clear();
+    }
+
     public TestResult addTest(String testName, String testDisplayName, long duration) {
         TestResult test = new TestResult(testName, testDisplayName, duration, this);
         results.add(test);
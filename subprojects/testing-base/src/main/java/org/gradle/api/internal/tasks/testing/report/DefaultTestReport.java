@@ -17,12 +17,15 @@
 
 import org.gradle.api.Action;
 import org.gradle.api.GradleException;
+import org.gradle.api.internal.tasks.testing.junit.result.ReportGenerationQueue;
 import org.gradle.api.internal.tasks.testing.junit.result.TestClassResult;
 import org.gradle.api.internal.tasks.testing.junit.result.TestFailure;
 import org.gradle.api.internal.tasks.testing.junit.result.TestMethodResult;
 import org.gradle.api.internal.tasks.testing.junit.result.TestResultsProvider;
 import org.gradle.api.logging.Logger;
 import org.gradle.api.logging.Logging;
+import org.gradle.internal.hash.HashCode;
+import org.gradle.internal.hash.Hasher;
 import org.gradle.internal.operations.BuildOperationContext;
 import org.gradle.internal.operations.BuildOperationExecutor;
 import org.gradle.internal.operations.BuildOperationQueue;
@@ -54,43 +57,39 @@ public void generateReport(TestResultsProvider resultsProvider, File reportDir)
         LOG.info("Generating HTML test report...");
 
         Timer clock = Time.startTimer();
-        AllTestResults model = loadModelFromProvider(resultsProvider);
-        generateFiles(model, resultsProvider, reportDir);
+        generateFiles(resultsProvider, reportDir);
         LOG.info("Finished generating test html results ({}) into: {}", clock.getElapsed(), reportDir);
     }
 
-    private AllTestResults loadModelFromProvider(TestResultsProvider resultsProvider) {
-        final AllTestResults model = new AllTestResults();
-        resultsProvider.visitClasses(new Action<TestClassResult>() {
-            @Override
-            public void execute(TestClassResult classResult) {
-                model.addTestClass(classResult.getId(), classResult.getClassName(), classResult.getClassDisplayName());
-                List<TestMethodResult> collectedResults = classResult.getResults();
-                for (TestMethodResult collectedResult : collectedResults) {
-                    final TestResult testResult = model.addTest(classResult.getId(), classResult.getClassName(), classResult.getClassDisplayName(), collectedResult.getName(), collectedResult.getDisplayName(), collectedResult.getDuration());
-                    if (collectedResult.getResultType() == SKIPPED) {
-                        testResult.setIgnored();
-                    } else {
-                        List<TestFailure> failures = collectedResult.getFailures();
-                        for (TestFailure failure : failures) {
-                            testResult.addFailure(failure);
-                        }
-                    }
+    private static ClassTestResults addClassToModel(AllTestResults model, TestClassResult classResult) {
+        ClassTestResults classResults = model.addTestClass(classResult.getId(), classResult.getClassName(), classResult.getClassDisplayName());
+        List<TestMethodResult> collectedResults = classResult.getResults();
+        for (TestMethodResult collectedResult : collectedResults) {
+            final TestResult testResult = model.addTest(classResult.getId(), classResult.getClassName(), classResult.getClassDisplayName(), collectedResult.getName(), collectedResult.getDisplayName(), collectedResult.getDuration());
+            if (collectedResult.getResultType() == SKIPPED) {
+                testResult.setIgnored();
+            } else {
+                List<TestFailure> failures = collectedResult.getFailures();
+                for (TestFailure failure : failures) {
+                    testResult.addFailure(failure);
                 }
             }
-        });
-        return model;
+        }
+        return classResults;
     }
 
-    private void generateFiles(AllTestResults model, final TestResultsProvider resultsProvider, final File reportDir) {
+    private void generateFiles(final TestResultsProvider resultsProvider, final File reportDir) {
         try {
             HtmlReportRenderer htmlRenderer = new HtmlReportRenderer();
+            final ClassPageIndex previousClassPages = ClassPageIndex.load(reportDir);
             buildOperationExecutor.run(new RunnableBuildOperation() {
                 @Override
                 public void run(BuildOperationContext context) {
-                    // Clean-up old HTML report directories
+                    // Clean-up old HTML report directories. Class pages are only kept when it is known which results they were rendered from.
                     GFileUtils.deleteQuietly(new File(reportDir, "packages"));
-                    GFileUtils.deleteQuietly(new File(reportDir, "classes"));
+                    if (previousClassPages == null) {
+                        GFileUtils.deleteQuietly(new File(reportDir, "classes"));
+                    }
                 }
 
                 @Override
@@ -99,21 +98,37 @@ public BuildOperationDescriptor.Builder description() {
                 }
             });
 
-            htmlRenderer.render(model, new ReportRenderer<AllTestResults, HtmlReportBuilder>() {
+            final ClassPageIndex classPages = previousClassPages == null ? ClassPageIndex.empty(reportDir) : previousClassPages;
+            htmlRenderer.render(new AllTestResults(), new ReportRenderer<AllTestResults, HtmlReportBuilder>() {
                 @Override
                 public void render(final AllTestResults model, final HtmlReportBuilder output) throws IOException {
+                    // Render the page of each class while the remaining results are read. Once a class page is rendered,
+                    // only the totals and the failed and ignored tests of the class are kept for the package and overview pages.
+                    buildOperationExecutor.runAll(new Action<BuildOperationQueue<RunnableBuildOperation>>() {
+                        @Override
+                        public void execute(BuildOperationQueue<RunnableBuildOperation> queue) {
+                            final ReportGenerationQueue generationQueue = new ReportGenerationQueue(queue, buildOperationExecutor);
+                            resultsProvider.visitClasses(new Action<TestClassResult>() {
+                                @Override
+                                public void execute(TestClassResult classResult) {
+                                    ClassTestResults classResults = addClassToModel(model, classResult);
+                                    Hasher inputsHasher = ClassPageIndex.hashResults(classResult);
+                                    generationQueue.add(new ClassPageFileGenerator(classResults, new ClassPageRenderer(resultsProvider), output, resultsProvider, classPages, inputsHasher));
+                                }
+                            });
+                        }
+                    });
+                    classPages.removeStalePages();
                     buildOperationExecutor.runAll(new Action<BuildOperationQueue<HtmlReportFileGenerator<? extends CompositeTestResults>>>() {
                         @Override
                         public void execute(BuildOperationQueue<HtmlReportFileGenerator<? extends CompositeTestResults>> queue) {
                             queue.add(generator("index.html", model, new OverviewPageRenderer(), output));
                             for (PackageTestResults packageResults : model.getPackages()) {
                                 queue.add(generator(packageResults.getBaseUrl(), packageResults, new PackagePageRenderer(), output));
-                                for (ClassTestResults classResults : packageResults.getClasses()) {
-                                    queue.add(generator(classResults.getBaseUrl(), classResults, new ClassPageRenderer(resultsProvider), output));
-                                }
                             }
                         }
                     });
+                    classPages.write();
                 }
             }, reportDir);
         } catch (Exception e) {
@@ -148,4 +163,28 @@ public void run(BuildOperationContext context) {
             output.renderHtmlPage(fileUrl, results, renderer);
         }
     }
+
+    private static class ClassPageFileGenerator extends HtmlReportFileGenerator<ClassTestResults> {
+        private final ClassTestResults results;
+        private final TestResultsProvider resultsProvider;
+        private final ClassPageIndex classPages;
+        private final Hasher inputsHasher;
+
+        ClassPageFileGenerator(ClassTestResults results, ClassPageRenderer renderer, HtmlReportBuilder output, TestResultsProvider resultsProvider, ClassPageIndex classPages, Hasher inputsHasher) {
+            super(results.getBaseUrl(), results, renderer, output);
+            this.results = results;
+            this.resultsProvider = resultsProvider;
+            this.classPages = classPages;
+            this.inputsHasher = inputsHasher;
+        }
+
+        @Override
+        public void run(BuildOperationContext context) {
+            HashCode inputsHash = ClassPageIndex.hashOutput(inputsHasher, results.getId(), resultsProvider);
+            if (!classPages.recordAndCheckUpToDate(results.getBaseUrl(), inputsHash)) {
+                super.run(context);
+            }
+            results.discardTestResults();
+        }
+    }
 }
@@ -19,10 +19,12 @@
 import org.gradle.api.Action;
 import org.gradle.api.internal.DocumentationRegistry;
 import org.gradle.api.internal.classpath.ModuleRegistry;
-import org.gradle.api.internal.tasks.testing.TestClassProcessor;
+import org.gradle.api.internal.tasks.testing.CompletionReportingTestClassProcessor;
+import org.gradle.api.internal.tasks.testing.TestClassCompletionListener;
 import org.gradle.api.internal.tasks.testing.TestClassRunInfo;
 import org.gradle.api.internal.tasks.testing.TestResultProcessor;
 import org.gradle.api.internal.tasks.testing.WorkerTestClassProcessorFactory;
+import org.gradle.internal.dispatch.StreamCompletion;
 import org.gradle.internal.remote.ObjectConnection;
 import org.gradle.internal.work.WorkerLeaseRegistry;
 import org.gradle.process.JavaForkOptions;
@@ -31,7 +33,9 @@
 import org.gradle.process.internal.worker.WorkerProcessBuilder;
 import org.gradle.process.internal.worker.WorkerProcessFactory;
 import org.gradle.util.internal.CollectionUtils;
+import org.gradle.util.internal.GUtil;
 
+import javax.annotation.Nullable;
 import java.io.File;
 import java.net.URL;
 import java.util.ArrayList;
@@ -39,7 +43,7 @@
 import java.util.concurrent.locks.Lock;
 import java.util.concurrent.locks.ReentrantLock;
 
-public class ForkingTestClassProcessor implements TestClassProcessor {
+public class ForkingTestClassProcessor implements CompletionReportingTestClassProcessor {
     private final WorkerProcessFactory workerFactory;
     private final WorkerTestClassProcessorFactory processorFactory;
     private final JavaForkOptions options;
@@ -50,17 +54,34 @@ public class ForkingTestClassProcessor implements TestClassProcessor {
     private final ModuleRegistry moduleRegistry;
     private final Lock lock = new ReentrantLock();
     private final WorkerLeaseRegistry workerLeaseRegistry;
+    private final TestWorkerPool workerPool;
     private RemoteTestClassProcessor remoteProcessor;
     private WorkerProcess workerProcess;
+    private PooledTestWorker pooledWorker;
     private TestResultProcessor resultProcessor;
     private WorkerLeaseRegistry.WorkerLeaseCompletion completion;
     private final DocumentationRegistry documentationRegistry;
-    private boolean stoppedNow;
+    private TestClassCompletionListener completionListener;
+    private volatile boolean stopping;
+    private volatile boolean stoppedNow;
 
     public ForkingTestClassProcessor(
         WorkerLeaseRegistry workerLeaseRegistry, WorkerProcessFactory workerFactory, WorkerTestClassProcessorFactory processorFactory, JavaForkOptions options,
         Iterable<File> classPath, Iterable<File> modulePath, List<String> testWorkerImplementationModules,
         Action<WorkerProcessBuilder> buildConfigAction, ModuleRegistry moduleRegistry, DocumentationRegistry documentationRegistry
+    ) {
+        this(workerLeaseRegistry, workerFactory, processorFactory, options, classPath, modulePath, testWorkerImplementationModules, buildConfigAction, moduleRegistry, documentationRegistry, null);
+    }
+
+    /**
+     * @param workerPool the pool to take the worker process from and return it to, or {@code null} to start a new worker process which is stopped with this processor.
+     * The pool is only used when the tests do not run as a module.
+     */
+    public ForkingTestClassProcessor(
+        WorkerLeaseRegistry workerLeaseRegistry, WorkerProcessFactory workerFactory, WorkerTestClassProcessorFactory processorFactory, JavaForkOptions options,
+        Iterable<File> classPath, Iterable<File> modulePath, List<String> testWorkerImplementationModules,
+        Action<WorkerProcessBuilder> buildConfigAction, ModuleRegistry moduleRegistry, DocumentationRegistry documentationRegistry,
+        @Nullable TestWorkerPool workerPool
     ) {
         this.workerLeaseRegistry = workerLeaseRegistry;
         this.workerFactory = workerFactory;
@@ -72,6 +93,12 @@ public ForkingTestClassProcessor(
         this.buildConfigAction = buildConfigAction;
         this.moduleRegistry = moduleRegistry;
         this.documentationRegistry = documentationRegistry;
+        this.workerPool = modulePath.iterator().hasNext() ? null : workerPool;
+    }
+
+    @Override
+    public void setCompletionListener(TestClassCompletionListener completionListener) {
+        this.completionListener = completionListener;
     }
 
     @Override
@@ -87,18 +114,30 @@ public void processTestClass(TestClassRunInfo testClass) {
                 return;
             }
 
-            if (remoteProcessor == null) {
+            if (remoteProcessor == null && pooledWorker == null) {
                 completion = workerLeaseRegistry.startWorker();
                 try {
-                    remoteProcessor = forkProcess();
+                    if (workerPool != null) {
+                        pooledWorker = startPooledWorkerSession();
+                    } else {
+                        remoteProcessor = forkProcess();
+                    }
                 } catch (RuntimeException e) {
                     completion.leaseFinish();
                     completion = null;
+                    // Tell the owner that this processor cannot take any test classes, so that it does not wait for their completion
+                    if (completionListener != null) {
+                        completionListener.processorFailed();
+                    }
                     throw e;
                 }
             }
 
-            remoteProcessor.processTestClass(testClass);
+            if (pooledWorker != null) {
+                pooledWorker.processTestClass(testClass);
+            } else {
+                remoteProcessor.processTestClass(testClass);
+            }
         } finally {
             lock.unlock();
         }
@@ -121,12 +160,56 @@ RemoteTestClassProcessor forkProcess() {
         ObjectConnection connection = workerProcess.getConnection();
         connection.useParameterSerializers(TestEventSerializer.create());
         connection.addIncoming(TestResultProcessor.class, resultProcessor);
+        connection.addIncoming(TestClassCompletionListener.class, new WorkerCompletionListener());
         RemoteTestClassProcessor remoteProcessor = connection.addOutgoing(RemoteTestClassProcessor.class);
         connection.connect();
         remoteProcessor.startProcessing();
         return remoteProcessor;
     }
 
+    PooledTestWorker startPooledWorkerSession() {
+        List<URL> implementationClasspath = getTestWorkerImplementationClasspath();
+        WorkerProcessBuilder builder = workerFactory.create(new ReusableTestWorker());
+        builder.setBaseName("Gradle Test Executor");
+        builder.setImplementationClasspath(implementationClasspath);
+        options.copyTo(builder.getJavaCommand());
+        builder.getJavaCommand().jvmArgs("-Dorg.gradle.native=false");
+        buildConfigAction.execute(builder);
+
+        TestWorkerPool.WorkerKey key = TestWorkerPool.WorkerKey.of(builder, implementationClasspath);
+        PooledTestWorker worker = workerPool.reserveIdleWorker(key);
+        if (worker == null) {
+            WorkerProcess workerProcess = builder.build();
+            workerProcess.start();
+            worker = new PooledTestWorker(key, workerProcess);
+        }
+
+        Object workerTmpDir = options.getSystemProperties().get(TestWorker.WORKER_TMPDIR_SYS_PROPERTY);
+        TestWorkerSessionSpec spec = new TestWorkerSessionSpec(
+            new ArrayList<File>(CollectionUtils.toList(classPath)),
+            getTestFrameworkImplementationClasspath(),
+            new ArrayList<String>(builder.getSharedPackages()),
+            GUtil.serialize(processorFactory),
+            workerTmpDir == null ? null : workerTmpDir.toString(),
+            builder.getJavaCommand().getWorkingDir()
+        );
+        worker.startSession(spec, resultProcessor, new WorkerCompletionListener());
+        return worker;
+    }
+
+    /**
+     * The classes the test framework adapters link against when the test runtime classpath does not provide them,
+     * which are loaded for each session of a pooled worker.
+     */
+    List<URL> getTestFrameworkImplementationClasspath() {
+        return CollectionUtils.flattenCollections(URL.class,
+            moduleRegistry.getModule("gradle-testing-jvm").getImplementationClasspath().getAsURLs(),
+            moduleRegistry.getModule("gradle-testing-junit-platform").getImplementationClasspath().getAsURLs(),
+            moduleRegistry.getExternalModule("junit").getImplementationClasspath().getAsURLs(),
+            getTestWorkerImplementationModulePath()
+        );
+    }
+
     List<URL> getTestWorkerImplementationClasspath() {
         return CollectionUtils.flattenCollections(URL.class,
             moduleRegistry.getModule("gradle-core-api").getImplementationClasspath().getAsURLs(),
@@ -166,8 +249,11 @@ List<URL> getTestWorkerImplementationModulePath() {
 
     @Override
     public void stop() {
+        stopping = true;
         try {
-            if (remoteProcessor != null) {
+            if (pooledWorker != null) {
+                stopPooledWorkerSession();
+            } else if (remoteProcessor != null) {
                 lock.lock();
                 try {
                     if (!stoppedNow) {
@@ -192,16 +278,59 @@ public void stop() {
         }
     }
 
+    private void stopPooledWorkerSession() {
+        lock.lock();
+        try {
+            if (!stoppedNow) {
+                pooledWorker.endSession();
+            }
+        } finally {
+            lock.unlock();
+        }
+        if (pooledWorker.waitForSessionEnd()) {
+            workerPool.release(pooledWorker);
+        } else {
+            // The worker process has gone away, collect its exit value
+            pooledWorker.getWorkerProcess().waitForStop();
+        }
+    }
+
     @Override
     public void stopNow() {
         lock.lock();
         try {
             stoppedNow = true;
-            if (remoteProcessor != null) {
+            if (pooledWorker != null) {
+                pooledWorker.stopNow();
+            } else if (remoteProcessor != null) {
                 workerProcess.stopNow();
             }
         } finally {
             lock.unlock();
         }
     }
+
+    /**
+     * Forwards the acknowledgements of the worker process, and reports a failure when the worker goes away without being stopped.
+     */
+    private class WorkerCompletionListener implements TestClassCompletionListener, StreamCompletion {
+        @Override
+        public void testClassCompleted(String testClassName) {
+            if (completionListener != null) {
+                completionListener.testClassCompleted(testClassName);
+            }
+        }
+
+        @Override
+        public void processorFailed() {
+            if (completionListener != null && !stopping && !stoppedNow) {
+                completionListener.processorFailed();
+            }
+        }
+
+        @Override
+        public void endStream() {
+            processorFailed();
+        }
+    }
 }
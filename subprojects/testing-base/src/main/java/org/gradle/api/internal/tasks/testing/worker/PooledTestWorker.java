@@ -0,0 +1,207 @@
+/*
+ * Copyright 2021 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.api.internal.tasks.testing.worker;
+
+import org.gradle.api.internal.tasks.testing.TestClassCompletionListener;
+import org.gradle.api.internal.tasks.testing.TestClassRunInfo;
+import org.gradle.api.internal.tasks.testing.TestCompleteEvent;
+import org.gradle.api.internal.tasks.testing.TestDescriptorInternal;
+import org.gradle.api.internal.tasks.testing.TestResultProcessor;
+import org.gradle.api.internal.tasks.testing.TestStartEvent;
+import org.gradle.api.tasks.testing.TestOutputEvent;
+import org.gradle.internal.concurrent.Stoppable;
+import org.gradle.internal.dispatch.StreamCompletion;
+import org.gradle.internal.remote.ObjectConnection;
+import org.gradle.process.internal.worker.WorkerProcess;
+
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * A worker process running a {@link ReusableTestWorker}, as seen from the build process.
+ * Forwards the events of the current session to the result processor and completion listener of the session.
+ */
+class PooledTestWorker implements Stoppable {
+    private final TestWorkerPool.WorkerKey key;
+    private final WorkerProcess workerProcess;
+    private final RemoteReusableTestWorker remoteWorker;
+    private final Lock lock = new ReentrantLock();
+    private final Condition stateChanged = lock.newCondition();
+    private TestResultProcessor resultProcessor;
+    private TestClassCompletionListener completionListener;
+    private boolean sessionActive;
+    private boolean failed;
+
+    PooledTestWorker(TestWorkerPool.WorkerKey key, WorkerProcess workerProcess) {
+        this.key = key;
+        this.workerProcess = workerProcess;
+        ObjectConnection connection = workerProcess.getConnection();
+        connection.useParameterSerializers(TestEventSerializer.create());
+        connection.addIncoming(ReusableTestWorkerEvents.class, new SessionEvents());
+        this.remoteWorker = connection.addOutgoing(RemoteReusableTestWorker.class);
+        connection.connect();
+    }
+
+    TestWorkerPool.WorkerKey getKey() {
+        return key;
+    }
+
+    WorkerProcess getWorkerProcess() {
+        return workerProcess;
+    }
+
+    boolean isFailed() {
+        lock.lock();
+        try {
+            return failed;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    void startSession(TestWorkerSessionSpec spec, TestResultProcessor resultProcessor, TestClassCompletionListener completionListener) {
+        lock.lock();
+        try {
+            if (sessionActive) {
+                throw new IllegalStateException("A session has already been started");
+            }
+            this.resultProcessor = resultProcessor;
+            this.completionListener = completionListener;
+            sessionActive = true;
+        } finally {
+            lock.unlock();
+        }
+        remoteWorker.startSession(spec);
+    }
+
+    void processTestClass(TestClassRunInfo testClass) {
+        remoteWorker.processTestClass(testClass);
+    }
+
+    void endSession() {
+        remoteWorker.endSession();
+    }
+
+    /**
+     * Waits for the worker to acknowledge the end of the current session.
+     *
+     * @return true when the worker can run another session, false when the worker process has gone away.
+     */
+    boolean waitForSessionEnd() {
+        lock.lock();
+        try {
+            while (sessionActive && !failed) {
+                stateChanged.awaitUninterruptibly();
+            }
+            return !failed;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    void stopNow() {
+        workerProcess.stopNow();
+    }
+
+    @Override
+    public void stop() {
+        if (!isFailed()) {
+            remoteWorker.stop();
+        }
+        workerProcess.waitForStop();
+    }
+
+    private TestResultProcessor getResultProcessor() {
+        lock.lock();
+        try {
+            return resultProcessor;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private TestClassCompletionListener getCompletionListener() {
+        lock.lock();
+        try {
+            return completionListener;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private class SessionEvents implements ReusableTestWorkerEvents, StreamCompletion {
+        @Override
+        public void started(TestDescriptorInternal test, TestStartEvent event) {
+            getResultProcessor().started(test, event);
+        }
+
+        @Override
+        public void completed(Object testId, TestCompleteEvent event) {
+            getResultProcessor().completed(testId, event);
+        }
+
+        @Override
+        public void output(Object testId, TestOutputEvent event) {
+            getResultProcessor().output(testId, event);
+        }
+
+        @Override
+        public void failure(Object testId, Throwable result) {
+            getResultProcessor().failure(testId, result);
+        }
+
+        @Override
+        public void testClassCompleted(String testClassName) {
+            getCompletionListener().testClassCompleted(testClassName);
+        }
+
+        @Override
+        public void processorFailed() {
+            getCompletionListener().processorFailed();
+        }
+
+        @Override
+        public void sessionEnded() {
+            lock.lock();
+            try {
+                sessionActive = false;
+                resultProcessor = null;
+                completionListener = null;
+                stateChanged.signalAll();
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        @Override
+        public void endStream() {
+            TestClassCompletionListener listener;
+            lock.lock();
+            try {
+                failed = true;
+                listener = sessionActive ? completionListener : null;
+                stateChanged.signalAll();
+            } finally {
+                lock.unlock();
+            }
+            if (listener != null) {
+                listener.processorFailed();
+            }
+        }
+    }
+}
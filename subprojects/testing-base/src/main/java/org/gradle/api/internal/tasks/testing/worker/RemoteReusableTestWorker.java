@@ -0,0 +1,45 @@
+/*
+ * Copyright 2021 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.api.internal.tasks.testing.worker;
+
+import org.gradle.api.internal.tasks.testing.TestClassRunInfo;
+
+/**
+ * The commands a {@link ReusableTestWorker} accepts. A worker runs any number of sessions, one after the other, each of which is
+ * equivalent to the lifecycle of a {@link RemoteTestClassProcessor}.
+ */
+public interface RemoteReusableTestWorker {
+    /**
+     * Starts a session for the given test runtime classpath. Does not block.
+     */
+    void startSession(TestWorkerSessionSpec spec);
+
+    /**
+     * Does not block.
+     */
+    void processTestClass(TestClassRunInfo testClass);
+
+    /**
+     * Finishes the current session. Acknowledged by {@link ReusableTestWorkerEvents#sessionEnded()} once all results have been sent. Does not block.
+     */
+    void endSession();
+
+    /**
+     * Stops the worker. Does not block.
+     */
+    void stop();
+}
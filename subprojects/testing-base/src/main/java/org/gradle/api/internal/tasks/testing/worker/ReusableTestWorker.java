@@ -0,0 +1,317 @@
+/*
+ * Copyright 2021 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.api.internal.tasks.testing.worker;
+
+import org.gradle.api.Action;
+import org.gradle.api.internal.tasks.testing.TestClassProcessor;
+import org.gradle.api.internal.tasks.testing.TestClassRunInfo;
+import org.gradle.api.internal.tasks.testing.WorkerTestClassProcessorFactory;
+import org.gradle.internal.Cast;
+import org.gradle.internal.UncheckedException;
+import org.gradle.internal.classloader.ClassLoaderUtils;
+import org.gradle.internal.classloader.FilteringClassLoader;
+import org.gradle.internal.classloader.MultiParentClassLoader;
+import org.gradle.internal.classloader.VisitableURLClassLoader;
+import org.gradle.internal.dispatch.ContextClassLoaderProxy;
+import org.gradle.internal.id.IdGenerator;
+import org.gradle.internal.io.ClassLoaderObjectInputStream;
+import org.gradle.internal.remote.ObjectConnection;
+import org.gradle.internal.service.DefaultServiceRegistry;
+import org.gradle.internal.time.Clock;
+import org.gradle.process.internal.worker.WorkerProcessContext;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.ObjectInputStream;
+import java.io.Serializable;
+import java.net.MalformedURLException;
+import java.net.URL;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.Properties;
+import java.util.TimeZone;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+
+/**
+ * A {@link TestWorker} which can run the tests of several test tasks, one session after the other, so the worker process can be reused.
+ *
+ * <p>The worker process is started without an application classpath. Each session loads the test runtime classpath into a new ClassLoader,
+ * and loads the test framework adapters into another new ClassLoader which sees the shared packages of the test runtime classpath.
+ * The {@code user.dir} system property is set to the working directory of the test task for each session.
+ * The system properties, security manager, default locale and default time zone are restored at the end of each session.
+ * See {@link TestWorkerPool#REUSE_TEST_WORKERS_OPTION} for the state which is not restored.</p>
+ *
+ * <p>Commands are processed sequentially in the main thread, in the same way as for {@link TestWorker}.</p>
+ */
+public class ReusableTestWorker implements Action<WorkerProcessContext>, RemoteReusableTestWorker, Serializable {
+    private enum State { IDLE, PROCESSING, STOPPED }
+
+    /**
+     * The packages containing the classes which link against the test frameworks. These are loaded separately for each session.
+     */
+    static final List<String> TEST_FRAMEWORK_ADAPTER_PACKAGES = Arrays.asList(
+        "org.gradle.api.internal.tasks.testing.junit",
+        "org.gradle.api.internal.tasks.testing.junitplatform",
+        "org.gradle.api.internal.tasks.testing.testng"
+    );
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(ReusableTestWorker.class);
+    private static final String WORK_THREAD_NAME = "Test worker";
+
+    private final BlockingQueue<Runnable> runQueue = new ArrayBlockingQueue<Runnable>(1);
+    private WorkerProcessContext workerProcessContext;
+    private ReusableTestWorkerEvents events;
+    private Session session;
+
+    /**
+     * Only modified in the main thread, see {@link TestWorker}.
+     */
+    private volatile State state = State.IDLE;
+
+    @Override
+    public void execute(WorkerProcessContext workerProcessContext) {
+        Thread.currentThread().setName(WORK_THREAD_NAME);
+
+        LOGGER.info("{} started, waiting for tests.", workerProcessContext.getDisplayName());
+
+        System.setProperty(TestWorker.WORKER_ID_SYS_PROPERTY, workerProcessContext.getWorkerId().toString());
+
+        this.workerProcessContext = workerProcessContext;
+        ObjectConnection serverConnection = workerProcessContext.getServerConnection();
+        serverConnection.useParameterSerializers(TestEventSerializer.create());
+        this.events = serverConnection.addOutgoing(ReusableTestWorkerEvents.class);
+        serverConnection.addIncoming(RemoteReusableTestWorker.class, this);
+        serverConnection.connect();
+
+        try {
+            try {
+                while (state != State.STOPPED) {
+                    executeAndMaintainThreadName(runQueue.take());
+                }
+            } catch (InterruptedException e) {
+                throw UncheckedException.throwAsUncheckedException(e);
+            }
+        } finally {
+            LOGGER.info("{} finished executing tests.", workerProcessContext.getDisplayName());
+
+            synchronized (this) {
+                state = State.STOPPED;
+                runQueue.clear();
+            }
+
+            if (session != null) {
+                session.close();
+            }
+        }
+    }
+
+    private static void executeAndMaintainThreadName(Runnable action) {
+        try {
+            action.run();
+        } finally {
+            Thread.currentThread().setName(WORK_THREAD_NAME);
+        }
+    }
+
+    @Override
+    public void startSession(final TestWorkerSessionSpec spec) {
+        submitToRun(new Runnable() {
+            @Override
+            public void run() {
+                if (state != State.IDLE) {
+                    throw new IllegalStateException("A session has already been started");
+                }
+                session = new Session(spec, workerProcessContext);
+                session.start(events);
+                state = State.PROCESSING;
+            }
+        });
+    }
+
+    @Override
+    public void processTestClass(final TestClassRunInfo testClass) {
+        submitToRun(new Runnable() {
+            @Override
+            public void run() {
+                if (state != State.PROCESSING) {
+                    throw new IllegalStateException("Test classes cannot be processed until a session has been started");
+                }
+                try {
+                    session.processor.processTestClass(testClass);
+                } finally {
+                    // Clean the interrupted status
+                    Thread.interrupted();
+                }
+                events.testClassCompleted(testClass.getTestClassName());
+            }
+        });
+    }
+
+    @Override
+    public void endSession() {
+        submitToRun(new Runnable() {
+            @Override
+            public void run() {
+                if (state != State.PROCESSING) {
+                    throw new IllegalStateException("No session has been started");
+                }
+                try {
+                    session.processor.stop();
+                } finally {
+                    Thread.interrupted();
+                    session.close();
+                    session = null;
+                    state = State.IDLE;
+                }
+                events.sessionEnded();
+            }
+        });
+    }
+
+    @Override
+    public void stop() {
+        submitToRun(new Runnable() {
+            @Override
+            public void run() {
+                state = State.STOPPED;
+            }
+        });
+    }
+
+    private synchronized void submitToRun(Runnable command) {
+        if (state != State.STOPPED) {
+            try {
+                runQueue.put(command);
+            } catch (InterruptedException e) {
+                throw UncheckedException.throwAsUncheckedException(e);
+            }
+        }
+    }
+
+    private static class Session {
+        private final TestWorkerSessionSpec spec;
+        private final WorkerProcessContext workerProcessContext;
+        private final Properties systemProperties;
+        private final SecurityManager securityManager;
+        private final Locale locale;
+        private final TimeZone timeZone;
+        private VisitableURLClassLoader applicationClassLoader;
+        private VisitableURLClassLoader testFrameworkClassLoader;
+        private DefaultServiceRegistry testServices;
+        private TestClassProcessor processor;
+
+        Session(TestWorkerSessionSpec spec, WorkerProcessContext workerProcessContext) {
+            this.spec = spec;
+            this.workerProcessContext = workerProcessContext;
+            this.systemProperties = (Properties) System.getProperties().clone();
+            this.securityManager = System.getSecurityManager();
+            this.locale = Locale.getDefault();
+            this.timeZone = TimeZone.getDefault();
+        }
+
+        void start(ReusableTestWorkerEvents events) {
+            if (spec.getWorkerTmpDir() != null) {
+                System.setProperty(TestWorker.WORKER_TMPDIR_SYS_PROPERTY, spec.getWorkerTmpDir());
+            }
+            // The process keeps the working directory it was started with, see TestWorkerPool.REUSE_TEST_WORKERS_OPTION
+            System.setProperty("user.dir", spec.getWorkingDir().getAbsolutePath());
+
+            applicationClassLoader = new VisitableURLClassLoader("test-runtime", ClassLoaderUtils.getPlatformClassLoader(), toUrls(spec.getApplicationClasspath()));
+            testFrameworkClassLoader = new VisitableURLClassLoader("test-framework", createTestFrameworkParent(), spec.getTestFrameworkClasspath());
+
+            testServices = new TestWorker.TestFrameworkServiceRegistry(workerProcessContext);
+            WorkerTestClassProcessorFactory factory = deserializeFactory();
+            TestClassProcessor targetProcessor = factory.create(testServices);
+            IdGenerator<Object> idGenerator = Cast.uncheckedNonnullCast(testServices.get(IdGenerator.class));
+            targetProcessor = new WorkerTestClassProcessor(targetProcessor, idGenerator.generateId(),
+                workerProcessContext.getDisplayName(), testServices.get(Clock.class));
+            processor = new ContextClassLoaderProxy<TestClassProcessor>(TestClassProcessor.class, targetProcessor, applicationClassLoader).getSource();
+            processor.startProcessing(events);
+        }
+
+        /**
+         * Mirrors the ClassLoader set up by the worker process for its implementation classpath: the shared packages are loaded from the test runtime classpath,
+         * and everything else from Gradle's implementation. The test framework adapters are hidden, so they are loaded again by the test framework ClassLoader.
+         */
+        private ClassLoader createTestFrameworkParent() {
+            FilteringClassLoader.Spec sharedSpec = new FilteringClassLoader.Spec();
+            for (String sharedPackage : spec.getSharedPackages()) {
+                sharedSpec.allowPackage(sharedPackage);
+            }
+            FilteringClassLoader.Spec implementationSpec = new FilteringClassLoader.Spec();
+            implementationSpec.allowPackage("org.gradle");
+            implementationSpec.allowPackage("org.slf4j");
+            implementationSpec.allowPackage("org.apache.commons.lang");
+            implementationSpec.allowPackage("javax.inject");
+            for (String adapterPackage : TEST_FRAMEWORK_ADAPTER_PACKAGES) {
+                implementationSpec.disallowPackage(adapterPackage);
+            }
+            return new MultiParentClassLoader(
+                new FilteringClassLoader(applicationClassLoader, sharedSpec),
+                new FilteringClassLoader(ReusableTestWorker.class.getClassLoader(), implementationSpec)
+            );
+        }
+
+        private WorkerTestClassProcessorFactory deserializeFactory() {
+            try {
+                ObjectInputStream inputStream = new ClassLoaderObjectInputStream(new ByteArrayInputStream(spec.getSerializedProcessorFactory()), testFrameworkClassLoader);
+                return (WorkerTestClassProcessorFactory) inputStream.readObject();
+            } catch (Exception e) {
+                throw UncheckedException.throwAsUncheckedException(e);
+            }
+        }
+
+        void close() {
+            try {
+                if (testServices != null) {
+                    testServices.close();
+                }
+            } finally {
+                if (System.getSecurityManager() != securityManager) {
+                    try {
+                        // Reset security manager the tests seem to have installed
+                        System.setSecurityManager(securityManager);
+                    } catch (SecurityException e) {
+                        LOGGER.warn("Unable to reset SecurityManager. Continuing anyway...", e);
+                    }
+                }
+                System.setProperties(systemProperties);
+                Locale.setDefault(locale);
+                TimeZone.setDefault(timeZone);
+                ClassLoaderUtils.tryClose(testFrameworkClassLoader);
+                ClassLoaderUtils.tryClose(applicationClassLoader);
+            }
+        }
+
+        private static List<URL> toUrls(List<File> files) {
+            List<URL> urls = new ArrayList<URL>(files.size());
+            for (File file : files) {
+                try {
+                    urls.add(file.toURI().toURL());
+                } catch (MalformedURLException e) {
+                    throw UncheckedException.throwAsUncheckedException(e);
+                }
+            }
+            return urls;
+        }
+    }
+}
@@ -0,0 +1,31 @@
+/*
+ * Copyright 2021 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.api.internal.tasks.testing.worker;
+
+import org.gradle.api.internal.tasks.testing.TestClassCompletionListener;
+import org.gradle.api.internal.tasks.testing.TestResultProcessor;
+
+/**
+ * The events sent by a {@link ReusableTestWorker}. These are all sent through a single channel, so the end of a session is
+ * received after the results and completed test classes of that session.
+ */
+public interface ReusableTestWorkerEvents extends TestResultProcessor, TestClassCompletionListener {
+    /**
+     * Called when the worker has finished the current session and is ready to start another one.
+     */
+    void sessionEnded();
+}
@@ -17,6 +17,7 @@
 package org.gradle.api.internal.tasks.testing.worker;
 
 import org.gradle.api.Action;
+import org.gradle.api.internal.tasks.testing.TestClassCompletionListener;
 import org.gradle.api.internal.tasks.testing.TestClassProcessor;
 import org.gradle.api.internal.tasks.testing.TestClassRunInfo;
 import org.gradle.api.internal.tasks.testing.TestResultProcessor;
@@ -56,6 +57,8 @@
  * Commands are received on communication threads and then processed sequentially on the main thread.  Although concurrent calls to
  * any of the methods from {@link RemoteTestClassProcessor} are supported, the commands will still be executed sequentially in the
  * main thread in order of arrival.
+ *
+ * Once the processor has finished with a test class, this is acknowledged to the {@link TestClassCompletionListener} of the server connection.
  */
 public class TestWorker implements Action<WorkerProcessContext>, RemoteTestClassProcessor, Serializable, Stoppable {
     private enum State { INITIALIZING, STARTED, STOPPED }
@@ -69,6 +72,7 @@ private enum State { INITIALIZING, STARTED, STOPPED }
     private final BlockingQueue<Runnable> runQueue = new ArrayBlockingQueue<Runnable>(1);
     private TestClassProcessor processor;
     private TestResultProcessor resultProcessor;
+    private TestClassCompletionListener completionListener;
 
     /**
      * Note that the state object is not synchronized and not thread-safe.  Any modifications to the
@@ -146,6 +150,7 @@ private void startReceivingTests(WorkerProcessContext workerProcessContext, Serv
         ObjectConnection serverConnection = workerProcessContext.getServerConnection();
         serverConnection.useParameterSerializers(TestEventSerializer.create());
         this.resultProcessor = serverConnection.addOutgoing(TestResultProcessor.class);
+        this.completionListener = serverConnection.addOutgoing(TestClassCompletionListener.class);
         serverConnection.addIncoming(RemoteTestClassProcessor.class, this);
         serverConnection.connect();
     }
@@ -180,6 +185,7 @@ public void run() {
                     // Clean the interrupted status
                     Thread.interrupted();
                 }
+                completionListener.testClassCompleted(testClass.getTestClassName());
             }
         });
     }
@@ -211,7 +217,7 @@ private synchronized void submitToRun(Runnable command) {
         }
     }
 
-    private static class TestFrameworkServiceRegistry extends DefaultServiceRegistry {
+    static class TestFrameworkServiceRegistry extends DefaultServiceRegistry {
         private final WorkerProcessContext workerProcessContext;
 
         public TestFrameworkServiceRegistry(WorkerProcessContext workerProcessContext) {
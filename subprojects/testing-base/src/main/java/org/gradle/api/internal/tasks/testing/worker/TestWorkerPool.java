@@ -0,0 +1,193 @@
+/*
+ * Copyright 2021 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.api.internal.tasks.testing.worker;
+
+import org.gradle.api.logging.LogLevel;
+import org.gradle.internal.concurrent.CompositeStoppable;
+import org.gradle.internal.concurrent.Stoppable;
+import org.gradle.internal.options.InternalFlag;
+import org.gradle.internal.options.InternalOption;
+import org.gradle.process.internal.JavaExecHandleBuilder;
+import org.gradle.process.internal.worker.WorkerProcessBuilder;
+
+import javax.annotation.Nullable;
+import java.net.URL;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Keeps the test worker processes of the build session which are not currently used by a test task, so they can be reused by later test tasks.
+ *
+ * <p>Workers are only reused for test tasks with the same JVM configuration, apart from the working directory. Each use of a worker loads the test runtime classpath into a fresh ClassLoader,
+ * see {@link ReusableTestWorker}. The idle workers are stopped at the end of the build session.</p>
+ */
+public class TestWorkerPool implements Stoppable {
+    /**
+     * Enables reuse of test worker processes across test tasks, e.g. {@code -Dorg.gradle.testing.internal.reuse-test-workers=true}.
+     *
+     * <p>Only the system properties, security manager, default locale and default time zone are restored after a test task used a worker.
+     * Any other JVM-wide state changed by the tests is seen by the tests of later test tasks, for example threads which are still running,
+     * shutdown hooks, or factories and defaults which can only be set once, like the URL stream handler factory. State that the JVM derives
+     * from system properties on first use, like the default charset from {@code file.encoding}, keeps the value of the first test task.</p>
+     *
+     * <p>Workers are reused by test tasks with different working directories. The {@code user.dir} system property is set to the working directory
+     * of the test task, but the working directory of the process cannot be changed. Relative paths are resolved against the working directory of the
+     * test task which started the worker when files are opened, and on Java 11 and later also by {@code File.getAbsolutePath()}.</p>
+     */
+    public static final InternalOption<Boolean> REUSE_TEST_WORKERS_OPTION = new InternalFlag("org.gradle.testing.internal.reuse-test-workers");
+
+    private final Object lock = new Object();
+    private final Map<WorkerKey, List<PooledTestWorker>> idleWorkers = new LinkedHashMap<WorkerKey, List<PooledTestWorker>>();
+    private boolean stopped;
+
+    /**
+     * Reserves an idle worker with the given configuration.
+     *
+     * @return the worker, or {@code null} when there is no such worker.
+     */
+    @Nullable
+    PooledTestWorker reserveIdleWorker(WorkerKey key) {
+        synchronized (lock) {
+            List<PooledTestWorker> candidates = idleWorkers.get(key);
+            if (candidates == null) {
+                return null;
+            }
+            PooledTestWorker reserved = null;
+            Iterator<PooledTestWorker> it = candidates.iterator();
+            while (reserved == null && it.hasNext()) {
+                PooledTestWorker candidate = it.next();
+                it.remove();
+                if (!candidate.isFailed()) {
+                    reserved = candidate;
+                }
+            }
+            if (candidates.isEmpty()) {
+                idleWorkers.remove(key);
+            }
+            return reserved;
+        }
+    }
+
+    /**
+     * Returns a worker which has finished its session to the pool.
+     */
+    void release(PooledTestWorker worker) {
+        synchronized (lock) {
+            if (!stopped && !worker.isFailed()) {
+                List<PooledTestWorker> workers = idleWorkers.get(worker.getKey());
+                if (workers == null) {
+                    workers = new ArrayList<PooledTestWorker>();
+                    idleWorkers.put(worker.getKey(), workers);
+                }
+                workers.add(worker);
+                return;
+            }
+        }
+        if (!worker.isFailed()) {
+            worker.stop();
+        }
+    }
+
+    @Override
+    public void stop() {
+        List<PooledTestWorker> workers = new ArrayList<PooledTestWorker>();
+        synchronized (lock) {
+            stopped = true;
+            for (List<PooledTestWorker> candidates : idleWorkers.values()) {
+                for (PooledTestWorker candidate : candidates) {
+                    if (!candidate.isFailed()) {
+                        workers.add(candidate);
+                    }
+                }
+            }
+            idleWorkers.clear();
+        }
+        CompositeStoppable.stoppable(workers).stop();
+    }
+
+    /**
+     * The configuration of a worker process which must match for the worker to be reused.
+     * The temporary directory and working directory of the test task are set for each session instead, see {@link TestWorkerSessionSpec}.
+     */
+    static final class WorkerKey {
+        private final String executable;
+        private final List<String> jvmArgs;
+        private final Map<String, String> environment;
+        private final List<String> implementationClasspath;
+        private final LogLevel logLevel;
+        private final int hashCode;
+
+        WorkerKey(String executable, List<String> jvmArgs, Map<String, String> environment, List<String> implementationClasspath, LogLevel logLevel) {
+            this.executable = executable;
+            this.jvmArgs = jvmArgs;
+            this.environment = environment;
+            this.implementationClasspath = implementationClasspath;
+            this.logLevel = logLevel;
+            int result = executable.hashCode();
+            result = 31 * result + jvmArgs.hashCode();
+            result = 31 * result + environment.hashCode();
+            result = 31 * result + implementationClasspath.hashCode();
+            result = 31 * result + logLevel.hashCode();
+            this.hashCode = result;
+        }
+
+        static WorkerKey of(WorkerProcessBuilder builder, List<URL> implementationClasspath) {
+            JavaExecHandleBuilder javaCommand = builder.getJavaCommand();
+            String tmpDirArg = "-D" + TestWorker.WORKER_TMPDIR_SYS_PROPERTY + "=";
+            List<String> jvmArgs = new ArrayList<String>();
+            for (String jvmArg : javaCommand.getAllJvmArgs()) {
+                if (!jvmArg.startsWith(tmpDirArg)) {
+                    jvmArgs.add(jvmArg);
+                }
+            }
+            Map<String, String> environment = new LinkedHashMap<String, String>();
+            for (Map.Entry<String, Object> entry : javaCommand.getEnvironment().entrySet()) {
+                environment.put(entry.getKey(), String.valueOf(entry.getValue()));
+            }
+            // Compare the URLs as strings, as URL.equals() may resolve host names
+            List<String> implementationClasspathUrls = new ArrayList<String>(implementationClasspath.size());
+            for (URL url : implementationClasspath) {
+                implementationClasspathUrls.add(url.toString());
+            }
+            return new WorkerKey(javaCommand.getExecutable(), jvmArgs, environment, implementationClasspathUrls, builder.getLogLevel());
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (o == null || getClass() != o.getClass()) {
+                return false;
+            }
+            WorkerKey that = (WorkerKey) o;
+            return executable.equals(that.executable)
+                && jvmArgs.equals(that.jvmArgs)
+                && environment.equals(that.environment)
+                && implementationClasspath.equals(that.implementationClasspath)
+                && logLevel == that.logLevel;
+        }
+
+        @Override
+        public int hashCode() {
+            return hashCode;
+        }
+    }
+}
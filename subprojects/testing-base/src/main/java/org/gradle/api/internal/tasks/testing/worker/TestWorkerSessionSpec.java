@@ -0,0 +1,84 @@
+/*
+ * Copyright 2021 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.api.internal.tasks.testing.worker;
+
+import javax.annotation.Nullable;
+import java.io.File;
+import java.io.Serializable;
+import java.net.URL;
+import java.util.List;
+
+/**
+ * Describes a session of a {@link ReusableTestWorker}, which runs the tests of a single test task.
+ */
+public class TestWorkerSessionSpec implements Serializable {
+    private final List<File> applicationClasspath;
+    private final List<URL> testFrameworkClasspath;
+    private final List<String> sharedPackages;
+    private final byte[] serializedProcessorFactory;
+    private final String workerTmpDir;
+    private final File workingDir;
+
+    public TestWorkerSessionSpec(List<File> applicationClasspath, List<URL> testFrameworkClasspath, List<String> sharedPackages, byte[] serializedProcessorFactory, @Nullable String workerTmpDir, File workingDir) {
+        this.applicationClasspath = applicationClasspath;
+        this.testFrameworkClasspath = testFrameworkClasspath;
+        this.sharedPackages = sharedPackages;
+        this.serializedProcessorFactory = serializedProcessorFactory;
+        this.workerTmpDir = workerTmpDir;
+        this.workingDir = workingDir;
+    }
+
+    /**
+     * The test runtime classpath.
+     */
+    public List<File> getApplicationClasspath() {
+        return applicationClasspath;
+    }
+
+    /**
+     * The classpath of the test framework adapters, which are loaded again for each session so they link against the test framework of the session.
+     */
+    public List<URL> getTestFrameworkClasspath() {
+        return testFrameworkClasspath;
+    }
+
+    /**
+     * The packages of the test runtime classpath that are visible to the test framework adapters.
+     */
+    public List<String> getSharedPackages() {
+        return sharedPackages;
+    }
+
+    /**
+     * The serialized {@link org.gradle.api.internal.tasks.testing.WorkerTestClassProcessorFactory}, which can only be deserialized once the test framework adapters have been loaded.
+     */
+    public byte[] getSerializedProcessorFactory() {
+        return serializedProcessorFactory;
+    }
+
+    @Nullable
+    public String getWorkerTmpDir() {
+        return workerTmpDir;
+    }
+
+    /**
+     * The working directory of the test task, which the {@code user.dir} system property is set to for the session.
+     */
+    public File getWorkingDir() {
+        return workingDir;
+    }
+}
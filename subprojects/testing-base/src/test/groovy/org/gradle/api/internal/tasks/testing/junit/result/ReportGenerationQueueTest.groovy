@@ -0,0 +1,56 @@
+/*
+ * Copyright 2021 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.api.internal.tasks.testing.junit.result
+
+import org.gradle.internal.operations.BuildOperationContext
+import org.gradle.internal.operations.BuildOperationExecutor
+import org.gradle.internal.operations.BuildOperationQueue
+import org.gradle.internal.operations.RunnableBuildOperation
+import spock.lang.Specification
+
+class ReportGenerationQueueTest extends Specification {
+    def queue = Mock(BuildOperationQueue)
+    def buildOperationExecutor = Mock(BuildOperationExecutor)
+    def generationQueue = new ReportGenerationQueue(queue, buildOperationExecutor, 2)
+
+    def "runs operations on the visiting thread when too many are pending"() {
+        def queued = []
+        def first = Mock(RunnableBuildOperation)
+        def second = Mock(RunnableBuildOperation)
+        def third = Mock(RunnableBuildOperation)
+        def fourth = Mock(RunnableBuildOperation)
+
+        when:
+        generationQueue.add(first)
+        generationQueue.add(second)
+        generationQueue.add(third)
+
+        then:
+        2 * queue.add(_) >> { RunnableBuildOperation operation -> queued << operation }
+        1 * buildOperationExecutor.run(third)
+        0 * _
+
+        when:
+        queued[0].run(Stub(BuildOperationContext))
+        generationQueue.add(fourth)
+
+        then:
+        1 * first.run(_)
+        1 * queue.add(_)
+        0 * _
+    }
+}
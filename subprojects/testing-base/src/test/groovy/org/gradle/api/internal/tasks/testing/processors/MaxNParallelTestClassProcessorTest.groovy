@@ -16,14 +16,23 @@
 
 package org.gradle.api.internal.tasks.testing.processors
 
+import org.gradle.api.internal.tasks.testing.CompletionReportingTestClassProcessor
+import org.gradle.api.internal.tasks.testing.DefaultTestClassRunInfo
+import org.gradle.api.internal.tasks.testing.TestClassCompletionListener
 import org.gradle.api.internal.tasks.testing.TestClassProcessor
 import org.gradle.api.internal.tasks.testing.TestClassRunInfo
 import org.gradle.api.internal.tasks.testing.TestResultProcessor
 import org.gradle.internal.actor.Actor
 import org.gradle.internal.actor.ActorFactory
+import org.gradle.internal.actor.internal.DefaultActorFactory
+import org.gradle.internal.concurrent.DefaultExecutorFactory
 import spock.lang.Specification
+import spock.lang.Timeout
 import org.gradle.internal.Factory
 
+import java.util.concurrent.ConcurrentHashMap
+import java.util.concurrent.atomic.AtomicInteger
+
 class MaxNParallelTestClassProcessorTest extends Specification {
     private final Factory<TestClassProcessor> factory = Mock()
     private final TestResultProcessor resultProcessor = Mock()
@@ -202,4 +211,225 @@ class MaxNParallelTestClassProcessorTest extends Specification {
         1 * processor1.stopNow()
         1 * processor2.stopNow()
     }
+
+    def "processors that report completion pull the next test class once idle"() {
+        TestClassRunInfo test1 = Mock()
+        TestClassRunInfo test2 = Mock()
+        TestClassRunInfo test3 = Mock()
+        TestClassRunInfo test4 = Mock()
+        CompletionReportingTestClassProcessor processor1 = Mock()
+        CompletionReportingTestClassProcessor processor2 = Mock()
+        TestClassProcessor asyncProcessor1 = Mock()
+        TestClassProcessor asyncProcessor2 = Mock()
+        TestClassCompletionListener listener1 = null
+        TestClassCompletionListener listener2 = null
+
+        startProcessor()
+
+        when:
+        [test1, test2, test3, test4].each { processor.processTestClass(it) }
+
+        then:
+        1 * factory.create() >> processor1
+        1 * processor1.setCompletionListener(_) >> { listener1 = it[0] }
+        1 * actorFactory.createActor(processor1) >> Stub(Actor) { getProxy(TestClassProcessor) >> asyncProcessor1 }
+        1 * asyncProcessor1.processTestClass(test1)
+        1 * factory.create() >> processor2
+        1 * processor2.setCompletionListener(_) >> { listener2 = it[0] }
+        1 * actorFactory.createActor(processor2) >> Stub(Actor) { getProxy(TestClassProcessor) >> asyncProcessor2 }
+        1 * asyncProcessor2.processTestClass(test2)
+        0 * asyncProcessor1.processTestClass(_)
+        0 * asyncProcessor2.processTestClass(_)
+
+        when:
+        listener2.testClassCompleted("test2")
+
+        then:
+        1 * asyncProcessor2.processTestClass(test3)
+        0 * asyncProcessor1.processTestClass(_)
+
+        when:
+        listener2.testClassCompleted("test3")
+
+        then:
+        1 * asyncProcessor2.processTestClass(test4)
+        0 * asyncProcessor1.processTestClass(_)
+
+        when:
+        listener1.testClassCompleted("test1")
+        listener2.testClassCompleted("test4")
+        processor.stop()
+
+        then:
+        0 * asyncProcessor1.processTestClass(_)
+        0 * asyncProcessor2.processTestClass(_)
+        1 * asyncProcessor1.stop()
+        1 * asyncProcessor2.stop()
+        1 * resultProcessorActor.stop()
+    }
+
+    def "test classes are not given to processors that have failed"() {
+        TestClassRunInfo test1 = Mock()
+        TestClassRunInfo test2 = Mock()
+        TestClassRunInfo test3 = Mock()
+        CompletionReportingTestClassProcessor processor1 = Mock()
+        CompletionReportingTestClassProcessor processor2 = Mock()
+        TestClassProcessor asyncProcessor1 = Mock()
+        TestClassProcessor asyncProcessor2 = Mock()
+        TestClassCompletionListener listener1 = null
+        TestClassCompletionListener listener2 = null
+
+        startProcessor()
+
+        when:
+        [test1, test2, test3].each { processor.processTestClass(it) }
+
+        then:
+        1 * factory.create() >> processor1
+        1 * processor1.setCompletionListener(_) >> { listener1 = it[0] }
+        1 * actorFactory.createActor(processor1) >> Stub(Actor) { getProxy(TestClassProcessor) >> asyncProcessor1 }
+        1 * factory.create() >> processor2
+        1 * processor2.setCompletionListener(_) >> { listener2 = it[0] }
+        1 * actorFactory.createActor(processor2) >> Stub(Actor) { getProxy(TestClassProcessor) >> asyncProcessor2 }
+
+        when:
+        listener1.processorFailed()
+
+        then:
+        0 * asyncProcessor1.processTestClass(_)
+        0 * asyncProcessor2.processTestClass(_)
+
+        when:
+        listener2.processorFailed()
+
+        then:
+        1 * asyncProcessor1.processTestClass(test3)
+    }
+
+    @Timeout(30)
+    def "stop does not block when a processor fails to start and there are more test classes than processors"() {
+        def executorFactory = new DefaultExecutorFactory()
+        def actorFactory = new DefaultActorFactory(executorFactory)
+        def failure = new RuntimeException("could not start worker")
+        def factory = { new FailingToStartTestClassProcessor(failure) } as Factory<TestClassProcessor>
+        def processor = new MaxNParallelTestClassProcessor(1, factory, actorFactory)
+
+        when:
+        processor.startProcessing(Stub(TestResultProcessor))
+        (1..3).each { processor.processTestClass(new DefaultTestClassRunInfo("Test$it")) }
+        processor.stop()
+
+        then:
+        def e = thrown(RuntimeException)
+        e == failure
+
+        cleanup:
+        actorFactory.stop()
+        executorFactory.stop()
+    }
+
+    def "slow test classes are spread across processors when durations are skewed"() {
+        def executorFactory = new DefaultExecutorFactory()
+        def actorFactory = new DefaultActorFactory(executorFactory)
+        def durations = [Slow1: 300, Slow2: 300, Slow3: 300]
+        def testClasses = ['Slow1', 'Fast1', 'Slow2', 'Fast2', 'Slow3'] + (3..12).collect { "Fast$it".toString() }
+        def assignments = new ConcurrentHashMap<String, Integer>()
+        def forkCount = new AtomicInteger()
+        def factory = {
+            new SimulatedTestClassProcessor(forkCount.incrementAndGet(), durations, 10, assignments)
+        } as Factory<TestClassProcessor>
+        def processor = new MaxNParallelTestClassProcessor(2, factory, actorFactory)
+
+        when:
+        processor.startProcessing(Stub(TestResultProcessor))
+        testClasses.each { processor.processTestClass(new DefaultTestClassRunInfo(it)) }
+        processor.stop()
+
+        then:
+        assignments.keySet() == testClasses as Set
+        def slowClassesPerFork = assignments.findAll { it.key.startsWith('Slow') }.groupBy { it.value }
+        slowClassesPerFork.size() == 2
+        slowClassesPerFork.values().every { it.size() <= 2 }
+
+        cleanup:
+        actorFactory.stop()
+        executorFactory.stop()
+    }
+
+    /**
+     * Fails to start a worker for each test class it is given, reporting the failure as {@link org.gradle.api.internal.tasks.testing.worker.ForkingTestClassProcessor} does.
+     */
+    private static class FailingToStartTestClassProcessor implements CompletionReportingTestClassProcessor {
+        private final RuntimeException failure
+        private TestClassCompletionListener listener
+
+        FailingToStartTestClassProcessor(RuntimeException failure) {
+            this.failure = failure
+        }
+
+        @Override
+        void setCompletionListener(TestClassCompletionListener listener) {
+            this.listener = listener
+        }
+
+        @Override
+        void startProcessing(TestResultProcessor resultProcessor) {
+        }
+
+        @Override
+        void processTestClass(TestClassRunInfo testClass) {
+            listener.processorFailed()
+            throw failure
+        }
+
+        @Override
+        void stop() {
+        }
+
+        @Override
+        void stopNow() {
+        }
+    }
+
+    /**
+     * Runs test classes by sleeping for their configured duration, and reports each class once it is done.
+     */
+    private static class SimulatedTestClassProcessor implements CompletionReportingTestClassProcessor {
+        private final int fork
+        private final Map<String, Integer> durations
+        private final int defaultDuration
+        private final Map<String, Integer> assignments
+        private TestClassCompletionListener listener
+
+        SimulatedTestClassProcessor(int fork, Map<String, Integer> durations, int defaultDuration, Map<String, Integer> assignments) {
+            this.fork = fork
+            this.durations = durations
+            this.defaultDuration = defaultDuration
+            this.assignments = assignments
+        }
+
+        @Override
+        void setCompletionListener(TestClassCompletionListener listener) {
+            this.listener = listener
+        }
+
+        @Override
+        void startProcessing(TestResultProcessor resultProcessor) {
+        }
+
+        @Override
+        void processTestClass(TestClassRunInfo testClass) {
+            assignments.put(testClass.testClassName, fork)
+            Thread.sleep(durations.getOrDefault(testClass.testClassName, defaultDuration))
+            listener.testClassCompleted(testClass.testClassName)
+        }
+
+        @Override
+        void stop() {
+        }
+
+        @Override
+        void stopNow() {
+        }
+    }
 }
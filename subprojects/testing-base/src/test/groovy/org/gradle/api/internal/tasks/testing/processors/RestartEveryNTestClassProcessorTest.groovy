@@ -16,6 +16,8 @@
 
 package org.gradle.api.internal.tasks.testing.processors
 
+import org.gradle.api.internal.tasks.testing.CompletionReportingTestClassProcessor
+import org.gradle.api.internal.tasks.testing.TestClassCompletionListener
 import org.gradle.api.internal.tasks.testing.TestClassProcessor
 import org.gradle.api.internal.tasks.testing.TestClassRunInfo
 import org.gradle.api.internal.tasks.testing.TestResultProcessor
@@ -229,4 +231,29 @@ class RestartEveryNTestClassProcessorTest extends Specification {
         then:
         0 * _._
     }
+
+    def "passes completion listener to each delegate processor"() {
+        given:
+        CompletionReportingTestClassProcessor delegate1 = Mock()
+        CompletionReportingTestClassProcessor delegate2 = Mock()
+        TestClassCompletionListener listener = Mock()
+        processor.completionListener = listener
+
+        when:
+        processor.startProcessing(resultProcessor)
+        processor.processTestClass(test1)
+        processor.processTestClass(test2)
+        processor.processTestClass(test3)
+
+        then:
+        1 * factory.create() >> delegate1
+        1 * delegate1.setCompletionListener(listener)
+        then:
+        1 * delegate1.startProcessing(resultProcessor)
+        then:
+        1 * factory.create() >> delegate2
+        1 * delegate2.setCompletionListener(listener)
+        then:
+        1 * delegate2.startProcessing(resultProcessor)
+    }
 }
@@ -526,6 +526,57 @@ class DefaultTestReportTest extends Specification {
         testClassFile.assertHasStandardError('err:\u0102')
     }
 
+    def "only renders the class pages whose results have changed since the previous report"() {
+        given:
+        report = reportWithMaxThreads(1)
+        report.generateReport(failingBuildResults(), reportDir)
+        def unchangedPage = reportDir.file('classes/org.gradle.passing.Passed.html')
+        def changedPage = reportDir.file('classes/org.gradle.passing.AlsoPassed.html')
+        def removedPage = reportDir.file('classes/org.gradle.ignoring.SomeIgnoredSomePassed.html')
+        unchangedPage.text = "unchanged"
+        changedPage.text = "changed"
+
+        when:
+        report.generateReport(buildResults {
+            testClassResult("org.gradle.passing.Passed") {
+                testcase("passed") {
+                    duration = 1000;
+                }
+            }
+            testClassResult("org.gradle.passing.AlsoPassed") {
+                testcase("passedToo") {
+                    duration = 1000;
+                    stdout "this is\nother standard output"
+                }
+            }
+        }, reportDir)
+
+        then:
+        unchangedPage.text == "unchanged"
+        results(changedPage).assertHasStandardOutput("this is\nother standard output")
+        !removedPage.exists()
+        !reportDir.file('classes/org.gradle.failing.SomeIgnoredSomePassedSomeFailed.html').exists()
+
+        def index = results(indexFile)
+        index.assertHasTests(2)
+        index.assertHasFailures(0)
+    }
+
+    def "renders all class pages when there is no index of the previous report"() {
+        given:
+        report = reportWithMaxThreads(1)
+        report.generateReport(passingBuildResults(), reportDir)
+        def page = reportDir.file('classes/org.gradle.passing.Passed.html')
+        page.text = "previous"
+        reportDir.file('classes/.page-index.bin').delete()
+
+        when:
+        report.generateReport(passingBuildResults(), reportDir)
+
+        then:
+        results(page).assertHasTests(1)
+    }
+
     TestResultsProvider buildResults(Closure closure) {
         ConfigureUtil.configure(closure, new BuildableTestResultsProvider())
     }
@@ -21,6 +21,7 @@ import org.gradle.api.Action
 import org.gradle.api.internal.DocumentationRegistry
 import org.gradle.api.internal.classpath.Module
 import org.gradle.api.internal.classpath.ModuleRegistry
+import org.gradle.api.internal.tasks.testing.TestClassCompletionListener
 import org.gradle.api.internal.tasks.testing.TestClassRunInfo
 import org.gradle.api.internal.tasks.testing.WorkerTestClassProcessorFactory
 import org.gradle.internal.classpath.ClassPath
@@ -143,6 +144,129 @@ class ForkingTestClassProcessorTest extends Specification {
         notThrown(ExecException)
     }
 
+    def "forwards completion of test classes and reports worker that goes away unexpectedly"() {
+        ForkingTestClassProcessor processor = new ForkingTestClassProcessor(workerLeaseRegistry, workerProcessFactory, Mock(WorkerTestClassProcessorFactory), options, [new File("classpath.jar")], [], [], Mock(Action), Stub(ModuleRegistry), documentationRegistry)
+        def completionListener = Mock(TestClassCompletionListener)
+        def connection = Mock(ObjectConnection)
+        def workerCompletionListener = null
+        processor.completionListener = completionListener
+
+        when:
+        processor.processTestClass(Mock(TestClassRunInfo))
+
+        then:
+        _ * workerProcess.getConnection() >> connection
+        1 * connection.addOutgoing(RemoteTestClassProcessor) >> Stub(RemoteTestClassProcessor)
+        1 * connection.addIncoming(TestClassCompletionListener, _) >> { workerCompletionListener = it[1] }
+
+        when:
+        workerCompletionListener.testClassCompleted("SomeTest")
+
+        then:
+        1 * completionListener.testClassCompleted("SomeTest")
+
+        when:
+        workerCompletionListener.endStream()
+
+        then:
+        1 * completionListener.processorFailed()
+    }
+
+    def "releases worker lease and reports failure when worker process cannot be started"() {
+        ForkingTestClassProcessor processor = new ForkingTestClassProcessor(workerLeaseRegistry, workerProcessFactory, Mock(WorkerTestClassProcessorFactory), options, [new File("classpath.jar")], [], [], Mock(Action), Stub(ModuleRegistry), documentationRegistry)
+        def completionListener = Mock(TestClassCompletionListener)
+        def failure = new ExecException("could not start")
+        processor.completionListener = completionListener
+
+        when:
+        processor.processTestClass(Mock(TestClassRunInfo))
+
+        then:
+        def e = thrown(ExecException)
+        e == failure
+        1 * workerLeaseRegistry.startWorker() >> workerLease
+        1 * workerProcess.start() >> { throw failure }
+        1 * workerLease.leaseFinish()
+        1 * completionListener.processorFailed()
+    }
+
+    def "does not report failure when worker goes away after stop"() {
+        ForkingTestClassProcessor processor = new ForkingTestClassProcessor(workerLeaseRegistry, workerProcessFactory, Mock(WorkerTestClassProcessorFactory), options, [new File("classpath.jar")], [], [], Mock(Action), Stub(ModuleRegistry), documentationRegistry)
+        def completionListener = Mock(TestClassCompletionListener)
+        def connection = Mock(ObjectConnection)
+        def workerCompletionListener = null
+        processor.completionListener = completionListener
+
+        when:
+        processor.processTestClass(Mock(TestClassRunInfo))
+        processor.stop()
+        workerCompletionListener.endStream()
+
+        then:
+        _ * workerProcess.getConnection() >> connection
+        1 * connection.addOutgoing(RemoteTestClassProcessor) >> Stub(RemoteTestClassProcessor)
+        1 * connection.addIncoming(TestClassCompletionListener, _) >> { workerCompletionListener = it[1] }
+        0 * completionListener._
+    }
+
+    def "runs tests in a pooled worker and returns it to the pool when stopped"() {
+        def workerPool = Mock(TestWorkerPool)
+        def pooledWorker = Mock(PooledTestWorker)
+        def test1 = Mock(TestClassRunInfo)
+        def test2 = Mock(TestClassRunInfo)
+        def processor = Spy(ForkingTestClassProcessor, constructorArgs: [workerLeaseRegistry, workerProcessFactory, Mock(WorkerTestClassProcessorFactory), options, [new File("classpath.jar")], [], [], Mock(Action), moduleRegistry, documentationRegistry, workerPool])
+
+        when:
+        processor.processTestClass(test1)
+        processor.processTestClass(test2)
+        processor.stop()
+
+        then:
+        1 * workerLeaseRegistry.startWorker() >> workerLease
+        1 * processor.startPooledWorkerSession() >> pooledWorker
+        0 * processor.forkProcess()
+        1 * pooledWorker.processTestClass(test1)
+        1 * pooledWorker.processTestClass(test2)
+        1 * pooledWorker.endSession()
+        1 * pooledWorker.waitForSessionEnd() >> true
+        1 * workerPool.release(pooledWorker)
+        1 * workerLease.leaseFinish()
+    }
+
+    def "does not return pooled worker to the pool when it goes away"() {
+        def workerPool = Mock(TestWorkerPool)
+        def pooledWorker = Mock(PooledTestWorker)
+        def processor = Spy(ForkingTestClassProcessor, constructorArgs: [workerLeaseRegistry, workerProcessFactory, Mock(WorkerTestClassProcessorFactory), options, [new File("classpath.jar")], [], [], Mock(Action), moduleRegistry, documentationRegistry, workerPool])
+
+        when:
+        processor.processTestClass(Mock(TestClassRunInfo))
+        processor.stop()
+
+        then:
+        1 * workerLeaseRegistry.startWorker() >> workerLease
+        1 * processor.startPooledWorkerSession() >> pooledWorker
+        1 * pooledWorker.waitForSessionEnd() >> false
+        _ * pooledWorker.getWorkerProcess() >> workerProcess
+        1 * workerProcess.waitForStop() >> { throw new ExecException("worker crashed") }
+        0 * workerPool.release(_)
+        1 * workerLease.leaseFinish()
+        thrown(ExecException)
+    }
+
+    def "does not use pooled workers when tests run as module"() {
+        def workerPool = Mock(TestWorkerPool)
+        def processor = Spy(ForkingTestClassProcessor, constructorArgs: [workerLeaseRegistry, workerProcessFactory, Mock(WorkerTestClassProcessorFactory), options, [], [new File("module.jar")], [], Mock(Action), moduleRegistry, documentationRegistry, workerPool])
+
+        when:
+        processor.processTestClass(Mock(TestClassRunInfo))
+
+        then:
+        1 * workerLeaseRegistry.startWorker() >> workerLease
+        1 * processor.forkProcess() >> Mock(RemoteTestClassProcessor)
+        0 * processor.startPooledWorkerSession()
+        0 * workerPool._
+    }
+
     def module(String module) {
         return Stub(Module) {
             _ * getImplementationClasspath() >> {
@@ -0,0 +1,112 @@
+/*
+ * Copyright 2021 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.api.internal.tasks.testing.worker
+
+import org.gradle.api.logging.LogLevel
+import org.gradle.process.internal.JavaExecHandleBuilder
+import org.gradle.process.internal.worker.WorkerProcessBuilder
+import spock.lang.Specification
+
+class TestWorkerPoolTest extends Specification {
+    def pool = new TestWorkerPool()
+    def key = key("-Xmx512m")
+
+    def "reserves idle worker with same configuration"() {
+        def worker = worker(key)
+
+        expect:
+        pool.reserveIdleWorker(key) == null
+
+        when:
+        pool.release(worker)
+
+        then:
+        pool.reserveIdleWorker(key("-Xmx256m")) == null
+        pool.reserveIdleWorker(key("-Xmx512m")) == worker
+        pool.reserveIdleWorker(key) == null
+    }
+
+    def "does not reserve worker which has failed"() {
+        def failed = worker(key)
+        def healthy = worker(key)
+        pool.release(failed)
+        pool.release(healthy)
+
+        when:
+        def reserved = pool.reserveIdleWorker(key)
+
+        then:
+        _ * failed.isFailed() >> true
+        reserved == healthy
+        pool.reserveIdleWorker(key) == null
+    }
+
+    def "stops idle workers when stopped and workers released afterwards"() {
+        def idle = worker(key)
+        def busy = worker(key)
+        pool.release(idle)
+
+        when:
+        pool.stop()
+
+        then:
+        1 * idle.stop()
+        0 * busy.stop()
+
+        when:
+        pool.release(busy)
+
+        then:
+        1 * busy.stop()
+        pool.reserveIdleWorker(key) == null
+    }
+
+    def "configuration of worker ignores temporary directory of test task"() {
+        expect:
+        keyFor(["-Xmx512m", "-Dorg.gradle.internal.worker.tmpdir=/build/tmp/test/work"]) == keyFor(["-Xmx512m", "-Dorg.gradle.internal.worker.tmpdir=/other/tmp/test/work"])
+        keyFor(["-Xmx512m", "-Dsome.prop=1"]) != keyFor(["-Xmx512m", "-Dsome.prop=2"])
+    }
+
+    def "configuration of worker ignores working directory of test task"() {
+        expect:
+        keyFor(["-Xmx512m"], new File("project-a")) == keyFor(["-Xmx512m"], new File("project-b"))
+    }
+
+    def key(String jvmArg) {
+        return new TestWorkerPool.WorkerKey("java", [jvmArg], [:], ["file:/gradle-worker.jar"], LogLevel.LIFECYCLE)
+    }
+
+    def keyFor(List<String> jvmArgs, File workingDir = new File("work")) {
+        def javaCommand = Stub(JavaExecHandleBuilder) {
+            getExecutable() >> "java"
+            getAllJvmArgs() >> jvmArgs
+            getEnvironment() >> [:]
+            getWorkingDir() >> workingDir
+        }
+        def builder = Stub(WorkerProcessBuilder) {
+            getJavaCommand() >> javaCommand
+            getLogLevel() >> LogLevel.LIFECYCLE
+        }
+        return TestWorkerPool.WorkerKey.of(builder, [new URL("file:/gradle-worker.jar")])
+    }
+
+    def worker(TestWorkerPool.WorkerKey key) {
+        return Mock(PooledTestWorker) {
+            _ * getKey() >> key
+        }
+    }
+}
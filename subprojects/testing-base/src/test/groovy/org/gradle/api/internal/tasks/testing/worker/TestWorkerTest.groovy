@@ -17,6 +17,7 @@
 
 package org.gradle.api.internal.tasks.testing.worker
 
+import org.gradle.api.internal.tasks.testing.TestClassCompletionListener
 import org.gradle.api.internal.tasks.testing.TestClassProcessor
 import org.gradle.api.internal.tasks.testing.TestClassRunInfo
 import org.gradle.api.internal.tasks.testing.TestResultProcessor
@@ -38,6 +39,7 @@ public class TestWorkerTest extends ConcurrentSpec {
     def processor = Mock(TestClassProcessor)
     def test = Mock(TestClassRunInfo)
     def resultProcessor = Mock(TestResultProcessor)
+    def completionListener = Mock(TestClassCompletionListener)
     def worker = new TestWorker(factory)
     def serviceRegistry = new DefaultServiceRegistry().add(Clock, Time.clock())
 
@@ -61,6 +63,7 @@ public class TestWorkerTest extends ConcurrentSpec {
         and:
         1 * factory.create(_) >> processor
         1 * connection.addOutgoing(TestResultProcessor) >> resultProcessor
+        1 * connection.addOutgoing(TestClassCompletionListener) >> completionListener
         1 * connection.addIncoming(RemoteTestClassProcessor, worker)
         1 * connection.useParameterSerializers(_)
         1 * connection.connect() >> {
@@ -73,7 +76,9 @@ public class TestWorkerTest extends ConcurrentSpec {
             }
         }
         1 * processor.startProcessing(_)
+        1 * test.testClassName >> "SomeTest"
         1 * processor.processTestClass(test)
+        1 * completionListener.testClassCompleted("SomeTest")
         1 * processor.stop()
     }
 }
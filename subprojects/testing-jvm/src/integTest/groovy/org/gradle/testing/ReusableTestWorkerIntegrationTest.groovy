@@ -0,0 +1,141 @@
+/*
+ * Copyright 2021 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.testing
+
+import org.gradle.api.internal.tasks.testing.worker.TestWorkerPool
+import org.gradle.integtests.fixtures.AbstractIntegrationSpec
+
+class ReusableTestWorkerIntegrationTest extends AbstractIntegrationSpec {
+
+    def setup() {
+        buildFile << """
+            apply plugin: 'java'
+            ${mavenCentralRepository()}
+            dependencies { testImplementation 'junit:junit:4.13' }
+
+            tasks.withType(Test).configureEach {
+                jvmArgs('-Duser.language=en', '-Duser.country=US', '-Duser.timezone=UTC')
+                systemProperty('results.dir', buildDir.absolutePath)
+            }
+            test {
+                include 'FirstTest.class'
+            }
+            tasks.register('otherTest', Test) {
+                testClassesDirs = sourceSets.test.output.classesDirs
+                classpath = sourceSets.test.runtimeClasspath
+                include 'SecondTest.class'
+                mustRunAfter test
+            }
+        """
+
+        file("src/test/java/SharedState.java") << """
+            import java.io.*;
+            import java.lang.management.ManagementFactory;
+
+            public class SharedState {
+                static int usages;
+
+                static void recordProcessId(String name) throws IOException {
+                    write(name + ".pid", ManagementFactory.getRuntimeMXBean().getName().split("@")[0]);
+                    write(name + ".userdir", System.getProperty("user.dir"));
+                }
+
+                private static void write(String fileName, String text) throws IOException {
+                    Writer writer = new FileWriter(new File(System.getProperty("results.dir"), fileName));
+                    try {
+                        writer.write(text);
+                    } finally {
+                        writer.close();
+                    }
+                }
+            }
+        """
+        file("src/test/java/FirstTest.java") << """
+            import org.junit.*;
+            import java.util.*;
+
+            public class FirstTest {
+                @Test
+                public void changesStateOfTheJvm() throws Exception {
+                    SharedState.recordProcessId("first");
+                    SharedState.usages++;
+                    System.setProperty("leaked.property", "first");
+                    Locale.setDefault(Locale.GERMANY);
+                    TimeZone.setDefault(TimeZone.getTimeZone("Asia/Tokyo"));
+                }
+            }
+        """
+        file("src/test/java/SecondTest.java") << """
+            import org.junit.*;
+            import java.util.*;
+
+            public class SecondTest {
+                @Test
+                public void doesNotSeeStateOfPreviousTestTask() throws Exception {
+                    SharedState.recordProcessId("second");
+                    Assert.assertEquals(0, SharedState.usages++);
+                    Assert.assertNull(System.getProperty("leaked.property"));
+                    Assert.assertEquals(Locale.US, Locale.getDefault());
+                    Assert.assertEquals("UTC", TimeZone.getDefault().getID());
+                }
+            }
+        """
+    }
+
+    def "reuses test worker of previous test task without leaking its state"() {
+        when:
+        executer.requireDaemon()
+            .requireIsolatedDaemons()
+            .withBuildJvmOpts("-D${TestWorkerPool.REUSE_TEST_WORKERS_OPTION.propertyName}=true")
+        succeeds "test", "otherTest"
+
+        then:
+        executedAndNotSkipped(":test", ":otherTest")
+        file("build/second.pid").text == file("build/first.pid").text
+    }
+
+    def "reuses test worker of test task with another working directory"() {
+        given:
+        buildFile << """
+            tasks.named('otherTest') {
+                workingDir = file('other-work')
+                doFirst { mkdir(workingDir) }
+            }
+        """
+
+        when:
+        executer.requireDaemon()
+            .requireIsolatedDaemons()
+            .withBuildJvmOpts("-D${TestWorkerPool.REUSE_TEST_WORKERS_OPTION.propertyName}=true")
+        succeeds "test", "otherTest"
+
+        then:
+        executedAndNotSkipped(":test", ":otherTest")
+        file("build/second.pid").text == file("build/first.pid").text
+        file("build/first.userdir").text == testDirectory.absolutePath
+        file("build/second.userdir").text == file("other-work").absolutePath
+    }
+
+    def "does not reuse test workers by default"() {
+        when:
+        succeeds "test", "otherTest"
+
+        then:
+        executedAndNotSkipped(":test", ":otherTest")
+        file("build/second.pid").text != file("build/first.pid").text
+    }
+}
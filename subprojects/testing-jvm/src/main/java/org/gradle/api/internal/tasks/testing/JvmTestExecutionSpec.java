@@ -24,6 +24,7 @@
 
 import java.io.File;
 import java.util.Collections;
+import java.util.Map;
 import java.util.Set;
 
 @UsedByScanPlugin("test-distribution, test-retry")
@@ -40,6 +41,7 @@ public class JvmTestExecutionSpec implements TestExecutionSpec {
     private final JavaForkOptions javaForkOptions;
     private final int maxParallelForks;
     private final Set<String> previousFailedTestClasses;
+    private final Map<String, Long> previousTestClassDurations;
 
     @UsedByScanPlugin("test-retry <= 1.1.3")
     public JvmTestExecutionSpec(TestFramework testFramework, Iterable<? extends File> classpath, FileTree candidateClassFiles, boolean scanForTestClasses, FileCollection testClassesDirs, String path, Path identityPath, long forkEvery, JavaForkOptions javaForkOptions, int maxParallelForks, Set<String> previousFailedTestClasses) {
@@ -48,6 +50,10 @@ public JvmTestExecutionSpec(TestFramework testFramework, Iterable<? extends File
 
     @UsedByScanPlugin("test-retry")
     public JvmTestExecutionSpec(TestFramework testFramework, Iterable<? extends File> classpath, Iterable<? extends File>  modulePath, FileTree candidateClassFiles, boolean scanForTestClasses, FileCollection testClassesDirs, String path, Path identityPath, long forkEvery, JavaForkOptions javaForkOptions, int maxParallelForks, Set<String> previousFailedTestClasses) {
+        this(testFramework, classpath, modulePath, candidateClassFiles, scanForTestClasses, testClassesDirs, path, identityPath, forkEvery, javaForkOptions, maxParallelForks, previousFailedTestClasses, Collections.<String, Long>emptyMap());
+    }
+
+    public JvmTestExecutionSpec(TestFramework testFramework, Iterable<? extends File> classpath, Iterable<? extends File>  modulePath, FileTree candidateClassFiles, boolean scanForTestClasses, FileCollection testClassesDirs, String path, Path identityPath, long forkEvery, JavaForkOptions javaForkOptions, int maxParallelForks, Set<String> previousFailedTestClasses, Map<String, Long> previousTestClassDurations) {
         this.testFramework = testFramework;
         this.classpath = classpath;
         this.modulePath = modulePath;
@@ -60,6 +66,7 @@ public JvmTestExecutionSpec(TestFramework testFramework, Iterable<? extends File
         this.javaForkOptions = javaForkOptions;
         this.maxParallelForks = maxParallelForks;
         this.previousFailedTestClasses = previousFailedTestClasses;
+        this.previousTestClassDurations = previousTestClassDurations;
     }
 
     public TestFramework getTestFramework() {
@@ -111,4 +118,11 @@ public int getMaxParallelForks() {
     public Set<String> getPreviousFailedTestClasses() {
         return previousFailedTestClasses;
     }
+
+    /**
+     * The durations of the test classes in the previous run of the task, in milliseconds, keyed by class name.
+     */
+    public Map<String, Long> getPreviousTestClassDurations() {
+        return previousTestClassDurations;
+    }
 }
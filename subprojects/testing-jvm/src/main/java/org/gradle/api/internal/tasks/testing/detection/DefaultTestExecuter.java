@@ -30,9 +30,11 @@
 import org.gradle.api.internal.tasks.testing.processors.MaxNParallelTestClassProcessor;
 import org.gradle.api.internal.tasks.testing.processors.PatternMatchTestClassProcessor;
 import org.gradle.api.internal.tasks.testing.processors.RestartEveryNTestClassProcessor;
+import org.gradle.api.internal.tasks.testing.processors.RunLongestFirstTestClassProcessor;
 import org.gradle.api.internal.tasks.testing.processors.RunPreviousFailedFirstTestClassProcessor;
 import org.gradle.api.internal.tasks.testing.processors.TestMainAction;
 import org.gradle.api.internal.tasks.testing.worker.ForkingTestClassProcessor;
+import org.gradle.api.internal.tasks.testing.worker.TestWorkerPool;
 import org.gradle.api.logging.Logger;
 import org.gradle.api.logging.Logging;
 import org.gradle.internal.Factory;
@@ -41,6 +43,7 @@
 import org.gradle.internal.work.WorkerLeaseService;
 import org.gradle.process.internal.worker.WorkerProcessFactory;
 
+import javax.annotation.Nullable;
 import java.io.File;
 import java.util.List;
 import java.util.Set;
@@ -60,12 +63,22 @@ public class DefaultTestExecuter implements TestExecuter<JvmTestExecutionSpec> {
     private final Clock clock;
     private final DocumentationRegistry documentationRegistry;
     private final DefaultTestFilter testFilter;
+    private final TestWorkerPool workerPool;
     private TestClassProcessor processor;
 
     public DefaultTestExecuter(
         WorkerProcessFactory workerFactory, ActorFactory actorFactory, ModuleRegistry moduleRegistry,
         WorkerLeaseService workerLeaseService, int maxWorkerCount,
         Clock clock, DocumentationRegistry documentationRegistry, DefaultTestFilter testFilter
+    ) {
+        this(workerFactory, actorFactory, moduleRegistry, workerLeaseService, maxWorkerCount, clock, documentationRegistry, testFilter, null);
+    }
+
+    public DefaultTestExecuter(
+        WorkerProcessFactory workerFactory, ActorFactory actorFactory, ModuleRegistry moduleRegistry,
+        WorkerLeaseService workerLeaseService, int maxWorkerCount,
+        Clock clock, DocumentationRegistry documentationRegistry, DefaultTestFilter testFilter,
+        @Nullable TestWorkerPool workerPool
     ) {
         this.workerFactory = workerFactory;
         this.actorFactory = actorFactory;
@@ -75,6 +88,7 @@ public DefaultTestExecuter(
         this.clock = clock;
         this.documentationRegistry = documentationRegistry;
         this.testFilter = testFilter;
+        this.workerPool = workerPool;
     }
 
     @Override
@@ -84,11 +98,13 @@ public void execute(final JvmTestExecutionSpec testExecutionSpec, TestResultProc
         final Set<File> classpath = ImmutableSet.copyOf(testExecutionSpec.getClasspath());
         final Set<File> modulePath = ImmutableSet.copyOf(testExecutionSpec.getModulePath());
         final List<String> testWorkerImplementationModules = testFramework.getTestWorkerImplementationModules();
+        // A worker which runs the tests of several test tasks would defeat the purpose of forkEvery
+        final TestWorkerPool workerPool = testExecutionSpec.getForkEvery() == 0 ? this.workerPool : null;
         final Factory<TestClassProcessor> forkingProcessorFactory = new Factory<TestClassProcessor>() {
             @Override
             public TestClassProcessor create() {
                 return new ForkingTestClassProcessor(workerLeaseService, workerFactory, testInstanceFactory, testExecutionSpec.getJavaForkOptions(),
-                    classpath, modulePath, testWorkerImplementationModules, testFramework.getWorkerConfigurationAction(), moduleRegistry, documentationRegistry);
+                    classpath, modulePath, testWorkerImplementationModules, testFramework.getWorkerConfigurationAction(), moduleRegistry, documentationRegistry, workerPool);
             }
         };
         final Factory<TestClassProcessor> reforkingProcessorFactory = new Factory<TestClassProcessor>() {
@@ -97,10 +113,15 @@ public TestClassProcessor create() {
                 return new RestartEveryNTestClassProcessor(forkingProcessorFactory, testExecutionSpec.getForkEvery());
             }
         };
-        processor =
-            new PatternMatchTestClassProcessor(testFilter,
-                new RunPreviousFailedFirstTestClassProcessor(testExecutionSpec.getPreviousFailedTestClasses(),
-                    new MaxNParallelTestClassProcessor(getMaxParallelForks(testExecutionSpec), reforkingProcessorFactory, actorFactory)));
+        int maxParallelForks = getMaxParallelForks(testExecutionSpec);
+        TestClassProcessor parallelProcessor = new RunPreviousFailedFirstTestClassProcessor(testExecutionSpec.getPreviousFailedTestClasses(),
+            new MaxNParallelTestClassProcessor(maxParallelForks, reforkingProcessorFactory, actorFactory));
+        // Running the longest test classes first only helps to spread the test classes across several forks.
+        // It does not delay the start of the tests, as RunPreviousFailedFirstTestClassProcessor holds back all test classes until they have all been detected.
+        if (maxParallelForks > 1 && !testExecutionSpec.getPreviousTestClassDurations().isEmpty()) {
+            parallelProcessor = new RunLongestFirstTestClassProcessor(testExecutionSpec.getPreviousTestClassDurations(), parallelProcessor);
+        }
+        processor = new PatternMatchTestClassProcessor(testFilter, parallelProcessor);
 
         final FileTree testClassFiles = testExecutionSpec.getCandidateClassFiles();
 
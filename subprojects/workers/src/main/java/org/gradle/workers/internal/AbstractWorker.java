@@ -38,6 +38,10 @@ public DefaultWorkResult execute(IsolatedParametersActionExecutionSpec<?> spec)
     }
 
     DefaultWorkResult executeWrappedInBuildOperation(final IsolatedParametersActionExecutionSpec<?> spec, final BuildOperationRef parentBuildOperation, final Work work) {
+        return executeWrappedInBuildOperation(spec, parentBuildOperation, new Details(spec.getActionImplementationClassName(), spec.getDisplayName()), work);
+    }
+
+    DefaultWorkResult executeWrappedInBuildOperation(final IsolatedParametersActionExecutionSpec<?> spec, final BuildOperationRef parentBuildOperation, final Details details, final Work work) {
         return buildOperationExecutor.call(new CallableBuildOperation<DefaultWorkResult>() {
             @Override
             public DefaultWorkResult call(BuildOperationContext context) {
@@ -51,7 +55,7 @@ public DefaultWorkResult call(BuildOperationContext context) {
             public BuildOperationDescriptor.Builder description() {
                 return BuildOperationDescriptor.displayName(spec.getDisplayName())
                     .parent(parentBuildOperation)
-                    .details(new Details(spec.getActionImplementationClassName(), spec.getDisplayName()));
+                    .details(details);
             }
         });
     }
@@ -82,6 +86,36 @@ public String getDisplayName() {
 
     }
 
+    static class WorkerDaemonDetails extends Details implements ExecuteWorkItemBuildOperationType.WorkerDaemonDetails {
+
+        private final boolean workerDaemonPoolHit;
+        private final boolean workerDaemonPrewarmed;
+        private final long workerDaemonWaitTimeMillis;
+
+        public WorkerDaemonDetails(String className, String displayName, boolean workerDaemonPoolHit, boolean workerDaemonPrewarmed, long workerDaemonWaitTimeMillis) {
+            super(className, displayName);
+            this.workerDaemonPoolHit = workerDaemonPoolHit;
+            this.workerDaemonPrewarmed = workerDaemonPrewarmed;
+            this.workerDaemonWaitTimeMillis = workerDaemonWaitTimeMillis;
+        }
+
+        @Override
+        public boolean isWorkerDaemonPoolHit() {
+            return workerDaemonPoolHit;
+        }
+
+        @Override
+        public boolean isWorkerDaemonPrewarmed() {
+            return workerDaemonPrewarmed;
+        }
+
+        @Override
+        public long getWorkerDaemonWaitTimeMillis() {
+            return workerDaemonWaitTimeMillis;
+        }
+
+    }
+
     static class Result implements ExecuteWorkItemBuildOperationType.Result {
     }
 
@@ -21,10 +21,15 @@
 import org.gradle.process.JavaForkOptions;
 import org.gradle.process.internal.JavaForkOptionsInternal;
 
+import java.io.File;
+
+import static org.gradle.process.internal.util.MergeOptionsUtil.normalized;
+
 public class DaemonForkOptions {
     private final JavaForkOptionsInternal forkOptions;
     private final KeepAliveMode keepAliveMode;
     private final ClassLoaderStructure classLoaderStructure;
+    private CompatibilityKey compatibilityKey;
 
     DaemonForkOptions(JavaForkOptionsInternal forkOptions,
                       KeepAliveMode keepAliveMode,
@@ -52,6 +57,25 @@ public boolean isCompatibleWith(DaemonForkOptions other) {
                 && Objects.equal(classLoaderStructure, other.getClassLoaderStructure());
     }
 
+    /**
+     * Returns a key for the options that must be equal for two sets of options to be compatible.
+     * Options with different keys are never compatible, options with the same key may be.
+     */
+    CompatibilityKey getCompatibilityKey() {
+        if (compatibilityKey == null) {
+            compatibilityKey = new CompatibilityKey(
+                forkOptions.getDebug(),
+                forkOptions.getEnableAssertions(),
+                normalized(forkOptions.getExecutable()),
+                forkOptions.getWorkingDir(),
+                normalized(forkOptions.getDefaultCharacterEncoding()),
+                keepAliveMode,
+                classLoaderStructure
+            );
+        }
+        return compatibilityKey;
+    }
+
     public String toString() {
         return MoreObjects.toStringHelper(this)
                 .add("executable", forkOptions.getExecutable())
@@ -61,4 +85,49 @@ public String toString() {
                 .add("keepAliveMode", keepAliveMode)
                 .toString();
     }
+
+    static final class CompatibilityKey {
+        private final boolean debug;
+        private final boolean enableAssertions;
+        private final String executable;
+        private final File workingDir;
+        private final String defaultCharacterEncoding;
+        private final KeepAliveMode keepAliveMode;
+        private final ClassLoaderStructure classLoaderStructure;
+        private final int hashCode;
+
+        CompatibilityKey(boolean debug, boolean enableAssertions, String executable, File workingDir, String defaultCharacterEncoding, KeepAliveMode keepAliveMode, ClassLoaderStructure classLoaderStructure) {
+            this.debug = debug;
+            this.enableAssertions = enableAssertions;
+            this.executable = executable;
+            this.workingDir = workingDir;
+            this.defaultCharacterEncoding = defaultCharacterEncoding;
+            this.keepAliveMode = keepAliveMode;
+            this.classLoaderStructure = classLoaderStructure;
+            this.hashCode = Objects.hashCode(debug, enableAssertions, executable, workingDir, defaultCharacterEncoding, keepAliveMode, classLoaderStructure);
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (o == null || getClass() != o.getClass()) {
+                return false;
+            }
+            CompatibilityKey that = (CompatibilityKey) o;
+            return debug == that.debug
+                && enableAssertions == that.enableAssertions
+                && executable.equals(that.executable)
+                && Objects.equal(workingDir, that.workingDir)
+                && defaultCharacterEncoding.equals(that.defaultCharacterEncoding)
+                && keepAliveMode == that.keepAliveMode
+                && Objects.equal(classLoaderStructure, that.classLoaderStructure);
+        }
+
+        @Override
+        public int hashCode() {
+            return hashCode;
+        }
+    }
 }
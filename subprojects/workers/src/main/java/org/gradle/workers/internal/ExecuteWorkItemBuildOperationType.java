@@ -35,6 +35,26 @@ interface Details {
         String getDisplayName();
     }
 
+    /**
+     * Details of a work item executed in a worker daemon.
+     */
+    interface WorkerDaemonDetails extends Details {
+        /**
+         * Returns true when the work item was executed by a worker daemon which was already running or being pre-warmed, false when a new worker daemon had to be started.
+         */
+        boolean isWorkerDaemonPoolHit();
+
+        /**
+         * Returns true when the work item was executed by a worker daemon which was pre-warmed at the start of the build.
+         */
+        boolean isWorkerDaemonPrewarmed();
+
+        /**
+         * Returns how long the work item waited for a worker daemon to be reserved or started, in milliseconds.
+         */
+        long getWorkerDaemonWaitTimeMillis();
+    }
+
     interface Result {
     }
 
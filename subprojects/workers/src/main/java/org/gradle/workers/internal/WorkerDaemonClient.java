@@ -31,6 +31,7 @@ class WorkerDaemonClient implements Stoppable {
     private final ActionExecutionSpecFactory actionExecutionSpecFactory;
     private int uses;
     private boolean failed;
+    private boolean prewarmed;
     private boolean cannotBeExpired = Boolean.getBoolean(DISABLE_EXPIRATION_PROPERTY_KEY);
 
     public WorkerDaemonClient(DaemonForkOptions forkOptions, MultiRequestClient<TransportableActionExecutionSpec, DefaultWorkResult> workerClient, WorkerProcess workerProcess, LogLevel logLevel, ActionExecutionSpecFactory actionExecutionSpecFactory) {
@@ -102,4 +103,12 @@ public String toString() {
             ", forkOptions=" + forkOptions +
             '}';
     }
+
+    public boolean isPrewarmed() {
+        return prewarmed;
+    }
+
+    public void setPrewarmed(boolean prewarmed) {
+        this.prewarmed = prewarmed;
+    }
 }
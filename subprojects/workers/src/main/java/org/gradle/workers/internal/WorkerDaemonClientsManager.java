@@ -24,6 +24,8 @@
 import org.gradle.api.logging.Logging;
 import org.gradle.internal.session.BuildSessionLifecycleListener;
 import org.gradle.internal.UncheckedException;
+import org.gradle.internal.concurrent.ExecutorFactory;
+import org.gradle.internal.concurrent.ManagedExecutor;
 import org.gradle.internal.concurrent.Stoppable;
 import org.gradle.internal.event.ListenerManager;
 import org.gradle.internal.exceptions.DefaultMultiCauseException;
@@ -31,24 +33,49 @@
 import org.gradle.internal.logging.events.LogLevelChangeEvent;
 import org.gradle.internal.logging.events.OutputEvent;
 import org.gradle.internal.logging.events.OutputEventListener;
+import org.gradle.internal.options.InternalFlag;
+import org.gradle.internal.options.InternalOption;
 import org.gradle.process.internal.health.memory.MemoryManager;
 import org.gradle.process.internal.health.memory.OsMemoryInfo;
 import org.gradle.process.internal.worker.WorkerProcess;
 import org.gradle.util.internal.CollectionUtils;
 
+import javax.annotation.Nullable;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
 
 import static java.util.Comparator.*;
 
+/**
+ * Keeps track of the worker daemons started by this process.
+ *
+ * <p>Idle daemons are indexed by the {@link DaemonForkOptions#getCompatibilityKey() compatibility key} of their fork options, so only the daemons which may be compatible with
+ * the requested options need to be checked when reserving one.</p>
+ *
+ * <p>When pre-warming is enabled, the daemons used by a build session are started again in the background at the start of the next build session,
+ * so they are likely to be ready by the time the build needs them.</p>
+ */
 public class WorkerDaemonClientsManager implements Stoppable {
+    /**
+     * Enables pre-warming of worker daemons, e.g. {@code -Dorg.gradle.workers.internal.prewarm-daemons=true} in {@code org.gradle.jvmargs}.
+     */
+    public static final InternalOption<Boolean> PREWARM_DAEMONS_OPTION = new InternalFlag("org.gradle.workers.internal.prewarm-daemons");
 
     private static final Logger LOGGER = Logging.getLogger(WorkerDaemonClientsManager.class);
 
     private final Object lock = new Object();
-    private final List<WorkerDaemonClient> allClients = new ArrayList<WorkerDaemonClient>();
-    private final List<WorkerDaemonClient> idleClients = new ArrayList<WorkerDaemonClient>();
+    private final Map<WorkerDaemonClient, DaemonForkOptions.CompatibilityKey> allClients = new LinkedHashMap<>();
+    private final Map<DaemonForkOptions.CompatibilityKey, List<WorkerDaemonClient>> idleClients = new LinkedHashMap<>();
+    private final List<PrewarmingClient> prewarmingClients = new ArrayList<>();
+    private final Set<WorkerDaemonClient> clientsUsedInSession = new LinkedHashSet<>();
+    private List<DaemonForkOptions> forkOptionsUsedInPreviousSession = Collections.emptyList();
     private final Action<WorkerProcess> workerProcessCleanupAction = new WorkerProcessCleanupAction();
 
     private final WorkerDaemonStarter workerDaemonStarter;
@@ -59,9 +86,17 @@ public class WorkerDaemonClientsManager implements Stoppable {
     private final OutputEventListener logLevelChangeEventListener;
     private final WorkerDaemonExpiration workerDaemonExpiration;
     private final MemoryManager memoryManager;
+    private final ManagedExecutor prewarmExecutor;
     private volatile LogLevel currentLogLevel;
 
     public WorkerDaemonClientsManager(WorkerDaemonStarter workerDaemonStarter, ListenerManager listenerManager, LoggingManagerInternal loggingManager, MemoryManager memoryManager, OsMemoryInfo memoryInfo) {
+        this(workerDaemonStarter, listenerManager, loggingManager, memoryManager, memoryInfo, null);
+    }
+
+    /**
+     * @param prewarmExecutorFactory used to pre-warm worker daemons, or {@code null} to disable pre-warming
+     */
+    public WorkerDaemonClientsManager(WorkerDaemonStarter workerDaemonStarter, ListenerManager listenerManager, LoggingManagerInternal loggingManager, MemoryManager memoryManager, OsMemoryInfo memoryInfo, @Nullable ExecutorFactory prewarmExecutorFactory) {
         this.workerDaemonStarter = workerDaemonStarter;
         this.listenerManager = listenerManager;
         this.loggingManager = loggingManager;
@@ -74,11 +109,26 @@ public WorkerDaemonClientsManager(WorkerDaemonStarter workerDaemonStarter, Liste
         this.memoryManager = memoryManager;
         this.workerDaemonExpiration = new WorkerDaemonExpiration(this, getTotalPhysicalMemory());
         memoryManager.addMemoryHolder(workerDaemonExpiration);
+        this.prewarmExecutor = prewarmExecutorFactory == null ? null : prewarmExecutorFactory.create("Worker daemon pre-warming");
     }
 
     // TODO - should supply and check for the same parameters as passed to reserveNewClient()
     public WorkerDaemonClient reserveIdleClient(DaemonForkOptions forkOptions) {
-        return reserveIdleClient(forkOptions, idleClients);
+        synchronized (lock) {
+            DaemonForkOptions.CompatibilityKey key = forkOptions.getCompatibilityKey();
+            List<WorkerDaemonClient> candidates = idleClients.get(key);
+            if (candidates == null) {
+                return null;
+            }
+            WorkerDaemonClient client = reserveIdleClient(forkOptions, candidates);
+            if (candidates.isEmpty()) {
+                idleClients.remove(key);
+            }
+            if (client != null) {
+                recordUse(client);
+            }
+            return client;
+        }
     }
 
     WorkerDaemonClient reserveIdleClient(DaemonForkOptions forkOptions, List<WorkerDaemonClient> clients) {
@@ -101,29 +151,150 @@ WorkerDaemonClient reserveIdleClient(DaemonForkOptions forkOptions, List<WorkerD
         }
     }
 
+    /**
+     * Reserves a worker daemon which is being pre-warmed for compatible options, waiting for it to start.
+     * Reserves an idle worker daemon instead when no compatible daemon is being pre-warmed, as a pre-warmed daemon may have become idle since the last attempt.
+     * Like idle daemons, a pre-warmed daemon started with a different log level than the current one is stopped rather than used.
+     *
+     * @return the client, or {@code null} when no compatible daemon is available or the pre-warmed daemon could not be started or has an out-of-date log level
+     */
+    @Nullable
+    public WorkerDaemonClient reservePrewarmedClient(DaemonForkOptions forkOptions) {
+        PrewarmingClient reserved = null;
+        synchronized (lock) {
+            for (PrewarmingClient candidate : prewarmingClients) {
+                if (!candidate.reserved && candidate.forkOptions.isCompatibleWith(forkOptions)) {
+                    candidate.reserved = true;
+                    reserved = candidate;
+                    break;
+                }
+            }
+            if (reserved == null) {
+                return reserveIdleClient(forkOptions);
+            }
+        }
+        WorkerDaemonClient client = reserved.client.join();
+        if (client != null && client.getLogLevel() != currentLogLevel) {
+            synchronized (lock) {
+                allClients.remove(client);
+                clientsUsedInSession.remove(client);
+            }
+            // TODO: Send a message to workers to change their log level rather than stopping
+            LOGGER.info("Log level has changed, stopping pre-warmed worker daemon with out-of-date log level.");
+            client.stop();
+            return null;
+        }
+        return client;
+    }
+
     public WorkerDaemonClient reserveNewClient(DaemonForkOptions forkOptions) {
         //allow the daemon to be started concurrently
         WorkerDaemonClient client = workerDaemonStarter.startDaemon(forkOptions, workerProcessCleanupAction);
         synchronized (lock) {
-            allClients.add(client);
+            allClients.put(client, forkOptions.getCompatibilityKey());
+            recordUse(client);
         }
         return client;
     }
 
     public void release(WorkerDaemonClient client) {
         synchronized (lock) {
-            if (!client.isFailed()) {
-                idleClients.add(client);
+            DaemonForkOptions.CompatibilityKey key = allClients.get(client);
+            if (key != null && !client.isFailed()) {
+                addIdleClient(key, client);
+            }
+        }
+    }
+
+    private void addIdleClient(DaemonForkOptions.CompatibilityKey key, WorkerDaemonClient client) {
+        idleClients.computeIfAbsent(key, k -> new ArrayList<>()).add(client);
+    }
+
+    private void recordUse(WorkerDaemonClient client) {
+        if (prewarmExecutor != null) {
+            clientsUsedInSession.add(client);
+        }
+    }
+
+    /**
+     * Returns all idle clients, in the order they became idle for each compatibility key.
+     */
+    List<WorkerDaemonClient> getIdleClients() {
+        synchronized (lock) {
+            List<WorkerDaemonClient> clients = new ArrayList<>();
+            for (List<WorkerDaemonClient> candidates : idleClients.values()) {
+                clients.addAll(candidates);
+            }
+            return clients;
+        }
+    }
+
+    private void prewarmClients() {
+        synchronized (lock) {
+            Map<DaemonForkOptions.CompatibilityKey, List<WorkerDaemonClient>> availableClients = new LinkedHashMap<>();
+            for (Map.Entry<DaemonForkOptions.CompatibilityKey, List<WorkerDaemonClient>> entry : idleClients.entrySet()) {
+                availableClients.put(entry.getKey(), new ArrayList<>(entry.getValue()));
+            }
+            for (DaemonForkOptions forkOptions : forkOptionsUsedInPreviousSession) {
+                if (!removeAvailableClient(forkOptions, availableClients.get(forkOptions.getCompatibilityKey()))) {
+                    startPrewarming(forkOptions);
+                }
             }
+            forkOptionsUsedInPreviousSession = Collections.emptyList();
         }
     }
 
+    private boolean removeAvailableClient(DaemonForkOptions forkOptions, @Nullable List<WorkerDaemonClient> availableClients) {
+        if (availableClients != null) {
+            Iterator<WorkerDaemonClient> it = availableClients.iterator();
+            while (it.hasNext()) {
+                WorkerDaemonClient candidate = it.next();
+                if (candidate.isCompatibleWith(forkOptions) && candidate.getLogLevel() == currentLogLevel) {
+                    it.remove();
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    private void startPrewarming(DaemonForkOptions forkOptions) {
+        PrewarmingClient prewarmingClient = new PrewarmingClient(forkOptions);
+        prewarmingClients.add(prewarmingClient);
+        prewarmExecutor.execute(() -> {
+            WorkerDaemonClient client = null;
+            try {
+                client = workerDaemonStarter.startDaemon(forkOptions, workerProcessCleanupAction);
+            } catch (Exception e) {
+                LOGGER.info("Could not pre-warm worker daemon.", e);
+            }
+            synchronized (lock) {
+                prewarmingClients.remove(prewarmingClient);
+                if (client != null) {
+                    client.setPrewarmed(true);
+                    allClients.put(client, forkOptions.getCompatibilityKey());
+                    if (prewarmingClient.reserved) {
+                        recordUse(client);
+                    } else {
+                        addIdleClient(forkOptions.getCompatibilityKey(), client);
+                    }
+                }
+            }
+            prewarmingClient.client.complete(client);
+        });
+    }
+
     @Override
     public void stop() {
+        if (prewarmExecutor != null) {
+            // Wait for daemons which are being pre-warmed, so they are stopped below
+            prewarmExecutor.stop();
+        }
         synchronized (lock) {
-            stopWorkers(allClients);
+            stopWorkers(new ArrayList<>(allClients.keySet()));
             allClients.clear();
             idleClients.clear();
+            clientsUsedInSession.clear();
             listenerManager.removeListener(stopSessionScopeWorkers);
             memoryManager.removeMemoryHolder(workerDaemonExpiration);
         }
@@ -146,7 +317,7 @@ private long getTotalPhysicalMemory() {
      */
     public void selectIdleClientsToStop(Transformer<List<WorkerDaemonClient>, List<WorkerDaemonClient>> selectionFunction) {
         synchronized (lock) {
-            List<WorkerDaemonClient> sortedClients = CollectionUtils.sort(idleClients, comparingInt(WorkerDaemonClient::getUses));
+            List<WorkerDaemonClient> sortedClients = CollectionUtils.sort(getIdleClients(), comparingInt(WorkerDaemonClient::getUses));
             List<WorkerDaemonClient> clientsToStop = selectionFunction.transform(new ArrayList<>(sortedClients));
             if (!clientsToStop.isEmpty()) {
                 stopWorkers(clientsToStop);
@@ -166,8 +337,15 @@ private void stopWorkers(List<WorkerDaemonClient> clientsToStop) {
                     failures.add(e);
                 }
             }
-            idleClients.removeAll(clientsToStop);
-            allClients.removeAll(clientsToStop);
+            Iterator<List<WorkerDaemonClient>> idleIterator = idleClients.values().iterator();
+            while (idleIterator.hasNext()) {
+                List<WorkerDaemonClient> candidates = idleIterator.next();
+                candidates.removeAll(clientsToStop);
+                if (candidates.isEmpty()) {
+                    idleIterator.remove();
+                }
+            }
+            allClients.keySet().removeAll(clientsToStop);
             if (!failures.isEmpty()) {
                 if (failures.size() == 1) {
                     throw UncheckedException.throwAsUncheckedException(failures.get(0));
@@ -181,10 +359,21 @@ private void stopWorkers(List<WorkerDaemonClient> clientsToStop) {
     }
 
     private class StopSessionScopedWorkers implements BuildSessionLifecycleListener {
+        @Override
+        public void afterStart() {
+            if (prewarmExecutor != null) {
+                prewarmClients();
+            }
+        }
+
         @Override
         public void beforeComplete() {
             synchronized (lock) {
-                List<WorkerDaemonClient> sessionScopedClients = CollectionUtils.filter(allClients, client -> client.getKeepAliveMode() == KeepAliveMode.SESSION);
+                if (prewarmExecutor != null) {
+                    forkOptionsUsedInPreviousSession = CollectionUtils.collect(clientsUsedInSession, new ArrayList<>(), WorkerDaemonClient::getForkOptions);
+                    clientsUsedInSession.clear();
+                }
+                List<WorkerDaemonClient> sessionScopedClients = CollectionUtils.filter(new ArrayList<>(allClients.keySet()), client -> client.getKeepAliveMode() == KeepAliveMode.SESSION);
                 stopWorkers(sessionScopedClients);
             }
         }
@@ -204,7 +393,7 @@ private class WorkerProcessCleanupAction implements Action<WorkerProcess> {
         @Override
         public void execute(WorkerProcess workerProcess) {
             synchronized (lock) {
-                Iterator<WorkerDaemonClient> iterator = allClients.iterator();
+                Iterator<WorkerDaemonClient> iterator = allClients.keySet().iterator();
                 while (iterator.hasNext()) {
                     WorkerDaemonClient client = iterator.next();
                     if (client.isProcess(workerProcess)) {
@@ -215,4 +404,14 @@ public void execute(WorkerProcess workerProcess) {
             }
         }
     }
+
+    private static class PrewarmingClient {
+        private final DaemonForkOptions forkOptions;
+        private final CompletableFuture<WorkerDaemonClient> client = new CompletableFuture<>();
+        private boolean reserved;
+
+        PrewarmingClient(DaemonForkOptions forkOptions) {
+            this.forkOptions = forkOptions;
+        }
+    }
 }
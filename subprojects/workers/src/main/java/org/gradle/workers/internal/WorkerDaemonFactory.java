@@ -20,6 +20,7 @@
 import org.gradle.internal.operations.BuildOperationRef;
 
 import javax.annotation.concurrent.ThreadSafe;
+import java.util.concurrent.TimeUnit;
 
 /**
  * Controls the lifecycle of the worker daemon and provides access to it.
@@ -39,21 +40,24 @@ public BuildOperationAwareWorker getWorker(WorkerRequirement workerRequirement)
         return new AbstractWorker(buildOperationExecutor) {
             @Override
             public DefaultWorkResult execute(IsolatedParametersActionExecutionSpec<?> spec, BuildOperationRef parentBuildOperation) {
-                final WorkerDaemonClient client = reserveClient();
-                try {
-                    return executeWrappedInBuildOperation(spec, parentBuildOperation, client::execute);
-                } finally {
-                    clientsManager.release(client);
-                }
-            }
-
-            private WorkerDaemonClient reserveClient() {
+                long reservationStart = System.nanoTime();
                 DaemonForkOptions forkOptions = ((ForkedWorkerRequirement) workerRequirement).getForkOptions();
+                boolean poolHit = true;
                 WorkerDaemonClient client = clientsManager.reserveIdleClient(forkOptions);
+                if (client == null) {
+                    client = clientsManager.reservePrewarmedClient(forkOptions);
+                }
                 if (client == null) {
                     client = clientsManager.reserveNewClient(forkOptions);
+                    poolHit = false;
+                }
+                long waitTimeMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - reservationStart);
+                try {
+                    Details details = new WorkerDaemonDetails(spec.getActionImplementationClassName(), spec.getDisplayName(), poolHit, client.isPrewarmed(), waitTimeMillis);
+                    return executeWrappedInBuildOperation(spec, parentBuildOperation, details, client::execute);
+                } finally {
+                    clientsManager.release(client);
                 }
-                return client;
             }
         };
     }
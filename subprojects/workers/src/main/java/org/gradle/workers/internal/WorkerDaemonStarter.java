@@ -23,6 +23,7 @@
 import org.gradle.api.logging.LoggingManager;
 import org.gradle.internal.UncheckedException;
 import org.gradle.internal.classloader.VisitableURLClassLoader;
+import org.gradle.internal.hash.FileContentHashFunction;
 import org.gradle.internal.time.Time;
 import org.gradle.internal.time.Timer;
 import org.gradle.process.internal.JavaExecHandleBuilder;
@@ -41,12 +42,14 @@ public class WorkerDaemonStarter {
     private final LoggingManager loggingManager;
     private final ClassPathRegistry classPathRegistry;
     private final ActionExecutionSpecFactory actionExecutionSpecFactory;
+    private final FileContentHashFunction fileContentHashFunction;
 
-    public WorkerDaemonStarter(WorkerProcessFactory workerDaemonProcessFactory, LoggingManager loggingManager, ClassPathRegistry classPathRegistry, ActionExecutionSpecFactory actionExecutionSpecFactory) {
+    public WorkerDaemonStarter(WorkerProcessFactory workerDaemonProcessFactory, LoggingManager loggingManager, ClassPathRegistry classPathRegistry, ActionExecutionSpecFactory actionExecutionSpecFactory, FileContentHashFunction fileContentHashFunction) {
         this.workerDaemonProcessFactory = workerDaemonProcessFactory;
         this.loggingManager = loggingManager;
         this.classPathRegistry = classPathRegistry;
         this.actionExecutionSpecFactory = actionExecutionSpecFactory;
+        this.fileContentHashFunction = fileContentHashFunction;
     }
 
     public WorkerDaemonClient startDaemon(DaemonForkOptions forkOptions, Action<WorkerProcess> cleanupAction) {
@@ -67,6 +70,8 @@ public WorkerDaemonClient startDaemon(DaemonForkOptions forkOptions, Action<Work
         builder.onProcessFailure(cleanupAction);
         JavaExecHandleBuilder javaCommand = builder.getJavaCommand();
         forkOptions.getJavaForkOptions().copyTo(javaCommand);
+        // The worker daemon hashes file content the same way as this process
+        javaCommand.systemProperty(FileContentHashFunction.SYSTEM_PROPERTY, fileContentHashFunction.getPropertyValue());
         builder.registerArgumentSerializer(TransportableActionExecutionSpec.class, new TransportableActionExecutionSpecSerializer());
         MultiRequestClient<TransportableActionExecutionSpec, DefaultWorkResult> workerDaemonProcess = builder.build();
         WorkerProcess workerProcess = workerDaemonProcess.start();
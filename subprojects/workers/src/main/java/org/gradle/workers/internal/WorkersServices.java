@@ -24,10 +24,12 @@
 import org.gradle.internal.concurrent.ExecutorFactory;
 import org.gradle.internal.event.ListenerManager;
 import org.gradle.internal.hash.ClassLoaderHierarchyHasher;
+import org.gradle.internal.hash.FileContentHashFunction;
 import org.gradle.internal.instantiation.InstantiatorFactory;
 import org.gradle.internal.isolation.IsolatableFactory;
 import org.gradle.internal.logging.LoggingManagerInternal;
 import org.gradle.internal.operations.BuildOperationExecutor;
+import org.gradle.internal.options.InternalOptions;
 import org.gradle.internal.service.ServiceRegistration;
 import org.gradle.internal.service.ServiceRegistry;
 import org.gradle.internal.service.scopes.AbstractPluginServiceRegistry;
@@ -83,8 +85,12 @@ WorkerDaemonClientsManager createWorkerDaemonClientsManager(WorkerProcessFactory
                                                                     MemoryManager memoryManager,
                                                                     OsMemoryInfo memoryInfo,
                                                                     ClassPathRegistry classPathRegistry,
-                                                                    ActionExecutionSpecFactory actionExecutionSpecFactory) {
-            return new WorkerDaemonClientsManager(new WorkerDaemonStarter(workerFactory, loggingManager, classPathRegistry, actionExecutionSpecFactory), listenerManager, loggingManager, memoryManager, memoryInfo);
+                                                                    ActionExecutionSpecFactory actionExecutionSpecFactory,
+                                                                    ExecutorFactory executorFactory,
+                                                                    FileContentHashFunction fileContentHashFunction,
+                                                                    InternalOptions internalOptions) {
+            ExecutorFactory prewarmExecutorFactory = internalOptions.getOption(WorkerDaemonClientsManager.PREWARM_DAEMONS_OPTION) ? executorFactory : null;
+            return new WorkerDaemonClientsManager(new WorkerDaemonStarter(workerFactory, loggingManager, classPathRegistry, actionExecutionSpecFactory, fileContentHashFunction), listenerManager, loggingManager, memoryManager, memoryInfo, prewarmExecutorFactory);
         }
 
         ClassLoaderStructureProvider createClassLoaderStructureProvider(ClassLoaderRegistry classLoaderRegistry) {
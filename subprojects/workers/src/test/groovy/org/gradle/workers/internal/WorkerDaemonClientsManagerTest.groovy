@@ -17,6 +17,7 @@
 package org.gradle.workers.internal
 
 import org.gradle.api.Transformer
+import org.gradle.api.internal.file.TestFiles
 import org.gradle.api.logging.LogLevel
 import org.gradle.internal.session.BuildSessionLifecycleListener
 import org.gradle.internal.event.DefaultListenerManager
@@ -32,8 +33,12 @@ import org.gradle.process.internal.health.memory.MemoryManager
 import org.gradle.util.ConcurrentSpecification
 import spock.lang.Subject
 
+import java.util.concurrent.CountDownLatch
+
+import static org.gradle.test.fixtures.ConcurrentTestUtil.poll
+
 class WorkerDaemonClientsManagerTest extends ConcurrentSpecification {
-    def options = Stub(DaemonForkOptions)
+    def options = daemonForkOptions(KeepAliveMode.SESSION)
     def starter = Stub(WorkerDaemonStarter)
     def listenerManager = Stub(ListenerManager)
     def loggingManager = Stub(LoggingManagerInternal)
@@ -66,6 +71,29 @@ class WorkerDaemonClientsManagerTest extends ConcurrentSpecification {
         input == [noMatch] //match removed from input
     }
 
+    def "only considers idle clients whose options have the same compatibility key"() {
+        def client = Mock(WorkerDaemonClient) {
+            isCompatibleWith(_) >> true
+            getLogLevel() >> LogLevel.DEBUG
+        }
+        starter.startDaemon(options, _) >> client
+        def otherJavaForkOptions = TestFiles.execFactory().newJavaForkOptions()
+        otherJavaForkOptions.debug = true
+        def otherOptions = new DaemonForkOptionsBuilder(TestFiles.execFactory())
+            .javaForkOptions(otherJavaForkOptions)
+            .keepAliveMode(KeepAliveMode.SESSION)
+            .build()
+
+        when:
+        manager.reserveNewClient(options)
+        manager.release(client)
+
+        then:
+        manager.reserveIdleClient(otherOptions) == null
+        manager.reserveIdleClient(daemonForkOptions(KeepAliveMode.DAEMON)) == null
+        manager.reserveIdleClient(daemonForkOptions(KeepAliveMode.SESSION)) == client
+    }
+
     def "reserves new client"() {
         def newClient = Stub(WorkerDaemonClient)
         starter.startDaemon(options, _) >> newClient
@@ -289,6 +317,147 @@ class WorkerDaemonClientsManagerTest extends ConcurrentSpecification {
         1 * client3.stop()
     }
 
+    def "pre-warms the clients used by the previous session at the start of the next session"() {
+        listenerManager = new DefaultListenerManager(Scopes.BuildSession)
+        starter = Mock(WorkerDaemonStarter)
+        manager = new WorkerDaemonClientsManager(starter, listenerManager, loggingManager, memoryManager, new MBeanOsMemoryInfo(), executorFactory)
+        def client = daemonClient(options)
+        def prewarmed = daemonClient(options)
+
+        when:
+        manager.reserveNewClient(options)
+        manager.release(client)
+        manager.reserveIdleClient(options)
+        manager.release(client)
+        listenerManager.getBroadcaster(BuildSessionLifecycleListener).beforeComplete()
+
+        then:
+        1 * starter.startDaemon(options, _) >> client
+        1 * client.stop()
+
+        when:
+        listenerManager.getBroadcaster(BuildSessionLifecycleListener).afterStart()
+        def reserved = manager.reservePrewarmedClient(options)
+
+        then:
+        1 * starter.startDaemon(options, _) >> prewarmed
+        1 * prewarmed.setPrewarmed(true)
+        reserved == prewarmed
+
+        and:
+        manager.reservePrewarmedClient(options) == null
+        manager.reserveIdleClient(options) == null
+
+        cleanup:
+        manager.stop()
+    }
+
+    def "reserves a pre-warmed client which has not started yet"() {
+        listenerManager = new DefaultListenerManager(Scopes.BuildSession)
+        starter = Mock(WorkerDaemonStarter)
+        manager = new WorkerDaemonClientsManager(starter, listenerManager, loggingManager, memoryManager, new MBeanOsMemoryInfo(), executorFactory)
+        def client = daemonClient(options)
+        def prewarmed = daemonClient(options)
+        def prewarmStarted = new CountDownLatch(1)
+        starter.startDaemon(options, _) >> client >> {
+            prewarmStarted.await()
+            prewarmed
+        }
+
+        given:
+        manager.reserveNewClient(options)
+        listenerManager.getBroadcaster(BuildSessionLifecycleListener).beforeComplete()
+        listenerManager.getBroadcaster(BuildSessionLifecycleListener).afterStart()
+
+        when:
+        WorkerDaemonClient reserved = null
+        def reserving = Thread.start {
+            reserved = manager.reservePrewarmedClient(options)
+        }
+        poll {
+            assert manager.prewarmingClients*.reserved == [true]
+        }
+        prewarmStarted.countDown()
+        reserving.join()
+
+        then:
+        reserved == prewarmed
+        manager.reserveIdleClient(options) == null
+
+        cleanup:
+        manager.stop()
+    }
+
+    def "stops a pre-warmed client whose log level is out of date"() {
+        OutputEventListener listener
+        loggingManager.addOutputEventListener(_) >> { args -> listener = args[0] }
+        listenerManager = new DefaultListenerManager(Scopes.BuildSession)
+        starter = Mock(WorkerDaemonStarter)
+        manager = new WorkerDaemonClientsManager(starter, listenerManager, loggingManager, memoryManager, new MBeanOsMemoryInfo(), executorFactory)
+        def client = daemonClient(options)
+        def prewarmed = daemonClient(options)
+
+        given:
+        starter.startDaemon(options, _) >>> [client, prewarmed]
+        manager.reserveNewClient(options)
+        listenerManager.getBroadcaster(BuildSessionLifecycleListener).beforeComplete()
+        listenerManager.getBroadcaster(BuildSessionLifecycleListener).afterStart()
+
+        when:
+        listener.onOutput(Stub(LogLevelChangeEvent) { getNewLogLevel() >> LogLevel.QUIET })
+        def reserved = manager.reservePrewarmedClient(options)
+
+        then:
+        reserved == null
+        1 * prewarmed.stop()
+
+        and:
+        manager.reserveIdleClient(options) == null
+
+        cleanup:
+        manager.stop()
+    }
+
+    def "does not pre-warm a client when a compatible idle client is available"() {
+        listenerManager = new DefaultListenerManager(Scopes.BuildSession)
+        starter = Mock(WorkerDaemonStarter)
+        manager = new WorkerDaemonClientsManager(starter, listenerManager, loggingManager, memoryManager, new MBeanOsMemoryInfo(), executorFactory)
+        def daemonOptions = daemonForkOptions(KeepAliveMode.DAEMON)
+        def client = daemonClient(daemonOptions)
+
+        when:
+        manager.reserveNewClient(daemonOptions)
+        manager.release(client)
+        listenerManager.getBroadcaster(BuildSessionLifecycleListener).beforeComplete()
+        listenerManager.getBroadcaster(BuildSessionLifecycleListener).afterStart()
+
+        then:
+        1 * starter.startDaemon(daemonOptions, _) >> client
+        0 * client.stop()
+
+        and:
+        manager.reservePrewarmedClient(daemonOptions) == client
+    }
+
+    def "does not pre-warm clients unless enabled"() {
+        listenerManager = new DefaultListenerManager(Scopes.BuildSession)
+        starter = Mock(WorkerDaemonStarter)
+        manager = new WorkerDaemonClientsManager(starter, listenerManager, loggingManager, memoryManager, new MBeanOsMemoryInfo())
+        def client = daemonClient(options)
+
+        when:
+        manager.reserveNewClient(options)
+        manager.release(client)
+        listenerManager.getBroadcaster(BuildSessionLifecycleListener).beforeComplete()
+        listenerManager.getBroadcaster(BuildSessionLifecycleListener).afterStart()
+
+        then:
+        1 * starter.startDaemon(options, _) >> client
+
+        and:
+        manager.reservePrewarmedClient(options) == null
+    }
+
     def "registers/deregisters a worker daemon expiration with the memory manager"() {
         WorkerDaemonExpiration workerDaemonExpiration
 
@@ -304,4 +473,19 @@ class WorkerDaemonClientsManagerTest extends ConcurrentSpecification {
         then:
         1 * memoryManager.removeMemoryHolder(_) >> { args -> assert args[0] == workerDaemonExpiration }
     }
+
+    private WorkerDaemonClient daemonClient(DaemonForkOptions forkOptions) {
+        return Mock(WorkerDaemonClient) {
+            _ * getForkOptions() >> forkOptions
+            _ * getKeepAliveMode() >> forkOptions.keepAliveMode
+            _ * isCompatibleWith(_) >> { DaemonForkOptions other -> forkOptions.isCompatibleWith(other) }
+            _ * getLogLevel() >> LogLevel.DEBUG
+        }
+    }
+
+    private static DaemonForkOptions daemonForkOptions(KeepAliveMode keepAliveMode) {
+        return new DaemonForkOptionsBuilder(TestFiles.execFactory())
+            .keepAliveMode(keepAliveMode)
+            .build()
+    }
 }
@@ -118,4 +118,32 @@ class WorkerDaemonFactoryTest extends Specification {
         then:
         thrown(RuntimeException)
     }
+
+    def "reports whether a new client was started for the work item"() {
+        def details = []
+
+        when:
+        factory.getWorker(requirement).execute(spec)
+
+        then:
+        1 * clientsManager.reserveIdleClient(options) >> (idle ? client : null)
+        (idle ? 0 : 1) * clientsManager.reservePrewarmedClient(options) >> (prewarming ? client : null)
+        (idle || prewarming ? 0 : 1) * clientsManager.reserveNewClient(options) >> client
+        _ * client.isPrewarmed() >> prewarmed
+        1 * buildOperationExecutor.call(_) >> { args -> details << args[0].description().build().details }
+
+        and:
+        details.size() == 1
+        details[0] instanceof ExecuteWorkItemBuildOperationType.WorkerDaemonDetails
+        details[0].workerDaemonPoolHit == poolHit
+        details[0].workerDaemonPrewarmed == prewarmed
+        details[0].workerDaemonWaitTimeMillis >= 0
+
+        where:
+        idle  | prewarming | prewarmed | poolHit
+        true  | false      | false     | true
+        true  | false      | true      | true
+        false | true       | true      | true
+        false | false      | false     | false
+    }
 }